@@ -49,4 +49,14 @@ public interface AlertSource {
     Optional<Alert> getAlert(Alert.ID id);
 
     Iterator<Alert> getAlerts(AlertCriteria criteria);
+
+    /**
+     * Indicates that {@link #getAlerts(AlertCriteria)} returns alerts ordered by created time, newest first, and no more than the limit of the
+     * criteria.  Alerts from sources that are not ordered are sorted when they are aggregated with other sources.
+     *
+     * @return true if the alerts are ordered newest first (default false)
+     */
+    default boolean isNewestFirst() {
+        return false;
+    }
 }
@@ -23,6 +23,9 @@ package com.thinkbiganalytics.alerts.api.core;
  * #L%
  */
 
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.thinkbiganalytics.alerts.api.Alert;
 import com.thinkbiganalytics.alerts.api.Alert.ID;
@@ -45,8 +48,10 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -55,7 +60,9 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -77,12 +84,18 @@ public class AggregatingAlertProvider implements AlertProvider, AlertSourceAggre
 
     private static final Logger LOG = LoggerFactory.getLogger(AggregatingAlertProvider.class);
 
+    /**
+     * Orders alerts by created time, newest first
+     */
+    private static final Ordering<Alert> NEWEST_FIRST = Ordering.from((a1, a2) -> a2.getCreatedTime().compareTo(a1.getCreatedTime()));
+
     private List<AlertResponder> responders;
     private Registration<?, ?> respondersRegistration;
     private Map<AlertListener, Registration<?, ?>> listeners;
     private Map<String, AlertSource> sources;
     private Map<String, AlertManager> managers;
     private Executor availableAlertsExecutor;
+    private final AtomicBoolean alertsAvailablePending = new AtomicBoolean(false);
     private volatile DateTime lastAlertsTime = DateTime.now();
 
     @Inject
@@ -112,6 +125,17 @@ public class AggregatingAlertProvider implements AlertProvider, AlertSourceAggre
         return Integer.toString(src.hashCode());
     }
 
+    /**
+     * Orders the alerts of a source that does not return them newest first, keeping only those that may be within the limit.
+     */
+    private static Iterator<Alert> sortNewestFirst(Iterator<Alert> alerts, Criteria criteria) {
+        if (criteria.isNextAfterTime()) {
+            return Lists.reverse(NEWEST_FIRST.greatestOf(alerts, criteria.getLimit())).iterator();
+        } else {
+            return NEWEST_FIRST.leastOf(alerts, criteria.getLimit()).iterator();
+        }
+    }
+
     private static String getSourceId(Alert decorator) {
         SourceAlertID srcAlertId = (SourceAlertID) decorator.getId();
         return srcAlertId.sourceId;
@@ -272,23 +296,15 @@ public class AggregatingAlertProvider implements AlertProvider, AlertSourceAggre
     public void alertsAvailable(int count) {
         LOG.debug("Alerts available: {}", count);
 
-        this.availableAlertsExecutor.execute(() -> {
-            final AtomicReference<DateTime> sinceTime = new AtomicReference<>(AggregatingAlertProvider.this.lastAlertsTime);
-            Map<String, AlertSource> sources = snapshotAllSources();
-
-            combineAlerts(criteria().after(sinceTime.get()), sources).forEach(alert -> {
-                LOG.debug("Alert {} received from {}", alert.getId(), alert.getSource());
-
-                notifyListeners(alert);
-                if (alert.isActionable()) {
-                    notifyResponders(alert);
-                }
-
-                sinceTime.set(alert.getCreatedTime());
-            });
-
-            AggregatingAlertProvider.this.lastAlertsTime = sinceTime.get();
-        });
+        // Bursts of notifications are coalesced into a single query for the alerts created since the last one
+        if (this.alertsAvailablePending.compareAndSet(false, true)) {
+            try {
+                this.availableAlertsExecutor.execute(this::fetchAvailableAlerts);
+            } catch (RuntimeException e) {
+                this.alertsAvailablePending.set(false);
+                throw e;
+            }
+        }
     }
 
     @PostConstruct
@@ -316,19 +332,65 @@ public class AggregatingAlertProvider implements AlertProvider, AlertSourceAggre
         return src.getAlert(id).map(alert -> wrapAlert(alert, src));
     }
 
+    private void fetchAvailableAlerts() {
+        // Clear the pending flag first so that alerts created during the query trigger another one
+        this.alertsAvailablePending.set(false);
+
+        final AtomicReference<DateTime> sinceTime = new AtomicReference<>(this.lastAlertsTime);
+        Map<String, AlertSource> sources = snapshotAllSources();
+
+        combineAlerts(criteria().after(sinceTime.get()), sources).forEach(alert -> {
+            LOG.debug("Alert {} received from {}", alert.getId(), alert.getSource());
+
+            notifyListeners(alert);
+            if (alert.isActionable()) {
+                notifyResponders(alert);
+            }
+
+            if (alert.getCreatedTime().isAfter(sinceTime.get())) {
+                sinceTime.set(alert.getCreatedTime());
+            }
+        });
+
+        this.lastAlertsTime = sinceTime.get();
+    }
+
+    /**
+     * Merges the alerts of each source, newest first.  The sources are read lazily so that only the alerts within the limit are retrieved from
+     * sources that return their alerts in order.
+     */
     private Stream<Alert> combineAlerts(AlertCriteria criteria, Map<String, AlertSource> srcs) {
         Criteria critImpl = (Criteria) criteria;
+        int limit = critImpl.getLimit();
+
+        if (limit == 0) {
+            return Stream.empty();
+        }
 
-        return srcs.values().stream()
+        List<Iterator<Alert>> srcAlerts = srcs.values().stream()
             .map(src -> {
                 AlertCriteria srcCrit = src.criteria();
                 critImpl.transfer(srcCrit);
-                Iterable<Alert> alerts = () -> src.getAlerts(srcCrit);
-                return StreamSupport.stream(alerts.spliterator(), false);
+                Iterator<Alert> alerts = src.getAlerts(srcCrit);
+                return src.isNewestFirst() ? alerts : sortNewestFirst(alerts, critImpl);
             })
-            .flatMap(s -> s)
-            .map(alert -> wrapAlert(alert, alert.getSource()))
-            .sorted((a1, a2) -> a2.getCreatedTime().compareTo(a1.getCreatedTime()));
+            .collect(Collectors.toList());
+        Iterator<Alert> merged = Iterators.mergeSorted(srcAlerts, NEWEST_FIRST);
+
+        if (critImpl.isNextAfterTime()) {
+            // Each source returned its oldest alerts after the time so only the oldest of the merged alerts are kept
+            Deque<Alert> next = new ArrayDeque<>(Math.min(limit, 1024));
+            merged.forEachRemaining(alert -> {
+                if (next.size() == limit) {
+                    next.removeFirst();
+                }
+                next.addLast(alert);
+            });
+            return next.stream().map(alert -> wrapAlert(alert, alert.getSource()));
+        } else {
+            Iterable<Alert> alerts = () -> Iterators.limit(merged, limit);
+            return StreamSupport.stream(alerts.spliterator(), false).map(alert -> wrapAlert(alert, alert.getSource()));
+        }
     }
 
     private void notifyChanged(Alert alert) {
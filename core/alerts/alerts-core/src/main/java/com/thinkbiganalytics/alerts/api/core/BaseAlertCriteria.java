@@ -237,4 +237,12 @@ public class BaseAlertCriteria implements AlertCriteria, Predicate<Alert> {
     protected boolean isIncludeCleared() {
         return includeCleared;
     }
+
+    /**
+     * Indicates that the criteria selects the oldest alerts after the "after" time, up to the limit, rather than the newest alerts.  This is
+     * the case when only a limit and an "after" time are given.
+     */
+    protected boolean isNextAfterTime() {
+        return this.limit != Integer.MAX_VALUE && this.afterTime != null && this.beforeTime == null;
+    }
 }
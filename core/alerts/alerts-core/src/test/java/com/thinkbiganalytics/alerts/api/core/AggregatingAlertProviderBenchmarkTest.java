@@ -0,0 +1,247 @@
+package com.thinkbiganalytics.alerts.api.core;
+
+/*-
+ * #%L
+ * thinkbig-alerts-core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.alerts.api.Alert;
+import com.thinkbiganalytics.alerts.api.AlertChangeEvent;
+import com.thinkbiganalytics.alerts.api.AlertCriteria;
+import com.thinkbiganalytics.alerts.spi.AlertDescriptor;
+import com.thinkbiganalytics.alerts.spi.AlertNotifyReceiver;
+import com.thinkbiganalytics.alerts.spi.AlertSource;
+
+import org.joda.time.DateTime;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serializable;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures the cost of aggregating 1M alerts from 10 sources.
+ *
+ * <p>The benchmark only runs when the {@code kylo.benchmark} system property is {@code true}.</p>
+ */
+public class AggregatingAlertProviderBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(AggregatingAlertProviderBenchmarkTest.class);
+
+    private static final int SOURCES = 10;
+    private static final int ALERTS_PER_SOURCE = 100_000;
+
+    private final DateTime now = DateTime.now();
+    private final List<BenchSource> sources = new ArrayList<>();
+    private AggregatingAlertProvider provider;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue("Set -Dkylo.benchmark=true to run the benchmark", Boolean.getBoolean("kylo.benchmark"));
+        this.provider = new AggregatingAlertProvider();
+        for (int i = 0; i < SOURCES; i++) {
+            BenchSource src = new BenchSource(i);
+            this.sources.add(src);
+            this.provider.addAlertSource(src);
+        }
+    }
+
+    @Test
+    public void testLimitedAlerts() {
+        long start = System.nanoTime();
+        List<Alert> alerts = new ArrayList<>();
+        this.provider.getAlerts(this.provider.criteria().limit(100)).forEachRemaining(alerts::add);
+        long elapsed = System.nanoTime() - start;
+
+        long read = this.sources.stream().mapToLong(src -> src.read).sum();
+        log.info("Retrieved {} of {} alerts in {} ms reading {} alerts from the sources", alerts.size(), SOURCES * ALERTS_PER_SOURCE, elapsed / 1_000_000, read);
+
+        assertThat(alerts).hasSize(100);
+        assertNewestFirst(alerts.iterator());
+        assertThat(read).isLessThanOrEqualTo(100 + SOURCES);
+    }
+
+    @Test
+    public void testAllAlerts() {
+        long start = System.nanoTime();
+        long count = assertNewestFirst(this.provider.getAlerts(this.provider.criteria()));
+        long elapsed = System.nanoTime() - start;
+
+        log.info("Merged {} alerts in {} ms", count, elapsed / 1_000_000);
+        assertThat(count).isEqualTo(SOURCES * ALERTS_PER_SOURCE);
+    }
+
+    private long assertNewestFirst(Iterator<? extends Alert> alerts) {
+        long count = 0;
+        DateTime previous = null;
+        while (alerts.hasNext()) {
+            DateTime created = alerts.next().getCreatedTime();
+            if (previous != null) {
+                assertThat(created.isAfter(previous)).isFalse();
+            }
+            previous = created;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Generates ordered alerts as they are read, interleaving the created times of each source.
+     */
+    private class BenchSource implements AlertSource {
+
+        private final int index;
+        private long read;
+
+        BenchSource(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public AlertCriteria criteria() {
+            return new BaseAlertCriteria();
+        }
+
+        @Override
+        public Alert.ID resolve(Serializable value) {
+            return null;
+        }
+
+        @Override
+        public Set<AlertDescriptor> getAlertDescriptors() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public void addReceiver(AlertNotifyReceiver receiver) {
+        }
+
+        @Override
+        public void removeReceiver(AlertNotifyReceiver receiver) {
+        }
+
+        @Override
+        public Optional<Alert> getAlert(Alert.ID id) {
+            return Optional.empty();
+        }
+
+        @Override
+        public Iterator<Alert> getAlerts(AlertCriteria criteria) {
+            return new Iterator<Alert>() {
+                private int next = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return this.next < ALERTS_PER_SOURCE;
+                }
+
+                @Override
+                public Alert next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    read++;
+                    return new BenchAlert(BenchSource.this, now.minusMillis(this.next++ * SOURCES + index));
+                }
+            };
+        }
+
+        @Override
+        public boolean isNewestFirst() {
+            return true;
+        }
+    }
+
+    private static class BenchAlert implements Alert {
+
+        private final AlertSource source;
+        private final DateTime createdTime;
+
+        BenchAlert(AlertSource source, DateTime createdTime) {
+            this.source = source;
+            this.createdTime = createdTime;
+        }
+
+        @Override
+        public ID getId() {
+            return null;
+        }
+
+        @Override
+        public URI getType() {
+            return URI.create("http://com.example/alert/bench");
+        }
+
+        @Override
+        public String getDescription() {
+            return "";
+        }
+
+        @Override
+        public Level getLevel() {
+            return Level.INFO;
+        }
+
+        @Override
+        public DateTime getCreatedTime() {
+            return this.createdTime;
+        }
+
+        @Override
+        public AlertSource getSource() {
+            return this.source;
+        }
+
+        @Override
+        public boolean isActionable() {
+            return false;
+        }
+
+        @Override
+        public State getState() {
+            return State.UNHANDLED;
+        }
+
+        @Override
+        public boolean isCleared() {
+            return false;
+        }
+
+        @Override
+        public List<AlertChangeEvent> getEvents() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public <C extends Serializable> C getContent() {
+            return null;
+        }
+    }
+}
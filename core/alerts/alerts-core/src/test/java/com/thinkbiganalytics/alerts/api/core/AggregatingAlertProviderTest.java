@@ -207,6 +207,51 @@ public class AggregatingAlertProviderTest {
         assertThat(alerts).hasSize(2).contains(srcAlert, mgrAlert);
     }
 
+    @Test
+    public void testGetAlertsMergedNewestFirst() {
+        DateTime now = DateTime.now();
+        TestAlert mgrAlert1 = new TestAlert(this.manager, now.minusMinutes(1));
+        TestAlert mgrAlert2 = new TestAlert(this.manager, now.minusMinutes(3));
+        TestAlert srcAlert1 = new TestAlert(this.source, now.minusMinutes(2));
+        TestAlert srcAlert2 = new TestAlert(this.source, now.minusMinutes(4));
+
+        this.provider.addAlertSource(this.source);
+        this.provider.addAlertManager(this.manager);
+
+        // The source is not ordered so it is sorted by the provider
+        when(this.source.getAlerts(any(AlertCriteria.class))).thenAnswer(iteratorAnswer(srcAlert2, srcAlert1));
+        when(this.manager.getAlerts(any(AlertCriteria.class))).thenAnswer(iteratorAnswer(mgrAlert1, mgrAlert2));
+        when(this.manager.isNewestFirst()).thenReturn(true);
+
+        Iterator<? extends Alert> results = this.provider.getAlerts(this.provider.criteria());
+        List<Alert> alerts = Lists.newArrayList(Iterators.transform(results, providerToSourceAlertFunction()));
+
+        assertThat(alerts).containsExactly(mgrAlert1, srcAlert1, mgrAlert2, srcAlert2);
+    }
+
+    @Test
+    public void testGetAlertsLimit() {
+        DateTime now = DateTime.now();
+        TestAlert mgrAlert1 = new TestAlert(this.manager, now.minusMinutes(1));
+        TestAlert mgrAlert2 = new TestAlert(this.manager, now.minusMinutes(3));
+        TestAlert srcAlert1 = new TestAlert(this.source, now.minusMinutes(2));
+        TestAlert srcAlert2 = new TestAlert(this.source, now.minusMinutes(4));
+
+        this.provider.addAlertSource(this.source);
+        this.provider.addAlertManager(this.manager);
+
+        when(this.source.getAlerts(any(AlertCriteria.class))).thenAnswer(iteratorAnswer(srcAlert1, srcAlert2));
+        when(this.manager.getAlerts(any(AlertCriteria.class))).thenAnswer(iteratorAnswer(mgrAlert1, mgrAlert2));
+        when(this.source.isNewestFirst()).thenReturn(true);
+        when(this.manager.isNewestFirst()).thenReturn(true);
+
+        Iterator<? extends Alert> newest = this.provider.getAlerts(this.provider.criteria().limit(3));
+        Iterator<? extends Alert> next = this.provider.getAlerts(this.provider.criteria().after(now.minusMinutes(5)).limit(2));
+
+        assertThat(Lists.newArrayList(Iterators.transform(newest, providerToSourceAlertFunction()))).containsExactly(mgrAlert1, srcAlert1, mgrAlert2);
+        assertThat(Lists.newArrayList(Iterators.transform(next, providerToSourceAlertFunction()))).containsExactly(mgrAlert2, srcAlert2);
+    }
+
     @Test
     public void testRespondToActionable() {
         TestAlert mgrAlert = new TestAlert(this.manager, true);
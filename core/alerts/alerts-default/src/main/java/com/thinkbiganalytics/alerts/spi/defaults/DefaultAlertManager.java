@@ -149,12 +149,25 @@ public class DefaultAlertManager extends QueryDslRepositorySupport implements Al
     public Iterator<Alert> getAlerts(AlertCriteria criteria) {
         return this.metadataAccess.read(() -> {
             Criteria critImpl = (Criteria) (criteria == null ? criteria() : criteria);
-            return critImpl.createQuery().fetch().stream()
+            List<Alert> alerts = critImpl.createQuery().fetch().stream()
                 .map(a -> asValue(a))
-                .collect(Collectors.toList()) // Need to terminate the stream while still in a transaction
-                .iterator();
+                .collect(Collectors.toList()); // Need to terminate the stream while still in a transaction
+
+            // The query returns at most the limit so reversing the oldest first results is cheap
+            if (critImpl.isOldestFirst()) {
+                Collections.reverse(alerts);
+            }
+            return alerts.iterator();
         }, MetadataAccess.SERVICE);
     }
+
+    /* (non-Javadoc)
+     * @see com.thinkbiganalytics.alerts.spi.AlertSource#isNewestFirst()
+     */
+    @Override
+    public boolean isNewestFirst() {
+        return true;
+    }
 //
 //    /* (non-Javadoc)
 //     * @see com.thinkbiganalytics.alerts.spi.AlertSource#getAlerts(org.joda.time.DateTime)
@@ -463,6 +476,13 @@ public class DefaultAlertManager extends QueryDslRepositorySupport implements Al
 
     private class Criteria extends BaseAlertCriteria {
 
+        /**
+         * Indicates that the query returns the oldest alerts first.
+         */
+        public boolean isOldestFirst() {
+            return isNextAfterTime();
+        }
+
         public JPAQuery<JpaAlert> createQuery() {
             List<Predicate> preds = new ArrayList<>();
             QJpaAlert alert = QJpaAlert.jpaAlert;
@@ -506,8 +526,8 @@ public class DefaultAlertManager extends QueryDslRepositorySupport implements Al
             }
 
             // When limiting and using "after" criteria only, we need to sort ascending to get the next n values after the given id/time.
-            // In all other cases sort descending. The results will be ordered correctly when aggregated by the provider.
-            if (getLimit() != Integer.MAX_VALUE && getAfterTime() != null && getBeforeTime() == null) {
+            // In all other cases sort descending. The ascending results are reversed by getAlerts().
+            if (isOldestFirst()) {
                 query.orderBy(alert.createdTime.asc());
             } else {
                 query.orderBy(alert.createdTime.desc());
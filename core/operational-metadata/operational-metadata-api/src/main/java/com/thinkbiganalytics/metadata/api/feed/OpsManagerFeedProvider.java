@@ -126,6 +126,11 @@ public interface OpsManagerFeedProvider {
      */
     void abandonFeedJobs(String feedName);
 
+    /**
+     * Recompute the health of all feeds from their job execution history
+     */
+    void rebuildFeedHealth();
+
 
     /**
      * subscribe to feed deletion events
@@ -28,7 +28,9 @@ import org.joda.time.ReadablePeriod;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -84,6 +86,16 @@ public interface BatchJobExecutionProvider extends BatchJobExecutionFilters {
      */
     BatchJobExecution save(BatchJobExecution jobExecution, ProvenanceEventRecordDTO event, NifiEvent nifiEvent);
 
+    /**
+     * save a batch of Provenance events, in order, creating or updating the job execution for each one.
+     * The existing job executions for the batch are resolved with a single query
+     *
+     * @param events     the batch job provenance events
+     * @param nifiEvents the persisted nifi event for each of the {@code events}, in the same order
+     * @return the job executions keyed by the {@link ProvenanceEventRecordDTO#getJobFlowFileId()}
+     */
+    Map<String, ? extends BatchJobExecution> save(List<ProvenanceEventRecordDTO> events, List<? extends NifiEvent> nifiEvents);
+
     /**
      * find a given job exeuction using the NiFi event id and corresponding job flow file id
      *
@@ -136,6 +148,14 @@ public interface BatchJobExecutionProvider extends BatchJobExecutionFilters {
      */
     BatchJobExecution findLatestCompletedJobForFeed(String feedName);
 
+    /**
+     * Returns the latest completed job execution for each of the specified feeds
+     *
+     * @param feedNames the qualified feed names
+     * @return the job executions by feed name, excluding feeds that have not completed a job
+     */
+    Map<String, BatchJobExecution> findLatestCompletedJobForFeeds(Collection<String> feedNames);
+
     /**
      * Returns the latest job execution of any status for a feed
      *
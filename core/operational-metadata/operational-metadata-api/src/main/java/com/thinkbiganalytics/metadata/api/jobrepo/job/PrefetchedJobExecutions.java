@@ -0,0 +1,82 @@
+package com.thinkbiganalytics.metadata.api.jobrepo.job;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-api
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Holds job executions that were read in bulk so that work done on the current thread can use them instead of querying for each feed.
+ */
+public final class PrefetchedJobExecutions {
+
+    /**
+     * Latest completed job execution by feed name
+     */
+    private static final ThreadLocal<Map<String, BatchJobExecution>> LATEST_COMPLETED = new ThreadLocal<>();
+
+    private PrefetchedJobExecutions() {
+    }
+
+    /**
+     * Makes the specified job executions available to the current thread while the supplier is called.
+     *
+     * @param latestCompleted the latest completed job execution by feed name, including feeds mapped to {@code null} that have not completed a job
+     * @param supplier        the work to perform
+     * @param <T>             the type of result
+     * @return the result of the supplier
+     */
+    public static <T> T withLatestCompleted(final Map<String, BatchJobExecution> latestCompleted, final Supplier<T> supplier) {
+        final Map<String, BatchJobExecution> previous = LATEST_COMPLETED.get();
+        LATEST_COMPLETED.set(latestCompleted);
+        try {
+            return supplier.get();
+        } finally {
+            if (previous != null) {
+                LATEST_COMPLETED.set(previous);
+            } else {
+                LATEST_COMPLETED.remove();
+            }
+        }
+    }
+
+    /**
+     * Indicates that the latest completed job execution of the specified feed was prefetched for the current thread.
+     *
+     * @param feedName the qualified feed name
+     * @return {@code true} if {@link #getLatestCompleted(String)} can be used for the feed
+     */
+    public static boolean isPrefetched(final String feedName) {
+        final Map<String, BatchJobExecution> latestCompleted = LATEST_COMPLETED.get();
+        return latestCompleted != null && latestCompleted.containsKey(feedName);
+    }
+
+    /**
+     * Gets the prefetched latest completed job execution of the specified feed.
+     *
+     * @param feedName the qualified feed name
+     * @return the job execution, or {@code null} if the feed has not completed a job or was not prefetched
+     */
+    public static BatchJobExecution getLatestCompleted(final String feedName) {
+        final Map<String, BatchJobExecution> latestCompleted = LATEST_COMPLETED.get();
+        return (latestCompleted != null) ? latestCompleted.get(feedName) : null;
+    }
+}
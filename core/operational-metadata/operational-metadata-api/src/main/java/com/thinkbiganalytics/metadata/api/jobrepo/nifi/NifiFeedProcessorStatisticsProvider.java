@@ -111,6 +111,24 @@ public interface NifiFeedProcessorStatisticsProvider {
      */
     Long findMaxEventId(String clusterNodeId);
 
+    /**
+     * Delete the statistics collected before the given time.
+     * The rollups of these statistics are not affected.
+     *
+     * @param time the time before which statistics are deleted
+     * @return the number of statistics deleted
+     */
+    long deleteStatisticsBefore(DateTime time);
+
+    /**
+     * Delete the rollups of the given interval for the time buckets starting before the given time
+     *
+     * @param interval the rollup interval
+     * @param time     the time before which rollups are deleted
+     * @return the number of rollups deleted
+     */
+    long deleteRollupsBefore(RollupInterval interval, DateTime time);
+
     /**
      * allow for specifying a time to look back from when querying for statistical information
      */
@@ -144,5 +162,38 @@ public interface NifiFeedProcessorStatisticsProvider {
         }
     }
 
+    /**
+     * The time buckets that statistics are rolled up into as they are created
+     */
+    public static enum RollupInterval {
+
+        MINUTE(1000L * 60), HOUR(MINUTE.millis * 60), DAY(HOUR.millis * 24);
+
+        private final long millis;
+
+        private RollupInterval(long millis) {
+            this.millis = millis;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        /**
+         * @return the start of the bucket containing the given time
+         */
+        public DateTime bucketStart(DateTime dt) {
+            return new DateTime(dt.getMillis() - Math.floorMod(dt.getMillis(), millis), dt.getZone());
+        }
+
+        /**
+         * @return the start of the first bucket starting at or after the given time
+         */
+        public DateTime nextBucketStart(DateTime dt) {
+            DateTime start = bucketStart(dt);
+            return start.isBefore(dt) ? start.plus(millis) : start;
+        }
+    }
+
 
 }
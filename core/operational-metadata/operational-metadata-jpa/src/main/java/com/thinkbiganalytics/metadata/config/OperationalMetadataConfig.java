@@ -27,6 +27,7 @@ import com.thinkbiganalytics.metadata.sla.spi.ServiceLevelAssessor;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
@@ -38,6 +39,8 @@ import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 import org.springframework.transaction.support.AbstractPlatformTransactionManager;
 
+import java.util.Properties;
+
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.sql.DataSource;
@@ -52,6 +55,12 @@ import javax.sql.DataSource;
                        entityManagerFactoryRef = "operationalMetadataEntityManagerFactory")
 public class OperationalMetadataConfig {
 
+    /**
+     * The number of inserts/updates Hibernate will send to the database in a single JDBC batch
+     */
+    @Value("${kylo.ops.mgr.jdbc.batch.size:50}")
+    private int jdbcBatchSize;
+
     @Bean(name = "operationalMetadataDateTimeFormatter")
     public DateTimeFormatter dateTimeFormatter() {
         return DateTimeFormat.forPattern("YYYY-MM-dd HH:mm:ss");
@@ -106,10 +115,26 @@ public class OperationalMetadataConfig {
         emfBean.setDataSource(dataSource);
         emfBean.setPackagesToScan("com.thinkbiganalytics.jobrepo.jpa", "com.thinkbiganalytics.metadata.jpa");
         emfBean.setJpaVendorAdapter(jpaVendorAdapter());
+        emfBean.setJpaProperties(jpaProperties());
         emfBean.afterPropertiesSet();
         return emfBean.getObject();
     }
 
+    /**
+     * Return the Hibernate properties enabling JDBC batching of inserts and updates.
+     * Ordering the statements by entity allows the batches to be as large as possible.
+     *
+     * @return the Hibernate properties
+     */
+    private Properties jpaProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("hibernate.jdbc.batch_size", Integer.toString(jdbcBatchSize));
+        properties.setProperty("hibernate.order_inserts", "true");
+        properties.setProperty("hibernate.order_updates", "true");
+        properties.setProperty("hibernate.jdbc.batch_versioned_data", "true");
+        return properties;
+    }
+
     /**
      * Return the QueryDSL JPA factory
      *
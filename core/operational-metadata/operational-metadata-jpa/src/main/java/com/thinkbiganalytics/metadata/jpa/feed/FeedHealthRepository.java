@@ -21,18 +21,34 @@ package com.thinkbiganalytics.metadata.jpa.feed;
  */
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
+import javax.persistence.LockModeType;
+
 /**
  * Spring data repository to access the {@link JpaOpsManagerFeedHealth}
  */
 public interface FeedHealthRepository extends JpaRepository<JpaOpsManagerFeedHealth, JpaOpsManagerFeedHealth.OpsManagerFeedHealthFeedId> {
 
 
-    @Query("select h from JpaOpsManagerFeedHealth as h where h.feedName = :feedName")
+    /**
+     * Only feeds that have run a job and have counted job executions have a health, matching the FEED_HEALTH_VW view
+     */
+    @Query("select h from JpaOpsManagerFeedHealth as h where h.jobExecutionId is not null and h.allCount > 0")
+    List<JpaOpsManagerFeedHealth> findAllWithJobs();
+
+    @Query("select h from JpaOpsManagerFeedHealth as h where h.feedName = :feedName and h.jobExecutionId is not null and h.allCount > 0")
     List<JpaOpsManagerFeedHealth> findByFeedName(@Param("feedName") String feedName);
 
+    /**
+     * Find the health of a feed, locking the row until the transaction completes so concurrent job updates for the feed are applied one at a time
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select h from JpaOpsManagerFeedHealth as h where h.feedId = :feedId")
+    JpaOpsManagerFeedHealth findForUpdate(@Param("feedId") JpaOpsManagerFeedHealth.OpsManagerFeedHealthFeedId feedId);
+
 }
@@ -0,0 +1,449 @@
+package com.thinkbiganalytics.metadata.jpa.feed;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.CaseBuilder;
+import com.querydsl.core.types.dsl.NumberExpression;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.thinkbiganalytics.metadata.api.feed.OpsManagerFeed;
+import com.thinkbiganalytics.metadata.api.jobrepo.ExecutionConstants;
+import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecution;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.BatchJobExecutionRepository;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.JpaBatchJobExecution;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.QJpaBatchJobExecution;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.QJpaBatchJobInstance;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains the materialized {@link JpaOpsManagerFeedHealth} as job executions are started, finished, failed, or abandoned.
+ * The health follows the rules of the FEED_HEALTH_VW view it replaces: the jobs of a {@link OpsManagerFeed.FeedType#CHECK} feed are counted against the feeds it checks,
+ * the jobs of a {@link OpsManagerFeed.FeedType#FEED} feed are counted against the feed itself, and the latest job of a feed is its job execution with the highest id.
+ * <p>
+ * Changes are collected for the current transaction and applied just before it commits, locking the health of each feed once and in the order of the feed ids,
+ * so that transactions changing the same feeds cannot deadlock by locking them in a different order.
+ */
+@Service
+public class FeedHealthUpdater {
+
+    private static final Logger log = LoggerFactory.getLogger(FeedHealthUpdater.class);
+
+    @Autowired
+    private JPAQueryFactory factory;
+
+    private FeedHealthRepository feedHealthRepository;
+
+    private OpsManagerFeedRepository feedRepository;
+
+    private BatchJobExecutionRepository jobExecutionRepository;
+
+    @Autowired
+    public FeedHealthUpdater(FeedHealthRepository feedHealthRepository, OpsManagerFeedRepository feedRepository, BatchJobExecutionRepository jobExecutionRepository) {
+        this.feedHealthRepository = feedHealthRepository;
+        this.feedRepository = feedRepository;
+        this.jobExecutionRepository = jobExecutionRepository;
+    }
+
+    /**
+     * Create the empty health for a new feed
+     *
+     * @param feed the new feed
+     */
+    public void feedCreated(OpsManagerFeed feed) {
+        findOrCreateHealth(feed);
+    }
+
+    /**
+     * Remove the health of a deleted feed
+     *
+     * @param feedId the id of the deleted feed
+     */
+    public void feedDeleted(OpsManagerFeed.ID feedId) {
+        pendingChanges().remove(((OpsManagerFeedId) feedId).getUuid());
+        JpaOpsManagerFeedHealth.OpsManagerFeedHealthFeedId healthId = healthId(feedId);
+        if (feedHealthRepository.exists(healthId)) {
+            feedHealthRepository.delete(healthId);
+        }
+    }
+
+    /**
+     * Apply the change in the status of a job execution since it was last counted to the health of the feeds it is counted against.
+     * This must be called in the same transaction that saves the job execution. The health is updated when the transaction commits.
+     *
+     * @param jobExecution the new or updated job execution
+     */
+    public void jobExecutionChanged(JpaBatchJobExecution jobExecution) {
+        OpsManagerFeed feed = jobExecution.getJobInstance() != null ? jobExecution.getJobInstance().getFeed() : null;
+        if (feed != null) {
+            Counts delta = Counts.of(jobExecution.getStatus(), jobExecution.getExitCode());
+            if (jobExecution.getHealthStatus() != null) {
+                delta = delta.minus(Counts.of(jobExecution.getHealthStatus(), jobExecution.getHealthExitCode()));
+            }
+
+            Map<UUID, HealthChange> changes = pendingChanges();
+            change(changes, feed).updateLatestJobExecution(jobExecution);
+            if (!delta.isEmpty()) {
+                for (OpsManagerFeed countedFeed : findCountedFeeds(feed)) {
+                    change(changes, countedFeed).add(delta);
+                }
+            }
+            if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+                applyChanges(changes);
+            }
+        }
+        jobExecution.markHealthCounted();
+    }
+
+    /**
+     * Find the changes to apply when the current transaction commits, registering them with the transaction if they do not exist.
+     * Without an active transaction synchronization the changes are new and must be applied by the caller.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<UUID, HealthChange> pendingChanges() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new TreeMap<>();
+        }
+        Map<UUID, HealthChange> changes = (Map<UUID, HealthChange>) TransactionSynchronizationManager.getResource(this);
+        if (changes == null) {
+            Map<UUID, HealthChange> newChanges = new TreeMap<>();
+            TransactionSynchronizationManager.bindResource(this, newChanges);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    applyChanges(newChanges);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(FeedHealthUpdater.this);
+                }
+            });
+            changes = newChanges;
+        }
+        return changes;
+    }
+
+    private HealthChange change(Map<UUID, HealthChange> changes, OpsManagerFeed feed) {
+        return changes.computeIfAbsent(((OpsManagerFeedId) feed.getId()).getUuid(), uuid -> new HealthChange(feed));
+    }
+
+    /**
+     * Lock and update the health of each changed feed in the order of the feed ids
+     */
+    private void applyChanges(Map<UUID, HealthChange> changes) {
+        for (HealthChange change : changes.values()) {
+            JpaOpsManagerFeedHealth feedHealth = findOrCreateHealth(change.feed);
+            if (change.latestJobExecution != null) {
+                feedHealth.updateLatestJobExecution(change.latestJobExecution);
+            }
+            if (!change.delta.isEmpty()) {
+                change.delta.addTo(feedHealth);
+            }
+        }
+        changes.clear();
+    }
+
+    /**
+     * Reconstruct the health of every feed from the job execution history
+     */
+    public void rebuild() {
+        pendingChanges().clear();
+        List<JpaOpsManagerFeed> feeds = feedRepository.findAll();
+        rebuild(feeds, countJobs(null), findLatestJobExecutionIds(null));
+        log.info("Rebuilt the health of {} feeds", feeds.size());
+    }
+
+    /**
+     * Reconstruct the health of a feed from the job execution history.
+     * If the feed is a check data feed the feeds it checks are rebuilt as well.
+     *
+     * @param feed the feed whose job executions have changed outside of the {@link JpaBatchJobExecution} entity, such as by a stored procedure
+     */
+    public void rebuild(OpsManagerFeed feed) {
+        Set<JpaOpsManagerFeed> feeds = new LinkedHashSet<>();
+        feeds.add((JpaOpsManagerFeed) feed);
+        feeds.addAll(findFeedsToCheck(feed));
+
+        Set<OpsManagerFeed.ID> countedFeedIds = new LinkedHashSet<>();
+        for (JpaOpsManagerFeed rebuiltFeed : feeds) {
+            countedFeedIds.add(rebuiltFeed.getId());
+            rebuiltFeed.getCheckDataFeeds().forEach(checkDataFeed -> countedFeedIds.add(checkDataFeed.getId()));
+        }
+        Set<OpsManagerFeed.ID> feedIds = feeds.stream().map(JpaOpsManagerFeed::getId).collect(Collectors.toSet());
+        Map<UUID, HealthChange> changes = pendingChanges();
+        feedIds.forEach(feedId -> changes.remove(((OpsManagerFeedId) feedId).getUuid()));
+        rebuild(feeds, countJobs(countedFeedIds), findLatestJobExecutionIds(feedIds));
+    }
+
+    private void rebuild(Collection<JpaOpsManagerFeed> feeds, Map<OpsManagerFeed.ID, Counts> jobCounts, Map<OpsManagerFeed.ID, Long> latestJobExecutionIds) {
+        Map<Long, JpaBatchJobExecution> latestJobExecutions = new HashMap<>();
+        if (!latestJobExecutionIds.isEmpty()) {
+            for (JpaBatchJobExecution jobExecution : jobExecutionRepository.findAll(latestJobExecutionIds.values())) {
+                latestJobExecutions.put(jobExecution.getJobExecutionId(), jobExecution);
+            }
+        }
+
+        List<JpaOpsManagerFeed> sortedFeeds = new ArrayList<>(feeds);
+        sortedFeeds.sort(Comparator.comparing(feed -> ((OpsManagerFeedId) feed.getId()).getUuid()));
+        for (JpaOpsManagerFeed feed : sortedFeeds) {
+            Counts counts = new Counts();
+            if (OpsManagerFeed.FeedType.FEED.equals(feed.getFeedType())) {
+                counts = counts.plus(jobCounts.get(feed.getId()));
+            }
+            for (OpsManagerFeed checkDataFeed : feed.getCheckDataFeeds()) {
+                if (OpsManagerFeed.FeedType.CHECK.equals(checkDataFeed.getFeedType())) {
+                    counts = counts.plus(jobCounts.get(checkDataFeed.getId()));
+                }
+            }
+
+            JpaOpsManagerFeedHealth feedHealth = findOrCreateHealth(feed);
+            counts.setOn(feedHealth);
+            feedHealth.setLatestJobExecution(latestJobExecutions.get(latestJobExecutionIds.get(feed.getId())));
+        }
+    }
+
+    /**
+     * Find the feeds whose health counts the job executions of the given feed
+     */
+    private List<? extends OpsManagerFeed> findCountedFeeds(OpsManagerFeed feed) {
+        if (OpsManagerFeed.FeedType.CHECK.equals(feed.getFeedType())) {
+            return findFeedsToCheck(feed);
+        } else {
+            return Collections.singletonList(feed);
+        }
+    }
+
+    /**
+     * Find the feeds checked by a check data feed.
+     * This queries the FEED_CHECK_DATA_FEEDS relationship from the owning side as the inverse collection may not reflect relationships added in this transaction.
+     */
+    private List<JpaOpsManagerFeed> findFeedsToCheck(OpsManagerFeed feed) {
+        if (!OpsManagerFeed.FeedType.CHECK.equals(feed.getFeedType())) {
+            return Collections.emptyList();
+        }
+        QJpaOpsManagerFeed feedToCheck = QJpaOpsManagerFeed.jpaOpsManagerFeed;
+        QJpaOpsManagerFeed checkDataFeed = new QJpaOpsManagerFeed("checkDataFeed");
+        return factory.selectFrom(feedToCheck)
+            .join(feedToCheck.checkDataFeeds, checkDataFeed)
+            .where(checkDataFeed.id.eq((OpsManagerFeedId) feed.getId()))
+            .fetch();
+    }
+
+    /**
+     * Lock the health of a feed for update, creating it if it does not exist
+     */
+    private JpaOpsManagerFeedHealth findOrCreateHealth(OpsManagerFeed feed) {
+        JpaOpsManagerFeedHealth.OpsManagerFeedHealthFeedId healthId = healthId(feed.getId());
+        JpaOpsManagerFeedHealth feedHealth = feedHealthRepository.findForUpdate(healthId);
+        if (feedHealth == null) {
+            feedHealth = feedHealthRepository.save(new JpaOpsManagerFeedHealth(healthId, feed.getName()));
+        }
+        return feedHealth;
+    }
+
+    private JpaOpsManagerFeedHealth.OpsManagerFeedHealthFeedId healthId(OpsManagerFeed.ID feedId) {
+        return new JpaOpsManagerFeedHealth.OpsManagerFeedHealthFeedId(((OpsManagerFeedId) feedId).getUuid());
+    }
+
+    /**
+     * Count the job executions of each feed using the same rules as the BATCH_FEED_SUMMARY_COUNTS_VW view
+     *
+     * @param feedIds the feeds to count, or null for all feeds
+     * @return the counts keyed by the feed that ran the jobs
+     */
+    private Map<OpsManagerFeed.ID, Counts> countJobs(Set<OpsManagerFeed.ID> feedIds) {
+        QJpaBatchJobExecution jobExecution = QJpaBatchJobExecution.jpaBatchJobExecution;
+        QJpaBatchJobInstance jobInstance = QJpaBatchJobInstance.jpaBatchJobInstance;
+        QJpaOpsManagerFeed feed = QJpaOpsManagerFeed.jpaOpsManagerFeed;
+
+        BooleanExpression notAbandoned = jobExecution.status.ne(BatchJobExecution.JobStatus.ABANDONED);
+        NumberExpression<Long> allCount = jobExecution.count();
+        NumberExpression<Long> failedCount = count(notAbandoned.and(jobExecution.status.eq(BatchJobExecution.JobStatus.FAILED)
+                                                                        .or(jobExecution.exitCode.eq(ExecutionConstants.ExitCode.FAILED))));
+        NumberExpression<Long> completedCount = count(notAbandoned.and(jobExecution.exitCode.eq(ExecutionConstants.ExitCode.COMPLETED)));
+        NumberExpression<Long> abandonedCount = count(jobExecution.status.eq(BatchJobExecution.JobStatus.ABANDONED));
+        NumberExpression<Long> runningCount = count(jobExecution.status.in(BatchJobExecution.JobStatus.STARTING, BatchJobExecution.JobStatus.STARTED));
+
+        JPAQuery<Tuple> query = factory.select(feed.id, allCount, failedCount, completedCount, abandonedCount, runningCount)
+            .from(jobExecution)
+            .join(jobExecution.jobInstance, jobInstance)
+            .join(jobInstance.feed, feed);
+        if (feedIds != null) {
+            query.where(feed.id.in(toFeedIds(feedIds)));
+        }
+
+        Map<OpsManagerFeed.ID, Counts> jobCounts = new HashMap<>();
+        for (Tuple tuple : query.groupBy(feed.id).fetch()) {
+            jobCounts.put(tuple.get(feed.id), new Counts(tuple.get(allCount), tuple.get(failedCount), tuple.get(completedCount), tuple.get(abandonedCount), tuple.get(runningCount)));
+        }
+        return jobCounts;
+    }
+
+    /**
+     * Find the latest job execution of each feed using the same rules as the LATEST_FEED_JOB_VW view
+     *
+     * @param feedIds the feeds to find, or null for all feeds
+     * @return the highest job execution id keyed by feed
+     */
+    private Map<OpsManagerFeed.ID, Long> findLatestJobExecutionIds(Set<OpsManagerFeed.ID> feedIds) {
+        QJpaBatchJobExecution jobExecution = QJpaBatchJobExecution.jpaBatchJobExecution;
+        QJpaBatchJobInstance jobInstance = QJpaBatchJobInstance.jpaBatchJobInstance;
+        QJpaOpsManagerFeed feed = QJpaOpsManagerFeed.jpaOpsManagerFeed;
+
+        NumberExpression<Long> latestJobExecutionId = jobExecution.jobExecutionId.max();
+        JPAQuery<Tuple> query = factory.select(feed.id, latestJobExecutionId)
+            .from(jobExecution)
+            .join(jobExecution.jobInstance, jobInstance)
+            .join(jobInstance.feed, feed);
+        if (feedIds != null) {
+            query.where(feed.id.in(toFeedIds(feedIds)));
+        }
+
+        Map<OpsManagerFeed.ID, Long> latestJobExecutionIds = new HashMap<>();
+        for (Tuple tuple : query.groupBy(feed.id).fetch()) {
+            latestJobExecutionIds.put(tuple.get(feed.id), tuple.get(latestJobExecutionId));
+        }
+        return latestJobExecutionIds;
+    }
+
+    private static NumberExpression<Long> count(BooleanExpression condition) {
+        return new CaseBuilder().when(condition).then(1L).otherwise(0L).sum();
+    }
+
+    private static List<OpsManagerFeedId> toFeedIds(Set<OpsManagerFeed.ID> feedIds) {
+        List<OpsManagerFeedId> ids = new ArrayList<>();
+        feedIds.forEach(feedId -> ids.add((OpsManagerFeedId) feedId));
+        return ids;
+    }
+
+    /**
+     * The change to the health of a feed that has not been applied yet
+     */
+    private static class HealthChange {
+
+        private final OpsManagerFeed feed;
+        private Counts delta = new Counts();
+        private JpaBatchJobExecution latestJobExecution;
+
+        HealthChange(OpsManagerFeed feed) {
+            this.feed = feed;
+        }
+
+        void add(Counts counts) {
+            delta = delta.plus(counts);
+        }
+
+        void updateLatestJobExecution(JpaBatchJobExecution jobExecution) {
+            if (latestJobExecution == null || jobExecution.getJobExecutionId() >= latestJobExecution.getJobExecutionId()) {
+                latestJobExecution = jobExecution;
+            }
+        }
+    }
+
+    /**
+     * The job execution counts of a feed
+     */
+    static class Counts {
+
+        private final long all;
+        private final long failed;
+        private final long completed;
+        private final long abandoned;
+        private final long running;
+
+        Counts() {
+            this(0L, 0L, 0L, 0L, 0L);
+        }
+
+        Counts(Long all, Long failed, Long completed, Long abandoned, Long running) {
+            this.all = value(all);
+            this.failed = value(failed);
+            this.completed = value(completed);
+            this.abandoned = value(abandoned);
+            this.running = value(running);
+        }
+
+        /**
+         * The counts contributed by a single job execution with the given status and exit code
+         */
+        static Counts of(BatchJobExecution.JobStatus status, ExecutionConstants.ExitCode exitCode) {
+            boolean abandoned = BatchJobExecution.JobStatus.ABANDONED.equals(status);
+            boolean failed = !abandoned && (BatchJobExecution.JobStatus.FAILED.equals(status) || ExecutionConstants.ExitCode.FAILED.equals(exitCode));
+            boolean completed = !abandoned && ExecutionConstants.ExitCode.COMPLETED.equals(exitCode);
+            boolean running = BatchJobExecution.JobStatus.STARTING.equals(status) || BatchJobExecution.JobStatus.STARTED.equals(status);
+            return new Counts(1L, failed ? 1L : 0L, completed ? 1L : 0L, abandoned ? 1L : 0L, running ? 1L : 0L);
+        }
+
+        private static long value(Long count) {
+            return count != null ? count : 0L;
+        }
+
+        Counts plus(Counts other) {
+            if (other == null) {
+                return this;
+            }
+            return new Counts(all + other.all, failed + other.failed, completed + other.completed, abandoned + other.abandoned, running + other.running);
+        }
+
+        Counts minus(Counts other) {
+            return new Counts(all - other.all, failed - other.failed, completed - other.completed, abandoned - other.abandoned, running - other.running);
+        }
+
+        boolean isEmpty() {
+            return all == 0 && failed == 0 && completed == 0 && abandoned == 0 && running == 0;
+        }
+
+        void addTo(JpaOpsManagerFeedHealth feedHealth) {
+            new Counts(feedHealth.getAllCount(), feedHealth.getFailedCount(), feedHealth.getCompletedCount(), feedHealth.getAbandonedCount(), feedHealth.getRunningCount())
+                .plus(this)
+                .setOn(feedHealth);
+        }
+
+        void setOn(JpaOpsManagerFeedHealth feedHealth) {
+            feedHealth.setAllCount(all);
+            feedHealth.setFailedCount(failed);
+            feedHealth.setCompletedCount(completed);
+            feedHealth.setAbandonedCount(abandoned);
+            feedHealth.setRunningCount(running);
+        }
+    }
+}
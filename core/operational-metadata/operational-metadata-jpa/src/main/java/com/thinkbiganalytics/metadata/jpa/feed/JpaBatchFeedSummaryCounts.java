@@ -38,10 +38,11 @@ import javax.persistence.OneToOne;
 import javax.persistence.Table;
 
 /**
- * View entity summarizing a feed and its {@link com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecution} execution counts
+ * Read only entity summarizing a feed and its {@link com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecution} execution counts.
+ * The counts are read from the materialized feed health maintained by the {@link FeedHealthUpdater}.
  */
 @Entity
-@Table(name = "BATCH_FEED_SUMMARY_COUNTS_VW")
+@Table(name = "FEED_HEALTH")
 public class JpaBatchFeedSummaryCounts implements BatchFeedSummaryCounts {
 
     @OneToOne(targetEntity = JpaOpsManagerFeed.class, fetch = FetchType.LAZY)
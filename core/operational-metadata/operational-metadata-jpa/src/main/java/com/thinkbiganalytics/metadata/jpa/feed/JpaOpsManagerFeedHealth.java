@@ -44,19 +44,24 @@ import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
 import javax.persistence.Table;
 
+/**
+ * The materialized health of a feed.
+ * The counts include the job executions of the feed and of its check data feeds, and the job columns describe the latest job execution of the feed.
+ * Rows are kept up to date by the {@link FeedHealthUpdater} as job executions change.
+ */
 @Entity
-@Table(name = "FEED_HEALTH_VW")
+@Table(name = "FEED_HEALTH")
 public class JpaOpsManagerFeedHealth implements FeedHealth {
 
 
-    @Column(name = "FEED_NAME", insertable = false, updatable = false)
+    @Column(name = "FEED_NAME")
     String feedName;
     @EmbeddedId
     private OpsManagerFeedHealthFeedId feedId;
-    @Column(name = "JOB_EXECUTION_ID", insertable = false, updatable = false)
+    @Column(name = "JOB_EXECUTION_ID")
     private Long jobExecutionId;
 
-    @Column(name = "JOB_INSTANCE_ID", insertable = false, updatable = false)
+    @Column(name = "JOB_INSTANCE_ID")
     private Long jobInstanceId;
 
 
@@ -84,23 +89,64 @@ public class JpaOpsManagerFeedHealth implements FeedHealth {
 
 
     @Column(name = "ALL_COUNT")
-    private Long allCount;
+    private Long allCount = 0L;
 
     @Column(name = "FAILED_COUNT")
-    private Long failedCount;
+    private Long failedCount = 0L;
 
     @Column(name = "COMPLETED_COUNT")
-    private Long completedCount;
+    private Long completedCount = 0L;
 
     @Column(name = "ABANDONED_COUNT")
-    private Long abandonedCount;
+    private Long abandonedCount = 0L;
 
     @Column(name = "RUNNING_COUNT")
-    private Long runningCount;
+    private Long runningCount = 0L;
 
     public JpaOpsManagerFeedHealth() {
     }
 
+    public JpaOpsManagerFeedHealth(OpsManagerFeedHealthFeedId feedId, String feedName) {
+        this.feedId = feedId;
+        this.feedName = feedName;
+    }
+
+    /**
+     * Make the given job execution the latest job of this feed if it is at least as recent as the current latest job
+     *
+     * @param jobExecution a job execution of this feed
+     */
+    public void updateLatestJobExecution(BatchJobExecution jobExecution) {
+        if (jobExecutionId == null || jobExecution.getJobExecutionId() >= jobExecutionId) {
+            setLatestJobExecution(jobExecution);
+        }
+    }
+
+    /**
+     * Replace the latest job of this feed
+     *
+     * @param jobExecution the latest job execution of this feed, or null if the feed has no jobs
+     */
+    public void setLatestJobExecution(BatchJobExecution jobExecution) {
+        if (jobExecution != null) {
+            jobExecutionId = jobExecution.getJobExecutionId();
+            jobInstanceId = jobExecution.getJobInstance() != null ? jobExecution.getJobInstance().getJobInstanceId() : null;
+            startTime = jobExecution.getStartTime();
+            endTime = jobExecution.getEndTime();
+            status = jobExecution.getStatus();
+            exitCode = jobExecution.getExitCode();
+            exitMessage = jobExecution.getExitMessage();
+        } else {
+            jobExecutionId = null;
+            jobInstanceId = null;
+            startTime = null;
+            endTime = null;
+            status = BatchJobExecution.JobStatus.UNKNOWN;
+            exitCode = ExecutionConstants.ExitCode.UNKNOWN;
+            exitMessage = null;
+        }
+    }
+
     @Override
     public OpsManagerFeedHealthFeedId getFeedId() {
         return feedId;
@@ -70,6 +70,9 @@ public class OpsFeedManagerFeedProvider implements OpsManagerFeedProvider {
     @Autowired
     private JPAQueryFactory factory;
 
+    @Inject
+    private FeedHealthUpdater feedHealthUpdater;
+
     /**
      * list of delete feed listeners
      **/
@@ -124,6 +127,7 @@ public class OpsFeedManagerFeedProvider implements OpsManagerFeedProvider {
             ((JpaOpsManagerFeed) feed).setName(systemName);
             ((JpaOpsManagerFeed) feed).setId((OpsManagerFeedId) feedManagerId);
             repository.save((JpaOpsManagerFeed) feed);
+            feedHealthUpdater.feedCreated(feed);
         }
         return feed;
     }
@@ -136,6 +140,7 @@ public class OpsFeedManagerFeedProvider implements OpsManagerFeedProvider {
             //first delete all jobs for this feed
             deleteFeedJobs(FeedNameUtil.category(feed.getName()), FeedNameUtil.feed(feed.getName()));
             repository.delete(feed.getId());
+            feedHealthUpdater.feedDeleted(feed.getId());
             //notify the listeners
             notifyOnFeedDeleted(feed);
             log.info("Successfully deleted the feed {} ({})  and all job executions. ", feed.getName(), feed.getId());
@@ -161,7 +166,7 @@ public class OpsFeedManagerFeedProvider implements OpsManagerFeedProvider {
     }
 
     public List<? extends FeedHealth> getFeedHealth() {
-        return feedHealthRepository.findAll();
+        return feedHealthRepository.findAllWithJobs();
     }
 
     private List<? extends FeedHealth> findFeedHealth(String feedName) {
@@ -217,6 +222,7 @@ public class OpsFeedManagerFeedProvider implements OpsManagerFeedProvider {
      */
     public void deleteFeedJobs(String category, String feed) {
         repository.deleteFeedJobs(category, feed);
+        rebuildFeedHealth(FeedNameUtil.fullName(category, feed));
     }
 
     /**
@@ -224,6 +230,22 @@ public class OpsFeedManagerFeedProvider implements OpsManagerFeedProvider {
      */
     public void abandonFeedJobs(String feed) {
         repository.abandonFeedJobs(feed);
+        rebuildFeedHealth(feed);
+    }
+
+    /**
+     * The stored procedures update the job executions directly so the health of the feed needs to be recomputed from its jobs
+     */
+    private void rebuildFeedHealth(String feedName) {
+        OpsManagerFeed feed = findByName(feedName);
+        if (feed != null) {
+            feedHealthUpdater.rebuild(feed);
+        }
+    }
+
+    @Override
+    public void rebuildFeedHealth() {
+        feedHealthUpdater.rebuild();
     }
 
 
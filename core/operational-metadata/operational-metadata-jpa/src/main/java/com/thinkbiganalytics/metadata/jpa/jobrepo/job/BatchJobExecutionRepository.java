@@ -27,6 +27,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.querydsl.QueryDslPredicateExecutor;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -46,6 +47,11 @@ public interface BatchJobExecutionRepository extends JpaRepository<JpaBatchJobEx
                    + "where nifiEventJob.flowFileId = :flowFileId")
     JpaBatchJobExecution findByFlowFile(@Param("flowFileId") String flowFileId);
 
+    @Query(value = "select job from JpaBatchJobExecution as job "
+                   + "join fetch job.nifiEventJobExecution as nifiEventJob "
+                   + "where nifiEventJob.flowFileId in (:flowFileIds)")
+    List<JpaBatchJobExecution> findByFlowFiles(@Param("flowFileIds") Set<String> flowFileIds);
+
     @Query(value = "  select job from JpaBatchJobExecution as job "
                    + "join JpaNifiEventJobExecution as nifiEventJob on nifiEventJob.jobExecution.jobExecutionId = job.jobExecutionId "
                    + "where nifiEventJob.flowFileId in ( "
@@ -146,6 +152,18 @@ public interface BatchJobExecutionRepository extends JpaRepository<JpaBatchJobEx
            + "order by job.jobExecutionId DESC ")
     List<JpaBatchJobExecution> findLatestCompletedJobForFeed(@Param("feedName") String feedName);
 
+    @Query("select job, feed.name from JpaBatchJobExecution as job "
+           + "join JpaBatchJobInstance  jobInstance on jobInstance.jobInstanceId = job.jobInstance.jobInstanceId "
+           + "join JpaOpsManagerFeed  feed on feed.id = jobInstance.feed.id "
+           + "where feed.name in (:feedNames) "
+           + "and job.endTimeMillis = (SELECT max(job2.endTimeMillis)"
+           + "     from JpaBatchJobExecution as job2 "
+           + "join JpaBatchJobInstance  jobInstance2 on jobInstance2.jobInstanceId = job2.jobInstance.jobInstanceId "
+           + "where jobInstance2.feed.id = feed.id "
+           + "and job2.status = 'COMPLETED')"
+           + "order by job.jobExecutionId DESC ")
+    List<Object[]> findLatestCompletedJobsForFeeds(@Param("feedNames") Collection<String> feedNames);
+
     @Query("select job from JpaBatchJobExecution as job "
            + "join JpaBatchJobInstance  jobInstance on jobInstance.jobInstanceId = job.jobInstance.jobInstanceId "
            + "join JpaOpsManagerFeed  feed on feed.id = jobInstance.feed.id "
@@ -57,8 +57,10 @@ import javax.persistence.ManyToOne;
 import javax.persistence.NamedNativeQuery;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
+import javax.persistence.PostLoad;
 import javax.persistence.Table;
 import javax.persistence.TableGenerator;
+import javax.persistence.Transient;
 import javax.persistence.Version;
 
 /**
@@ -174,11 +176,47 @@ public class JpaBatchJobExecution implements BatchJobExecution {
     @OneToOne(targetEntity = JpaNifiEventJobExecution.class, mappedBy = "jobExecution", cascade = CascadeType.ALL, fetch = FetchType.LAZY, optional = false)
     private NifiEventJobExecution nifiEventJobExecution;
 
+    /**
+     * The status last counted in the feed health, or null if this job has not been counted yet
+     */
+    @Transient
+    private JobStatus healthStatus;
+
+    /**
+     * The exit code last counted in the feed health
+     */
+    @Transient
+    private ExecutionConstants.ExitCode healthExitCode;
+
 
     public JpaBatchJobExecution() {
 
     }
 
+    /**
+     * A job execution read from the database has already been counted in the feed health with its persisted status
+     */
+    @PostLoad
+    private void postLoad() {
+        markHealthCounted();
+    }
+
+    /**
+     * Record that the current status and exit code of this job have been counted in the feed health
+     */
+    public void markHealthCounted() {
+        this.healthStatus = status;
+        this.healthExitCode = exitCode;
+    }
+
+    public JobStatus getHealthStatus() {
+        return healthStatus;
+    }
+
+    public ExecutionConstants.ExitCode getHealthExitCode() {
+        return healthExitCode;
+    }
+
     @Override
     public BatchJobInstance getJobInstance() {
         return jobInstance;
@@ -21,6 +21,8 @@ package com.thinkbiganalytics.metadata.jpa.jobrepo.job;
  */
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.Striped;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.Projections;
 import com.querydsl.core.types.dsl.CaseBuilder;
@@ -40,6 +42,7 @@ import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobInstance;
 import com.thinkbiganalytics.metadata.api.jobrepo.job.JobStatusCount;
 import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiEvent;
 import com.thinkbiganalytics.metadata.api.jobrepo.step.BatchStepExecutionProvider;
+import com.thinkbiganalytics.metadata.jpa.feed.FeedHealthUpdater;
 import com.thinkbiganalytics.metadata.jpa.feed.JpaOpsManagerFeed;
 import com.thinkbiganalytics.metadata.jpa.feed.OpsManagerFeedRepository;
 import com.thinkbiganalytics.metadata.jpa.feed.QJpaOpsManagerFeed;
@@ -63,18 +66,24 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.io.UnsupportedEncodingException;
 import java.math.BigInteger;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 import javax.persistence.OptimisticLockException;
@@ -90,6 +99,21 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
 
     private static String PARAM_TB_JOB_TYPE = "tb.jobType";
 
+    /**
+     * The number of locks used to guard the creation of job executions
+     */
+    private static final int JOB_LOCK_STRIPES = 1024;
+
+    /**
+     * The maximum number of feed names in the IN clause of a single query
+     */
+    private static final int FEED_NAMES_PER_QUERY = 500;
+
+    /**
+     * Locks keyed on the job flow file id.  Only one job execution is created for a flow file while events for different jobs are processed in parallel
+     */
+    private final Striped<Lock> jobFlowFileLocks = Striped.lock(JOB_LOCK_STRIPES);
+
 
     @Autowired
     private JPAQueryFactory factory;
@@ -109,6 +133,9 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
     @Inject
     private BatchStepExecutionProvider batchStepExecutionProvider;
 
+    @Inject
+    private FeedHealthUpdater feedHealthUpdater;
+
 
     @Autowired
     public JpaBatchJobExecutionProvider(BatchJobExecutionRepository jobExecutionRepository, BatchJobInstanceRepository jobInstanceRepository,
@@ -205,7 +232,7 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
         //save the params
         JpaNifiEventJobExecution eventJobExecution = new JpaNifiEventJobExecution(jobExecution, event.getEventId(), event.getJobFlowFileId());
         jobExecution.setNifiEventJobExecution(eventJobExecution);
-        jobExecution = this.jobExecutionRepository.save(jobExecution);
+        jobExecution = saveJobExecution(jobExecution);
         //bootstrap the feed parameters
         jobParameters.put(FeedConstants.PARAM__FEED_NAME, event.getFeedName());
         jobParameters.put(FeedConstants.PARAM__JOB_TYPE, FeedConstants.PARAM_VALUE__JOB_TYPE_FEED);
@@ -284,10 +311,17 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
 
                 //update feed type
                 JpaOpsManagerFeed checkDataFeed = (JpaOpsManagerFeed) opsManagerFeedRepository.findByName(event.getFeedName());
+                boolean feedTypeChanged = !OpsManagerFeed.FeedType.CHECK.equals(checkDataFeed.getFeedType());
                 checkDataFeed.setFeedType(OpsManagerFeed.FeedType.CHECK);
                 //relate to this feed
                 JpaOpsManagerFeed feedToCheck = (JpaOpsManagerFeed) opsManagerFeedRepository.findByName(feedName);
-                feedToCheck.getCheckDataFeeds().add(checkDataFeed);
+                boolean relationAdded = feedToCheck.getCheckDataFeeds().add(checkDataFeed);
+                checkDataFeed.getFeedsToCheck().add(feedToCheck);
+
+                //the past jobs of the check data feed are now counted against the feed it checks
+                if (feedTypeChanged || relationAdded) {
+                    feedHealthUpdater.rebuild(checkDataFeed);
+                }
 
                 return true;
             }
@@ -352,11 +386,26 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
      * Get or Create the JobExecution for a given ProvenanceEvent
      */
     @Override
-    public synchronized JpaBatchJobExecution getOrCreateJobExecution(ProvenanceEventRecordDTO event) {
-        JpaBatchJobExecution jobExecution = null;
+    public JpaBatchJobExecution getOrCreateJobExecution(ProvenanceEventRecordDTO event) {
+        List<Lock> locks = lockJobFlowFiles(Collections.singleton(event.getJobFlowFileId()));
+        try {
+            return getOrCreateJobExecution(event, jobExecutionRepository.findByFlowFile(event.getJobFlowFileId()));
+        } finally {
+            unlockIfNotInTransaction(locks);
+        }
+    }
+
+    /**
+     * Get or Create the JobExecution for a given ProvenanceEvent using an already resolved job execution
+     *
+     * @param event                the provenance event
+     * @param existingJobExecution the job execution already found for the events jobFlowFileId, or null if none exists
+     * @return the job execution
+     */
+    private JpaBatchJobExecution getOrCreateJobExecution(ProvenanceEventRecordDTO event, JpaBatchJobExecution existingJobExecution) {
+        JpaBatchJobExecution jobExecution = existingJobExecution;
         boolean isNew = false;
         try {
-            jobExecution = jobExecutionRepository.findByFlowFile(event.getJobFlowFileId());
             if (jobExecution == null) {
                 jobExecution = createNewJobExecution(event);
                 isNew = true;
@@ -390,7 +439,7 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
             save = true;
         }
         if (save) {
-            jobExecutionRepository.save(jobExecution);
+            saveJobExecution(jobExecution);
         }
         return jobExecution;
     }
@@ -410,6 +459,90 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
         return jobExecution;
     }
 
+    /**
+     * Save a batch of events in order, creating or updating the job and step executions for each one.
+     * The existing job executions for the whole batch are resolved with a single query and are reused by subsequent events in the batch.
+     *
+     * @param events     the batch job events in the order they should be applied
+     * @param nifiEvents the persisted nifi event for each of the {@code events}
+     * @return the job executions keyed by the job flow file id
+     */
+    @Override
+    public Map<String, JpaBatchJobExecution> save(List<ProvenanceEventRecordDTO> events, List<? extends NifiEvent> nifiEvents) {
+        Set<String> jobFlowFileIds = events.stream().map(ProvenanceEventRecordDTO::getJobFlowFileId).collect(Collectors.toSet());
+        List<Lock> locks = lockJobFlowFiles(jobFlowFileIds);
+        try {
+            Map<String, JpaBatchJobExecution> jobExecutions = findJobExecutions(jobFlowFileIds);
+            for (int i = 0; i < events.size(); i++) {
+                ProvenanceEventRecordDTO event = events.get(i);
+                JpaBatchJobExecution jobExecution = getOrCreateJobExecution(event, jobExecutions.get(event.getJobFlowFileId()));
+                jobExecutions.put(event.getJobFlowFileId(), jobExecution);
+                save(jobExecution, event, nifiEvents.get(i));
+            }
+            return jobExecutions;
+        } finally {
+            unlockIfNotInTransaction(locks);
+        }
+    }
+
+    /**
+     * Acquire the locks for the job flow files.
+     * The locks are always acquired in stripe order so concurrent callers locking overlapping sets of flow files cannot deadlock.
+     * If a transaction is active the locks are held until it completes, ensuring the job execution created by this thread is visible before another thread looks for it.
+     *
+     * @param jobFlowFileIds the job flow file ids to lock
+     * @return the acquired locks
+     */
+    private List<Lock> lockJobFlowFiles(Set<String> jobFlowFileIds) {
+        List<Lock> locks = new ArrayList<>();
+        for (Lock lock : jobFlowFileLocks.bulkGet(jobFlowFileIds)) {
+            lock.lock();
+            locks.add(lock);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    unlock(locks);
+                }
+            });
+        }
+        return locks;
+    }
+
+    /**
+     * Release the locks if they are not bound to the current transaction
+     *
+     * @param locks locks acquired from {@link #lockJobFlowFiles(Set)}
+     */
+    private void unlockIfNotInTransaction(List<Lock> locks) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            unlock(locks);
+        }
+    }
+
+    private void unlock(List<Lock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).unlock();
+        }
+    }
+
+    /**
+     * Find the existing job executions for the job flow files
+     *
+     * @param jobFlowFileIds the job flow file ids
+     * @return the job executions keyed by the job flow file id
+     */
+    private Map<String, JpaBatchJobExecution> findJobExecutions(Set<String> jobFlowFileIds) {
+        Map<String, JpaBatchJobExecution> jobExecutions = new HashMap<>();
+        if (!jobFlowFileIds.isEmpty()) {
+            for (JpaBatchJobExecution jobExecution : jobExecutionRepository.findByFlowFiles(jobFlowFileIds)) {
+                jobExecutions.put(((JpaNifiEventJobExecution) jobExecution.getNifiEventJobExecution()).getFlowFileId(), jobExecution);
+            }
+        }
+        return jobExecutions;
+    }
+
     /**
      * Save the job execution in the database
      *
@@ -429,7 +562,18 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
      */
     @Override
     public BatchJobExecution save(BatchJobExecution jobExecution) {
-        return jobExecutionRepository.save((JpaBatchJobExecution) jobExecution);
+        return saveJobExecution((JpaBatchJobExecution) jobExecution);
+    }
+
+    /**
+     * Save a job execution and apply any change in its status to the health of its feed
+     *
+     * @return the saved job execution
+     */
+    private JpaBatchJobExecution saveJobExecution(JpaBatchJobExecution jobExecution) {
+        JpaBatchJobExecution savedJobExecution = jobExecutionRepository.save(jobExecution);
+        feedHealthUpdater.jobExecutionChanged(savedJobExecution);
+        return savedJobExecution;
     }
 
 
@@ -486,7 +630,7 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
                     job.completeOrFailJob();
                     log.debug("Finishing related running job {} for event ", job.getJobExecutionId(), event);
                 }
-                jobExecutionRepository.save(runningJobs);
+                jobExecutionRepository.save(runningJobs).forEach(feedHealthUpdater::jobExecutionChanged);
             }
         }
     }
@@ -514,6 +658,18 @@ public class JpaBatchJobExecutionProvider extends QueryDslPagingSupport<JpaBatch
         }
     }
 
+    @Override
+    public Map<String, BatchJobExecution> findLatestCompletedJobForFeeds(Collection<String> feedNames) {
+        Map<String, BatchJobExecution> jobExecutions = new HashMap<>();
+        for (List<String> names : Iterables.partition(new HashSet<>(feedNames), FEED_NAMES_PER_QUERY)) {
+            for (Object[] row : jobExecutionRepository.findLatestCompletedJobsForFeeds(names)) {
+                // rows are ordered by descending id so the first job of each feed is kept, like findLatestCompletedJobForFeed
+                jobExecutions.putIfAbsent((String) row[1], (BatchJobExecution) row[0]);
+            }
+        }
+        return jobExecutions;
+    }
+
     @Override
     public BatchJobExecution findLatestJobForFeed(String feedName) {
         List<JpaBatchJobExecution> jobExecutions = jobExecutionRepository.findLatestJobForFeed(feedName);
@@ -0,0 +1,304 @@
+package com.thinkbiganalytics.metadata.jpa.jobrepo.nifi;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiFeedProcessorStatisticsProvider.RollupInterval;
+import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiFeedProcessorStats;
+
+import org.hibernate.annotations.Type;
+import org.joda.time.DateTime;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Table;
+
+/**
+ * Statistics for a feed and processor summed over a minute, hour, or day.
+ * Rollups are updated as each {@link JpaNifiFeedProcessorStats} is created so that queries over long time frames do not need to aggregate the raw statistics.
+ * The bucket of a statistic is determined by its min event time.
+ */
+@Entity
+@Table(name = "NIFI_FEED_PROCESSOR_STATS_ROLLUP")
+public class JpaNifiFeedProcessorStatsRollup {
+
+    @EmbeddedId
+    private NifiFeedProcessorStatsRollupPK rollupPK;
+
+    @Column(name = "ROLLUP_INTERVAL", insertable = false, updatable = false)
+    @Enumerated(EnumType.STRING)
+    private RollupInterval interval;
+
+    @Type(type = "org.jadira.usertype.dateandtime.joda.PersistentDateTime")
+    @Column(name = "BUCKET_TIME", insertable = false, updatable = false)
+    private DateTime bucketTime;
+
+    @Column(name = "FM_FEED_NAME", insertable = false, updatable = false)
+    private String feedName;
+
+    @Column(name = "NIFI_PROCESSOR_ID", insertable = false, updatable = false)
+    private String processorId;
+
+    @Column(name = "PROCESSOR_NAME")
+    private String processorName;
+
+    @Column(name = "NIFI_FEED_PROCESS_GROUP_ID")
+    private String feedProcessGroupId;
+
+    @Type(type = "org.jadira.usertype.dateandtime.joda.PersistentDateTime")
+    @Column(name = "MIN_EVENT_TIME")
+    private DateTime minEventTime;
+
+    @Type(type = "org.jadira.usertype.dateandtime.joda.PersistentDateTime")
+    @Column(name = "MAX_EVENT_TIME")
+    private DateTime maxEventTime;
+
+    @Column(name = "DURATION_MILLIS")
+    private Long duration = 0L;
+    @Column(name = "BYTES_IN")
+    private Long bytesIn = 0L;
+    @Column(name = "BYTES_OUT")
+    private Long bytesOut = 0L;
+    @Column(name = "TOTAL_EVENTS")
+    private Long totalCount = 0L;
+    @Column(name = "JOBS_STARTED")
+    private Long jobsStarted = 0L;
+    @Column(name = "JOBS_FINISHED")
+    private Long jobsFinished = 0L;
+    @Column(name = "JOBS_FAILED")
+    private Long jobsFailed = 0L;
+    @Column(name = "JOB_DURATION")
+    private Long jobDuration = 0L;
+    @Column(name = "SUCCESSFUL_JOB_DURATION")
+    private Long successfulJobDuration = 0L;
+    @Column(name = "PROCESSORS_FAILED")
+    private Long processorsFailed = 0L;
+    @Column(name = "FLOW_FILES_STARTED")
+    private Long flowFilesStarted = 0L;
+    @Column(name = "FLOW_FILES_FINISHED")
+    private Long flowFilesFinished = 0L;
+
+    /**
+     * The number of statistics rolled up
+     */
+    @Column(name = "STATS_COUNT")
+    private Long statsCount = 0L;
+
+    public JpaNifiFeedProcessorStatsRollup() {
+
+    }
+
+    public JpaNifiFeedProcessorStatsRollup(NifiFeedProcessorStatsRollupPK rollupPK) {
+        this.rollupPK = rollupPK;
+    }
+
+    /**
+     * Adds the given statistics to this rollup
+     *
+     * @param stats statistics within the time bucket of this rollup
+     */
+    public void add(NifiFeedProcessorStats stats) {
+        processorName = stats.getProcessorName();
+        feedProcessGroupId = stats.getFeedProcessGroupId();
+        if (stats.getMinEventTime() != null && (minEventTime == null || stats.getMinEventTime().isBefore(minEventTime))) {
+            minEventTime = stats.getMinEventTime();
+        }
+        if (stats.getMaxEventTime() != null && (maxEventTime == null || stats.getMaxEventTime().isAfter(maxEventTime))) {
+            maxEventTime = stats.getMaxEventTime();
+        }
+        duration = sum(duration, stats.getDuration());
+        bytesIn = sum(bytesIn, stats.getBytesIn());
+        bytesOut = sum(bytesOut, stats.getBytesOut());
+        totalCount = sum(totalCount, stats.getTotalCount());
+        jobsStarted = sum(jobsStarted, stats.getJobsStarted());
+        jobsFinished = sum(jobsFinished, stats.getJobsFinished());
+        jobsFailed = sum(jobsFailed, stats.getJobsFailed());
+        jobDuration = sum(jobDuration, stats.getJobDuration());
+        successfulJobDuration = sum(successfulJobDuration, stats.getSuccessfulJobDuration());
+        processorsFailed = sum(processorsFailed, stats.getProcessorsFailed());
+        flowFilesStarted = sum(flowFilesStarted, stats.getFlowFilesStarted());
+        flowFilesFinished = sum(flowFilesFinished, stats.getFlowFilesFinished());
+        statsCount++;
+    }
+
+    private static Long sum(Long total, Long value) {
+        return (value != null) ? total + value : total;
+    }
+
+    public NifiFeedProcessorStatsRollupPK getRollupPK() {
+        return rollupPK;
+    }
+
+    public RollupInterval getInterval() {
+        return interval;
+    }
+
+    public DateTime getBucketTime() {
+        return bucketTime;
+    }
+
+    public String getFeedName() {
+        return feedName;
+    }
+
+    public String getProcessorId() {
+        return processorId;
+    }
+
+    public String getProcessorName() {
+        return processorName;
+    }
+
+    public String getFeedProcessGroupId() {
+        return feedProcessGroupId;
+    }
+
+    public DateTime getMinEventTime() {
+        return minEventTime;
+    }
+
+    public DateTime getMaxEventTime() {
+        return maxEventTime;
+    }
+
+    public Long getDuration() {
+        return duration;
+    }
+
+    public Long getBytesIn() {
+        return bytesIn;
+    }
+
+    public Long getBytesOut() {
+        return bytesOut;
+    }
+
+    public Long getTotalCount() {
+        return totalCount;
+    }
+
+    public Long getJobsStarted() {
+        return jobsStarted;
+    }
+
+    public Long getJobsFinished() {
+        return jobsFinished;
+    }
+
+    public Long getJobsFailed() {
+        return jobsFailed;
+    }
+
+    public Long getJobDuration() {
+        return jobDuration;
+    }
+
+    public Long getSuccessfulJobDuration() {
+        return successfulJobDuration;
+    }
+
+    public Long getProcessorsFailed() {
+        return processorsFailed;
+    }
+
+    public Long getFlowFilesStarted() {
+        return flowFilesStarted;
+    }
+
+    public Long getFlowFilesFinished() {
+        return flowFilesFinished;
+    }
+
+    public Long getStatsCount() {
+        return statsCount;
+    }
+
+    @Embeddable
+    public static class NifiFeedProcessorStatsRollupPK implements Serializable {
+
+        @Column(name = "ROLLUP_INTERVAL")
+        @Enumerated(EnumType.STRING)
+        private RollupInterval interval;
+
+        @Type(type = "org.jadira.usertype.dateandtime.joda.PersistentDateTime")
+        @Column(name = "BUCKET_TIME")
+        private DateTime bucketTime;
+
+        @Column(name = "FM_FEED_NAME")
+        private String feedName;
+
+        @Column(name = "NIFI_PROCESSOR_ID")
+        private String processorId;
+
+        public NifiFeedProcessorStatsRollupPK() {
+
+        }
+
+        public NifiFeedProcessorStatsRollupPK(RollupInterval interval, DateTime bucketTime, String feedName, String processorId) {
+            this.interval = interval;
+            this.bucketTime = bucketTime;
+            this.feedName = feedName;
+            this.processorId = processorId;
+        }
+
+        public RollupInterval getInterval() {
+            return interval;
+        }
+
+        public DateTime getBucketTime() {
+            return bucketTime;
+        }
+
+        public String getFeedName() {
+            return feedName;
+        }
+
+        public String getProcessorId() {
+            return processorId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            NifiFeedProcessorStatsRollupPK that = (NifiFeedProcessorStatsRollupPK) o;
+            return interval == that.interval
+                   && (bucketTime == null ? that.bucketTime == null : that.bucketTime != null && bucketTime.getMillis() == that.bucketTime.getMillis())
+                   && Objects.equals(feedName, that.feedName)
+                   && Objects.equals(processorId, that.processorId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(interval, bucketTime != null ? bucketTime.getMillis() : null, feedName, processorId);
+        }
+    }
+}
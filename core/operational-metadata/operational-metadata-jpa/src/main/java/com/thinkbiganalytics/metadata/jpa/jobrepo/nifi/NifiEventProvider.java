@@ -29,6 +29,15 @@ import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
 /**
  * Provider creating and accessing the {@link JpaNifiEvent}
  */
@@ -38,6 +47,9 @@ public class NifiEventProvider {
     @Autowired
     private JPAQueryFactory factory;
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
     private NifiEventRepository repository;
 
     @Autowired
@@ -86,4 +98,39 @@ public class NifiEventProvider {
         return repository.exists(new JpaNifiEvent.NiFiEventPK(eventRecordDTO.getEventId(), eventRecordDTO.getFlowFileUuid()));
     }
 
+    /**
+     * Persist a batch of new events.  The events are persisted rather than merged so no select is issued per event,
+     * and the inserts are sent to the database as a JDBC batch when the transaction is flushed.
+     * The caller should ensure the events do not exist using {@link #findNewEvents(List)}
+     *
+     * @param events the events to persist
+     * @return the persisted events in the same order as the {@code events}
+     */
+    public List<NifiEvent> create(List<ProvenanceEventRecordDTO> events) {
+        List<NifiEvent> nifiEvents = new ArrayList<>(events.size());
+        for (ProvenanceEventRecordDTO event : events) {
+            NifiEvent nifiEvent = toNifiEvent(event);
+            entityManager.persist(nifiEvent);
+            nifiEvents.add(nifiEvent);
+        }
+        return nifiEvents;
+    }
+
+    /**
+     * Return the events that have not already been persisted, checking the whole batch with a single query
+     *
+     * @param events the events to check
+     * @return the events that do not exist, in the same order as the {@code events}
+     */
+    public List<ProvenanceEventRecordDTO> findNewEvents(List<ProvenanceEventRecordDTO> events) {
+        if (events.isEmpty()) {
+            return events;
+        }
+        Set<Long> eventIds = events.stream().map(ProvenanceEventRecordDTO::getEventId).collect(Collectors.toSet());
+        Set<JpaNifiEvent.NiFiEventPK> existing = new HashSet<>(repository.findEventPKs(eventIds));
+        return events.stream()
+            .filter(event -> !existing.contains(new JpaNifiEvent.NiFiEventPK(event.getEventId(), event.getFlowFileUuid())))
+            .collect(Collectors.toList());
+    }
+
 }
@@ -25,6 +25,9 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.List;
+import java.util.Set;
+
 /**
  * Spring data repository for accessing the {@link JpaNifiEvent}
  */
@@ -37,4 +40,7 @@ public interface NifiEventRepository extends JpaRepository<JpaNifiEvent, JpaNifi
     @Query(value = "SELECT max(nifiEvent.eventId) from JpaNifiEvent nifiEvent where nifiEvent.clusterNodeId = :clusterNodeId")
     public Long findMaxEventId(@Param("clusterNodeId") String clusterNodeId);
 
+    @Query(value = "SELECT nifiEvent.eventPK from JpaNifiEvent nifiEvent where nifiEvent.eventId in (:eventIds)")
+    public List<JpaNifiEvent.NiFiEventPK> findEventPKs(@Param("eventIds") Set<Long> eventIds);
+
 }
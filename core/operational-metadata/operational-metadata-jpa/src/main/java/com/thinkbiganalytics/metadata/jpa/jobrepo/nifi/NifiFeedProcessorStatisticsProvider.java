@@ -20,43 +20,114 @@ package com.thinkbiganalytics.metadata.jpa.jobrepo.nifi;
  * #L%
  */
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.Projections;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiFeedProcessorStats;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.JpaNifiFeedProcessorStatsRollup.NifiFeedProcessorStatsRollupPK;
 
 import org.apache.commons.lang3.StringUtils;
 import org.joda.time.DateTime;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 /**
  * Provider for accessing the statstics for a feed and processor
+ *
+ * <p>Statistics are rolled up into minute, hour, and day buckets as they are created. Queries read the coarsest rollups that fit within the requested time frame
+ * and only read the raw statistics for the remainder.</p>
  */
 @Service
 public class NifiFeedProcessorStatisticsProvider implements com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiFeedProcessorStatisticsProvider {
 
+    /**
+     * Rollup intervals from the coarsest to the finest
+     */
+    private static final List<RollupInterval> ROLLUP_INTERVALS = ImmutableList.of(RollupInterval.DAY, RollupInterval.HOUR, RollupInterval.MINUTE);
+
+    /**
+     * Minimum number of time buckets that a rollup must provide for stats grouped by time, otherwise a finer interval is used
+     */
+    private static final int MIN_TIME_BUCKETS = 60;
+
+    /**
+     * Number of days that minute rollups are kept by {@code NifiStatsRetentionTask}, or 0 if they are kept forever
+     */
+    @Value("${kylo.ops.mgr.stats.retention.minuteRollupDays:14}")
+    private int minuteRollupRetentionDays;
+
     @Autowired
     private JPAQueryFactory factory;
 
     private NifiFeedProcessorStatisticsRepository statisticsRepository;
 
+    private NifiFeedProcessorStatsRollupRepository rollupRepository;
+
     private NifiEventRepository nifiEventRepository;
 
     @Autowired
-    public NifiFeedProcessorStatisticsProvider(NifiFeedProcessorStatisticsRepository repository, NifiEventRepository nifiEventRepository) {
+    public NifiFeedProcessorStatisticsProvider(NifiFeedProcessorStatisticsRepository repository, NifiFeedProcessorStatsRollupRepository rollupRepository,
+                                               NifiEventRepository nifiEventRepository) {
         this.statisticsRepository = repository;
+        this.rollupRepository = rollupRepository;
         this.nifiEventRepository = nifiEventRepository;
     }
 
 
     @Override
     public NifiFeedProcessorStats create(NifiFeedProcessorStats t) {
-        return statisticsRepository.save((JpaNifiFeedProcessorStats) t);
+        JpaNifiFeedProcessorStats stats = statisticsRepository.save((JpaNifiFeedProcessorStats) t);
+        rollup(stats);
+        return stats;
+    }
+
+    /**
+     * Adds the stats to the rollup of each interval.
+     *
+     * <p>Stats may be received concurrently so each existing bucket is locked until the transaction completes. The buckets are always locked from the coarsest
+     * interval to the finest. A new bucket is inserted immediately so that a concurrent insert of the same bucket fails with a constraint violation, which the
+     * caller may retry.</p>
+     */
+    private void rollup(JpaNifiFeedProcessorStats stats) {
+        DateTime eventTime = stats.getMinEventTime() != null ? stats.getMinEventTime() : stats.getCollectionTime();
+        if (eventTime == null || stats.getFeedName() == null || stats.getProcessorId() == null) {
+            return;
+        }
+        for (RollupInterval interval : ROLLUP_INTERVALS) {
+            NifiFeedProcessorStatsRollupPK rollupPK = new NifiFeedProcessorStatsRollupPK(interval, interval.bucketStart(eventTime), stats.getFeedName(), stats.getProcessorId());
+            JpaNifiFeedProcessorStatsRollup rollup = rollupRepository.findForUpdate(rollupPK);
+            if (rollup == null) {
+                rollup = new JpaNifiFeedProcessorStatsRollup(rollupPK);
+                rollup.add(stats);
+                rollupRepository.saveAndFlush(rollup);
+            } else {
+                rollup.add(stats);
+                rollupRepository.save(rollup);
+            }
+        }
+    }
+
+    @Override
+    public long deleteStatisticsBefore(DateTime time) {
+        QJpaNifiFeedProcessorStats stats = QJpaNifiFeedProcessorStats.jpaNifiFeedProcessorStats;
+        return factory.delete(stats).where(stats.maxEventTime.lt(time)).execute();
+    }
+
+    @Override
+    public long deleteRollupsBefore(RollupInterval interval, DateTime time) {
+        QJpaNifiFeedProcessorStatsRollup rollup = QJpaNifiFeedProcessorStatsRollup.jpaNifiFeedProcessorStatsRollup;
+        return factory.delete(rollup).where(rollup.interval.eq(interval).and(rollup.bucketTime.lt(time))).execute();
     }
 
     public List<? extends JpaNifiFeedProcessorStats> findFeedProcessorStatisticsByProcessorId(String feedName, TimeFrame timeFrame) {
@@ -114,52 +185,181 @@ public class NifiFeedProcessorStatisticsProvider implements com.thinkbiganalytic
 
     @Override
     public List<? extends JpaNifiFeedProcessorStats> findFeedProcessorStatisticsByProcessorId(String feedName, DateTime start, DateTime end) {
+        return findFeedProcessorStatistics(feedName, start, end, true);
+    }
+
+
+    @Override
+    public List<? extends JpaNifiFeedProcessorStats> findFeedProcessorStatisticsByProcessorName(String feedName, DateTime start, DateTime end) {
+        return findFeedProcessorStatistics(feedName, start, end, false);
+    }
+
+    /**
+     * Find the stats for a feed grouped by processor by splitting the time frame into the coarsest rollup buckets that fit and the remaining raw stats.
+     */
+    private List<JpaNifiFeedProcessorStats> findFeedProcessorStatistics(String feedName, DateTime start, DateTime end, boolean byProcessorId) {
+        List<TimeSegment> segments = new ArrayList<>();
+        addTimeSegments(start, end, 0, segments);
+
+        List<List<JpaNifiFeedProcessorStats>> results = new ArrayList<>();
+        for (TimeSegment segment : segments) {
+            if (segment.interval != null) {
+                results.add(findRollupStatisticsByProcessor(feedName, segment, byProcessorId));
+            } else {
+                QJpaNifiFeedProcessorStats stats = QJpaNifiFeedProcessorStats.jpaNifiFeedProcessorStats;
+                Predicate predicate = segment.end.equals(end) ? stats.minEventTime.goe(segment.start).and(stats.maxEventTime.loe(end))
+                                                              : stats.minEventTime.goe(segment.start).and(stats.minEventTime.lt(segment.end));
+                results.add(findRawStatisticsByProcessor(feedName, predicate, byProcessorId));
+            }
+        }
+
+        if (results.size() == 1) {
+            return results.get(0);
+        }
+        return merge(results, byProcessorId ? stats -> stats.getProcessorId() + "|" + stats.getProcessorName() : JpaNifiFeedProcessorStats::getProcessorName);
+    }
+
+    /**
+     * Splits the time frame into the full buckets of the coarsest interval and recursively splits the partial buckets on either side with finer intervals.
+     */
+    private void addTimeSegments(DateTime start, DateTime end, int level, List<TimeSegment> segments) {
+        if (!start.isBefore(end)) {
+            if (segments.isEmpty()) {
+                segments.add(new TimeSegment(null, start, end));
+            }
+            return;
+        }
+        if (level >= ROLLUP_INTERVALS.size()) {
+            segments.add(new TimeSegment(null, start, end));
+            return;
+        }
+
+        RollupInterval interval = ROLLUP_INTERVALS.get(level);
+        DateTime first = interval.nextBucketStart(start);
+        DateTime last = interval.bucketStart(end);
+        if (first.isBefore(last)) {
+            addTimeSegments(start, first, level + 1, segments);
+            segments.add(new TimeSegment(interval, first, last));
+            addTimeSegments(last, end, level + 1, segments);
+        } else {
+            addTimeSegments(start, end, level + 1, segments);
+        }
+    }
+
+    private List<JpaNifiFeedProcessorStats> findRawStatisticsByProcessor(String feedName, Predicate predicate, boolean byProcessorId) {
         QJpaNifiFeedProcessorStats stats = QJpaNifiFeedProcessorStats.jpaNifiFeedProcessorStats;
         JPAQuery
             query = factory.select(
+            byProcessorId ?
             Projections.bean(JpaNifiFeedProcessorStats.class,
                              stats.feedName, stats.processorId, stats.processorName,
                              stats.bytesIn.sum().as("bytesIn"), stats.bytesOut.sum().as("bytesOut"), stats.duration.sum().as("duration"),
                              stats.jobsStarted.sum().as("jobsStarted"), stats.jobsFinished.sum().as("jobsFinished"), stats.jobDuration.sum().as("jobDuration"),
                              stats.flowFilesStarted.sum().as("flowFilesStarted"), stats.flowFilesFinished.sum().as("flowFilesFinished"), stats.totalCount.sum().as("totalCount"),
                              stats.maxEventTime.max().as("maxEventTime"), stats.minEventTime.min().as("minEventTime"), stats.jobsFailed.sum().as("jobsFailed"),
+                             stats.count().as("resultSetCount")) :
+            Projections.bean(JpaNifiFeedProcessorStats.class,
+                             stats.feedName, stats.processorName,
+                             stats.bytesIn.sum().as("bytesIn"), stats.bytesOut.sum().as("bytesOut"), stats.duration.sum().as("duration"),
+                             stats.jobsStarted.sum().as("jobsStarted"), stats.jobsFinished.sum().as("jobsFinished"), stats.jobDuration.sum().as("jobDuration"),
+                             stats.flowFilesStarted.sum().as("flowFilesStarted"), stats.flowFilesFinished.sum().as("flowFilesFinished"), stats.totalCount.sum().as("totalCount"),
+                             stats.maxEventTime.max().as("maxEventTime"), stats.minEventTime.min().as("minEventTime"), stats.jobsFailed.sum().as("jobsFailed"),
                              stats.count().as("resultSetCount"))
         )
             .from(stats)
-            .where(stats.feedName.eq(feedName)
-                       .and(stats.minEventTime.goe(start)
-                                .and(stats.maxEventTime.loe(end))))
-            .groupBy(stats.feedName, stats.processorId, stats.processorName)
+            .where(stats.feedName.eq(feedName).and(predicate))
             .orderBy(stats.processorName.asc());
+        if (byProcessorId) {
+            query.groupBy(stats.feedName, stats.processorId, stats.processorName);
+        } else {
+            query.groupBy(stats.feedName, stats.processorName);
+        }
 
         return (List<JpaNifiFeedProcessorStats>) query.fetch();
     }
 
-
-    @Override
-    public List<? extends JpaNifiFeedProcessorStats> findFeedProcessorStatisticsByProcessorName(String feedName, DateTime start, DateTime end) {
-        QJpaNifiFeedProcessorStats stats = QJpaNifiFeedProcessorStats.jpaNifiFeedProcessorStats;
+    private List<JpaNifiFeedProcessorStats> findRollupStatisticsByProcessor(String feedName, TimeSegment segment, boolean byProcessorId) {
+        QJpaNifiFeedProcessorStatsRollup rollup = QJpaNifiFeedProcessorStatsRollup.jpaNifiFeedProcessorStatsRollup;
         JPAQuery
             query = factory.select(
+            byProcessorId ?
             Projections.bean(JpaNifiFeedProcessorStats.class,
-                             stats.feedName, stats.processorName,
-                             stats.bytesIn.sum().as("bytesIn"), stats.bytesOut.sum().as("bytesOut"), stats.duration.sum().as("duration"),
-                             stats.jobsStarted.sum().as("jobsStarted"), stats.jobsFinished.sum().as("jobsFinished"), stats.jobDuration.sum().as("jobDuration"),
-                             stats.flowFilesStarted.sum().as("flowFilesStarted"), stats.flowFilesFinished.sum().as("flowFilesFinished"), stats.totalCount.sum().as("totalCount"),
-                             stats.maxEventTime.max().as("maxEventTime"), stats.minEventTime.min().as("minEventTime"), stats.jobsFailed.sum().as("jobsFailed"),
-                             stats.count().as("resultSetCount"))
+                             rollup.feedName, rollup.processorId, rollup.processorName,
+                             rollup.bytesIn.sum().as("bytesIn"), rollup.bytesOut.sum().as("bytesOut"), rollup.duration.sum().as("duration"),
+                             rollup.jobsStarted.sum().as("jobsStarted"), rollup.jobsFinished.sum().as("jobsFinished"), rollup.jobDuration.sum().as("jobDuration"),
+                             rollup.flowFilesStarted.sum().as("flowFilesStarted"), rollup.flowFilesFinished.sum().as("flowFilesFinished"), rollup.totalCount.sum().as("totalCount"),
+                             rollup.maxEventTime.max().as("maxEventTime"), rollup.minEventTime.min().as("minEventTime"), rollup.jobsFailed.sum().as("jobsFailed"),
+                             rollup.statsCount.sum().as("resultSetCount")) :
+            Projections.bean(JpaNifiFeedProcessorStats.class,
+                             rollup.feedName, rollup.processorName,
+                             rollup.bytesIn.sum().as("bytesIn"), rollup.bytesOut.sum().as("bytesOut"), rollup.duration.sum().as("duration"),
+                             rollup.jobsStarted.sum().as("jobsStarted"), rollup.jobsFinished.sum().as("jobsFinished"), rollup.jobDuration.sum().as("jobDuration"),
+                             rollup.flowFilesStarted.sum().as("flowFilesStarted"), rollup.flowFilesFinished.sum().as("flowFilesFinished"), rollup.totalCount.sum().as("totalCount"),
+                             rollup.maxEventTime.max().as("maxEventTime"), rollup.minEventTime.min().as("minEventTime"), rollup.jobsFailed.sum().as("jobsFailed"),
+                             rollup.statsCount.sum().as("resultSetCount"))
         )
-            .from(stats)
-            .where(stats.feedName.eq(feedName)
-                       .and(stats.minEventTime.goe(start)
-                                .and(stats.maxEventTime.loe(end))))
-            .groupBy(stats.feedName, stats.processorName)
-            .orderBy(stats.processorName.asc());
+            .from(rollup)
+            .where(rollup.feedName.eq(feedName)
+                       .and(rollup.interval.eq(segment.interval))
+                       .and(rollup.bucketTime.goe(segment.start))
+                       .and(rollup.bucketTime.lt(segment.end)))
+            .orderBy(rollup.processorName.asc());
+        if (byProcessorId) {
+            query.groupBy(rollup.feedName, rollup.processorId, rollup.processorName);
+        } else {
+            query.groupBy(rollup.feedName, rollup.processorName);
+        }
 
         return (List<JpaNifiFeedProcessorStats>) query.fetch();
     }
 
+    /**
+     * Sums the stats from each time segment with the same key
+     */
+    private List<JpaNifiFeedProcessorStats> merge(List<List<JpaNifiFeedProcessorStats>> results, Function<JpaNifiFeedProcessorStats, String> key) {
+        Map<String, JpaNifiFeedProcessorStats> merged = new LinkedHashMap<>();
+        results.stream().flatMap(List::stream).forEach(stats -> merged.merge(key.apply(stats), stats, (total, next) -> {
+            total.setBytesIn(sum(total.getBytesIn(), next.getBytesIn()));
+            total.setBytesOut(sum(total.getBytesOut(), next.getBytesOut()));
+            total.setDuration(sum(total.getDuration(), next.getDuration()));
+            total.setJobsStarted(sum(total.getJobsStarted(), next.getJobsStarted()));
+            total.setJobsFinished(sum(total.getJobsFinished(), next.getJobsFinished()));
+            total.setJobDuration(sum(total.getJobDuration(), next.getJobDuration()));
+            total.setFlowFilesStarted(sum(total.getFlowFilesStarted(), next.getFlowFilesStarted()));
+            total.setFlowFilesFinished(sum(total.getFlowFilesFinished(), next.getFlowFilesFinished()));
+            total.setTotalCount(sum(total.getTotalCount(), next.getTotalCount()));
+            total.setJobsFailed(sum(total.getJobsFailed(), next.getJobsFailed()));
+            if (next.getMinEventTime() != null && (total.getMinEventTime() == null || next.getMinEventTime().isBefore(total.getMinEventTime()))) {
+                total.setMinEventTime(next.getMinEventTime());
+            }
+            if (next.getMaxEventTime() != null && (total.getMaxEventTime() == null || next.getMaxEventTime().isAfter(total.getMaxEventTime()))) {
+                total.setMaxEventTime(next.getMaxEventTime());
+            }
+            return total;
+        }));
+
+        List<JpaNifiFeedProcessorStats> list = new ArrayList<>(merged.values());
+        list.sort(Comparator.comparing(JpaNifiFeedProcessorStats::getProcessorName, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return list;
+    }
+
+    private static Long sum(Long a, Long b) {
+        return (a != null ? a : 0L) + (b != null ? b : 0L);
+    }
+
     public List<? extends JpaNifiFeedProcessorStats> findForFeedStatisticsGroupedByTime(String feedName, DateTime start, DateTime end) {
+        RollupInterval interval = ROLLUP_INTERVALS.stream()
+            .filter(rollupInterval -> end.getMillis() - start.getMillis() >= rollupInterval.getMillis() * MIN_TIME_BUCKETS)
+            .findFirst()
+            .orElse(null);
+        if (interval == RollupInterval.MINUTE && minuteRollupRetentionDays > 0 && start.isBefore(DateTime.now().minusDays(minuteRollupRetentionDays))) {
+            // minute rollups older than the retention period have been deleted
+            interval = RollupInterval.HOUR;
+        }
+        if (interval != null) {
+            return findForFeedRollupStatisticsGroupedByTime(feedName, interval, start, end);
+        }
+
         QJpaNifiFeedProcessorStats stats = QJpaNifiFeedProcessorStats.jpaNifiFeedProcessorStats;
         JPAQuery
             query = factory.select(
@@ -183,6 +383,33 @@ public class NifiFeedProcessorStatisticsProvider implements com.thinkbiganalytic
         return (List<JpaNifiFeedProcessorStats>) query.fetch();
     }
 
+    /**
+     * Find the stats for a feed grouped by the rollup buckets of the given interval, starting with the bucket containing the start time
+     */
+    private List<? extends JpaNifiFeedProcessorStats> findForFeedRollupStatisticsGroupedByTime(String feedName, RollupInterval interval, DateTime start, DateTime end) {
+        QJpaNifiFeedProcessorStatsRollup rollup = QJpaNifiFeedProcessorStatsRollup.jpaNifiFeedProcessorStatsRollup;
+        JPAQuery
+            query = factory.select(
+            Projections.bean(JpaNifiFeedProcessorStats.class,
+                             rollup.feedName,
+                             rollup.bytesIn.sum().as("bytesIn"), rollup.bytesOut.sum().as("bytesOut"), rollup.duration.sum().as("duration"),
+                             rollup.jobsStarted.sum().as("jobsStarted"), rollup.jobsFinished.sum().as("jobsFinished"), rollup.jobDuration.sum().as("jobDuration"),
+                             rollup.flowFilesStarted.sum().as("flowFilesStarted"), rollup.flowFilesFinished.sum().as("flowFilesFinished"),
+                             rollup.maxEventTime.max().as("maxEventTime"), rollup.minEventTime.min().as("minEventTime"),
+                             rollup.jobsFailed.sum().as("jobsFailed"), rollup.totalCount.sum().as("totalCount"),
+                             rollup.statsCount.sum().as("resultSetCount"))
+        )
+            .from(rollup)
+            .where(rollup.feedName.eq(feedName)
+                       .and(rollup.interval.eq(interval))
+                       .and(rollup.bucketTime.goe(interval.bucketStart(start)))
+                       .and(rollup.bucketTime.loe(end)))
+            .groupBy(rollup.feedName, rollup.bucketTime)
+            .orderBy(rollup.bucketTime.asc());
+
+        return (List<JpaNifiFeedProcessorStats>) query.fetch();
+    }
+
 
     @Override
     public Long findMaxEventId(String clusterNodeId) {
@@ -205,4 +432,20 @@ public class NifiFeedProcessorStatisticsProvider implements com.thinkbiganalytic
         }
         return eventId;
     }
+
+    /**
+     * A part of a time frame that is read from the rollups of an interval, or from the raw stats if the interval is null
+     */
+    private static class TimeSegment {
+
+        private final RollupInterval interval;
+        private final DateTime start;
+        private final DateTime end;
+
+        TimeSegment(RollupInterval interval, DateTime start, DateTime end) {
+            this.interval = interval;
+            this.start = start;
+            this.end = end;
+        }
+    }
 }
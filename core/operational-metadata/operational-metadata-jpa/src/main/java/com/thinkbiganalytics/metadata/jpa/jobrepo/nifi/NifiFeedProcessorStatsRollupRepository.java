@@ -0,0 +1,43 @@
+package com.thinkbiganalytics.metadata.jpa.jobrepo.nifi;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.querydsl.QueryDslPredicateExecutor;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.LockModeType;
+
+/**
+ * Spring data repository for {@link JpaNifiFeedProcessorStatsRollup}
+ */
+public interface NifiFeedProcessorStatsRollupRepository
+    extends JpaRepository<JpaNifiFeedProcessorStatsRollup, JpaNifiFeedProcessorStatsRollup.NifiFeedProcessorStatsRollupPK>, QueryDslPredicateExecutor<JpaNifiFeedProcessorStatsRollup> {
+
+    /**
+     * Find a rollup bucket, locking the row until the transaction completes so concurrent stats for the bucket are added one at a time
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from JpaNifiFeedProcessorStatsRollup as r where r.rollupPK = :rollupPK")
+    JpaNifiFeedProcessorStatsRollup findForUpdate(@Param("rollupPK") JpaNifiFeedProcessorStatsRollup.NifiFeedProcessorStatsRollupPK rollupPK);
+}
@@ -0,0 +1,211 @@
+package com.thinkbiganalytics.metadata.jpa.feed;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.feed.FeedHealth;
+import com.thinkbiganalytics.metadata.api.feed.OpsManagerFeed;
+import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecution;
+import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecutionProvider;
+import com.thinkbiganalytics.metadata.config.OperationalMetadataConfig;
+import com.thinkbiganalytics.metadata.jpa.TestJpaConfiguration;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.JpaBatchJobExecution;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+import com.thinkbiganalytics.spring.CommonsSpringConfiguration;
+
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+
+/**
+ * Runs jobs through their life cycle and ensures the materialized feed health has the expected counts for the job executions
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@TestPropertySource(locations = "classpath:test-application.properties")
+@SpringApplicationConfiguration(classes = {CommonsSpringConfiguration.class, OperationalMetadataConfig.class, TestJpaConfiguration.class})
+public class FeedHealthUpdaterTest {
+
+    private final AtomicLong eventIds = new AtomicLong();
+
+    @Inject
+    private OpsFeedManagerFeedProvider feedProvider;
+
+    @Inject
+    private OpsManagerFeedRepository feedRepository;
+
+    @Inject
+    private BatchJobExecutionProvider jobExecutionProvider;
+
+    @Inject
+    private MetadataAccess metadataAccess;
+
+    /**
+     * Verify the counts and latest job as jobs start, complete, fail, and are abandoned, and that a rebuild from the job history gives the same result
+     */
+    @Test
+    public void testJobLifeCycle() {
+        String feedName = "health.test_" + UUID.randomUUID().toString().substring(0, 8);
+        createFeed(feedName);
+        Assert.assertNull("A feed without jobs has no health", metadataAccess.read(() -> feedProvider.getFeedHealth(feedName), MetadataAccess.SERVICE));
+
+        runJob(feedName, true, false);
+        runJob(feedName, true, true);
+        runJob(feedName, false, false);
+        Long abandonedJobId = runJob(feedName, true, true);
+        metadataAccess.commit(() -> {
+            JpaBatchJobExecution jobExecution = (JpaBatchJobExecution) jobExecutionProvider.findByJobExecutionId(abandonedJobId);
+            jobExecution.setStatus(BatchJobExecution.JobStatus.ABANDONED);
+            return jobExecutionProvider.save(jobExecution);
+        }, MetadataAccess.SERVICE);
+
+        metadataAccess.read(() -> {
+            assertHealth(feedProvider.getFeedHealth(feedName), 4, 1, 1, 1, 1);
+            Assert.assertEquals(abandonedJobId, feedProvider.getFeedHealth(feedName).getJobExecutionId());
+            Assert.assertEquals(BatchJobExecution.JobStatus.ABANDONED, feedProvider.getFeedHealth(feedName).getStatus());
+            return null;
+        }, MetadataAccess.SERVICE);
+
+        metadataAccess.commit(() -> {
+            feedProvider.rebuildFeedHealth();
+            return null;
+        }, MetadataAccess.SERVICE);
+
+        metadataAccess.read(() -> {
+            assertHealth(feedProvider.getFeedHealth(feedName), 4, 1, 1, 1, 1);
+            Assert.assertEquals(abandonedJobId, feedProvider.getFeedHealth(feedName).getJobExecutionId());
+            return null;
+        }, MetadataAccess.SERVICE);
+    }
+
+    /**
+     * Verify the jobs of a check data feed are counted against the feed it checks and the check data feed has no health of its own
+     */
+    @Test
+    public void testCheckDataFeed() {
+        String feedName = "health.test_" + UUID.randomUUID().toString().substring(0, 8);
+        String checkFeedName = feedName + "_check";
+        createFeed(feedName);
+        createFeed(checkFeedName);
+        metadataAccess.commit(() -> {
+            JpaOpsManagerFeed checkFeed = (JpaOpsManagerFeed) feedRepository.findByName(checkFeedName);
+            checkFeed.setFeedType(OpsManagerFeed.FeedType.CHECK);
+            ((JpaOpsManagerFeed) feedRepository.findByName(feedName)).getCheckDataFeeds().add(checkFeed);
+            return null;
+        }, MetadataAccess.SERVICE);
+
+        runJob(feedName, true, false);
+        runJob(checkFeedName, true, true);
+
+        metadataAccess.read(() -> {
+            assertHealth(feedProvider.getFeedHealth(feedName), 2, 1, 1, 0, 0);
+            Assert.assertNull(feedProvider.getFeedHealth(checkFeedName));
+            return null;
+        }, MetadataAccess.SERVICE);
+
+        metadataAccess.commit(() -> {
+            feedProvider.rebuildFeedHealth();
+            return null;
+        }, MetadataAccess.SERVICE);
+
+        metadataAccess.read(() -> {
+            assertHealth(feedProvider.getFeedHealth(feedName), 2, 1, 1, 0, 0);
+            Assert.assertNull(feedProvider.getFeedHealth(checkFeedName));
+            return null;
+        }, MetadataAccess.SERVICE);
+    }
+
+    /**
+     * Verify the jobs of several feeds changed in one transaction are all counted when it commits, including repeated changes to the same job
+     */
+    @Test
+    public void testSameTransaction() {
+        String feedName = "health.test_" + UUID.randomUUID().toString().substring(0, 8);
+        String otherFeedName = feedName + "_other";
+        createFeed(feedName);
+        createFeed(otherFeedName);
+
+        String jobFlowFileId = UUID.randomUUID().toString();
+        metadataAccess.commit(() -> {
+            jobExecutionProvider.getOrCreateJobExecution(newEvent(otherFeedName, UUID.randomUUID().toString(), true, false, false));
+            jobExecutionProvider.getOrCreateJobExecution(newEvent(feedName, jobFlowFileId, true, false, false));
+            jobExecutionProvider.getOrCreateJobExecution(newEvent(feedName, UUID.randomUUID().toString(), true, false, false));
+            return jobExecutionProvider.getOrCreateJobExecution(newEvent(feedName, jobFlowFileId, false, true, false));
+        }, MetadataAccess.SERVICE);
+
+        metadataAccess.read(() -> {
+            assertHealth(feedProvider.getFeedHealth(feedName), 2, 1, 0, 0, 1);
+            assertHealth(feedProvider.getFeedHealth(otherFeedName), 1, 0, 0, 0, 1);
+            return null;
+        }, MetadataAccess.SERVICE);
+    }
+
+    private void createFeed(String feedName) {
+        metadataAccess.commit(() -> feedProvider.save(feedProvider.resolveId(UUID.randomUUID().toString()), feedName), MetadataAccess.SERVICE);
+    }
+
+    /**
+     * Start a job and optionally finish it, each in its own transaction
+     *
+     * @return the job execution id
+     */
+    private Long runJob(String feedName, boolean finish, boolean failed) {
+        String jobFlowFileId = UUID.randomUUID().toString();
+        BatchJobExecution jobExecution = metadataAccess.commit(() -> jobExecutionProvider.getOrCreateJobExecution(newEvent(feedName, jobFlowFileId, true, false, false)),
+                                                               MetadataAccess.SERVICE);
+        if (finish) {
+            metadataAccess.commit(() -> jobExecutionProvider.getOrCreateJobExecution(newEvent(feedName, jobFlowFileId, false, true, failed)), MetadataAccess.SERVICE);
+        }
+        return jobExecution.getJobExecutionId();
+    }
+
+    private void assertHealth(FeedHealth feedHealth, long all, long completed, long failed, long abandoned, long running) {
+        Assert.assertNotNull(feedHealth);
+        Assert.assertEquals(Long.valueOf(all), feedHealth.getAllCount());
+        Assert.assertEquals(Long.valueOf(completed), feedHealth.getCompletedCount());
+        Assert.assertEquals(Long.valueOf(failed), feedHealth.getFailedCount());
+        Assert.assertEquals(Long.valueOf(abandoned), feedHealth.getAbandonedCount());
+        Assert.assertEquals(Long.valueOf(running), feedHealth.getRunningCount());
+    }
+
+    private ProvenanceEventRecordDTO newEvent(String feedName, String jobFlowFileId, boolean startOfJob, boolean endOfJob, boolean failed) {
+        ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+        event.setEventId(eventIds.incrementAndGet());
+        event.setFeedName(feedName);
+        event.setJobFlowFileId(jobFlowFileId);
+        event.setFlowFileUuid(startOfJob ? jobFlowFileId : UUID.randomUUID().toString());
+        event.setEventTime(DateTime.now());
+        event.setComponentId(UUID.randomUUID().toString());
+        event.setIsBatchJob(true);
+        event.setIsStartOfJob(startOfJob);
+        event.setIsEndOfJob(endOfJob);
+        event.setHasFailedEvents(failed);
+        return event;
+    }
+}
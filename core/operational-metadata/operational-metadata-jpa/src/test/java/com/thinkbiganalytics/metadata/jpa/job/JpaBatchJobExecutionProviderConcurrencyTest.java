@@ -0,0 +1,142 @@
+package com.thinkbiganalytics.metadata.jpa.job;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecutionProvider;
+import com.thinkbiganalytics.metadata.config.OperationalMetadataConfig;
+import com.thinkbiganalytics.metadata.jpa.TestJpaConfiguration;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.BatchJobExecutionRepository;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.JpaBatchJobExecution;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.job.QJpaBatchJobInstance;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+import com.thinkbiganalytics.spring.CommonsSpringConfiguration;
+
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+
+/**
+ * Replays interleaved events for many jobs from multiple threads, as the JMS listeners do, and ensures a single job execution is created for each job flow file
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@TestPropertySource(locations = "classpath:test-application.properties")
+@SpringApplicationConfiguration(classes = {CommonsSpringConfiguration.class, OperationalMetadataConfig.class, TestJpaConfiguration.class})
+public class JpaBatchJobExecutionProviderConcurrencyTest {
+
+    private static final int JOBS = 2000;
+
+    private static final int EVENTS_PER_JOB = 4;
+
+    private static final int THREADS = 8;
+
+    @Inject
+    private BatchJobExecutionProvider jobExecutionProvider;
+
+    @Inject
+    private BatchJobExecutionRepository jobExecutionRepository;
+
+    @Inject
+    private JPAQueryFactory factory;
+
+    @Inject
+    private MetadataAccess operationalMetadataAccess;
+
+    @Test
+    public void testSingleJobExecutionPerFlowFile() throws Exception {
+        String feedName = "concurrency.test_" + UUID.randomUUID().toString().substring(0, 8);
+        AtomicLong eventIds = new AtomicLong();
+        Set<String> jobFlowFileIds = new HashSet<>();
+        List<ProvenanceEventRecordDTO> events = new ArrayList<>();
+        for (int job = 0; job < JOBS; job++) {
+            String jobFlowFileId = UUID.randomUUID().toString();
+            jobFlowFileIds.add(jobFlowFileId);
+            for (int i = 0; i < EVENTS_PER_JOB; i++) {
+                events.add(newEvent(feedName, jobFlowFileId, eventIds.incrementAndGet(), i == 0));
+            }
+        }
+        //interleave the events for all of the jobs
+        Collections.shuffle(events, new Random(42));
+
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (ProvenanceEventRecordDTO event : events) {
+            executor.submit(() -> {
+                try {
+                    operationalMetadataAccess.commit(() -> jobExecutionProvider.getOrCreateJobExecution(event), MetadataAccess.SERVICE);
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+        }
+        executor.shutdown();
+        Assert.assertTrue("Timed out processing events", executor.awaitTermination(10, TimeUnit.MINUTES));
+        Assert.assertTrue("Failed to process " + failures.size() + " events. " + failures.peek(), failures.isEmpty());
+
+        operationalMetadataAccess.read(() -> {
+            List<JpaBatchJobExecution> jobExecutions = jobExecutionRepository.findByFlowFiles(jobFlowFileIds);
+            Assert.assertEquals(JOBS, jobExecutions.size());
+            Set<Long> jobExecutionIds = jobExecutions.stream().map(JpaBatchJobExecution::getJobExecutionId).collect(Collectors.toSet());
+            Assert.assertEquals(JOBS, jobExecutionIds.size());
+
+            //no orphaned job instances were created by threads racing to create the same job
+            QJpaBatchJobInstance jobInstance = QJpaBatchJobInstance.jpaBatchJobInstance;
+            long jobInstances = factory.selectFrom(jobInstance).where(jobInstance.jobName.eq(feedName)).fetchCount();
+            Assert.assertEquals(JOBS, jobInstances);
+            return null;
+        }, MetadataAccess.SERVICE);
+    }
+
+    private ProvenanceEventRecordDTO newEvent(String feedName, String jobFlowFileId, Long eventId, boolean startOfJob) {
+        ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+        event.setEventId(eventId);
+        event.setFeedName(feedName);
+        event.setJobFlowFileId(jobFlowFileId);
+        event.setFlowFileUuid(startOfJob ? jobFlowFileId : UUID.randomUUID().toString());
+        event.setEventTime(DateTime.now());
+        event.setComponentId(UUID.randomUUID().toString());
+        event.setIsBatchJob(true);
+        event.setIsStartOfJob(startOfJob);
+        return event;
+    }
+}
@@ -0,0 +1,125 @@
+package com.thinkbiganalytics.metadata.jpa.nifi;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-jpa
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiFeedProcessorStatisticsProvider;
+import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiFeedProcessorStats;
+import com.thinkbiganalytics.metadata.config.OperationalMetadataConfig;
+import com.thinkbiganalytics.metadata.jpa.TestJpaConfiguration;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.JpaNifiFeedProcessorStats;
+import com.thinkbiganalytics.spring.CommonsSpringConfiguration;
+
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.List;
+import java.util.UUID;
+
+import javax.inject.Inject;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@TestPropertySource(locations = "classpath:test-application.properties")
+@SpringApplicationConfiguration(classes = {CommonsSpringConfiguration.class, OperationalMetadataConfig.class, TestJpaConfiguration.class})
+public class NifiFeedProcessorStatisticsProviderTest {
+
+    @Inject
+    private NifiFeedProcessorStatisticsProvider statisticsProvider;
+
+    @Inject
+    private MetadataAccess metadataAccess;
+
+    /**
+     * Verify the stats read from the rollups and the raw stats add up to the stats that were created.
+     */
+    @Test
+    public void testRollups() {
+        String feedName = "rollupCategory." + UUID.randomUUID().toString();
+        DateTime end = DateTime.now();
+
+        metadataAccess.commit(() -> {
+            statisticsProvider.create(newStats(feedName, end.minusHours(3)));
+            statisticsProvider.create(newStats(feedName, end.minusMinutes(90)));
+            statisticsProvider.create(newStats(feedName, end.minusMinutes(2)));
+            return null;
+        });
+
+        metadataAccess.read(() -> {
+            List<? extends NifiFeedProcessorStats> byProcessor = statisticsProvider.findFeedProcessorStatisticsByProcessorId(feedName, end.minusDays(1), end);
+            Assert.assertEquals(1, byProcessor.size());
+            Assert.assertEquals(Long.valueOf(3), byProcessor.get(0).getTotalCount());
+            Assert.assertEquals(Long.valueOf(30), byProcessor.get(0).getBytesIn());
+
+            List<? extends NifiFeedProcessorStats> byTime = statisticsProvider.findForFeedStatisticsGroupedByTime(feedName, end.minusDays(1), end);
+            Assert.assertEquals(3, byTime.size());
+            Assert.assertEquals(30L, byTime.stream().mapToLong(NifiFeedProcessorStats::getBytesIn).sum());
+            return null;
+        });
+
+        long deleted = metadataAccess.commit(() -> statisticsProvider.deleteStatisticsBefore(end.minusHours(1)));
+        Assert.assertTrue(deleted >= 2);
+
+        metadataAccess.read(() -> {
+            List<? extends NifiFeedProcessorStats> byProcessor = statisticsProvider.findFeedProcessorStatisticsByProcessorId(feedName, end.minusDays(1), end);
+            Assert.assertEquals(Long.valueOf(3), byProcessor.get(0).getTotalCount());
+            return null;
+        });
+    }
+
+    /**
+     * Verify stats grouped by time are read from the hour rollups once the minute rollups have been deleted.
+     */
+    @Test
+    public void testGroupedByTimeAfterMinuteRetention() {
+        String feedName = "rollupCategory." + UUID.randomUUID().toString();
+        DateTime end = DateTime.now().minusDays(20);
+
+        metadataAccess.commit(() -> {
+            statisticsProvider.create(newStats(feedName, end.minusHours(2)));
+            statisticsProvider.create(newStats(feedName, end.minusMinutes(30)));
+            return null;
+        });
+        metadataAccess.commit(() -> statisticsProvider.deleteRollupsBefore(NifiFeedProcessorStatisticsProvider.RollupInterval.MINUTE, end.plusDays(1)));
+
+        metadataAccess.read(() -> {
+            List<? extends NifiFeedProcessorStats> byTime = statisticsProvider.findForFeedStatisticsGroupedByTime(feedName, end.minusHours(3), end);
+            Assert.assertFalse(byTime.isEmpty());
+            Assert.assertEquals(20L, byTime.stream().mapToLong(NifiFeedProcessorStats::getBytesIn).sum());
+            return null;
+        });
+    }
+
+    private NifiFeedProcessorStats newStats(String feedName, DateTime time) {
+        NifiFeedProcessorStats stats = new JpaNifiFeedProcessorStats(feedName, "processor1");
+        stats.setProcessorName("Processor 1");
+        stats.setMinEventTime(time);
+        stats.setMaxEventTime(time);
+        stats.setCollectionTime(time);
+        stats.setTotalCount(1L);
+        stats.setBytesIn(10L);
+        return stats;
+    }
+}
@@ -21,6 +21,7 @@ package com.thinkbiganalytics.metadata.sla.spi;
  */
 
 import com.thinkbiganalytics.metadata.sla.api.ServiceLevelAgreement;
+import com.thinkbiganalytics.metadata.sla.api.ServiceLevelAssessment;
 
 /**
  */
@@ -30,4 +31,12 @@ public interface ServiceLevelAgreementChecker {
 
     void checkAgreement(ServiceLevelAgreement agreement);
 
+    /**
+     * Checks the agreement, generating an alert if it is violated, and returns the resulting assessment.
+     *
+     * @param agreement the agreement to check
+     * @return the assessment, or {@code null} if the agreement could not be assessed
+     */
+    ServiceLevelAssessment assessAgreement(ServiceLevelAgreement agreement);
+
 }
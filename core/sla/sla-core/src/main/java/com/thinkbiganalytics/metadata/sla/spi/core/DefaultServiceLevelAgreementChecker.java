@@ -94,13 +94,21 @@ public class DefaultServiceLevelAgreementChecker implements ServiceLevelAgreemen
      * Check the Agreement. Caller needs to wrap this in MetadataAccesss transcation
      */
     public void checkAgreement(ServiceLevelAgreement agreement) {
+        assessAgreement(agreement);
+    }
+
+    /**
+     * Check the Agreement and return its assessment. Caller needs to wrap this in MetadataAccesss transcation
+     */
+    public ServiceLevelAssessment assessAgreement(ServiceLevelAgreement agreement) {
+        ServiceLevelAssessment assessment = null;
         if (agreement != null) {
             Alert newAlert = null;
             if (isAssessable(agreement)) {
                 LOG.info("Assessing SLA  : " + agreement.getName());
 
                 try {
-                    ServiceLevelAssessment assessment = assessor.assess(agreement);
+                    assessment = assessor.assess(agreement);
 
                     if (shouldAlert(agreement, assessment)) {
                         newAlert = alertManager.create(AssessmentAlerts.VIOLATION_ALERT_TYPE,
@@ -119,8 +127,7 @@ public class DefaultServiceLevelAgreementChecker implements ServiceLevelAgreemen
                 LOG.info("SLA assessment failed: {} - generated alert: {}", agreement.getName(), newAlert.getId());
             }
         }
-
-
+        return assessment;
     }
 
 
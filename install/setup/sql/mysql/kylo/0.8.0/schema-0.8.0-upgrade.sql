@@ -0,0 +1,74 @@
+use kylo;
+
+CREATE TABLE IF NOT EXISTS `NIFI_FEED_PROCESSOR_STATS_ROLLUP` (
+  `ROLLUP_INTERVAL` varchar(10) NOT NULL,
+  `BUCKET_TIME` timestamp NOT NULL DEFAULT '1970-01-01 00:00:01',
+  `FM_FEED_NAME` varchar(255) NOT NULL,
+  `NIFI_PROCESSOR_ID` varchar(45) NOT NULL,
+  `PROCESSOR_NAME` varchar(255) DEFAULT NULL,
+  `NIFI_FEED_PROCESS_GROUP_ID` varchar(45) DEFAULT NULL,
+  `MIN_EVENT_TIME` timestamp NULL DEFAULT NULL,
+  `MAX_EVENT_TIME` timestamp NULL DEFAULT NULL,
+  `DURATION_MILLIS` bigint(20) DEFAULT NULL,
+  `BYTES_IN` bigint(20) DEFAULT NULL,
+  `BYTES_OUT` bigint(20) DEFAULT NULL,
+  `TOTAL_EVENTS` bigint(20) DEFAULT NULL,
+  `JOBS_STARTED` bigint(20) DEFAULT NULL,
+  `JOBS_FINISHED` bigint(20) DEFAULT NULL,
+  `JOBS_FAILED` bigint(20) DEFAULT NULL,
+  `JOB_DURATION` bigint(20) DEFAULT NULL,
+  `SUCCESSFUL_JOB_DURATION` bigint(20) DEFAULT NULL,
+  `PROCESSORS_FAILED` bigint(20) DEFAULT NULL,
+  `FLOW_FILES_STARTED` bigint(20) DEFAULT NULL,
+  `FLOW_FILES_FINISHED` bigint(20) DEFAULT NULL,
+  `STATS_COUNT` bigint(20) DEFAULT NULL,
+  PRIMARY KEY (`ROLLUP_INTERVAL`, `BUCKET_TIME`, `FM_FEED_NAME`, `NIFI_PROCESSOR_ID`),
+  KEY `NIFI_FEED_PROC_STATS_ROLLUP_IDX1` (`FM_FEED_NAME`, `ROLLUP_INTERVAL`, `BUCKET_TIME`)
+) ENGINE=InnoDB;
+
+-- roll up the existing statistics by the bucket of their min event time
+INSERT IGNORE INTO `NIFI_FEED_PROCESSOR_STATS_ROLLUP`
+SELECT b.ROLLUP_INTERVAL, b.BUCKET_TIME, b.FM_FEED_NAME, b.NIFI_PROCESSOR_ID, max(b.PROCESSOR_NAME), max(b.NIFI_FEED_PROCESS_GROUP_ID),
+       min(b.MIN_EVENT_TIME), max(b.MAX_EVENT_TIME), sum(b.DURATION_MILLIS), sum(b.BYTES_IN), sum(b.BYTES_OUT), sum(b.TOTAL_EVENTS),
+       sum(b.JOBS_STARTED), sum(b.JOBS_FINISHED), sum(b.JOBS_FAILED), sum(b.JOB_DURATION), sum(b.SUCCESSFUL_JOB_DURATION), sum(b.PROCESSORS_FAILED),
+       sum(b.FLOW_FILES_STARTED), sum(b.FLOW_FILES_FINISHED), count(*)
+FROM (
+  SELECT i.ROLLUP_INTERVAL,
+         FROM_UNIXTIME(FLOOR(UNIX_TIMESTAMP(s.MIN_EVENT_TIME) / i.SECS) * i.SECS) AS BUCKET_TIME,
+         s.*
+  FROM NIFI_FEED_PROCESSOR_STATS s
+  JOIN (SELECT 'MINUTE' AS ROLLUP_INTERVAL, 60 AS SECS
+        UNION ALL SELECT 'HOUR', 3600
+        UNION ALL SELECT 'DAY', 86400) i
+  WHERE s.MIN_EVENT_TIME IS NOT NULL AND s.NIFI_PROCESSOR_ID IS NOT NULL
+) b
+GROUP BY b.ROLLUP_INTERVAL, b.BUCKET_TIME, b.FM_FEED_NAME, b.NIFI_PROCESSOR_ID;
+
+CREATE TABLE IF NOT EXISTS `FEED_HEALTH` (
+  `FEED_ID` binary(16) NOT NULL,
+  `FEED_NAME` varchar(100) DEFAULT NULL,
+  `JOB_EXECUTION_ID` bigint(20) DEFAULT NULL,
+  `JOB_INSTANCE_ID` bigint(20) DEFAULT NULL,
+  `START_TIME` bigint(20) DEFAULT NULL,
+  `END_TIME` bigint(20) DEFAULT NULL,
+  `STATUS` varchar(10) NOT NULL,
+  `EXIT_CODE` varchar(2500) DEFAULT NULL,
+  `EXIT_MESSAGE` varchar(2500) DEFAULT NULL,
+  `ALL_COUNT` bigint(20) NOT NULL DEFAULT 0,
+  `FAILED_COUNT` bigint(20) NOT NULL DEFAULT 0,
+  `COMPLETED_COUNT` bigint(20) NOT NULL DEFAULT 0,
+  `ABANDONED_COUNT` bigint(20) NOT NULL DEFAULT 0,
+  `RUNNING_COUNT` bigint(20) NOT NULL DEFAULT 0,
+  PRIMARY KEY (`FEED_ID`),
+  KEY `FEED_HEALTH_IDX1` (`FEED_NAME`)
+) ENGINE=InnoDB;
+
+-- populate the health of the existing feeds from the views it replaces.  The latest job of every feed is kept, the health endpoints only show feeds with counted jobs.
+INSERT IGNORE INTO `FEED_HEALTH` (FEED_ID, FEED_NAME, JOB_EXECUTION_ID, JOB_INSTANCE_ID, START_TIME, END_TIME, STATUS, EXIT_CODE, EXIT_MESSAGE,
+                                  ALL_COUNT, FAILED_COUNT, COMPLETED_COUNT, ABANDONED_COUNT, RUNNING_COUNT)
+SELECT f.ID, f.NAME, e.JOB_EXECUTION_ID, e.JOB_INSTANCE_ID, e.START_TIME, e.END_TIME, COALESCE(e.STATUS, 'UNKNOWN'), COALESCE(e.EXIT_CODE, 'UNKNOWN'), e.EXIT_MESSAGE,
+       COALESCE(s.ALL_COUNT, 0), COALESCE(s.FAILED_COUNT, 0), COALESCE(s.COMPLETED_COUNT, 0), COALESCE(s.ABANDONED_COUNT, 0), COALESCE(s.RUNNING_COUNT, 0)
+FROM FEED f
+LEFT JOIN BATCH_FEED_SUMMARY_COUNTS_VW s on s.FEED_ID = f.ID
+LEFT JOIN LATEST_FEED_JOB_VW l on l.FEED_ID = f.ID
+LEFT JOIN BATCH_JOB_EXECUTION e on e.JOB_EXECUTION_ID = l.JOB_EXECUTION_ID;
@@ -27,12 +27,19 @@ import org.joda.time.DateTimeUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 
 /**
  * Provides support for incremental
@@ -45,10 +52,21 @@ public class GetTableDataSupport {
 
     private int timeout;
 
+    /**
+     * Number of rows fetched per round trip, or zero for the driver default
+     */
+    private int fetchSize;
+
     public GetTableDataSupport(Connection conn, int timeout) {
+        this(conn, timeout, 0);
+    }
+
+    public GetTableDataSupport(Connection conn, int timeout, int fetchSize) {
         Validate.notNull(conn);
+        Validate.isTrue(fetchSize >= 0, "fetchSize must not be negative");
         this.conn = conn;
         this.timeout = timeout;
+        this.fetchSize = fetchSize;
     }
 
     protected static Date maxAllowableDateFromUnit(Date fromDate, UnitSizes unit) {
@@ -68,26 +86,135 @@ public class GetTableDataSupport {
         return fromDate;
     }
 
+    /**
+     * Splits the values between {@code min} and {@code max} (inclusive) into at most {@code partitionCount} contiguous ranges of about the same width.
+     * The first range also selects the rows where the column is null and the last range is open ended, so together the ranges always cover the whole table.
+     *
+     * @param partitionColumn the column to split on
+     * @param min             the smallest value of the column, or {@code null} if the table has no values
+     * @param max             the largest value of the column, or {@code null} if the table has no values
+     * @param partitionCount  the maximum number of ranges
+     * @param temporal        {@code true} if the values are epoch milliseconds of a date column
+     * @return the ranges
+     */
+    protected static List<PartitionRange> partitionRanges(String partitionColumn, Long min, Long max, int partitionCount, boolean temporal) {
+        Validate.isTrue(partitionCount > 0, "partitionCount must be positive");
+        if (min == null || max == null || partitionCount == 1 || min >= max) {
+            return Collections.singletonList(new PartitionRange(partitionColumn, 0, 1, null, null, temporal));
+        }
+
+        final BigInteger lower = BigInteger.valueOf(min);
+        final BigInteger span = BigInteger.valueOf(max).subtract(lower).add(BigInteger.ONE);
+        final int count = span.compareTo(BigInteger.valueOf(partitionCount)) < 0 ? span.intValue() : partitionCount;
+
+        final List<PartitionRange> ranges = new ArrayList<>(count);
+        Long from = null;
+        for (int i = 1; i <= count; i++) {
+            final Long to = (i == count) ? null : lower.add(span.multiply(BigInteger.valueOf(i)).divide(BigInteger.valueOf(count))).longValue();
+            ranges.add(new PartitionRange(partitionColumn, i - 1, count, from, to, temporal));
+            from = to;
+        }
+        return ranges;
+    }
+
+    /**
+     * Converts a MIN or MAX value of the partition column to a long, rounding in the specified direction for decimal values.
+     */
+    private static Long toPartitionBound(Object value, RoundingMode roundingMode) {
+        if (value == null) {
+            return null;
+        } else if (value instanceof Date) {
+            return ((Date) value).getTime();
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        } else if (value instanceof Number) {
+            return new BigDecimal(value.toString()).setScale(0, roundingMode).longValue();
+        } else {
+            throw new IllegalArgumentException("Unable to partition on a column of type " + value.getClass().getName() + ". The partition column must be numeric or a date.");
+        }
+    }
+
     private String selectStatement(String[] selectFields) {
         return StringUtils.join(selectFields, ",");
     }
 
+    private void configure(Statement st) throws SQLException {
+        st.setQueryTimeout(timeout);
+        if (fetchSize > 0) {
+            st.setFetchSize(fetchSize);
+        }
+    }
+
     /**
      * Performs a full extract of the data for the specified table
      */
     public ResultSet selectFullLoad(String tableName, String[] selectFields) throws SQLException {
         final Statement st = conn.createStatement();
-        st.setQueryTimeout(timeout);
+        configure(st);
         String select = selectStatement(selectFields);
         StringBuffer sb = new StringBuffer();
         sb.append("SELECT ").append(select).append(" FROM ").append(tableName);
 
         logger.info("Executing full GetTableData query {}", sb.toString());
-        st.setQueryTimeout(timeout);
 
         return st.executeQuery(sb.toString());
     }
 
+    /**
+     * Queries the smallest and largest values of the partition column and splits them into ranges for {@link #selectPartition(String, String[], PartitionRange)}.
+     *
+     * @param tableName       the table
+     * @param partitionColumn a numeric or date column
+     * @param partitionCount  the maximum number of ranges
+     * @return the ranges covering every row of the table
+     */
+    public List<PartitionRange> selectPartitionRanges(String tableName, String partitionColumn, int partitionCount) throws SQLException {
+        if (partitionCount == 1) {
+            return partitionRanges(partitionColumn, null, null, 1, false);
+        }
+
+        final String sql = "SELECT MIN(" + partitionColumn + "), MAX(" + partitionColumn + ") FROM " + tableName;
+        logger.info("Executing GetTableData partition bounds query {}", sql);
+
+        try (final Statement st = conn.createStatement()) {
+            st.setQueryTimeout(timeout);
+            try (final ResultSet rs = st.executeQuery(sql)) {
+                if (!rs.next()) {
+                    return partitionRanges(partitionColumn, null, null, 1, false);
+                }
+                final Object min = rs.getObject(1);
+                final Object max = rs.getObject(2);
+                final List<PartitionRange> ranges = partitionRanges(partitionColumn, toPartitionBound(min, RoundingMode.FLOOR), toPartitionBound(max, RoundingMode.CEILING), partitionCount,
+                                                                    min instanceof Date);
+                logger.info("Partitioning {} on {} with min {} max {} into {} ranges", tableName, partitionColumn, min, max, ranges.size());
+                return ranges;
+            }
+        }
+    }
+
+    /**
+     * Performs an extract of the rows of the specified table within the range.
+     *
+     * @param tableName    the table
+     * @param selectFields the fields to select
+     * @param range        the range of the partition column to select
+     */
+    public ResultSet selectPartition(String tableName, String[] selectFields, PartitionRange range) throws SQLException {
+        if (range.isUnbounded()) {
+            return selectFullLoad(tableName, selectFields);
+        }
+
+        StringBuffer sb = new StringBuffer();
+        sb.append("SELECT ").append(selectStatement(selectFields)).append(" FROM ").append(tableName).append(" WHERE ").append(range.getCondition());
+
+        final PreparedStatement ps = conn.prepareStatement(sb.toString());
+        configure(ps);
+        range.setParameters(ps);
+
+        logger.info("Executing partitioned GetTableData query {} for {}", sb.toString(), range);
+        return ps.executeQuery();
+    }
+
     /**
      * Provides an incremental select based on a date field and last status. The overlap time will be subtracted from
      * the last load date. This will cause duplicate records but also pickup records that were missed on the last scan
@@ -114,7 +241,7 @@ public class GetTableDataSupport {
 
         if (range.getMinDate().before(range.getMaxDate())) {
             PreparedStatement ps = conn.prepareStatement(sb.toString());
-            ps.setQueryTimeout(timeout);
+            configure(ps);
             ps.setTimestamp(1, new java.sql.Timestamp(range.getMinDate().getTime()));
             ps.setTimestamp(2, new java.sql.Timestamp(range.getMaxDate().getTime()));
 
@@ -178,5 +305,96 @@ public class GetTableDataSupport {
 
     }
 
+    /**
+     * A contiguous range of values of the partition column.  The lower bound is inclusive and the upper bound is exclusive.  A missing lower bound
+     * also includes the rows where the column is null, and a missing upper bound includes every value above the lower bound.
+     */
+    public static class PartitionRange {
+
+        private final String column;
+        private final int index;
+        private final int count;
+        private final Long lowerBound;
+        private final Long upperBound;
+        private final boolean temporal;
+
+        public PartitionRange(String column, int index, int count, Long lowerBound, Long upperBound, boolean temporal) {
+            this.column = column;
+            this.index = index;
+            this.count = count;
+            this.lowerBound = lowerBound;
+            this.upperBound = upperBound;
+            this.temporal = temporal;
+        }
+
+        /**
+         * Index of this range starting at zero
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Total number of ranges the table was split into
+         */
+        public int getCount() {
+            return count;
+        }
+
+        public Long getLowerBound() {
+            return lowerBound;
+        }
+
+        public Long getUpperBound() {
+            return upperBound;
+        }
+
+        /**
+         * Indicates that this range selects the whole table
+         */
+        public boolean isUnbounded() {
+            return lowerBound == null && upperBound == null;
+        }
+
+        /**
+         * Gets the WHERE condition selecting this range, with a parameter for each bound
+         */
+        public String getCondition() {
+            if (lowerBound == null) {
+                return "(" + column + " < ? OR " + column + " IS NULL)";
+            } else if (upperBound == null) {
+                return column + " >= ?";
+            } else {
+                return column + " >= ? AND " + column + " < ?";
+            }
+        }
+
+        /**
+         * Binds the bounds to the parameters of the {@link #getCondition()}
+         */
+        public void setParameters(PreparedStatement ps) throws SQLException {
+            int parameter = 1;
+            if (lowerBound != null) {
+                setParameter(ps, parameter++, lowerBound);
+            }
+            if (upperBound != null) {
+                setParameter(ps, parameter, upperBound);
+            }
+        }
+
+        private void setParameter(PreparedStatement ps, int parameter, long value) throws SQLException {
+            if (temporal) {
+                ps.setTimestamp(parameter, new Timestamp(value));
+            } else {
+                ps.setLong(parameter, value);
+            }
+        }
+
+        public String toString() {
+            return "partition " + (index + 1) + " of " + count + " (" + (lowerBound == null ? "" : column + " >= " + lowerBound) + (lowerBound != null && upperBound != null ? ", " : "")
+                   + (upperBound == null ? "" : column + " < " + upperBound) + ")";
+        }
+    }
+
 
 }
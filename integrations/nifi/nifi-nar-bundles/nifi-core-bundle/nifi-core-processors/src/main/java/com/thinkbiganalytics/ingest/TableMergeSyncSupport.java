@@ -31,6 +31,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Serializable;
+import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -251,6 +252,128 @@ public class TableMergeSyncSupport implements Serializable {
         doExecuteSQL(sql);
     }
 
+    /**
+     * Updates any rows matching the same primary key, otherwise inserts the value into the appropriate partition. Rewrites less of the target table
+     * than {@link #doPKMerge(String, String, String, String, PartitionSpec, String, ColumnSpec[])}.
+     *
+     * <p>A pre-pass over the new rows finds the range of the first primary key column. Only target rows within that range are joined against the
+     * new rows, and only the partitions that contain matching keys or receive new rows are rewritten. If no keys match then the new rows are
+     * appended without rewriting the target, and transactional targets are updated in place with a Hive ACID {@code MERGE}.</p>
+     *
+     * <p>The merged rows differ from {@code doPKMerge} when every row of an existing partition is replaced by a new row in another partition:
+     * {@code doPKMerge} leaves the old rows in that partition, while this method empties it. In addition, a {@code MERGE} allows only one new row
+     * per primary key, so for transactional targets the new rows are first reduced to one row for each non-null key.</p>
+     *
+     * @param sourceSchema       the schema or database name of the source table
+     * @param sourceTable        the source table name
+     * @param targetSchema       the schema or database name of the target table
+     * @param targetTable        the target table name
+     * @param partitionSpec      the partition specification
+     * @param feedPartitionValue the source processing partition value
+     * @param columnSpecs        the columns to join on
+     */
+    public void doPrunedPKMerge(@Nonnull final String sourceSchema, @Nonnull final String sourceTable, @Nonnull final String targetSchema, @Nonnull final String targetTable,
+                                @Nonnull final PartitionSpec partitionSpec, @Nonnull final String feedPartitionValue, @Nonnull final ColumnSpec[] columnSpecs) {
+        // Validate input parameters
+        Validate.notEmpty(sourceSchema);
+        Validate.notEmpty(sourceTable);
+        Validate.notEmpty(targetSchema);
+        Validate.notEmpty(targetTable);
+        Validate.notNull(partitionSpec);
+        Validate.notNull(feedPartitionValue);
+        Validate.notEmpty(columnSpecs);
+
+        final KeyRange keyRange = selectKeyRange(sourceSchema, sourceTable, targetSchema, targetTable, feedPartitionValue, columnSpecs);
+        if (keyRange.isEmpty()) {
+            logger.info("No rows to merge from {} for processing_dttm {}", sourceTable, feedPartitionValue);
+            return;
+        }
+
+        final String[] selectFields = getSelectFields(sourceSchema, sourceTable, targetSchema, targetTable, partitionSpec);
+        if (isTransactional(targetSchema, targetTable)) {
+            final List<String> targetFields = resolveTableSchema(targetSchema, targetTable);
+            targetFields.removeAll(partitionSpec.getKeyNames());
+            for (final String sql : generateAcidPKMergeQueries(selectFields, targetFields, partitionSpec, sourceSchema, sourceTable, targetSchema, targetTable, feedPartitionValue, columnSpecs,
+                                                               keyRange)) {
+                doExecuteSQL(sql);
+            }
+            return;
+        }
+
+        final String joinOnClause = ColumnSpec.toPrimaryKeyJoinSQL(columnSpecs, "a", "b");
+        final String sql;
+        if (partitionSpec.isNonPartitioned()) {
+            if (countMatchingKeys(sourceSchema, sourceTable, targetSchema, targetTable, feedPartitionValue, columnSpecs, keyRange) == 0) {
+                sql = generateMergeNonPartitionQuery(selectFields, sourceSchema, sourceTable, targetSchema, targetTable, feedPartitionValue);
+            } else {
+                sql = generatePrunedPKMergeNonPartitionQuery(selectFields, sourceSchema, sourceTable, targetSchema, targetTable, feedPartitionValue, columnSpecs, keyRange);
+            }
+        } else {
+            final List<PartitionBatch> matchingBatches = createPartitionBatchesforPKMerge(partitionSpec, sourceSchema, sourceTable, targetSchema, targetTable, feedPartitionValue, joinOnClause,
+                                                                                          keyRange.toInRangeSQL("a"));
+            if (matchingBatches.isEmpty()) {
+                sql = generateMergeWithPartitionQuery(selectFields, partitionSpec, sourceSchema, sourceTable, targetSchema, targetTable, feedPartitionValue);
+            } else {
+                // Partitions receiving new rows are overwritten too so they must keep their existing rows
+                final List<PartitionBatch> newRowBatches = createPartitionBatches(partitionSpec, sourceSchema, sourceTable, feedPartitionValue);
+                final List<PartitionBatch> batches = new Vector<>(matchingBatches);
+                final List<PartitionBatch> movedBatches = new Vector<>();
+                for (final PartitionBatch batch : matchingBatches) {
+                    if (newRowBatches.stream().noneMatch(newRows -> newRows.getBatchDescription().equals(batch.getBatchDescription()))) {
+                        movedBatches.add(batch);
+                    }
+                }
+                for (final PartitionBatch batch : newRowBatches) {
+                    if (batches.stream().noneMatch(existing -> existing.getBatchDescription().equals(batch.getBatchDescription()))) {
+                        batches.add(batch);
+                    }
+                }
+                doExecuteSQL(generatePrunedPKMergePartitionQuery(selectFields, partitionSpec, batches, sourceSchema, sourceTable, targetSchema, targetTable, feedPartitionValue, columnSpecs,
+                                                                 keyRange));
+                if (!movedBatches.isEmpty()) {
+                    clearMovedPartitions(partitionSpec, movedBatches, sourceSchema, sourceTable, targetSchema, targetTable, feedPartitionValue, joinOnClause, keyRange);
+                }
+                return;
+            }
+        }
+        doExecuteSQL(sql);
+    }
+
+    /**
+     * Empties the partitions whose rows all moved to other partitions. The pruned merge overwrites only the partitions produced by its query, so a
+     * partition left with no rows keeps its previous contents.
+     *
+     * @param partitionSpec      partition specification
+     * @param movedBatches       the partitions with matching keys that are not receiving new rows
+     * @param sourceSchema       the name of the source table schema or database
+     * @param sourceTable        the source table
+     * @param targetSchema       the name of the target table schema or database
+     * @param targetTable        the target table
+     * @param feedPartitionValue the partition of the source table to use
+     * @param joinOnClause       the JOIN clause for the source and target tables
+     * @param keyRange           the range of the primary key in the new rows
+     */
+    private void clearMovedPartitions(@Nonnull final PartitionSpec partitionSpec, @Nonnull final List<PartitionBatch> movedBatches, @Nonnull final String sourceSchema,
+                                      @Nonnull final String sourceTable, @Nonnull final String targetSchema, @Nonnull final String targetTable, @Nonnull final String feedPartitionValue,
+                                      @Nonnull final String joinOnClause, @Nonnull final KeyRange keyRange) {
+        // Any of these partitions still holding a matching key was not overwritten, so every row in it was replaced
+        final String movedWhereClause = targetPartitionsWhereClause(PartitionBatch.toPartitionBatchesForAlias(movedBatches, "a"), false);
+        final List<PartitionBatch> staleBatches = createPartitionBatchesforPKMerge(partitionSpec, sourceSchema, sourceTable, targetSchema, targetTable, feedPartitionValue, joinOnClause,
+                                                                                   "(" + movedWhereClause + ") and " + keyRange.toInRangeSQL("a"));
+        if (staleBatches.isEmpty()) {
+            return;
+        }
+
+        final List<String> targetFields = resolveTableSchema(targetSchema, targetTable);
+        targetFields.removeAll(partitionSpec.getKeyNames());
+        final String selectSQL = targetFields.stream().map(HiveUtils::quoteIdentifier).collect(Collectors.joining(","));
+        for (final PartitionBatch batch : staleBatches) {
+            logger.info("Clearing partition {} of {}.{} as its rows moved to other partitions", batch.getBatchDescription(), targetSchema, targetTable);
+            doExecuteSQL("insert overwrite table " + HiveUtils.quoteIdentifier(targetSchema, targetTable) + " " + batch.getBatchDescription() +
+                         " select " + selectSQL + " from " + HiveUtils.quoteIdentifier(targetSchema, targetTable) + " where 1 = 0");
+        }
+    }
+
     /**
      * Create a new table like the old table with the new location.
      *
@@ -665,6 +788,206 @@ public class TableMergeSyncSupport implements Serializable {
         return sb.toString();
     }
 
+    /**
+     * Generates a query to merge two tables without partitions on a primary key. Target rows outside of the key range of the new rows are copied
+     * without being joined.
+     *
+     * @param selectFields       the list of fields in the select clause of the source table
+     * @param sourceSchema       the name of the source table schema or database
+     * @param sourceTable        the source table
+     * @param targetSchema       the name of the target table schema or database
+     * @param targetTable        the target table
+     * @param feedPartitionValue the partition of the source table to use
+     * @param columnSpecs        the column specifications
+     * @param keyRange           the range of the primary key in the new rows
+     * @return the sql
+     */
+    protected String generatePrunedPKMergeNonPartitionQuery(@Nonnull final String[] selectFields, @Nonnull final String sourceSchema, @Nonnull final String sourceTable,
+                                                            @Nonnull final String targetSchema, @Nonnull final String targetTable, @Nonnull final String feedPartitionValue,
+                                                            @Nonnull final ColumnSpec[] columnSpecs, @Nonnull final KeyRange keyRange) {
+        final String selectSQL = StringUtils.join(selectFields, ",");
+        final String selectSQLWithAlias = StringUtils.join(selectFieldsForAlias(selectFields, "a"), ",");
+        final String joinOnClause = ColumnSpec.toPrimaryKeyJoinSQL(columnSpecs, "a", "b");
+        final String[] primaryKeys = ColumnSpec.toPrimaryKeys(columnSpecs);
+
+        final String sourceKeysQuery = "select " + StringUtils.join(primaryKeys, ",") + " from " + HiveUtils.quoteIdentifier(sourceSchema, sourceTable)
+                                       + " where processing_dttm = " + HiveUtils.quoteString(feedPartitionValue);
+
+        // First finds all records in valid
+        // Second finds all records in target outside of the key range
+        // Third finds all records in target within the key range that are not being replaced
+        return "insert overwrite table " + HiveUtils.quoteIdentifier(targetSchema, targetTable) + " " +
+               "select " + selectSQL + " from (" +
+               "  select " + selectSQL +
+               "  from " + HiveUtils.quoteIdentifier(sourceSchema, sourceTable) + " a" +
+               "  where a.processing_dttm = " + HiveUtils.quoteString(feedPartitionValue) +
+               " union " +
+               "  select " + selectSQLWithAlias +
+               "  from " + HiveUtils.quoteIdentifier(targetSchema, targetTable) + " a" +
+               "  where " + keyRange.toOutOfRangeSQL("a") +
+               " union " +
+               "  select " + selectSQLWithAlias +
+               "  from " + HiveUtils.quoteIdentifier(targetSchema, targetTable) + " a left outer join (" + sourceKeysQuery + ") b " +
+               "  on (" + joinOnClause + ")" +
+               "  where " + keyRange.toInRangeSQL("a") +
+               "  and (b." + primaryKeys[0] + " is null)) t";
+    }
+
+    /**
+     * Generates a query to merge two tables containing partitions on a primary key, overwriting only the specified partitions. Target rows outside of
+     * the key range of the new rows are copied without being joined.
+     *
+     * @param selectFields       the list of fields in the select clause of the source table
+     * @param partitionSpec      partition specification
+     * @param batches            the partitions to overwrite, including every partition receiving new rows
+     * @param sourceSchema       the name of the source table schema or database
+     * @param sourceTable        the source table
+     * @param targetSchema       the name of the target table schema or database
+     * @param targetTable        the target table
+     * @param feedPartitionValue the partition of the source table to use
+     * @param columnSpecs        the column specifications
+     * @param keyRange           the range of the primary key in the new rows
+     * @return the sql
+     */
+    protected String generatePrunedPKMergePartitionQuery(@Nonnull final String[] selectFields, @Nonnull final PartitionSpec partitionSpec, @Nonnull final List<PartitionBatch> batches,
+                                                         @Nonnull final String sourceSchema, @Nonnull final String sourceTable, @Nonnull final String targetSchema,
+                                                         @Nonnull final String targetTable, @Nonnull final String feedPartitionValue, @Nonnull final ColumnSpec[] columnSpecs,
+                                                         @Nonnull final KeyRange keyRange) {
+        Validate.notEmpty(batches);
+        final String selectSQL = StringUtils.join(selectFields, ",");
+        final String selectSQLWithAlias = StringUtils.join(selectFieldsForAlias(selectFields, "a"), ",");
+        final String joinOnClause = ColumnSpec.toPrimaryKeyJoinSQL(columnSpecs, "a", "b");
+        final String[] primaryKeys = ColumnSpec.toPrimaryKeys(columnSpecs);
+        final PartitionSpec partitionSpecWithAlias = partitionSpec.newForAlias("a");
+        final String targetPartitionWhereClause = targetPartitionsWhereClause(PartitionBatch.toPartitionBatchesForAlias(batches, "a"), false);
+
+        final String sourceKeysQuery = "select " + StringUtils.join(primaryKeys, ",") + " from " + HiveUtils.quoteIdentifier(sourceSchema, sourceTable)
+                                       + " where processing_dttm = " + HiveUtils.quoteString(feedPartitionValue);
+
+        // First finds all records in valid
+        // Second finds all records in the impacted partitions outside of the key range
+        // Third finds all records in the impacted partitions within the key range that are not being replaced
+        StringBuilder sb = new StringBuilder();
+        sb.append("insert overwrite table ").append(HiveUtils.quoteIdentifier(targetSchema, targetTable)).append(" ")
+            .append(partitionSpec.toDynamicPartitionSpec())
+            .append(" select ").append(selectSQL).append(",").append(partitionSpec.toPartitionSelectSQL()).append(" from (")
+            .append("  select ").append(selectSQLWithAlias).append(",").append(partitionSpecWithAlias.toDynamicSelectSQLSpec())
+            .append("  from ").append(HiveUtils.quoteIdentifier(sourceSchema, sourceTable)).append(" a")
+            .append("  where a.processing_dttm = ").append(HiveUtils.quoteString(feedPartitionValue))
+            .append(" union all ")
+            .append("  select ").append(selectSQLWithAlias).append(",").append(partitionSpecWithAlias.toPartitionSelectSQL())
+            .append("  from ").append(HiveUtils.quoteIdentifier(targetSchema, targetTable)).append(" a")
+            .append("  where (").append(targetPartitionWhereClause).append(") and ").append(keyRange.toOutOfRangeSQL("a"))
+            .append(" union all ")
+            .append("  select ").append(selectSQLWithAlias).append(",").append(partitionSpecWithAlias.toPartitionSelectSQL())
+            .append("  from ").append(HiveUtils.quoteIdentifier(targetSchema, targetTable)).append(" a left outer join (").append(sourceKeysQuery).append(") b ")
+            .append("  on (").append(joinOnClause).append(")")
+            .append("  where (").append(targetPartitionWhereClause).append(") and ").append(keyRange.toInRangeSQL("a"))
+            .append("  and (b.").append(primaryKeys[0]).append(" is null)")
+            .append(") t");
+
+        return sb.toString();
+    }
+
+    /**
+     * Generates the queries to merge into a transactional table on a primary key using Hive ACID {@code MERGE}. Partition columns cannot be updated, so
+     * matching rows whose partition changes are deleted by the {@code MERGE} and inserted again by a second query.
+     *
+     * <p>A {@code MERGE} fails if more than one new row matches a target row, so the new rows are reduced to one row for each primary key. Rows
+     * with a null key never match and are only inserted by the {@code MERGE}.</p>
+     *
+     * @param selectFields       the list of fields in the select clause of the source table
+     * @param targetFields       the non-partition columns of the target table, in order
+     * @param partitionSpec      partition specification
+     * @param sourceSchema       the name of the source table schema or database
+     * @param sourceTable        the source table
+     * @param targetSchema       the name of the target table schema or database
+     * @param targetTable        the target table
+     * @param feedPartitionValue the partition of the source table to use
+     * @param columnSpecs        the column specifications
+     * @param keyRange           the range of the primary key in the new rows
+     * @return the sql statements
+     */
+    protected List<String> generateAcidPKMergeQueries(@Nonnull final String[] selectFields, @Nonnull final List<String> targetFields, @Nonnull final PartitionSpec partitionSpec,
+                                                      @Nonnull final String sourceSchema, @Nonnull final String sourceTable, @Nonnull final String targetSchema,
+                                                      @Nonnull final String targetTable, @Nonnull final String feedPartitionValue, @Nonnull final ColumnSpec[] columnSpecs,
+                                                      @Nonnull final KeyRange keyRange) {
+        final List<String> selectFieldList = Arrays.asList(selectFields);
+        final List<String> primaryKeys = Arrays.asList(ColumnSpec.toPrimaryKeys(columnSpecs));
+        final String joinOnClause = ColumnSpec.toPrimaryKeyJoinSQL(columnSpecs, "a", "b");
+
+        // Values for every target column in order, followed by the dynamic partition values
+        final List<String> insertValues = targetFields.stream()
+            .map(HiveUtils::quoteIdentifier)
+            .map(field -> selectFieldList.contains(field) ? "`b`." + field : "null")
+            .collect(Collectors.toList());
+        final List<String> partitionKeys = partitionSpec.getKeyNames().isEmpty() ? new Vector<>()
+                                                                                 : Arrays.asList(StringUtils.split(partitionSpec.toPartitionSelectSQL(), ","));
+        partitionKeys.forEach(key -> insertValues.add("`b`." + key));
+
+        final String updateSQL = selectFieldList.stream()
+            .filter(field -> !primaryKeys.contains(field))
+            .map(field -> field + " = `b`." + field)
+            .collect(Collectors.joining(", "));
+
+        final String sourceQuery = generateAcidPKMergeSourceQuery(selectFields, partitionSpec, sourceSchema, sourceTable, feedPartitionValue, columnSpecs);
+
+        final StringBuilder merge = new StringBuilder();
+        merge.append("merge into ").append(HiveUtils.quoteIdentifier(targetSchema, targetTable)).append(" as `a`")
+            .append(" using (").append(sourceQuery).append(") as `b`")
+            .append(" on (").append(joinOnClause).append(")");
+        final String samePartitionSQL = partitionKeys.stream().map(key -> "`a`." + key + " <=> `b`." + key).collect(Collectors.joining(" and "));
+        if (!partitionKeys.isEmpty()) {
+            merge.append(" when matched and not (").append(samePartitionSQL).append(") then delete");
+        }
+        if (!updateSQL.isEmpty()) {
+            merge.append(" when matched then update set ").append(updateSQL);
+        }
+        merge.append(" when not matched then insert values (").append(StringUtils.join(insertValues, ", ")).append(")");
+
+        final List<String> queries = new Vector<>();
+        queries.add(merge.toString());
+
+        if (!partitionKeys.isEmpty()) {
+            // Insert the rows deleted from their previous partition. Rows with a null key were already inserted by the merge.
+            final String targetKeysQuery = "select " + StringUtils.join(primaryKeys, ",") + " from " + HiveUtils.quoteIdentifier(targetSchema, targetTable)
+                                           + " where " + keyRange.toInRangeSQL(null);
+            final String nonNullKeySQL = primaryKeys.stream().map(key -> "`b`." + key + " is not null").collect(Collectors.joining(" and "));
+            queries.add("insert into table " + HiveUtils.quoteIdentifier(targetSchema, targetTable) + " " + partitionSpec.toDynamicPartitionSpec() +
+                        " select " + StringUtils.join(insertValues, ", ") +
+                        " from (" + sourceQuery + ") `b` left outer join (" + targetKeysQuery + ") `a`" +
+                        " on (" + joinOnClause + ")" +
+                        " where " + nonNullKeySQL +
+                        " and (a." + primaryKeys.get(0) + " is null)");
+        }
+        return queries;
+    }
+
+    /**
+     * Generates a query selecting the new rows for a {@code MERGE}, with one row for each primary key. Rows with a null key are all kept. The partition
+     * values are selected after the fields.
+     *
+     * @param selectFields       the list of fields in the select clause of the source table
+     * @param partitionSpec      partition specification
+     * @param sourceSchema       the name of the source table schema or database
+     * @param sourceTable        the source table
+     * @param feedPartitionValue the partition of the source table to use
+     * @param columnSpecs        the column specifications
+     * @return the sql
+     */
+    protected String generateAcidPKMergeSourceQuery(@Nonnull final String[] selectFields, @Nonnull final PartitionSpec partitionSpec, @Nonnull final String sourceSchema,
+                                                    @Nonnull final String sourceTable, @Nonnull final String feedPartitionValue, @Nonnull final ColumnSpec[] columnSpecs) {
+        final String primaryKeySQL = StringUtils.join(ColumnSpec.toPrimaryKeys(columnSpecs), ",");
+        final String nullKeySQL = Arrays.stream(ColumnSpec.toPrimaryKeys(columnSpecs)).map(key -> key + " is null").collect(Collectors.joining(" or "));
+        final String outerSelectSQL = StringUtils.join(selectFields, ",") + (partitionSpec.isNonPartitioned() ? "" : "," + partitionSpec.toPartitionSelectSQL());
+
+        return "select " + outerSelectSQL + " from (" +
+               "select " + StringUtils.join(selectFields, ",") + (partitionSpec.isNonPartitioned() ? "" : "," + partitionSpec.toDynamicSelectSQLSpec()) +
+               ", row_number() over (partition by " + primaryKeySQL + " order by " + primaryKeySQL + ") as `tb_rn`" +
+               " from " + HiveUtils.quoteIdentifier(sourceSchema, sourceTable) + " where processing_dttm = " + HiveUtils.quoteString(feedPartitionValue) +
+               ") `d` where `tb_rn` = 1 or " + nullKeySQL;
+    }
+
     /**
      * Finds all partitions that contain matching keys.
      *
@@ -680,6 +1003,25 @@ public class TableMergeSyncSupport implements Serializable {
     protected List<PartitionBatch> createPartitionBatchesforPKMerge(@Nonnull final PartitionSpec spec, @Nonnull final String sourceSchema, @Nonnull final String sourceTable,
                                                                     @Nonnull final String targetSchema, @Nonnull final String targetTable, @Nonnull final String feedPartitionValue,
                                                                     @Nonnull final String joinOnClause) {
+        return createPartitionBatchesforPKMerge(spec, sourceSchema, sourceTable, targetSchema, targetTable, feedPartitionValue, joinOnClause, null);
+    }
+
+    /**
+     * Finds all partitions that contain matching keys, considering only the target rows matching the specified condition.
+     *
+     * @param spec               the partition spec
+     * @param sourceSchema       the name of the source table schema or database
+     * @param sourceTable        the source table
+     * @param targetSchema       the name of the target table schema or database
+     * @param targetTable        the target table
+     * @param feedPartitionValue the partition of the source table to use
+     * @param joinOnClause       the JOIN clause for the source and target tables
+     * @param targetWhereClause  a condition on the target table aliased as {@code a}, or {@code null} for all rows
+     * @return the matching partitions
+     */
+    protected List<PartitionBatch> createPartitionBatchesforPKMerge(@Nonnull final PartitionSpec spec, @Nonnull final String sourceSchema, @Nonnull final String sourceTable,
+                                                                    @Nonnull final String targetSchema, @Nonnull final String targetTable, @Nonnull final String feedPartitionValue,
+                                                                    @Nonnull final String joinOnClause, @Nullable final String targetWhereClause) {
         List<PartitionBatch> v;
         PartitionSpec aliasSpecA = spec.newForAlias("a");
 
@@ -688,6 +1030,7 @@ public class TableMergeSyncSupport implements Serializable {
                      " from " + HiveUtils.quoteIdentifier(targetSchema, targetTable) + " a join " + HiveUtils.quoteIdentifier(sourceSchema, sourceTable) + " b" +
                      " on " + joinOnClause +
                      " where b.processing_dttm = '" + feedPartitionValue + "'" +
+                     (targetWhereClause != null ? " and " + targetWhereClause : "") +
                      " group by " + aliasSpecA.toPartitionSelectSQL();
         try (final Statement st = conn.createStatement()) {
             logger.info("Selecting target partitions query [" + sql + "]");
@@ -795,6 +1138,133 @@ public class TableMergeSyncSupport implements Serializable {
         return fields;
     }
 
+    /**
+     * Finds the range of the first primary key column in the new rows.
+     *
+     * @param sourceSchema       the name of the source table schema or database
+     * @param sourceTable        the source table
+     * @param targetSchema       the name of the target table schema or database
+     * @param targetTable        the target table
+     * @param feedPartitionValue the partition of the source table to use
+     * @param columnSpecs        the column specifications
+     * @return the key range
+     */
+    protected KeyRange selectKeyRange(@Nonnull final String sourceSchema, @Nonnull final String sourceTable, @Nonnull final String targetSchema, @Nonnull final String targetTable,
+                                      @Nonnull final String feedPartitionValue, @Nonnull final ColumnSpec[] columnSpecs) {
+        final String keyColumn = Arrays.stream(columnSpecs).filter(ColumnSpec::isPk).map(ColumnSpec::getName).findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("No primary key in column specification"));
+        final String quotedKey = HiveUtils.quoteIdentifier(keyColumn);
+        final String keyType = resolveColumnType(targetSchema, targetTable, keyColumn);
+
+        // Compare keys using the ordering of the target column
+        final String sourceKey = "cast(" + quotedKey + " as " + keyType + ")";
+        final String sql = "select min(" + sourceKey + "), max(" + sourceKey + "), count(" + sourceKey + "), count(0)"
+                           + " from " + HiveUtils.quoteIdentifier(sourceSchema, sourceTable) + " where processing_dttm = " + HiveUtils.quoteString(feedPartitionValue);
+        try (final Statement st = conn.createStatement()) {
+            ResultSet rs = doSelectSQL(st, sql);
+            if (!rs.next() || Long.parseLong(rs.getString(4).trim()) == 0) {
+                return new KeyRange(quotedKey, null, null, 0);
+            }
+            final long rowCount = Long.parseLong(rs.getString(4).trim());
+            if (Long.parseLong(rs.getString(3).trim()) == 0) {
+                return new KeyRange(quotedKey, null, null, rowCount);
+            }
+            final KeyRange range = new KeyRange(quotedKey, toLiteral(rs.getString(1), keyType), toLiteral(rs.getString(2), keyType), rowCount);
+            logger.info("Primary key range of new rows is {}", range);
+            return range;
+        } catch (SQLException e) {
+            logger.error("Failed to select primary key range SQL {} with error {}", sql, e);
+            throw new RuntimeException("Failed to select primary key range", e);
+        }
+    }
+
+    /**
+     * Counts the new rows with a primary key already in the target table.
+     *
+     * @param sourceSchema       the name of the source table schema or database
+     * @param sourceTable        the source table
+     * @param targetSchema       the name of the target table schema or database
+     * @param targetTable        the target table
+     * @param feedPartitionValue the partition of the source table to use
+     * @param columnSpecs        the column specifications
+     * @param keyRange           the range of the primary key in the new rows
+     * @return the number of matching rows
+     */
+    protected long countMatchingKeys(@Nonnull final String sourceSchema, @Nonnull final String sourceTable, @Nonnull final String targetSchema, @Nonnull final String targetTable,
+                                     @Nonnull final String feedPartitionValue, @Nonnull final ColumnSpec[] columnSpecs, @Nonnull final KeyRange keyRange) {
+        final String sql = "select count(0) from " + HiveUtils.quoteIdentifier(targetSchema, targetTable) + " a join " + HiveUtils.quoteIdentifier(sourceSchema, sourceTable) + " b" +
+                           " on " + ColumnSpec.toPrimaryKeyJoinSQL(columnSpecs, "a", "b") +
+                           " where b.processing_dttm = " + HiveUtils.quoteString(feedPartitionValue) +
+                           " and " + keyRange.toInRangeSQL("a");
+        try (final Statement st = conn.createStatement()) {
+            ResultSet rs = doSelectSQL(st, sql);
+            return rs.next() ? Long.parseLong(rs.getString(1).trim()) : 0;
+        } catch (SQLException e) {
+            logger.error("Failed to count matching keys SQL {} with error {}", sql, e);
+            throw new RuntimeException("Failed to count matching keys", e);
+        }
+    }
+
+    /**
+     * Indicates if the specified table is a Hive ACID table.
+     *
+     * @param schema the database name
+     * @param table  the table name
+     * @return {@code true} if the table is transactional
+     */
+    protected boolean isTransactional(@Nonnull final String schema, @Nonnull final String table) {
+        try (final Statement st = conn.createStatement()) {
+            ResultSet rs = doSelectSQL(st, "show tblproperties " + HiveUtils.quoteIdentifier(schema, table));
+            while (rs.next()) {
+                String name = rs.getString(1);
+                if (name != null && "transactional".equalsIgnoreCase(name.trim())) {
+                    return "true".equalsIgnoreCase(StringUtils.trim(rs.getString(2)));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to inspect table properties", e);
+        }
+        return false;
+    }
+
+    /**
+     * Converts a value of the specified Hive type to a SQL literal.
+     */
+    private String toLiteral(@Nonnull final String value, @Nonnull final String type) {
+        final String lowerType = type.toLowerCase();
+        if (lowerType.matches("(tinyint|smallint|int|integer|bigint|float|double|decimal).*")) {
+            return new BigDecimal(value.trim()).toPlainString();
+        }
+        return HiveUtils.quoteString(value);
+    }
+
+    /**
+     * Retrieves the Hive type of the specified column.
+     *
+     * @param schema the database name
+     * @param table  the table name
+     * @param column the column name
+     * @return the column type
+     */
+    protected String resolveColumnType(@Nonnull final String schema, @Nonnull final String table, @Nonnull final String column) {
+        try (final Statement st = conn.createStatement()) {
+            // Use default database to resolve ambiguity between schema.table and table.column
+            st.execute("use default");
+            ResultSet rs = doSelectSQL(st, "desc " + HiveUtils.quoteIdentifier(schema, table));
+            while (rs.next()) {
+                if (StringUtils.isEmpty(rs.getString(1))) {
+                    break;
+                }
+                if (column.equalsIgnoreCase(rs.getString(1).trim())) {
+                    return rs.getString(2).trim();
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to inspect schema", e);
+        }
+        throw new IllegalArgumentException("Unable to find column " + column + " in table " + schema + "." + table);
+    }
+
     private String[] selectFieldsForAlias(String[] selectFields, String alias) {
         return Arrays.stream(selectFields).map(s -> alias + "." + s).toArray(String[]::new);
     }
@@ -830,5 +1300,65 @@ public class TableMergeSyncSupport implements Serializable {
         return columnSet;
     }
 
+    /**
+     * The smallest and largest values of the first primary key column in the new rows.
+     */
+    protected static class KeyRange {
+
+        private final String column;
+        private final String min;
+        private final String max;
+        private final long rowCount;
+
+        /**
+         * @param column   the quoted key column
+         * @param min      the smallest key as a SQL literal, or {@code null} if every key is null
+         * @param max      the largest key as a SQL literal, or {@code null} if every key is null
+         * @param rowCount the number of new rows
+         */
+        KeyRange(@Nonnull final String column, @Nullable final String min, @Nullable final String max, final long rowCount) {
+            this.column = column;
+            this.min = min;
+            this.max = max;
+            this.rowCount = rowCount;
+        }
+
+        /**
+         * Indicates that there are no new rows
+         */
+        public boolean isEmpty() {
+            return rowCount == 0;
+        }
+
+        /**
+         * Gets a condition matching the rows with a key in this range.
+         *
+         * @param alias the table alias, or {@code null} if none
+         */
+        public String toInRangeSQL(@Nullable final String alias) {
+            if (min == null || max == null) {
+                return "false";
+            }
+            final String key = (alias != null ? alias + "." : "") + column;
+            return "(" + key + " >= " + min + " and " + key + " <= " + max + ")";
+        }
 
+        /**
+         * Gets a condition matching the rows with a key outside of this range, including null keys.
+         *
+         * @param alias the table alias, or {@code null} if none
+         */
+        public String toOutOfRangeSQL(@Nullable final String alias) {
+            if (min == null || max == null) {
+                return "true";
+            }
+            final String key = (alias != null ? alias + "." : "") + column;
+            return "(" + key + " is null or " + key + " < " + min + " or " + key + " > " + max + ")";
+        }
+
+        @Override
+        public String toString() {
+            return column + " between " + min + " and " + max + " in " + rowCount + " rows";
+        }
+    }
 }
@@ -27,6 +27,7 @@ import com.thinkbiganalytics.nifi.thrift.api.AbstractRowVisitor;
 import com.thinkbiganalytics.util.ComponentAttributes;
 import com.thinkbiganalytics.util.JdbcCommon;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.apache.nifi.annotation.behavior.EventDriven;
@@ -49,8 +50,11 @@ import org.apache.nifi.processor.io.OutputStreamCallback;
 import org.apache.nifi.processor.util.StandardValidators;
 import org.apache.nifi.util.StopWatch;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -64,6 +68,9 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -78,13 +85,21 @@ import static com.thinkbiganalytics.nifi.v2.ingest.IngestProperties.REL_SUCCESS;
 @InputRequirement(Requirement.INPUT_ALLOWED)
 @Tags({"thinkbig", "table", "jdbc", "query", "database"})
 @CapabilityDescription(
-    "Extracts data from a JDBC source table and can optional extract incremental data if provided criteria. Query result will be converted to a delimited format, or to Avro if specified. Streaming is used so arbitrarily large result sets are supported. This processor can be scheduled to run on a timer, or cron expression, using the standard scheduling methods, or it can be triggered by an incoming FlowFile. If it is triggered by an incoming FlowFile, then attributes of that FlowFile will be available when evaluating the select query. FlowFile attribute \'source.row.count\' indicates how many rows were selected.")
+    "Extracts data from a JDBC source table and can optional extract incremental data if provided criteria. Query result will be converted to a delimited format, or to Avro if specified. Streaming is used so arbitrarily large result sets are supported. This processor can be scheduled to run on a timer, or cron expression, using the standard scheduling methods, or it can be triggered by an incoming FlowFile. If it is triggered by an incoming FlowFile, then attributes of that FlowFile will be available when evaluating the select query. FlowFile attribute \'source.row.count\' indicates how many rows were selected. A full load can be split on a numeric or date column into ranges that are extracted concurrently, producing one FlowFile per range.")
 
 // Implements strategies outlined by https://thebibackend.wordpress.com/2011/05/18/incremental-load-part-i-overview/
 public class GetTableData extends AbstractNiFiProcessor {
 
     public static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ISO_DATE_TIME;
     public static final String RESULT_ROW_COUNT = "source.row.count";
+    public static final String RESULT_PARTITION_INDEX = "source.partition.index";
+    public static final String RESULT_PARTITION_COUNT = "source.partition.count";
+
+    /**
+     * Size in bytes of the buffer between a partition worker and the flow file being written
+     */
+    private static final int PIPE_SIZE = 1024 * 1024;
+
     public static final Relationship REL_NO_DATA = new Relationship.Builder()
         .name("nodata")
         .description("Successful but no new data to process.")
@@ -186,6 +201,37 @@ public class GetTableData extends AbstractNiFiProcessor {
         .defaultValue(",")
         .expressionLanguageSupported(true)
         .build();
+    public static final PropertyDescriptor FETCH_SIZE = new PropertyDescriptor.Builder()
+        .name("Fetch Size")
+        .description("The number of rows the JDBC driver should fetch from the database on each round trip. Zero uses the default of the driver.")
+        .defaultValue("0")
+        .required(true)
+        .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
+        .build();
+    public static final PropertyDescriptor PARTITION_COLUMN = new PropertyDescriptor.Builder()
+        .name("Partition Column")
+        .description("Used only if the Load Strategy is FULL_LOAD. A numeric or date column used to split the table into ranges that are extracted concurrently, each into its own FlowFile. "
+                     + "Each range is selected in its own transaction, so the FlowFiles are not a consistent snapshot if the table changes during the extraction. "
+                     + "Leave empty to extract the table with a single query.")
+        .required(false)
+        .addValidator(StandardValidators.NON_EMPTY_VALIDATOR)
+        .expressionLanguageSupported(true)
+        .build();
+    public static final PropertyDescriptor PARTITION_COUNT = new PropertyDescriptor.Builder()
+        .name("Partition Count")
+        .description("The number of ranges the Partition Column is split into. Each range is extracted with its own connection from the Source Database Connection pool.")
+        .defaultValue("1")
+        .required(true)
+        .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+        .build();
+    public static final PropertyDescriptor MAX_CONCURRENT_PARTITIONS = new PropertyDescriptor.Builder()
+        .name("Max Concurrent Partitions")
+        .description("The maximum number of ranges of the Partition Column that are extracted at the same time. Each range being extracted holds a connection from the "
+                     + "Source Database Connection pool until its FlowFile has been written, so this must not be more than the maximum number of connections of the pool.")
+        .defaultValue("4")
+        .required(true)
+        .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+        .build();
     private final Set<Relationship> relationships;
     private final List<PropertyDescriptor> propDescriptors;
 
@@ -212,6 +258,10 @@ public class GetTableData extends AbstractNiFiProcessor {
         pds.add(UNIT_SIZE);
         pds.add(OUTPUT_TYPE);
         pds.add(OUTPUT_DELIMITER);
+        pds.add(FETCH_SIZE);
+        pds.add(PARTITION_COLUMN);
+        pds.add(PARTITION_COUNT);
+        pds.add(MAX_CONCURRENT_PARTITIONS);
         this.propDescriptors = Collections.unmodifiableList(pds);
     }
 
@@ -280,12 +330,21 @@ public class GetTableData extends AbstractNiFiProcessor {
         final String outputType = context.getProperty(OUTPUT_TYPE).getValue();
         String outputDelimiter = context.getProperty(OUTPUT_DELIMITER).evaluateAttributeExpressions(incoming).getValue();
         final String delimiter = StringUtils.isBlank(outputDelimiter) ? "," : outputDelimiter;
+        final int fetchSize = context.getProperty(FETCH_SIZE).asInteger();
+        final String partitionColumn = context.getProperty(PARTITION_COLUMN).evaluateAttributeExpressions(incoming).getValue();
+        final int partitionCount = context.getProperty(PARTITION_COUNT).asInteger();
+        final int maxConcurrentPartitions = context.getProperty(MAX_CONCURRENT_PARTITIONS).asInteger();
 
         final PropertyValue waterMarkPropName = context.getProperty(HIGH_WATER_MARK_PROP).evaluateAttributeExpressions(incoming);
 
         final String[] selectFields = parseFields(fieldSpecs);
 
         final LoadStrategy strategy = LoadStrategy.valueOf(loadStrategy);
+        if (strategy == LoadStrategy.FULL_LOAD && StringUtils.isNotBlank(partitionColumn) && partitionCount > 1) {
+            extractPartitions(session, incoming, dbcpService, tableName, selectFields, partitionColumn.trim(), partitionCount, maxConcurrentPartitions, queryTimeout, fetchSize,
+                              GetTableDataSupport.OutputType.valueOf(outputType), delimiter);
+            return;
+        }
         final StopWatch stopWatch = new StopWatch(true);
 
         try (final Connection conn = dbcpService.getConnection()) {
@@ -300,7 +359,7 @@ public class GetTableData extends AbstractNiFiProcessor {
                 public void process(final OutputStream out) throws IOException {
                     ResultSet rs = null;
                     try {
-                        GetTableDataSupport support = new GetTableDataSupport(conn, queryTimeout);
+                        GetTableDataSupport support = new GetTableDataSupport(conn, queryTimeout, fetchSize);
                         if (strategy == LoadStrategy.FULL_LOAD) {
                             rs = support.selectFullLoad(tableName, selectFields);
                         } else if (strategy == LoadStrategy.INCREMENTAL) {
@@ -321,16 +380,7 @@ public class GetTableData extends AbstractNiFiProcessor {
                     } catch (final SQLException e) {
                         throw new IOException("SQL execution failure", e);
                     } finally {
-                        if (rs != null) {
-                            try {
-                                if (rs.getStatement() != null) {
-                                    rs.getStatement().close();
-                                }
-                                rs.close();
-                            } catch (SQLException e) {
-                                getLog().error("Error closing sql statement and resultset");
-                            }
-                        }
+                        close(rs);
                     }
                 }
             });
@@ -369,6 +419,159 @@ public class GetTableData extends AbstractNiFiProcessor {
         }
     }
 
+    /**
+     * Splits a full load into ranges of the partition column, extracts the ranges concurrently, and emits one flow file per range.
+     *
+     * <p>The process session can only be used by the thread calling {@code onTrigger} so each range is read by a worker thread using its own
+     * pooled connection and written to a pipe, and this thread copies the pipes into the flow files one range at a time. The pipes are bounded so
+     * the rows are not staged on disk or in memory; a worker blocks, holding its connection, until its range is copied. At most
+     * {@code maxConcurrentPartitions} ranges are started ahead of the copying, and the next range is only started after a range has been copied,
+     * so the number of connections held never exceeds that limit and the range being copied is always running. Empty ranges are dropped unless
+     * the whole table is empty, in which case a single flow file is transferred to 'nodata'.</p>
+     *
+     * <p>Each range is selected in its own transaction so the ranges are not a consistent snapshot of the table. Rows inserted, deleted, or
+     * updated during the extraction may be missed, or extracted twice if the partition column value moves between ranges.</p>
+     */
+    private void extractPartitions(final ProcessSession session, final FlowFile incoming, final DBCPService dbcpService, final String tableName, final String[] selectFields,
+                                   final String partitionColumn, final int partitionCount, final int maxConcurrentPartitions, final int queryTimeout, final int fetchSize,
+                                   final GetTableDataSupport.OutputType outputType, final String delimiter) {
+        final ComponentLog logger = getLog();
+        final StopWatch stopWatch = new StopWatch(true);
+        final List<PipedInputStream> pipes = new ArrayList<>();
+        final List<FlowFile> outgoing = new ArrayList<>();
+        ExecutorService executor = null;
+
+        try {
+            final List<GetTableDataSupport.PartitionRange> ranges;
+            try (final Connection conn = dbcpService.getConnection()) {
+                ranges = new GetTableDataSupport(conn, queryTimeout, fetchSize).selectPartitionRanges(tableName, partitionColumn, partitionCount);
+            }
+
+            // Start the first ranges; each later range is started once an earlier range has been copied
+            final int concurrency = Math.min(maxConcurrentPartitions, ranges.size());
+            executor = Executors.newFixedThreadPool(concurrency);
+            final List<Future<Long>> results = new ArrayList<>(ranges.size());
+            for (int i = 0; i < concurrency; i++) {
+                results.add(startPartition(executor, pipes, dbcpService, tableName, selectFields, ranges.get(i), queryTimeout, fetchSize, outputType, delimiter));
+            }
+
+            final long[] rowCounts = new long[ranges.size()];
+            long totalRows = 0;
+            for (int i = 0; i < ranges.size(); i++) {
+                final PipedInputStream pipe = pipes.get(i);
+                FlowFile flowFile = (incoming == null ? session.create() : session.create(incoming));
+                outgoing.add(flowFile);
+                flowFile = session.write(flowFile, out -> IOUtils.copyLarge(pipe, out));
+                outgoing.set(i, flowFile);
+
+                rowCounts[i] = results.get(i).get();
+                totalRows += rowCounts[i];
+                IOUtils.closeQuietly(pipe);
+                pipes.set(i, null);
+                if (i + concurrency < ranges.size()) {
+                    results.add(startPartition(executor, pipes, dbcpService, tableName, selectFields, ranges.get(i + concurrency), queryTimeout, fetchSize, outputType, delimiter));
+                }
+
+                flowFile = session.putAttribute(flowFile, RESULT_ROW_COUNT, Long.toString(rowCounts[i]));
+                flowFile = session.putAttribute(flowFile, ComponentAttributes.NUM_SOURCE_RECORDS.key(), String.valueOf(rowCounts[i]));
+                flowFile = session.putAttribute(flowFile, RESULT_PARTITION_INDEX, Integer.toString(ranges.get(i).getIndex()));
+                flowFile = session.putAttribute(flowFile, RESULT_PARTITION_COUNT, Integer.toString(ranges.get(i).getCount()));
+                outgoing.set(i, flowFile);
+            }
+
+            // Drop the empty ranges, keeping one flow file if the table is empty
+            final List<FlowFile> transfer = new ArrayList<>(outgoing.size());
+            for (int i = 0; i < outgoing.size(); i++) {
+                if (rowCounts[i] == 0L && (totalRows > 0L || !transfer.isEmpty())) {
+                    session.remove(outgoing.get(i));
+                } else {
+                    session.getProvenanceReporter().modifyContent(outgoing.get(i), "Retrieved " + rowCounts[i] + " rows from " + ranges.get(i), stopWatch.getElapsed(TimeUnit.MILLISECONDS));
+                    transfer.add(outgoing.get(i));
+                }
+            }
+            outgoing.clear();
+
+            if (incoming != null) {
+                session.remove(incoming);
+            }
+            if (totalRows == 0L) {
+                logger.info("{} contains no data; transferring to 'nodata'", new Object[]{transfer.get(0)});
+                session.transfer(transfer, REL_NO_DATA);
+            } else {
+                logger.info("Extracted {} records from {} in {} partitions; transferring to 'success'", new Object[]{totalRows, tableName, transfer.size()});
+                session.transfer(transfer, REL_SUCCESS);
+            }
+        } catch (final Exception e) {
+            session.remove(outgoing);
+            if (incoming == null) {
+                logger.error("Unable to execute SQL select from table due to {}. No incoming flow file to route to failure", new Object[]{e});
+            } else {
+                logger.error("Unable to execute SQL select from table due to {}; routing to failure", new Object[]{incoming, e});
+                session.transfer(incoming, REL_FAILURE);
+            }
+        } finally {
+            // Closing the pipes stops any worker still writing
+            pipes.forEach(IOUtils::closeQuietly);
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Starts extracting the range on a worker thread, adding the pipe containing its rows to the list of pipes.
+     *
+     * @return the number of rows that will have been written once the range is extracted
+     */
+    private Future<Long> startPartition(final ExecutorService executor, final List<PipedInputStream> pipes, final DBCPService dbcpService, final String tableName,
+                                        final String[] selectFields, final GetTableDataSupport.PartitionRange range, final int queryTimeout, final int fetchSize,
+                                        final GetTableDataSupport.OutputType outputType, final String delimiter) throws IOException {
+        final PipedInputStream pipe = new PipedInputStream(PIPE_SIZE);
+        final PipedOutputStream out = new PipedOutputStream(pipe);
+        pipes.add(pipe);
+        return executor.submit(() -> extractPartition(dbcpService, tableName, selectFields, range, queryTimeout, fetchSize, outputType, delimiter, out));
+    }
+
+    /**
+     * Writes the rows of the range to the specified stream and closes it.
+     *
+     * @return the number of rows written
+     */
+    private long extractPartition(final DBCPService dbcpService, final String tableName, final String[] selectFields, final GetTableDataSupport.PartitionRange range,
+                                  final int queryTimeout, final int fetchSize, final GetTableDataSupport.OutputType outputType, final String delimiter, final OutputStream pipe)
+        throws SQLException, IOException {
+        try (final OutputStream out = new BufferedOutputStream(pipe);
+             final Connection conn = dbcpService.getConnection()) {
+            ResultSet rs = null;
+            try {
+                rs = new GetTableDataSupport(conn, queryTimeout, fetchSize).selectPartition(tableName, selectFields, range);
+                if (GetTableDataSupport.OutputType.DELIMITED.equals(outputType)) {
+                    return JdbcCommon.convertToDelimitedStream(rs, out, null, delimiter);
+                } else {
+                    return JdbcCommon.convertToAvroStream(rs, out, null);
+                }
+            } finally {
+                close(rs);
+            }
+        }
+    }
+
+    /**
+     * Closes the result set and its statement.
+     */
+    private void close(ResultSet rs) {
+        if (rs != null) {
+            try {
+                if (rs.getStatement() != null) {
+                    rs.getStatement().close();
+                }
+                rs.close();
+            } catch (SQLException e) {
+                getLog().error("Error closing sql statement and resultset");
+            }
+        }
+    }
+
     private String getIncrementalWaterMarkValue(FlowFile ff, PropertyValue waterMarkPropName) {
         if (!waterMarkPropName.isSet()) {
             // TODO validate when scheduled?
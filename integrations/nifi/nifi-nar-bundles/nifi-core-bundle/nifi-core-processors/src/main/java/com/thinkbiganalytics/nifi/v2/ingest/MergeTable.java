@@ -113,6 +113,14 @@ public class MergeTable extends AbstractNiFiProcessor {
         .addValidator(StandardValidators.NON_EMPTY_VALIDATOR)
         .expressionLanguageSupported(true)
         .build();
+    public static final PropertyDescriptor PK_MERGE_PRUNING = new PropertyDescriptor.Builder()
+        .name("Prune PK Merge")
+        .description("For the PK_MERGE strategy, rewrite only the target rows and partitions within the primary key range of the new rows. Transactional target tables are updated in "
+                     + "place using a Hive MERGE statement.")
+        .required(true)
+        .allowableValues("true", "false")
+        .defaultValue("false")
+        .build();
     private final Set<Relationship> relationships;
     private final List<PropertyDescriptor> propDescriptors;
 
@@ -133,6 +141,7 @@ public class MergeTable extends AbstractNiFiProcessor {
         pds.add(PARTITION_SPECIFICATION);
         pds.add(FIELD_SPECIFICATION);
         pds.add(HIVE_CONFIGURATIONS);
+        pds.add(PK_MERGE_PRUNING);
 
         propDescriptors = Collections.unmodifiableList(pds);
     }
@@ -208,7 +217,11 @@ public class MergeTable extends AbstractNiFiProcessor {
             } else if (STRATEGY_ROLLING_SYNC.equals(mergeStrategyValue)) {
                 mergeSupport.doRollingSync(sourceSchema, sourceTable, targetSchema, targetTable, partitionSpec, feedPartitionValue);
             } else if (STRATEGY_PK_MERGE.equals(mergeStrategyValue)) {
-                mergeSupport.doPKMerge(sourceSchema, sourceTable, targetSchema, targetTable, partitionSpec, feedPartitionValue, columnSpecs);
+                if (context.getProperty(PK_MERGE_PRUNING).asBoolean()) {
+                    mergeSupport.doPrunedPKMerge(sourceSchema, sourceTable, targetSchema, targetTable, partitionSpec, feedPartitionValue, columnSpecs);
+                } else {
+                    mergeSupport.doPKMerge(sourceSchema, sourceTable, targetSchema, targetTable, partitionSpec, feedPartitionValue, columnSpecs);
+                }
             } else {
                 throw new UnsupportedOperationException("Failed to resolve the merge strategy");
             }
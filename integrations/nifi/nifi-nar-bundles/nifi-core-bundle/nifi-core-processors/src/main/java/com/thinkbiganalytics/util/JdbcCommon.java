@@ -32,12 +32,12 @@ import org.apache.avro.io.DatumWriter;
 import org.apache.commons.lang3.CharUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.text.translate.CharSequenceTranslator;
-import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormatter;
 import org.joda.time.format.ISODateTimeFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
@@ -90,9 +90,32 @@ public class JdbcCommon {
 
     public static Logger logger = LoggerFactory.getLogger(JdbcCommon.class);
 
+    /**
+     * Formats dates and timestamps. Joda formatters are immutable so a single instance is shared by all writers.
+     */
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = ISODateTimeFormat.dateTime().withZoneUTC();
+
+    /**
+     * Formats times
+     */
+    private static final DateTimeFormatter TIME_FORMATTER = ISODateTimeFormat.time().withZoneUTC();
+
+    /**
+     * Size of the character buffer used when writing delimited text
+     */
+    private static final int WRITER_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Characters that may appear in a formatted date, time, or timestamp
+     */
+    private static final String ISO_DATE_CHARS = "0123456789-:.TZ";
+
     /**
      * Converts the specified SQL result set to a delimited text file written to the specified output stream.
      *
+     * <p>The column names and types are read from the result set metadata once, and each value is escaped directly into a buffered writer so no objects are created per row other than
+     * the values returned by the JDBC driver.</p>
+     *
      * @param rs        the SQL result set
      * @param outStream the output stream for the delimited text file
      * @param visitor   records position of the result set
@@ -109,34 +132,31 @@ public class JdbcCommon {
             logger.warn("Received empty resultset or no metadata.");
             return 0;
         }
-        OutputStreamWriter writer = new OutputStreamWriter(outStream);
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(outStream), WRITER_BUFFER_SIZE);
         final ResultSetMetaData meta = rs.getMetaData();
         final DelimiterEscaper escaper = new DelimiterEscaper(delimiter);
+        // formatted dates only need escaping if the delimiter could appear in them
+        final boolean escapeDates = StringUtils.containsAny(delimiter, ISO_DATE_CHARS);
 
         // Write header
         final int nrOfColumns = meta.getColumnCount();
-        StringBuffer sb = new StringBuffer();
+        final String[] columnNames = new String[nrOfColumns];
+        final int[] columnTypes = new int[nrOfColumns];
         for (int i = 1; i <= nrOfColumns; i++) {
-            String columnName = meta.getColumnName(i);
-            sb.append(escaper.translate(columnName));
-            if (i != nrOfColumns) {
-                sb.append(delimiter);
-            } else {
-                sb.append("\n");
-            }
+            columnNames[i - 1] = meta.getColumnName(i);
+            columnTypes[i - 1] = meta.getColumnType(i);
+            escaper.escape(columnNames[i - 1], writer);
+            writer.write(i != nrOfColumns ? delimiter : "\n");
         }
-        writer.append(sb.toString());
+
         long nrOfRows = 0;
         while (rs.next()) {
             if (visitor != null) {
                 visitor.visitRow(rs);
             }
-            sb = new StringBuffer();
             nrOfRows++;
             for (int i = 1; i <= nrOfColumns; i++) {
-                String val = null;
-
-                int colType = meta.getColumnType(i);
+                final int colType = columnTypes[i - 1];
                 if (colType == Types.DATE || colType == Types.TIMESTAMP) {
                     Timestamp sqlDate = null;
                     try {
@@ -145,43 +165,51 @@ public class JdbcCommon {
                     } catch (Exception e) {
                         // Still failed, maybe exotic date type
                         if (dateConversionWarning++ < 10) {
-                            logger.warn("{} is not convertible to timestamp or date", rs.getMetaData().getColumnName(i));
+                            logger.warn("{} is not convertible to timestamp or date", columnNames[i - 1]);
                         }
                     }
 
                     if (visitor != null) {
-                        visitor.visitColumn(rs.getMetaData().getColumnName(i), colType, sqlDate);
+                        visitor.visitColumn(columnNames[i - 1], colType, sqlDate);
                     }
                     if (sqlDate != null) {
-                        DateTimeFormatter formatter = ISODateTimeFormat.dateTime().withZoneUTC();
-                        val = formatter.print(new DateTime(sqlDate.getTime()));
+                        printTo(writer, DATE_TIME_FORMATTER, sqlDate.getTime(), escapeDates ? escaper : null);
                     }
                 } else if (colType == Types.TIME) {
                     Time time = rs.getTime(i);
                     if (visitor != null) {
-                        visitor.visitColumn(rs.getMetaData().getColumnName(i), colType, time);
+                        visitor.visitColumn(columnNames[i - 1], colType, time);
+                    }
+                    if (time != null) {
+                        printTo(writer, TIME_FORMATTER, time.getTime(), escapeDates ? escaper : null);
                     }
-                    DateTimeFormatter formatter = ISODateTimeFormat.time().withZoneUTC();
-                    val = formatter.print(new DateTime(time.getTime()));
                 } else {
-                    val = rs.getString(i);
+                    final String val = rs.getString(i);
                     if (visitor != null) {
-                        visitor.visitColumn(rs.getMetaData().getColumnName(i), colType, val);
+                        visitor.visitColumn(columnNames[i - 1], colType, val);
+                    }
+                    if (val != null) {
+                        escaper.escape(val, writer);
                     }
                 }
-                sb.append((val == null ? "" : escaper.translate(val)));
-                if (i != nrOfColumns) {
-                    sb.append(delimiter);
-                } else {
-                    sb.append("\n");
-                }
+                writer.write(i != nrOfColumns ? delimiter : "\n");
             }
-            writer.append(sb.toString());
         }
         writer.flush();
         return nrOfRows;
     }
 
+    /**
+     * Writes the formatted instant, escaping it if an escaper is given.
+     */
+    private static void printTo(@Nonnull final Writer writer, @Nonnull final DateTimeFormatter formatter, final long instant, final DelimiterEscaper escaper) throws IOException {
+        if (escaper == null) {
+            formatter.printTo(writer, instant);
+        } else {
+            escaper.escape(formatter.print(instant), writer);
+        }
+    }
+
 
     /**
      * Extracts a resultset col to a SQL timestamp
@@ -203,6 +231,18 @@ public class JdbcCommon {
     }
 
 
+    /**
+     * Converts the specified SQL result set to Avro records written to the specified output stream.
+     *
+     * <p>A single record is reused for every row and the column names and types are read from the result set metadata once.</p>
+     *
+     * @param rs        the SQL result set
+     * @param outStream the output stream for the Avro data file
+     * @param visitor   records position of the result set
+     * @return the number of rows written
+     * @throws SQLException if a SQL error occurs while reading the result set
+     * @throws IOException  if an I/O error occurs while writing to the output stream
+     */
     public static long convertToAvroStream(final ResultSet rs, final OutputStream outStream, final RowVisitor visitor) throws SQLException, IOException {
         int dateConversionWarning = 0;
         final Schema schema = createSchema(rs);
@@ -214,13 +254,20 @@ public class JdbcCommon {
 
             final ResultSetMetaData meta = rs.getMetaData();
             final int nrOfColumns = meta.getColumnCount();
+            final String[] columnNames = new String[nrOfColumns];
+            final int[] columnTypes = new int[nrOfColumns];
+            for (int i = 1; i <= nrOfColumns; i++) {
+                columnNames[i - 1] = meta.getColumnName(i);
+                columnTypes[i - 1] = meta.getColumnType(i);
+            }
+
             long nrOfRows = 0;
             while (rs.next()) {
                 if (visitor != null) {
                     visitor.visitRow(rs);
                 }
                 for (int i = 1; i <= nrOfColumns; i++) {
-                    final int javaSqlType = meta.getColumnType(i);
+                    final int javaSqlType = columnTypes[i - 1];
                     final Object value = rs.getObject(i);
 
                     if (value == null) {
@@ -248,16 +295,13 @@ public class JdbcCommon {
                         rec.put(i - 1, value);
 
                     } else if (value instanceof Date) {
-                        final DateTimeFormatter formatter = ISODateTimeFormat.dateTime().withZoneUTC();
-                        rec.put(i - 1, formatter.print(new DateTime(((Date) value).getTime())));
+                        rec.put(i - 1, DATE_TIME_FORMATTER.print(((Date) value).getTime()));
 
                     } else if (value instanceof Time) {
-                        final DateTimeFormatter formatter = ISODateTimeFormat.time().withZoneUTC();
-                        rec.put(i - 1, formatter.print(new DateTime(((Time) value).getTime())));
+                        rec.put(i - 1, TIME_FORMATTER.print(((Time) value).getTime()));
 
                     } else if (value instanceof Timestamp) {
-                        final DateTimeFormatter formatter = ISODateTimeFormat.dateTime().withZoneUTC();
-                        rec.put(i - 1, formatter.print(new DateTime(((Timestamp) value).getTime())));
+                        rec.put(i - 1, DATE_TIME_FORMATTER.print(((Timestamp) value).getTime()));
 
                     } else {
                         // The different types that we support are numbers (int, long, double, float),
@@ -276,21 +320,21 @@ public class JdbcCommon {
 
                         } catch (Exception e) {
                             if (dateConversionWarning++ < 10) {
-                                logger.warn("{} is not convertible to timestamp or date", rs.getMetaData().getColumnName(i));
+                                logger.warn("{} is not convertible to timestamp or date", columnNames[i - 1]);
                             }
                         }
 
                         if (visitor != null) {
-                            visitor.visitColumn(rs.getMetaData().getColumnName(i), javaSqlType, sqlDate);
+                            visitor.visitColumn(columnNames[i - 1], javaSqlType, sqlDate);
                         }
                     } else if (javaSqlType == Types.TIME) {
                         Time time = rs.getTime(i);
                         if (visitor != null) {
-                            visitor.visitColumn(rs.getMetaData().getColumnName(i), javaSqlType, time);
+                            visitor.visitColumn(columnNames[i - 1], javaSqlType, time);
                         }
                     } else {
                         if (visitor != null) {
-                            visitor.visitColumn(rs.getMetaData().getColumnName(i), javaSqlType, (value != null) ? value.toString() : null);
+                            visitor.visitColumn(columnNames[i - 1], javaSqlType, (value != null) ? value.toString() : null);
                         }
                     }
                 }
@@ -427,16 +471,44 @@ public class JdbcCommon {
         @Override
         public int translate(@Nonnull final CharSequence input, final int index, @Nonnull final Writer out) throws IOException {
             Preconditions.checkState(index == 0, "Unsupported translation index %d", index);
+            escape(input.toString(), out);
+            return Character.codePointCount(input, 0, input.length());
+        }
 
-            if (StringUtils.containsAny(input.toString(), searchStrings)) {
+        /**
+         * Writes the specified value to the writer, quoting it if it contains the delimiter, a quote, or a line break.
+         *
+         * @param value the value to escape
+         * @param out   the destination
+         * @throws IOException if the value cannot be written
+         */
+        void escape(@Nonnull final String value, @Nonnull final Writer out) throws IOException {
+            if (requiresQuotes(value)) {
                 out.write(QUOTE);
-                out.write(StringUtils.replace(input.toString(), QUOTE_STR, QUOTE_STR + QUOTE_STR));
+                final int length = value.length();
+                for (int i = 0; i < length; i++) {
+                    final char c = value.charAt(i);
+                    if (c == QUOTE) {
+                        out.write(QUOTE);
+                    }
+                    out.write(c);
+                }
                 out.write(QUOTE);
             } else {
-                out.write(input.toString());
+                out.write(value);
             }
+        }
 
-            return Character.codePointCount(input, 0, input.length());
+        /**
+         * Indicates if the specified value contains any of the search strings.
+         */
+        private boolean requiresQuotes(@Nonnull final String value) {
+            for (final String searchString : searchStrings) {
+                if (value.contains(searchString)) {
+                    return true;
+                }
+            }
+            return false;
         }
     }
 }
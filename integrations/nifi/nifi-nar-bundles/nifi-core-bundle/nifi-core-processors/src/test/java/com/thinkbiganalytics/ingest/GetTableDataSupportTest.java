@@ -29,10 +29,14 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.Statement;
+import java.sql.Timestamp;
 import java.util.Date;
+import java.util.List;
 import java.util.TimeZone;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  */
@@ -131,4 +135,43 @@ public class GetTableDataSupportTest {
         tableDataSupport.selectIncremental("testTable", new String[]{"col1", "col2"}, "col2", overlapTime, lastLoadDate, backoffTime, GetTableDataSupport.UnitSizes.NONE);
     }
 
+    @Test
+    public void testPartitionRanges() throws Exception {
+        List<GetTableDataSupport.PartitionRange> ranges = GetTableDataSupport.partitionRanges("id", 1L, 100L, 4, false);
+        assertEquals(4, ranges.size());
+        assertEquals("(id < ? OR id IS NULL)", ranges.get(0).getCondition());
+        assertNull(ranges.get(0).getLowerBound());
+        assertEquals(Long.valueOf(26L), ranges.get(0).getUpperBound());
+        assertEquals("id >= ? AND id < ?", ranges.get(1).getCondition());
+        assertEquals(Long.valueOf(26L), ranges.get(1).getLowerBound());
+        assertEquals(Long.valueOf(51L), ranges.get(1).getUpperBound());
+        assertEquals(Long.valueOf(51L), ranges.get(2).getLowerBound());
+        assertEquals(Long.valueOf(76L), ranges.get(2).getUpperBound());
+        assertEquals("id >= ?", ranges.get(3).getCondition());
+        assertEquals(Long.valueOf(76L), ranges.get(3).getLowerBound());
+        assertNull(ranges.get(3).getUpperBound());
+        assertEquals(3, ranges.get(3).getIndex());
+        assertEquals(4, ranges.get(3).getCount());
+
+        // no more ranges than values
+        assertEquals(3, GetTableDataSupport.partitionRanges("id", 5L, 7L, 10, false).size());
+        // bounds near the limits of a long do not overflow
+        assertEquals(Long.valueOf(0L), GetTableDataSupport.partitionRanges("id", Long.MIN_VALUE, Long.MAX_VALUE, 2, false).get(0).getUpperBound());
+        // empty tables are selected with a single query
+        assertTrue(GetTableDataSupport.partitionRanges("id", null, null, 4, false).get(0).isUnbounded());
+    }
+
+    @Test
+    public void testSelectPartition() throws Exception {
+        PreparedStatement ps = Mockito.mock(PreparedStatement.class);
+        Mockito.when(conn.prepareStatement("SELECT col1,col2 FROM testTable WHERE col2 >= ? AND col2 < ?")).thenReturn(ps);
+        tableDataSupport = new GetTableDataSupport(conn, 0, 5000);
+        tableDataSupport.selectPartition("testTable", new String[]{"col1", "col2"}, new GetTableDataSupport.PartitionRange("col2", 1, 3, 1458800000000L, 1458900000000L, true));
+
+        Mockito.verify(ps).setFetchSize(5000);
+        Mockito.verify(ps).setTimestamp(1, new Timestamp(1458800000000L));
+        Mockito.verify(ps).setTimestamp(2, new Timestamp(1458900000000L));
+        Mockito.verify(ps).executeQuery();
+    }
+
 }
@@ -0,0 +1,193 @@
+package com.thinkbiganalytics.ingest;
+
+/*-
+ * #%L
+ * thinkbig-nifi-core-processors
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.klarna.hiverunner.HiveShell;
+import com.klarna.hiverunner.StandaloneHiveRunner;
+import com.klarna.hiverunner.annotations.HiveRunnerSetup;
+import com.klarna.hiverunner.annotations.HiveSQL;
+import com.klarna.hiverunner.config.HiveRunnerConfig;
+import com.thinkbiganalytics.util.ColumnSpec;
+import com.thinkbiganalytics.util.PartitionSpec;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the number of rows rewritten per merged row by the PK merge and the pruned PK merge.
+ *
+ * <p>The benchmark only runs when the {@code kylo.benchmark} system property is {@code true}.</p>
+ */
+@RunWith(StandaloneHiveRunner.class)
+public class TableMergeSyncSupportBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(TableMergeSyncSupportBenchmarkTest.class);
+
+    /**
+     * Number of rows in each target table before merging
+     */
+    private static final int TARGET_ROWS = 120;
+
+    /**
+     * Explicit test class configuration of the HiveRunner runtime. See {@link HiveRunnerConfig} for further details.
+     */
+    @HiveRunnerSetup
+    public final HiveRunnerConfig CONFIG = new HiveRunnerConfig() {{
+        setHiveExecutionEngine("mr");
+    }};
+
+    private final String schema = "bench";
+    private final PartitionSpec spec = new PartitionSpec("country|string|country\nyear|int|year(hired)");
+    private final ColumnSpec[] columnSpecs = new ColumnSpec[]{new ColumnSpec("id", "String", "", true, false, false)};
+
+    @HiveSQL(files = {}, encoding = "UTF-8")
+    private HiveShell hiveShell;
+
+    private RowCountingTableMergeSyncSupport mergeSyncSupport;
+
+    @BeforeClass
+    public static void assumeBenchmark() {
+        Assume.assumeTrue("Set -Dkylo.benchmark=true to run the benchmark", Boolean.getBoolean("kylo.benchmark"));
+    }
+
+    @Before
+    public void setupTables() throws SQLException {
+        hiveShell.execute("create database " + schema);
+        hiveShell.execute("create table bench.source (`id` int, `name` string, `hired` date, `country` string) partitioned by (`processing_dttm` string) stored as orc");
+        for (String table : new String[]{"legacy", "pruned"}) {
+            hiveShell.execute("create table bench." + table + " (`id` int, `name` string, `hired` date) partitioned by (`country` string, `year` int) stored as orc");
+            hiveShell.execute("create table bench." + table + "_np (`id` int, `name` string, `hired` date, `country` string) stored as orc");
+        }
+
+        mergeSyncSupport = new RowCountingTableMergeSyncSupport(hiveShell);
+        mergeSyncSupport.enableDynamicPartitions();
+
+        // Spread the existing rows over 12 partitions
+        List<String> values = new ArrayList<>();
+        for (int id = 1; id <= TARGET_ROWS; ++id) {
+            values.add("(" + id + ",'Employee " + id + "','" + (2010 + id % 6) + "-01-01','" + (id % 2 == 0 ? "USA" : "Canada") + "')");
+        }
+        hiveShell.execute("insert into bench.source partition (processing_dttm='1') values " + String.join(",", values));
+        for (String table : new String[]{"legacy", "pruned"}) {
+            mergeSyncSupport.doMerge(schema, "source", schema, table, spec, "1", false);
+            mergeSyncSupport.doMerge(schema, "source", schema, table + "_np", new PartitionSpec(), "1", false);
+        }
+    }
+
+    @Test
+    public void testInsertOnlyPartitioned() {
+        hiveShell.execute("insert into bench.source partition (processing_dttm='2') values (1001,'New 1','2016-01-01','USA'), (1002,'New 2','2016-01-01','USA')");
+        compare("insert only", "legacy", "pruned", spec, 2);
+    }
+
+    @Test
+    public void testUpdatePartitioned() {
+        hiveShell.execute("insert into bench.source partition (processing_dttm='2') values (2,'Updated 2','2012-01-01','USA'), (4,'Updated 4','2014-01-01','USA'), "
+                          + "(1001,'New 1','2012-01-01','USA')");
+        compare("update", "legacy", "pruned", spec, 3);
+    }
+
+    @Test
+    public void testInsertOnlyNonPartitioned() {
+        hiveShell.execute("insert into bench.source partition (processing_dttm='2') values (1001,'New 1','2016-01-01','USA'), (1002,'New 2','2016-01-01','USA')");
+        compare("insert only non-partitioned", "legacy_np", "pruned_np", new PartitionSpec(), 2);
+    }
+
+    @Test
+    public void testUpdateNonPartitioned() {
+        hiveShell.execute("insert into bench.source partition (processing_dttm='2') values (2,'Updated 2','2012-01-01','USA'), (4,'Updated 4','2014-01-01','USA'), "
+                          + "(1001,'New 1','2012-01-01','USA')");
+        compare("update non-partitioned", "legacy_np", "pruned_np", new PartitionSpec(), 3);
+    }
+
+    /**
+     * Merges the second batch into both tables and verifies the pruned merge rewrites no more rows than the PK merge
+     */
+    private void compare(String scenario, String legacyTable, String prunedTable, PartitionSpec partitionSpec, int mergedRows) {
+        mergeSyncSupport.resetRowsWritten();
+        mergeSyncSupport.doPKMerge(schema, "source", schema, legacyTable, partitionSpec, "2", columnSpecs);
+        final long legacyRows = mergeSyncSupport.getRowsWritten();
+
+        mergeSyncSupport.resetRowsWritten();
+        mergeSyncSupport.doPrunedPKMerge(schema, "source", schema, prunedTable, partitionSpec, "2", columnSpecs);
+        final long prunedRows = mergeSyncSupport.getRowsWritten();
+
+        log.info("{}: PK merge wrote {} rows per merged row, pruned PK merge wrote {} rows per merged row", scenario, (double) legacyRows / mergedRows, (double) prunedRows / mergedRows);
+        assertTrue("Pruned merge wrote " + prunedRows + " rows but PK merge wrote " + legacyRows, prunedRows <= legacyRows);
+        assertEquals(fetchSorted(legacyTable), fetchSorted(prunedTable));
+    }
+
+    private List<String> fetchSorted(String table) {
+        List<String> rows = new ArrayList<>(hiveShell.executeQuery("select * from bench." + table));
+        Collections.sort(rows);
+        return rows;
+    }
+
+    /**
+     * Counts the rows written by each insert statement before executing it
+     */
+    static class RowCountingTableMergeSyncSupport extends HiveShellTableMergeSyncSupport {
+
+        private static final Pattern INSERT = Pattern.compile("^\\s*insert\\s+(overwrite|into)\\s+(table\\s+)?\\S+\\s*(partition\\s*\\([^)]*\\))?\\s*", Pattern.CASE_INSENSITIVE);
+
+        private final HiveShell shell;
+
+        private long rowsWritten;
+
+        RowCountingTableMergeSyncSupport(HiveShell shell) throws SQLException {
+            super(shell);
+            this.shell = shell;
+        }
+
+        @Override
+        protected void doExecuteSQL(String sql) {
+            Matcher matcher = INSERT.matcher(sql);
+            if (matcher.find()) {
+                List<String> count = shell.executeQuery("select count(*) from (" + sql.substring(matcher.end()) + ") x");
+                rowsWritten += Long.parseLong(count.get(0).trim());
+            }
+            super.doExecuteSQL(sql);
+        }
+
+        long getRowsWritten() {
+            return rowsWritten;
+        }
+
+        void resetRowsWritten() {
+            rowsWritten = 0;
+        }
+    }
+}
@@ -223,7 +223,7 @@ public class TableMergeSyncSupportTest {
             + "'555-1212',"
             + "'sally@acme.org','2015-01-01');");
 
-        doTestMergePK(targetSchema, targetTable, spec);
+        doTestMergePK(false, targetSchema, targetTable, spec);
     }
 
     @Test
@@ -231,7 +231,7 @@ public class TableMergeSyncSupportTest {
      * Tests the merge partition without dedupe and the merge partition with dedupe
      */
     public void testMergePartitionMovingPartitionPK() throws Exception {
-        doTestMergePKWithDifferentPartitions(targetSchema, targetTable, spec);
+        doTestMergePKWithDifferentPartitions(false, targetSchema, targetTable, spec);
     }
 
     @Test
@@ -470,7 +470,128 @@ public class TableMergeSyncSupportTest {
     }
 
 
-    private void doTestMergePK(String targetSchema, String targetTable, PartitionSpec spec) {
+    @Test
+    /**
+     * Tests the pruned merge partition with an existing record
+     */
+    public void testPrunedMergePartitionPK() throws Exception {
+        // Insert one record to start
+        hiveShell.execute(
+            "insert into emp_sr.employee partition(country='USA',year=2015) (  `id`,  `timestamp`,`name`,`company`,`zip`,`phone`,`email`,  `hired`)  values (1,'1','Sally','OLD VALUE','94550',"
+            + "'555-1212',"
+            + "'sally@acme.org','2015-01-01');");
+
+        doTestMergePK(true, targetSchema, targetTable, spec);
+    }
+
+    @Test
+    /**
+     * Tests the pruned merge partition with records moving between partitions
+     */
+    public void testPrunedMergePartitionMovingPartitionPK() throws Exception {
+        doTestMergePKWithDifferentPartitions(true, targetSchema, targetTable, spec);
+    }
+
+    @Test
+    /**
+     * Tests the pruned merge keeps the target records outside of the key range of the new records
+     */
+    public void testPrunedMergePKNonPartitioned() throws Exception {
+        hiveShell.execute("insert into emp_sr.employee_np (`id`, `timestamp`, `name`,`company`,`zip`,`phone`,`email`,  `hired`,`country`) values "
+                          + "(50000,'1','Outside','ABC','94550','555-1212','outside@acme.org','2015-01-01','USA');");
+
+        ColumnSpec columnSpec1 = new ColumnSpec("id", "String", "", true, false, false);
+        ColumnSpec columnSpec2 = new ColumnSpec("name", "String", "", false, false, false);
+        ColumnSpec[] columnSpecs = Arrays.asList(columnSpec1, columnSpec2).toArray(new ColumnSpec[0]);
+
+        // No matching keys so the records are appended
+        mergeSyncSupport.doPrunedPKMerge(sourceSchema, sourceTable, targetSchema, targetTableNP, new PartitionSpec(), processingPartition, columnSpecs);
+        List<String> results = fetchEmployees(targetSchema, targetTableNP);
+        assertEquals(5, results.size());
+
+        // Merge with same source should leave us with 5 records
+        mergeSyncSupport.doPrunedPKMerge(sourceSchema, sourceTable, targetSchema, targetTableNP, new PartitionSpec(), processingPartition, columnSpecs);
+        results = fetchEmployees(targetSchema, targetTableNP);
+        assertEquals(5, results.size());
+
+        // Should update 1 and add 1
+        hiveShell.execute("insert into emp_sr.employee_valid partition(processing_dttm='20160119074350') (  `id`,  `timestamp`, `name`,`company`,`zip`,`phone`,`email`,  `hired`,`country`) values "
+                          + "(1,'1','NEW VALUE','ABC','94550','555-1212','bruce@acme.org','2016-01-01','Canada');");
+        hiveShell.execute("insert into emp_sr.employee_valid partition(processing_dttm='20160119074350') (  `id`,  `timestamp`, `name`,`company`,`zip`,`phone`,`email`,  `hired`,`country`) values "
+                          + "(10010,'1','Bruce','ABC','94550','555-1212','bruce@acme.org','2016-01-01','Canada');");
+
+        mergeSyncSupport.doPrunedPKMerge(sourceSchema, sourceTable, targetSchema, targetTableNP, new PartitionSpec(), "20160119074350", columnSpecs);
+        results = fetchEmployees(targetSchema, targetTableNP);
+        assertEquals(6, results.size());
+        assertTrue(results.stream().anyMatch(s -> s.contains("NEW VALUE")));
+        assertTrue(results.stream().anyMatch(s -> s.contains("Outside")));
+        verifyUnique(results);
+    }
+
+    @Test
+    /**
+     * Tests the pruned merge empties a partition whose only record moves to another partition
+     */
+    public void testPrunedMergeClearsMovedPartition() throws Exception {
+        hiveShell.execute(
+            "insert into emp_sr.employee partition(country='USA',year=2010) (  `id`,  `timestamp`,`name`,`company`,`zip`,`phone`,`email`,  `hired`)  values (1,'1','Sally','OLD VALUE','94550',"
+            + "'555-1212',"
+            + "'sally@acme.org','2010-01-01');");
+
+        ColumnSpec columnSpec1 = new ColumnSpec("id", "String", "", true, false, false);
+        ColumnSpec columnSpec2 = new ColumnSpec("name", "String", "", false, false, false);
+        ColumnSpec[] columnSpecs = Arrays.asList(columnSpec1, columnSpec2).toArray(new ColumnSpec[0]);
+        mergeSyncSupport.doPrunedPKMerge(sourceSchema, sourceTable, targetSchema, targetTable, spec, processingPartition, columnSpecs);
+
+        List<String> results = fetchEmployees(targetSchema, targetTable);
+        assertEquals(4, results.size());
+        assertFalse("Should not have old value", results.stream().anyMatch(s -> s.contains("OLD")));
+        assertTrue(hiveShell.executeQuery("select * from emp_sr.employee where year = 2010").isEmpty());
+    }
+
+    @Test
+    /**
+     * Tests the queries for a transactional target reduce the new records to one per key and insert records with a null key once
+     */
+    public void testAcidPKMergeQueries() throws Exception {
+        hiveShell.execute("insert into emp_sr.employee_valid partition(processing_dttm='20160119074350') (  `id`,  `timestamp`, `name`,`company`,`zip`,`phone`,`email`,  `hired`,`country`) values "
+                          + "(7,'1','First','ABC','94550','555-1212','first@acme.org','2016-01-01','USA');");
+        hiveShell.execute("insert into emp_sr.employee_valid partition(processing_dttm='20160119074350') (  `id`,  `timestamp`, `name`,`company`,`zip`,`phone`,`email`,  `hired`,`country`) values "
+                          + "(7,'1','Second','ABC','94550','555-1212','second@acme.org','2016-01-01','USA');");
+        for (String name : new String[]{"Nobody", "Someone"}) {
+            hiveShell.execute("insert into emp_sr.employee_valid partition(processing_dttm='20160119074350') select cast(null as int), '1', '" + name + "', 'ABC', '94550', '555-1212', "
+                              + "'none@acme.org', cast('2016-01-01' as date), 'USA' from emp_sr.employee_valid where processing_dttm = '20160119074340' and id = 1");
+        }
+
+        ColumnSpec columnSpec1 = new ColumnSpec("id", "String", "", true, false, false);
+        ColumnSpec columnSpec2 = new ColumnSpec("name", "String", "", false, false, false);
+        ColumnSpec[] columnSpecs = Arrays.asList(columnSpec1, columnSpec2).toArray(new ColumnSpec[0]);
+        String[] selectFields = mergeSyncSupport.getSelectFields(sourceSchema, sourceTable, targetSchema, targetTable, spec);
+
+        // One record for key 7 and both records with a null key
+        String sourceQuery = mergeSyncSupport.generateAcidPKMergeSourceQuery(selectFields, spec, sourceSchema, sourceTable, "20160119074350", columnSpecs);
+        List<String> sourceRows = hiveShell.executeQuery(sourceQuery);
+        assertEquals(3, sourceRows.size());
+        assertEquals(1, sourceRows.stream().filter(s -> s.startsWith("7\t")).count());
+        assertTrue(sourceRows.stream().anyMatch(s -> s.contains("Nobody")));
+        assertTrue(sourceRows.stream().anyMatch(s -> s.contains("Someone")));
+
+        List<String> targetFields = mergeSyncSupport.resolveTableSchema(targetSchema, targetTable);
+        targetFields.removeAll(spec.getKeyNames());
+        TableMergeSyncSupport.KeyRange keyRange = mergeSyncSupport.selectKeyRange(sourceSchema, sourceTable, targetSchema, targetTable, "20160119074350", columnSpecs);
+        List<String> queries = mergeSyncSupport.generateAcidPKMergeQueries(selectFields, targetFields, spec, sourceSchema, sourceTable, targetSchema, targetTable, "20160119074350",
+                                                                           columnSpecs, keyRange);
+        assertEquals(2, queries.size());
+        assertTrue(queries.get(0).startsWith("merge into `emp_sr`.`employee` as `a` using (" + sourceQuery + ") as `b`"));
+        assertTrue(queries.get(1).contains("from (" + sourceQuery + ") `b`"));
+        assertTrue(queries.get(1).contains("where `b`.`id` is not null and"));
+
+        // Only the record for key 7 is missing from the empty target table, as the records with a null key are inserted by the merge
+        String missing = queries.get(1).substring(queries.get(1).indexOf(" select "));
+        assertEquals(1, hiveShell.executeQuery(missing).size());
+    }
+
+    private void doTestMergePK(boolean pruned, String targetSchema, String targetTable, PartitionSpec spec) {
 
         List<String> results = fetchEmployees(targetSchema, targetTable);
         assertEquals(1, results.size());
@@ -479,7 +600,7 @@ public class TableMergeSyncSupportTest {
         ColumnSpec columnSpec2 = new ColumnSpec("name", "String", "", false, false, false);
         ColumnSpec[] columnSpecs = Arrays.asList(columnSpec1, columnSpec2).toArray(new ColumnSpec[0]);
         // Call merge
-        mergeSyncSupport.doPKMerge(sourceSchema, sourceTable, targetSchema, targetTable, spec, processingPartition, columnSpecs);
+        doPKMerge(pruned, targetSchema, targetTable, spec, processingPartition, columnSpecs);
 
         // We should have 4 records
         results = fetchEmployees(targetSchema, targetTable);
@@ -494,7 +615,7 @@ public class TableMergeSyncSupportTest {
                           + "'OLD',"
                           + "'94550','555-1212','harry@acme.org','2016-01-01','Canada');");
 
-        mergeSyncSupport.doPKMerge(sourceSchema, sourceTable, targetSchema, targetTable, spec, processingPartition, columnSpecs);
+        doPKMerge(pruned, targetSchema, targetTable, spec, processingPartition, columnSpecs);
 
         results = fetchEmployees(targetSchema, targetTable);
         assertEquals(6, results.size());
@@ -515,7 +636,7 @@ public class TableMergeSyncSupportTest {
                           + "'ABC',"
                           + "'94550','555-1212','buddy@acme.org','2016-01-01','Canada');");
 
-        mergeSyncSupport.doPKMerge(sourceSchema, sourceTable, targetSchema, targetTable, spec, "20160119074540", columnSpecs);
+        doPKMerge(pruned, targetSchema, targetTable, spec, "20160119074540", columnSpecs);
         results = fetchEmployees(targetSchema, targetTable);
         assertEquals(7, results.size());
         existing = new HashSet<>();
@@ -531,7 +652,7 @@ public class TableMergeSyncSupportTest {
     /*
     Test ability to strip records that match the ID but are in a different partition than the newer record
      */
-    private void doTestMergePKWithDifferentPartitions(String targetSchema, String targetTable, PartitionSpec spec) {
+    private void doTestMergePKWithDifferentPartitions(boolean pruned, String targetSchema, String targetTable, PartitionSpec spec) {
 
         // Insert one record to start
         hiveShell.execute(
@@ -567,7 +688,7 @@ public class TableMergeSyncSupportTest {
         ColumnSpec columnSpec2 = new ColumnSpec("name", "String", "", false, false, false);
         ColumnSpec[] columnSpecs = Arrays.asList(columnSpec1, columnSpec2).toArray(new ColumnSpec[0]);
         // Call merge
-        mergeSyncSupport.doPKMerge(sourceSchema, sourceTable, targetSchema, targetTable, spec, processingPartition, columnSpecs);
+        doPKMerge(pruned, targetSchema, targetTable, spec, processingPartition, columnSpecs);
 
         // We should have 6 records
         results = fetchEmployees(targetSchema, targetTable);
@@ -582,7 +703,7 @@ public class TableMergeSyncSupportTest {
                           + "'OLD',"
                           + "'94550','555-1212','harry@acme.org','2016-01-01','Canada');");
 
-        mergeSyncSupport.doPKMerge(sourceSchema, sourceTable, targetSchema, targetTable, spec, processingPartition, columnSpecs);
+        doPKMerge(pruned, targetSchema, targetTable, spec, processingPartition, columnSpecs);
 
         results = fetchEmployees(targetSchema, targetTable);
         assertEquals(8, results.size());
@@ -603,7 +724,7 @@ public class TableMergeSyncSupportTest {
                           + "'ABC',"
                           + "'94550','555-1212','buddy@acme.org','2016-01-01','Canada');");
 
-        mergeSyncSupport.doPKMerge(sourceSchema, sourceTable, targetSchema, targetTable, spec, "20160119074540", columnSpecs);
+        doPKMerge(pruned, targetSchema, targetTable, spec, "20160119074540", columnSpecs);
         results = fetchEmployees(targetSchema, targetTable);
         assertEquals(9, results.size());
         existing = new HashSet<>();
@@ -616,5 +737,11 @@ public class TableMergeSyncSupportTest {
 
     }
 
-
+    private void doPKMerge(boolean pruned, String targetSchema, String targetTable, PartitionSpec spec, String feedPartitionValue, ColumnSpec[] columnSpecs) {
+        if (pruned) {
+            mergeSyncSupport.doPrunedPKMerge(sourceSchema, sourceTable, targetSchema, targetTable, spec, feedPartitionValue, columnSpecs);
+        } else {
+            mergeSyncSupport.doPKMerge(sourceSchema, sourceTable, targetSchema, targetTable, spec, feedPartitionValue, columnSpecs);
+        }
+    }
 }
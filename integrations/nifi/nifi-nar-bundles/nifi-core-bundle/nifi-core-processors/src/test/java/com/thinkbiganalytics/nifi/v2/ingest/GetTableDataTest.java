@@ -37,9 +37,11 @@ import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericRecord;
 import org.apache.avro.io.DatumReader;
 import org.apache.avro.util.Utf8;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.nifi.components.ValidationResult;
 import org.apache.nifi.controller.AbstractControllerService;
 import org.apache.nifi.dbcp.DBCPService;
+import org.apache.nifi.processor.exception.ProcessException;
 import org.apache.nifi.util.MockFlowFile;
 import org.apache.nifi.util.MockProcessContext;
 import org.apache.nifi.util.TestRunner;
@@ -52,6 +54,7 @@ import org.junit.Test;
 import org.mockito.Mockito;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.PreparedStatement;
@@ -66,8 +69,14 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -251,6 +260,67 @@ public class GetTableDataTest {
                                              + "2,Jon,Stephens,Jon.Stephens@sakilastaff.com,2006-02-15T03:57:16.000Z\n");
     }
 
+    /**
+     * Verify a full load split into partitions.
+     */
+    @Test
+    public void testPartitionedFullLoad() {
+        runner.setProperty(GetTableData.PARTITION_COLUMN, "id");
+        runner.setProperty(GetTableData.PARTITION_COUNT, "2");
+        runner.setProperty(GetTableData.FETCH_SIZE, "1000");
+        runner.enqueue(new byte[0]);
+        runner.run();
+
+        List<MockFlowFile> flowFiles = runner.getFlowFilesForRelationship(CommonProperties.REL_SUCCESS);
+        Assert.assertEquals(0, runner.getFlowFilesForRelationship(CommonProperties.REL_FAILURE).size());
+        Assert.assertEquals(0, runner.getFlowFilesForRelationship(GetTableData.REL_NO_DATA).size());
+        Assert.assertEquals(2, flowFiles.size());
+        flowFiles.sort((a, b) -> a.getAttribute(GetTableData.RESULT_PARTITION_INDEX).compareTo(b.getAttribute(GetTableData.RESULT_PARTITION_INDEX)));
+
+        Assert.assertEquals("0", flowFiles.get(0).getAttribute(GetTableData.RESULT_PARTITION_INDEX));
+        Assert.assertEquals("2", flowFiles.get(0).getAttribute(GetTableData.RESULT_PARTITION_COUNT));
+        Assert.assertEquals("1", flowFiles.get(0).getAttribute(GetTableData.RESULT_ROW_COUNT));
+        flowFiles.get(0).assertContentEquals("id,first_name,last_name,email,last_updated\n"
+                                             + "1,Mike,Hillyer,Mike.Hillyer@sakilastaff.com,2006-02-15T03:57:16.000Z\n");
+
+        Assert.assertEquals("1", flowFiles.get(1).getAttribute(GetTableData.RESULT_PARTITION_INDEX));
+        Assert.assertEquals("2", flowFiles.get(1).getAttribute(GetTableData.RESULT_PARTITION_COUNT));
+        Assert.assertEquals("1", flowFiles.get(1).getAttribute(ComponentAttributes.NUM_SOURCE_RECORDS.key()));
+        flowFiles.get(1).assertContentEquals("id,first_name,last_name,email,last_updated\n"
+                                             + "2,Jon,Stephens,Jon.Stephens@sakilastaff.com,2006-02-15T03:57:16.000Z\n");
+    }
+
+    /**
+     * Verify a full load split into more partitions than the connection pool allows, with each partition larger than the buffer between the
+     * extracting thread and its flow file.
+     */
+    @Test
+    public void testPartitionsExceedPoolSize() throws Exception {
+        final PooledDBCPService pool = new PooledDBCPService(2);
+        runner.addControllerService("PooledDBCPService", pool);
+        runner.enableControllerService(pool);
+        runner.setProperty(GetTableData.JDBC_SERVICE, "PooledDBCPService");
+        runner.setProperty(GetTableData.TABLE_NAME, "wide");
+        runner.setProperty(GetTableData.TABLE_SPECS, "id\npayload");
+        runner.setProperty(GetTableData.PARTITION_COLUMN, "id");
+        runner.setProperty(GetTableData.PARTITION_COUNT, "4");
+        runner.setProperty(GetTableData.MAX_CONCURRENT_PARTITIONS, "2");
+        runner.enqueue(new byte[0]);
+        runner.run();
+
+        List<MockFlowFile> flowFiles = runner.getFlowFilesForRelationship(CommonProperties.REL_SUCCESS);
+        Assert.assertEquals(0, runner.getFlowFilesForRelationship(CommonProperties.REL_FAILURE).size());
+        Assert.assertEquals(4, flowFiles.size());
+        flowFiles.sort((a, b) -> a.getAttribute(GetTableData.RESULT_PARTITION_INDEX).compareTo(b.getAttribute(GetTableData.RESULT_PARTITION_INDEX)));
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals("1", flowFiles.get(i).getAttribute(GetTableData.RESULT_ROW_COUNT));
+            final String content = new String(flowFiles.get(i).toByteArray(), StandardCharsets.UTF_8);
+            Assert.assertTrue(content.startsWith("id,payload\n" + (i + 1) + ","));
+            Assert.assertEquals(PooledDBCPService.PAYLOAD_SIZE + 14, content.length());
+        }
+        Assert.assertTrue("Expected at most 2 connections but was " + pool.maxInUse.get(), pool.maxInUse.get() <= 2);
+    }
+
     /**
      * Verify output for no data.
      */
@@ -315,6 +385,11 @@ public class GetTableDataTest {
 
             Mockito.when(statement.executeQuery("SELECT id,email FROM empty")).then(invocation -> getEmptyResults());
             Mockito.when(statement.executeQuery("SELECT id,first_name,last_name,email,last_updated FROM mytable")).then(invocation -> getSimpleResults());
+            Mockito.when(statement.executeQuery("SELECT MIN(id), MAX(id) FROM mytable")).then(invocation -> getBoundsResults());
+            Mockito.when(connection.prepareStatement("SELECT id,first_name,last_name,email,last_updated FROM mytable WHERE (id < ? OR id IS NULL)"))
+                .then(invocation -> getPartitionResults(row -> (Integer) row[0] < 2));
+            Mockito.when(connection.prepareStatement("SELECT id,first_name,last_name,email,last_updated FROM mytable WHERE id >= ?"))
+                .then(invocation -> getPartitionResults(row -> (Integer) row[0] >= 2));
         }
 
         @Override
@@ -450,6 +525,45 @@ public class GetTableDataTest {
          * @throws SQLException never
          */
         ResultSet getSimpleResults() throws SQLException {
+            return getSimpleResults(row -> true);
+        }
+
+        /**
+         * Creates a result set with the smallest and largest id of the simple results.
+         *
+         * @return a new result set
+         * @throws SQLException never
+         */
+        ResultSet getBoundsResults() throws SQLException {
+            final ResultSetMetaData metadata = Mockito.mock(ResultSetMetaData.class);
+            Mockito.when(metadata.getColumnCount()).thenReturn(2);
+            Mockito.when(metadata.getColumnType(1)).thenReturn(Types.INTEGER);
+            Mockito.when(metadata.getColumnType(2)).thenReturn(Types.INTEGER);
+
+            return getResultSet(metadata, new Object[][]{new Object[]{1, 2}});
+        }
+
+        /**
+         * Creates a prepared statement selecting a partition of the simple results.
+         *
+         * @param filter selects the rows in the partition
+         * @return a new prepared statement
+         * @throws SQLException never
+         */
+        PreparedStatement getPartitionResults(@Nonnull final Predicate<Object[]> filter) throws SQLException {
+            final PreparedStatement preparedStatement = Mockito.mock(PreparedStatement.class);
+            Mockito.when(preparedStatement.executeQuery()).then(invocation -> getSimpleResults(filter));
+            return preparedStatement;
+        }
+
+        /**
+         * Creates a simple result set containing the rows that match the filter.
+         *
+         * @param filter selects the rows
+         * @return a new result set
+         * @throws SQLException never
+         */
+        ResultSet getSimpleResults(@Nonnull final Predicate<Object[]> filter) throws SQLException {
             final ResultSetMetaData metadata = Mockito.mock(ResultSetMetaData.class);
             Mockito.when(metadata.getColumnCount()).thenReturn(5);
             Mockito.when(metadata.getColumnName(1)).thenReturn("id");
@@ -469,7 +583,100 @@ public class GetTableDataTest {
                 new Object[]{2, "Jon", "Stephens", "Jon.Stephens@sakilastaff.com", new Timestamp(1139975836000L)}
             };
 
-            return getResultSet(metadata, rows);
+            return getResultSet(metadata, Stream.of(rows).filter(filter).toArray(Object[][]::new));
+        }
+    }
+
+    /**
+     * A mock implementation of {@link DBCPService} with a limited number of connections to a table {@code wide} with the ids 1 to 4.
+     */
+    private class PooledDBCPService extends MockDBCPService {
+
+        /**
+         * Size in characters of the payload column of each row
+         */
+        static final int PAYLOAD_SIZE = 2 * 1024 * 1024;
+
+        /**
+         * Connections that are not in use
+         */
+        final BlockingQueue<Connection> available = new LinkedBlockingQueue<>();
+
+        /**
+         * Number of connections in use
+         */
+        final AtomicInteger inUse = new AtomicInteger();
+
+        /**
+         * Largest number of connections in use at the same time
+         */
+        final AtomicInteger maxInUse = new AtomicInteger();
+
+        /**
+         * Constructs a {@code PooledDBCPService} with the specified number of connections.
+         */
+        PooledDBCPService(final int maxConnections) throws Exception {
+            for (int i = 0; i < maxConnections; i++) {
+                final Connection pooled = Mockito.mock(Connection.class);
+                final Statement boundsStatement = Mockito.mock(Statement.class);
+                Mockito.when(pooled.createStatement()).thenReturn(boundsStatement);
+                Mockito.when(boundsStatement.executeQuery("SELECT MIN(id), MAX(id) FROM wide")).then(invocation -> getResultSet(getBoundsResults().getMetaData(), new Object[][]{new Object[]{1, 4}}));
+                Mockito.when(pooled.prepareStatement(Mockito.anyString())).then(invocation -> getWideResults(invocation.getArgumentAt(0, String.class)));
+                Mockito.doAnswer(invocation -> {
+                    inUse.decrementAndGet();
+                    available.add(pooled);
+                    return null;
+                }).when(pooled).close();
+                available.add(pooled);
+            }
+        }
+
+        @Override
+        public Connection getConnection() {
+            final Connection pooled;
+            try {
+                pooled = available.poll(10, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                throw new ProcessException(e);
+            }
+            if (pooled == null) {
+                throw new ProcessException("Timed out waiting for a connection");
+            }
+            maxInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+            return pooled;
+        }
+
+        /**
+         * Creates a prepared statement selecting the rows of the wide table within the range of the partition query.
+         *
+         * @param sql the partition query
+         * @return a new prepared statement
+         * @throws SQLException never
+         */
+        PreparedStatement getWideResults(@Nonnull final String sql) throws SQLException {
+            final ResultSetMetaData metadata = Mockito.mock(ResultSetMetaData.class);
+            Mockito.when(metadata.getColumnCount()).thenReturn(2);
+            Mockito.when(metadata.getColumnName(1)).thenReturn("id");
+            Mockito.when(metadata.getColumnName(2)).thenReturn("payload");
+            Mockito.when(metadata.getColumnType(1)).thenReturn(Types.INTEGER);
+            Mockito.when(metadata.getColumnType(2)).thenReturn(Types.VARCHAR);
+
+            final long[] bounds = {Long.MIN_VALUE, Long.MAX_VALUE};
+            final boolean upperOnly = sql.contains("IS NULL");
+            final PreparedStatement preparedStatement = Mockito.mock(PreparedStatement.class);
+            Mockito.doAnswer(invocation -> {
+                final int parameter = invocation.getArgumentAt(0, Integer.class);
+                bounds[(upperOnly || parameter == 2) ? 1 : 0] = invocation.getArgumentAt(1, Long.class);
+                return null;
+            }).when(preparedStatement).setLong(Mockito.anyInt(), Mockito.anyLong());
+            Mockito.when(preparedStatement.executeQuery()).then(invocation -> {
+                final Object[][] rows = LongStream.rangeClosed(1, 4)
+                    .filter(id -> id >= bounds[0] && id < bounds[1])
+                    .mapToObj(id -> new Object[]{(int) id, StringUtils.repeat('x', PAYLOAD_SIZE)})
+                    .toArray(Object[][]::new);
+                return getResultSet(metadata, rows);
+            });
+            return preparedStatement;
         }
     }
 
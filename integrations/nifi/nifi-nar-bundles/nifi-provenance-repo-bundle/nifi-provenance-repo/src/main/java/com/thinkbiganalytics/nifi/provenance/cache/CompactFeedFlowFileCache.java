@@ -0,0 +1,639 @@
+package com.thinkbiganalytics.nifi.provenance.cache;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-repo
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.AggregationEventProcessingStats;
+import com.thinkbiganalytics.nifi.provenance.model.FeedFlowFile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * A bounded alternative to the {@link FeedFlowFileGuavaCache}.
+ *
+ * Only the root {@link FeedFlowFile} objects are held on the heap.  Every flow file id is stored in a {@link FlowFileIdIndex} pointing to a long handle for its root,
+ * and the child ids of each root are kept as pairs of longs so they can be removed when the root completes.
+ * Roots are added to a completion index when {@link #markUpdated(FeedFlowFile)} finds them complete so the {@link #expire()} timer does not need to scan the cache.
+ *
+ * When the number of roots or their estimated size exceeds the configured bounds the least recently updated roots are spilled to the {@link FeedFlowFileOverflowStore}
+ * and read back the next time an event for the flow is processed.
+ *
+ * Roots restored from the MapDB cache when NiFi starts may belong to flow files that were dropped while NiFi was down.  These are removed by {@link #expire()}
+ * if they are not accessed within the restored idle time.
+ */
+public class CompactFeedFlowFileCache implements FeedFlowFileCache {
+
+    private static final Logger log = LoggerFactory.getLogger(CompactFeedFlowFileCache.class);
+
+    /**
+     * Estimated heap used by a root FeedFlowFile with no children
+     */
+    static final long ROOT_BYTES = 1024L;
+
+    /**
+     * Estimated heap used by each child flow file tracked in the maps of a root FeedFlowFile
+     */
+    static final long CHILD_BYTES = 400L;
+
+    /**
+     * Roots updated within this time are not spilled
+     */
+    private static final long MIN_IDLE_MILLIS = 30 * 1000L;
+
+    /**
+     * Spill down to this fraction of the bounds so spilling does not run on every check
+     */
+    private static final double SPILL_TARGET = 0.9;
+
+    /**
+     * Default time a root restored from the MapDB cache is kept without being accessed
+     */
+    static final long DEFAULT_RESTORED_IDLE_SECONDS = 24 * 60 * 60L;
+
+    private final FlowFileIdIndex index = new FlowFileIdIndex(1024);
+
+    private final Map<Long, RootEntry> rootsByHandle = new HashMap<>();
+
+    private final Map<String, RootEntry> rootsById = new HashMap<>();
+
+    /**
+     * handles of the roots that are complete and ready to be expired
+     */
+    private final Set<Long> completedRoots = new LinkedHashSet<>();
+
+    private final List<FeedFlowFileCacheListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Where flow files are spilled when the bounds are exceeded.  If there is no store everything is kept in memory
+     */
+    @Autowired(required = false)
+    private FeedFlowFileOverflowStore overflowStore;
+
+    private final int maxFlowFiles;
+
+    private final long maxBytes;
+
+    /**
+     * Roots restored from the MapDB cache that are not accessed within this time are removed
+     */
+    private final long restoredIdleMillis;
+
+    private long nextHandle = 0;
+
+    private int inMemoryFlowFiles = 0;
+
+    private long inMemoryBytes = 0;
+
+    private long spillCount = 0;
+
+    private long reloadCount = 0;
+
+    private long expiredCount = 0;
+
+    /**
+     * The amount of time the expire thread should run to check and expire the feed flow files
+     */
+    private Integer expireTimerCheckSeconds = 10;
+
+    /**
+     * The last time the summary was printed
+     */
+    private long lastPrintLogTime = 0;
+
+    /**
+     * How often should the summary of whats in the cache be logged
+     * Every 5 minutes
+     */
+    private Long PRINT_LOG_MILLIS = 60 * 5000L;
+
+    /**
+     * @param maxFlowFiles        the maximum number of root flow files to hold in memory
+     * @param maxBytes            the maximum estimated bytes of root flow files to hold in memory
+     * @param restoredIdleSeconds the time a root restored from the MapDB cache is kept without being accessed
+     */
+    public CompactFeedFlowFileCache(int maxFlowFiles, long maxBytes, long restoredIdleSeconds) {
+        this(null, maxFlowFiles, maxBytes, restoredIdleSeconds, true);
+    }
+
+    CompactFeedFlowFileCache(FeedFlowFileOverflowStore overflowStore, int maxFlowFiles, long maxBytes, boolean startTimer) {
+        this(overflowStore, maxFlowFiles, maxBytes, DEFAULT_RESTORED_IDLE_SECONDS, startTimer);
+    }
+
+    CompactFeedFlowFileCache(FeedFlowFileOverflowStore overflowStore, int maxFlowFiles, long maxBytes, long restoredIdleSeconds, boolean startTimer) {
+        this.overflowStore = overflowStore;
+        this.maxFlowFiles = maxFlowFiles;
+        this.maxBytes = maxBytes;
+        this.restoredIdleMillis = TimeUnit.SECONDS.toMillis(restoredIdleSeconds);
+        log.info("Created new CompactFeedFlowFileCache holding at most {} flow files / {} bytes in memory, running timer every {} seconds to check and expire finished flow files", maxFlowFiles,
+                 maxBytes, expireTimerCheckSeconds);
+        if (startTimer) {
+            initTimerThread();
+        }
+    }
+
+    @Override
+    public void subscribe(FeedFlowFileCacheListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public synchronized boolean isCached(String flowFileId) {
+        return findRoot(flowFileId) != null;
+    }
+
+    /**
+     * Get a FeedFlowFile from the cache, reading it back from the {@link FeedFlowFileOverflowStore} if it was spilled.
+     * If the FeedFlowFile is not there it will return  null
+     */
+    @Override
+    public synchronized FeedFlowFile getEntry(String id) {
+        RootEntry root = findRoot(id);
+        return root != null ? load(root) : null;
+    }
+
+    /**
+     * Return the root FeedFlowFiles held in memory.  Spilled flow files are not included.
+     */
+    @Override
+    public synchronized Collection<FeedFlowFile> getFlowFiles() {
+        return rootsByHandle.values().stream().filter(RootEntry::isInMemory).map(root -> root.flowFile).collect(Collectors.toList());
+    }
+
+    @Override
+    public synchronized void add(String flowFileId, FeedFlowFile feedFlowFile) {
+        RootEntry root = rootFor(feedFlowFile);
+        if (!flowFileId.equals(root.id)) {
+            RootEntry previousRoot = rootsById.get(flowFileId);
+            if (previousRoot != null) {
+                //the flow file was a root and is now the child of another flow
+                moveToRoot(previousRoot, root);
+            }
+            long previous;
+            boolean uuid = index.parse(flowFileId);
+            if (uuid) {
+                previous = index.put(index.getParsedMostSigBits(), index.getParsedLeastSigBits(), root.handle);
+            } else {
+                previous = index.put(flowFileId, root.handle);
+            }
+            if (previous != root.handle) {
+                if (uuid) {
+                    root.addChild(index.getParsedMostSigBits(), index.getParsedLeastSigBits());
+                } else {
+                    root.addChild(flowFileId);
+                }
+                inMemoryBytes += CHILD_BYTES;
+            }
+        }
+        root.lastUpdated = System.currentTimeMillis();
+    }
+
+    /**
+     * Record the update time, add the root to the completion index if it is complete and notify the listeners
+     */
+    @Override
+    public void markUpdated(FeedFlowFile feedFlowFile) {
+        synchronized (this) {
+            RootEntry root = rootsById.get(feedFlowFile.getId());
+            if (root != null) {
+                root.lastUpdated = System.currentTimeMillis();
+                if (feedFlowFile.isFeedComplete()) {
+                    completedRoots.add(root.handle);
+                }
+            }
+        }
+        listeners.stream().forEach(flowFileCacheListener -> flowFileCacheListener.onUpdate(feedFlowFile));
+    }
+
+    @Override
+    public synchronized List<FeedFlowFile> getCompletedFeedFlowFiles() {
+        List<FeedFlowFile> completed = new ArrayList<>(completedRoots.size());
+        for (Long handle : completedRoots) {
+            RootEntry root = rootsByHandle.get(handle);
+            if (root != null && root.isInMemory() && root.flowFile.isFeedComplete()) {
+                completed.add(root.flowFile);
+            }
+        }
+        return completed;
+    }
+
+    @Override
+    public void invalidate(FeedFlowFile flowFile) {
+        if (flowFile != null && flowFile.isFeedComplete()) {
+            synchronized (this) {
+                RootEntry root = rootsById.get(flowFile.getId());
+                if (root != null) {
+                    removeRoot(root);
+                } else {
+                    index.remove(flowFile.getId());
+                }
+            }
+            listeners.stream().forEach(flowFileCacheListener -> flowFileCacheListener.onInvalidate(flowFile));
+        }
+    }
+
+    /**
+     * Remove the flow file id from the cache.  If the id is a root flow file then the root and all of its children are removed.
+     */
+    @Override
+    public synchronized void invalidate(String flowFileId) {
+        RootEntry root = rootsById.get(flowFileId);
+        if (root != null) {
+            removeRoot(root);
+        } else {
+            index.remove(flowFileId);
+        }
+    }
+
+    @Override
+    public void expire() {
+        try {
+            long start = System.currentTimeMillis();
+            List<FeedFlowFile> rootFiles = getCompletedFeedFlowFiles();
+            if (!rootFiles.isEmpty()) {
+                for (FeedFlowFile root : rootFiles) {
+                    invalidate(root);
+                }
+                synchronized (this) {
+                    expiredCount += rootFiles.size();
+                }
+                long stop = System.currentTimeMillis();
+                log.info("Time to expire {} flowfile and all references {} ms. FeedFlowFile and references left in cache: {} ", rootFiles.size(), (stop - start), getTrackedFlowFileIdCount());
+            }
+            List<FeedFlowFile> idleRestored = removeRestoredIdleBefore(System.currentTimeMillis() - restoredIdleMillis);
+            if (!idleRestored.isEmpty()) {
+                log.warn("Removed {} flow files restored from the MapDB cache that have not been accessed in {} seconds ", idleRestored.size(),
+                         TimeUnit.MILLISECONDS.toSeconds(restoredIdleMillis));
+                idleRestored.forEach(flowFile -> listeners.stream().forEach(flowFileCacheListener -> flowFileCacheListener.onInvalidate(flowFile)));
+            }
+            enforceBounds();
+            if (System.currentTimeMillis() - lastPrintLogTime > PRINT_LOG_MILLIS) {
+                printSummary();
+                lastPrintLogTime = System.currentTimeMillis();
+            }
+
+        } catch (Exception e) {
+            log.error("Error attempting to expire the CompactFeedFlowFileCache {}, {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Log the occupancy of the cache and JMS activity
+     */
+    @Override
+    public synchronized void printSummary() {
+        log.info("FeedFlowFile Cache: {} flow files in memory ({} estimated bytes), {} spilled to disk, {} flow file ids tracked ({} bytes), {} completed awaiting expiry. "
+                 + "Spilled {} times, reloaded {} times, expired {} flow files.",
+                 getInMemoryFlowFileCount(), getEstimatedBytes(), getSpilledFlowFileCount(), getTrackedFlowFileIdCount(), index.estimatedBytes(), completedRoots.size(), spillCount,
+                 reloadCount, expiredCount);
+        log.info("ProvenanceEvent JMS Stats:  Sent {} statistics events to JMS.  Sent {} batch events to JMS ", AggregationEventProcessingStats.getStreamingEventsSent(),
+                 AggregationEventProcessingStats.getBatchEventsSent());
+    }
+
+    /**
+     * Spill the least recently updated roots to the {@link FeedFlowFileOverflowStore} until the cache is back within its bounds
+     */
+    synchronized void enforceBounds() {
+        spillIdleBefore(System.currentTimeMillis() - MIN_IDLE_MILLIS);
+    }
+
+    /**
+     * Spill roots last updated before the given time until the cache is back within its bounds
+     */
+    synchronized void spillIdleBefore(long idleBefore) {
+        if (inMemoryFlowFiles <= maxFlowFiles && inMemoryBytes <= maxBytes) {
+            return;
+        }
+        if (overflowStore == null) {
+            log.warn("FeedFlowFile Cache has {} flow files ({} estimated bytes) in memory exceeding its bounds of {} flow files / {} bytes, but there is no overflow store to spill to.",
+                     inMemoryFlowFiles, inMemoryBytes, maxFlowFiles, maxBytes);
+            return;
+        }
+        List<RootEntry> candidates = rootsByHandle.values().stream()
+            .filter(root -> root.isInMemory() && root.lastUpdated < idleBefore && !completedRoots.contains(root.handle))
+            .sorted(Comparator.comparingLong(root -> root.lastUpdated))
+            .collect(Collectors.toList());
+        int spilled = 0;
+        for (RootEntry root : candidates) {
+            if (inMemoryFlowFiles <= maxFlowFiles * SPILL_TARGET && inMemoryBytes <= maxBytes * SPILL_TARGET) {
+                break;
+            }
+            try {
+                overflowStore.write(root.flowFile);
+            } catch (Exception e) {
+                log.error("Unable to spill flow file {} to the overflow store. {} ", root.id, e.getMessage(), e);
+                break;
+            }
+            inMemoryFlowFiles--;
+            inMemoryBytes -= root.estimatedBytes();
+            root.flowFile = null;
+            spilled++;
+        }
+        spillCount += spilled;
+        log.info("Spilled {} idle flow files to disk. {} flow files ({} estimated bytes) remain in memory ", spilled, inMemoryFlowFiles, inMemoryBytes);
+    }
+
+    /**
+     * Remove the roots restored from the MapDB cache that have not been accessed since the given time
+     *
+     * @return the removed flow files, read back from the overflow store if they were spilled
+     */
+    synchronized List<FeedFlowFile> removeRestoredIdleBefore(long idleBefore) {
+        List<RootEntry> idle = rootsByHandle.values().stream()
+            .filter(root -> root.restored && root.lastUpdated < idleBefore)
+            .collect(Collectors.toList());
+        List<FeedFlowFile> removed = new ArrayList<>(idle.size());
+        for (RootEntry root : idle) {
+            FeedFlowFile flowFile = load(root);
+            if (flowFile != null) {
+                removeRoot(root);
+                removed.add(flowFile);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * @return the number of root flow files held in memory
+     */
+    public synchronized int getInMemoryFlowFileCount() {
+        return inMemoryFlowFiles;
+    }
+
+    /**
+     * @return the number of root flow files spilled to the overflow store
+     */
+    public synchronized int getSpilledFlowFileCount() {
+        return rootsByHandle.size() - inMemoryFlowFiles;
+    }
+
+    /**
+     * @return the number of flow file ids, roots and children, in the cache
+     */
+    public synchronized int getTrackedFlowFileIdCount() {
+        return index.size();
+    }
+
+    /**
+     * @return the estimated heap used by the in memory flow files and the index
+     */
+    public synchronized long getEstimatedBytes() {
+        long childLinkBytes = rootsByHandle.values().stream().mapToLong(RootEntry::linkBytes).sum();
+        return inMemoryBytes + index.estimatedBytes() + childLinkBytes;
+    }
+
+    /**
+     * @return the number of times a flow file was spilled to the overflow store
+     */
+    public synchronized long getSpillCount() {
+        return spillCount;
+    }
+
+    /**
+     * @return the number of times a spilled flow file was read back from the overflow store
+     */
+    public synchronized long getReloadCount() {
+        return reloadCount;
+    }
+
+    private RootEntry findRoot(String flowFileId) {
+        long handle = index.get(flowFileId);
+        if (handle == FlowFileIdIndex.NO_VALUE) {
+            return null;
+        }
+        RootEntry root = rootsByHandle.get(handle);
+        if (root == null) {
+            index.remove(flowFileId);
+        }
+        return root;
+    }
+
+    /**
+     * Get the flow file for the root, reading it back from the overflow store if it was spilled
+     */
+    private FeedFlowFile load(RootEntry root) {
+        if (!root.isInMemory()) {
+            FeedFlowFile flowFile = overflowStore != null ? overflowStore.take(root.id) : null;
+            if (flowFile == null) {
+                log.warn("Unable to find the spilled flow file {} in the overflow store.  Removing it from the cache ", root.id);
+                removeRoot(root);
+                return null;
+            }
+            root.flowFile = flowFile;
+            inMemoryFlowFiles++;
+            inMemoryBytes += root.estimatedBytes();
+            reloadCount++;
+        }
+        root.lastUpdated = System.currentTimeMillis();
+        return root.flowFile;
+    }
+
+    /**
+     * Find or create the root entry for the flow file
+     */
+    private RootEntry rootFor(FeedFlowFile feedFlowFile) {
+        RootEntry root = rootsById.get(feedFlowFile.getId());
+        boolean created = false;
+        if (root == null) {
+            root = new RootEntry(nextHandle++, feedFlowFile.getId());
+            root.restored = feedFlowFile.isBuiltFromMapDb();
+            rootsByHandle.put(root.handle, root);
+            rootsById.put(root.id, root);
+            index.put(root.id, root.handle);
+            created = true;
+        }
+        if (root.flowFile != feedFlowFile) {
+            if (root.isInMemory()) {
+                inMemoryBytes -= root.estimatedBytes();
+            } else {
+                if (!created && overflowStore != null) {
+                    //the spilled copy is replaced by this flow file
+                    overflowStore.remove(root.id);
+                }
+                inMemoryFlowFiles++;
+            }
+            root.flowFile = feedFlowFile;
+            inMemoryBytes += root.estimatedBytes();
+        }
+        return root;
+    }
+
+    /**
+     * Remove a root that has become the child of another root, pointing its children to the new root
+     */
+    private void moveToRoot(RootEntry previousRoot, RootEntry root) {
+        rootsByHandle.remove(previousRoot.handle);
+        rootsById.remove(previousRoot.id);
+        completedRoots.remove(previousRoot.handle);
+        for (int i = 0; i < previousRoot.childCount; i++) {
+            long msb = previousRoot.children[i * 2];
+            long lsb = previousRoot.children[i * 2 + 1];
+            if (index.get(msb, lsb) == previousRoot.handle) {
+                index.put(msb, lsb, root.handle);
+                root.addChild(msb, lsb);
+                inMemoryBytes += CHILD_BYTES;
+            }
+        }
+        if (previousRoot.otherChildren != null) {
+            for (String childId : previousRoot.otherChildren) {
+                if (index.get(childId) == previousRoot.handle) {
+                    index.put(childId, root.handle);
+                    root.addChild(childId);
+                    inMemoryBytes += CHILD_BYTES;
+                }
+            }
+        }
+        if (previousRoot.isInMemory()) {
+            inMemoryFlowFiles--;
+            inMemoryBytes -= previousRoot.estimatedBytes();
+        } else if (overflowStore != null) {
+            overflowStore.remove(previousRoot.id);
+        }
+    }
+
+    /**
+     * Remove the root and all of its children that still point to it
+     */
+    private void removeRoot(RootEntry root) {
+        rootsByHandle.remove(root.handle);
+        rootsById.remove(root.id);
+        completedRoots.remove(root.handle);
+        index.remove(root.id, root.handle);
+        root.removeChildren(index);
+        if (root.isInMemory()) {
+            if (root.flowFile.getChildFlowFiles() != null) {
+                root.flowFile.getChildFlowFiles().forEach(childId -> index.remove(childId, root.handle));
+            }
+            inMemoryFlowFiles--;
+            inMemoryBytes -= root.estimatedBytes();
+        } else if (overflowStore != null) {
+            overflowStore.remove(root.id);
+        }
+    }
+
+    /**
+     * Start the timer thread using the {@link this#expireTimerCheckSeconds} as the schedule interval in SECONDS
+     */
+    private void initTimerThread() {
+        ScheduledExecutorService service = Executors.newSingleThreadScheduledExecutor();
+        service.scheduleAtFixedRate(() -> {
+            expire();
+        }, expireTimerCheckSeconds, expireTimerCheckSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * A root flow file along with the ids of its children
+     */
+    private static class RootEntry {
+
+        private final long handle;
+
+        private final String id;
+
+        /**
+         * the flow file, or null if it has been spilled
+         */
+        private FeedFlowFile flowFile;
+
+        /**
+         * child flow file ids stored as pairs of UUID halves
+         */
+        private long[] children = new long[0];
+
+        private int childCount;
+
+        /**
+         * child flow file ids that are not UUIDs
+         */
+        private List<String> otherChildren;
+
+        /**
+         * the last time the root was added, updated or read
+         */
+        private long lastUpdated = System.currentTimeMillis();
+
+        /**
+         * true if the root was restored from the MapDB cache
+         */
+        private boolean restored;
+
+        RootEntry(long handle, String id) {
+            this.handle = handle;
+            this.id = id;
+        }
+
+        boolean isInMemory() {
+            return flowFile != null;
+        }
+
+        void addChild(long msb, long lsb) {
+            if ((childCount + 1) * 2 > children.length) {
+                children = Arrays.copyOf(children, Math.max(8, children.length * 2));
+            }
+            children[childCount * 2] = msb;
+            children[childCount * 2 + 1] = lsb;
+            childCount++;
+        }
+
+        void addChild(String flowFileId) {
+            if (otherChildren == null) {
+                otherChildren = new ArrayList<>();
+            }
+            otherChildren.add(flowFileId);
+        }
+
+        void removeChildren(FlowFileIdIndex index) {
+            for (int i = 0; i < childCount; i++) {
+                index.remove(children[i * 2], children[i * 2 + 1], handle);
+            }
+            if (otherChildren != null) {
+                otherChildren.forEach(childId -> index.remove(childId, handle));
+            }
+        }
+
+        int getChildCount() {
+            return childCount + (otherChildren != null ? otherChildren.size() : 0);
+        }
+
+        long estimatedBytes() {
+            return ROOT_BYTES + CHILD_BYTES * getChildCount();
+        }
+
+        long linkBytes() {
+            return children.length * 8L;
+        }
+    }
+}
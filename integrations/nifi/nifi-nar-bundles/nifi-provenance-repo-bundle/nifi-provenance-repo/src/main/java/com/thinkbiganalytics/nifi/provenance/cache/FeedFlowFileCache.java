@@ -0,0 +1,103 @@
+package com.thinkbiganalytics.nifi.provenance.cache;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-repo
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.model.FeedFlowFile;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Cache relating every flow file id in a running feed to its root {@link FeedFlowFile}.
+ * Completed {@link FeedFlowFile}s are removed from the cache by the {@link #expire()} timer.
+ */
+public interface FeedFlowFileCache {
+
+    /**
+     * A listener can subscribe to the invalidate calls on the cache.
+     * the {@link FeedFlowFileMapDbCache} subscribes to this cache to get messages and invalidate the files persisted on disk when they are completed.
+     */
+    void subscribe(FeedFlowFileCacheListener listener);
+
+    /**
+     * Check to see if a given flowfile is in the cache
+     *
+     * @return true if in the cache, false if not
+     */
+    boolean isCached(String flowFileId);
+
+    /**
+     * Get a FeedFlowFile from the cache.
+     * If the FeedFlowFile is not there it will return  null
+     *
+     * @return the FeedFlowFile, or null if not present
+     */
+    FeedFlowFile getEntry(String id);
+
+    /**
+     * Return all the FeedFlowFiles held in memory by the cache
+     */
+    Collection<FeedFlowFile> getFlowFiles();
+
+    /**
+     * Add a FeedFlowFile to the cache
+     *
+     * @param flowFileId   the id of the flowfile
+     * @param feedFlowFile the FeedFlowFile to relate/add to the cache
+     */
+    void add(String flowFileId, FeedFlowFile feedFlowFile);
+
+    /**
+     * Notify the cache that an event has been applied to the FeedFlowFile
+     *
+     * @param feedFlowFile the FeedFlowFile that was updated
+     */
+    void markUpdated(FeedFlowFile feedFlowFile);
+
+    /**
+     * Return all the FeedFlowFiles in the cache that are complete and Done.
+     *
+     * @return the flow files that are completed
+     */
+    List<FeedFlowFile> getCompletedFeedFlowFiles();
+
+    /**
+     * Invalidate and remove the given FeedFlowFile from the cache
+     *
+     * @param flowFile the flow file to invalidate/remove
+     */
+    void invalidate(FeedFlowFile flowFile);
+
+    /**
+     * Invalidate and remove the flowfile from the cache
+     */
+    void invalidate(String flowFileId);
+
+    /**
+     * Expire any completed FeedFlowFiles checking the {@link FeedFlowFile#isFeedComplete()} to determine if the FeedFlowFile is complete
+     */
+    void expire();
+
+    /**
+     * Log some summary data about the cache
+     */
+    void printSummary();
+}
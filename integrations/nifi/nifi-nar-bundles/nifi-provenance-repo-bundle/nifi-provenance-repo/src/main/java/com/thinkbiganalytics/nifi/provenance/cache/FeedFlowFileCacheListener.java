@@ -29,4 +29,9 @@ public interface FeedFlowFileCacheListener {
 
     void onInvalidate(FeedFlowFile flowFile);
 
+    /**
+     * Called after an event has been applied to the flow file
+     */
+    void onUpdate(FeedFlowFile flowFile);
+
 }
@@ -44,7 +44,7 @@ public class FeedFlowFileCacheUtil {
     ProvenanceFeedLookup provenanceFeedLookup;
 
     @Autowired
-    FeedFlowFileGuavaCache flowFileGuavaCache;
+    FeedFlowFileCache flowFileCache;
 
     // internal counters for general stats
     AtomicLong eventCounter = new AtomicLong(0L);
@@ -66,7 +66,7 @@ public class FeedFlowFileCacheUtil {
     public void cacheAndBuildFlowFileGraph(ProvenanceEventRecordDTO event) {
 
         // Get the FlowFile from the Cache.  It is LoadingCache so if the file is new the Cache will create it
-        FeedFlowFileGuavaCache flowFileCache = flowFileGuavaCache;
+        FeedFlowFileCache flowFileCache = this.flowFileCache;
 
         //An event is the very first in the flow if it is a CREATE or RECEIVE event and if there are no Parent flow files
         //This indicates the start of a Job.
@@ -166,6 +166,7 @@ public class FeedFlowFileCacheUtil {
                 event.getFeedFlowFile().incrementFailedEvents();
             }
         }
+        flowFileCache.markUpdated(feedFlowFile);
 
         if (event.isEndingFlowFileEvent() && feedFlowFile.isFeedComplete()) {
             event.setIsEndOfJob(true);
@@ -49,7 +49,7 @@ import java.util.stream.Collectors;
  * com.thinkbiganalytics.nifi.provenance.reporting.KyloProvenanceEventReportingTask#onShutdown(ConfigurationContext)} This is to ensure that on startup of NiFi the tracking of the running flow files
  * is kept in tact When NiFi starts the persisted disk cache is checked and loaded back into this cache via the {@link KyloProvenanceEventReportingTask#onConfigurationRestored()}
  */
-public class FeedFlowFileGuavaCache {
+public class FeedFlowFileGuavaCache implements FeedFlowFileCache {
 
     private static final Logger log = LoggerFactory.getLogger(FeedFlowFileGuavaCache.class);
     /**
@@ -84,6 +84,7 @@ public class FeedFlowFileGuavaCache {
      * A listener can subscribe to the invalidate calls on the cache.
      * the {@link FeedFlowFileMapDbCache} subscribes to this cache to get messages and invalidate the files persisted on disk when they are completed.
      */
+    @Override
     public void subscribe(FeedFlowFileCacheListener listener) {
         listeners.add(listener);
     }
@@ -93,6 +94,7 @@ public class FeedFlowFileGuavaCache {
      *
      * @return true if in the cache, false if not
      */
+    @Override
     public boolean isCached(String flowFileId) {
         return cache.getIfPresent(flowFileId) != null;
     }
@@ -104,6 +106,7 @@ public class FeedFlowFileGuavaCache {
      *
      * @return the FeedFlowFile, or null if not present
      */
+    @Override
     public FeedFlowFile getEntry(String id) {
         return cache.getIfPresent(id);
     }
@@ -112,6 +115,7 @@ public class FeedFlowFileGuavaCache {
     /**
      * Return all the FeedFlowFiles in the cache
      */
+    @Override
     public Collection<FeedFlowFile> getFlowFiles() {
         return new HashSet<>(cache.asMap().values());
     }
@@ -122,16 +126,27 @@ public class FeedFlowFileGuavaCache {
      * @param flowFileId   the id of the flowfile
      * @param feedFlowFile the FeedFlowFile to relate/add to the cache
      */
+    @Override
     public void add(String flowFileId, FeedFlowFile feedFlowFile) {
         cache.put(flowFileId, feedFlowFile);
     }
 
 
+    /**
+     * Notify the listeners of the update.
+     * The completed flow files are found by scanning the whole cache in {@link #getCompletedFeedFlowFiles()}
+     */
+    @Override
+    public void markUpdated(FeedFlowFile feedFlowFile) {
+        listeners.stream().forEach(flowFileCacheListener -> flowFileCacheListener.onUpdate(feedFlowFile));
+    }
+
     /**
      * Return all the FeedFlowFiles in the cache that are complete and Done.
      *
      * @return the flow files that are completed
      */
+    @Override
     public List<FeedFlowFile> getCompletedFeedFlowFiles() {
         return getFlowFiles().stream().filter(flowFile -> (flowFile.isFeedComplete())).collect(Collectors.toList());
     }
@@ -142,6 +157,7 @@ public class FeedFlowFileGuavaCache {
      *
      * @param flowFile the flow file to invalidate/remove
      */
+    @Override
     public void invalidate(FeedFlowFile flowFile) {
         if (flowFile != null && flowFile.isFeedComplete()) {
             invalidate(flowFile.getId());
@@ -155,6 +171,7 @@ public class FeedFlowFileGuavaCache {
     /**
      * Invalidate and remove the flowfile from the cache
      */
+    @Override
     public void invalidate(String flowFileId) {
         cache.invalidate(flowFileId);
     }
@@ -163,6 +180,7 @@ public class FeedFlowFileGuavaCache {
     /**
      * Expire any completed FeedFlowFiles checking the {@link FeedFlowFile#isFeedComplete()} to determine if the FeedFlowFile is complete
      */
+    @Override
     public void expire() {
         try {
             long start = System.currentTimeMillis();
@@ -189,6 +207,7 @@ public class FeedFlowFileGuavaCache {
     /**
      * Log some summary data about the cache and JMS activity
      */
+    @Override
     public void printSummary() {
         Map<String, FeedFlowFile> map = cache.asMap();
         log.info("FeedFlowFile Cache Size: {}  ", map.size());
@@ -30,17 +30,28 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.PostConstruct;
 
 /**
- * Persist any running flowfiles to disk when NiFi shuts down to maintain the processing feed status when NiFi comes back up
+ * Persist any running flowfiles to disk to maintain the processing feed status when NiFi comes back up.
+ * Flow files updated since the last checkpoint are written to disk periodically by {@link #checkpointIfDue()} so a crash only loses the updates since the last checkpoint,
+ * and the remaining updates are written when NiFi shuts down.
+ * The persistent map is also used as the {@link FeedFlowFileOverflowStore} for flow files spilled from a bounded {@link FeedFlowFileCache}
  */
-public class FeedFlowFileMapDbCache implements FeedFlowFileCacheListener {
+public class FeedFlowFileMapDbCache implements FeedFlowFileCacheListener, FeedFlowFileOverflowStore {
 
     private static final Logger log = LoggerFactory.getLogger(FeedFlowFileMapDbCache.class);
 
@@ -67,15 +78,70 @@ public class FeedFlowFileMapDbCache implements FeedFlowFileCacheListener {
 
 
     @Autowired
-    private FeedFlowFileGuavaCache cache;
+    private FeedFlowFileCache cache;
 
     private int expireAfterNumber = 3;
 
     private TimeUnit expireAfterUnit = TimeUnit.DAYS;
 
+    /**
+     * Flow files updated since the last checkpoint
+     */
+    private final Map<String, FeedFlowFile> dirtyFlowFiles = new ConcurrentHashMap<>();
+
+    /**
+     * Flow files completed since the last checkpoint that need to be removed from disk
+     */
+    private final Set<String> removedFlowFiles = ConcurrentHashMap.newKeySet();
+
+    /**
+     * How often the dirty flow files are written to disk.  0 or less will only write them on shutdown
+     */
+    private long checkpointIntervalMillis;
+
+    /**
+     * The number of threads used to load the persisted flow files on startup
+     */
+    private int restoreThreads;
+
+    /**
+     * The maximum time to wait for the persisted flow files to load on startup
+     */
+    private int restoreTimeoutSeconds;
+
+    private volatile boolean closed = false;
+
+    private long lastCheckpointTime = System.currentTimeMillis();
+
+    private long lastCheckpointDurationMillis;
+
+    private int lastCheckpointWritten;
+
+    private int lastCheckpointRemoved;
+
+    private long checkpointCount;
+
+    private long lastRestoreDurationMillis;
+
+    private int lastRestoreCount;
+
 
     public FeedFlowFileMapDbCache(String fileLocation) {
-        log.info("Initialize FeedFlowFileMapDbCache cache at: {}, keeping running flowfiles for {} days", fileLocation, expireAfterNumber);
+        this(fileLocation, 60, 4, 300);
+    }
+
+    /**
+     * @param fileLocation              the file to persist the flow files to
+     * @param checkpointIntervalSeconds how often the updated flow files are written to disk. 0 or less will only write them on shutdown
+     * @param restoreThreads            the number of threads used to load the persisted flow files on startup
+     * @param restoreTimeoutSeconds     the maximum time to wait for the persisted flow files to load on startup
+     */
+    public FeedFlowFileMapDbCache(String fileLocation, int checkpointIntervalSeconds, int restoreThreads, int restoreTimeoutSeconds) {
+        log.info("Initialize FeedFlowFileMapDbCache cache at: {}, keeping running flowfiles for {} days, checkpointing every {} seconds", fileLocation, expireAfterNumber,
+                 checkpointIntervalSeconds);
+        this.checkpointIntervalMillis = checkpointIntervalSeconds * 1000L;
+        this.restoreThreads = Math.max(1, restoreThreads);
+        this.restoreTimeoutSeconds = restoreTimeoutSeconds;
 
         try {
             //delete the file after its loaded/opened
@@ -87,7 +153,7 @@ public class FeedFlowFileMapDbCache implements FeedFlowFileCacheListener {
                 .fileDeleteAfterOpen()
                 .closeOnJvmShutdown().make();
             memFeedFlowFileCache =
-                (HTreeMap<String, FeedFlowFile>) inMemoryDb.hashMap("feedFlowFile").keySerializer(Serializer.STRING).valueSerializer(Serializer.JAVA).expireAfterCreate(expireAfterNumber,
+                (HTreeMap<String, FeedFlowFile>) inMemoryDb.hashMap("feedFlowFile").keySerializer(Serializer.STRING).valueSerializer(new FeedFlowFileSerializer()).expireAfterCreate(expireAfterNumber,
                                                                                                                                                                         expireAfterUnit)
                     .createOrOpen();
 
@@ -99,7 +165,7 @@ public class FeedFlowFileMapDbCache implements FeedFlowFileCacheListener {
                 .checksumHeaderBypass()
                 .closeOnJvmShutdown().make();
             persistentFlowFileCache =
-                (HTreeMap<String, FeedFlowFile>) persistentDb.hashMap("feedFlowFile").keySerializer(Serializer.STRING).valueSerializer(Serializer.JAVA)
+                (HTreeMap<String, FeedFlowFile>) persistentDb.hashMap("feedFlowFile").keySerializer(Serializer.STRING).valueSerializer(new FeedFlowFileSerializer())
                     .createOrOpen();
 
             log.info("Successfully created FeedFlowFileMapDbCache cache at: {},  with starting size of: {} ", fileLocation, memFeedFlowFileCache.size());
@@ -119,7 +185,7 @@ public class FeedFlowFileMapDbCache implements FeedFlowFileCacheListener {
 
 
     /**
-     * When the {@link FeedFlowFileGuavaCache} is invalidated then it is also removed from the persistent disk storage if it exists.
+     * When the {@link FeedFlowFileCache} is invalidated then it is also removed from the persistent disk storage if it exists.
      */
     public void onInvalidate(FeedFlowFile flowFile) {
         if (flowFile.isBuiltFromMapDb()) {
@@ -130,23 +196,138 @@ public class FeedFlowFileMapDbCache implements FeedFlowFileCacheListener {
                 flowFile.getChildFlowFiles().stream().forEach(flowFileId -> memFeedFlowFileCache.remove(flowFileId));
             }
         }
+        dirtyFlowFiles.remove(flowFile.getId());
+        if (checkpointIntervalMillis > 0) {
+            //it may have been written by a previous checkpoint
+            removedFlowFiles.add(flowFile.getId());
+        }
     }
 
     /**
-     * Load the persisted cached back into the {@link FeedFlowFileGuavaCache}
+     * Track the updated flow file so it is written to disk at the next checkpoint
      */
-    public int loadGuavaCache() {
+    public void onUpdate(FeedFlowFile flowFile) {
+        dirtyFlowFiles.put(flowFile.getId(), flowFile);
+    }
 
-        memFeedFlowFileCache.values().stream().forEach(feedFlowFile -> {
-            feedFlowFile.setBuiltFromMapDb(true);
-            cache.add(feedFlowFile.getId(), feedFlowFile);
-            if (feedFlowFile.getActiveChildFlowFiles() != null) {
-                feedFlowFile.getActiveChildFlowFiles().stream().forEach(feedFlowFileId -> cache.add(feedFlowFileId, feedFlowFile));
+    /**
+     * Load the persisted cached back into the {@link FeedFlowFileCache}.
+     * The flow files are read in parallel using at most {@link #restoreThreads} threads, waiting at most {@link #restoreTimeoutSeconds} for them to load.
+     *
+     * @return the number of flow files loaded
+     */
+    public int loadGuavaCache() {
+        long start = System.currentTimeMillis();
+        List<String> flowFileIds = new ArrayList<>(memFeedFlowFileCache.keySet());
+        AtomicInteger loaded = new AtomicInteger(0);
+        if (!flowFileIds.isEmpty()) {
+            int threads = Math.min(restoreThreads, flowFileIds.size());
+            int partitionSize = (flowFileIds.size() + threads - 1) / threads;
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            for (int i = 0; i < flowFileIds.size(); i += partitionSize) {
+                List<String> partition = flowFileIds.subList(i, Math.min(i + partitionSize, flowFileIds.size()));
+                executor.submit(() -> {
+                    for (String flowFileId : partition) {
+                        if (Thread.currentThread().isInterrupted()) {
+                            break;
+                        }
+                        try {
+                            FeedFlowFile feedFlowFile = memFeedFlowFileCache.get(flowFileId);
+                            if (feedFlowFile != null) {
+                                restore(feedFlowFile);
+                                loaded.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            log.error("Unable to load the persisted flow file {}. {} ", flowFileId, e.getMessage(), e);
+                        }
+                    }
+                });
             }
-        });
-        return memFeedFlowFileCache.values().size();
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(restoreTimeoutSeconds, TimeUnit.SECONDS)) {
+                    executor.shutdownNow();
+                    log.warn("Timed out after {} seconds loading the persisted flow files.  Loaded {} of {} flow files. ", restoreTimeoutSeconds, loaded.get(), flowFileIds.size());
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+        lastRestoreDurationMillis = System.currentTimeMillis() - start;
+        lastRestoreCount = loaded.get();
+        log.info("Loaded {} persisted flow files from disk in {} ms ", lastRestoreCount, lastRestoreDurationMillis);
+        return lastRestoreCount;
+    }
 
+    /**
+     * Add the persisted flow file and its active children to the cache.
+     * It is marked dirty as the file it was read from is replaced by the persistent database
+     */
+    private void restore(FeedFlowFile feedFlowFile) {
+        feedFlowFile.setBuiltFromMapDb(true);
+        cache.add(feedFlowFile.getId(), feedFlowFile);
+        if (feedFlowFile.getActiveChildFlowFiles() != null) {
+            feedFlowFile.getActiveChildFlowFiles().stream().forEach(feedFlowFileId -> cache.add(feedFlowFileId, feedFlowFile));
+        }
+        dirtyFlowFiles.put(feedFlowFile.getId(), feedFlowFile);
+    }
 
+    /**
+     * Write the updated flow files to disk if the checkpoint interval has elapsed
+     *
+     * @return the number of flow files written, or -1 if a checkpoint was not due
+     */
+    public int checkpointIfDue() {
+        if (checkpointIntervalMillis > 0 && System.currentTimeMillis() - lastCheckpointTime >= checkpointIntervalMillis) {
+            return checkpoint();
+        }
+        return -1;
+    }
+
+    /**
+     * Write the flow files updated since the last checkpoint to disk and remove the completed flow files.
+     *
+     * @return the number of flow files written
+     */
+    public synchronized int checkpoint() {
+        if (closed) {
+            return 0;
+        }
+        long start = System.currentTimeMillis();
+        int written = 0;
+        for (String flowFileId : new ArrayList<>(dirtyFlowFiles.keySet())) {
+            FeedFlowFile flowFile = dirtyFlowFiles.remove(flowFileId);
+            if (flowFile != null) {
+                try {
+                    persistentFlowFileCache.put(flowFileId, flowFile);
+                    written++;
+                } catch (ConcurrentModificationException e) {
+                    //the flow file is being updated. It will be written at the next checkpoint
+                    dirtyFlowFiles.putIfAbsent(flowFileId, flowFile);
+                }
+            }
+        }
+        int removed = 0;
+        for (String flowFileId : new ArrayList<>(removedFlowFiles)) {
+            removedFlowFiles.remove(flowFileId);
+            if (persistentFlowFileCache.remove(flowFileId) != null) {
+                removed++;
+            }
+        }
+        if (persistentDb != null && (written > 0 || removed > 0)) {
+            persistentDb.commit();
+        }
+        lastCheckpointTime = System.currentTimeMillis();
+        lastCheckpointDurationMillis = lastCheckpointTime - start;
+        lastCheckpointWritten = written;
+        lastCheckpointRemoved = removed;
+        checkpointCount++;
+        if (written > 0 || removed > 0) {
+            log.info("Checkpoint wrote {} and removed {} flow files in {} ms.  Persisted Map Size is: {} entries ", written, removed, lastCheckpointDurationMillis,
+                     persistentFlowFileCache.size());
+        }
+        return written;
     }
 
     /**
@@ -162,25 +343,80 @@ public class FeedFlowFileMapDbCache implements FeedFlowFileCacheListener {
     }
 
     /**
-     * Persist the {@link FeedFlowFileGuavaCache} to disk
+     * Persist the {@link FeedFlowFileCache} to disk.
+     * Only the flow files updated since the last checkpoint are written. Any flow files already checkpointed or spilled to the persistent map by the cache are kept.
+     *
+     * @return the number of flow files persisted on disk
      */
-    public int persistFlowFiles() {
-        Collection<FeedFlowFile> flowFiles = cache.getFlowFiles();
-        log.info("About to persist {}  flow files to disk via MapDB ", flowFiles.size());
-        flowFiles.stream().forEach(feedFlowFile -> cacheFlowFile(feedFlowFile));
-        log.info("Successfully persisted {}  flow files to disk via MapDB.  Persisted Map Size is: {} entries ", flowFiles.size(), persistentFlowFileCache.size());
-        if (flowFiles != null && !flowFiles.isEmpty()) {
-            if (inMemoryDb != null) {
-                inMemoryDb.commit();
-                inMemoryDb.close();
-            }
-            if (persistentDb != null) {
-                persistentDb.commit();
-                persistentDb.close();
-                log.info("Successfully closed the flow file MapDB cache file.");
-            }
+    public synchronized int persistFlowFiles() {
+        if (closed) {
+            return 0;
         }
-        return flowFiles.size();
+        log.info("About to persist {} updated flow files to disk via MapDB ", dirtyFlowFiles.size());
+        checkpoint();
+        int persisted = persistentFlowFileCache.size();
+        log.info("Successfully persisted {} updated flow files to disk via MapDB in {} ms.  Persisted Map Size is: {} entries ", lastCheckpointWritten, lastCheckpointDurationMillis,
+                 persisted);
+        closed = true;
+        if (inMemoryDb != null) {
+            inMemoryDb.commit();
+            inMemoryDb.close();
+        }
+        if (persistentDb != null) {
+            persistentDb.commit();
+            persistentDb.close();
+            log.info("Successfully closed the flow file MapDB cache file.");
+        }
+        return persisted;
+    }
+
+    /**
+     * @return the number of flow files updated since the last checkpoint
+     */
+    public int getDirtyFlowFileCount() {
+        return dirtyFlowFiles.size();
+    }
+
+    /**
+     * @return the time taken by the last checkpoint
+     */
+    public long getLastCheckpointDurationMillis() {
+        return lastCheckpointDurationMillis;
+    }
+
+    /**
+     * @return the number of flow files written by the last checkpoint
+     */
+    public int getLastCheckpointWritten() {
+        return lastCheckpointWritten;
+    }
+
+    /**
+     * @return the number of completed flow files removed from disk by the last checkpoint
+     */
+    public int getLastCheckpointRemoved() {
+        return lastCheckpointRemoved;
+    }
+
+    /**
+     * @return the number of checkpoints taken
+     */
+    public long getCheckpointCount() {
+        return checkpointCount;
+    }
+
+    /**
+     * @return the time taken to load the persisted flow files on startup
+     */
+    public long getLastRestoreDurationMillis() {
+        return lastRestoreDurationMillis;
+    }
+
+    /**
+     * @return the number of persisted flow files loaded on startup
+     */
+    public int getLastRestoreCount() {
+        return lastRestoreCount;
     }
 
 
@@ -188,5 +424,25 @@ public class FeedFlowFileMapDbCache implements FeedFlowFileCacheListener {
         persistentFlowFileCache.put(flowFile.getId(), flowFile);
     }
 
+    @Override
+    public void write(FeedFlowFile flowFile) {
+        cacheFlowFile(flowFile);
+        //the spilled flow file is now on disk and should not be held in memory waiting for the next checkpoint
+        dirtyFlowFiles.remove(flowFile.getId(), flowFile);
+    }
+
+    /**
+     * When checkpointing the flow file is left on disk as its checkpoint
+     */
+    @Override
+    public FeedFlowFile take(String flowFileId) {
+        return checkpointIntervalMillis > 0 ? persistentFlowFileCache.get(flowFileId) : persistentFlowFileCache.remove(flowFileId);
+    }
+
+    @Override
+    public void remove(String flowFileId) {
+        persistentFlowFileCache.remove(flowFileId);
+    }
+
 
 }
@@ -0,0 +1,51 @@
+package com.thinkbiganalytics.nifi.provenance.cache;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-repo
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.model.FeedFlowFile;
+
+/**
+ * Storage outside of the heap for {@link FeedFlowFile}s that are spilled from a bounded {@link FeedFlowFileCache}
+ */
+public interface FeedFlowFileOverflowStore {
+
+    /**
+     * Write the flow file to the store
+     *
+     * @param flowFile the flow file to store
+     */
+    void write(FeedFlowFile flowFile);
+
+    /**
+     * Remove and return the flow file from the store
+     *
+     * @param flowFileId the id of the root flow file
+     * @return the flow file, or null if it is not in the store
+     */
+    FeedFlowFile take(String flowFileId);
+
+    /**
+     * Remove the flow file from the store
+     *
+     * @param flowFileId the id of the root flow file
+     */
+    void remove(String flowFileId);
+}
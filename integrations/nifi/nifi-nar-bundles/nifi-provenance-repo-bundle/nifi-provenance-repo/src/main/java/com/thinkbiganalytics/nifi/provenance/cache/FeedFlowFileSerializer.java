@@ -0,0 +1,61 @@
+package com.thinkbiganalytics.nifi.provenance.cache;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-repo
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.model.FeedFlowFile;
+import com.thinkbiganalytics.nifi.provenance.model.codec.FeedFlowFileCodec;
+
+import org.mapdb.DataInput2;
+import org.mapdb.DataOutput2;
+import org.mapdb.Serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+
+/**
+ * MapDB serializer writing the {@link FeedFlowFile} using the compact {@link FeedFlowFileCodec}.
+ * Flow files persisted by previous versions using Java serialization can still be read.
+ */
+public class FeedFlowFileSerializer implements Serializer<FeedFlowFile> {
+
+    @Override
+    public void serialize(DataOutput2 out, FeedFlowFile value) throws IOException {
+        out.write(FeedFlowFileCodec.encode(value));
+    }
+
+    @Override
+    public FeedFlowFile deserialize(DataInput2 input, int available) throws IOException {
+        if (available < 0) {
+            throw new IOException("Unable to read the flow file.  The size of the record is unknown");
+        }
+        byte[] bytes = new byte[available];
+        input.readFully(bytes);
+        if (FeedFlowFileCodec.isEncoded(bytes)) {
+            return FeedFlowFileCodec.decode(bytes);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (FeedFlowFile) in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unable to read the java serialized flow file", e);
+        }
+    }
+}
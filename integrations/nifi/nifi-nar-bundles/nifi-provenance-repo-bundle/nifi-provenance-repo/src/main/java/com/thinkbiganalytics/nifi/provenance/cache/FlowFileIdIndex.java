@@ -0,0 +1,311 @@
+package com.thinkbiganalytics.nifi.provenance.cache;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-repo
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Compact map of flow file id to a long value.
+ *
+ * NiFi flow file ids are UUIDs.  Rather than holding a String and a map entry object per flow file the UUID is stored as its two 64 bit halves in an open addressing table of primitive arrays.
+ * Any id that is not a UUID is kept in a regular map.
+ *
+ * This class is not thread safe.
+ */
+public class FlowFileIdIndex {
+
+    /**
+     * Value returned when an id is not in the index
+     */
+    public static final long NO_VALUE = -1L;
+
+    private static final byte FREE = 0;
+
+    private static final byte USED = 1;
+
+    private static final byte REMOVED = 2;
+
+    private static final float MAX_LOAD = 0.6f;
+
+    private long[] mostSigBits;
+
+    private long[] leastSigBits;
+
+    private long[] values;
+
+    private byte[] states;
+
+    /**
+     * number of {@link #USED} slots
+     */
+    private int size;
+
+    /**
+     * number of {@link #USED} and {@link #REMOVED} slots
+     */
+    private int occupied;
+
+    /**
+     * ids that could not be parsed as a UUID
+     */
+    private final Map<String, Long> otherIds = new HashMap<>();
+
+    /**
+     * the halves of the last parsed UUID
+     */
+    private long parsedMostSigBits;
+
+    private long parsedLeastSigBits;
+
+    public FlowFileIdIndex(int initialCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (initialCapacity / MAX_LOAD)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * @param flowFileId the flow file id
+     * @return the value for the id, or {@link #NO_VALUE} if it is not in the index
+     */
+    public long get(String flowFileId) {
+        if (parse(flowFileId)) {
+            return get(parsedMostSigBits, parsedLeastSigBits);
+        }
+        Long value = otherIds.get(flowFileId);
+        return value != null ? value : NO_VALUE;
+    }
+
+    /**
+     * @return the value for the UUID halves, or {@link #NO_VALUE} if it is not in the index
+     */
+    public long get(long msb, long lsb) {
+        int slot = find(msb, lsb);
+        return slot >= 0 ? values[slot] : NO_VALUE;
+    }
+
+    /**
+     * @param flowFileId the flow file id
+     * @param value      a value that is not {@link #NO_VALUE}
+     * @return the previous value for the id, or {@link #NO_VALUE} if the id was not in the index
+     */
+    public long put(String flowFileId, long value) {
+        if (parse(flowFileId)) {
+            return put(parsedMostSigBits, parsedLeastSigBits, value);
+        }
+        Long previous = otherIds.put(flowFileId, value);
+        return previous != null ? previous : NO_VALUE;
+    }
+
+    /**
+     * @return the previous value for the UUID halves, or {@link #NO_VALUE} if they were not in the index
+     */
+    public long put(long msb, long lsb, long value) {
+        int slot = find(msb, lsb);
+        if (slot >= 0) {
+            long previous = values[slot];
+            values[slot] = value;
+            return previous;
+        }
+        if (occupied + 1 > states.length * MAX_LOAD) {
+            //grow if full of live entries, otherwise just clear out the removed slots
+            allocateAndCopy(size + 1 > states.length * MAX_LOAD / 2 ? states.length << 1 : states.length);
+        }
+        int mask = states.length - 1;
+        int i = hash(msb, lsb) & mask;
+        while (states[i] == USED) {
+            i = (i + 1) & mask;
+        }
+        if (states[i] == FREE) {
+            occupied++;
+        }
+        states[i] = USED;
+        mostSigBits[i] = msb;
+        leastSigBits[i] = lsb;
+        values[i] = value;
+        size++;
+        return NO_VALUE;
+    }
+
+    /**
+     * @param flowFileId the flow file id
+     * @return the removed value, or {@link #NO_VALUE} if the id was not in the index
+     */
+    public long remove(String flowFileId) {
+        if (parse(flowFileId)) {
+            return remove(parsedMostSigBits, parsedLeastSigBits);
+        }
+        Long previous = otherIds.remove(flowFileId);
+        return previous != null ? previous : NO_VALUE;
+    }
+
+    /**
+     * @return the removed value, or {@link #NO_VALUE} if the UUID halves were not in the index
+     */
+    public long remove(long msb, long lsb) {
+        int slot = find(msb, lsb);
+        if (slot < 0) {
+            return NO_VALUE;
+        }
+        states[slot] = REMOVED;
+        size--;
+        return values[slot];
+    }
+
+    /**
+     * Remove the id only if it currently maps to the {@code value}
+     *
+     * @return true if removed
+     */
+    public boolean remove(String flowFileId, long value) {
+        if (parse(flowFileId)) {
+            return remove(parsedMostSigBits, parsedLeastSigBits, value);
+        }
+        return otherIds.remove(flowFileId, value);
+    }
+
+    /**
+     * Remove the UUID halves only if they currently map to the {@code value}
+     *
+     * @return true if removed
+     */
+    public boolean remove(long msb, long lsb, long value) {
+        int slot = find(msb, lsb);
+        if (slot >= 0 && values[slot] == value) {
+            states[slot] = REMOVED;
+            size--;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Parse the flow file id as a UUID.  The halves are available from {@link #getParsedMostSigBits()} and {@link #getParsedLeastSigBits()}
+     *
+     * @param flowFileId the flow file id
+     * @return true if the id is a UUID
+     */
+    public boolean parse(String flowFileId) {
+        if (flowFileId == null || flowFileId.length() != 36 || flowFileId.charAt(8) != '-' || flowFileId.charAt(13) != '-' || flowFileId.charAt(18) != '-'
+            || flowFileId.charAt(23) != '-') {
+            return false;
+        }
+        long msb = 0;
+        long lsb = 0;
+        for (int i = 0; i < 36; i++) {
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                continue;
+            }
+            int digit = hexDigit(flowFileId.charAt(i));
+            if (digit < 0) {
+                return false;
+            }
+            if (i < 19) {
+                msb = (msb << 4) | digit;
+            } else {
+                lsb = (lsb << 4) | digit;
+            }
+        }
+        parsedMostSigBits = msb;
+        parsedLeastSigBits = lsb;
+        return true;
+    }
+
+    /**
+     * Only lower case digits are accepted so the id can be rebuilt exactly using {@link #toString(long, long)}
+     */
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        return -1;
+    }
+
+    public long getParsedMostSigBits() {
+        return parsedMostSigBits;
+    }
+
+    public long getParsedLeastSigBits() {
+        return parsedLeastSigBits;
+    }
+
+    /**
+     * @return the flow file id for the UUID halves
+     */
+    public static String toString(long msb, long lsb) {
+        return new UUID(msb, lsb).toString();
+    }
+
+    /**
+     * @return the number of ids in the index
+     */
+    public int size() {
+        return size + otherIds.size();
+    }
+
+    /**
+     * @return the approximate number of bytes used by the index
+     */
+    public long estimatedBytes() {
+        return (long) states.length * (8 + 8 + 8 + 1) + otherIds.size() * 128L;
+    }
+
+    private int find(long msb, long lsb) {
+        int mask = states.length - 1;
+        int i = hash(msb, lsb) & mask;
+        while (states[i] != FREE) {
+            if (states[i] == USED && mostSigBits[i] == msb && leastSigBits[i] == lsb) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static int hash(long msb, long lsb) {
+        long h = (msb ^ (lsb * 0x9E3779B97F4A7C15L)) * 0xC2B2AE3D27D4EB4FL;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void allocate(int capacity) {
+        mostSigBits = new long[capacity];
+        leastSigBits = new long[capacity];
+        values = new long[capacity];
+        states = new byte[capacity];
+        size = 0;
+        occupied = 0;
+    }
+
+    private void allocateAndCopy(int capacity) {
+        long[] oldMostSigBits = mostSigBits;
+        long[] oldLeastSigBits = leastSigBits;
+        long[] oldValues = values;
+        byte[] oldStates = states;
+        allocate(capacity);
+        for (int i = 0; i < oldStates.length; i++) {
+            if (oldStates[i] == USED) {
+                put(oldMostSigBits[i], oldLeastSigBits[i], oldValues[i]);
+            }
+        }
+    }
+}
@@ -25,6 +25,8 @@ import com.thinkbiganalytics.nifi.provenance.ProvenanceEventObjectFactory;
 import com.thinkbiganalytics.nifi.provenance.ProvenanceEventObjectPool;
 import com.thinkbiganalytics.nifi.provenance.ProvenanceFeedLookup;
 import com.thinkbiganalytics.nifi.provenance.ProvenanceStatsCalculator;
+import com.thinkbiganalytics.nifi.provenance.cache.CompactFeedFlowFileCache;
+import com.thinkbiganalytics.nifi.provenance.cache.FeedFlowFileCache;
 import com.thinkbiganalytics.nifi.provenance.cache.FeedFlowFileCacheUtil;
 import com.thinkbiganalytics.nifi.provenance.cache.FeedFlowFileGuavaCache;
 import com.thinkbiganalytics.nifi.provenance.cache.FeedFlowFileMapDbCache;
@@ -51,6 +53,48 @@ public class NifiProvenanceConfig {
     @Value("${kylo.provenance.feedflowfile.mapdb.cache.location:/opt/nifi/feed-flowfile-cache.db}")
     private String feedFlowFileMapDbCacheLocation;
 
+    /**
+     * how often the running flow files updated since the last checkpoint are written to the map db cache. 0 will only write them when NiFi shuts down
+     **/
+    @Value("${kylo.provenance.feedflowfile.mapdb.checkpoint.interval.seconds:60}")
+    private int feedFlowFileMapDbCheckpointIntervalSeconds;
+
+    /**
+     * number of threads used to load the map db cache when NiFi starts
+     **/
+    @Value("${kylo.provenance.feedflowfile.mapdb.restore.threads:4}")
+    private int feedFlowFileMapDbRestoreThreads;
+
+    /**
+     * maximum time to wait for the map db cache to load when NiFi starts
+     **/
+    @Value("${kylo.provenance.feedflowfile.mapdb.restore.timeout.seconds:300}")
+    private int feedFlowFileMapDbRestoreTimeoutSeconds;
+
+    /**
+     * the type of cache relating flow files to their running feed flow file. Either guava or compact
+     **/
+    @Value("${kylo.provenance.feedflowfile.cache.type:guava}")
+    private String feedFlowFileCacheType;
+
+    /**
+     * the maximum number of running feed flow files the compact cache holds in memory before spilling to disk
+     **/
+    @Value("${kylo.provenance.feedflowfile.cache.max.entries:50000}")
+    private int feedFlowFileCacheMaxEntries;
+
+    /**
+     * the maximum estimated bytes of running feed flow files the compact cache holds in memory before spilling to disk
+     **/
+    @Value("${kylo.provenance.feedflowfile.cache.max.bytes:268435456}")
+    private long feedFlowFileCacheMaxBytes;
+
+    /**
+     * how long the compact cache keeps a feed flow file restored from the map db cache that has not received any events
+     **/
+    @Value("${kylo.provenance.feedflowfile.cache.restored.idle.seconds:86400}")
+    private long feedFlowFileCacheRestoredIdleSeconds;
+
     @Bean
     public SpringApplicationContext springApplicationContext() {
         return new SpringApplicationContext();
@@ -76,11 +120,14 @@ public class NifiProvenanceConfig {
     @Bean
     public FeedFlowFileMapDbCache feedFlowFileMapDbCache() {
         String location = feedFlowFileMapDbCacheLocation;
-        return new FeedFlowFileMapDbCache(location);
+        return new FeedFlowFileMapDbCache(location, feedFlowFileMapDbCheckpointIntervalSeconds, feedFlowFileMapDbRestoreThreads, feedFlowFileMapDbRestoreTimeoutSeconds);
     }
 
     @Bean
-    public FeedFlowFileGuavaCache feedFlowFileGuavaCache() {
+    public FeedFlowFileCache feedFlowFileCache() {
+        if ("compact".equalsIgnoreCase(feedFlowFileCacheType)) {
+            return new CompactFeedFlowFileCache(feedFlowFileCacheMaxEntries, feedFlowFileCacheMaxBytes, feedFlowFileCacheRestoredIdleSeconds);
+        }
         return new FeedFlowFileGuavaCache();
     }
 
@@ -24,12 +24,17 @@ import com.thinkbiganalytics.activemq.SendJmsMessage;
 import com.thinkbiganalytics.nifi.activemq.Queues;
 import com.thinkbiganalytics.nifi.provenance.AggregationEventProcessingStats;
 import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTOHolder;
+import com.thinkbiganalytics.nifi.provenance.model.codec.JavaSerializationBatchCodec;
+import com.thinkbiganalytics.nifi.provenance.model.codec.ProvenanceBatchCodec;
+import com.thinkbiganalytics.nifi.provenance.model.codec.ProvenanceBatchCodecs;
 import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatisticsHolder;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -54,6 +59,21 @@ public class ProvenanceEventActiveMqWriter {
 
     private Map<String, Set<JmsSendListener>> listeners = new HashMap<>();
 
+    /**
+     * The name of the {@link ProvenanceBatchCodec} used to write the events and stats.
+     * Defaults to the Java serialized object messages
+     */
+    @Value("${kylo.provenance.jms.codec:java}")
+    private String codecName = JavaSerializationBatchCodec.NAME;
+
+    /**
+     * Should the codec compress the messages
+     */
+    @Value("${kylo.provenance.jms.codec.compress:false}")
+    private boolean compress = false;
+
+    private ProvenanceBatchCodec codec;
+
     public ProvenanceEventActiveMqWriter() {
 
     }
@@ -64,7 +84,22 @@ public class ProvenanceEventActiveMqWriter {
 
     @PostConstruct
     public void postConstruct() {
+        codec = ProvenanceBatchCodecs.getCodec(codecName, compress);
+        logger.info("Sending provenance events to JMS using the {} codec. compress: {} ", codec.getName(), compress);
+    }
 
+    /**
+     * @return true if the messages should be sent as Java serialized object messages
+     */
+    private boolean isObjectMessageCodec() {
+        return codec == null || JavaSerializationBatchCodec.NAME.equals(codec.getName());
+    }
+
+    /**
+     * @return the JMS message properties for an encoded message
+     */
+    private Map<String, Object> codecHeaders() {
+        return Collections.singletonMap(ProvenanceBatchCodecs.CODEC_PROPERTY, codec.getName());
     }
 
     /**
@@ -94,7 +129,11 @@ public class ProvenanceEventActiveMqWriter {
         try {
             if (stats.getEventCount().get() > 0) {
                 logger.info("SENDING AGGREGATED STAT to JMS {} ", stats);
-                sendJmsMessage.sendSerializedObjectToQueue(Queues.PROVENANCE_EVENT_STATS_QUEUE, stats);
+                if (isObjectMessageCodec()) {
+                    sendJmsMessage.sendSerializedObjectToQueue(Queues.PROVENANCE_EVENT_STATS_QUEUE, stats);
+                } else {
+                    sendJmsMessage.sendBytesToQueue(Queues.PROVENANCE_EVENT_STATS_QUEUE, codec.encodeStats(stats), codecHeaders());
+                }
                 AggregationEventProcessingStats.addStreamingEvents(stats.getEventCount().intValue());
                 notifySuccess(Queues.PROVENANCE_EVENT_STATS_QUEUE, stats);
             }
@@ -112,7 +151,11 @@ public class ProvenanceEventActiveMqWriter {
     public void writeBatchEvents(ProvenanceEventRecordDTOHolder events) {
         try {
             logger.info("SENDING Events to JMS {} ", events);
-            sendJmsMessage.sendSerializedObjectToQueue(Queues.FEED_MANAGER_QUEUE, events);
+            if (isObjectMessageCodec()) {
+                sendJmsMessage.sendSerializedObjectToQueue(Queues.FEED_MANAGER_QUEUE, events);
+            } else {
+                sendJmsMessage.sendBytesToQueue(Queues.FEED_MANAGER_QUEUE, codec.encodeEvents(events), codecHeaders());
+            }
             AggregationEventProcessingStats.addBatchEvents(events.getEvents().size());
             notifySuccess(Queues.FEED_MANAGER_QUEUE, events);
         } catch (Exception e) {
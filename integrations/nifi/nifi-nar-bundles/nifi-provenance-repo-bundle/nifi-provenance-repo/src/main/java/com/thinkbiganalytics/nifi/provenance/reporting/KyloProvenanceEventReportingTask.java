@@ -20,6 +20,7 @@ package com.thinkbiganalytics.nifi.provenance.reporting;
  * #L%
  */
 
+import com.google.common.collect.Lists;
 import com.thinkbiganalytics.metadata.rest.model.nifi.NiFiFlowCacheSync;
 import com.thinkbiganalytics.nifi.core.api.metadata.KyloNiFiFlowProvider;
 import com.thinkbiganalytics.nifi.core.api.metadata.MetadataProviderService;
@@ -62,7 +63,15 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
 
 /**
  */
@@ -128,6 +137,25 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
         .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
         .expressionLanguageSupported(true)
         .build();
+
+    protected static final PropertyDescriptor PIPELINED_PROCESSING = new PropertyDescriptor.Builder()
+        .name("Pipelined processing")
+        .description(
+            "Should the ranges of events be processed in a pipeline?  If true one thread will prefetch the next range of events from provenance while a pool of threads converts the current range and a single committer processes the events in order and advances the last event id.  This greatly speeds up catching up on a large backlog of events after a restart.")
+        .required(true)
+        .addValidator(StandardValidators.BOOLEAN_VALIDATOR)
+        .defaultValue("false")
+        .expressionLanguageSupported(true)
+        .build();
+
+    protected static final PropertyDescriptor PROCESSING_THREADS = new PropertyDescriptor.Builder()
+        .name("Processing threads")
+        .description("The number of threads used to convert the events in a range when 'Pipelined processing' is true.")
+        .defaultValue("4")
+        .required(false)
+        .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+        .expressionLanguageSupported(true)
+        .build();
     PropertyDescriptor METADATA_SERVICE = new PropertyDescriptor.Builder()
         .name("Metadata Service")
         .description("Think Big metadata service")
@@ -186,6 +214,14 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
      * value from PROCESSING_BATCH_SIZE
      */
     private Integer processingBatchSize;
+    /**
+     * value from PIPELINED_PROCESSING
+     */
+    private boolean pipelinedProcessing = false;
+    /**
+     * value from PROCESSING_THREADS
+     */
+    private Integer processingThreads;
     /**
      * value from LAST_EVENT_ID_NOT_FOUND_VALUE
      */
@@ -230,6 +266,8 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
         properties.add(LAST_EVENT_ID_NOT_FOUND_VALUE);
         properties.add(INITIAL_EVENT_ID_VALUE);
         properties.add(PROCESSING_BATCH_SIZE);
+        properties.add(PIPELINED_PROCESSING);
+        properties.add(PROCESSING_THREADS);
         return properties;
     }
 
@@ -245,6 +283,9 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
         Boolean rebuildOnRestart = context.getProperty(REBUILD_CACHE_ON_RESTART).asBoolean();
 
         this.processingBatchSize = context.getProperty(PROCESSING_BATCH_SIZE).asInteger();
+        Boolean pipelined = context.getProperty(PIPELINED_PROCESSING).asBoolean();
+        this.pipelinedProcessing = pipelined != null && pipelined;
+        this.processingThreads = context.getProperty(PROCESSING_THREADS).asInteger();
         this.lastEventIdNotFoundValue = LAST_EVENT_ID_NOT_FOUND_OPTION.valueOf(context.getProperty(LAST_EVENT_ID_NOT_FOUND_VALUE).getValue());
         this.initialEventIdValue = INITIAL_EVENT_ID_OPTION.valueOf(context.getProperty(INITIAL_EVENT_ID_VALUE).getValue());
 
@@ -315,6 +356,21 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
         getLogger().info("initializeFlowFilesFromMapDbCache: Finished loading {} persisted files from disk into the Guava Cache", new Object[]{loadedRootFlowFiles});
     }
 
+    /**
+     * Write the running flow files updated since the last checkpoint to disk if the checkpoint interval has elapsed.
+     * This is called between ranges of events by the thread that updates the flow files, so they are not being updated while they are written.
+     */
+    private void checkpointFlowFiles() {
+        try {
+            int written = getFlowFileMapDbCache().checkpointIfDue();
+            if (written > 0) {
+                getLogger().debug("Checkpointed {} running flow files to disk", new Object[]{written});
+            }
+        } catch (Exception e) {
+            getLogger().error("Error checkpointing the running flow files to disk. {} ", new Object[]{e.getMessage()}, e);
+        }
+    }
+
     /**
      * Ensures the flow files stored in the cache from the last time NiFi was shut down are loaded
      */
@@ -547,6 +603,10 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
 
                 //reset the queryTime holder
                 nifiQueryTime = 0L;
+                if (pipelinedProcessing && recordCount > 0) {
+                    lastEventId = processEventsInRangesPipelined(provenance, nextId < 0 ? 0 : nextId, maxEventId, batchSize);
+                    recordCount = 0;
+                }
                 while (recordCount > 0) {
                     if (!isProcessing()) {
                         break;
@@ -561,6 +621,7 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
                         recordCount -= batchAmount;
                         recordCount = recordCount < 0 ? 0 : recordCount;
                         setLastEventId(lastEventId);
+                        checkpointFlowFiles();
 
                         if (lastLogTime == null || (DateTime.now().getMillis() - lastLogTime.getMillis() > logReportingTimeMs)) {
                             lastLogTime = DateTime.now();
@@ -583,6 +644,7 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
                 }
 
                 finishProcessing(totalRecords);
+                checkpointFlowFiles();
 
             } catch (IOException e) {
                 getLogger().error(e.getMessage(), e);
@@ -797,6 +859,219 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
 
     }
 
+    /**
+     * Processes all events inclusive in the range using a pipeline.
+     * A single fetch thread prefetches the next range of events from provenance while the current range is being processed.
+     * The events in the current range are converted by a pool of worker threads, each handling a contiguous slice of the sorted events.
+     * The converted events are then processed by the calling thread in event id order since building the flow file graph depends on the order of the events.
+     * This thread acts as the single committer, sending the events to JMS and advancing the last event id only after a range has been fully processed.
+     *
+     * @param provenance the repository to query
+     * @param minEventId the minEventId to query
+     * @param maxEventId the maxEvent id to query
+     * @param batchSize  the number of events to query in each range
+     * @return the lastEventId processed
+     */
+    private Long processEventsInRangesPipelined(ProvenanceEventRepository provenance, Long minEventId, Long maxEventId, int batchSize) throws IOException {
+        int threads = processingThreads == null || processingThreads < 1 ? 4 : processingThreads;
+        ProvenanceEventPipelineStats stats = new ProvenanceEventPipelineStats();
+        //only allow the fetch stage to get one range ahead of the committer to bound the memory used
+        BlockingQueue<EventRange> fetchedRanges = new ArrayBlockingQueue<>(1);
+        ExecutorService fetchExecutor = Executors.newSingleThreadExecutor();
+        ExecutorService convertExecutor = Executors.newFixedThreadPool(threads);
+        DateTime lastLogTime = DateTime.now();
+        int logReportingTimeMs = 10000;
+        Long lastEventId = minEventId - 1;
+
+        try {
+            Future<?> fetcher = fetchExecutor.submit(() -> fetchEventRanges(provenance, minEventId, maxEventId, batchSize, fetchedRanges, stats, this::isProcessing));
+            while (isProcessing()) {
+                EventRange range = fetchedRanges.poll(1, TimeUnit.SECONDS);
+                if (range == null) {
+                    if (fetcher.isDone()) {
+                        //surface any error from the fetch stage
+                        fetcher.get();
+                        break;
+                    }
+                    continue;
+                }
+                if (range.isEnd()) {
+                    break;
+                }
+                currentProcessingMessage = "Processing Events between " + range.getMinEventId() + " - " + range.getLastEventId();
+                updateNifiFlowCache();
+                List<ProvenanceEventRecordDTO> converted = convertEvents(convertExecutor, range.getEvents(), threads, stats, getProvenanceFeedLookup(), getProvenanceEventObjectPool());
+                if (!commitEvents(converted, stats)) {
+                    break;
+                }
+                lastEventId = range.getLastEventId();
+                setLastEventId(lastEventId);
+                checkpointFlowFiles();
+
+                if (DateTime.now().getMillis() - lastLogTime.getMillis() > logReportingTimeMs) {
+                    lastLogTime = DateTime.now();
+                    getLogger().info(
+                        "KyloProvenanceEventReportingTask onTrigger Info: ReportingTask is in a long running pipelined process.  Currently processing Event id: {}.  {} events remaining to be processed. Stage stats: {} ",
+                        new Object[]{lastEventId, maxEventId - lastEventId, stats});
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            getLogger().error("Interrupted while processing Kylo ProvenanceEvents ", e);
+            abortProcessing();
+        } catch (ExecutionException e) {
+            getLogger().error("Error processing Kylo ProvenanceEvents ", e.getCause());
+            abortProcessing();
+        } finally {
+            fetchExecutor.shutdownNow();
+            convertExecutor.shutdownNow();
+        }
+        nifiQueryTime += stats.getFetch().getMillis();
+        getLogger().info("KyloProvenanceEventReportingTask onTrigger Info: Pipelined processing finished with last Event id: {}. Stage stats: {} ", new Object[]{lastEventId, stats});
+        return lastEventId;
+    }
+
+    /**
+     * Fetch stage of the pipeline. Queries successive ranges of events from provenance and hands them off to the committer.
+     * The next range always starts after the last event returned so gaps in the event ids are handled the same way as {@link #processEventsInRange(ProvenanceEventRepository, Long, Long)}
+     *
+     * @param running false once processing has been aborted
+     */
+    static Void fetchEventRanges(ProvenanceEventRepository provenance, Long minEventId, Long maxEventId, int batchSize, BlockingQueue<EventRange> fetchedRanges,
+                                 ProvenanceEventPipelineStats stats, BooleanSupplier running) throws IOException, InterruptedException {
+        long min = minEventId;
+        try {
+            while (min <= maxEventId && running.getAsBoolean()) {
+                long max = (min + (batchSize - 1)) > maxEventId ? maxEventId : (min + (batchSize - 1));
+                int recordCount = new Long(max - min).intValue() + 1;
+                long start = System.nanoTime();
+                final List<ProvenanceEventRecord> events = provenance.getEvents(min, recordCount);
+                events.sort(Comparator.comparingLong(ProvenanceEventRecord::getEventId));
+                stats.getFetch().record(events.size(), start);
+
+                long lastEventId = events.isEmpty() ? max : events.get(events.size() - 1).getEventId();
+                fetchedRanges.put(new EventRange(min, lastEventId, events));
+                min = lastEventId + 1;
+            }
+        } finally {
+            //dont block here.  If the queue is full the committer will find this stage is done when it drains the queue
+            fetchedRanges.offer(EventRange.END);
+        }
+        return null;
+    }
+
+    /**
+     * Convert stage of the pipeline. Splits the sorted events into contiguous slices and converts each slice on the worker pool.
+     * Events not managed by Kylo are dropped. If any slice fails then every object borrowed from the pool for this range is returned to it.
+     *
+     * @return the converted events in event id order
+     */
+    static List<ProvenanceEventRecordDTO> convertEvents(ExecutorService convertExecutor, List<ProvenanceEventRecord> events, int threads, ProvenanceEventPipelineStats stats,
+                                                        ProvenanceFeedLookup provenanceFeedLookup, ProvenanceEventObjectPool pool)
+        throws InterruptedException, ExecutionException {
+        long start = System.nanoTime();
+
+        //remove any duplicate event ids before slicing
+        List<ProvenanceEventRecord> uniqueEvents = new ArrayList<>(events.size());
+        Long previousEventId = null;
+        for (ProvenanceEventRecord eventRecord : events) {
+            if (previousEventId == null || eventRecord.getEventId() != previousEventId) {
+                uniqueEvents.add(eventRecord);
+            }
+            previousEventId = eventRecord.getEventId();
+        }
+
+        int sliceSize = Math.max(1, (int) Math.ceil((double) uniqueEvents.size() / threads));
+        List<Future<List<ProvenanceEventRecordDTO>>> slices = new ArrayList<>();
+        for (List<ProvenanceEventRecord> slice : Lists.partition(uniqueEvents, sliceSize)) {
+            slices.add(convertExecutor.submit(() -> {
+                List<ProvenanceEventRecordDTO> dtos = new ArrayList<>(slice.size());
+                boolean converted = false;
+                try {
+                    for (ProvenanceEventRecord eventRecord : slice) {
+                        if (provenanceFeedLookup.isKyloManaged(eventRecord.getComponentId())) {
+                            ProvenanceEventRecordDTO dto = pool.borrowObject();
+                            dtos.add(dto);
+                            ProvenanceEventRecordConverter.populateEvent(dto, eventRecord);
+                        }
+                    }
+                    converted = true;
+                    return dtos;
+                } finally {
+                    if (!converted) {
+                        returnToPool(pool, dtos);
+                    }
+                }
+            }));
+        }
+
+        List<ProvenanceEventRecordDTO> converted = new ArrayList<>(uniqueEvents.size());
+        ExecutionException error = null;
+        try {
+            for (Future<List<ProvenanceEventRecordDTO>> slice : slices) {
+                try {
+                    converted.addAll(slice.get());
+                } catch (ExecutionException e) {
+                    error = e;
+                }
+            }
+        } catch (InterruptedException e) {
+            returnToPool(pool, converted);
+            throw e;
+        }
+        if (error != null) {
+            returnToPool(pool, converted);
+            throw error;
+        }
+        stats.getConvert().record(uniqueEvents.size(), start);
+        return converted;
+    }
+
+    /**
+     * Commit stage of the pipeline. Processes the converted events in order and sends them to JMS.
+     *
+     * @return true if the events were processed, false if processing was aborted
+     */
+    private boolean commitEvents(List<ProvenanceEventRecordDTO> events, ProvenanceEventPipelineStats stats) {
+        long start = System.nanoTime();
+        try {
+            for (ProvenanceEventRecordDTO dto : events) {
+                if (!isProcessing()) {
+                    return false;
+                }
+                getProvenanceEventCollector().process(dto);
+            }
+            //Send JMS off
+            getProvenanceEventCollector().sendToJms();
+            stats.getCommit().record(events.size(), start);
+            return true;
+        } catch (Exception e) {
+            getLogger().error("Error processing Kylo ProvenanceEvent ", e);
+            abortProcessing();
+            return false;
+        } finally {
+            returnToPool(getProvenanceEventObjectPool(), events);
+        }
+    }
+
+    /**
+     * return the objects back to the pool.
+     * An object that cannot be returned is dropped and the pool creates a new one when it is needed.
+     */
+    static void returnToPool(ProvenanceEventObjectPool pool, List<ProvenanceEventRecordDTO> events) {
+        events.stream().forEach(dto -> {
+            if (dto != null) {
+                try {
+                    dto.reset();
+                    pool.returnObject(dto);
+                } catch (Exception e) {
+                    //ignore
+                }
+            }
+        });
+        events.clear();
+    }
+
     /**
      * Process the Event, calculate the  statistics and send it on to JMS for Kylo Ops manager processing
      * If the event is not found to be managed by Kylo it is returned as Null.
@@ -869,6 +1144,43 @@ public class KyloProvenanceEventReportingTask extends AbstractReportingTask {
 
     private static enum INITIAL_EVENT_ID_OPTION {LAST_EVENT_ID, MAX_EVENT_ID, KYLO}
 
+    /**
+     * A range of events queried from provenance by the fetch stage of the pipeline
+     */
+    static class EventRange {
+
+        /**
+         * marker indicating the fetch stage has finished
+         */
+        static final EventRange END = new EventRange(-1L, -1L, Collections.emptyList());
+
+        private final long minEventId;
+        private final long lastEventId;
+        private final List<ProvenanceEventRecord> events;
+
+        EventRange(long minEventId, long lastEventId, List<ProvenanceEventRecord> events) {
+            this.minEventId = minEventId;
+            this.lastEventId = lastEventId;
+            this.events = events;
+        }
+
+        long getMinEventId() {
+            return minEventId;
+        }
+
+        long getLastEventId() {
+            return lastEventId;
+        }
+
+        List<ProvenanceEventRecord> getEvents() {
+            return events;
+        }
+
+        boolean isEnd() {
+            return this == END;
+        }
+    }
+
     /**
      * Comparator sorting events by eventId
      */
@@ -0,0 +1,124 @@
+package com.thinkbiganalytics.nifi.provenance.reporting;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-repo
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the time and number of events handled by each stage of the pipelined range processing in the {@link KyloProvenanceEventReportingTask}.
+ * The throughput of each stage is logged so the {@code PROCESSING_BATCH_SIZE} and number of processing threads can be sized from measurements.
+ */
+public class ProvenanceEventPipelineStats {
+
+    /**
+     * time and events spent querying the NiFi provenance repository
+     */
+    private final Stage fetch = new Stage("fetch");
+
+    /**
+     * time and events spent converting the NiFi events to Kylo DTOs
+     */
+    private final Stage convert = new Stage("convert");
+
+    /**
+     * time and events spent building the flow file graph, calculating stats, sending to JMS and advancing the last event id
+     */
+    private final Stage commit = new Stage("commit");
+
+    private final long startTime = System.nanoTime();
+
+    public Stage getFetch() {
+        return fetch;
+    }
+
+    public Stage getConvert() {
+        return convert;
+    }
+
+    public Stage getCommit() {
+        return commit;
+    }
+
+    /**
+     * @return the elapsed wall clock time in millis since these stats were created
+     */
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+    }
+
+    @Override
+    public String toString() {
+        return "elapsed: " + getElapsedMillis() + " ms, " + fetch + ", " + convert + ", " + commit;
+    }
+
+    /**
+     * Counters for a single stage in the pipeline
+     */
+    public static class Stage {
+
+        private final String name;
+        private final AtomicLong events = new AtomicLong(0L);
+        private final AtomicLong batches = new AtomicLong(0L);
+        private final AtomicLong nanos = new AtomicLong(0L);
+
+        Stage(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Record a unit of work for this stage
+         *
+         * @param eventCount the number of events handled
+         * @param startNanos the {@link System#nanoTime()} when the work started
+         */
+        public void record(long eventCount, long startNanos) {
+            events.addAndGet(eventCount);
+            batches.incrementAndGet();
+            nanos.addAndGet(System.nanoTime() - startNanos);
+        }
+
+        public long getEvents() {
+            return events.get();
+        }
+
+        public long getBatches() {
+            return batches.get();
+        }
+
+        public long getMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(nanos.get());
+        }
+
+        /**
+         * @return the number of events/sec this stage processed while it was busy
+         */
+        public long getEventsPerSecond() {
+            long busyNanos = nanos.get();
+            return busyNanos <= 0 ? 0L : (events.get() * TimeUnit.SECONDS.toNanos(1)) / busyNanos;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": [events: " + getEvents() + ", batches: " + getBatches() + ", time: " + getMillis() + " ms, events/sec: " + getEventsPerSecond() + "]";
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.thinkbiganalytics.nifi.provenance.cache;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-repo
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.model.FeedFlowFile;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Tests the {@link CompactFeedFlowFileCache} and its {@link FlowFileIdIndex}
+ */
+public class CompactFeedFlowFileCacheTest {
+
+    @Test
+    public void testIndexPutGetRemove() {
+        FlowFileIdIndex index = new FlowFileIdIndex(16);
+        Map<String, Long> expected = new HashMap<>();
+        for (long i = 0; i < 10000; i++) {
+            String id = UUID.randomUUID().toString();
+            expected.put(id, i);
+            Assert.assertEquals(FlowFileIdIndex.NO_VALUE, index.put(id, i));
+        }
+        index.put("not-a-uuid", 42L);
+        Assert.assertEquals(10001, index.size());
+        expected.forEach((id, value) -> Assert.assertEquals(value.longValue(), index.get(id)));
+        Assert.assertEquals(42L, index.get("not-a-uuid"));
+
+        //only removed if the value matches
+        String id = expected.keySet().iterator().next();
+        Assert.assertFalse(index.remove(id, -5L));
+        Assert.assertTrue(index.remove(id, expected.get(id)));
+        Assert.assertEquals(FlowFileIdIndex.NO_VALUE, index.get(id));
+
+        expected.keySet().forEach(index::remove);
+        Assert.assertEquals(1, index.size());
+        Assert.assertTrue(index.parse(id));
+        Assert.assertEquals(id, FlowFileIdIndex.toString(index.getParsedMostSigBits(), index.getParsedLeastSigBits()));
+    }
+
+    @Test
+    public void testExpireCompletedFlowFile() {
+        CompactFeedFlowFileCache cache = new CompactFeedFlowFileCache(null, 100, Long.MAX_VALUE, false);
+        String rootId = UUID.randomUUID().toString();
+        String childId = UUID.randomUUID().toString();
+        FeedFlowFile root = new FeedFlowFile(rootId);
+        cache.add(rootId, root);
+        root.addChildFlowFile(childId);
+        cache.add(childId, root);
+
+        Assert.assertSame(root, cache.getEntry(childId));
+        Assert.assertEquals(2, cache.getTrackedFlowFileIdCount());
+
+        root.checkAndMarkComplete(dropEvent(childId));
+        root.checkAndMarkComplete(dropEvent(rootId));
+        cache.expire();
+        //not expired until the cache is told about the update
+        Assert.assertTrue(cache.isCached(rootId));
+
+        cache.markUpdated(root);
+        Assert.assertEquals(1, cache.getCompletedFeedFlowFiles().size());
+        cache.expire();
+        Assert.assertFalse(cache.isCached(rootId));
+        Assert.assertFalse(cache.isCached(childId));
+        Assert.assertEquals(0, cache.getTrackedFlowFileIdCount());
+        Assert.assertEquals(0, cache.getInMemoryFlowFileCount());
+    }
+
+    @Test
+    public void testSpillAndReload() {
+        Map<String, FeedFlowFile> store = new HashMap<>();
+        FeedFlowFileOverflowStore overflowStore = new FeedFlowFileOverflowStore() {
+            @Override
+            public void write(FeedFlowFile flowFile) {
+                store.put(flowFile.getId(), flowFile);
+            }
+
+            @Override
+            public FeedFlowFile take(String flowFileId) {
+                return store.remove(flowFileId);
+            }
+
+            @Override
+            public void remove(String flowFileId) {
+                store.remove(flowFileId);
+            }
+        };
+        CompactFeedFlowFileCache cache = new CompactFeedFlowFileCache(overflowStore, 10, Long.MAX_VALUE, false);
+        Map<String, String> children = new HashMap<>();
+        for (int i = 0; i < 20; i++) {
+            String rootId = UUID.randomUUID().toString();
+            String childId = UUID.randomUUID().toString();
+            FeedFlowFile root = new FeedFlowFile(rootId);
+            cache.add(rootId, root);
+            root.addChildFlowFile(childId);
+            cache.add(childId, root);
+            children.put(childId, rootId);
+        }
+        //nothing is spilled while the flow files are still active
+        cache.enforceBounds();
+        Assert.assertEquals(20, cache.getInMemoryFlowFileCount());
+
+        cache.spillIdleBefore(Long.MAX_VALUE);
+        Assert.assertEquals(9, cache.getInMemoryFlowFileCount());
+        Assert.assertEquals(11, cache.getSpilledFlowFileCount());
+        Assert.assertEquals(11, store.size());
+
+        //every child still resolves to its root, reading it back from the store if needed
+        children.forEach((childId, rootId) -> Assert.assertEquals(rootId, cache.getEntry(childId).getId()));
+        Assert.assertEquals(20, cache.getInMemoryFlowFileCount());
+        Assert.assertEquals(11, cache.getReloadCount());
+        Assert.assertTrue(store.isEmpty());
+    }
+
+    @Test
+    public void testRootBecomesChild() {
+        CompactFeedFlowFileCache cache = new CompactFeedFlowFileCache(null, 100, Long.MAX_VALUE, false);
+        String firstId = UUID.randomUUID().toString();
+        String firstChildId = UUID.randomUUID().toString();
+        FeedFlowFile first = new FeedFlowFile(firstId);
+        cache.add(firstId, first);
+        cache.add(firstChildId, first);
+
+        //the first flow file is merged into the flow of another root
+        String secondId = UUID.randomUUID().toString();
+        FeedFlowFile second = new FeedFlowFile(secondId);
+        cache.add(secondId, second);
+        cache.add(firstId, second);
+
+        Assert.assertSame(second, cache.getEntry(firstId));
+        Assert.assertSame(second, cache.getEntry(firstChildId));
+        Assert.assertEquals(1, cache.getInMemoryFlowFileCount());
+        Assert.assertEquals(1, cache.getFlowFiles().size());
+        Assert.assertEquals(3, cache.getTrackedFlowFileIdCount());
+
+        //expiring the new root removes the old root and its children
+        cache.invalidate(secondId);
+        Assert.assertFalse(cache.isCached(firstId));
+        Assert.assertFalse(cache.isCached(firstChildId));
+        Assert.assertEquals(0, cache.getTrackedFlowFileIdCount());
+        Assert.assertEquals(0, cache.getInMemoryFlowFileCount());
+    }
+
+    @Test
+    public void testExpireIdleRestoredFlowFile() throws Exception {
+        CompactFeedFlowFileCache cache = new CompactFeedFlowFileCache(null, 100, Long.MAX_VALUE, false);
+        List<FeedFlowFile> invalidated = new ArrayList<>();
+        FeedFlowFileCacheListener listener = new FeedFlowFileCacheListener() {
+            @Override
+            public void onInvalidate(FeedFlowFile flowFile) {
+                invalidated.add(flowFile);
+            }
+
+            @Override
+            public void onUpdate(FeedFlowFile flowFile) {
+            }
+        };
+        cache.subscribe(listener);
+        String restoredId = UUID.randomUUID().toString();
+        String restoredChildId = UUID.randomUUID().toString();
+        FeedFlowFile restored = new FeedFlowFile(restoredId);
+        restored.setBuiltFromMapDb(true);
+        cache.add(restoredId, restored);
+        cache.add(restoredChildId, restored);
+        String runningId = UUID.randomUUID().toString();
+        cache.add(runningId, new FeedFlowFile(runningId));
+
+        //nothing is removed while the restored flow file is within its idle time
+        Assert.assertTrue(cache.removeRestoredIdleBefore(System.currentTimeMillis() - 60000L).isEmpty());
+
+        List<FeedFlowFile> removed = cache.removeRestoredIdleBefore(System.currentTimeMillis() + 1);
+        Assert.assertEquals(1, removed.size());
+        Assert.assertSame(restored, removed.get(0));
+        Assert.assertFalse(cache.isCached(restoredId));
+        Assert.assertFalse(cache.isCached(restoredChildId));
+        Assert.assertTrue(cache.isCached(runningId));
+        Assert.assertEquals(1, cache.getInMemoryFlowFileCount());
+
+        //expire() notifies the listeners so the MapDB cache drops its copy
+        FeedFlowFile restoredAgain = new FeedFlowFile(restoredId);
+        restoredAgain.setBuiltFromMapDb(true);
+        cache = new CompactFeedFlowFileCache(null, 100, Long.MAX_VALUE, 0, false);
+        cache.subscribe(listener);
+        cache.add(restoredId, restoredAgain);
+        Thread.sleep(10);
+        cache.expire();
+        Assert.assertFalse(cache.isCached(restoredId));
+        Assert.assertTrue(invalidated.contains(restoredAgain));
+    }
+
+    private ProvenanceEventRecordDTO dropEvent(String flowFileId) {
+        ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+        event.setEventType("DROP");
+        event.setFlowFileUuid(flowFileId);
+        return event;
+    }
+}
@@ -0,0 +1,214 @@
+package com.thinkbiganalytics.nifi.provenance.reporting;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-repo
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.ProvenanceEventObjectFactory;
+import com.thinkbiganalytics.nifi.provenance.ProvenanceEventObjectPool;
+import com.thinkbiganalytics.nifi.provenance.ProvenanceFeedLookup;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+
+import org.apache.nifi.provenance.ProvenanceEventRecord;
+import org.apache.nifi.provenance.ProvenanceEventRepository;
+import org.apache.nifi.provenance.ProvenanceEventType;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Tests the fetch and convert stages of the pipelined event processing in {@link KyloProvenanceEventReportingTask}
+ */
+public class ProvenanceEventPipelineTest {
+
+    private static final String KYLO_PROCESSOR = "kylo-processor";
+
+    private ExecutorService executor;
+    private ProvenanceEventObjectPool pool;
+    private ProvenanceFeedLookup feedLookup;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        pool = new ProvenanceEventObjectPool(new ProvenanceEventObjectFactory());
+        feedLookup = Mockito.mock(ProvenanceFeedLookup.class);
+        Mockito.when(feedLookup.isKyloManaged(KYLO_PROCESSOR)).thenReturn(true);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        pool.close();
+    }
+
+    /**
+     * Events are converted in event id order with duplicates and events not managed by Kylo removed
+     */
+    @Test
+    public void testConvertEvents() throws Exception {
+        List<ProvenanceEventRecord> events = new ArrayList<>();
+        for (long id = 1; id <= 20; id++) {
+            events.add(newEvent(id, id % 5 == 0 ? "other-processor" : KYLO_PROCESSOR));
+        }
+        events.add(6, newEvent(6, KYLO_PROCESSOR));
+
+        ProvenanceEventPipelineStats stats = new ProvenanceEventPipelineStats();
+        List<ProvenanceEventRecordDTO> converted = KyloProvenanceEventReportingTask.convertEvents(executor, events, 4, stats, feedLookup, pool);
+
+        List<Long> ids = converted.stream().map(ProvenanceEventRecordDTO::getEventId).collect(Collectors.toList());
+        List<Long> expected = new ArrayList<>();
+        for (long id = 1; id <= 20; id++) {
+            if (id % 5 != 0) {
+                expected.add(id);
+            }
+        }
+        Assert.assertEquals(expected, ids);
+        Assert.assertEquals(16, pool.getNumActive());
+        Assert.assertEquals(20, stats.getConvert().getEvents());
+        Assert.assertEquals(1, stats.getConvert().getBatches());
+
+        KyloProvenanceEventReportingTask.returnToPool(pool, converted);
+        Assert.assertEquals(0, pool.getNumActive());
+        Assert.assertTrue(converted.isEmpty());
+    }
+
+    /**
+     * Objects borrowed by every slice are returned to the pool when one slice fails part way through
+     */
+    @Test
+    public void testConvertEventsFailureReturnsToPool() throws Exception {
+        List<ProvenanceEventRecord> events = new ArrayList<>();
+        for (long id = 1; id <= 20; id++) {
+            events.add(newEvent(id, KYLO_PROCESSOR));
+        }
+        //an event without a type fails the conversion in the middle of the last slice
+        ProvenanceEventRecord bad = newEvent(18, KYLO_PROCESSOR);
+        Mockito.when(bad.getEventType()).thenReturn(null);
+        events.set(17, bad);
+
+        ProvenanceEventPipelineStats stats = new ProvenanceEventPipelineStats();
+        try {
+            KyloProvenanceEventReportingTask.convertEvents(executor, events, 4, stats, feedLookup, pool);
+            Assert.fail("Expected ExecutionException");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof NullPointerException);
+        }
+        Assert.assertEquals(0, pool.getNumActive());
+        Assert.assertEquals(0, stats.getConvert().getBatches());
+    }
+
+    /**
+     * Ranges start after the last event returned so gaps in the event ids are skipped, and the stage ends with the END marker
+     */
+    @Test
+    public void testFetchEventRanges() throws Exception {
+        ProvenanceEventRepository provenance = Mockito.mock(ProvenanceEventRepository.class);
+        //events 4-6 have been purged, so the first query returns events up to 8
+        Mockito.when(provenance.getEvents(1L, 5)).thenReturn(newEvents(3, 1, 2, 7, 8));
+        Mockito.when(provenance.getEvents(9L, 2)).thenReturn(newEvents(10, 9));
+
+        BlockingQueue<KyloProvenanceEventReportingTask.EventRange> ranges = new ArrayBlockingQueue<>(10);
+        ProvenanceEventPipelineStats stats = new ProvenanceEventPipelineStats();
+        KyloProvenanceEventReportingTask.fetchEventRanges(provenance, 1L, 10L, 5, ranges, stats, () -> true);
+
+        KyloProvenanceEventReportingTask.EventRange first = ranges.take();
+        Assert.assertEquals(1L, first.getMinEventId());
+        Assert.assertEquals(8L, first.getLastEventId());
+        Assert.assertEquals(Arrays.asList(1L, 2L, 3L, 7L, 8L), eventIds(first.getEvents()));
+
+        KyloProvenanceEventReportingTask.EventRange second = ranges.take();
+        Assert.assertEquals(9L, second.getMinEventId());
+        Assert.assertEquals(10L, second.getLastEventId());
+        Assert.assertEquals(Arrays.asList(9L, 10L), eventIds(second.getEvents()));
+
+        Assert.assertTrue(ranges.take().isEnd());
+        Assert.assertTrue(ranges.isEmpty());
+        Assert.assertEquals(7, stats.getFetch().getEvents());
+        Assert.assertEquals(2, stats.getFetch().getBatches());
+    }
+
+    /**
+     * The fetch stage stops and ends with the END marker once processing is aborted
+     */
+    @Test
+    public void testFetchEventRangesAborted() throws Exception {
+        ProvenanceEventRepository provenance = Mockito.mock(ProvenanceEventRepository.class);
+        BlockingQueue<KyloProvenanceEventReportingTask.EventRange> ranges = new ArrayBlockingQueue<>(10);
+
+        KyloProvenanceEventReportingTask.fetchEventRanges(provenance, 1L, 10L, 5, ranges, new ProvenanceEventPipelineStats(), () -> false);
+
+        Assert.assertTrue(ranges.take().isEnd());
+        Assert.assertTrue(ranges.isEmpty());
+        Mockito.verifyZeroInteractions(provenance);
+    }
+
+    /**
+     * Stage stats accumulate events and batches
+     */
+    @Test
+    public void testPipelineStats() {
+        ProvenanceEventPipelineStats stats = new ProvenanceEventPipelineStats();
+        ProvenanceEventPipelineStats.Stage commit = stats.getCommit();
+        Assert.assertEquals(0, commit.getEventsPerSecond());
+
+        commit.record(100, System.nanoTime() - 1000000000L);
+        commit.record(50, System.nanoTime() - 500000000L);
+        Assert.assertEquals(150, commit.getEvents());
+        Assert.assertEquals(2, commit.getBatches());
+        Assert.assertTrue(commit.getMillis() >= 1500);
+        Assert.assertTrue(commit.getEventsPerSecond() > 0 && commit.getEventsPerSecond() <= 100);
+        Assert.assertEquals(0, stats.getFetch().getBatches());
+        Assert.assertTrue(stats.toString().contains("commit: [events: 150, batches: 2"));
+    }
+
+    private List<ProvenanceEventRecord> newEvents(long... ids) {
+        List<ProvenanceEventRecord> events = new ArrayList<>();
+        for (long id : ids) {
+            events.add(newEvent(id, KYLO_PROCESSOR));
+        }
+        return events;
+    }
+
+    private List<Long> eventIds(List<ProvenanceEventRecord> events) {
+        return events.stream().map(ProvenanceEventRecord::getEventId).collect(Collectors.toList());
+    }
+
+    private ProvenanceEventRecord newEvent(long eventId, String componentId) {
+        ProvenanceEventRecord event = Mockito.mock(ProvenanceEventRecord.class);
+        Mockito.when(event.getEventId()).thenReturn(eventId);
+        Mockito.when(event.getComponentId()).thenReturn(componentId);
+        Mockito.when(event.getEventType()).thenReturn(ProvenanceEventType.CREATE);
+        Mockito.when(event.getParentUuids()).thenReturn(Collections.emptyList());
+        Mockito.when(event.getChildUuids()).thenReturn(Collections.emptyList());
+        return event;
+    }
+}
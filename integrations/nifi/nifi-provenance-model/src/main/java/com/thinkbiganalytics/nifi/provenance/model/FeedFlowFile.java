@@ -185,6 +185,74 @@ public class FeedFlowFile implements Serializable {
         return lastEventTime;
     }
 
+    public void setFirstEvent(Long firstEventId, Long firstEventStartTime, String firstEventProcessorId) {
+        this.firstEventId = firstEventId;
+        this.firstEventStartTime = firstEventStartTime;
+        this.firstEventProcessorId = firstEventProcessorId;
+    }
+
+    public void setLastEvent(Long lastEventId, Long lastEventTime, String lastEventProcessorId) {
+        this.lastEventId = lastEventId;
+        this.lastEventTime = lastEventTime;
+        this.lastEventProcessorId = lastEventProcessorId;
+    }
+
+    public void setActiveChildFlowFiles(Set<String> activeChildFlowFiles) {
+        this.activeChildFlowFiles = activeChildFlowFiles;
+    }
+
+    public void setChildFlowFiles(Set<String> childFlowFiles) {
+        this.childFlowFiles = childFlowFiles;
+    }
+
+    public int getFailedEventCount() {
+        return failedEvents.get();
+    }
+
+    public void setFailedEventCount(int failedEventCount) {
+        failedEvents.set(failedEventCount);
+    }
+
+    public Set<String> getFlowfilesStarted() {
+        return flowfilesStarted;
+    }
+
+    public void setFlowfilesStarted(Set<String> flowfilesStarted) {
+        this.flowfilesStarted = flowfilesStarted;
+    }
+
+    public boolean isCurrentFlowFileComplete() {
+        return isCurrentFlowFileComplete;
+    }
+
+    public void setCurrentFlowFileComplete(boolean currentFlowFileComplete) {
+        isCurrentFlowFileComplete = currentFlowFileComplete;
+    }
+
+    public Map<String, Long> getFlowFileLastEventTime() {
+        return flowFileLastEventTime;
+    }
+
+    public void setFlowFileLastEventTime(Map<String, Long> flowFileLastEventTime) {
+        this.flowFileLastEventTime = flowFileLastEventTime;
+    }
+
+    public Map<String, Long> getChildFlowFileStartTimes() {
+        return childFlowFileStartTimes;
+    }
+
+    public void setChildFlowFileStartTimes(Map<String, Long> childFlowFileStartTimes) {
+        this.childFlowFileStartTimes = childFlowFileStartTimes;
+    }
+
+    public Map<String, String> getFlowFileIdToParentFlowFileId() {
+        return flowFileIdToParentFlowFileId;
+    }
+
+    public void setFlowFileIdToParentFlowFileId(Map<String, String> flowFileIdToParentFlowFileId) {
+        this.flowFileIdToParentFlowFileId = flowFileIdToParentFlowFileId;
+    }
+
 
     /**
      * flag to determine if this was build from the persistent cache
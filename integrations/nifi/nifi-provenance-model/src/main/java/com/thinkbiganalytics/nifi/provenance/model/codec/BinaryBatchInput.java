@@ -0,0 +1,191 @@
+package com.thinkbiganalytics.nifi.provenance.model.codec;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.joda.time.DateTime;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Reads the primitives written by the {@link BinaryBatchOutput}
+ */
+class BinaryBatchInput {
+
+    private final DataInputStream in;
+
+    private final List<String> dictionary = new ArrayList<>();
+
+    BinaryBatchInput(InputStream in) {
+        this.in = new DataInputStream(in);
+    }
+
+    int readByte() throws IOException {
+        return in.readUnsignedByte();
+    }
+
+    long readVarLong() throws IOException {
+        long v = 0L;
+        int shift = 0;
+        int b;
+        do {
+            if (shift > 63) {
+                throw new IOException("Malformed variable length number");
+            }
+            b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    int readVarInt() throws IOException {
+        return (int) readVarLong();
+    }
+
+    Long readLong() throws IOException {
+        return in.readBoolean() ? readVarLong() : null;
+    }
+
+    DateTime readDateTime() throws IOException {
+        Long millis = readLong();
+        return millis == null ? null : new DateTime(millis);
+    }
+
+    String readString() throws IOException {
+        int ref = readVarInt();
+        if (ref == BinaryBatchOutput.NULL_REF) {
+            return null;
+        } else if (ref == BinaryBatchOutput.NEW_REF) {
+            int length = readVarInt();
+            if (length < 0) {
+                throw new IOException("Invalid string length " + length);
+            }
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            String value = new String(bytes, StandardCharsets.UTF_8);
+            dictionary.add(value);
+            return value;
+        } else {
+            int index = ref - BinaryBatchOutput.DICTIONARY_OFFSET;
+            if (index < 0 || index >= dictionary.size()) {
+                throw new IOException("Invalid string dictionary reference " + ref);
+            }
+            return dictionary.get(index);
+        }
+    }
+
+    <C extends Collection<String>> C readStrings(IntFunction<C> factory) throws IOException {
+        int size = readVarInt();
+        if (size < 0) {
+            return null;
+        }
+        C values = factory.apply(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString());
+        }
+        return values;
+    }
+
+    Map<String, String> readStringMap() throws IOException {
+        int size = readVarInt();
+        if (size < 0) {
+            return null;
+        }
+        Map<String, String> values = new HashMap<>(Math.max(16, (int) (size / 0.75f) + 1));
+        for (int i = 0; i < size; i++) {
+            String key = readString();
+            values.put(key, readString());
+        }
+        return values;
+    }
+
+    /**
+     * Read a map written by {@link BinaryBatchOutput#writeObjectMap(Map)}
+     */
+    Map<String, Object> readObjectMap() throws IOException {
+        int size = readVarInt();
+        if (size < 0) {
+            return null;
+        }
+        Map<String, Object> values = new HashMap<>(Math.max(16, (int) (size / 0.75f) + 1));
+        for (int i = 0; i < size; i++) {
+            String key = readString();
+            values.put(key, readObject());
+        }
+        return values;
+    }
+
+    private Object readObject() throws IOException {
+        int type = readByte();
+        switch (type) {
+            case BinaryBatchOutput.VALUE_NULL:
+                return null;
+            case BinaryBatchOutput.VALUE_STRING:
+                return readString();
+            case BinaryBatchOutput.VALUE_LONG:
+                return readVarLong();
+            case BinaryBatchOutput.VALUE_INTEGER:
+                return readVarInt();
+            case BinaryBatchOutput.VALUE_DOUBLE:
+                return in.readDouble();
+            case BinaryBatchOutput.VALUE_BOOLEAN:
+                return in.readBoolean();
+            case BinaryBatchOutput.VALUE_SERIALIZED:
+                int length = readVarInt();
+                if (length < 0) {
+                    throw new IOException("Invalid serialized value length " + length);
+                }
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                    return objectIn.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new IOException("Unable to decode serialized value", e);
+                }
+            default:
+                throw new IOException("Invalid value type " + type);
+        }
+    }
+
+    Map<String, Long> readLongMap() throws IOException {
+        int size = readVarInt();
+        if (size < 0) {
+            return null;
+        }
+        Map<String, Long> values = new HashMap<>(Math.max(16, (int) (size / 0.75f) + 1));
+        for (int i = 0; i < size; i++) {
+            String key = readString();
+            values.put(key, readLong());
+        }
+        return values;
+    }
+}
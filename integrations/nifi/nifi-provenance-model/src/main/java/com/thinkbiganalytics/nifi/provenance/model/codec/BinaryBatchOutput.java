@@ -0,0 +1,211 @@
+package com.thinkbiganalytics.nifi.provenance.model.codec;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.joda.time.DateTime;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes the primitives used by the {@link BinaryProvenanceBatchCodec}.
+ * Numbers are written as variable length integers and every string is dictionary encoded so repeated values (feed names, processor ids, attribute names) are only written once per batch.
+ */
+class BinaryBatchOutput {
+
+    /**
+     * marker written for a null string or collection
+     */
+    static final int NULL_REF = 0;
+
+    /**
+     * marker written before a string that has not been seen before in this batch
+     */
+    static final int NEW_REF = 1;
+
+    /**
+     * offset added to the dictionary index of a previously written string
+     */
+    static final int DICTIONARY_OFFSET = 2;
+
+    /**
+     * type markers written before each value of an object map
+     */
+    static final int VALUE_NULL = 0;
+    static final int VALUE_STRING = 1;
+    static final int VALUE_LONG = 2;
+    static final int VALUE_INTEGER = 3;
+    static final int VALUE_DOUBLE = 4;
+    static final int VALUE_BOOLEAN = 5;
+    static final int VALUE_SERIALIZED = 6;
+
+    private final DataOutputStream out;
+
+    private final Map<String, Integer> dictionary = new HashMap<>();
+
+    BinaryBatchOutput(OutputStream out) {
+        this.out = new DataOutputStream(out);
+    }
+
+    void writeByte(int value) throws IOException {
+        out.writeByte(value);
+    }
+
+    void writeVarLong(long value) throws IOException {
+        //zig zag encode so small negative numbers stay small
+        long v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    void writeVarInt(int value) throws IOException {
+        writeVarLong(value);
+    }
+
+    void writeLong(Long value) throws IOException {
+        if (value == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            writeVarLong(value);
+        }
+    }
+
+    void writeDateTime(DateTime value) throws IOException {
+        writeLong(value == null ? null : value.getMillis());
+    }
+
+    void writeString(String value) throws IOException {
+        if (value == null) {
+            writeVarInt(NULL_REF);
+            return;
+        }
+        Integer index = dictionary.get(value);
+        if (index != null) {
+            writeVarInt(index + DICTIONARY_OFFSET);
+        } else {
+            dictionary.put(value, dictionary.size());
+            writeVarInt(NEW_REF);
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    void writeStrings(Collection<String> values) throws IOException {
+        if (values == null) {
+            writeVarInt(-1);
+            return;
+        }
+        writeVarInt(values.size());
+        for (String value : values) {
+            writeString(value);
+        }
+    }
+
+    void writeStringMap(Map<String, String> values) throws IOException {
+        if (values == null) {
+            writeVarInt(-1);
+            return;
+        }
+        writeVarInt(values.size());
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            writeString(entry.getKey());
+            writeString(entry.getValue());
+        }
+    }
+
+    /**
+     * Write a map whose values keep their type when read back.
+     * Strings and common boxed primitives are written directly and any other {@link Serializable} value is written with Java serialization.
+     *
+     * @throws IOException if a value is not serializable
+     */
+    void writeObjectMap(Map<String, ?> values) throws IOException {
+        if (values == null) {
+            writeVarInt(-1);
+            return;
+        }
+        writeVarInt(values.size());
+        for (Map.Entry<String, ?> entry : values.entrySet()) {
+            writeString(entry.getKey());
+            writeObject(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void writeObject(String key, Object value) throws IOException {
+        if (value == null) {
+            writeByte(VALUE_NULL);
+        } else if (value instanceof String) {
+            writeByte(VALUE_STRING);
+            writeString((String) value);
+        } else if (value instanceof Long) {
+            writeByte(VALUE_LONG);
+            writeVarLong((Long) value);
+        } else if (value instanceof Integer) {
+            writeByte(VALUE_INTEGER);
+            writeVarInt((Integer) value);
+        } else if (value instanceof Double) {
+            writeByte(VALUE_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            writeByte(VALUE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Serializable) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream objectOut = new ObjectOutputStream(bytes)) {
+                objectOut.writeObject(value);
+            }
+            writeByte(VALUE_SERIALIZED);
+            writeVarInt(bytes.size());
+            bytes.writeTo(out);
+        } else {
+            throw new IOException("Unable to encode value for " + key + ". " + value.getClass().getName() + " is not serializable");
+        }
+    }
+
+    void writeLongMap(Map<String, Long> values) throws IOException {
+        if (values == null) {
+            writeVarInt(-1);
+            return;
+        }
+        writeVarInt(values.size());
+        for (Map.Entry<String, Long> entry : values.entrySet()) {
+            writeString(entry.getKey());
+            writeLong(entry.getValue());
+        }
+    }
+
+    void flush() throws IOException {
+        out.flush();
+    }
+}
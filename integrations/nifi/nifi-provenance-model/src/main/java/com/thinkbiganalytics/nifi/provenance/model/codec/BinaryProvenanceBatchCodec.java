@@ -0,0 +1,422 @@
+package com.thinkbiganalytics.nifi.provenance.model.codec;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.KyloProcessorFlowType;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTOHolder;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatistics;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatisticsHolder;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedProcessorStatistics;
+import com.thinkbiganalytics.nifi.provenance.model.stats.GroupedStats;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A compact binary format for the batches sent to Kylo.
+ *
+ * Each message starts with a fixed header (magic number, format version, payload type and flags) followed by the payload.
+ * Fields are written in a fixed order, numbers as variable length integers, and all strings are dictionary encoded so the repeated feed, processor, component and attribute names
+ * are only written once per message.  The payload can optionally be compressed.
+ *
+ * The transient {@link com.thinkbiganalytics.nifi.provenance.model.FeedFlowFile} graph referenced by an event is not part of the format since it is only needed inside NiFi.
+ */
+public class BinaryProvenanceBatchCodec implements ProvenanceBatchCodec {
+
+    public static final String NAME = "binary";
+
+    /**
+     * "KPB1"
+     */
+    static final int MAGIC = 0x4B504231;
+
+    static final int VERSION = 1;
+
+    static final int TYPE_EVENTS = 1;
+
+    static final int TYPE_STATS = 2;
+
+    static final int FLAG_COMPRESSED = 0x01;
+
+    private static final int EVENT_FLAG_START_OF_JOB = 1;
+    private static final int EVENT_FLAG_END_OF_JOB = 1 << 1;
+    private static final int EVENT_FLAG_FINAL_JOB_EVENT = 1 << 2;
+    private static final int EVENT_FLAG_BATCH_JOB = 1 << 3;
+    private static final int EVENT_FLAG_HAS_FAILED_EVENTS = 1 << 4;
+    private static final int EVENT_FLAG_START_OF_FLOW_FILE = 1 << 5;
+    private static final int EVENT_FLAG_FAILURE = 1 << 6;
+    private static final int EVENT_FLAG_STREAM = 1 << 7;
+
+    private static final KyloProcessorFlowType[] PROCESSOR_FLOW_TYPES = KyloProcessorFlowType.values();
+
+    /**
+     * Should the payload be compressed
+     */
+    private final boolean compress;
+
+    public BinaryProvenanceBatchCodec() {
+        this(false);
+    }
+
+    public BinaryProvenanceBatchCodec(boolean compress) {
+        this.compress = compress;
+    }
+
+    /**
+     * Check to see if the bytes were created by this codec
+     *
+     * @param bytes the encoded message
+     * @return true if the bytes start with the binary header
+     */
+    public static boolean isBinaryFormat(byte[] bytes) {
+        if (bytes == null || bytes.length < 4) {
+            return false;
+        }
+        int magic = ((bytes[0] & 0xFF) << 24) | ((bytes[1] & 0xFF) << 16) | ((bytes[2] & 0xFF) << 8) | (bytes[3] & 0xFF);
+        return magic == MAGIC;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    public boolean isCompress() {
+        return compress;
+    }
+
+    @Override
+    public byte[] encodeEvents(ProvenanceEventRecordDTOHolder holder) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream payload = startPayload(bytes, TYPE_EVENTS)) {
+            BinaryBatchOutput out = new BinaryBatchOutput(payload);
+            out.writeString(holder.getBatchId());
+            List<ProvenanceEventRecordDTO> events = holder.getEvents();
+            out.writeVarInt(events == null ? -1 : events.size());
+            if (events != null) {
+                for (ProvenanceEventRecordDTO event : events) {
+                    writeEvent(out, event);
+                }
+            }
+            out.flush();
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public ProvenanceEventRecordDTOHolder decodeEvents(byte[] bytes) throws IOException {
+        try (InputStream payload = startRead(bytes, TYPE_EVENTS)) {
+            BinaryBatchInput in = new BinaryBatchInput(payload);
+            ProvenanceEventRecordDTOHolder holder = new ProvenanceEventRecordDTOHolder();
+            holder.setBatchId(in.readString());
+            int size = in.readVarInt();
+            if (size >= 0) {
+                List<ProvenanceEventRecordDTO> events = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    events.add(readEvent(in));
+                }
+                holder.setEvents(events);
+            }
+            return holder;
+        }
+    }
+
+    @Override
+    public byte[] encodeStats(AggregatedFeedProcessorStatisticsHolder holder) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream payload = startPayload(bytes, TYPE_STATS)) {
+            BinaryBatchOutput out = new BinaryBatchOutput(payload);
+            out.writeString(holder.getCollectionId());
+            out.writeDateTime(holder.getMinTime());
+            out.writeDateTime(holder.getMaxTime());
+            out.writeVarLong(holder.getEventCount().get());
+            out.writeLong(holder.getMinEventId());
+            out.writeLong(holder.getMaxEventId());
+
+            //copy the entries so the count written matches the entries written if the stats are being updated
+            List<Map.Entry<String, AggregatedFeedProcessorStatistics>> feedStatistics = new ArrayList<>(holder.getFeedStatistics().entrySet());
+            out.writeVarInt(feedStatistics.size());
+            for (Map.Entry<String, AggregatedFeedProcessorStatistics> feedEntry : feedStatistics) {
+                AggregatedFeedProcessorStatistics feedStats = feedEntry.getValue();
+                out.writeString(feedEntry.getKey());
+                out.writeString(feedStats.getFeedName());
+                out.writeString(feedStats.getProcessGroup());
+                out.writeString(feedStats.getCollectionId());
+                out.writeLong(feedStats.getTotalEvents());
+                out.writeLong(feedStats.getMinEventId());
+                out.writeLong(feedStats.getMaxEventId());
+
+                List<Map.Entry<String, AggregatedProcessorStatistics>> processorStats = new ArrayList<>(feedStats.getProcessorStats().entrySet());
+                out.writeVarInt(processorStats.size());
+                for (Map.Entry<String, AggregatedProcessorStatistics> processorEntry : processorStats) {
+                    AggregatedProcessorStatistics processorStatistics = processorEntry.getValue();
+                    out.writeString(processorEntry.getKey());
+                    out.writeString(processorStatistics.getProcessorId());
+                    out.writeString(processorStatistics.getProcessorName());
+                    writeGroupedStats(out, processorStatistics.getStats());
+                }
+            }
+            out.flush();
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public AggregatedFeedProcessorStatisticsHolder decodeStats(byte[] bytes) throws IOException {
+        try (InputStream payload = startRead(bytes, TYPE_STATS)) {
+            BinaryBatchInput in = new BinaryBatchInput(payload);
+            AggregatedFeedProcessorStatisticsHolder holder = new AggregatedFeedProcessorStatisticsHolder();
+            holder.setCollectionId(in.readString());
+            holder.setMinTime(in.readDateTime());
+            holder.setMaxTime(in.readDateTime());
+            holder.getEventCount().set(in.readVarLong());
+            holder.setMinEventId(in.readLong());
+            holder.setMaxEventId(in.readLong());
+
+            int feeds = in.readVarInt();
+            for (int i = 0; i < feeds; i++) {
+                String feedKey = in.readString();
+                AggregatedFeedProcessorStatistics feedStats = new AggregatedFeedProcessorStatistics(in.readString(), null);
+                feedStats.setProcessGroup(in.readString());
+                feedStats.setCollectionId(in.readString());
+                feedStats.setTotalEvents(in.readLong());
+                feedStats.setMinEventId(in.readLong());
+                feedStats.setMaxEventId(in.readLong());
+
+                int processors = in.readVarInt();
+                for (int p = 0; p < processors; p++) {
+                    String processorKey = in.readString();
+                    String processorId = in.readString();
+                    String processorName = in.readString();
+                    AggregatedProcessorStatistics processorStatistics = new AggregatedProcessorStatistics(processorId, processorName, null);
+                    processorStatistics.setStats(readGroupedStats(in));
+                    feedStats.getProcessorStats().put(processorKey, processorStatistics);
+                }
+                holder.getFeedStatistics().put(feedKey, feedStats);
+            }
+            return holder;
+        }
+    }
+
+    private void writeEvent(BinaryBatchOutput out, ProvenanceEventRecordDTO event) throws IOException {
+        int flags = 0;
+        flags |= event.isStartOfJob() ? EVENT_FLAG_START_OF_JOB : 0;
+        flags |= event.isEndOfJob() ? EVENT_FLAG_END_OF_JOB : 0;
+        flags |= event.isFinalJobEvent() ? EVENT_FLAG_FINAL_JOB_EVENT : 0;
+        flags |= event.isBatchJob() ? EVENT_FLAG_BATCH_JOB : 0;
+        flags |= event.isHasFailedEvents() ? EVENT_FLAG_HAS_FAILED_EVENTS : 0;
+        flags |= event.isStartOfFlowFile() ? EVENT_FLAG_START_OF_FLOW_FILE : 0;
+        flags |= event.isFailure() ? EVENT_FLAG_FAILURE : 0;
+        flags |= event.isStream() ? EVENT_FLAG_STREAM : 0;
+        out.writeByte(flags);
+
+        out.writeLong(event.getEventId());
+        out.writeString(event.getId());
+        out.writeDateTime(event.getEventTime());
+        out.writeDateTime(event.getStartTime());
+        out.writeLong(event.getEventDuration());
+        out.writeString(event.getEventType());
+        out.writeString(event.getFlowFileUuid());
+        out.writeString(event.getFileSize());
+        out.writeLong(event.getFileSizeBytes());
+        out.writeString(event.getClusterNodeId());
+        out.writeString(event.getClusterNodeAddress());
+        out.writeString(event.getGroupId());
+        out.writeString(event.getComponentId());
+        out.writeString(event.getComponentType());
+        out.writeString(event.getComponentName());
+        out.writeStrings(event.getParentUuids());
+        out.writeStrings(event.getChildUuids());
+        out.writeString(event.getDetails());
+        out.writeString(event.getSourceConnectionIdentifier());
+        out.writeLong(event.getInputContentClaimFileSizeBytes());
+        out.writeString(event.getInputContentClaimFileSize());
+        out.writeLong(event.getOutputContentClaimFileSizeBytes());
+        out.writeString(event.getOutputContentClaimFileSize());
+        out.writeStrings(event.getRelatedRootFlowFiles());
+        out.writeVarInt(event.getProcessorType() == null ? -1 : event.getProcessorType().ordinal());
+        out.writeString(event.getJobFlowFileId());
+        out.writeLong(event.getJobEventId());
+        out.writeString(event.getFeedName());
+        out.writeString(event.getFeedProcessGroupId());
+        out.writeString(event.getBatchId());
+        out.writeString(event.getRelationship());
+        out.writeLong(event.getPreviousEventId());
+        out.writeDateTime(event.getPreviousEventTime());
+        out.writeString(event.getPreviousFlowfileId());
+        out.writeStringMap(event.getUpdatedAttributes());
+        out.writeStringMap(event.getPreviousAttributes());
+        out.writeStringMap(event.getAttributeMap());
+        out.writeObjectMap(event.getAdditionalProperties());
+    }
+
+    private ProvenanceEventRecordDTO readEvent(BinaryBatchInput in) throws IOException {
+        ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+        int flags = in.readByte();
+        event.setIsStartOfJob((flags & EVENT_FLAG_START_OF_JOB) != 0);
+        event.setIsEndOfJob((flags & EVENT_FLAG_END_OF_JOB) != 0);
+        event.setIsFinalJobEvent((flags & EVENT_FLAG_FINAL_JOB_EVENT) != 0);
+        event.setIsBatchJob((flags & EVENT_FLAG_BATCH_JOB) != 0);
+        event.setHasFailedEvents((flags & EVENT_FLAG_HAS_FAILED_EVENTS) != 0);
+        event.setStartOfFlowFile((flags & EVENT_FLAG_START_OF_FLOW_FILE) != 0);
+        event.setIsFailure((flags & EVENT_FLAG_FAILURE) != 0);
+        event.setStream((flags & EVENT_FLAG_STREAM) != 0);
+
+        event.setEventId(in.readLong());
+        event.setId(in.readString());
+        event.setEventTime(in.readDateTime());
+        event.setStartTime(in.readDateTime());
+        event.setEventDuration(in.readLong());
+        event.setEventType(in.readString());
+        event.setFlowFileUuid(in.readString());
+        event.setFileSize(in.readString());
+        event.setFileSizeBytes(in.readLong());
+        event.setClusterNodeId(in.readString());
+        event.setClusterNodeAddress(in.readString());
+        event.setGroupId(in.readString());
+        event.setComponentId(in.readString());
+        event.setComponentType(in.readString());
+        event.setComponentName(in.readString());
+        event.setParentUuids(in.readStrings(ArrayList::new));
+        event.setChildUuids(in.readStrings(ArrayList::new));
+        event.setDetails(in.readString());
+        event.setSourceConnectionIdentifier(in.readString());
+        event.setInputContentClaimFileSizeBytes(in.readLong());
+        event.setInputContentClaimFileSize(in.readString());
+        event.setOutputContentClaimFileSizeBytes(in.readLong());
+        event.setOutputContentClaimFileSize(in.readString());
+        Set<String> relatedRootFlowFiles = in.readStrings(HashSet::new);
+        event.setRelatedRootFlowFiles(relatedRootFlowFiles);
+        int processorType = in.readVarInt();
+        if (processorType >= 0 && processorType < PROCESSOR_FLOW_TYPES.length) {
+            event.setProcessorType(PROCESSOR_FLOW_TYPES[processorType]);
+        }
+        event.setJobFlowFileId(in.readString());
+        event.setJobEventId(in.readLong());
+        event.setFeedName(in.readString());
+        event.setFeedProcessGroupId(in.readString());
+        event.setBatchId(in.readString());
+        event.setRelationship(in.readString());
+        event.setPreviousEventId(in.readLong());
+        event.setPreviousEventTime(in.readDateTime());
+        event.setPreviousFlowfileId(in.readString());
+        event.setUpdatedAttributes(in.readStringMap());
+        event.setPreviousAttributes(in.readStringMap());
+        event.setAttributeMap(in.readStringMap());
+        Map<String, Object> additionalProperties = in.readObjectMap();
+        event.setAdditionalProperties(additionalProperties != null ? additionalProperties : new HashMap<>());
+        return event;
+    }
+
+    private void writeGroupedStats(BinaryBatchOutput out, GroupedStats stats) throws IOException {
+        out.writeString(stats.getGroupKey());
+        out.writeDateTime(stats.getTime());
+        out.writeDateTime(stats.getMinTime());
+        out.writeDateTime(stats.getMaxTime());
+        out.writeVarLong(stats.getBytesIn());
+        out.writeVarLong(stats.getBytesOut());
+        out.writeVarLong(stats.getDuration());
+        out.writeVarLong(stats.getTotalCount());
+        out.writeVarLong(stats.getJobsStarted());
+        out.writeVarLong(stats.getJobsFinished());
+        out.writeVarLong(stats.getProcessorsFailed());
+        out.writeVarLong(stats.getFlowFilesStarted());
+        out.writeVarLong(stats.getFlowFilesFinished());
+        out.writeVarLong(stats.getJobsFailed());
+        out.writeVarLong(stats.getSuccessfulJobDuration());
+        out.writeVarLong(stats.getJobDuration());
+        out.writeVarLong(stats.getMaxEventId());
+        out.writeString(stats.getClusterNodeId());
+        out.writeString(stats.getClusterNodeAddress());
+    }
+
+    private GroupedStats readGroupedStats(BinaryBatchInput in) throws IOException {
+        GroupedStats stats = new GroupedStats();
+        stats.setGroupKey(in.readString());
+        stats.setTime(in.readDateTime());
+        stats.setMinTime(in.readDateTime());
+        stats.setMaxTime(in.readDateTime());
+        stats.setBytesIn(in.readVarLong());
+        stats.setBytesOut(in.readVarLong());
+        stats.setDuration(in.readVarLong());
+        stats.setTotalCount(in.readVarLong());
+        stats.setJobsStarted(in.readVarLong());
+        stats.setJobsFinished(in.readVarLong());
+        stats.setProcessorsFailed(in.readVarLong());
+        stats.setFlowFilesStarted(in.readVarLong());
+        stats.setFlowFilesFinished(in.readVarLong());
+        stats.setJobsFailed(in.readVarLong());
+        stats.setSuccessfulJobDuration(in.readVarLong());
+        stats.setJobDuration(in.readVarLong());
+        stats.setMaxEventId(in.readVarLong());
+        stats.setClusterNodeId(in.readString());
+        stats.setClusterNodeAddress(in.readString());
+        return stats;
+    }
+
+    /**
+     * Write the header and return the stream the payload should be written to
+     */
+    private OutputStream startPayload(ByteArrayOutputStream bytes, int type) throws IOException {
+        DataOutputStream header = new DataOutputStream(bytes);
+        header.writeInt(MAGIC);
+        header.writeByte(VERSION);
+        header.writeByte(type);
+        header.writeByte(compress ? FLAG_COMPRESSED : 0);
+        header.flush();
+        return compress ? new DeflaterOutputStream(bytes, new Deflater(Deflater.BEST_SPEED), 8192) : bytes;
+    }
+
+    /**
+     * Validate the header and return the stream to read the payload from
+     */
+    private InputStream startRead(byte[] bytes, int expectedType) throws IOException {
+        DataInputStream header = new DataInputStream(new ByteArrayInputStream(bytes));
+        if (header.readInt() != MAGIC) {
+            throw new IOException("Unable to decode message.  It was not written by the " + NAME + " codec");
+        }
+        int version = header.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported " + NAME + " codec version " + version);
+        }
+        int type = header.readUnsignedByte();
+        if (type != expectedType) {
+            throw new IOException("Unexpected payload type " + type + ". Expected " + expectedType);
+        }
+        int flags = header.readUnsignedByte();
+        return (flags & FLAG_COMPRESSED) != 0 ? new InflaterInputStream(header) : header;
+    }
+}
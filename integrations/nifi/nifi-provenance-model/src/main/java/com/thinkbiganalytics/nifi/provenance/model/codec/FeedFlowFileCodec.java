@@ -0,0 +1,113 @@
+package com.thinkbiganalytics.nifi.provenance.model.codec;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.model.FeedFlowFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+
+/**
+ * Compact binary form of a {@link FeedFlowFile} used when persisting running flow files to disk.
+ * The child flow file ids repeat across the sets and maps of a flow file so they are dictionary encoded using the {@link BinaryBatchOutput}.
+ */
+public class FeedFlowFileCodec {
+
+    /**
+     * First byte of every encoded flow file.  Java serialized objects start with 0xAC so the two formats can be told apart
+     */
+    public static final int FORMAT = 0x46;
+
+    static final int VERSION = 1;
+
+    private static final int FLAG_STREAM = 1;
+    private static final int FLAG_CURRENT_FLOW_FILE_COMPLETE = 1 << 1;
+    private static final int FLAG_BUILT_FROM_MAPDB = 1 << 2;
+
+    private FeedFlowFileCodec() {
+    }
+
+    /**
+     * Check to see if the bytes were created by this codec
+     */
+    public static boolean isEncoded(byte[] bytes) {
+        return bytes != null && bytes.length > 1 && (bytes[0] & 0xFF) == FORMAT;
+    }
+
+    public static byte[] encode(FeedFlowFile flowFile) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        BinaryBatchOutput out = new BinaryBatchOutput(bytes);
+        out.writeByte(FORMAT);
+        out.writeByte(VERSION);
+        int flags = (flowFile.isStream() ? FLAG_STREAM : 0)
+                    | (flowFile.isCurrentFlowFileComplete() ? FLAG_CURRENT_FLOW_FILE_COMPLETE : 0)
+                    | (flowFile.isBuiltFromMapDb() ? FLAG_BUILT_FROM_MAPDB : 0);
+        out.writeByte(flags);
+        out.writeString(flowFile.getId());
+        out.writeString(flowFile.getFeedName());
+        out.writeString(flowFile.getFeedProcessGroupId());
+        out.writeLong(flowFile.getFirstEventId());
+        out.writeLong(flowFile.getFirstEventStartTime());
+        out.writeString(flowFile.getFirstEventProcessorId());
+        out.writeLong(flowFile.getLastEventId());
+        out.writeLong(flowFile.getLastEventTime());
+        out.writeString(flowFile.getLastEventProcessorId());
+        out.writeVarInt(flowFile.getFailedEventCount());
+        out.writeStrings(flowFile.getChildFlowFiles());
+        out.writeStrings(flowFile.getActiveChildFlowFiles());
+        out.writeStrings(flowFile.getFlowfilesStarted());
+        out.writeLongMap(flowFile.getFlowFileLastEventTime());
+        out.writeLongMap(flowFile.getChildFlowFileStartTimes());
+        out.writeStringMap(flowFile.getFlowFileIdToParentFlowFileId());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    public static FeedFlowFile decode(byte[] bytes) throws IOException {
+        BinaryBatchInput in = new BinaryBatchInput(new ByteArrayInputStream(bytes));
+        if (in.readByte() != FORMAT) {
+            throw new IOException("Unable to decode the flow file.  It was not written by the FeedFlowFileCodec");
+        }
+        int version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported FeedFlowFile codec version " + version);
+        }
+        int flags = in.readByte();
+        FeedFlowFile flowFile = new FeedFlowFile(in.readString());
+        flowFile.setStream((flags & FLAG_STREAM) != 0);
+        flowFile.setCurrentFlowFileComplete((flags & FLAG_CURRENT_FLOW_FILE_COMPLETE) != 0);
+        flowFile.setBuiltFromMapDb((flags & FLAG_BUILT_FROM_MAPDB) != 0);
+        flowFile.setFeedName(in.readString());
+        flowFile.setFeedProcessGroupId(in.readString());
+        flowFile.setFirstEvent(in.readLong(), in.readLong(), in.readString());
+        flowFile.setLastEvent(in.readLong(), in.readLong(), in.readString());
+        flowFile.setFailedEventCount(in.readVarInt());
+        flowFile.setChildFlowFiles(in.readStrings(HashSet::new));
+        flowFile.setActiveChildFlowFiles(in.readStrings(HashSet::new));
+        flowFile.setFlowfilesStarted(in.readStrings(HashSet::new));
+        flowFile.setFlowFileLastEventTime(in.readLongMap());
+        flowFile.setChildFlowFileStartTimes(in.readLongMap());
+        flowFile.setFlowFileIdToParentFlowFileId(in.readStringMap());
+        return flowFile;
+    }
+}
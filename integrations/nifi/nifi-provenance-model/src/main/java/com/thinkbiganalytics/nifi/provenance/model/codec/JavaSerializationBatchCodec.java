@@ -0,0 +1,79 @@
+package com.thinkbiganalytics.nifi.provenance.model.codec;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTOHolder;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatisticsHolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * The original format used to send batches to Kylo.  The objects are written using standard Java serialization.
+ */
+public class JavaSerializationBatchCodec implements ProvenanceBatchCodec {
+
+    public static final String NAME = "java";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] encodeEvents(ProvenanceEventRecordDTOHolder holder) throws IOException {
+        return serialize(holder);
+    }
+
+    @Override
+    public ProvenanceEventRecordDTOHolder decodeEvents(byte[] bytes) throws IOException {
+        return deserialize(bytes, ProvenanceEventRecordDTOHolder.class);
+    }
+
+    @Override
+    public byte[] encodeStats(AggregatedFeedProcessorStatisticsHolder holder) throws IOException {
+        return serialize(holder);
+    }
+
+    @Override
+    public AggregatedFeedProcessorStatisticsHolder decodeStats(byte[] bytes) throws IOException {
+        return deserialize(bytes, AggregatedFeedProcessorStatisticsHolder.class);
+    }
+
+    private byte[] serialize(Object obj) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(obj);
+        }
+        return bytes.toByteArray();
+    }
+
+    private <T> T deserialize(byte[] bytes, Class<T> type) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return type.cast(in.readObject());
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unable to deserialize " + type.getSimpleName(), e);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.thinkbiganalytics.nifi.provenance.model.codec;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTOHolder;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatisticsHolder;
+
+import java.io.IOException;
+
+/**
+ * Encodes and decodes the batches of provenance events and statistics sent from NiFi to Kylo over JMS.
+ *
+ * Note: Any modifications to the wire format of an implementation will result in the need to update kylo-services and the KyloReportingTask nar
+ */
+public interface ProvenanceBatchCodec {
+
+    /**
+     * @return the unique name of this codec.  This is sent with each JMS message so the receiver knows how to decode it.
+     */
+    String getName();
+
+    /**
+     * Encode the batch of events
+     *
+     * @param holder the events to encode
+     * @return the encoded bytes
+     */
+    byte[] encodeEvents(ProvenanceEventRecordDTOHolder holder) throws IOException;
+
+    /**
+     * Decode a batch of events
+     *
+     * @param bytes bytes created from {@link #encodeEvents(ProvenanceEventRecordDTOHolder)}
+     * @return the batch of events
+     */
+    ProvenanceEventRecordDTOHolder decodeEvents(byte[] bytes) throws IOException;
+
+    /**
+     * Encode the statistics
+     *
+     * @param holder the statistics to encode
+     * @return the encoded bytes
+     */
+    byte[] encodeStats(AggregatedFeedProcessorStatisticsHolder holder) throws IOException;
+
+    /**
+     * Decode the statistics
+     *
+     * @param bytes bytes created from {@link #encodeStats(AggregatedFeedProcessorStatisticsHolder)}
+     * @return the statistics
+     */
+    AggregatedFeedProcessorStatisticsHolder decodeStats(byte[] bytes) throws IOException;
+}
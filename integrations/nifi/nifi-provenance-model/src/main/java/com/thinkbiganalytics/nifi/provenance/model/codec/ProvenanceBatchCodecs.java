@@ -0,0 +1,79 @@
+package com.thinkbiganalytics.nifi.provenance.model.codec;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Lookup of the available {@link ProvenanceBatchCodec} implementations
+ */
+public class ProvenanceBatchCodecs {
+
+    /**
+     * The JMS message property holding the {@link ProvenanceBatchCodec#getName()} used to encode the message.
+     * Messages without this property are Java serialized object messages
+     */
+    public static final String CODEC_PROPERTY = "kyloProvenanceCodec";
+
+    /**
+     * JMS selector matching messages encoded with a {@link ProvenanceBatchCodec}
+     */
+    public static final String ENCODED_MESSAGE_SELECTOR = CODEC_PROPERTY + " IS NOT NULL";
+
+    /**
+     * JMS selector matching the original Java serialized object messages
+     */
+    public static final String OBJECT_MESSAGE_SELECTOR = CODEC_PROPERTY + " IS NULL";
+
+    private static final ProvenanceBatchCodec JAVA = new JavaSerializationBatchCodec();
+
+    private static final ProvenanceBatchCodec BINARY = new BinaryProvenanceBatchCodec(false);
+
+    private static final ProvenanceBatchCodec BINARY_COMPRESSED = new BinaryProvenanceBatchCodec(true);
+
+    private ProvenanceBatchCodecs() {
+
+    }
+
+    /**
+     * Get the codec used to write messages
+     *
+     * @param name     the name of the codec. If blank or unknown the {@link JavaSerializationBatchCodec} is returned
+     * @param compress true to compress the payload if supported by the codec
+     * @return the codec
+     */
+    public static ProvenanceBatchCodec getCodec(String name, boolean compress) {
+        if (BinaryProvenanceBatchCodec.NAME.equalsIgnoreCase(StringUtils.trim(name))) {
+            return compress ? BINARY_COMPRESSED : BINARY;
+        }
+        return JAVA;
+    }
+
+    /**
+     * Get the codec used to read messages.  Compression is detected from the message itself.
+     *
+     * @param name the name of the codec from the {@link #CODEC_PROPERTY} message property
+     * @return the codec
+     */
+    public static ProvenanceBatchCodec getCodec(String name) {
+        return getCodec(name, false);
+    }
+}
@@ -0,0 +1,96 @@
+package com.thinkbiganalytics.nifi.provenance.model.codec;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.model.FeedFlowFile;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.UUID;
+
+/**
+ * Round trip tests of the {@link FeedFlowFileCodec}
+ */
+public class FeedFlowFileCodecTest {
+
+    private FeedFlowFile newFlowFile(int children) {
+        String rootId = UUID.randomUUID().toString();
+        FeedFlowFile flowFile = new FeedFlowFile(rootId);
+        flowFile.setFeedName("category.feed");
+        flowFile.setFeedProcessGroupId(UUID.randomUUID().toString());
+        ProvenanceEventRecordDTO first = new ProvenanceEventRecordDTO();
+        first.setEventId(1L);
+        first.setFlowFileUuid(rootId);
+        first.setComponentId(UUID.randomUUID().toString());
+        first.setEventTime(new DateTime(1490000000000L));
+        flowFile.addEvent(first);
+        flowFile.setFirstEvent(first);
+        for (int i = 0; i < children; i++) {
+            String childId = UUID.randomUUID().toString();
+            flowFile.addChildFlowFile(childId);
+            flowFile.assignFlowFileToParent(childId, rootId);
+            flowFile.assignChildFlowFileStartTime(childId, 1490000000000L + i);
+        }
+        flowFile.incrementFailedEvents();
+        return flowFile;
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        FeedFlowFile flowFile = newFlowFile(10);
+        byte[] bytes = FeedFlowFileCodec.encode(flowFile);
+        Assert.assertTrue(FeedFlowFileCodec.isEncoded(bytes));
+
+        FeedFlowFile decoded = FeedFlowFileCodec.decode(bytes);
+        Assert.assertEquals(flowFile.getId(), decoded.getId());
+        Assert.assertEquals(flowFile.getFeedName(), decoded.getFeedName());
+        Assert.assertEquals(flowFile.getFeedProcessGroupId(), decoded.getFeedProcessGroupId());
+        Assert.assertEquals(flowFile.getFirstEventId(), decoded.getFirstEventId());
+        Assert.assertEquals(flowFile.getFirstEventStartTime(), decoded.getFirstEventStartTime());
+        Assert.assertEquals(flowFile.getFirstEventProcessorId(), decoded.getFirstEventProcessorId());
+        Assert.assertEquals(flowFile.getLastEventId(), decoded.getLastEventId());
+        Assert.assertEquals(flowFile.getLastEventTime(), decoded.getLastEventTime());
+        Assert.assertEquals(flowFile.getChildFlowFiles(), decoded.getChildFlowFiles());
+        Assert.assertEquals(flowFile.getActiveChildFlowFiles(), decoded.getActiveChildFlowFiles());
+        Assert.assertEquals(flowFile.getFlowFileLastEventTime(), decoded.getFlowFileLastEventTime());
+        Assert.assertEquals(flowFile.getChildFlowFileStartTimes(), decoded.getChildFlowFileStartTimes());
+        Assert.assertEquals(flowFile.getFlowFileIdToParentFlowFileId(), decoded.getFlowFileIdToParentFlowFileId());
+        Assert.assertTrue(decoded.hasFailedEvents());
+        Assert.assertFalse(decoded.isFeedComplete());
+    }
+
+    @Test
+    public void testSmallerThanJavaSerialization() throws Exception {
+        FeedFlowFile flowFile = newFlowFile(100);
+        ByteArrayOutputStream java = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(java)) {
+            out.writeObject(flowFile);
+        }
+        byte[] bytes = FeedFlowFileCodec.encode(flowFile);
+        Assert.assertFalse(FeedFlowFileCodec.isEncoded(java.toByteArray()));
+        Assert.assertTrue("Expected " + bytes.length + " < " + java.size(), bytes.length < java.size());
+    }
+}
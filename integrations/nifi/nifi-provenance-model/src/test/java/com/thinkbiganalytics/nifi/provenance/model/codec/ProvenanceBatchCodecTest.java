@@ -0,0 +1,262 @@
+package com.thinkbiganalytics.nifi.provenance.model.codec;
+
+/*-
+ * #%L
+ * thinkbig-nifi-provenance-model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.provenance.KyloProcessorFlowType;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTOHolder;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatistics;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatisticsHolder;
+import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedProcessorStatistics;
+import com.thinkbiganalytics.nifi.provenance.model.stats.GroupedStats;
+
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Round trip tests of the {@link ProvenanceBatchCodec} implementations along with a comparison of the bytes per event and encode/decode time per event.
+ */
+public class ProvenanceBatchCodecTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ProvenanceBatchCodecTest.class);
+
+    private ProvenanceEventRecordDTOHolder newEvents(int count) {
+        List<ProvenanceEventRecordDTO> events = new ArrayList<>(count);
+        String jobFlowFileId = UUID.randomUUID().toString();
+        for (int i = 0; i < count; i++) {
+            ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+            event.setEventId((long) i);
+            event.setId(String.valueOf(i));
+            event.setEventTime(new DateTime(1490000000000L + i));
+            event.setStartTime(new DateTime(1490000000000L));
+            event.setEventDuration(10L + i);
+            event.setEventType(i == 0 ? "CREATE" : "ATTRIBUTES_MODIFIED");
+            event.setFlowFileUuid(UUID.randomUUID().toString());
+            event.setFileSize("1 KB");
+            event.setFileSizeBytes(1024L);
+            event.setComponentId("processor-" + (i % 5));
+            event.setComponentType("UpdateAttribute");
+            event.setComponentName("Update Attribute " + (i % 5));
+            event.setParentUuids(Arrays.asList(jobFlowFileId));
+            event.setChildUuids(new ArrayList<>());
+            event.setDetails(i % 10 == 0 ? "details " + i : null);
+            event.setInputContentClaimFileSizeBytes(1024L);
+            event.setOutputContentClaimFileSizeBytes(2048L);
+            event.setOutputContentClaimFileSize("2 KB");
+            event.setProcessorType(KyloProcessorFlowType.NORMAL_FLOW);
+            event.setJobFlowFileId(jobFlowFileId);
+            event.setJobEventId(0L);
+            event.setFeedName("category.feed");
+            event.setFeedProcessGroupId("feed-process-group");
+            event.setIsBatchJob(true);
+            event.setIsStartOfJob(i == 0);
+            event.setIsFailure(i == 3);
+            event.setPreviousEventId(i > 0 ? (long) i - 1 : null);
+            Map<String, String> attributes = new HashMap<>();
+            attributes.put("filename", "file-" + i + ".csv");
+            attributes.put("path", "./");
+            attributes.put("uuid", event.getFlowFileUuid());
+            attributes.put("feed", "category.feed");
+            event.setAttributeMap(attributes);
+            Map<String, String> updated = new HashMap<>();
+            updated.put("feed", "category.feed");
+            event.setUpdatedAttributes(updated);
+            event.setPreviousAttributes(new HashMap<>());
+            events.add(event);
+        }
+        ProvenanceEventRecordDTOHolder holder = new ProvenanceEventRecordDTOHolder();
+        holder.setEvents(events);
+        return holder;
+    }
+
+    private AggregatedFeedProcessorStatisticsHolder newStats() {
+        AggregatedFeedProcessorStatisticsHolder holder = new AggregatedFeedProcessorStatisticsHolder();
+        holder.setMinTime(new DateTime(1490000000000L));
+        holder.setMaxTime(new DateTime(1490000010000L));
+        holder.setMinEventId(1L);
+        holder.setMaxEventId(100L);
+        holder.getEventCount().set(100L);
+        AggregatedFeedProcessorStatistics feedStats = new AggregatedFeedProcessorStatistics("category.feed", holder.getCollectionId());
+        feedStats.setProcessGroup("feed-process-group");
+        AggregatedProcessorStatistics processorStats = new AggregatedProcessorStatistics("processor-1", "Update Attribute", holder.getCollectionId());
+        GroupedStats stats = processorStats.getStats();
+        stats.setTime(new DateTime(1490000000000L));
+        stats.setMinTime(new DateTime(1490000000000L));
+        stats.setMaxTime(new DateTime(1490000010000L));
+        stats.setBytesIn(100L);
+        stats.setBytesOut(200L);
+        stats.setTotalCount(100L);
+        stats.setJobsStarted(3L);
+        stats.setJobsFailed(1L);
+        stats.setMaxEventId(100L);
+        feedStats.getProcessorStats().put("processor-1", processorStats);
+        holder.getFeedStatistics().put("category.feed", feedStats);
+        return holder;
+    }
+
+    private void assertEventsEqual(ProvenanceEventRecordDTOHolder expected, ProvenanceEventRecordDTOHolder actual) {
+        Assert.assertEquals(expected.getBatchId(), actual.getBatchId());
+        Assert.assertEquals(expected.getEvents().size(), actual.getEvents().size());
+        for (int i = 0; i < expected.getEvents().size(); i++) {
+            ProvenanceEventRecordDTO e = expected.getEvents().get(i);
+            ProvenanceEventRecordDTO a = actual.getEvents().get(i);
+            Assert.assertEquals(e, a);
+            Assert.assertEquals(e.getEventTime().getMillis(), a.getEventTime().getMillis());
+            Assert.assertEquals(e.getEventDuration(), a.getEventDuration());
+            Assert.assertEquals(e.getComponentName(), a.getComponentName());
+            Assert.assertEquals(e.getFeedName(), a.getFeedName());
+            Assert.assertEquals(e.getJobFlowFileId(), a.getJobFlowFileId());
+            Assert.assertEquals(e.getDetails(), a.getDetails());
+            Assert.assertEquals(e.getParentUuids(), a.getParentUuids());
+            Assert.assertEquals(e.getAttributeMap(), a.getAttributeMap());
+            Assert.assertEquals(e.getUpdatedAttributes(), a.getUpdatedAttributes());
+            Assert.assertEquals(e.getProcessorType(), a.getProcessorType());
+            Assert.assertEquals(e.getPreviousEventId(), a.getPreviousEventId());
+            Assert.assertEquals(e.isStartOfJob(), a.isStartOfJob());
+            Assert.assertEquals(e.isBatchJob(), a.isBatchJob());
+            Assert.assertEquals(e.isFailure(), a.isFailure());
+        }
+    }
+
+    @Test
+    public void testBinaryEventsRoundTrip() throws Exception {
+        ProvenanceEventRecordDTOHolder holder = newEvents(50);
+        for (ProvenanceBatchCodec codec : Arrays.asList(new BinaryProvenanceBatchCodec(false), new BinaryProvenanceBatchCodec(true))) {
+            byte[] bytes = codec.encodeEvents(holder);
+            Assert.assertTrue(BinaryProvenanceBatchCodec.isBinaryFormat(bytes));
+            assertEventsEqual(holder, ProvenanceBatchCodecs.getCodec(codec.getName()).decodeEvents(bytes));
+        }
+    }
+
+    @Test
+    public void testBinaryStatsRoundTrip() throws Exception {
+        AggregatedFeedProcessorStatisticsHolder holder = newStats();
+        ProvenanceBatchCodec codec = new BinaryProvenanceBatchCodec(true);
+        AggregatedFeedProcessorStatisticsHolder decoded = codec.decodeStats(codec.encodeStats(holder));
+
+        Assert.assertEquals(holder.getCollectionId(), decoded.getCollectionId());
+        Assert.assertEquals(holder.getMaxEventId(), decoded.getMaxEventId());
+        Assert.assertEquals(holder.getEventCount().get(), decoded.getEventCount().get());
+        AggregatedFeedProcessorStatistics feedStats = decoded.getFeedStatistics().get("category.feed");
+        Assert.assertNotNull(feedStats);
+        Assert.assertEquals("feed-process-group", feedStats.getProcessGroup());
+        AggregatedProcessorStatistics processorStats = feedStats.getProcessorStats().get("processor-1");
+        Assert.assertEquals("Update Attribute", processorStats.getProcessorName());
+        Assert.assertEquals(holder.getCollectionId(), processorStats.getCollectionId());
+        Assert.assertEquals(200L, processorStats.getStats().getBytesOut());
+        Assert.assertEquals(3L, processorStats.getStats().getJobsStarted());
+        Assert.assertEquals(1490000010000L, processorStats.getStats().getMaxTime().getMillis());
+    }
+
+    @Test
+    public void testEmptyAndNullEvents() throws Exception {
+        ProvenanceBatchCodec codec = new BinaryProvenanceBatchCodec();
+        ProvenanceEventRecordDTOHolder holder = new ProvenanceEventRecordDTOHolder();
+        Assert.assertNull(codec.decodeEvents(codec.encodeEvents(holder)).getEvents());
+
+        ProvenanceEventRecordDTOHolder single = newEvents(1);
+        single.getEvents().get(0).setAttributeMap(null);
+        single.getEvents().get(0).setParentUuids(null);
+        ProvenanceEventRecordDTO decoded = codec.decodeEvents(codec.encodeEvents(single)).getEvents().get(0);
+        Assert.assertNull(decoded.getAttributeMap());
+        Assert.assertNull(decoded.getParentUuids());
+    }
+
+    @Test
+    public void testAdditionalPropertiesKeepTypes() throws Exception {
+        ProvenanceBatchCodec codec = new BinaryProvenanceBatchCodec(true);
+        ProvenanceEventRecordDTOHolder holder = newEvents(2);
+        Map<String, Object> properties = holder.getEvents().get(0).getAdditionalProperties();
+        properties.put("string", "value");
+        properties.put("long", 12345678901L);
+        properties.put("int", -42);
+        properties.put("double", 1.5d);
+        properties.put("boolean", true);
+        properties.put("null", null);
+        properties.put("list", new ArrayList<>(Arrays.asList("a", "b")));
+        properties.put("date", new DateTime(1490000000000L));
+
+        Map<String, Object> decoded = codec.decodeEvents(codec.encodeEvents(holder)).getEvents().get(0).getAdditionalProperties();
+        Assert.assertEquals(properties, decoded);
+        Assert.assertTrue(decoded.get("long") instanceof Long);
+        Assert.assertTrue(decoded.get("int") instanceof Integer);
+        Assert.assertTrue(decoded.containsKey("null"));
+    }
+
+    @Test(expected = java.io.IOException.class)
+    public void testRejectsNonSerializableAdditionalProperty() throws Exception {
+        ProvenanceEventRecordDTOHolder holder = newEvents(1);
+        holder.getEvents().get(0).getAdditionalProperties().put("object", new Object());
+        new BinaryProvenanceBatchCodec().encodeEvents(holder);
+    }
+
+    @Test(expected = java.io.IOException.class)
+    public void testRejectsUnknownFormat() throws Exception {
+        new BinaryProvenanceBatchCodec().decodeEvents(new JavaSerializationBatchCodec().encodeEvents(newEvents(1)));
+    }
+
+    /**
+     * Compare the size and encode/decode time of each codec.  This is a coarse comparison and not a substitute for a proper profiling run.
+     */
+    @Test
+    public void compareCodecs() throws Exception {
+        int eventsPerBatch = 50;
+        int iterations = 200;
+        ProvenanceEventRecordDTOHolder holder = newEvents(eventsPerBatch);
+        List<ProvenanceBatchCodec> codecs = Arrays.asList(new JavaSerializationBatchCodec(), new BinaryProvenanceBatchCodec(false), new BinaryProvenanceBatchCodec(true));
+        Map<String, Integer> bytesPerEvent = new HashMap<>();
+
+        for (ProvenanceBatchCodec codec : codecs) {
+            //warm up
+            for (int i = 0; i < iterations; i++) {
+                codec.decodeEvents(codec.encodeEvents(holder));
+            }
+            byte[] bytes = null;
+            long encodeStart = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                bytes = codec.encodeEvents(holder);
+            }
+            long encodeNanos = System.nanoTime() - encodeStart;
+            long decodeStart = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                codec.decodeEvents(bytes);
+            }
+            long decodeNanos = System.nanoTime() - decodeStart;
+
+            String name = codec.getName() + (codec instanceof BinaryProvenanceBatchCodec && ((BinaryProvenanceBatchCodec) codec).isCompress() ? "+compressed" : "");
+            bytesPerEvent.put(name, bytes.length / eventsPerBatch);
+            log.info("Codec {}: {} bytes/event, encode {} ns/event, decode {} ns/event", name, bytes.length / eventsPerBatch,
+                     encodeNanos / (iterations * eventsPerBatch), decodeNanos / (iterations * eventsPerBatch));
+        }
+        Assert.assertTrue(bytesPerEvent.get("binary") < bytesPerEvent.get("java"));
+        Assert.assertTrue(bytesPerEvent.get("binary+compressed") < bytesPerEvent.get("java"));
+    }
+}
@@ -20,6 +20,7 @@ package com.thinkbiganalytics.nifi.rest.client;
  * #L%
  */
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.thinkbiganalytics.nifi.feedmgr.TemplateCreationHelper;
 import com.thinkbiganalytics.nifi.rest.model.flow.NifiFlowProcessGroup;
 import com.thinkbiganalytics.nifi.rest.model.visitor.NifiFlowBuilder;
@@ -31,6 +32,7 @@ import com.thinkbiganalytics.nifi.rest.visitor.NifiConnectionOrderVisitor;
 import com.thinkbiganalytics.nifi.rest.visitor.NifiConnectionOrderVisitorCache;
 import com.thinkbiganalytics.support.FeedNameUtil;
 
+import org.apache.nifi.web.api.dto.FlowSnippetDTO;
 import org.apache.nifi.web.api.dto.ProcessGroupDTO;
 import org.apache.nifi.web.api.dto.ProcessorDTO;
 import org.apache.nifi.web.api.dto.TemplateDTO;
@@ -39,12 +41,26 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  */
@@ -53,10 +69,30 @@ public class DefaultNiFiFlowVisitorClient implements NiFiFlowVisitorClient {
     private static final Logger log = LoggerFactory.getLogger(DefaultNiFiFlowVisitorClient.class);
 
 
+    /**
+     * Default number of process groups to fetch from NiFi at a time
+     */
+    public static final int DEFAULT_CRAWL_THREADS = 4;
+
     private NiFiRestClient restClient;
 
+    /**
+     * Maximum number of process groups to fetch from NiFi at a time
+     */
+    private final int crawlThreads;
+
+    /**
+     * Feed flows from the last crawl of all feeds by process group id
+     */
+    private volatile Map<String, CrawledFlow> lastCrawl = Collections.emptyMap();
+
     public DefaultNiFiFlowVisitorClient(NiFiRestClient restClient) {
+        this(restClient, DEFAULT_CRAWL_THREADS);
+    }
+
+    public DefaultNiFiFlowVisitorClient(NiFiRestClient restClient, int crawlThreads) {
         this.restClient = restClient;
+        this.crawlThreads = Math.max(1, crawlThreads);
     }
 
 
@@ -103,7 +139,12 @@ public class DefaultNiFiFlowVisitorClient implements NiFiFlowVisitorClient {
     }
 
     public NifiFlowProcessGroup getFeedFlow(String processGroupId, NifiConnectionOrderVisitorCache cache) {
-        NifiVisitableProcessGroup visitableGroup = getFlowOrder(processGroupId, cache);
+        ProcessGroupDTO processGroupEntity = restClient.processGroups().findById(processGroupId, true, true).orElse(null);
+        return getFeedFlow(processGroupEntity, cache);
+    }
+
+    private NifiFlowProcessGroup getFeedFlow(ProcessGroupDTO processGroupEntity, NifiConnectionOrderVisitorCache cache) {
+        NifiVisitableProcessGroup visitableGroup = getFlowOrder(processGroupEntity, cache);
         NifiFlowProcessGroup flow = new NifiFlowBuilder().build(visitableGroup);
         String categoryName = flow.getParentGroupName();
         String feedName = flow.getName();
@@ -142,45 +183,85 @@ public class DefaultNiFiFlowVisitorClient implements NiFiFlowVisitorClient {
     }
 
     public List<NifiFlowProcessGroup> getFeedFlows(Collection<String> feedNames) {
+        return getFeedFlows(feedNames, false);
+    }
+
+    /**
+     * Walks the category and feed process groups, fetching up to {@code crawlThreads} feed process groups from NiFi at a time.
+     *
+     * <p>In incremental mode, feed flows from the previous crawl are reused for feed process groups whose {@link #signature(ProcessGroupDTO, String) signature}
+     * has not changed. NiFi only increments the revision of a process group when the group itself is modified, not its contents, so the signature is derived
+     * from the processors, ports and connections in the group instead. Groups containing other process groups are always walked again, and every flow is
+     * walked again if any reusable template group changed.</p>
+     */
+    public List<NifiFlowProcessGroup> getFeedFlows(Collection<String> feedNames, boolean incremental) {
         log.info("get Graph of Nifi Flows looking for {} ", feedNames == null ? "ALL Feeds " : feedNames);
         long start = System.currentTimeMillis();
-        NifiConnectionOrderVisitorCache cache = new NifiConnectionOrderVisitorCache();
-        List<NifiFlowProcessGroup> feedFlows = new ArrayList<>();
-        ProcessGroupDTO processGroupEntity = restClient.processGroups().findRoot();
-        ProcessGroupDTO root = processGroupEntity;
+        final AtomicInteger restCalls = new AtomicInteger();
+        final NifiConnectionOrderVisitorCache cache = new NifiConnectionOrderVisitorCache();
+
         //first level is the category
-        root.getContents().getProcessGroups().stream().sorted(new Comparator<ProcessGroupDTO>() {
-            @Override
-            public int compare(ProcessGroupDTO o1, ProcessGroupDTO o2) {
-                if (TemplateCreationHelper.REUSABLE_TEMPLATES_PROCESS_GROUP_NAME.equalsIgnoreCase(o1.getName())) {
-                    return -1;
-                }
-                if (TemplateCreationHelper.REUSABLE_TEMPLATES_PROCESS_GROUP_NAME.equalsIgnoreCase(o2.getName())) {
-                    return -1;
+        final ProcessGroupDTO root = fetchProcessGroup("root", false, restCalls);
+        cache.add(root);
+        final List<ProcessGroupDTO> categories = new ArrayList<>(root.getContents().getProcessGroups());
+        categories.sort(Comparator.comparing((ProcessGroupDTO category) -> !isReusableTemplatesGroup(category)).thenComparing(ProcessGroupDTO::getName));
+
+        final ExecutorService executor = Executors.newFixedThreadPool(crawlThreads, new ThreadFactoryBuilder().setNameFormat("nifi-flow-crawl-%d").setDaemon(true).build());
+        try {
+            // Fetch the feed process groups in each category
+            final List<ProcessGroupDTO> fetchedCategories = invokeAll(executor, categories.stream()
+                .map(category -> (Callable<ProcessGroupDTO>) () -> fetchProcessGroup(category.getId(), false, restCalls))
+                .collect(Collectors.toList()));
+            fetchedCategories.forEach(cache::add);
+
+            //second level is the feed
+            final Map<String, CrawledFlow> previousCrawl = incremental ? lastCrawl : Collections.emptyMap();
+            final AtomicBoolean reuseFeedFlows = new AtomicBoolean(true);
+            final List<Callable<CrawledFlow>> reusableTasks = new ArrayList<>();
+            final List<Callable<CrawledFlow>> feedTasks = new ArrayList<>();
+            for (ProcessGroupDTO category : fetchedCategories) {
+                final boolean reusable = isReusableTemplatesGroup(category);
+                for (ProcessGroupDTO feedProcessGroup : category.getContents().getProcessGroups()) {
+                    String feedName = FeedNameUtil.fullName(category.getName(), feedProcessGroup.getName());
+                    //if it is a versioned feed then strip the version to get the correct feed name
+                    feedName = TemplateCreationHelper.parseVersionedProcessGroupName(feedName);
+                    //if feednames are sent in, only add those that match or those in the reusable group
+                    if ((feedNames == null || feedNames.isEmpty()) || feedNames.contains(feedName) || reusable) {
+                        final String finalFeedName = feedName;
+                        if (reusable) {
+                            reusableTasks.add(() -> crawl(feedProcessGroup.getId(), finalFeedName, true, previousCrawl.get(feedProcessGroup.getId()), cache, restCalls));
+                        } else {
+                            feedTasks.add(() -> crawl(feedProcessGroup.getId(), finalFeedName, false, reuseFeedFlows.get() ? previousCrawl.get(feedProcessGroup.getId()) : null,
+                                                      cache, restCalls));
+                        }
+                    }
                 }
-                return o1.getName().compareTo(o2.getName());
             }
-        }).forEach(category -> {
-            for (ProcessGroupDTO feedProcessGroup : category.getContents().getProcessGroups()) {
-
-                //second level is the feed
-                String feedName = FeedNameUtil.fullName(category.getName(), feedProcessGroup.getName());
-                //if it is a versioned feed then strip the version to get the correct feed name
-                feedName = TemplateCreationHelper.parseVersionedProcessGroupName(feedName);
-                //if feednames are sent in, only add those that match or those in the reusable group
-                if ((feedNames == null || feedNames.isEmpty()) || (feedNames != null && (feedNames.contains(feedName) || TemplateCreationHelper.REUSABLE_TEMPLATES_PROCESS_GROUP_NAME
-                    .equalsIgnoreCase(category.getName())))) {
-                    NifiFlowProcessGroup feedFlow = getFeedFlow(feedProcessGroup.getId(), cache);
-                    feedFlow.setFeedName(feedName);
-                    feedFlows.add(feedFlow);
-                }
+
+            // Walk the reusable templates first so that the feeds connecting to them find their process groups in the cache
+            final List<CrawledFlow> crawled = new ArrayList<>(invokeAll(executor, reusableTasks));
+
+            // Feeds may connect to any reusable template so they are all walked again if a reusable template changed
+            final Set<String> reusableIds = crawled.stream().map(flow -> flow.processGroupId).collect(Collectors.toSet());
+            final Set<String> previousReusableIds = previousCrawl.values().stream().filter(flow -> flow.reusable).map(flow -> flow.processGroupId).collect(Collectors.toSet());
+            if (crawled.stream().anyMatch(flow -> !flow.reused) || !reusableIds.equals(previousReusableIds)) {
+                reuseFeedFlows.set(false);
+            }
+            crawled.addAll(invokeAll(executor, feedTasks));
+
+            if (feedNames == null || feedNames.isEmpty()) {
+                lastCrawl = crawled.stream().collect(Collectors.toMap(flow -> flow.processGroupId, Function.identity(), (first, second) -> first));
             }
-        });
-        long end = System.currentTimeMillis();
-        log.info("finished Graph of Nifi Flows.  Returning {} flows, {} ", feedFlows.size(), (end - start) + " ms");
-        return feedFlows;
-    }
 
+            List<NifiFlowProcessGroup> feedFlows = crawled.stream().map(flow -> flow.flow).collect(Collectors.toList());
+            long reused = crawled.stream().filter(flow -> flow.reused).count();
+            long end = System.currentTimeMillis();
+            log.info("finished Graph of Nifi Flows.  Returning {} flows ({} reused), {} ms, {} NiFi REST calls", feedFlows.size(), reused, end - start, restCalls.get());
+            return feedFlows;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 
     //walk entire graph
     public List<NifiFlowProcessGroup> getFeedFlows() {
@@ -205,4 +286,117 @@ public class DefaultNiFiFlowVisitorClient implements NiFiFlowVisitorClient {
     }
 
 
+    /**
+     * Fetches the specified process group and counts the REST calls made by {@link NiFiProcessGroupsRestClient#findById(String, boolean, boolean)}.
+     */
+    private ProcessGroupDTO fetchProcessGroup(String processGroupId, boolean recursive, AtomicInteger restCalls) {
+        ProcessGroupDTO processGroup = restClient.processGroups().findById(processGroupId, recursive, true)
+            .orElseThrow(() -> new NifiComponentNotFoundException(processGroupId, NifiConstants.NIFI_COMPONENT_TYPE.PROCESS_GROUP, null));
+        // one call for the process group and one for the contents of each group
+        restCalls.addAndGet(1 + (recursive ? NifiProcessUtil.getProcessGroups(processGroup).size() : 1));
+        return processGroup;
+    }
+
+    /**
+     * Runs the tasks and waits for their results, in order.
+     */
+    private <T> List<T> invokeAll(ExecutorService executor, List<Callable<T>> tasks) {
+        try {
+            List<T> results = new ArrayList<>(tasks.size());
+            for (Future<T> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NifiClientRuntimeException("Interrupted while walking the NiFi flows", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new NifiClientRuntimeException("Unable to walk the NiFi flows", e.getCause());
+        }
+    }
+
+    private boolean isReusableTemplatesGroup(ProcessGroupDTO processGroup) {
+        return TemplateCreationHelper.REUSABLE_TEMPLATES_PROCESS_GROUP_NAME.equalsIgnoreCase(processGroup.getName());
+    }
+
+    /**
+     * Walks a feed process group, or reuses its flow from the previous crawl if the group has the same signature.
+     *
+     * <p>Reused flows are not modified since they may still be referenced by the caller of a previous crawl. A group whose feed name has changed, such as
+     * when its category is renamed, has a different signature and is walked again.</p>
+     *
+     * @param processGroupId the feed process group id
+     * @param feedName       the name of the feed
+     * @param reusable       {@code true} if the group is a reusable template
+     * @param previous       the flow from the previous crawl that may be reused, or {@code null} to always walk the group
+     */
+    private CrawledFlow crawl(String processGroupId, String feedName, boolean reusable, CrawledFlow previous, NifiConnectionOrderVisitorCache cache, AtomicInteger restCalls) {
+        ProcessGroupDTO processGroup = fetchProcessGroup(processGroupId, false, restCalls);
+        final String signature = signature(processGroup, feedName);
+        if (signature != null && previous != null && signature.equals(previous.signature)) {
+            return new CrawledFlow(processGroupId, signature, previous.flow, reusable, true);
+        }
+
+        // the contents of nested process groups are only fetched by a recursive request
+        if (!processGroup.getContents().getProcessGroups().isEmpty()) {
+            processGroup = fetchProcessGroup(processGroupId, true, restCalls);
+        }
+        NifiFlowProcessGroup feedFlow = getFeedFlow(processGroup, cache);
+        feedFlow.setFeedName(feedName);
+        return new CrawledFlow(processGroupId, signature, feedFlow, reusable, false);
+    }
+
+    /**
+     * Identifies the processors, ports and connections of a process group that was fetched without recursion.
+     *
+     * @return the signature, or {@code null} if the group contains other process groups whose contents were not fetched
+     */
+    static String signature(ProcessGroupDTO processGroup, String feedName) {
+        final FlowSnippetDTO contents = processGroup.getContents();
+        if (contents == null || (contents.getProcessGroups() != null && !contents.getProcessGroups().isEmpty())) {
+            return null;
+        }
+
+        final Stream<String> components = Stream.of(
+            stream(contents.getProcessors()).map(processor -> "processor:" + processor.getId() + ":" + processor.getName() + ":" + processor.getType()),
+            stream(contents.getInputPorts()).map(port -> "input:" + port.getId() + ":" + port.getName()),
+            stream(contents.getOutputPorts()).map(port -> "output:" + port.getId() + ":" + port.getName()),
+            stream(contents.getFunnels()).map(funnel -> "funnel:" + funnel.getId()),
+            stream(contents.getRemoteProcessGroups()).map(remote -> "remote:" + remote.getId() + ":" + remote.getTargetUri()),
+            stream(contents.getConnections()).map(connection -> "connection:" + connection.getId() + ":" + connection.getName() + ":"
+                                                                + (connection.getSource() != null ? connection.getSource().getId() : null) + ">"
+                                                                + (connection.getDestination() != null ? connection.getDestination().getId() : null) + ":"
+                                                                + new TreeSet<>(Optional.ofNullable(connection.getSelectedRelationships()).orElse(Collections.emptySet()))))
+            .flatMap(Function.identity())
+            .sorted();
+        return Stream.concat(Stream.of(processGroup.getId(), processGroup.getParentGroupId(), processGroup.getName(), feedName).map(Objects::toString), components)
+            .collect(Collectors.joining("|"));
+    }
+
+    private static <T> Stream<T> stream(Collection<T> collection) {
+        return (collection != null) ? collection.stream() : Stream.empty();
+    }
+
+    /**
+     * A feed flow from a crawl of the NiFi flows
+     */
+    private static class CrawledFlow {
+
+        private final String processGroupId;
+        private final String signature;
+        private final NifiFlowProcessGroup flow;
+        private final boolean reusable;
+        private final boolean reused;
+
+        CrawledFlow(String processGroupId, String signature, NifiFlowProcessGroup flow, boolean reusable, boolean reused) {
+            this.processGroupId = processGroupId;
+            this.signature = signature;
+            this.flow = flow;
+            this.reusable = reusable;
+            this.reused = reused;
+        }
+    }
 }
@@ -1204,6 +1204,10 @@ public class LegacyNifiRestClient implements NiFiFlowVisitorClient {
         return client.flows().getFeedFlows(feedNames);
     }
 
+    public List<NifiFlowProcessGroup> getFeedFlows(Collection<String> feedNames, boolean incremental) {
+        return client.flows().getFeedFlows(feedNames, incremental);
+    }
+
 
     /**
      * Gets a transform for converting {@link NiFiPropertyDescriptor} objects to {@link PropertyDescriptorDTO}.
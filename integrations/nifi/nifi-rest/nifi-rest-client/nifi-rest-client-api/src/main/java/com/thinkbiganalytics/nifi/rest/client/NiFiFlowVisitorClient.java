@@ -51,6 +51,15 @@ public interface NiFiFlowVisitorClient {
 
     List<NifiFlowProcessGroup> getFeedFlows(Collection<String> feedNames);
 
+    /**
+     * Walks the feed flows, optionally reusing the flows from the previous walk of all feeds for process groups that haven't changed.
+     *
+     * @param feedNames   the feeds to walk, or {@code null} for all feeds
+     * @param incremental {@code true} to only walk the process groups that changed since the last walk, or {@code false} to walk all process groups
+     * @return the feed flows
+     */
+    List<NifiFlowProcessGroup> getFeedFlows(Collection<String> feedNames, boolean incremental);
+
     Set<ProcessorDTO> getProcessorsForFlow(String processGroupId);
 
     /**
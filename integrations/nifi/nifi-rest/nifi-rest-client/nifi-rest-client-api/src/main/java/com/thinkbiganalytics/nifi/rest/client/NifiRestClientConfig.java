@@ -29,6 +29,11 @@ public class NifiRestClientConfig extends JerseyClientConfig {
     private String apiPath = "/nifi-api/";
     private String clusterType = "NODE";
 
+    /**
+     * Maximum number of process groups to fetch at a time when walking the feed flows
+     */
+    private int flowCrawlThreads = DefaultNiFiFlowVisitorClient.DEFAULT_CRAWL_THREADS;
+
     public NifiRestClientConfig(String apiPath) {
         this.apiPath = apiPath;
     }
@@ -63,4 +68,12 @@ public class NifiRestClientConfig extends JerseyClientConfig {
     public void setClusterType(String clusterType) {
         this.clusterType = clusterType;
     }
+
+    public int getFlowCrawlThreads() {
+        return flowCrawlThreads;
+    }
+
+    public void setFlowCrawlThreads(int flowCrawlThreads) {
+        this.flowCrawlThreads = flowCrawlThreads;
+    }
 }
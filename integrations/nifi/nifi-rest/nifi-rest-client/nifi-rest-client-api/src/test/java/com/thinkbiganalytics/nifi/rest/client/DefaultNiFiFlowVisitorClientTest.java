@@ -0,0 +1,213 @@
+package com.thinkbiganalytics.nifi.rest.client;
+
+/*-
+ * #%L
+ * thinkbig-nifi-rest-client-api
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.nifi.rest.model.flow.NifiFlowProcessGroup;
+
+import org.apache.nifi.web.api.dto.ConnectableDTO;
+import org.apache.nifi.web.api.dto.ConnectionDTO;
+import org.apache.nifi.web.api.dto.FlowSnippetDTO;
+import org.apache.nifi.web.api.dto.ProcessGroupDTO;
+import org.apache.nifi.web.api.dto.ProcessorDTO;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+public class DefaultNiFiFlowVisitorClientTest {
+
+    /**
+     * Root process group
+     */
+    private ProcessGroupDTO root;
+
+    /**
+     * Category process group
+     */
+    private ProcessGroupDTO category;
+
+    /**
+     * Feed process group
+     */
+    private ProcessGroupDTO feed;
+
+    /**
+     * Mock NiFi Process Groups REST client
+     */
+    private NiFiProcessGroupsRestClient processGroups;
+
+    /**
+     * Client being tested
+     */
+    private DefaultNiFiFlowVisitorClient client;
+
+    @Before
+    public void setUp() {
+        feed = newProcessGroup("feed-id", "category-id", "feed");
+        feed.getContents().getProcessors().add(newProcessor("processor-1", "GetFile"));
+
+        category = newProcessGroup("category-id", "root", "category");
+        category.getContents().getProcessGroups().add(feed);
+
+        root = newProcessGroup("root", null, "NiFi Flow");
+        root.getContents().getProcessGroups().add(category);
+
+        processGroups = Mockito.mock(NiFiProcessGroupsRestClient.class);
+        Mockito.when(processGroups.findById("root", false, true)).thenAnswer(invocation -> Optional.of(root));
+        Mockito.when(processGroups.findById("category-id", false, true)).thenAnswer(invocation -> Optional.of(category));
+        Mockito.when(processGroups.findById("feed-id", false, true)).thenAnswer(invocation -> Optional.of(feed));
+
+        final NiFiRestClient restClient = Mockito.mock(NiFiRestClient.class);
+        Mockito.when(restClient.processGroups()).thenReturn(processGroups);
+        client = new DefaultNiFiFlowVisitorClient(restClient, 2);
+    }
+
+    /**
+     * Verify the signature changes with the processors and connections of a process group.
+     */
+    @Test
+    public void signature() {
+        final String original = DefaultNiFiFlowVisitorClient.signature(feed, "category.feed");
+        Assert.assertNotNull(original);
+        Assert.assertEquals(original, DefaultNiFiFlowVisitorClient.signature(feed, "category.feed"));
+        Assert.assertNotEquals(original, DefaultNiFiFlowVisitorClient.signature(feed, "renamed.feed"));
+
+        // Adding a processor or connection changes the signature
+        feed.getContents().getProcessors().add(newProcessor("processor-2", "PutFile"));
+        final String withProcessor = DefaultNiFiFlowVisitorClient.signature(feed, "category.feed");
+        Assert.assertNotEquals(original, withProcessor);
+
+        final ConnectionDTO connection = newConnection("connection-1", "processor-1", "processor-2");
+        feed.getContents().getConnections().add(connection);
+        final String withConnection = DefaultNiFiFlowVisitorClient.signature(feed, "category.feed");
+        Assert.assertNotEquals(withProcessor, withConnection);
+
+        // Changing the destination of a connection changes the signature
+        connection.getDestination().setId("processor-1");
+        Assert.assertNotEquals(withConnection, DefaultNiFiFlowVisitorClient.signature(feed, "category.feed"));
+
+        // Nested process groups are not listed so they have no signature
+        feed.getContents().getProcessGroups().add(newProcessGroup("nested-id", "feed-id", "nested"));
+        Assert.assertNull(DefaultNiFiFlowVisitorClient.signature(feed, "category.feed"));
+    }
+
+    /**
+     * Verify an incremental crawl reuses the flows of unchanged process groups without modifying them.
+     */
+    @Test
+    public void getFeedFlowsIncremental() {
+        final NifiFlowProcessGroup first = getFeedFlow(false);
+        Assert.assertEquals("category.feed", first.getFeedName());
+        Assert.assertEquals(1, first.getProcessorMap().size());
+
+        // Unchanged flow is reused
+        Assert.assertSame(first, getFeedFlow(true));
+
+        // Full crawl walks the flow again
+        final NifiFlowProcessGroup second = getFeedFlow(false);
+        Assert.assertNotSame(first, second);
+
+        // Changed flow is walked again
+        feed.getContents().getProcessors().add(newProcessor("processor-2", "PutFile"));
+        final NifiFlowProcessGroup third = getFeedFlow(true);
+        Assert.assertNotSame(second, third);
+        Assert.assertEquals(2, third.getProcessorMap().size());
+
+        // Renamed category is walked again and the previous flow is not modified
+        category.setName("renamed");
+        final NifiFlowProcessGroup fourth = getFeedFlow(true);
+        Assert.assertNotSame(third, fourth);
+        Assert.assertEquals("renamed.feed", fourth.getFeedName());
+        Assert.assertEquals("category.feed", third.getFeedName());
+
+        Mockito.verify(processGroups, Mockito.never()).findById("feed-id", true, true);
+    }
+
+    /**
+     * Verify a process group containing other process groups is always walked again.
+     */
+    @Test
+    public void getFeedFlowsWithNestedGroup() {
+        final ProcessGroupDTO recursiveFeed = newProcessGroup("feed-id", "category-id", "feed");
+        recursiveFeed.getContents().getProcessors().add(newProcessor("processor-1", "GetFile"));
+        final ProcessGroupDTO nested = newProcessGroup("nested-id", "feed-id", "nested");
+        nested.getContents().getProcessors().add(newProcessor("processor-2", "PutFile"));
+        recursiveFeed.getContents().getProcessGroups().add(nested);
+        feed.getContents().getProcessGroups().add(newProcessGroup("nested-id", "feed-id", "nested"));
+        Mockito.when(processGroups.findById("feed-id", true, true)).thenReturn(Optional.of(recursiveFeed));
+
+        final NifiFlowProcessGroup first = getFeedFlow(false);
+        Assert.assertEquals("category.feed", first.getFeedName());
+        Assert.assertNotSame(first, getFeedFlow(true));
+        Mockito.verify(processGroups, Mockito.times(2)).findById("feed-id", true, true);
+    }
+
+    /**
+     * Crawls all feeds and returns the only flow.
+     */
+    private NifiFlowProcessGroup getFeedFlow(boolean incremental) {
+        final List<NifiFlowProcessGroup> flows = client.getFeedFlows(null, incremental);
+        Assert.assertEquals(1, flows.size());
+        return flows.get(0);
+    }
+
+    private ProcessGroupDTO newProcessGroup(String id, String parentGroupId, String name) {
+        final ProcessGroupDTO group = new ProcessGroupDTO();
+        group.setId(id);
+        group.setParentGroupId(parentGroupId);
+        group.setName(name);
+        group.setContents(new FlowSnippetDTO());
+        return group;
+    }
+
+    private ProcessorDTO newProcessor(String id, String type) {
+        final ProcessorDTO processor = new ProcessorDTO();
+        processor.setId(id);
+        processor.setName(type);
+        processor.setType("org.apache.nifi.processors.standard." + type);
+        processor.setParentGroupId("feed-id");
+        return processor;
+    }
+
+    private ConnectionDTO newConnection(String id, String sourceId, String destinationId) {
+        final ConnectableDTO source = new ConnectableDTO();
+        source.setId(sourceId);
+        source.setGroupId("feed-id");
+        source.setType("PROCESSOR");
+
+        final ConnectableDTO destination = new ConnectableDTO();
+        destination.setId(destinationId);
+        destination.setGroupId("feed-id");
+        destination.setType("PROCESSOR");
+
+        final ConnectionDTO connection = new ConnectionDTO();
+        connection.setId(id);
+        connection.setParentGroupId("feed-id");
+        connection.setSource(source);
+        connection.setDestination(destination);
+        connection.setSelectedRelationships(Collections.singleton("success"));
+        return connection;
+    }
+}
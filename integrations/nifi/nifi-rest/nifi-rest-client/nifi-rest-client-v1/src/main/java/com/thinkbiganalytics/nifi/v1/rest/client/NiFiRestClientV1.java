@@ -99,6 +99,11 @@ public class NiFiRestClientV1 extends JerseyRestClient implements NiFiRestClient
     @Nullable
     private NiFiFlowVisitorClient flows;
 
+    /**
+     * Maximum number of process groups to fetch at a time when walking the feed flows
+     */
+    private final int flowCrawlThreads;
+
     /**
      * Reporting tasks client
      */
@@ -112,6 +117,7 @@ public class NiFiRestClientV1 extends JerseyRestClient implements NiFiRestClient
      */
     public NiFiRestClientV1(@Nonnull final NifiRestClientConfig config) {
         super(config);
+        this.flowCrawlThreads = config.getFlowCrawlThreads();
     }
 
     @Nonnull
@@ -217,7 +223,7 @@ public class NiFiRestClientV1 extends JerseyRestClient implements NiFiRestClient
     @Override
     public NiFiFlowVisitorClient flows() {
         if (flows == null) {
-            flows = new DefaultNiFiFlowVisitorClient(this);
+            flows = new DefaultNiFiFlowVisitorClient(this, flowCrawlThreads);
         }
         return flows;
     }
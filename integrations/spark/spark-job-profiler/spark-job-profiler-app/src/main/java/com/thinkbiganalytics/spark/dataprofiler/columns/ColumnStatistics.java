@@ -24,6 +24,8 @@ import com.thinkbiganalytics.spark.dataprofiler.core.ProfilerConfiguration;
 import com.thinkbiganalytics.spark.dataprofiler.model.MetricType;
 import com.thinkbiganalytics.spark.dataprofiler.output.OutputRow;
 import com.thinkbiganalytics.spark.dataprofiler.output.OutputWriter;
+import com.thinkbiganalytics.spark.dataprofiler.sketch.FrequentItemsSketch;
+import com.thinkbiganalytics.spark.dataprofiler.sketch.HyperLogLog;
 import com.thinkbiganalytics.spark.dataprofiler.topn.TopNDataItem;
 import com.thinkbiganalytics.spark.dataprofiler.topn.TopNDataList;
 
@@ -45,7 +47,7 @@ public abstract class ColumnStatistics implements Serializable {
     /* Other variables */
     final DecimalFormat df;
     final OutputWriter outputWriter;
-    private final TopNDataList topNValues;
+    private TopNDataList topNValues;
     /* Common metrics for all data types */
     long nullCount;
     long totalCount;
@@ -54,6 +56,10 @@ public abstract class ColumnStatistics implements Serializable {
     private double percNullValues;
     private double percUniqueValues;
     private double percDuplicateValues;
+    /* Sketches estimating the unique count and top-n values when profiling in a single pass (null when profiling exactly) */
+    private HyperLogLog uniqueValuesSketch;
+    private FrequentItemsSketch topNValuesSketch;
+    private int numberOfTopNValues;
 
 
     /**
@@ -75,6 +81,31 @@ public abstract class ColumnStatistics implements Serializable {
     }
 
 
+    /**
+     * Estimate the unique count and top-n values with sketches. <br>
+     * The same value may then be accommodated any number of times, so individual rows can be accommodated without first counting the values.
+     *
+     * @param numberOfTopNValues N in top-N
+     * @param topNSketchCapacity number of distinct values counted by the top-n sketch
+     */
+    public void useSketches(int numberOfTopNValues, int topNSketchCapacity) {
+        this.numberOfTopNValues = numberOfTopNValues;
+        uniqueValuesSketch = new HyperLogLog();
+        topNValuesSketch = new FrequentItemsSketch(topNSketchCapacity);
+        topNValues = new TopNDataList(numberOfTopNValues);
+    }
+
+
+    /**
+     * Check to see if the unique count and top-n values are estimated with sketches
+     *
+     * @return true if sketches are used
+     */
+    public boolean isUsingSketches() {
+        return uniqueValuesSketch != null;
+    }
+
+
     /**
      * Calculate common statistics by accommodating the value and frequency/count
      *
@@ -84,12 +115,19 @@ public abstract class ColumnStatistics implements Serializable {
     void accomodateCommon(Object columnValue, Long columnCount) {
 
         totalCount += columnCount;
-        uniqueCount += 1;
 
         if (columnValue == null) {
             nullCount += columnCount;
         }
 
+        if (isUsingSketches()) {
+            uniqueValuesSketch.add(columnValue);
+            topNValuesSketch.add(columnValue, columnCount);
+            return;
+        }
+
+        uniqueCount += 1;
+
         doPercentageCalculationsCommon();
 
         topNValues.add(columnValue, columnCount);
@@ -104,9 +142,16 @@ public abstract class ColumnStatistics implements Serializable {
     void combineCommon(ColumnStatistics v_columnStatistics) {
 
         totalCount += v_columnStatistics.totalCount;
-        uniqueCount += v_columnStatistics.uniqueCount;
         nullCount += v_columnStatistics.nullCount;
 
+        if (isUsingSketches() && v_columnStatistics.isUsingSketches()) {
+            uniqueValuesSketch.merge(v_columnStatistics.uniqueValuesSketch);
+            topNValuesSketch.merge(v_columnStatistics.topNValuesSketch);
+            return;
+        }
+
+        uniqueCount += v_columnStatistics.uniqueCount;
+
         doPercentageCalculationsCommon();
 
         for (TopNDataItem dataItem :
@@ -175,6 +220,7 @@ public abstract class ColumnStatistics implements Serializable {
      */
     void writeStatisticsCommon() {
 
+        summarizeSketches();
         writeColumnSchemaInformation();
 
         rows = new ArrayList<>();
@@ -197,6 +243,7 @@ public abstract class ColumnStatistics implements Serializable {
      */
     String getVerboseStatisticsCommon() {
 
+        summarizeSketches();
         return getVerboseColumnSchemaInformation()
                + "\n"
                + "CommonStatistics ["
@@ -212,6 +259,20 @@ public abstract class ColumnStatistics implements Serializable {
     }
 
 
+    /*
+     * Update the unique count, top-n values and percentages from the sketches
+     */
+    private void summarizeSketches() {
+
+        if (isUsingSketches()) {
+            /* the estimate can be slightly higher than the number of values */
+            uniqueCount = Math.min(uniqueValuesSketch.cardinality(), totalCount);
+            topNValues = topNValuesSketch.getTopN(numberOfTopNValues);
+            doPercentageCalculationsCommon();
+        }
+    }
+
+
     /*
      * Do percentage calculations for common metrics
      */
@@ -265,6 +326,7 @@ public abstract class ColumnStatistics implements Serializable {
      * @return unique count
      */
     public long getUniqueCount() {
+        summarizeSketches();
         return uniqueCount;
     }
 
@@ -275,6 +337,7 @@ public abstract class ColumnStatistics implements Serializable {
      * @return percentage of null values
      */
     public double getPercNullValues() {
+        summarizeSketches();
         return percNullValues;
     }
 
@@ -285,6 +348,7 @@ public abstract class ColumnStatistics implements Serializable {
      * @return percentage of unique values
      */
     public double getPercUniqueValues() {
+        summarizeSketches();
         return percUniqueValues;
     }
 
@@ -295,6 +359,7 @@ public abstract class ColumnStatistics implements Serializable {
      * @return percentage of duplicate values
      */
     public double getPercDuplicateValues() {
+        summarizeSketches();
         return percDuplicateValues;
     }
 
@@ -305,6 +370,7 @@ public abstract class ColumnStatistics implements Serializable {
      * @return top n values
      */
     public TopNDataList getTopNValues() {
+        summarizeSketches();
         return topNValues;
     }
 
@@ -40,6 +40,8 @@ import com.thinkbiganalytics.spark.dataprofiler.model.SchemaInfo;
 import com.thinkbiganalytics.spark.dataprofiler.model.StatisticsModel;
 import com.thinkbiganalytics.spark.dataprofiler.output.OutputRow;
 import com.thinkbiganalytics.spark.dataprofiler.output.OutputWriter;
+import com.thinkbiganalytics.spark.dataprofiler.sketch.FrequentItemsSketch;
+import com.thinkbiganalytics.spark.dataprofiler.sketch.HyperLogLog;
 import com.thinkbiganalytics.spark.dataprofiler.topn.TopNDataItem;
 import com.thinkbiganalytics.spark.dataprofiler.topn.TopNDataList;
 import com.thinkbiganalytics.spark.policy.FieldPolicyLoader;
@@ -178,6 +180,12 @@ public class Profiler {
             inputAndOutputTablePartitionKey = args[5];
         }
 
+        String profileMode = "exact";
+
+        if (args.length >= 7) {
+            profileMode = args[6];
+        }
+
         switch (profileObjectType) {
             case "table":
                 // Quote source table
@@ -224,7 +232,14 @@ public class Profiler {
             return null;
         }
 
+        if (!"exact".equals(profileMode) && !"approximate".equals(profileMode)) {
+            log.error("Illegal command line argument for profile mode (" + profileMode + ")");
+            showCommandLineArgs();
+            return null;
+        }
+
         ProfilerConfiguration.INPUT_AND_OUTPUT_TABLE_PARTITION_KEY = inputAndOutputTablePartitionKey;
+        ProfilerConfiguration.PROFILE_MODE = profileMode;
 
         return retVal;
     }
@@ -279,6 +294,8 @@ public class Profiler {
         serializeClassesList.add(StatisticsModel.class);
         serializeClassesList.add(TopNDataItem.class);
         serializeClassesList.add(TopNDataList.class);
+        serializeClassesList.add(HyperLogLog.class);
+        serializeClassesList.add(FrequentItemsSketch.class);
         serializeClassesList.add(OutputRow.class);
         serializeClassesList.add(OutputWriter.class);
 
@@ -349,8 +366,9 @@ public class Profiler {
                  + "4. output table: valid values are {<table>, <database.table>}"
                  + "5. full path to policy file "
                  + "\n"
-                 + "Info: Optional command line argument:\n"
-                 + "6. partition_key: valid value is {<string>}\n\n"
+                 + "Info: Optional command line arguments:\n"
+                 + "6. partition_key: valid value is {<string>}\n"
+                 + "7. profile mode: valid values are {exact, approximate} (default is exact)\n\n"
                  + "(Note: Only alphanumeric and underscore characters for table names and partition key)"
                  + "\n***");
     }
@@ -104,6 +104,19 @@ public class ProfilerConfiguration {
     public static String OUTPUT_TABLE_PARTITION_COLUMN_NAME = "processing_dttm";
 
 
+    /**
+     * Profiling mode: exact (count every distinct value) or approximate (single pass estimating unique counts and top-N values with sketches)<br>
+     * An optional command line parameter
+     */
+    public static String PROFILE_MODE = "exact";
+
+
+    /**
+     * Number of distinct values counted per column when estimating top-N values in approximate mode
+     */
+    public static Integer TOP_N_SKETCH_CAPACITY = 1000;
+
+
     /* no instantiation */
     private ProfilerConfiguration() {
 
@@ -125,6 +138,18 @@ public class ProfilerConfiguration {
         INPUT_AND_OUTPUT_TABLE_PARTITION_KEY = "partitionKey";
         INPUT_TABLE_PARTITION_COLUMN_NAME = "processing_dttm";
         OUTPUT_TABLE_PARTITION_COLUMN_NAME = "processing_dttm";
+        PROFILE_MODE = "exact";
+        TOP_N_SKETCH_CAPACITY = 1000;
+    }
+
+
+    /**
+     * Check to see if statistics are estimated in a single pass
+     *
+     * @return true for the approximate profiling mode
+     */
+    public static boolean isApproximateProfile() {
+        return "approximate".equals(PROFILE_MODE);
     }
 
 }
@@ -56,6 +56,31 @@ public class StatisticsModel implements Serializable {
 
     private static final Logger log = LoggerFactory.getLogger(StatisticsModel.class);
     private final Map<Integer, ColumnStatistics> columnStatisticsMap = new HashMap<>();
+    /* N in top-N and capacity of the top-n sketch when the column statistics use sketches (0 for exact statistics) */
+    private final int numberOfTopNValues;
+    private final int topNSketchCapacity;
+
+
+    /**
+     * Create a model computing exact statistics from the count of each distinct column value
+     */
+    public StatisticsModel() {
+        this(0, 0);
+    }
+
+
+    /**
+     * Create a model estimating the unique count and top-n values of each column with sketches.
+     * Column values can then be added once per row instead of once per distinct value.
+     *
+     * @param numberOfTopNValues N in top-N
+     * @param topNSketchCapacity number of distinct values counted by the top-n sketch of each column
+     */
+    public StatisticsModel(int numberOfTopNValues, int topNSketchCapacity) {
+        this.numberOfTopNValues = numberOfTopNValues;
+        this.topNSketchCapacity = topNSketchCapacity;
+    }
+
 
     /**
      * Include a column value in calculation of profile statistics for the column
@@ -67,6 +92,25 @@ public class StatisticsModel implements Serializable {
      */
     public void add(Integer columnIndex, Object columnValue, Long columnCount, StructField columnField) {
 
+        ColumnStatistics currentColumnStatistics = columnStatisticsMap.get(columnIndex);
+
+        if (currentColumnStatistics == null) {
+            currentColumnStatistics = newColumnStatistics(columnField);
+            if (topNSketchCapacity > 0) {
+                currentColumnStatistics.useSketches(numberOfTopNValues, topNSketchCapacity);
+            }
+            columnStatisticsMap.put(columnIndex, currentColumnStatistics);
+        }
+
+        currentColumnStatistics.accomodate(columnValue, columnCount);
+    }
+
+
+    /*
+     * Create the statistics for the data type of a column
+     */
+    private ColumnStatistics newColumnStatistics(StructField columnField) {
+
         ColumnStatistics newColumnStatistics;
         DataType columnDataType = columnField.dataType();
 
@@ -211,12 +255,7 @@ public class StatisticsModel implements Serializable {
                 }
         }
 
-        if (!columnStatisticsMap.containsKey(columnIndex)) {
-            columnStatisticsMap.put(columnIndex, newColumnStatistics);
-        }
-
-        ColumnStatistics currentColumnStatistics = columnStatisticsMap.get(columnIndex);
-        currentColumnStatistics.accomodate(columnValue, columnCount);
+        return newColumnStatistics;
     }
 
 
@@ -0,0 +1,164 @@
+package com.thinkbiganalytics.spark.dataprofiler.sketch;
+
+/*-
+ * #%L
+ * thinkbig-spark-job-profiler-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.spark.dataprofiler.topn.TopNDataList;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Misra-Gries summary of the most frequent values in a column<br>
+ * At most capacity values are counted. When the summary is full every counter is decreased by the smallest count so the
+ * count of a value is never over estimated and is under estimated by at most {@link #getMaximumError()}.
+ * Values are counted exactly as long as there are no more distinct values than the capacity.
+ */
+@SuppressWarnings("serial")
+public class FrequentItemsSketch implements Serializable {
+
+    private final int capacity;
+    private final Map<Object, Counter> counters;
+    private long maximumError;
+
+
+    /**
+     * Create a summary
+     *
+     * @param capacity maximum number of values to count
+     */
+    public FrequentItemsSketch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>();
+    }
+
+
+    /**
+     * Count a value
+     *
+     * @param value value (may be null)
+     * @param count number of times the value is found
+     */
+    public void add(Object value, long count) {
+        Counter counter = counters.get(value);
+        if (counter != null) {
+            counter.count += count;
+            return;
+        }
+        if (counters.size() < capacity) {
+            counters.put(value, new Counter(count));
+            return;
+        }
+
+        long decrement = count;
+        for (Counter existing : counters.values()) {
+            decrement = Math.min(decrement, existing.count);
+        }
+        decrementAll(decrement);
+        if (count > decrement) {
+            counters.put(value, new Counter(count - decrement));
+        }
+    }
+
+
+    /**
+     * Merge another summary into this one
+     *
+     * @param other summary to merge
+     */
+    public void merge(FrequentItemsSketch other) {
+        for (Map.Entry<Object, Counter> entry : other.counters.entrySet()) {
+            Counter counter = counters.get(entry.getKey());
+            if (counter != null) {
+                counter.count += entry.getValue().count;
+            } else {
+                counters.put(entry.getKey(), new Counter(entry.getValue().count));
+            }
+        }
+        maximumError += other.maximumError;
+
+        if (counters.size() > capacity) {
+            /* keep the largest counters by decreasing all of them by the count just outside the capacity */
+            List<Long> counts = new ArrayList<>(counters.size());
+            for (Counter counter : counters.values()) {
+                counts.add(counter.count);
+            }
+            Collections.sort(counts, Collections.reverseOrder());
+            decrementAll(counts.get(capacity));
+        }
+    }
+
+
+    /**
+     * Get the most frequent values
+     *
+     * @param n number of values to return
+     * @return top-n list with the counted values
+     */
+    public TopNDataList getTopN(int n) {
+        TopNDataList topNDataList = new TopNDataList(n);
+        for (Map.Entry<Object, Counter> entry : counters.entrySet()) {
+            topNDataList.add(entry.getKey(), entry.getValue().count);
+        }
+        return topNDataList;
+    }
+
+
+    /**
+     * Get the largest amount by which the count of a value may have been under estimated
+     *
+     * @return maximum error of the counts
+     */
+    public long getMaximumError() {
+        return maximumError;
+    }
+
+
+    private void decrementAll(long decrement) {
+        Iterator<Counter> iterator = counters.values().iterator();
+        while (iterator.hasNext()) {
+            Counter counter = iterator.next();
+            counter.count -= decrement;
+            if (counter.count <= 0) {
+                iterator.remove();
+            }
+        }
+        maximumError += decrement;
+    }
+
+
+    /* Mutable count of a value */
+    private static class Counter implements Serializable {
+
+        private long count;
+
+        Counter(long count) {
+            this.count = count;
+        }
+    }
+}
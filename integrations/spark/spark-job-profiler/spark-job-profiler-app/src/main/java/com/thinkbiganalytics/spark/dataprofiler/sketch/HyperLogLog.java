@@ -0,0 +1,270 @@
+package com.thinkbiganalytics.spark.dataprofiler.sketch;
+
+/*-
+ * #%L
+ * thinkbig-spark-job-profiler-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.Serializable;
+import java.sql.Timestamp;
+import java.util.Date;
+
+/**
+ * HyperLogLog sketch estimating the number of distinct values in a column<br>
+ * Sketches built on different partitions can be merged. While the number of distinct values is small the hashes are kept as is and the count is exact.
+ */
+@SuppressWarnings("serial")
+public class HyperLogLog implements Serializable {
+
+    /**
+     * Default number of bits used to address a register (2^14 registers for a standard error of about 0.8%)
+     */
+    public static final int DEFAULT_PRECISION = 14;
+
+    /* Hash used for null values. Null is counted as a distinct value */
+    private static final long NULL_HASH = 0x6a09e667f3bcc908L;
+
+    /* Marks an empty slot of the exact hash set */
+    private static final long EMPTY = 0L;
+
+    private final int precision;
+    private final int sparseThreshold;
+
+    /* Exact set of hashes (open addressing) used until it grows past the sparse threshold */
+    private long[] hashes;
+    private int hashCount;
+
+    /* Registers holding the maximum rank seen for each bucket (null while the exact set is used) */
+    private byte[] registers;
+
+
+    /**
+     * Create a sketch with the default precision
+     */
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+
+    /**
+     * Create a sketch
+     *
+     * @param precision number of bits used to address a register (between 4 and 18)
+     */
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("Precision must be between 4 and 18: " + precision);
+        }
+        this.precision = precision;
+        this.sparseThreshold = (1 << precision) / 16;
+        this.hashes = new long[16];
+    }
+
+
+    /**
+     * Include a value in the sketch
+     *
+     * @param value value (may be null)
+     */
+    public void add(Object value) {
+        addHash(hash(value));
+    }
+
+
+    /**
+     * Merge another sketch into this one
+     *
+     * @param other sketch with the same precision
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Unable to merge sketches of precision " + precision + " and " + other.precision);
+        }
+        if (other.registers == null) {
+            for (long hash : other.hashes) {
+                if (hash != EMPTY) {
+                    addHash(hash);
+                }
+            }
+        } else {
+            toRegisters();
+            for (int i = 0; i < registers.length; i++) {
+                if (registers[i] < other.registers[i]) {
+                    registers[i] = other.registers[i];
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Get the estimated number of distinct values
+     *
+     * @return estimated distinct count
+     */
+    public long cardinality() {
+        if (registers == null) {
+            return hashCount;
+        }
+
+        int m = registers.length;
+        double sum = 0.0d;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0d / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+
+        double estimate = (0.7213d / (1.0d + 1.079d / m)) * m * m / sum;
+        if (estimate <= 2.5d * m && zeros > 0) {
+            /* linear counting is more accurate for small cardinalities */
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+
+    /**
+     * Check to see if the sketch still holds the exact set of hashes
+     *
+     * @return true if the cardinality is exact
+     */
+    public boolean isExact() {
+        return registers == null;
+    }
+
+
+    private void addHash(long hash) {
+        if (registers != null) {
+            addToRegisters(hash);
+            return;
+        }
+        if (hash == EMPTY) {
+            hash = 1L;
+        }
+        if ((hashCount + 1) * 2 > hashes.length) {
+            if (hashCount >= sparseThreshold) {
+                toRegisters();
+                addToRegisters(hash);
+                return;
+            }
+            rehash(hashes.length * 2);
+        }
+        if (insert(hashes, hash)) {
+            hashCount++;
+        }
+    }
+
+
+    private void addToRegisters(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1);
+        if (registers[index] < rank) {
+            registers[index] = rank;
+        }
+    }
+
+
+    private void toRegisters() {
+        if (registers == null) {
+            registers = new byte[1 << precision];
+            for (long hash : hashes) {
+                if (hash != EMPTY) {
+                    addToRegisters(hash);
+                }
+            }
+            hashes = null;
+            hashCount = 0;
+        }
+    }
+
+
+    private void rehash(int size) {
+        long[] newHashes = new long[size];
+        for (long hash : hashes) {
+            if (hash != EMPTY) {
+                insert(newHashes, hash);
+            }
+        }
+        hashes = newHashes;
+    }
+
+
+    /* Insert into the open addressing set, returning false if the hash was already present */
+    private static boolean insert(long[] table, long hash) {
+        int mask = table.length - 1;
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        while (table[slot] != EMPTY) {
+            if (table[slot] == hash) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = hash;
+        return true;
+    }
+
+
+    /**
+     * Get a 64-bit hash of a column value.  Values that are equal produce the same hash.
+     *
+     * @param value column value
+     * @return hash
+     */
+    static long hash(Object value) {
+        if (value == null) {
+            return NULL_HASH;
+        }
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return mix(((Number) value).longValue());
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return mix(Double.doubleToLongBits(((Number) value).doubleValue()));
+        }
+        if (value instanceof Boolean) {
+            return mix((Boolean) value ? 1L : 2L);
+        }
+        if (value instanceof Timestamp) {
+            return mix(((Timestamp) value).getTime() * 31L + ((Timestamp) value).getNanos());
+        }
+        if (value instanceof Date) {
+            return mix(((Date) value).getTime());
+        }
+        String string = String.valueOf(value);
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < string.length(); i++) {
+            hash ^= string.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+
+    /* Finalization step of MurmurHash3 spreading the bits of the value */
+    private static long mix(long value) {
+        long hash = value + 0x9e3779b97f4a7c15L;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
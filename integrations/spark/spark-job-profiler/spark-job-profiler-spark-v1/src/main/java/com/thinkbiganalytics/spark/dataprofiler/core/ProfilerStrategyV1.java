@@ -24,6 +24,7 @@ import com.thinkbiganalytics.spark.DataSet;
 import com.thinkbiganalytics.spark.dataprofiler.functions.CombineModels;
 import com.thinkbiganalytics.spark.dataprofiler.functions.IndividualColumnValueCounts;
 import com.thinkbiganalytics.spark.dataprofiler.functions.PartitionLevelModels;
+import com.thinkbiganalytics.spark.dataprofiler.functions.PartitionLevelSketchModels;
 import com.thinkbiganalytics.spark.dataprofiler.functions.TotalColumnValueCounts;
 import com.thinkbiganalytics.spark.dataprofiler.model.StatisticsModel;
 
@@ -45,6 +46,10 @@ public class ProfilerStrategyV1 implements ProfilerStrategy {
 
     @Override
     public StatisticsModel profileStatistics(DataSet set, Broadcast<Map<Integer, StructField>> bSchemaMap) {
+        if (ProfilerConfiguration.isApproximateProfile()) {
+            return profileApproximateStatistics(set, bSchemaMap);
+        }
+
         JavaPairRDD<Tuple2<Integer, Object>, Integer> columnValueCounts;
         StatisticsModel profileStatisticsModel = null;
 
@@ -63,4 +68,20 @@ public class ProfilerStrategyV1 implements ProfilerStrategy {
 
         return profileStatisticsModel;
     }
+
+
+    /*
+     * Profile in a single pass over the rows without shuffling the column values.
+     * The driver merges each partition model as it arrives.
+     */
+    private StatisticsModel profileApproximateStatistics(DataSet set, Broadcast<Map<Integer, StructField>> bSchemaMap) {
+        StatisticsModel emptyModel = new StatisticsModel(ProfilerConfiguration.NUMBER_OF_TOP_N_VALUES, ProfilerConfiguration.TOP_N_SKETCH_CAPACITY);
+
+        StatisticsModel profileStatisticsModel = set
+            .javaRDD()
+            .mapPartitions(new PartitionLevelSketchModels(bSchemaMap, ProfilerConfiguration.NUMBER_OF_TOP_N_VALUES, ProfilerConfiguration.TOP_N_SKETCH_CAPACITY))
+            .fold(emptyModel, new CombineModels());
+
+        return profileStatisticsModel.getColumnStatisticsMap().isEmpty() ? null : profileStatisticsModel;
+    }
 }
@@ -0,0 +1,70 @@
+package com.thinkbiganalytics.spark.dataprofiler.functions;
+
+/*-
+ * #%L
+ * thinkbig-spark-job-profiler-spark-v1
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.spark.dataprofiler.model.StatisticsModel;
+
+import org.apache.spark.api.java.function.FlatMapFunction;
+import org.apache.spark.broadcast.Broadcast;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.types.StructField;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+
+/**
+ * Get partition-level statistics models directly from the rows, estimating unique counts and top-n values with sketches
+ */
+public class PartitionLevelSketchModels implements FlatMapFunction<Iterator<Row>, StatisticsModel> {
+
+    private Map<Integer, StructField> schemaMap = new HashMap<>();
+    private final int numberOfTopNValues;
+    private final int topNSketchCapacity;
+
+
+    public PartitionLevelSketchModels(Broadcast<Map<Integer, StructField>> bSchemaMap, int numberOfTopNValues, int topNSketchCapacity) {
+        schemaMap = bSchemaMap.value();
+        this.numberOfTopNValues = numberOfTopNValues;
+        this.topNSketchCapacity = topNSketchCapacity;
+    }
+
+
+    public Iterable<StatisticsModel> call(Iterator<Row> iter) throws Exception {
+
+        if (!iter.hasNext()) {
+            return Collections.emptyList();
+        }
+
+        StatisticsModel statisticsModel = new StatisticsModel(numberOfTopNValues, topNSketchCapacity);
+
+        while (iter.hasNext()) {
+            Row row = iter.next();
+            for (int i = 0; i < row.length(); i++) {
+                statisticsModel.add(i, row.get(i), 1L, schemaMap.get(i));
+            }
+        }
+
+        return Collections.singletonList(statisticsModel);
+    }
+}
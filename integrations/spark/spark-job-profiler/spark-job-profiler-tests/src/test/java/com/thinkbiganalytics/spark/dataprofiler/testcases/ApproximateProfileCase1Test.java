@@ -0,0 +1,194 @@
+package com.thinkbiganalytics.spark.dataprofiler.testcases;
+
+/*-
+ * #%L
+ * thinkbig-spark-job-profiler-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.spark.DataSet;
+import com.thinkbiganalytics.spark.SparkContextService;
+import com.thinkbiganalytics.spark.dataprofiler.columns.ColumnStatistics;
+import com.thinkbiganalytics.spark.dataprofiler.core.Profiler;
+import com.thinkbiganalytics.spark.dataprofiler.core.ProfilerConfiguration;
+import com.thinkbiganalytics.spark.dataprofiler.core.SpringTestConfigV1;
+import com.thinkbiganalytics.spark.dataprofiler.core.SpringTestConfigV2;
+import com.thinkbiganalytics.spark.dataprofiler.model.StatisticsModel;
+
+import org.apache.spark.JavaSparkListener;
+import org.apache.spark.SparkConf;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.broadcast.Broadcast;
+import org.apache.spark.scheduler.SparkListenerTaskEnd;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.SQLContext;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Approximate Profile Test Case 1<br>
+ * Compares the runtime and shuffle bytes of the exact and approximate profiling modes on a synthetic wide table
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ComponentScan(basePackages = {"com.thinkbiganalytics"})
+@ContextConfiguration(classes = {Profiler.class, SpringTestConfigV1.class, SpringTestConfigV2.class})
+@ActiveProfiles("spark-v1")
+public class ApproximateProfileCase1Test {
+
+    private static final int COLUMNS = 60;
+    private static final int ROWS = 20000;
+
+    private final AtomicLong shuffleBytesWritten = new AtomicLong();
+    private JavaSparkContext sc;
+    private DataSet dataDF;
+    private Broadcast<Map<Integer, StructField>> schemaMap;
+
+    @Autowired
+    private Profiler profiler;
+
+    @SuppressWarnings("SpringJavaAutowiringInspection")
+    @Autowired
+    private SparkContextService scs;
+
+    @Before
+    public void setUp() {
+        ProfilerConfiguration.initialize();
+
+        /* Integer, string and double columns with 10 to 100000 distinct values and some nulls */
+        StructField[] schemaFields = new StructField[COLUMNS];
+        for (int i = 0; i < COLUMNS; i++) {
+            if (i % 3 == 0) {
+                schemaFields[i] = DataTypes.createStructField("int" + i, DataTypes.IntegerType, true);
+            } else if (i % 3 == 1) {
+                schemaFields[i] = DataTypes.createStructField("string" + i, DataTypes.StringType, true);
+            } else {
+                schemaFields[i] = DataTypes.createStructField("double" + i, DataTypes.DoubleType, true);
+            }
+        }
+        StructType schema = DataTypes.createStructType(schemaFields);
+
+        List<Row> rows = new ArrayList<>(ROWS);
+        for (int r = 0; r < ROWS; r++) {
+            Object[] values = new Object[COLUMNS];
+            for (int i = 0; i < COLUMNS; i++) {
+                int distinct = (int) Math.pow(10, 1 + i % 5);
+                int value = (int) (((long) r * 7919L + i) % distinct);
+                if (value == 1) {
+                    values[i] = null;
+                } else if (i % 3 == 0) {
+                    values[i] = value;
+                } else if (i % 3 == 1) {
+                    values[i] = "value" + value;
+                } else {
+                    values[i] = value / 10.0d;
+                }
+            }
+            rows.add(RowFactory.create(values));
+        }
+
+        SparkConf conf = new SparkConf().setMaster("local[4]").setAppName("Approximate Profiler Test");
+        sc = new JavaSparkContext(conf);
+        sc.sc().addSparkListener(new JavaSparkListener() {
+            @Override
+            public void onTaskEnd(SparkListenerTaskEnd taskEnd) {
+                if (taskEnd.taskMetrics() != null && taskEnd.taskMetrics().shuffleWriteMetrics().isDefined()) {
+                    shuffleBytesWritten.addAndGet(taskEnd.taskMetrics().shuffleWriteMetrics().get().shuffleBytesWritten());
+                }
+            }
+        });
+        SQLContext sqlContext = new SQLContext(sc);
+        dataDF = scs.toDataSet(sqlContext.createDataFrame(sc.parallelize(rows, 8), schema));
+        schemaMap = profiler.populateAndBroadcastSchemaMap(dataDF, sc);
+    }
+
+    @After
+    public void tearDown() {
+        ProfilerConfiguration.initialize();
+        if (sc != null) {
+            sc.close();
+            sc = null;
+        }
+    }
+
+    @Test
+    public void testApproximateProfileMatchesExactProfile() throws Exception {
+        /* warm up */
+        profile("exact");
+        profile("approximate");
+
+        long start = System.currentTimeMillis();
+        Map<Integer, ColumnStatistics> exact = profile("exact").getColumnStatisticsMap();
+        long exactTime = System.currentTimeMillis() - start;
+        long exactShuffleBytes = shuffleBytesWritten.get();
+
+        start = System.currentTimeMillis();
+        Map<Integer, ColumnStatistics> approximate = profile("approximate").getColumnStatisticsMap();
+        long approximateTime = System.currentTimeMillis() - start;
+        long approximateShuffleBytes = shuffleBytesWritten.get();
+
+        System.out.println("\t*** Profiled " + ROWS + " rows x " + COLUMNS + " columns ***");
+        System.out.println("\t*** exact: " + exactTime + " ms, " + exactShuffleBytes + " shuffle bytes ***");
+        System.out.println("\t*** approximate: " + approximateTime + " ms, " + approximateShuffleBytes + " shuffle bytes ***");
+
+        Assert.assertTrue(exactShuffleBytes > 0);
+        Assert.assertEquals(0L, approximateShuffleBytes);
+        Assert.assertEquals(COLUMNS, approximate.size());
+
+        for (int i = 0; i < COLUMNS; i++) {
+            ColumnStatistics exactStatistics = exact.get(i);
+            ColumnStatistics approximateStatistics = approximate.get(i);
+
+            Assert.assertEquals(exactStatistics.getTotalCount(), approximateStatistics.getTotalCount());
+            Assert.assertEquals(exactStatistics.getNullCount(), approximateStatistics.getNullCount());
+            Assert.assertEquals(exactStatistics.getUniqueCount(), approximateStatistics.getUniqueCount(), exactStatistics.getUniqueCount() * 0.03d);
+
+            /* values are counted exactly while there are fewer distinct values than the sketch capacity */
+            if (exactStatistics.getUniqueCount() <= ProfilerConfiguration.TOP_N_SKETCH_CAPACITY) {
+                Assert.assertEquals(exactStatistics.getUniqueCount(), approximateStatistics.getUniqueCount());
+                Assert.assertEquals(exactStatistics.getTopNValues().getTopNDataItemsForColumn().last().getCount(),
+                                    approximateStatistics.getTopNValues().getTopNDataItemsForColumn().last().getCount());
+            }
+        }
+    }
+
+    private StatisticsModel profile(String mode) throws Exception {
+        ProfilerConfiguration.PROFILE_MODE = mode;
+        shuffleBytesWritten.set(0L);
+        StatisticsModel model = profiler.profileStatistics(dataDF, schemaMap);
+
+        /* listener events are delivered asynchronously */
+        sc.sc().listenerBus().waitUntilEmpty(10000L);
+        return model;
+    }
+}
@@ -0,0 +1,96 @@
+package com.thinkbiganalytics.spark.dataprofiler.testcases;
+
+/*-
+ * #%L
+ * thinkbig-spark-job-profiler-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.spark.dataprofiler.sketch.FrequentItemsSketch;
+import com.thinkbiganalytics.spark.dataprofiler.sketch.HyperLogLog;
+import com.thinkbiganalytics.spark.dataprofiler.topn.TopNDataItem;
+import com.thinkbiganalytics.spark.dataprofiler.topn.TopNDataList;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Iterator;
+
+/**
+ * Sketch Test Case 1
+ */
+public class SketchCase1Test {
+
+    @Test
+    public void testSmallUniqueCountIsExact() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 500; i++) {
+            sketch.add("value" + (i % 100));
+        }
+        sketch.add(null);
+        sketch.add(null);
+
+        Assert.assertTrue(sketch.isExact());
+        Assert.assertEquals(101L, sketch.cardinality());
+    }
+
+    @Test
+    public void testLargeUniqueCountIsEstimated() {
+        HyperLogLog sketch1 = new HyperLogLog();
+        HyperLogLog sketch2 = new HyperLogLog();
+        for (long i = 0; i < 200000; i++) {
+            sketch1.add(i);
+            sketch2.add(i + 100000L);
+        }
+        sketch1.merge(sketch2);
+
+        Assert.assertFalse(sketch1.isExact());
+        Assert.assertEquals(300000.0d, sketch1.cardinality(), 300000 * 0.03d);
+    }
+
+    @Test
+    public void testTopNValuesAreExactBelowCapacity() {
+        FrequentItemsSketch sketch1 = new FrequentItemsSketch(10);
+        FrequentItemsSketch sketch2 = new FrequentItemsSketch(10);
+        sketch1.add("A", 18L);
+        sketch1.add("B", 20L);
+        sketch2.add("C", 15L);
+        sketch2.add("D", 25L);
+        sketch2.add("B", 5L);
+        sketch1.merge(sketch2);
+
+        TopNDataList topNList = sketch1.getTopN(3);
+        Iterator<TopNDataItem> iterator = topNList.getTopNDataItemsForColumn().descendingIterator();
+        Assert.assertEquals("B", iterator.next().getValue());
+        Assert.assertEquals("D", iterator.next().getValue());
+        Assert.assertEquals("A", iterator.next().getValue());
+        Assert.assertEquals(0L, sketch1.getMaximumError());
+    }
+
+    @Test
+    public void testFrequentValuesSurviveAboveCapacity() {
+        FrequentItemsSketch sketch = new FrequentItemsSketch(20);
+        for (int i = 0; i < 10000; i++) {
+            sketch.add(i % 4 == 0 ? "frequent" : "rare" + i, 1L);
+        }
+
+        TopNDataItem top = sketch.getTopN(1).getTopNDataItemsForColumn().last();
+        Assert.assertEquals("frequent", top.getValue());
+        Assert.assertTrue(top.getCount() <= 2500L);
+        Assert.assertTrue(top.getCount() + sketch.getMaximumError() >= 2500L);
+    }
+}
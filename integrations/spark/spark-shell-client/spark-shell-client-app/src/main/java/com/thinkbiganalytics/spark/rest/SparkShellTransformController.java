@@ -20,6 +20,7 @@ package com.thinkbiganalytics.spark.rest;
  * #L%
  */
 
+import com.thinkbiganalytics.spark.metadata.QueryResultPager;
 import com.thinkbiganalytics.spark.metadata.TransformJob;
 import com.thinkbiganalytics.spark.rest.model.TransformRequest;
 import com.thinkbiganalytics.spark.rest.model.TransformResponse;
@@ -34,11 +35,13 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.script.ScriptException;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -146,6 +149,43 @@ public class SparkShellTransformController {
         }
     }
 
+    /**
+     * Fetches a page of the results of a transformation.
+     *
+     * @param id     the destination table name
+     * @param offset the index of the first row
+     * @param limit  the maximum number of rows
+     * @return the page of results
+     */
+    @GET
+    @Path("{table}/rows")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation("Fetches a page of the results of a transformation.")
+    @ApiResponses({
+                      @ApiResponse(code = 200, message = "Returns the page of results.", response = TransformResponse.class),
+                      @ApiResponse(code = 400, message = "The offset or limit is not valid.", response = TransformResponse.class),
+                      @ApiResponse(code = 404, message = "The transformation does not exist.", response = TransformResponse.class),
+                      @ApiResponse(code = 500, message = "There was a problem accessing the data.", response = TransformResponse.class)
+                  })
+    @Nonnull
+    public Response getRows(@Nonnull @PathParam("table") final String id, @QueryParam("offset") @DefaultValue("0") final long offset,
+                            @QueryParam("limit") @DefaultValue("1000") final int limit) {
+        // Validate request
+        if (offset < 0 || limit < 1 || limit > QueryResultPager.MAX_PAGE_SIZE()) {
+            return error(Response.Status.BAD_REQUEST, "transform.invalidPage");
+        }
+
+        // Fetch page
+        try {
+            return Response.ok(transformService.getRows(id, offset, limit)).build();
+        } catch (IllegalArgumentException e) {
+            return error(Response.Status.NOT_FOUND, "transform.unknownTable");
+        } catch (Exception e) {
+            return error(Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
     /**
      * Generates an error response for the specified message.
      *
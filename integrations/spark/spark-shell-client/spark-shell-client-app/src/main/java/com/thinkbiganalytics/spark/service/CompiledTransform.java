@@ -0,0 +1,54 @@
+package com.thinkbiganalytics.spark.service;
+
+/*-
+ * #%L
+ * thinkbig-spark-shell-client-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.Callable;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * A transform script that has been compiled by the script engine.
+ *
+ * <p>The destination table and the parent results are passed as arguments so that a compiled transform can be reused for every
+ * request with the same script.</p>
+ */
+public interface CompiledTransform {
+
+    /**
+     * Creates a job that evaluates the transform and stores the results in the specified table.
+     *
+     * @param destination   the name of the destination table
+     * @param parentTable   the name of the table with the results of the parent transformation, or {@code null} if there is no parent
+     * @param parentResults re-generates the results of the parent transformation if the parent table no longer exists
+     * @return the job
+     */
+    Object run(@Nonnull String destination, @Nullable String parentTable, @Nonnull Callable<?> parentResults);
+
+    /**
+     * Evaluates the transform and returns the resulting data frame.
+     *
+     * @param parentTable   the name of the table with the results of the parent transformation, or {@code null} if there is no parent
+     * @param parentResults re-generates the results of the parent transformation if the parent table no longer exists
+     * @return the data frame
+     */
+    Object dataFrame(@Nullable String parentTable, @Nonnull Callable<?> parentResults);
+}
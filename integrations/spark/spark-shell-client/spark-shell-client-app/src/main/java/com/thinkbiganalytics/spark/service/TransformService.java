@@ -22,38 +22,52 @@ package com.thinkbiganalytics.spark.service;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
 import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
 import com.google.common.cache.Weigher;
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Queues;
+import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.AbstractScheduledService;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.thinkbiganalytics.hive.util.HiveUtils;
 import com.thinkbiganalytics.kerberos.KerberosTicketConfiguration;
 import com.thinkbiganalytics.kerberos.KerberosTicketGenerator;
+import com.thinkbiganalytics.spark.DataSet;
 import com.thinkbiganalytics.spark.SparkContextService;
+import com.thinkbiganalytics.spark.metadata.QueryResultPager;
 import com.thinkbiganalytics.spark.metadata.TransformJob;
 import com.thinkbiganalytics.spark.repl.SparkScriptEngine;
 import com.thinkbiganalytics.spark.rest.model.TransformRequest;
 import com.thinkbiganalytics.spark.rest.model.TransformResponse;
+import com.thinkbiganalytics.spark.rest.model.TransformResultPage;
 
-import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.hadoop.security.UserGroupInformation;
+import org.apache.spark.rdd.RDD;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.SQLContext;
+import org.apache.spark.storage.RDDInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.security.PrivilegedExceptionAction;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
@@ -67,6 +81,9 @@ import scala.tools.nsc.interpreter.NamedParamClass;
 /**
  * A scheduled service that manages a database containing cached results of Spark jobs.
  *
+ * <p>Transform scripts are compiled once and cached by their normalized script. The destination table and the parent results
+ * are passed to the compiled transform so that it can be reused by later requests.</p>
+ *
  * <p>Before calling {@link #stopAsync()}, all Spark should should be cancelled to ensure that no additional tables will be
  * created.</p>
  */
@@ -81,24 +98,78 @@ public class TransformService extends AbstractScheduledService {
     private static final String DATABASE = "spark_shell_temp";
 
     /**
-     * Time in seconds after last use for a table to expire
+     * Default time in seconds after last use for a table to expire
      */
     private static final long EXPIRE_TIME = 3600L;
 
+    /**
+     * Time in seconds between clean-ups of expired tables
+     */
+    private static final long CLEAN_UP_INTERVAL = 60L;
+
+    /**
+     * Prefix of the names of the RDDs that cache a table
+     */
+    private static final String CACHED_TABLE_PREFIX = "In-memory table ";
+
     /**
      * Minimum table size in bytes, to ensure there aren't too many tables
      */
     private static final int MIN_BYTES = 1048576;
 
     /**
-     * Maximum database size in bytes (soft limit)
+     * Default maximum database size in bytes (soft limit)
      */
     private static final long MAX_BYTES = 10737418240L;
+
+    /**
+     * Maximum number of compiled transform scripts to keep
+     */
+    private static final long MAX_COMPILED_TRANSFORMS = 100L;
+
+    /**
+     * Re-generates the parent results of a transformation without a parent
+     */
+    private static final Callable<Object> NO_PARENT = new Callable<Object>() {
+        @Override
+        public Object call() throws Exception {
+            throw new UnsupportedOperationException("Transformation does not have a parent");
+        }
+    };
+
     /**
      * Tables with cached results
      */
+    private TableCache cache;
+
+    /**
+     * Number of rows in each partition of the cached tables that have been paged
+     */
+    @Nonnull
+    private final Map<String, long[]> partitionSizes = new ConcurrentHashMap<>();
+
+    /**
+     * Compiled transform scripts by normalized script
+     */
     @Nonnull
-    private final TableCache cache = new TableCache();
+    private final Cache<String, CompiledTransform> compiledTransforms = CacheBuilder.newBuilder()
+        .expireAfterAccess(EXPIRE_TIME, TimeUnit.SECONDS)
+        .maximumSize(MAX_COMPILED_TRANSFORMS)
+        .recordStats()
+        .build();
+
+    /**
+     * Time in seconds after last use for a table to expire
+     */
+    @Value("${spark.shell.transform.idleTimeout:3600}")
+    private long idleTimeout = EXPIRE_TIME;
+
+    /**
+     * Maximum size in bytes of all tables (soft limit)
+     */
+    @Value("${spark.shell.transform.maxBytes:10737418240}")
+    private long maxBytes = MAX_BYTES;
+
     /**
      * Kerberos authentication configuration
      */
@@ -160,11 +231,22 @@ public class TransformService extends AbstractScheduledService {
 
         // Generate destination
         String table = newTableName();
-        this.cache.put(table, MIN_BYTES);
+        this.cache.add(table);
 
         // Execute script
-        List<NamedParam> bindings = ImmutableList.of((NamedParam) new NamedParamClass("database", "String", DATABASE), new NamedParamClass("tableName", "String", table));
-        Object result = this.engine.eval(toScript(request), bindings);
+        final String parentTable;
+        final Callable<?> parentResults;
+
+        if (request.getParent() != null) {
+            parentTable = request.getParent().getTable();
+            parentResults = newParentResults(request.getParent().getScript());
+            this.cache.touch(parentTable);
+        } else {
+            parentTable = null;
+            parentResults = NO_PARENT;
+        }
+
+        Object result = getCompiledTransform(request.getScript()).run(table, parentTable, parentResults);
 
         TransformJob job;
         if (result instanceof Callable) {
@@ -178,13 +260,6 @@ public class TransformService extends AbstractScheduledService {
             throw e;
         }
 
-        // Update table weight
-        try {
-            updateWeight(table, this.engine.getSQLContext());
-        } catch (Exception e) {
-            log.warn("Failed to update table weight: {}", e.toString());
-        }
-
         // Build response
         TransformResponse response;
 
@@ -226,15 +301,83 @@ public class TransformService extends AbstractScheduledService {
         }
     }
 
+    /**
+     * Fetches a page of the results of the transformation with the specified id.
+     *
+     * @param id     the table with the results
+     * @param offset the index of the first row
+     * @param limit  the maximum number of rows
+     * @return the page of results
+     * @throws IllegalArgumentException if the results do not exist
+     * @throws IllegalStateException    if this service is not running
+     */
+    @Nonnull
+    public TransformResponse getRows(@Nonnull final String id, final long offset, final int limit) {
+        // Verify state
+        if (!isRunning()) {
+            IllegalStateException e = new IllegalStateException("Transform service has not been started");
+            log.error("Throwing {}", e);
+            throw e;
+        }
+
+        // Find results
+        SQLContext context = this.engine.getSQLContext();
+        boolean isCached = false;
+
+        try {
+            isCached = this.cache.touch(id) && context.isCached(id);
+        } catch (Exception e) {
+            // ignored
+        }
+
+        if (!isCached) {
+            throw new IllegalArgumentException("Unknown results: " + id);
+        }
+
+        // Fetch page using the partition sizes counted on the first request
+        DataSet results = scs.toDataSet(context, id);
+        RDD<Row> rows = results.javaRDD().rdd();
+        long[] sizes = partitionSizes.get(id);
+        if (sizes == null || sizes.length != rows.partitions().length) {
+            sizes = QueryResultPager.index(rows);
+            partitionSizes.put(id, sizes);
+        }
+        TransformResultPage page = new QueryResultPager(id, results.schema()).page(rows, offset, limit, sizes);
+
+        TransformResponse response = new TransformResponse();
+        response.setPage(page);
+        response.setStatus(TransformResponse.Status.SUCCESS);
+        response.setTable(id);
+        return response;
+    }
+
+    /**
+     * Gets the statistics for the cache of compiled transform scripts, including the hit rate and the time spent compiling scripts.
+     *
+     * @return the cache statistics
+     */
+    @Nonnull
+    public CacheStats getCompiledTransformStats() {
+        return compiledTransforms.stats();
+    }
+
     @Override
     protected void runOneIteration() throws Exception {
         log.trace("entry");
 
         // Clean-up cache
         this.cache.cleanUp();
+        this.compiledTransforms.cleanUp();
 
-        // Drop expired tables
+        CacheStats stats = this.compiledTransforms.stats();
+        log.debug("Compiled transform cache: size={}, hitRate={}, compiles={}, averageCompileTime={}ms", this.compiledTransforms.size(), stats.hitRate(), stats.loadCount(),
+                  TimeUnit.NANOSECONDS.toMillis((long) stats.averageLoadPenalty()));
+
+        // Update table weights
         SQLContext context = this.engine.getSQLContext();
+        updateWeights(context);
+
+        // Drop expired tables
         Iterator<String> iter = this.cache.getExpired();
 
         while (iter.hasNext()) {
@@ -247,7 +390,7 @@ public class TransformService extends AbstractScheduledService {
     @Nonnull
     @Override
     protected Scheduler scheduler() {
-        return Scheduler.newFixedRateSchedule(EXPIRE_TIME, EXPIRE_TIME, TimeUnit.SECONDS);
+        return Scheduler.newFixedRateSchedule(CLEAN_UP_INTERVAL, CLEAN_UP_INTERVAL, TimeUnit.SECONDS);
     }
 
     @Override
@@ -270,6 +413,7 @@ public class TransformService extends AbstractScheduledService {
     protected void startUp() {
         log.trace("entry");
         log.info("Starting transform service");
+        cache = new TableCache(idleTimeout, maxBytes);
 
         // Create database
         if (kerberosTicketConfiguration.isKerberosEnabled()) {
@@ -331,36 +475,117 @@ public class TransformService extends AbstractScheduledService {
     }
 
     /**
-     * Converts the specified transformation request to a Scala script that can be executed by the script engine.
+     * Converts the specified transform script to a Scala script that can be compiled by the script engine. The result of the
+     * Scala script is a {@link CompiledTransform}.
      *
-     * @param request the transformation request
+     * @param transformScript the normalized transform script
      * @return the Scala script
      */
     @Nonnull
-    protected String toScript(@Nonnull final TransformRequest request) {
+    protected String toScript(@Nonnull final String transformScript) {
         StringBuilder script = new StringBuilder();
-        script.append("class Transform (destination: String, sendResults: Boolean, sqlContext: org.apache.spark.sql.SQLContext)");
+        script.append("class Transform (destination: String, sendResults: Boolean, sqlContext: org.apache.spark.sql.SQLContext, parentTableName: String, ");
+        script.append("parentResults: java.util.concurrent.Callable[_])");
         script.append(" extends com.thinkbiganalytics.spark.metadata.TransformScript(destination, sendResults, sqlContext) {\n");
 
         script.append("override def dataFrame: org.apache.spark.sql.DataFrame = {");
-        script.append(request.getScript());
+        script.append(transformScript);
+        script.append("}\n");
+        script.append("override def parentDataFrame: org.apache.spark.sql.DataFrame = {parentResults.call().asInstanceOf[org.apache.spark.sql.DataFrame]}\n");
+        script.append("override def parentTable: String = {parentTableName}\n");
         script.append("}\n");
 
-        if (request.getParent() != null) {
-            script.append("override def parentDataFrame: org.apache.spark.sql.DataFrame = {");
-            script.append(request.getParent().getScript());
-            script.append("}\n");
-            script.append("override def parentTable: String = {\"");
-            script.append(StringEscapeUtils.escapeJava(request.getParent().getTable()));
-            script.append("\"}\n");
+        script.append("new com.thinkbiganalytics.spark.service.CompiledTransform {\n");
+        script.append("override def run(destination: String, parentTable: String, parentResults: java.util.concurrent.Callable[_]): AnyRef = ");
+        script.append("{new Transform(destination, true, sqlContext, parentTable, parentResults).run().asInstanceOf[AnyRef]}\n");
+        script.append("override def dataFrame(parentTable: String, parentResults: java.util.concurrent.Callable[_]): AnyRef = ");
+        script.append("{new Transform(null, true, sqlContext, parentTable, parentResults).dataFrame}\n");
+        script.append("}\n");
+
+        return script.toString();
+    }
 
-            this.cache.touch(request.getParent().getTable());
+    /**
+     * Normalizes the specified transform script so that scripts differing only in line endings or trailing whitespace share a
+     * compiled transform.
+     *
+     * @param script the transform script
+     * @return the normalized script
+     */
+    @Nonnull
+    static String normalizeScript(@Nonnull final String script) {
+        return script.replaceAll("[ \\t]*(\\r\\n|\\r|\\n)", "\n").trim();
+    }
+
+    /**
+     * Gets the compiled transform for the specified script, compiling and caching the script if necessary.
+     *
+     * @param script the transform script
+     * @return the compiled transform
+     * @throws ScriptException if the script cannot be compiled
+     */
+    @Nonnull
+    private CompiledTransform getCompiledTransform(@Nonnull final String script) throws ScriptException {
+        final String normalizedScript = normalizeScript(script);
+
+        try {
+            return compiledTransforms.get(normalizedScript, new Callable<CompiledTransform>() {
+                @Override
+                public CompiledTransform call() throws Exception {
+                    return compile(normalizedScript);
+                }
+            });
+        } catch (ExecutionException | UncheckedExecutionException cause) {
+            if (cause.getCause() instanceof ScriptException) {
+                throw (ScriptException) cause.getCause();
+            }
+            if (cause.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) cause.getCause();
+            }
+            ScriptException e = new ScriptException(cause);
+            log.error("Throwing {}", e);
+            throw e;
         }
+    }
 
-        script.append("}\n");
-        script.append("new Transform(tableName, true, sqlContext).run()\n");
+    /**
+     * Compiles the specified transform script using the script engine.
+     *
+     * @param script the normalized transform script
+     * @return the compiled transform
+     * @throws ScriptException if the script cannot be compiled
+     */
+    @Nonnull
+    private CompiledTransform compile(@Nonnull final String script) throws ScriptException {
+        log.debug("Compiling transform script");
 
-        return script.toString();
+        List<NamedParam> bindings = ImmutableList.of((NamedParam) new NamedParamClass("database", "String", DATABASE));
+        Object result = this.engine.eval(toScript(script), bindings);
+
+        if (result instanceof CompiledTransform) {
+            return (CompiledTransform) result;
+        } else {
+            IllegalStateException e = new IllegalStateException("Unexpected script result type: " + (result != null ? result.getClass() : null));
+            log.error("Throwing {}", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Creates a {@code Callable} that re-generates the results of the parent transformation using its compiled transform. The
+     * parent script is only compiled if the parent table no longer exists.
+     *
+     * @param parentScript the parent transform script
+     * @return the parent results
+     */
+    @Nonnull
+    private Callable<?> newParentResults(@Nonnull final String parentScript) {
+        return new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return getCompiledTransform(parentScript).dataFrame(null, NO_PARENT);
+            }
+        };
     }
 
     /**
@@ -374,6 +599,7 @@ public class TransformService extends AbstractScheduledService {
 
         // Remove from tracker
         tracker.removeJob(name);
+        partitionSizes.remove(name);
 
         // Check if table is cached
         boolean isCached = false;
@@ -414,17 +640,65 @@ public class TransformService extends AbstractScheduledService {
     }
 
     /**
-     * Updates the weight of the specified table in the cache using the current SQL context.
+     * Gets the size in bytes of each table cached by Spark.
+     *
+     * @return the cached size by table name
+     */
+    @Nonnull
+    private Map<String, Long> getCachedTableSizes() {
+        Map<String, Long> sizes = new HashMap<>();
+
+        for (RDDInfo info : this.engine.getSparkContext().getRDDStorageInfo()) {
+            if (info.name() != null && info.name().startsWith(CACHED_TABLE_PREFIX)) {
+                sizes.put(info.name().substring(CACHED_TABLE_PREFIX.length()), info.memSize() + info.diskSize());
+            }
+        }
+
+        return sizes;
+    }
+
+    /**
+     * Updates the weight of the tables in the cache whose transformations have completed.
      *
-     * @param table   the table name
      * @param context the SQL context
      */
-    private void updateWeight(@Nonnull final String table, @Nonnull final SQLContext context) {
-        int size = -1;
+    private void updateWeights(@Nonnull final SQLContext context) {
+        Map<String, Long> cachedSizes = null;
 
-        // Get size for Hive tables
-        if (!context.isCached(table)) {
-            // Select service database
+        for (String table : this.cache.getUnweighed()) {
+            Option<TransformJob> job = tracker.getJob(table);
+            if (job.isDefined() && !job.get().isDone()) {
+                continue;
+            }
+
+            if (cachedSizes == null) {
+                cachedSizes = getCachedTableSizes();
+            }
+
+            try {
+                updateWeight(table, context, cachedSizes);
+            } catch (Exception e) {
+                log.warn("Failed to update table weight: {}", e.toString());
+                this.cache.setWeight(table, MIN_BYTES);
+            }
+        }
+    }
+
+    /**
+     * Updates the weight of the specified table in the cache using the current SQL context.
+     *
+     * @param table       the table name
+     * @param context     the SQL context
+     * @param cachedSizes the size in bytes of each table cached by Spark
+     */
+    private void updateWeight(@Nonnull final String table, @Nonnull final SQLContext context, @Nonnull final Map<String, Long> cachedSizes) {
+        long size = -1;
+
+        if (cachedSizes.containsKey(table)) {
+            // Get size for cached tables
+            size = cachedSizes.get(table);
+        } else if (!context.isCached(table)) {
+            // Get size for Hive tables
             context.sql("USE " + HiveUtils.quoteIdentifier(DATABASE));
 
             // Find size of table
@@ -435,7 +709,7 @@ public class TransformService extends AbstractScheduledService {
                 String property = row.getString(0);
                 if (property.startsWith("totalSize\t")) {
                     int tabIndex = property.indexOf('\t') + 1;
-                    size = Integer.parseInt(property.substring(tabIndex));
+                    size = Long.parseLong(property.substring(tabIndex));
                 }
             }
 
@@ -445,7 +719,7 @@ public class TransformService extends AbstractScheduledService {
         }
 
         // Update cache
-        this.cache.put(table, Math.max(size, MIN_BYTES));
+        this.cache.setWeight(table, (int) Math.min(Math.max(size, MIN_BYTES), Integer.MAX_VALUE));
     }
 
     /**
@@ -458,7 +732,8 @@ public class TransformService extends AbstractScheduledService {
     }
 
     /**
-     * A cache of Hive tables containing results of previous Spark jobs.
+     * A cache of Hive tables containing results of previous Spark jobs. Tables are evicted when they have not been used for the
+     * idle timeout or when the total size of the tables exceeds the maximum size.
      */
     static class TableCache implements RemovalListener<String, Integer>, Weigher<String, Integer> {
 
@@ -474,18 +749,37 @@ public class TransformService extends AbstractScheduledService {
         @Nonnull
         private final Queue<String> expired = Queues.newConcurrentLinkedQueue();
 
+        /**
+         * Active tables whose size has not been determined
+         */
+        @Nonnull
+        private final Set<String> unweighed = Sets.newConcurrentHashSet();
+
         /**
          * Constructs a {@code TableCache}.
+         *
+         * @param idleTimeout time in seconds after last use for a table to expire
+         * @param maxBytes    maximum size in bytes of all tables
          */
-        TableCache() {
+        TableCache(final long idleTimeout, final long maxBytes) {
             this.active = CacheBuilder.newBuilder()
-                .expireAfterAccess(EXPIRE_TIME, TimeUnit.SECONDS)
-                .maximumWeight(MAX_BYTES)
+                .expireAfterAccess(idleTimeout, TimeUnit.SECONDS)
+                .maximumWeight(maxBytes)
                 .removalListener(this)
                 .weigher(this)
                 .build();
         }
 
+        /**
+         * Adds the specified table to this cache. The table has the minimum size until its actual size is set.
+         *
+         * @param name the table name
+         */
+        public void add(@Nonnull final String name) {
+            this.unweighed.add(name);
+            this.active.put(name, MIN_BYTES);
+        }
+
         /**
          * Performs any pending maintenance operations needed by the cache.
          */
@@ -530,28 +824,44 @@ public class TransformService extends AbstractScheduledService {
             };
         }
 
+        /**
+         * Gets the active tables whose size has not been determined.
+         *
+         * @return the unweighed tables
+         */
+        @Nonnull
+        public Set<String> getUnweighed() {
+            return ImmutableSet.copyOf(this.unweighed);
+        }
+
         @Override
         public void onRemoval(@Nonnull final RemovalNotification<String, Integer> notification) {
             this.expired.add(notification.getKey());
+            if (notification.getCause() != RemovalCause.REPLACED) {
+                this.unweighed.remove(notification.getKey());
+            }
         }
 
         /**
-         * Associates the specified byte size with the specified table name in this cache, overwriting if necessary.
+         * Sets the byte size of the specified table, if the table is still active.
          *
          * @param name the table name
          * @param size the table size in bytes
          */
-        public void put(@Nonnull final String name, final int size) {
-            this.active.put(name, size);
+        public void setWeight(@Nonnull final String name, final int size) {
+            if (this.unweighed.remove(name) && this.active.getIfPresent(name) != null) {
+                this.active.put(name, size);
+            }
         }
 
         /**
          * Sets the specified table as being active.
          *
          * @param name the table name
+         * @return {@code true} if the table is active, or {@code false} if it has expired
          */
-        public void touch(@Nonnull final String name) {
-            this.active.getIfPresent(name);
+        public boolean touch(@Nonnull final String name) {
+            return this.active.getIfPresent(name) != null;
         }
 
         @Override
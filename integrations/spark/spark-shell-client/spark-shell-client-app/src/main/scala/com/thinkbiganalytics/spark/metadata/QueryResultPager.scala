@@ -0,0 +1,168 @@
+package com.thinkbiganalytics.spark.metadata
+
+import com.thinkbiganalytics.discovery.model.DefaultQueryResultColumn
+import com.thinkbiganalytics.discovery.schema.QueryResultColumn
+import com.thinkbiganalytics.spark.rest.model.TransformResultPage
+import com.thinkbiganalytics.spark.util.DataTypeUtils
+
+import org.apache.spark.TaskContext
+import org.apache.spark.rdd.RDD
+import org.apache.spark.sql.Row
+import org.apache.spark.sql.types.StructType
+
+import java.util
+import java.util.regex.Pattern
+
+import scala.collection.JavaConversions
+
+/** Static properties of a [[QueryResultPager]]. */
+object QueryResultPager {
+    /** Number of rows in a page if not specified */
+    val DEFAULT_PAGE_SIZE = 1000
+
+    /** Maximum number of rows in a page */
+    val MAX_PAGE_SIZE = 10000
+
+    /** Prefix for display names that are different from the field name */
+    val DISPLAY_NAME_PREFIX = "col"
+
+    /** Pattern for field names */
+    val FIELD_PATTERN = Pattern.compile("^[a-zA-Z_][a-zA-Z0-9_]*$")
+
+    /** Counts the rows in each partition of the results, so that later pages can be read from only the partitions containing them.
+      *
+      * The index remains valid for as long as the results are cached.
+      *
+      * @param rows the results
+      * @return the number of rows in each partition
+      */
+    def index(rows: RDD[Row]): Array[Long] = {
+        rows.mapPartitions(iter => Iterator(iter.size.toLong)).collect()
+    }
+
+    /** Determines the rows of each partition that are in the specified page.
+      *
+      * @param partitionSizes the number of rows in each partition
+      * @param offset         the index of the first row
+      * @param limit          the maximum number of rows
+      * @return the partition, the number of rows to skip, and the number of rows to take, for each partition in the page
+      */
+    def ranges(partitionSizes: Array[Long], offset: Long, limit: Int): Seq[(Int, Int, Int)] = {
+        val end = offset + limit
+        var start = 0L
+        partitionSizes.indices.flatMap(partition => {
+            val first = math.max(offset, start)
+            val last = math.min(end, start + partitionSizes(partition))
+            val range = if (first < last) Some((partition, (first - start).toInt, (last - first).toInt)) else None
+            start += partitionSizes(partition)
+            range
+        })
+    }
+}
+
+/** Fetches pages of the results of a transformation and stores them by column.
+  *
+  * Only the rows of the requested page are collected to the driver so that large results can be viewed without running out of
+  * memory.
+  *
+  * @param destination the name of the table with the results
+  * @param schema      the schema of the results
+  */
+class QueryResultPager(destination: String, schema: StructType) {
+
+    /** Columns of the results */
+    val columns: util.List[QueryResultColumn] = {
+        var index = 1
+        val columns = schema.fields.map(field => {
+            val column = new DefaultQueryResultColumn
+            column.setDataType(DataTypeUtils.getHiveObjectInspector(field.dataType).getTypeName)
+            column.setHiveColumnLabel(field.name)
+            column.setTableName(destination)
+
+            if (QueryResultPager.FIELD_PATTERN.matcher(field.name).matches()) {
+                // Use original name if alphanumeric
+                column.setDisplayName(field.name)
+                column.setField(field.name)
+            } else {
+                // Generate name for non-alphanumeric fields
+                var name: String = null
+                do {
+                    name = QueryResultPager.DISPLAY_NAME_PREFIX + index
+                    index += 1
+
+                    try {
+                        schema(name)
+                        name = null
+                    } catch {
+                        case e: IllegalArgumentException =>
+                    }
+                } while (name == null)
+
+                column.setDisplayName(name)
+                column.setField(name)
+            }
+
+            column: QueryResultColumn
+        })
+        columns.indices.foreach(i => columns(i).setIndex(i))
+        JavaConversions.seqAsJavaList(columns)
+    }
+
+    /** Array of Spark SQL object to Hive object converters */
+    private val converters = schema.fields.map(field => DataTypeUtils.getHiveObjectConverter(field.dataType))
+
+    /** Fetches the first page of rows.
+      *
+      * @param rows      the results
+      * @param limit     the maximum number of rows
+      * @param totalRows the total number of rows in the results
+      * @return the first page of results
+      */
+    def firstPage(rows: RDD[Row], limit: Int, totalRows: Long): TransformResultPage = {
+        toPage(rows.take(limit), 0, totalRows)
+    }
+
+    /** Fetches the specified page of rows. Only the partitions containing the page are read.
+      *
+      * @param rows           the results
+      * @param offset         the index of the first row
+      * @param limit          the maximum number of rows
+      * @param partitionSizes the number of rows in each partition, from [[QueryResultPager.index]]
+      * @return the page of results
+      */
+    def page(rows: RDD[Row], offset: Long, limit: Int, partitionSizes: Array[Long]): TransformResultPage = {
+        val ranges = QueryResultPager.ranges(partitionSizes, offset, limit).map(range => range._1 -> (range._2, range._3)).toMap
+        val pageRows = if (ranges.isEmpty) {
+            Array.empty[Row]
+        } else {
+            rows.sparkContext.runJob(rows, (context: TaskContext, iter: Iterator[Row]) => {
+                val (skip, take) = ranges(context.partitionId())
+                iter.slice(skip, skip + take).toArray
+            }, ranges.keys.toSeq.sorted).flatten
+        }
+        toPage(pageRows, offset, partitionSizes.sum)
+    }
+
+    /** Converts the specified rows to a page of results.
+      *
+      * @param rows      the rows of the page
+      * @param offset    the index of the first row
+      * @param totalRows the total number of rows in the results
+      * @return the page of results
+      */
+    def toPage(rows: Array[Row], offset: Long, totalRows: Long): TransformResultPage = {
+        val data = new util.ArrayList[util.List[Object]](converters.length)
+        converters.indices.foreach(i => {
+            val values = new util.ArrayList[Object](rows.length)
+            rows.foreach(row => values.add(converters(i).convert(row.getAs[Object](i))))
+            data.add(values)
+        })
+
+        val page = new TransformResultPage
+        page.setColumns(columns)
+        page.setData(data)
+        page.setOffset(offset)
+        page.setTotalRows(totalRows)
+        page
+    }
+}
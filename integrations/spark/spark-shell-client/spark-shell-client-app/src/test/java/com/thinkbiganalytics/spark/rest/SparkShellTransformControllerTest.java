@@ -177,4 +177,34 @@ public class SparkShellTransformControllerTest {
         Assert.assertEquals(successResponse, response.getEntity());
         Assert.assertEquals(Response.Status.OK, response.getStatusInfo());
     }
+
+    /**
+     * Verify requesting a page of results.
+     */
+    @Test
+    public void getRows() {
+        TransformResponse rowsResponse = new TransformResponse();
+        rowsResponse.setStatus(TransformResponse.Status.SUCCESS);
+
+        TransformService transformService = Mockito.mock(TransformService.class);
+        Mockito.when(transformService.getRows("SuccessJob", 1000, 500)).thenReturn(rowsResponse);
+        Mockito.when(transformService.getRows("ExpiredJob", 0, 1000)).thenThrow(new IllegalArgumentException());
+
+        SparkShellTransformController controller = new SparkShellTransformController();
+        controller.transformService = transformService;
+
+        // Test with valid page
+        Response response = controller.getRows("SuccessJob", 1000, 500);
+        Assert.assertEquals(Response.Status.OK, response.getStatusInfo());
+        Assert.assertEquals(rowsResponse, response.getEntity());
+
+        // Test with expired results
+        response = controller.getRows("ExpiredJob", 0, 1000);
+        Assert.assertEquals(Response.Status.NOT_FOUND, response.getStatusInfo());
+
+        // Test with invalid page
+        response = controller.getRows("SuccessJob", -1, 1000);
+        Assert.assertEquals(Response.Status.BAD_REQUEST, response.getStatusInfo());
+        Assert.assertEquals(TransformResponse.Status.ERROR, ((TransformResponse) response.getEntity()).getStatus());
+    }
 }
@@ -59,14 +59,8 @@ public class TransformServiceTest {
     public void execute() throws Exception {
         SQLContext context = Mockito.mock(SQLContext.class);
         SparkScriptEngine engine = Mockito.mock(SparkScriptEngine.class);
-        Mockito.when(engine.eval(Mockito.anyString(), Mockito.any(List.class))).thenReturn(new Callable<TransformResponse>() {
-            @Override
-            public TransformResponse call() throws Exception {
-                TransformResponse response = new TransformResponse();
-                response.setStatus(TransformResponse.Status.SUCCESS);
-                return response;
-            }
-        });
+        CompiledTransform transform = newCompiledTransform();
+        Mockito.when(engine.eval(Mockito.anyString(), Mockito.any(List.class))).thenReturn(transform);
         Mockito.when(engine.getSparkContext()).thenReturn(Mockito.mock(SparkContext.class));
         Mockito.when(engine.getSQLContext()).thenReturn(context);
 
@@ -74,20 +68,7 @@ public class TransformServiceTest {
         TransformRequest request = new TransformRequest();
         request.setScript("sqlContext.range(1,10)");
 
-        TransformJobTracker tracker = new TransformJobTracker() {
-
-            @Override
-            public void addSparkListener(@Nonnull SparkScriptEngine engine) {
-
-            }
-        };
-        TransformService service = new TransformService(engine, kerberosTicketConfiguration, tracker) {
-            @Override
-            void createDatabaseWithoutKerberos() {
-                //do nothing such that we don't need to mock out context.sql(...) methods
-                //which would require mocking either DataFrame or Dataset for different versions of Spark
-            }
-        };
+        TransformService service = newTransformService(engine);
         service.startAsync();
         service.awaitRunning();
 
@@ -109,17 +90,61 @@ public class TransformServiceTest {
         Assert.assertEquals(expectedScript, evalScript.getValue());
 
         List<NamedParam> bindings = evalBindings.getValue();
-        Assert.assertEquals(2, bindings.size());
+        Assert.assertEquals(1, bindings.size());
         Assert.assertEquals("database", bindings.get(0).name());
         Assert.assertEquals("String", bindings.get(0).tpe());
         Assert.assertEquals("spark_shell_temp", bindings.get(0).value());
-        Assert.assertEquals("tableName", bindings.get(1).name());
-        Assert.assertEquals("String", bindings.get(1).tpe());
-        Assert.assertTrue(((String) bindings.get(1).value()).matches("^[0-9a-f]{32}$"));
+
+        // Test run arguments
+        ArgumentCaptor<String> destination = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(transform).run(destination.capture(), (String) Mockito.isNull(), Mockito.any(Callable.class));
+        Assert.assertTrue(destination.getValue().matches("^[0-9a-f]{32}$"));
+    }
+
+    /**
+     * Verify executing requests with the same script reuses the compiled transform.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void executeCached() throws Exception {
+        SparkScriptEngine engine = Mockito.mock(SparkScriptEngine.class);
+        CompiledTransform transform = newCompiledTransform();
+        Mockito.when(engine.eval(Mockito.anyString(), Mockito.any(List.class))).thenReturn(transform);
+        Mockito.when(engine.getSparkContext()).thenReturn(Mockito.mock(SparkContext.class));
+        Mockito.when(engine.getSQLContext()).thenReturn(Mockito.mock(SQLContext.class));
+
+        TransformService service = newTransformService(engine);
+        service.startAsync();
+        service.awaitRunning();
+
+        // Execute the same script with different line endings and a parent
+        TransformRequest.Parent parent = new TransformRequest.Parent();
+        parent.setScript("sqlContext.range(1,10)");
+        parent.setTable("parent_table");
+
+        TransformRequest request1 = new TransformRequest();
+        request1.setScript("sqlContext.range(1,10)\n.toDF()");
+
+        TransformRequest request2 = new TransformRequest();
+        request2.setParent(parent);
+        request2.setScript("sqlContext.range(1,10)  \r\n.toDF()\n");
+
+        try {
+            service.execute(request1);
+            service.execute(request2);
+        } finally {
+            service.stopAsync();
+        }
+
+        // Test the script was compiled once and the parent script was not compiled
+        Mockito.verify(engine, Mockito.times(1)).eval(Mockito.anyString(), Mockito.any(List.class));
+        Mockito.verify(transform).run(Mockito.anyString(), Mockito.eq("parent_table"), Mockito.any(Callable.class));
+        Assert.assertEquals(1, service.getCompiledTransformStats().hitCount());
+        Assert.assertEquals(1, service.getCompiledTransformStats().missCount());
     }
 
     /**
-     * Verify converting a transformation request to a Scala script.
+     * Verify converting a transform script to a Scala script.
      */
     @Test
     public void toScript() throws Exception {
@@ -127,37 +152,71 @@ public class TransformServiceTest {
         SparkScriptEngine engine = Mockito.mock(SparkScriptEngine.class);
         Mockito.when(engine.getSparkContext()).thenReturn(Mockito.mock(SparkContext.class));
 
-        // Build the request
-        TransformRequest request = new TransformRequest();
-        request.setScript("sqlContext.range(1,10)");
-
         // Test converting request to script
         String expected = IOUtils.toString(getClass().getResourceAsStream("transform-service-script1.scala"), "UTF-8");
 
         TransformJobTracker tracker = Mockito.mock(TransformJobTracker.class);
         TransformService service = new TransformService(engine, kerberosTicketConfiguration, tracker);
-        Assert.assertEquals(expected, service.toScript(request));
+        Assert.assertEquals(expected, service.toScript("sqlContext.range(1,10)"));
     }
 
     /**
-     * Verify converting a transformation request with a parent to a Scala script.
+     * Verify converting a transform script that uses the parent results to a Scala script.
      */
     @Test
     public void toScriptWithParent() throws Exception {
-        // Build the request
-        TransformRequest.Parent parent = new TransformRequest.Parent();
-        parent.setScript("sqlContext.range(1,10)");
-        parent.setTable("parent_table");
-
-        TransformRequest request = new TransformRequest();
-        request.setParent(parent);
-        request.setScript("parent.withColumn(functions.expr(\"id+1\")");
-
         // Test converting request to script
         String expected = IOUtils.toString(getClass().getResourceAsStream("transform-service-script2.scala"), "UTF-8");
 
         TransformJobTracker tracker = Mockito.mock(TransformJobTracker.class);
         TransformService service = new TransformService(Mockito.mock(SparkScriptEngine.class), kerberosTicketConfiguration, tracker);
-        Assert.assertEquals(expected, service.toScript(request));
+        Assert.assertEquals(expected, service.toScript("parent.withColumn(functions.expr(\"id+1\")"));
+    }
+
+    /**
+     * Verify normalizing transform scripts.
+     */
+    @Test
+    public void normalizeScript() {
+        Assert.assertEquals("sqlContext.range(1,10)\n.toDF()", TransformService.normalizeScript(" sqlContext.range(1,10) \t\r\n.toDF()\n\n"));
+    }
+
+    /**
+     * Creates a compiled transform that returns a successful job.
+     */
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    private CompiledTransform newCompiledTransform() {
+        CompiledTransform transform = Mockito.mock(CompiledTransform.class);
+        Mockito.when(transform.run(Mockito.anyString(), Mockito.anyString(), Mockito.any(Callable.class))).thenReturn(new Callable<TransformResponse>() {
+            @Override
+            public TransformResponse call() throws Exception {
+                TransformResponse response = new TransformResponse();
+                response.setStatus(TransformResponse.Status.SUCCESS);
+                return response;
+            }
+        });
+        return transform;
+    }
+
+    /**
+     * Creates a transform service that does not require a database.
+     */
+    @Nonnull
+    private TransformService newTransformService(@Nonnull final SparkScriptEngine engine) {
+        TransformJobTracker tracker = new TransformJobTracker() {
+
+            @Override
+            public void addSparkListener(@Nonnull SparkScriptEngine engine) {
+
+            }
+        };
+        return new TransformService(engine, kerberosTicketConfiguration, tracker) {
+            @Override
+            void createDatabaseWithoutKerberos() {
+                //do nothing such that we don't need to mock out context.sql(...) methods
+                //which would require mocking either DataFrame or Dataset for different versions of Spark
+            }
+        };
     }
 }
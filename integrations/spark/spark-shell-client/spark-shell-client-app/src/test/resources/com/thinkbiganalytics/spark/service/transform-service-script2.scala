@@ -1,6 +1,9 @@
-class Transform (destination: String, sendResults: Boolean, sqlContext: org.apache.spark.sql.SQLContext) extends com.thinkbiganalytics.spark.metadata.TransformScript(destination, sendResults, sqlContext) {
+class Transform (destination: String, sendResults: Boolean, sqlContext: org.apache.spark.sql.SQLContext, parentTableName: String, parentResults: java.util.concurrent.Callable[_]) extends com.thinkbiganalytics.spark.metadata.TransformScript(destination, sendResults, sqlContext) {
 override def dataFrame: org.apache.spark.sql.DataFrame = {parent.withColumn(functions.expr("id+1")}
-override def parentDataFrame: org.apache.spark.sql.DataFrame = {sqlContext.range(1,10)}
-override def parentTable: String = {"parent_table"}
+override def parentDataFrame: org.apache.spark.sql.DataFrame = {parentResults.call().asInstanceOf[org.apache.spark.sql.DataFrame]}
+override def parentTable: String = {parentTableName}
+}
+new com.thinkbiganalytics.spark.service.CompiledTransform {
+override def run(destination: String, parentTable: String, parentResults: java.util.concurrent.Callable[_]): AnyRef = {new Transform(destination, true, sqlContext, parentTable, parentResults).run().asInstanceOf[AnyRef]}
+override def dataFrame(parentTable: String, parentResults: java.util.concurrent.Callable[_]): AnyRef = {new Transform(null, true, sqlContext, parentTable, parentResults).dataFrame}
 }
-new Transform(tableName, true, sqlContext).run()
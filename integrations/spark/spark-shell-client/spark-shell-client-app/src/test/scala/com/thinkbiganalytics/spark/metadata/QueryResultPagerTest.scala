@@ -0,0 +1,59 @@
+package com.thinkbiganalytics.spark.metadata
+
+import org.apache.spark.mllib.linalg.{VectorUDT, Vectors}
+import org.apache.spark.sql.Row
+import org.apache.spark.sql.types._
+import org.junit.{Assert, Test}
+
+class QueryResultPagerTest {
+
+    /** Verify generating the columns of the results. */
+    @Test
+    def columns(): Unit = {
+        val schema = StructType(StructField("id", LongType) :: StructField("SUM(amount)", DoubleType) :: StructField("LR(amount)", new VectorUDT) :: StructField("col2", StringType) :: Nil)
+        val columns = new QueryResultPager("target", schema).columns
+        Assert.assertEquals(4, columns.size())
+
+        Assert.assertEquals("bigint", columns.get(0).getDataType)
+        Assert.assertEquals("id", columns.get(0).getDisplayName)
+        Assert.assertEquals("id", columns.get(0).getHiveColumnLabel)
+        Assert.assertEquals(0, columns.get(0).getIndex)
+
+        Assert.assertEquals("col1", columns.get(1).getDisplayName)
+        Assert.assertEquals("SUM(amount)", columns.get(1).getHiveColumnLabel)
+
+        Assert.assertEquals("array<double>", columns.get(2).getDataType)
+        Assert.assertEquals("col3", columns.get(2).getDisplayName)
+        Assert.assertEquals(2, columns.get(2).getIndex)
+
+        Assert.assertEquals("col2", columns.get(3).getDisplayName)
+        Assert.assertEquals("target", columns.get(3).getTableName)
+    }
+
+    /** Verify finding the partitions containing a page of rows. */
+    @Test
+    def ranges(): Unit = {
+        val partitionSizes = Array(3L, 0L, 4L, 2L)
+        Assert.assertEquals(Seq((0, 0, 2)), QueryResultPager.ranges(partitionSizes, 0, 2))
+        Assert.assertEquals(Seq((0, 2, 1), (2, 0, 3)), QueryResultPager.ranges(partitionSizes, 2, 4))
+        Assert.assertEquals(Seq((2, 3, 1), (3, 0, 2)), QueryResultPager.ranges(partitionSizes, 6, 10))
+        Assert.assertEquals(Seq(), QueryResultPager.ranges(partitionSizes, 9, 10))
+    }
+
+    /** Verify converting rows to a column-oriented page. */
+    @Test
+    def toPage(): Unit = {
+        val schema = StructType(StructField("id", IntegerType) :: StructField("vector", new VectorUDT) :: Nil)
+        val page = new QueryResultPager("target", schema).toPage(Array(Row(1, Vectors.dense(1.0, 2.0)), Row(2, Vectors.dense(3.0))), 10, 12)
+
+        Assert.assertEquals(10, page.getOffset)
+        Assert.assertEquals(2, page.getRowCount)
+        Assert.assertEquals(12, page.getTotalRows)
+        Assert.assertEquals(2, page.getColumns.size())
+
+        Assert.assertEquals(1, page.getData.get(0).get(0))
+        Assert.assertEquals(2, page.getData.get(0).get(1))
+        Assert.assertArrayEquals(Array(1.0, 2.0), page.getData.get(1).get(0).asInstanceOf[Array[Double]], 0.1)
+        Assert.assertArrayEquals(Array(3.0), page.getData.get(1).get(1).asInstanceOf[Array[Double]], 0.1)
+    }
+}
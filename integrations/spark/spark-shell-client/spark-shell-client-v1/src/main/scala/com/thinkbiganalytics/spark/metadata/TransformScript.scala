@@ -1,20 +1,14 @@
 package com.thinkbiganalytics.spark.metadata
 
-import com.thinkbiganalytics.discovery.model.{DefaultQueryResult, DefaultQueryResultColumn}
-import com.thinkbiganalytics.discovery.schema.{QueryResult, QueryResultColumn}
 import com.thinkbiganalytics.hive.util.HiveUtils
 import com.thinkbiganalytics.spark.rest.model.TransformResponse
 import com.thinkbiganalytics.spark.util.DataTypeUtils
 
 import org.apache.spark.sql.types.StructType
-import org.apache.spark.sql.{DataFrame, Row, SQLContext, SaveMode}
+import org.apache.spark.sql.{DataFrame, SQLContext, SaveMode}
 import org.slf4j.LoggerFactory
 
-import java.util
 import java.util.concurrent.Callable
-import java.util.regex.Pattern
-
-import scala.collection.JavaConversions
 
 /** Wraps a transform script into a function that can be evaluated.
   *
@@ -106,83 +100,25 @@ abstract class TransformScript(destination: String, sendResults: Boolean, sqlCon
         }
     }
 
-    /** Stores the `DataFrame` results in a [[QueryResultColumn]] and returns the object. */
+    /** Caches the `DataFrame` results in a temporary table and returns the first page of the results. */
     private class QueryResultCallable extends Callable[TransformResponse] {
         override def call(): TransformResponse = {
             // Cache data frame
-            val cache = dataFrame.cache
-            cache.registerTempTable(destination)
+            dataFrame.registerTempTable(destination)
+            sqlContext.cacheTable(destination)
+            val cache = sqlContext.table(destination)
 
             // Build result object
-            val result = new DefaultQueryResult("SELECT * FROM " + destination)
-
-            val transform = new QueryResultRowTransform(cache.schema)
-            result.setColumns(JavaConversions.seqAsJavaList(transform.columns))
-            cache.collect().foreach(r => result.addRow(transform.apply(r)))
+            val pager = new QueryResultPager(destination, cache.schema)
+            val page = pager.firstPage(cache.rdd, QueryResultPager.DEFAULT_PAGE_SIZE, cache.count())
 
             // Build response object
             val response = new TransformResponse
-            response.setResults(result)
+            response.setPage(page)
             response.setStatus(TransformResponse.Status.SUCCESS)
             response.setTable(destination)
 
             response
         }
     }
-
-    /** Transforms a Spark SQL `Row` into a [[QueryResult]] row. */
-    private object QueryResultRowTransform {
-        /** Prefix for display names that are different from the field name */
-        val DISPLAY_NAME_PREFIX = "col"
-
-        /** Pattern for field names */
-        val FIELD_PATTERN = Pattern.compile("^[a-zA-Z_][a-zA-Z0-9_]*$")
-    }
-
-    private class QueryResultRowTransform(schema: StructType) extends (Row => util.HashMap[String, Object]) {
-        /** Array of columns for the [[com.thinkbiganalytics.discovery.schema.QueryResultColumn]] */
-        val columns = {
-            var index = 1
-            schema.fields.map(field => {
-                val column = new DefaultQueryResultColumn
-                column.setDataType(DataTypeUtils.getHiveObjectInspector(field.dataType).getTypeName)
-                column.setHiveColumnLabel(field.name)
-                column.setTableName(destination)
-
-                if (QueryResultRowTransform.FIELD_PATTERN.matcher(field.name).matches()) {
-                    // Use original name if alphanumeric
-                    column.setDisplayName(field.name)
-                    column.setField(field.name)
-                } else {
-                    // Generate name for non-alphanumeric fields
-                    var name: String = null
-                    do {
-                        name = QueryResultRowTransform.DISPLAY_NAME_PREFIX + index
-                        index += 1
-
-                        try {
-                            schema(name)
-                            name = null
-                        } catch {
-                            case e: IllegalArgumentException =>
-                        }
-                    } while (name == null)
-
-                    column.setDisplayName(name)
-                    column.setField(name)
-                }
-
-                column
-            })
-        }
-
-        /** Array of Spark SQL object to Hive object converters */
-        val converters = schema.fields.map(field => DataTypeUtils.getHiveObjectConverter(field.dataType))
-
-        override def apply(row: Row): util.HashMap[String, Object] = {
-            val map = new util.HashMap[String, Object]()
-            columns.indices.foreach(i => map.put(columns(i).getDisplayName, converters(i).convert(row.getAs(i))))
-            map
-        }
-    }
 }
@@ -1,8 +1,9 @@
 package com.thinkbiganalytics.spark.metadata
 
-import java.util
 import java.util.concurrent.Callable
 
+import org.apache.spark.rdd.RDD
+
 import org.apache.spark.sql.types._
 import org.apache.spark.sql.{DataFrame, _}
 
@@ -23,21 +24,27 @@ class TransformScriptTest {
     @Test
     def runWithQueryResult(): Unit = {
         // Mock DataFrame
+        val mockRdd = Mockito.mock(classOf[RDD[Row]])
+        Mockito.when(mockRdd.take(QueryResultPager.DEFAULT_PAGE_SIZE)).thenReturn(Array(Row(1, 42.0, Vectors.dense(Array(1.0, 2.0, 3.0)), "test1"), Row(2, 64.0, Vectors.dense(Array(2.0)), "test2")))
+
         val mockDataFrame = Mockito.mock(classOf[DataFrame])
-        Mockito.when(mockDataFrame.cache()).thenReturn(mockDataFrame)
-        Mockito.when(mockDataFrame.collect()).thenReturn(Array(Row(1, 42.0, Vectors.dense(Array(1.0, 2.0, 3.0)), "test1"), Row(2, 64.0, Vectors.dense(Array(2.0)), "test2")))
+        Mockito.when(mockDataFrame.count()).thenReturn(2L)
+        Mockito.when(mockDataFrame.rdd).thenReturn(mockRdd)
         Mockito.when(mockDataFrame.schema).thenReturn(StructType(StructField("id", LongType) :: StructField("SUM(amount)", DoubleType) :: StructField("LR(amount)", new VectorUDT)
                                                                  :: StructField("col2", StringType) :: Nil))
 
+        val sqlContext = Mockito.mock(classOf[SQLContext])
+        Mockito.when(sqlContext.table("target")).thenReturn(mockDataFrame)
+
         // Test script result
-        val script = new TransformScript("target", true, Mockito.mock(classOf[SQLContext])) {
+        val script = new TransformScript("target", true, sqlContext) {
             override def dataFrame: DataFrame = mockDataFrame
         }
         val transformResponse = script.run().asInstanceOf[Callable[TransformResponse]].call()
         Assert.assertEquals(TransformResponse.Status.SUCCESS, transformResponse.getStatus)
         Assert.assertEquals("target", transformResponse.getTable)
 
-        val columns = transformResponse.getResults.getColumns
+        val columns = transformResponse.getPage.getColumns
         Assert.assertEquals(4, columns.size())
 
         Assert.assertEquals("bigint", columns.get(0).getDataType)
@@ -60,18 +67,21 @@ class TransformScriptTest {
         Assert.assertEquals("col2", columns.get(3).getField)
         Assert.assertEquals("col2", columns.get(3).getHiveColumnLabel)
 
-        val rows = transformResponse.getResults.getRows.asInstanceOf[util.List[util.Map[String, Any]]]
-        Assert.assertEquals(2, rows.size())
-
-        Assert.assertEquals(1, rows.get(0).get("id"))
-        Assert.assertEquals(42.0, rows.get(0).get("col1"))
-        Assert.assertArrayEquals(Array(1.0, 2.0, 3.0), rows.get(0).get("col3").asInstanceOf[Array[Double]], 0.1)
-        Assert.assertEquals("test1", rows.get(0).get("col2"))
-
-        Assert.assertEquals(2, rows.get(1).get("id"))
-        Assert.assertEquals(64.0, rows.get(1).get("col1"))
-        Assert.assertArrayEquals(Array(2.0), rows.get(1).get("col3").asInstanceOf[Array[Double]], 0.1)
-        Assert.assertEquals("test2", rows.get(1).get("col2"))
+        val page = transformResponse.getPage
+        Assert.assertEquals(0, page.getOffset)
+        Assert.assertEquals(2, page.getRowCount)
+        Assert.assertEquals(2, page.getTotalRows)
+
+        val data = page.getData
+        Assert.assertEquals(1, data.get(0).get(0))
+        Assert.assertEquals(42.0, data.get(1).get(0))
+        Assert.assertArrayEquals(Array(1.0, 2.0, 3.0), data.get(2).get(0).asInstanceOf[Array[Double]], 0.1)
+        Assert.assertEquals("test1", data.get(3).get(0))
+
+        Assert.assertEquals(2, data.get(0).get(1))
+        Assert.assertEquals(64.0, data.get(1).get(1))
+        Assert.assertArrayEquals(Array(2.0), data.get(2).get(1).asInstanceOf[Array[Double]], 0.1)
+        Assert.assertEquals("test2", data.get(3).get(1))
     }
 
     /** Verify using parent DataFrame. */
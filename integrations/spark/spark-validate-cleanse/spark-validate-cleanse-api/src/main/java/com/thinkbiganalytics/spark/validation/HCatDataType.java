@@ -41,6 +41,7 @@ import java.util.Map;
 public class HCatDataType implements Cloneable, Serializable {
 
     private static HCatDataType UNCHECKED_TYPE = new HCatDataType();
+    private static final TimestampValidator TIMESTAMP_VALIDATOR = new TimestampValidator(true);
     private static Map<String, HCatDataType> dataTypes = new HashMap();
 
     // Build static rules around the various column types
@@ -279,7 +280,7 @@ public class HCatDataType implements Cloneable, Serializable {
         try {
             if (val != null && !isnumeric) {
                 if (convertibleType == Timestamp.class) {
-                    return new TimestampValidator(true).validate(val);
+                    return TIMESTAMP_VALIDATOR.validate(val);
                 } else if (convertibleType == Date.class) {
                     return DateValidator.instance().validate(val);
                 }
@@ -34,9 +34,12 @@ public class CommandLineParams implements Serializable {
     @Parameter(names = {"-h", "--hiveConf"}, description = "Hive configuration parameters", converter = ParameterConverter.class)
     private List<Param> hiveParams;
 
-    @Parameter(names = "--storageLevel", description = "Storage for RDD persistance")
+    @Parameter(names = "--storageLevel", description = "Storage for RDD persistance (NONE to validate the rows again instead of persisting them)")
     private String storageLevel = "MEMORY_AND_DISK";
 
+    @Parameter(names = "--compiledValidation", description = "Compile the field policies once for validating rows", arity = 1)
+    private boolean compiledValidation = true;
+
     public List<Param> getHiveParams() {
         return hiveParams == null ? new ArrayList<Param>(0) : hiveParams;
     }
@@ -44,4 +47,8 @@ public class CommandLineParams implements Serializable {
     public String getStorageLevel() {
         return storageLevel;
     }
+
+    public boolean isCompiledValidation() {
+        return compiledValidation;
+    }
 }
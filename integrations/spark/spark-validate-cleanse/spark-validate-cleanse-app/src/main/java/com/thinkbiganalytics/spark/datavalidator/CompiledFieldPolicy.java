@@ -0,0 +1,158 @@
+package com.thinkbiganalytics.spark.datavalidator;
+
+/*-
+ * #%L
+ * thinkbig-spark-validate-cleanse-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.policy.FieldPolicy;
+import com.thinkbiganalytics.policy.standardization.AcceptsEmptyValues;
+import com.thinkbiganalytics.policy.standardization.StandardizationPolicy;
+import com.thinkbiganalytics.policy.validation.ValidationPolicy;
+import com.thinkbiganalytics.policy.validation.ValidationResult;
+import com.thinkbiganalytics.spark.util.InvalidFormatException;
+import com.thinkbiganalytics.spark.validation.HCatDataType;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * The {@link FieldPolicy} of a column prepared for validating many values. The standardizers and validators are copied into arrays,
+ * the type of value expected by each validator is resolved up front and the JSON of every possible reject reason is built once.
+ * <p>
+ * Values are cleansed and validated exactly as {@link Validator#standardizeField} and {@link Validator#validateField} do.
+ */
+public class CompiledFieldPolicy implements Serializable {
+
+    private final HCatDataType dataType;
+    private final boolean unchecked;
+    private final boolean nullable;
+    private final boolean schemaValidation;
+
+    private final StandardizationPolicy[] standardizers;
+    /* Whether the standardizer at the same index is applied to empty values */
+    private final boolean[] standardizesEmptyValues;
+
+    private final ValidationPolicy[] validators;
+    /* Whether the validator at the same index expects the native value instead of the string */
+    private final boolean[] validatesNativeValue;
+
+    /* Reject reasons as JSON */
+    private final String nullRejectReason;
+    private final String incompatibleRejectReason;
+    private final String[] ruleRejectReasons;
+
+
+    public CompiledFieldPolicy(FieldPolicy fieldPolicy, HCatDataType dataType) {
+        this.dataType = dataType;
+        this.unchecked = dataType.isUnchecked();
+        this.nullable = fieldPolicy.isNullable();
+        this.schemaValidation = !fieldPolicy.shouldSkipSchemaValidation();
+
+        List<StandardizationPolicy> standardizationPolicies = fieldPolicy.getStandardizationPolicies();
+        int standardizerCount = (standardizationPolicies != null ? standardizationPolicies.size() : 0);
+        standardizers = new StandardizationPolicy[standardizerCount];
+        standardizesEmptyValues = new boolean[standardizerCount];
+        for (int i = 0; i < standardizerCount; i++) {
+            standardizers[i] = standardizationPolicies.get(i);
+            standardizesEmptyValues[i] = standardizers[i] instanceof AcceptsEmptyValues;
+        }
+
+        List<ValidationPolicy> validationPolicies = fieldPolicy.getValidators();
+        int validatorCount = (validationPolicies != null ? validationPolicies.size() : 0);
+        validators = new ValidationPolicy[validatorCount];
+        validatesNativeValue = new boolean[validatorCount];
+        ruleRejectReasons = new String[validatorCount];
+        for (int i = 0; i < validatorCount; i++) {
+            validators[i] = validationPolicies.get(i);
+            validatesNativeValue[i] = Validator.resolveParamType(validators[i]) != String.class;
+            ruleRejectReasons[i] = ValidationResult.failFieldRule("rule", dataType.getName(), validators[i].getClass().getSimpleName(), "Rule violation").toJSON();
+        }
+
+        nullRejectReason = ValidationResult.failField("null", dataType.getName(), "Cannot be null").toJSON();
+        incompatibleRejectReason = ValidationResult.failField("incompatible", dataType.getName(), "Not convertible to " + dataType.getNativeType()).toJSON();
+    }
+
+
+    /**
+     * Whether values of this column are passed through without cleansing or validation
+     */
+    public boolean isUnchecked() {
+        return unchecked;
+    }
+
+
+    /**
+     * Applies the standardization policies
+     */
+    public String standardize(String value) {
+        if (standardizers.length == 0) {
+            return value;
+        }
+        String newValue = value;
+        boolean isEmpty = StringUtils.isEmpty(value);
+        for (int i = 0; i < standardizers.length; i++) {
+            if (isEmpty && !standardizesEmptyValues[i]) {
+                continue;
+            }
+            newValue = standardizers[i].convertValue(newValue);
+        }
+        return newValue;
+    }
+
+
+    /**
+     * Validates the value against the schema and the validation policies
+     *
+     * @return the reject reason as JSON, or null if the value is valid
+     */
+    public String validate(String value) {
+        if (StringUtils.isEmpty(value)) {
+            return (nullable ? null : nullRejectReason);
+        }
+
+        // Verify new value is compatible with the target Hive schema e.g. integer, double (unless checking is disabled)
+        if (schemaValidation && !dataType.isValueConvertibleToType(value)) {
+            return incompatibleRejectReason;
+        }
+
+        // The native value is converted at most once and shared by the validators
+        Object nativeValue = null;
+        boolean converted = false;
+        for (int i = 0; i < validators.length; i++) {
+            try {
+                Object validatedValue = value;
+                if (validatesNativeValue[i]) {
+                    if (!converted) {
+                        nativeValue = dataType.toNativeValue(value);
+                        converted = true;
+                    }
+                    validatedValue = nativeValue;
+                }
+                if (!validators[i].validate(validatedValue)) {
+                    return ruleRejectReasons[i];
+                }
+            } catch (InvalidFormatException | ClassCastException e) {
+                return incompatibleRejectReason;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,123 @@
+package com.thinkbiganalytics.spark.datavalidator;
+
+/*-
+ * #%L
+ * thinkbig-spark-validate-cleanse-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.policy.FieldPolicy;
+import com.thinkbiganalytics.policy.validation.ValidationResult;
+import com.thinkbiganalytics.spark.validation.HCatDataType;
+
+import org.apache.spark.api.java.function.Function;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+
+import java.util.Arrays;
+
+/**
+ * Spark function performing both cleansing and validation of a data row with policies compiled once on the driver.
+ * <p>
+ * Produces the same results as {@link Validator#cleanseAndValidateRow(Row)}. Rows that pass share a single column validity array
+ * and do not allocate any reject reasons.
+ */
+public class CompiledRowValidator implements Function<Row, CleansedRowResult> {
+
+    private static final String EMPTY_ROW_REJECT_REASON = ValidationResult.failRow("empty", "Row is empty").toJSON();
+
+    private final CompiledFieldPolicy[] fieldPolicies;
+
+    /* Shared by every row whose columns are all valid. Must not be modified. */
+    private final boolean[] allColumnsValid;
+
+
+    public CompiledRowValidator(FieldPolicy[] policies, HCatDataType[] schema) {
+        fieldPolicies = new CompiledFieldPolicy[schema.length];
+        for (int idx = 0; idx < schema.length; idx++) {
+            fieldPolicies[idx] = new CompiledFieldPolicy(policies[idx], schema[idx]);
+        }
+        allColumnsValid = new boolean[schema.length];
+        Arrays.fill(allColumnsValid, true);
+    }
+
+
+    @Override
+    public CleansedRowResult call(Row row) throws Exception {
+        final int columns = fieldPolicies.length;
+        int nulls = 1;
+
+        // Create placeholder for the new values plus two columns for validation and reject_reason
+        Object[] newValues = new Object[columns + 2];
+        boolean[] columnsValid = allColumnsValid;
+        StringBuilder rejectReasons = null;
+
+        // Iterate through columns to cleanse and validate
+        for (int idx = 0; idx < columns; idx++) {
+            CompiledFieldPolicy fieldPolicy = fieldPolicies[idx];
+
+            // Extract the value (allowing for null or missing field for odd-ball data)
+            Object val = (idx == row.length() || row.isNullAt(idx) ? null : row.get(idx));
+
+            // Handle complex types by passing them through
+            if (fieldPolicy.isUnchecked() || (!(val instanceof String))) {
+                if (val == null) {
+                    nulls++;
+                }
+                newValues[idx] = val;
+            } else {
+                String fieldValue = fieldPolicy.standardize((String) val);
+                newValues[idx] = fieldValue;
+
+                String rejectReason = fieldPolicy.validate(fieldValue);
+                if (rejectReason != null) {
+                    rejectReasons = appendRejectReason(rejectReasons, rejectReason);
+                    if (columnsValid == allColumnsValid) {
+                        columnsValid = allColumnsValid.clone();
+                    }
+                    columnsValid[idx] = false;
+                }
+            }
+        }
+
+        // Return success unless all values were null.  That would indicate a blank line in the file.
+        if (nulls >= columns) {
+            rejectReasons = appendRejectReason(rejectReasons, EMPTY_ROW_REJECT_REASON);
+        }
+        boolean rowValid = (rejectReasons == null);
+
+        // Record the results in the appended columns, move processing partition value last
+        newValues[columns + 1] = newValues[columns - 1];
+        newValues[columns] = (rowValid ? "" : rejectReasons.append("]").toString());
+        newValues[columns - 1] = (rowValid ? "1" : "0");
+
+        CleansedRowResult cleansedRowResult = new CleansedRowResult();
+        cleansedRowResult.row = RowFactory.create(newValues);
+        cleansedRowResult.columnsValid = columnsValid;
+        cleansedRowResult.rowIsValid = rowValid;
+        return cleansedRowResult;
+    }
+
+
+    /* Builds the JSON array of reject reasons, leaving it open for more */
+    private static StringBuilder appendRejectReason(StringBuilder rejectReasons, String rejectReason) {
+        if (rejectReasons == null) {
+            return new StringBuilder(rejectReason.length() + 2).append('[').append(rejectReason);
+        }
+        return rejectReasons.append(',').append(rejectReason);
+    }
+}
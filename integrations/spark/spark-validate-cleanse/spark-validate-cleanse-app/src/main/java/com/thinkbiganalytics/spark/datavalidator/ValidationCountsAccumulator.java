@@ -0,0 +1,71 @@
+package com.thinkbiganalytics.spark.datavalidator;
+
+/*-
+ * #%L
+ * thinkbig-spark-validate-cleanse-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.apache.spark.AccumulableParam;
+
+/**
+ * Accumulates the validation counts of cleansed rows: the number of invalid values of each column followed by the number of valid rows and
+ * the number of invalid rows. Invalid values are only counted for invalid rows.
+ */
+@SuppressWarnings("serial")
+public class ValidationCountsAccumulator implements AccumulableParam<long[], CleansedRowResult> {
+
+    /**
+     * Count a cleansed row
+     */
+    @Override
+    public long[] addAccumulator(long[] counts, CleansedRowResult cleansedRowResult) {
+        int schemaLen = counts.length - 2;
+        if (cleansedRowResult.rowIsValid) {
+            counts[schemaLen] = counts[schemaLen] + 1L;
+        } else {
+            for (int idx = 0; idx < schemaLen; idx++) {
+                if (!cleansedRowResult.columnsValid[idx]) {
+                    counts[idx] = counts[idx] + 1L;
+                }
+            }
+            counts[schemaLen + 1] = counts[schemaLen + 1] + 1L;
+        }
+        return counts;
+    }
+
+
+    /**
+     * Add two accumulators
+     */
+    @Override
+    public long[] addInPlace(long[] countsA, long[] countsB) {
+        for (int idx = 0; idx < countsA.length; idx++) {
+            countsA[idx] = countsA[idx] + countsB[idx];
+        }
+        return countsA;
+    }
+
+
+    /**
+     * Return identity/zero value for accumulator (all counts are zero)
+     */
+    @Override
+    public long[] zero(long[] counts) {
+        return new long[counts.length];
+    }
+}
@@ -35,12 +35,11 @@ import com.thinkbiganalytics.spark.util.InvalidFormatException;
 import com.thinkbiganalytics.spark.validation.HCatDataType;
 
 import org.apache.commons.lang.StringUtils;
+import org.apache.spark.Accumulable;
 import org.apache.spark.SparkContext;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
-import org.apache.spark.api.java.function.FlatMapFunction;
 import org.apache.spark.api.java.function.Function;
-import org.apache.spark.api.java.function.Function2;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.RowFactory;
 import org.apache.spark.sql.hive.HiveContext;
@@ -61,8 +60,6 @@ import java.lang.reflect.ParameterizedType;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Vector;
@@ -189,48 +186,56 @@ public class Validator implements Serializable {
             log.info("sourceSchema {}", sourceSchema);
 
             // Validate and cleanse input rows
-            JavaRDD<CleansedRowResult> cleansedRowResultRDD = rddData.map(new Function<Row, CleansedRowResult>() {
-                @Override
-                public CleansedRowResult call(Row row) throws Exception {
-                    return cleanseAndValidateRow(row);
-                }
-            }).persist(StorageLevel.fromString(params.getStorageLevel()));
-
-            // Return a new rdd based on whether values are valid or invalid
-            JavaRDD<Row> newResultsRDD = cleansedRowResultRDD.map(new Function<CleansedRowResult, Row>() {
-                @Override
-                public Row call(CleansedRowResult cleansedRowResult) throws Exception {
-                    return cleansedRowResult.row;
-                }
-            });
+            Function<Row, CleansedRowResult> rowValidator;
+            if (params.isCompiledValidation()) {
+                rowValidator = new CompiledRowValidator(policies, schema);
+            } else {
+                rowValidator = new Function<Row, CleansedRowResult>() {
+                    @Override
+                    public CleansedRowResult call(Row row) throws Exception {
+                        return cleanseAndValidateRow(row);
+                    }
+                };
+            }
+            JavaRDD<CleansedRowResult> cleansedRowResultRDD = rddData.map(rowValidator);
 
-            // Counts of invalid columns, total valid rows and total invalid rows
-            long[] fieldInvalidCounts = cleansedRowResultsValidationCounts(cleansedRowResultRDD, schema.length);
+            // Persisting is optional. Without it the rows are validated again when writing the valid rows.
+            StorageLevel storageLevel = StorageLevel.fromString(params.getStorageLevel());
+            if (!StorageLevel.NONE().equals(storageLevel)) {
+                cleansedRowResultRDD.persist(storageLevel);
+            }
 
-            final DataSet validatedDF = scs.toDataSet(getHiveContext(), newResultsRDD, sourceSchema);
+            // Counts of invalid columns, total valid rows and total invalid rows are accumulated while the rows are written
+            JavaSparkContext jsc = new JavaSparkContext(sparkContext);
+            Accumulable<long[], CleansedRowResult> validationCounts = jsc.accumulable(new long[schema.length + 2], new ValidationCountsAccumulator());
 
             // Pull out just the valid or invalid records
             DataSet invalidDF = null;
+            DataSet invalidRowsDF = scs.toDataSet(getHiveContext(), filterAndCountRows(cleansedRowResultRDD, false, validationCounts), sourceSchema);
             if (useDirectInsert) {
-                invalidDF = validatedDF.filter(VALID_INVALID_COL + " = '0'").drop(VALID_INVALID_COL).toDF();
+                invalidDF = invalidRowsDF.drop(VALID_INVALID_COL).toDF();
             } else {
-                invalidDF = validatedDF.filter(VALID_INVALID_COL + " = '0'").drop(VALID_INVALID_COL).drop(PROCESSING_DTTM_COL).toDF();
+                invalidDF = invalidRowsDF.drop(VALID_INVALID_COL).drop(PROCESSING_DTTM_COL).toDF();
             }
             writeToTargetTable(invalidDF, invalidTableName);
 
             // Write out the valid records (dropping the two columns)
             DataSet validDF = null;
+            DataSet validRowsDF = scs.toDataSet(getHiveContext(), filterAndCountRows(cleansedRowResultRDD, true, validationCounts), sourceSchema);
             if (useDirectInsert) {
-                validDF = validatedDF.filter(VALID_INVALID_COL + " = '1'").drop(VALID_INVALID_COL).drop(REJECT_REASON_COL).toDF();
+                validDF = validRowsDF.drop(VALID_INVALID_COL).drop(REJECT_REASON_COL).toDF();
             } else {
-                validDF = validatedDF.filter(VALID_INVALID_COL + " = '1'").drop(VALID_INVALID_COL).drop(REJECT_REASON_COL).drop(PROCESSING_DTTM_COL).toDF();
+                validDF = validRowsDF.drop(VALID_INVALID_COL).drop(REJECT_REASON_COL).drop(PROCESSING_DTTM_COL).toDF();
             }
             writeToTargetTable(validDF, validTableName);
 
+            long[] fieldInvalidCounts = validationCounts.value();
             long validCount = fieldInvalidCounts[schema.length];
             long invalidCount = fieldInvalidCounts[schema.length + 1];
 
-            cleansedRowResultRDD.unpersist();
+            if (!StorageLevel.NONE().equals(storageLevel)) {
+                cleansedRowResultRDD.unpersist();
+            }
 
             log.info("Valid count {} invalid count {}", validCount, invalidCount);
 
@@ -436,57 +441,28 @@ public class Validator implements Serializable {
     }
 
     /**
-     * Performs counts of invalid columns, total valid and total invalid on a JavaRDD<CleansedRowResults>
+     * Returns the rows that are either valid or invalid, counting them as they are read.
+     * <p>
+     * The rows are counted in the tasks writing them, avoiding a separate job to count them. Spark only applies accumulator updates once for
+     * actions, so if a task is retried or a stage is recomputed its rows may be counted again. The counts are only used for the profile statistics.
      */
-    public long[] cleansedRowResultsValidationCounts(JavaRDD<CleansedRowResult> cleansedRowResultJavaRDD, int schemaLength) {
-
-        final int schemaLen = schemaLength;
-
-        // Maps each partition in the JavaRDD<CleansedRowResults> to a long[] of invalid column counts and total valid/invalid counts
-        JavaRDD<long[]> partitionCounts = cleansedRowResultJavaRDD.mapPartitions(new FlatMapFunction<Iterator<CleansedRowResult>, long[]>() {
-
+    protected JavaRDD<Row> filterAndCountRows(JavaRDD<CleansedRowResult> cleansedRowResultRDD, final boolean valid,
+                                              final Accumulable<long[], CleansedRowResult> validationCounts) {
+        return cleansedRowResultRDD.filter(new Function<CleansedRowResult, Boolean>() {
             @Override
-            public Iterable<long[]> call(Iterator<CleansedRowResult> cleansedRowResultIterator) {
-
-                long[] validationCounts = new long[schemaLen + 2];
-
-                while (cleansedRowResultIterator.hasNext()) {
-
-                    CleansedRowResult cleansedRowResult = cleansedRowResultIterator.next();
-
-                    for (int idx = 0; idx < schemaLen; idx++) {
-                        if (!cleansedRowResult.columnsValid[idx]) {
-                            validationCounts[idx] = validationCounts[idx] + 1l;
-                        }
-                    }
-                    if (cleansedRowResult.rowIsValid) {
-                        validationCounts[schemaLen] = validationCounts[schemaLen] + 1l;
-                    } else {
-                        validationCounts[schemaLen + 1] = validationCounts[schemaLen + 1] + 1l;
-                    }
+            public Boolean call(CleansedRowResult cleansedRowResult) throws Exception {
+                if (cleansedRowResult.rowIsValid != valid) {
+                    return false;
                 }
-
-                List<long[]> results = new LinkedList<long[]>();
-                results.add(validationCounts);
-                return results;
+                validationCounts.add(cleansedRowResult);
+                return true;
             }
-        });
-
-        // Sums up all partitions validation counts into one long[]
-        long[] finalCounts = partitionCounts.reduce(new Function2<long[], long[], long[]>() {
+        }).map(new Function<CleansedRowResult, Row>() {
             @Override
-            public long[] call(long[] countsA, long[] countsB) throws Exception {
-
-                long[] countsResult = new long[countsA.length];
-
-                for (int idx = 0; idx < countsA.length; idx++) {
-                    countsResult[idx] = countsA[idx] + countsB[idx];
-                }
-                return countsResult;
+            public Row call(CleansedRowResult cleansedRowResult) throws Exception {
+                return cleansedRowResult.row;
             }
         });
-
-        return finalCounts;
     }
 
     private String toJSONArray(List<ValidationResult> results) {
@@ -569,19 +545,23 @@ public class Validator implements Serializable {
         Class expectedParamClazz = validatorParamType.get(validator.getClass());
         if (expectedParamClazz == null) {
             // Cache for future references
-
-            Object t = validator.getClass().getGenericInterfaces()[0];
-            if (t instanceof ParameterizedType) {
-                ParameterizedType type = (ParameterizedType) t;
-                expectedParamClazz = (Class) type.getActualTypeArguments()[0];
-            } else {
-                expectedParamClazz = String.class;
-            }
+            expectedParamClazz = resolveParamType(validator);
             validatorParamType.put(validator.getClass(), expectedParamClazz);
         }
         return expectedParamClazz;
     }
 
+    /* Resolve the type of param required by the validator using reflection */
+    static Class resolveParamType(ValidationPolicy validator) {
+        Object t = validator.getClass().getGenericInterfaces()[0];
+        if (t instanceof ParameterizedType) {
+            ParameterizedType type = (ParameterizedType) t;
+            return (Class) type.getActualTypeArguments()[0];
+        } else {
+            return String.class;
+        }
+    }
+
     /**
      * Applies the standardization policies
      */
@@ -636,6 +616,12 @@ public class Validator implements Serializable {
         return pols.toArray(new FieldPolicy[0]);
     }
 
+    /* Set the target schema and field policies without reading them from Hive */
+    void setSchemaAndPolicies(HCatDataType[] schema, FieldPolicy[] policies) {
+        this.schema = schema;
+        this.policies = policies;
+    }
+
     private void addParameters(CommandLineParams params) {
         this.params = params;
     }
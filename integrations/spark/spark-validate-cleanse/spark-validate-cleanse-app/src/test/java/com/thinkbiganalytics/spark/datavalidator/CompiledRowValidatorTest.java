@@ -0,0 +1,175 @@
+package com.thinkbiganalytics.spark.datavalidator;
+
+/*-
+ * #%L
+ * thinkbig-spark-validate-cleanse-app
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.policy.FieldPolicy;
+import com.thinkbiganalytics.policy.FieldPolicyBuilder;
+import com.thinkbiganalytics.policy.standardization.DefaultValueStandardizer;
+import com.thinkbiganalytics.policy.standardization.SimpleRegexReplacer;
+import com.thinkbiganalytics.policy.standardization.StandardizationPolicy;
+import com.thinkbiganalytics.policy.standardization.UppercaseStandardizer;
+import com.thinkbiganalytics.policy.validation.EmailValidator;
+import com.thinkbiganalytics.policy.validation.LengthValidator;
+import com.thinkbiganalytics.policy.validation.NotNullValidator;
+import com.thinkbiganalytics.policy.validation.RangeValidator;
+import com.thinkbiganalytics.policy.validation.ValidationPolicy;
+import com.thinkbiganalytics.spark.validation.HCatDataType;
+
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CompiledRowValidatorTest {
+
+    private Validator validator;
+    private CompiledRowValidator compiledValidator;
+    private List<Row> rows;
+
+    @Before
+    public void setUp() {
+        HCatDataType[] schema = new HCatDataType[]{
+            HCatDataType.createFromDataType("id", "int"),
+            HCatDataType.createFromDataType("email", "string"),
+            HCatDataType.createFromDataType("amount", "decimal(10,2)"),
+            HCatDataType.createFromDataType("name", "varchar(20)"),
+            HCatDataType.createFromDataType("country", "string"),
+            HCatDataType.createFromDataType("processing_dttm", "string")
+        };
+        FieldPolicy[] policies = new FieldPolicy[]{
+            fieldPolicy("id", false, Arrays.<ValidationPolicy>asList(new RangeValidator(1, 100000)), Collections.<StandardizationPolicy>emptyList()),
+            fieldPolicy("email", true, Arrays.<ValidationPolicy>asList(EmailValidator.instance()), Collections.<StandardizationPolicy>emptyList()),
+            fieldPolicy("amount", true, Arrays.<ValidationPolicy>asList(new NotNullValidator(false, true), new RangeValidator(0, 5000)),
+                        Arrays.<StandardizationPolicy>asList(new SimpleRegexReplacer("\\$", ""))),
+            fieldPolicy("name", false, Arrays.<ValidationPolicy>asList(new LengthValidator(2, 20)), Arrays.<StandardizationPolicy>asList(UppercaseStandardizer.instance())),
+            fieldPolicy("country", true, null, Arrays.<StandardizationPolicy>asList(new DefaultValueStandardizer("US"))),
+            FieldPolicyBuilder.SKIP_VALIDATION
+        };
+
+        validator = new Validator();
+        validator.setSchemaAndPolicies(schema, policies);
+        compiledValidator = new CompiledRowValidator(policies, schema);
+
+        rows = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            rows.add(RowFactory.create(String.valueOf(i + 1), "user" + i + "@example.com", "$" + (i * 3) + ".25", "name" + i, (i % 3 == 0 ? "" : "CA"), "20001"));
+        }
+        rows.add(RowFactory.create("0", "bad email", "12.5", "x", null, "20001"));
+        rows.add(RowFactory.create("abc", "user@example.com", "-1", "", "MX", "20001"));
+        rows.add(RowFactory.create("", null, "1.234", "a name that is far too long", "US", "20001"));
+        rows.add(RowFactory.create(null, null, null, null, null, "20001"));
+        rows.add(RowFactory.create(5, "user@example.com", "1", "ok", "CA"));
+    }
+
+    private FieldPolicy fieldPolicy(String field, boolean nullable, List<ValidationPolicy> validators, List<StandardizationPolicy> standardizers) {
+        return new FieldPolicy("emp", field, field, false, nullable, validators, standardizers, false, 0);
+    }
+
+    @Test
+    public void testSameResultsAsValidator() throws Exception {
+        int invalid = 0;
+        for (Row row : rows) {
+            CleansedRowResult expected = validator.cleanseAndValidateRow(row);
+            CleansedRowResult actual = compiledValidator.call(row);
+
+            assertEquals(expected.row, actual.row);
+            assertArrayEquals(expected.columnsValid, actual.columnsValid);
+            assertEquals(expected.rowIsValid, actual.rowIsValid);
+            if (!actual.rowIsValid) {
+                invalid++;
+            }
+        }
+        assertEquals(4, invalid);
+    }
+
+    @Test
+    public void testValidRowsShareColumnValidity() throws Exception {
+        CleansedRowResult first = compiledValidator.call(rows.get(1));
+        CleansedRowResult second = compiledValidator.call(rows.get(2));
+        assertEquals("1", first.row.get(5));
+        assertEquals("", first.row.get(6));
+        assertSame(first.columnsValid, second.columnsValid);
+    }
+
+    /**
+     * Verifies the compiled validation of the same rows is faster than the interpreted validation.
+     * The timing only runs when the {@code kylo.benchmark} system property is {@code true}.
+     */
+    @Test
+    public void testCompiledValidationPerformance() throws Exception {
+        List<CleansedRowResult> expected = interpret();
+        List<CleansedRowResult> actual = compiled();
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).row, actual.get(i).row);
+            assertArrayEquals(expected.get(i).columnsValid, actual.get(i).columnsValid);
+            assertEquals(expected.get(i).rowIsValid, actual.get(i).rowIsValid);
+        }
+
+        Assume.assumeTrue("Set -Dkylo.benchmark=true to run the benchmark", Boolean.getBoolean("kylo.benchmark"));
+        for (int i = 0; i < 20; i++) {
+            interpret();
+            compiled();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 50; i++) {
+            interpret();
+        }
+        long interpretedTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < 50; i++) {
+            compiled();
+        }
+        long compiledTime = System.nanoTime() - start;
+
+        assertTrue("Compiled validation took " + (compiledTime / 1000000) + " ms but interpreted validation took " + (interpretedTime / 1000000) + " ms",
+                   compiledTime < interpretedTime);
+    }
+
+    private List<CleansedRowResult> interpret() {
+        List<CleansedRowResult> results = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            results.add(validator.cleanseAndValidateRow(row));
+        }
+        return results;
+    }
+
+    private List<CleansedRowResult> compiled() throws Exception {
+        List<CleansedRowResult> results = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            results.add(compiledValidator.call(row));
+        }
+        return results;
+    }
+}
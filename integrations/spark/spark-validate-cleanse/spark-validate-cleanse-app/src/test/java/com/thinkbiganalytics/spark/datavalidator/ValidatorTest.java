@@ -31,6 +31,7 @@ import com.thinkbiganalytics.policy.validation.ValidationPolicy;
 import com.thinkbiganalytics.policy.validation.ValidationResult;
 import com.thinkbiganalytics.spark.validation.HCatDataType;
 
+import org.apache.spark.Accumulable;
 import org.apache.spark.api.java.JavaRDD;
 import org.junit.Before;
 import org.junit.Test;
@@ -169,7 +170,9 @@ public class ValidatorTest extends SharedJavaSparkContext implements Serializabl
                                                                        cleansedRowResult1, cleansedRowResult1, cleansedRowResult1,
                                                                        cleansedRowResult1, cleansedRowResult2, cleansedRowResult3);
         JavaRDD<CleansedRowResult> inputRDD = jsc().parallelize(cleansedRowResultsList, 4);
-        long[] output = validator.cleansedRowResultsValidationCounts(inputRDD, 5);
+        Accumulable<long[], CleansedRowResult> accumulator = jsc().accumulable(new long[7], new ValidationCountsAccumulator());
+        inputRDD.foreach(accumulator::add);
+        long[] output = accumulator.value();
 
         // Create the expected output
         long[] expectedOutput = {1l, 2l, 0l, 0l, 2l, 7l, 2l};
@@ -177,4 +180,38 @@ public class ValidatorTest extends SharedJavaSparkContext implements Serializabl
         // Run assertions on output and expected output
         assertArrayEquals(expectedOutput, output);
     }
+
+    @Test
+    public void testFilterAndCountRows() {
+
+        // Create and run the test
+        CleansedRowResult cleansedRowResult1 = new CleansedRowResult();
+        cleansedRowResult1.rowIsValid = true;
+        boolean[] columnsValid1 = {true, true, true, true, true};
+        cleansedRowResult1.columnsValid = columnsValid1;
+
+        CleansedRowResult cleansedRowResult2 = new CleansedRowResult();
+        cleansedRowResult2.rowIsValid = false;
+        boolean[] columnsValid2 = {true, false, true, true, false};
+        cleansedRowResult2.columnsValid = columnsValid2;
+
+        CleansedRowResult cleansedRowResult3 = new CleansedRowResult();
+        cleansedRowResult3.rowIsValid = false;
+        boolean[] columnsValid3 = {false, false, true, true, false};
+        cleansedRowResult3.columnsValid = columnsValid3;
+
+        List<CleansedRowResult> cleansedRowResultsList = Arrays.asList(cleansedRowResult1, cleansedRowResult1, cleansedRowResult1,
+                                                                       cleansedRowResult1, cleansedRowResult1, cleansedRowResult1,
+                                                                       cleansedRowResult1, cleansedRowResult2, cleansedRowResult3);
+        JavaRDD<CleansedRowResult> inputRDD = jsc().parallelize(cleansedRowResultsList, 4);
+        Accumulable<long[], CleansedRowResult> validationCounts = jsc().accumulable(new long[7], new ValidationCountsAccumulator());
+
+        // Each row is counted by the pass that keeps it
+        assertEquals(2, validator.filterAndCountRows(inputRDD, false, validationCounts).count());
+        assertEquals(7, validator.filterAndCountRows(inputRDD, true, validationCounts).count());
+
+        // Run assertions on the same output as the validation counts
+        long[] expectedOutput = {1l, 2l, 0l, 0l, 2l, 7l, 2l};
+        assertArrayEquals(expectedOutput, validationCounts.value());
+    }
 }
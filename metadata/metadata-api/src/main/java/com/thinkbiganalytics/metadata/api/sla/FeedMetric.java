@@ -0,0 +1,51 @@
+package com.thinkbiganalytics.metadata.api.sla;
+
+/*-
+ * #%L
+ * thinkbig-metadata-api
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.thinkbiganalytics.metadata.sla.api.Metric;
+
+import java.util.Set;
+
+/**
+ * A metric that is assessed against the jobs of one or more feeds.
+ */
+public interface FeedMetric extends Metric {
+
+    /**
+     * Gets the qualified names, {@code category.feed}, of the feeds this metric is assessed against.
+     *
+     * @return the feed names
+     */
+    @JsonIgnore
+    Set<String> getFeedNames();
+
+    /**
+     * Indicates that the result of assessing this metric can only change after one of its feeds has been executed. Metrics that depend on the current time,
+     * such as deadlines, are not event-driven.
+     *
+     * @return {@code true} if the metric only needs to be re-assessed after a feed event
+     */
+    @JsonIgnore
+    default boolean isEventDriven() {
+        return false;
+    }
+}
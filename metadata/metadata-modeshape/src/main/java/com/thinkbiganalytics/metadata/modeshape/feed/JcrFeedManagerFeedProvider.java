@@ -115,7 +115,7 @@ public class JcrFeedManagerFeedProvider extends BaseJcrProvider<FeedManagerFeed,
         String query = "SELECT * from " + EntityUtil.asQueryProperty(JcrFeed.NODE_TYPE) + " as e WHERE e." + EntityUtil.asQueryProperty(JcrFeedManagerFeed.TEMPLATE) + " = $id";
         Map<String, String> bindParams = new HashMap<>();
         bindParams.put("id", templateId.toString());
-        return JcrQueryUtil.find(getSession(), query, JcrFeedManagerFeed.class);
+        return JcrQueryUtil.find(getSession(), query, bindParams, JcrFeedManagerFeed.class);
     }
 
     @Override
@@ -58,6 +58,7 @@ import com.thinkbiganalytics.metadata.modeshape.extension.ExtensionsConstants;
 import com.thinkbiganalytics.metadata.modeshape.sla.JcrServiceLevelAgreement;
 import com.thinkbiganalytics.metadata.modeshape.sla.JcrServiceLevelAgreementProvider;
 import com.thinkbiganalytics.metadata.modeshape.support.JcrPropertyUtil;
+import com.thinkbiganalytics.metadata.modeshape.support.JcrQueryUtil;
 import com.thinkbiganalytics.metadata.modeshape.support.JcrUtil;
 import com.thinkbiganalytics.metadata.modeshape.support.JcrVersionUtil;
 import com.thinkbiganalytics.metadata.sla.api.Metric;
@@ -78,6 +79,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import java.io.Serializable;
 import java.security.Principal;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -91,6 +93,7 @@ import javax.jcr.Node;
 import javax.jcr.NodeIterator;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
+import javax.jcr.query.QueryResult;
 
 /**
  * A JCR provider for {@link Feed} objects.
@@ -663,43 +666,39 @@ public class JcrFeedProvider extends BaseJcrProvider<Feed, Feed.ID> implements F
         private String category;
 
         /**
-         * Selects by navigation rather than SQL
+         * Selects using the indexes on the feed system name and category rather than navigating every category and feed node
          */
         @Override
+        @SuppressWarnings("unchecked")
         public <E, J extends JcrObject> List<E> select(Session session, String typeName, Class<E> type, Class<J> jcrClass) {
-            try {
-                // Datasources are not currently used so only name comparison is necessary
-                Node feedsNode = session.getRootNode().getNode("metadata/feeds");
-                NodeIterator catItr = null;
+            // Datasources are not currently used so only name and category comparison is necessary
+            StringBuilder queryStr = new StringBuilder("SELECT e.* FROM [" + JcrFeed.NODE_TYPE + "] AS e");
+            Map<String, String> bindParams = new HashMap<>();
+            List<String> conditions = new ArrayList<>();
 
+            try {
                 if (this.category != null) {
-                    catItr = feedsNode.getNodes(this.category);
-                } else {
-                    catItr = feedsNode.getNodes();
-                }
-
-                List<Feed<?>> list = new ArrayList<Feed<?>>();
-
-                while (catItr.hasNext()) {
-                    Node catNode = (Node) catItr.next();
-                    NodeIterator feedItr = null;
-
-                    if (this.name != null) {
-                        feedItr = catNode.getNodes(this.name);
-                    } else {
-                        feedItr = catNode.getNodes();
-                    }
-
-                    while (feedItr.hasNext()) {
-                        Node feedNode = (Node) feedItr.next();
-
-                        if (feedNode.getPrimaryNodeType().getName().equals("tba:feed")) {
-                            list.add(JcrUtil.createJcrObject(feedNode, JcrFeed.class));
-                        }
+                    String categoryQuery = "SELECT c.* FROM [" + JcrCategory.NODE_TYPE + "] AS c WHERE c.[" + JcrCategory.SYSTEM_NAME + "] = $category";
+                    NodeIterator catItr = JcrQueryUtil.query(session, categoryQuery, Collections.singletonMap("category", this.category)).getNodes();
+                    if (!catItr.hasNext()) {
+                        return new ArrayList<>();
                     }
+                    conditions.add("e.[" + JcrFeed.CATEGORY + "] = $categoryId");
+                    bindParams.put("categoryId", catItr.nextNode().getIdentifier());
+                }
+                if (this.name != null) {
+                    conditions.add("e.[" + JcrFeed.SYSTEM_NAME + "] = $name");
+                    bindParams.put("name", this.name);
+                }
+                if (!conditions.isEmpty()) {
+                    queryStr.append(" WHERE ").append(String.join(" AND ", conditions));
+                }
+                if (getLimit() >= 0) {
+                    queryStr.append(" LIMIT ").append(getLimit());
                 }
 
-                return (List<E>) list;
+                QueryResult result = JcrQueryUtil.query(session, queryStr.toString(), bindParams);
+                return (List<E>) JcrQueryUtil.queryResultToList(result, JcrFeed.class);
             } catch (RepositoryException e) {
                 throw new MetadataRepositoryException("Failed to select feeds", e);
             }
@@ -0,0 +1,155 @@
+package com.thinkbiganalytics.metadata.modeshape.feed;
+
+/*-
+ * #%L
+ * thinkbig-metadata-modeshape
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.feed.Feed;
+import com.thinkbiganalytics.metadata.api.feed.FeedProvider;
+import com.thinkbiganalytics.metadata.modeshape.JcrMetadataAccess;
+import com.thinkbiganalytics.metadata.modeshape.JcrTestConfig;
+import com.thinkbiganalytics.metadata.modeshape.ModeShapeEngineConfig;
+import com.thinkbiganalytics.metadata.modeshape.security.AdminCredentials;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.testng.Assert;
+
+import java.util.Random;
+
+import javax.inject.Inject;
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.RepositoryException;
+
+/**
+ * Measures the latency of feed lookups by navigating the category and feed nodes compared to the indexed queries used by {@link JcrFeedProvider}.
+ *
+ * <p>The benchmark only runs when the {@code kylo.benchmark} system property is {@code true}. The number of feeds may be changed with the
+ * {@code kylo.benchmark.feeds} system property.</p>
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {ModeShapeEngineConfig.class, JcrTestConfig.class, FeedTestConfig.class})
+@ComponentScan(basePackages = {"com.thinkbiganalytics.metadata.modeshape"})
+public class JcrFeedProviderBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(JcrFeedProviderBenchmarkTest.class);
+
+    private static final int FEEDS = Integer.getInteger("kylo.benchmark.feeds", 10_000);
+    private static final int CATEGORIES = 10;
+    private static final int FEEDS_PER_COMMIT = 500;
+    private static final int LOOKUPS = 200;
+
+    @Inject
+    FeedProvider feedProvider;
+
+    @Inject
+    private JcrMetadataAccess metadata;
+
+    @Inject
+    private FeedTestUtil feedTestUtil;
+
+    @Test
+    public void testFeedLookupLatency() {
+        Assume.assumeTrue("Set -Dkylo.benchmark=true to run the benchmark", Boolean.getBoolean("kylo.benchmark"));
+        final int feedsPerCategory = Math.max(1, FEEDS / CATEGORIES);
+
+        // Load feeds
+        long start = System.nanoTime();
+        for (int c = 0; c < CATEGORIES; c++) {
+            final String category = categoryName(c);
+            metadata.commit(new AdminCredentials(), () -> {
+                feedTestUtil.findOrCreateCategory(category);
+            });
+
+            for (int first = 0; first < feedsPerCategory; first += FEEDS_PER_COMMIT) {
+                final int from = first;
+                final int to = Math.min(feedsPerCategory, first + FEEDS_PER_COMMIT);
+                metadata.commit(new AdminCredentials(), () -> {
+                    for (int f = from; f < to; f++) {
+                        feedProvider.ensureFeed(category, feedName(f));
+                    }
+                });
+            }
+        }
+        log.info("Loaded {} feeds in {} ms", feedsPerCategory * CATEGORIES, (System.nanoTime() - start) / 1_000_000);
+
+        // Look up the same random feeds by both methods
+        final long[] navigationNanos = new long[1];
+        final long[] indexedNanos = new long[1];
+        final Random random = new Random(0);
+
+        metadata.read(new AdminCredentials(), () -> {
+            for (int i = 0; i < LOOKUPS; i++) {
+                final String category = categoryName(random.nextInt(CATEGORIES));
+                final String name = feedName(random.nextInt(feedsPerCategory));
+
+                long lookupStart = System.nanoTime();
+                final Node expected = navigate(category, name);
+                navigationNanos[0] += System.nanoTime() - lookupStart;
+
+                lookupStart = System.nanoTime();
+                final Feed<?> feed = feedProvider.findBySystemName(category, name);
+                indexedNanos[0] += System.nanoTime() - lookupStart;
+
+                Assert.assertNotNull(expected);
+                Assert.assertNotNull(feed);
+                Assert.assertEquals(feed.getId(), new JcrFeed(expected).getId());
+            }
+        });
+
+        log.info("Average feed lookup latency over {} feeds: navigation {} us, indexed {} us", feedsPerCategory * CATEGORIES, navigationNanos[0] / LOOKUPS / 1000,
+                 indexedNanos[0] / LOOKUPS / 1000);
+    }
+
+    /**
+     * Finds a feed by navigating the category and feed nodes, as feed lookups were done before the feed indexes were defined.
+     */
+    private Node navigate(String category, String name) {
+        try {
+            NodeIterator catItr = JcrMetadataAccess.getActiveSession().getRootNode().getNode("metadata/feeds").getNodes(category);
+            while (catItr.hasNext()) {
+                NodeIterator feedItr = catItr.nextNode().getNodes(name);
+                while (feedItr.hasNext()) {
+                    Node feedNode = feedItr.nextNode();
+                    if (feedNode.getPrimaryNodeType().getName().equals(JcrFeed.NODE_TYPE)) {
+                        return feedNode;
+                    }
+                }
+            }
+            return null;
+        } catch (RepositoryException e) {
+            throw new IllegalStateException("Failed to navigate feeds", e);
+        }
+    }
+
+    private String categoryName(int index) {
+        return "bench_category_" + index;
+    }
+
+    private String feedName(int index) {
+        return "bench_feed_" + index;
+    }
+}
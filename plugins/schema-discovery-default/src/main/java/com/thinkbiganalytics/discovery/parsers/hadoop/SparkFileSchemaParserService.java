@@ -25,13 +25,13 @@ import com.google.common.util.concurrent.Uninterruptibles;
 import com.thinkbiganalytics.discovery.model.DefaultField;
 import com.thinkbiganalytics.discovery.model.DefaultHiveSchema;
 import com.thinkbiganalytics.discovery.schema.Field;
-import com.thinkbiganalytics.discovery.schema.QueryResult;
 import com.thinkbiganalytics.discovery.schema.QueryResultColumn;
 import com.thinkbiganalytics.discovery.schema.Schema;
 import com.thinkbiganalytics.discovery.util.ParserHelper;
 import com.thinkbiganalytics.discovery.util.TableSchemaType;
 import com.thinkbiganalytics.spark.rest.model.TransformRequest;
 import com.thinkbiganalytics.spark.rest.model.TransformResponse;
+import com.thinkbiganalytics.spark.rest.model.TransformResultPage;
 import com.thinkbiganalytics.spark.shell.SparkShellProcess;
 import com.thinkbiganalytics.spark.shell.SparkShellProcessManager;
 import com.thinkbiganalytics.spark.shell.SparkShellRestClient;
@@ -47,7 +47,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
@@ -89,7 +88,7 @@ public class SparkFileSchemaParserService {
                     response = optionalResponse.get();
                 }
             }
-            return toSchema(response.getResults(), fileType, tableSchemaType);
+            return toSchema(response.getPage(), fileType, tableSchemaType);
 
         } catch (Exception e) {
             log.warn("Error parsing file {}", fileType);
@@ -137,7 +136,7 @@ public class SparkFileSchemaParserService {
         return sb.toString();
     }
 
-    private Schema toSchema(QueryResult results, SparkFileType fileType, TableSchemaType tableSchemaType) throws IOException {
+    private Schema toSchema(TransformResultPage results, SparkFileType fileType, TableSchemaType tableSchemaType) throws IOException {
 
         switch (tableSchemaType) {
             case HIVE:
@@ -147,22 +146,22 @@ public class SparkFileSchemaParserService {
         }
     }
 
-    private DefaultHiveSchema toHiveSchema(QueryResult result, SparkFileType fileType) {
+    private DefaultHiveSchema toHiveSchema(TransformResultPage result, SparkFileType fileType) {
         DefaultHiveSchema schema = new DefaultHiveSchema();
         schema.setHiveFormat("STORED AS " + fileType);
         schema.setStructured(true);
         ArrayList<Field> fields = new ArrayList<>();
         List<? extends QueryResultColumn> columns = result.getColumns();
-        for (QueryResultColumn column : columns) {
+        for (int i = 0; i < columns.size(); ++i) {
+            QueryResultColumn column = columns.get(i);
             DefaultField field = new DefaultField();
             field.setName(column.getDisplayName());
             field.setNativeDataType(column.getDataType());
             field.setDerivedDataType(column.getDataType());
             field.setDataTypeDescriptor(ParserHelper.hiveTypeToDescriptor(column.getDataType()));
             // Add sample values
-            List<Map<String, Object>> values = result.getRows();
-            for (Map<String, Object> colMap : values) {
-                Object oVal = colMap.get(column.getDisplayName());
+            List<Object> values = result.getData().get(i);
+            for (Object oVal : values) {
                 if (oVal != null) {
                     field.getSampleValues().add(oVal.toString());
                 }
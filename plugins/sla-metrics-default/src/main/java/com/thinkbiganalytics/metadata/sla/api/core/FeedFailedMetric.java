@@ -20,18 +20,21 @@ package com.thinkbiganalytics.metadata.sla.api.core;
  * #L%
  */
 
-import com.thinkbiganalytics.metadata.sla.api.Metric;
+import com.thinkbiganalytics.metadata.api.sla.FeedMetric;
 import com.thinkbiganalytics.metadata.sla.api.ServiceLevelAgreementMetric;
 import com.thinkbiganalytics.policy.PolicyProperty;
 import com.thinkbiganalytics.policy.PolicyPropertyTypes;
 
+import java.util.Collections;
+import java.util.Set;
+
 /**
  * SLA metric used to notify if a feed fails
  * This will be exposed to the User Interface since it is annotated with {@link ServiceLevelAgreementMetric}
  */
 @ServiceLevelAgreementMetric(name = "Feed Failure Notification",
                              description = "Act upon a Feed Failure")
-public class FeedFailedMetric implements Metric {
+public class FeedFailedMetric implements FeedMetric {
 
     @PolicyProperty(name = "FeedName",
                     type = PolicyPropertyTypes.PROPERTY_TYPE.feedSelect,
@@ -54,4 +57,17 @@ public class FeedFailedMetric implements Metric {
     public void setFeedName(String feedName) {
         this.feedName = feedName;
     }
+
+    @Override
+    public Set<String> getFeedNames() {
+        return (feedName != null) ? Collections.singleton(feedName) : Collections.emptySet();
+    }
+
+    /**
+     * A feed can only fail when it runs, so this metric is only re-assessed after a feed event.
+     */
+    @Override
+    public boolean isEventDriven() {
+        return true;
+    }
 }
@@ -31,7 +31,7 @@ import com.cronutils.model.definition.CronDefinitionBuilder;
 import com.cronutils.parser.CronParser;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.google.common.base.MoreObjects;
-import com.thinkbiganalytics.metadata.sla.api.Metric;
+import com.thinkbiganalytics.metadata.api.sla.FeedMetric;
 import com.thinkbiganalytics.metadata.sla.api.ServiceLevelAgreementMetric;
 import com.thinkbiganalytics.policy.PolicyProperty;
 import com.thinkbiganalytics.policy.PolicyPropertyRef;
@@ -43,7 +43,9 @@ import org.joda.time.Period;
 import org.quartz.CronExpression;
 
 import java.text.ParseException;
+import java.util.Collections;
 import java.util.Locale;
+import java.util.Set;
 
 /**
  * SLA metric to ensure a feed gets executed by a specified time
@@ -51,7 +53,7 @@ import java.util.Locale;
  */
 @ServiceLevelAgreementMetric(name = "Feed Processing deadline",
                              description = "Ensure a Feed processes data by a specified time")
-public class FeedOnTimeArrivalMetric implements Metric {
+public class FeedOnTimeArrivalMetric implements FeedMetric {
 
     @PolicyProperty(name = "FeedName",
                     type = PolicyPropertyTypes.PROPERTY_TYPE.feedSelect,
@@ -155,6 +157,11 @@ public class FeedOnTimeArrivalMetric implements Metric {
         this.feedName = feedName;
     }
 
+    @Override
+    public Set<String> getFeedNames() {
+        return (feedName != null) ? Collections.singleton(feedName) : Collections.emptySet();
+    }
+
     public CronExpression getExpectedExpression() {
         if (this.expectedExpression == null && this.cronString != null) {
             try {
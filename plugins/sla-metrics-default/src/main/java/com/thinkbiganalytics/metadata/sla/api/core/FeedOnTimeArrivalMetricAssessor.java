@@ -27,6 +27,7 @@ import com.thinkbiganalytics.metadata.api.MetadataAccess;
 import com.thinkbiganalytics.metadata.api.feed.OpsManagerFeedProvider;
 import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecution;
 import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecutionProvider;
+import com.thinkbiganalytics.metadata.api.jobrepo.job.PrefetchedJobExecutions;
 import com.thinkbiganalytics.metadata.sla.api.AssessmentResult;
 import com.thinkbiganalytics.metadata.sla.api.Metric;
 import com.thinkbiganalytics.metadata.sla.spi.MetricAssessmentBuilder;
@@ -78,9 +79,14 @@ public class FeedOnTimeArrivalMetricAssessor implements MetricAssessor<FeedOnTim
         builder.metric(metric);
 
         String feedName = metric.getFeedName();
-        BatchJobExecution jobExecution = metadataAccess.read(() -> {
-            return batchJobExecutionProvider.findLatestCompletedJobForFeed(feedName);
-        });
+        BatchJobExecution jobExecution;
+        if (PrefetchedJobExecutions.isPrefetched(feedName)) {
+            jobExecution = PrefetchedJobExecutions.getLatestCompleted(feedName);
+        } else {
+            jobExecution = metadataAccess.read(() -> {
+                return batchJobExecutionProvider.findLatestCompletedJobForFeed(feedName);
+            });
+        }
 
         DateTime lastFeedTime = null;
         if (jobExecution != null) {
@@ -27,6 +27,7 @@ import com.thinkbiganalytics.metadata.api.MetadataRollbackAction;
 import com.thinkbiganalytics.metadata.api.MetadataRollbackCommand;
 import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecution;
 import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecutionProvider;
+import com.thinkbiganalytics.metadata.api.jobrepo.job.PrefetchedJobExecutions;
 import com.thinkbiganalytics.metadata.sla.api.AssessmentResult;
 import com.thinkbiganalytics.metadata.sla.api.Metric;
 import com.thinkbiganalytics.metadata.sla.api.core.FeedOnTimeArrivalMetric;
@@ -50,9 +51,11 @@ import org.testng.Assert;
 
 import java.security.Principal;
 import java.text.ParseException;
+import java.util.Collections;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -107,6 +110,20 @@ public class FeedOnTimeArrivalMetricAssessorTest {
         verify(this.builder).result(AssessmentResult.SUCCESS);
     }
 
+    @Test
+    public void testPrefetchedJobExecution() throws ParseException {
+        DateTime feedEnd = this.lateTime.minusMinutes(1);
+        BatchJobExecution feed = createFeedJobExecution(feedEnd);
+
+        PrefetchedJobExecutions.withLatestCompleted(Collections.singletonMap("feed", feed), () -> {
+            this.assessor.assess(metric, this.builder);
+            return null;
+        });
+
+        verify(this.builder).result(AssessmentResult.SUCCESS);
+        verify(this.jobExecutionProvider, never()).findLatestCompletedJobForFeed(any(String.class));
+    }
+
     @Test
     /**
      * test use case where the date window is still valid, but still no data has been found for the Feed.
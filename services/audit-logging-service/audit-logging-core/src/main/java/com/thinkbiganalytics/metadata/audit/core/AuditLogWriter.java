@@ -0,0 +1,272 @@
+package com.thinkbiganalytics.metadata.audit.core;
+
+/*-
+ * #%L
+ * thinkbig-audit-logging-core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.audit.AuditLogProvider;
+
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes audit log entries in batches from a background thread.
+ *
+ * <p>Entries are placed on a bounded queue and the writer thread inserts them using one transaction per batch. A batch is written
+ * once it is full or once the flush interval has passed since its first entry was queued. If the queue is full then the caller
+ * waits up to the enqueue timeout for space before writing the entry itself. Queued entries are always written before
+ * {@link #shutdown()} returns, and entries received after shutdown are written immediately.</p>
+ */
+public class AuditLogWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLogWriter.class);
+
+    /**
+     * Queued to wake the writer thread on shutdown
+     */
+    private static final PendingEntry SHUTDOWN = new PendingEntry(null, null, null, null, null);
+
+    /**
+     * Maximum number of entries written in one transaction
+     */
+    private final int batchSize;
+
+    /**
+     * Maximum time in milliseconds to wait for a batch to fill
+     */
+    private final long flushInterval;
+
+    /**
+     * Maximum time in milliseconds to wait for space in a full queue
+     */
+    private final long enqueueTimeout;
+
+    private final MetadataAccess metadataAccess;
+
+    private final AuditLogProvider provider;
+
+    /**
+     * Entries waiting to be written
+     */
+    private final BlockingQueue<PendingEntry> queue;
+
+    /**
+     * Indicates that the writer thread should continue to wait for new entries
+     */
+    private volatile boolean running = true;
+
+    private final Thread writerThread;
+
+    /**
+     * Constructs an {@code AuditLogWriter} and starts the writer thread.
+     *
+     * @param provider       the audit log provider
+     * @param metadataAccess the metadata access for write transactions
+     * @param queueCapacity  the maximum number of entries waiting to be written
+     * @param batchSize      the maximum number of entries written in one transaction
+     * @param flushInterval  the maximum time in milliseconds to wait for a batch to fill
+     * @param enqueueTimeout the maximum time in milliseconds to wait for space in a full queue
+     */
+    public AuditLogWriter(AuditLogProvider provider, MetadataAccess metadataAccess, int queueCapacity, int batchSize, long flushInterval, long enqueueTimeout) {
+        this.provider = provider;
+        this.metadataAccess = metadataAccess;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.enqueueTimeout = enqueueTimeout;
+
+        this.writerThread = new Thread(this::run, "audit-log-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Queues a new audit log entry to be written.
+     *
+     * @param user        a user attached to this audit entry
+     * @param type        the type of entry
+     * @param description a description about what happened
+     * @param entityId    an entity id associated with this audit entry
+     */
+    public void write(Principal user, String type, String description, String entityId) {
+        PendingEntry entry = new PendingEntry(user, type, description, entityId, DateTime.now());
+
+        if (!this.running) {
+            writeBatch(entry);
+            return;
+        }
+
+        boolean queued;
+        try {
+            queued = this.queue.offer(entry, this.enqueueTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+
+        if (!queued) {
+            log.warn("Audit log queue is full; writing entry from the calling thread");
+            writeBatch(entry);
+        } else if (!this.running) {
+            // The writer may have stopped before the entry was queued
+            flush();
+        }
+    }
+
+    /**
+     * Stops the writer thread after it writes every queued entry.
+     */
+    public void shutdown() {
+        this.running = false;
+        this.queue.offer(SHUTDOWN);
+
+        try {
+            this.writerThread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        flush();
+    }
+
+    /**
+     * Gets the number of entries waiting to be written.
+     *
+     * @return the number of queued entries
+     */
+    public int getQueueSize() {
+        return this.queue.size();
+    }
+
+    /**
+     * Writes every queued entry from the calling thread.
+     */
+    private void flush() {
+        List<PendingEntry> batch = new ArrayList<>(this.batchSize);
+        while (this.queue.drainTo(batch, this.batchSize) > 0) {
+            batch.removeIf(entry -> entry == SHUTDOWN);
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Collects batches of entries from the queue and writes them until shutdown.
+     */
+    private void run() {
+        List<PendingEntry> batch = new ArrayList<>(this.batchSize);
+
+        while (this.running || !this.queue.isEmpty()) {
+            try {
+                // Poll rather than block so that the loop condition is checked again if a flush drains the queue after shutdown
+                PendingEntry first = this.queue.poll(this.flushInterval, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.flushInterval);
+                while (batch.size() < this.batchSize && this.running) {
+                    this.queue.drainTo(batch, this.batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= this.batchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingEntry next = this.queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+                this.queue.drainTo(batch, this.batchSize - batch.size());
+            } catch (InterruptedException e) {
+                log.debug("Audit log writer interrupted");
+            }
+
+            batch.removeIf(entry -> entry == SHUTDOWN);
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Writes a single entry in its own transaction.
+     */
+    private void writeBatch(PendingEntry entry) {
+        List<PendingEntry> batch = new ArrayList<>(1);
+        batch.add(entry);
+        writeBatch(batch);
+    }
+
+    /**
+     * Writes the specified entries in one transaction. If the transaction fails then each entry is written again in its own
+     * transaction, and an entry that still cannot be written is logged so that it is not silently lost.
+     */
+    private void writeBatch(List<PendingEntry> batch) {
+        try {
+            this.metadataAccess.commit(() -> {
+                for (PendingEntry entry : batch) {
+                    log.debug("Audit: {} - {}", entry.type, entry.description);
+                    this.provider.createEntry(entry.user, entry.type, entry.description, entry.entityId, entry.createdTime);
+                }
+            }, MetadataAccess.SERVICE);
+        } catch (RuntimeException e) {
+            if (batch.size() > 1) {
+                log.warn("Failed to write {} audit log entries; retrying each entry separately", batch.size(), e);
+                batch.forEach(this::writeBatch);
+            } else {
+                PendingEntry entry = batch.get(0);
+                log.error("Failed to write audit log entry", e);
+                log.error("Unwritten audit log entry: {} {} {} - {} {}", entry.createdTime, entry.user, entry.type, entry.entityId, entry.description);
+            }
+        }
+    }
+
+    /**
+     * An audit log entry waiting to be written.
+     */
+    private static class PendingEntry {
+
+        private final Principal user;
+        private final String type;
+        private final String description;
+        private final String entityId;
+        private final DateTime createdTime;
+
+        PendingEntry(Principal user, String type, String description, String entityId, DateTime createdTime) {
+            this.user = user;
+            this.type = type;
+            this.description = description;
+            this.entityId = entityId;
+            this.createdTime = createdTime;
+        }
+    }
+}
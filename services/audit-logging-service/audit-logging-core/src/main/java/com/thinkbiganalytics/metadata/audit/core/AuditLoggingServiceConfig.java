@@ -23,8 +23,11 @@ package com.thinkbiganalytics.metadata.audit.core;
  * #L%
  */
 
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.audit.AuditLogProvider;
 import com.thinkbiganalytics.metadata.api.event.MetadataEventService;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -34,6 +37,35 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class AuditLoggingServiceConfig {
 
+    /**
+     * The maximum number of audit log entries waiting to be written
+     */
+    @Value("${kylo.audit.writer.queue.capacity:10000}")
+    private int queueCapacity;
+
+    /**
+     * The maximum number of audit log entries written in one transaction
+     */
+    @Value("${kylo.audit.writer.batch.size:100}")
+    private int batchSize;
+
+    /**
+     * The maximum time in milliseconds to wait for a batch of audit log entries to fill
+     */
+    @Value("${kylo.audit.writer.flush.interval:1000}")
+    private long flushInterval;
+
+    /**
+     * The maximum time in milliseconds to wait for space in a full queue before writing from the calling thread
+     */
+    @Value("${kylo.audit.writer.enqueue.timeout:5000}")
+    private long enqueueTimeout;
+
+    @Bean(destroyMethod = "shutdown")
+    public AuditLogWriter auditLogWriter(AuditLogProvider provider, MetadataAccess metadataAccess) {
+        return new AuditLogWriter(provider, metadataAccess, queueCapacity, batchSize, flushInterval, enqueueTimeout);
+    }
+
     @Bean
     public AuditLoggingService auditLoggingService(MetadataEventService eventService) {
         AuditLoggingService auditService = new AuditLoggingService();
@@ -0,0 +1,88 @@
+package com.thinkbiganalytics.metadata.audit.core;
+
+/*-
+ * #%L
+ * thinkbig-audit-logging-core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.security.UsernamePrincipal;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.Principal;
+
+/**
+ * Compares the throughput of writing 2,000 audit log entries in their own transactions against the batched writer, with each
+ * commit costing 1 ms.
+ *
+ * <p>The benchmark only runs when the {@code kylo.benchmark} system property is {@code true}.</p>
+ */
+public class AuditLogWriterBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLogWriterBenchmarkTest.class);
+
+    private static final int ENTRIES = 2_000;
+    private static final long COMMIT_COST = 1;
+    private static final Principal USER = new UsernamePrincipal("user");
+
+    @Test
+    public void testPerEventVsBatched() {
+        Assume.assumeTrue("Set -Dkylo.benchmark=true to run the benchmark", Boolean.getBoolean("kylo.benchmark"));
+
+        // Previous behavior: one transaction per event on the calling thread
+        StubAuditLogStore perEvent = new StubAuditLogStore(COMMIT_COST);
+        long start = System.nanoTime();
+        for (int i = 0; i < ENTRIES; i++) {
+            String description = "entry" + i;
+            perEvent.commit(() -> {
+                perEvent.createEntry(USER, "test", description, null);
+            }, MetadataAccess.SERVICE);
+        }
+        long perEventElapsed = System.nanoTime() - start;
+
+        // Batched writer, including the time to flush on shutdown
+        StubAuditLogStore batched = new StubAuditLogStore(COMMIT_COST);
+        AuditLogWriter writer = new AuditLogWriter(batched, batched, 10_000, 100, 1000, 5000);
+        start = System.nanoTime();
+        for (int i = 0; i < ENTRIES; i++) {
+            writer.write(USER, "test", "entry" + i, null);
+        }
+        long enqueueElapsed = System.nanoTime() - start;
+        writer.shutdown();
+        long batchedElapsed = System.nanoTime() - start;
+
+        log.info("Per-event: {} entries in {} ms using {} commits ({} entries/s)", ENTRIES, perEventElapsed / 1_000_000, perEvent.commits.get(), throughput(perEventElapsed));
+        log.info("Batched: {} entries queued in {} ms and written in {} ms using {} commits ({} entries/s)", ENTRIES, enqueueElapsed / 1_000_000, batchedElapsed / 1_000_000,
+                 batched.commits.get(), throughput(batchedElapsed));
+
+        Assert.assertEquals(ENTRIES, perEvent.descriptions.size());
+        Assert.assertEquals(ENTRIES, batched.descriptions.size());
+        Assert.assertEquals(ENTRIES, perEvent.commits.get());
+        Assert.assertTrue(batched.commits.get() < ENTRIES / 10);
+        Assert.assertTrue(batchedElapsed < perEventElapsed);
+    }
+
+    private long throughput(long elapsedNanos) {
+        return ENTRIES * 1_000_000_000L / Math.max(elapsedNanos, 1);
+    }
+}
@@ -0,0 +1,158 @@
+package com.thinkbiganalytics.metadata.audit.core;
+
+/*-
+ * #%L
+ * thinkbig-audit-logging-core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.security.UsernamePrincipal;
+
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.security.Principal;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class AuditLogWriterTest {
+
+    private static final Principal USER = new UsernamePrincipal("user");
+
+    /**
+     * Verify entries are grouped into batches and every entry is written on shutdown.
+     */
+    @Test
+    public void testBatchesAndFlushOnShutdown() {
+        StubAuditLogStore store = new StubAuditLogStore(0);
+        AuditLogWriter writer = new AuditLogWriter(store, store, 1000, 10, 60_000, 1000);
+
+        for (int i = 0; i < 25; i++) {
+            writer.write(USER, "test", "entry" + i, null);
+        }
+        writer.shutdown();
+
+        Assert.assertEquals(25, store.descriptions.size());
+        Assert.assertEquals("entry0", store.descriptions.get(0));
+        Assert.assertEquals("entry24", store.descriptions.get(24));
+        Assert.assertTrue("Expected at most 3 batches but was " + store.commits.get(), store.commits.get() <= 3);
+        Assert.assertEquals(0, writer.getQueueSize());
+    }
+
+    /**
+     * Verify a partial batch is written after the flush interval.
+     */
+    @Test
+    public void testFlushInterval() throws Exception {
+        StubAuditLogStore store = new StubAuditLogStore(0);
+        AuditLogWriter writer = new AuditLogWriter(store, store, 1000, 100, 50, 1000);
+
+        try {
+            writer.write(USER, "test", "entry", null);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (store.descriptions.isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(Arrays.asList("entry"), store.descriptions);
+        } finally {
+            writer.shutdown();
+        }
+    }
+
+    /**
+     * Verify the caller writes the entry itself when the queue stays full.
+     */
+    @Test
+    public void testBackpressure() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        StubAuditLogStore store = new StubAuditLogStore(0) {
+            @Override
+            public com.thinkbiganalytics.metadata.api.audit.AuditLogEntry createEntry(Principal user, String type, String description, String entityId, DateTime createdTime) {
+                if (Thread.currentThread().getName().equals("audit-log-writer")) {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.createEntry(user, type, description, entityId, createdTime);
+            }
+        };
+        AuditLogWriter writer = new AuditLogWriter(store, store, 2, 1, 0, 50);
+
+        // Writer thread is stuck on the first entry and the queue fills up
+        writer.write(USER, "test", "entry0", null);
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        writer.write(USER, "test", "entry1", null);
+        writer.write(USER, "test", "entry2", null);
+        Assert.assertEquals(2, writer.getQueueSize());
+
+        writer.write(USER, "test", "entry3", null);
+        Assert.assertEquals(Arrays.asList("entry3"), store.descriptions);
+
+        release.countDown();
+        writer.shutdown();
+        Assert.assertEquals(4, store.descriptions.size());
+        Assert.assertTrue(store.descriptions.containsAll(Arrays.asList("entry0", "entry1", "entry2", "entry3")));
+    }
+
+    /**
+     * Verify entries received after shutdown are written immediately.
+     */
+    @Test
+    public void testWriteAfterShutdown() {
+        StubAuditLogStore store = new StubAuditLogStore(0);
+        AuditLogWriter writer = new AuditLogWriter(store, store, 10, 10, 60_000, 1000);
+        writer.shutdown();
+
+        writer.write(USER, "test", "late", null);
+        Assert.assertEquals(Arrays.asList("late"), store.descriptions);
+        Assert.assertEquals(1, store.commits.get());
+    }
+
+    /**
+     * Verify the good entries of a failed batch are written in their own transactions and a failed transaction does not stop the writer.
+     */
+    @Test
+    public void testFailedBatch() {
+        StubAuditLogStore store = new StubAuditLogStore(0) {
+            @Override
+            public com.thinkbiganalytics.metadata.api.audit.AuditLogEntry createEntry(Principal user, String type, String description, String entityId, DateTime createdTime) {
+                if (description.equals("bad")) {
+                    throw new IllegalStateException("Simulated failure");
+                }
+                return super.createEntry(user, type, description, entityId, createdTime);
+            }
+        };
+        AuditLogWriter writer = new AuditLogWriter(store, store, 10, 10, 60_000, 1000);
+
+        writer.write(USER, "test", "good0", null);
+        writer.write(USER, "test", "bad", null);
+        writer.write(USER, "test", "good1", null);
+        writer.shutdown();
+
+        Assert.assertEquals(Arrays.asList("good0", "good1"), store.descriptions);
+        Assert.assertEquals(2, store.commits.get());
+
+        writer.write(USER, "test", "good2", null);
+        Assert.assertEquals(Arrays.asList("good0", "good1", "good2"), store.descriptions);
+    }
+}
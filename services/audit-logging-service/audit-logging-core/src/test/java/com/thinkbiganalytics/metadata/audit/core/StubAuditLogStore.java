@@ -0,0 +1,169 @@
+package com.thinkbiganalytics.metadata.audit.core;
+
+/*-
+ * #%L
+ * thinkbig-audit-logging-core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.MetadataAction;
+import com.thinkbiganalytics.metadata.api.MetadataCommand;
+import com.thinkbiganalytics.metadata.api.MetadataRollbackAction;
+import com.thinkbiganalytics.metadata.api.MetadataRollbackCommand;
+import com.thinkbiganalytics.metadata.api.audit.AuditLogEntry;
+import com.thinkbiganalytics.metadata.api.audit.AuditLogProvider;
+
+import org.joda.time.DateTime;
+
+import java.io.Serializable;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An in-memory audit log that counts transactions and simulates the fixed cost of each commit. Entries are only kept if their
+ * transaction commits.
+ */
+class StubAuditLogStore implements AuditLogProvider, MetadataAccess {
+
+    /**
+     * Descriptions of the entries written, in the order they were written
+     */
+    final List<String> descriptions = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * Number of transactions committed
+     */
+    final AtomicInteger commits = new AtomicInteger();
+
+    /**
+     * Descriptions of the entries written in the current transaction
+     */
+    private final ThreadLocal<List<String>> transaction = new ThreadLocal<>();
+
+    /**
+     * Time in milliseconds that each commit takes
+     */
+    private final long commitCost;
+
+    StubAuditLogStore(long commitCost) {
+        this.commitCost = commitCost;
+    }
+
+    @Override
+    public <R> R commit(MetadataCommand<R> cmd, Principal... principals) {
+        List<String> pending = new ArrayList<>();
+        this.transaction.set(pending);
+        try {
+            R result = cmd.execute();
+            this.descriptions.addAll(pending);
+            commit();
+            return result;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        } finally {
+            this.transaction.remove();
+        }
+    }
+
+    @Override
+    public <R> R commit(MetadataCommand<R> cmd, MetadataRollbackCommand rollbackCmd, Principal... principals) {
+        return commit(cmd, principals);
+    }
+
+    @Override
+    public void commit(MetadataAction action, Principal... principals) {
+        commit(() -> {
+            action.execute();
+            return null;
+        }, principals);
+    }
+
+    @Override
+    public void commit(MetadataAction action, MetadataRollbackAction rollbackAction, Principal... principals) {
+        commit(action, principals);
+    }
+
+    @Override
+    public <R> R read(MetadataCommand<R> cmd, Principal... principals) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void read(MetadataAction cmd, Principal... principals) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public AuditLogEntry.ID resolveId(Serializable id) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<AuditLogEntry> list() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public List<AuditLogEntry> list(int limit) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public Optional<AuditLogEntry> findById(AuditLogEntry.ID id) {
+        return Optional.empty();
+    }
+
+    @Override
+    public List<AuditLogEntry> findByUser(Principal user) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public AuditLogEntry createEntry(Principal user, String type, String description) {
+        return createEntry(user, type, description, null);
+    }
+
+    @Override
+    public AuditLogEntry createEntry(Principal user, String type, String description, String entityId) {
+        return createEntry(user, type, description, entityId, DateTime.now());
+    }
+
+    @Override
+    public AuditLogEntry createEntry(Principal user, String type, String description, String entityId, DateTime createdTime) {
+        List<String> pending = this.transaction.get();
+        (pending != null ? pending : this.descriptions).add(description);
+        return null;
+    }
+
+    private void commit() {
+        this.commits.incrementAndGet();
+        if (this.commitCost > 0) {
+            try {
+                Thread.sleep(this.commitCost);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -40,6 +40,7 @@ import com.thinkbiganalytics.feedmgr.service.feed.ExportImportFeedService;
 import com.thinkbiganalytics.feedmgr.service.feed.FeedManagerFeedService;
 import com.thinkbiganalytics.feedmgr.service.feed.FeedManagerPreconditionService;
 import com.thinkbiganalytics.feedmgr.service.feed.FeedModelTransform;
+import com.thinkbiganalytics.feedmgr.service.feed.FeedSummaryIndex;
 import com.thinkbiganalytics.feedmgr.service.feed.datasource.DerivedDatasourceFactory;
 import com.thinkbiganalytics.feedmgr.service.template.DefaultFeedManagerTemplateService;
 import com.thinkbiganalytics.feedmgr.service.template.FeedManagerTemplateService;
@@ -92,6 +93,11 @@ public class FeedManagerConfiguration {
         return new FeedModelTransform();
     }
 
+    @Bean
+    public FeedSummaryIndex feedSummaryIndex() {
+        return new FeedSummaryIndex();
+    }
+
 
     @Bean
     public TemplateModelTransform templateModelTransform() {
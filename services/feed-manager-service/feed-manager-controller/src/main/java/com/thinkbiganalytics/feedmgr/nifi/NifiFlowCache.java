@@ -141,10 +141,15 @@ public class NifiFlowCache implements NifiConnectionListener, ModeShapeAvailabil
     private Map<String, Long> feedLastUpated = new ConcurrentHashMap<>();
 
     /**
-     * Map of the sync id to cache
-     * This is the cache of the items out there that others have built and will check/update themseleves based upon the base maps in the object
+     * Map of the sync id to the last version of the change log sent to that sync
+     * Others will check/update themselves based upon the changes made since that version
      */
-    private Map<String, NiFiFlowCacheSync> syncMap = new ConcurrentHashMap<>();
+    private Map<String, Long> syncVersionMap = new ConcurrentHashMap<>();
+
+    /**
+     * Log of the changes to the base maps in this object
+     */
+    private final NifiFlowCacheChangeLog changeLog = new NifiFlowCacheChangeLog();
 
 
     /**
@@ -207,7 +212,7 @@ public class NifiFlowCache implements NifiConnectionListener, ModeShapeAvailabil
     public NiFiFlowCacheSync refreshAll(String syncId) {
         NiFiFlowCacheSync sync = getSync(syncId);
         if (!sync.isUnavailable()) {
-            sync.reset();
+            syncVersionMap.remove(sync.getSyncId());
             return syncAndReturnUpdates(sync, false);
         } else {
             return NiFiFlowCacheSync.UNAVAILABLE;
@@ -245,6 +250,11 @@ public class NifiFlowCache implements NifiConnectionListener, ModeShapeAvailabil
      */
     public NiFiFlowCacheSync getCache(String syncId) {
         NiFiFlowCacheSync sync = getSync(syncId);
+        if (!sync.isUnavailable()) {
+            NiFiFlowCacheSync cache = new NiFiFlowCacheSync(sync.getSyncId(), snapshot());
+            cache.setLastSync(lastUpdated);
+            return cache;
+        }
         return sync;
     }
 
@@ -255,7 +265,7 @@ public class NifiFlowCache implements NifiConnectionListener, ModeShapeAvailabil
      * @return any new updates that will be applied to a given cache
      */
     public NiFiFlowCacheSync previewUpdates(String syncId) {
-        NiFiFlowCacheSync sync = getSync(syncId, true);
+        NiFiFlowCacheSync sync = getSync(syncId);
         if (!sync.isUnavailable()) {
             return previewUpdates(sync);
         }
@@ -274,7 +284,8 @@ public class NifiFlowCache implements NifiConnectionListener, ModeShapeAvailabil
         } catch (Exception e) {
             log.error("Exception while trying to ensure KyloReportingTask {}", e.getMessage(), e);
         }
-        List<NifiFlowProcessGroup> allFlows = nifiRestClient.getFeedFlows();
+        //only walk the feed process groups that changed since the last rebuild
+        List<NifiFlowProcessGroup> allFlows = nifiRestClient.getFeedFlows(null, true);
 
         List<RegisteredTemplate> templates = null;
         clearAll();
@@ -293,9 +304,11 @@ public class NifiFlowCache implements NifiConnectionListener, ModeShapeAvailabil
                 //this is possibly a reusable template.
                 //update the processorid and connection name maps
                 updateProcessorIdMaps(nifiFlowProcessGroup.getFeedName(), nifiFlowProcessGroup.getProcessorMap().values());
-                this.connectionIdToConnectionMap.putAll(toConnectionIdMap(nifiFlowProcessGroup.getConnectionIdMap().values()));
+                putAll(this.connectionIdToConnectionMap, toConnectionIdMap(nifiFlowProcessGroup.getConnectionIdMap().values()), NifiFlowCacheChangeLog.Type.CONNECTION);
             }
         });
+        //syncs will need a full copy of the rebuilt cache
+        changeLog.reset();
         loaded = true;
 
 
@@ -341,22 +354,10 @@ public class NifiFlowCache implements NifiConnectionListener, ModeShapeAvailabil
     }
 
     private NiFiFlowCacheSync getSync(String syncId) {
-        return getSync(syncId, false);
-    }
-
-    private NiFiFlowCacheSync getSync(String syncId, boolean forPreview) {
         if (isAvailable()) {
-            NiFiFlowCacheSync sync = null;
-            if (syncId == null || !syncMap.containsKey(syncId)) {
-                sync = new NiFiFlowCacheSync();
-                if (StringUtils.isNotBlank(syncId)) {
-                    sync.setSyncId(syncId);
-                }
-                if (!forPreview) {
-                    syncMap.put(sync.getSyncId(), sync);
-                }
-            } else {
-                sync = syncMap.get(syncId);
+            NiFiFlowCacheSync sync = new NiFiFlowCacheSync();
+            if (StringUtils.isNotBlank(syncId)) {
+                sync.setSyncId(syncId);
             }
             return sync;
         } else {
@@ -365,61 +366,126 @@ public class NifiFlowCache implements NifiConnectionListener, ModeShapeAvailabil
     }
 
 
+    /**
+     * Return the changes made since the last version sent to the sync, or all the data in the cache if the sync is new or the changes are no longer in the change log
+     */
     private NiFiFlowCacheSync syncAndReturnUpdates(NiFiFlowCacheSync sync, boolean preview) {
         if (!preview) {
             lastSyncTimeMap.put(sync.getSyncId(), DateTime.now());
         }
-        if (sync.needsUpdate(lastUpdated)) {
-            Map<String, String> processorIdToFeedNameMapCopy = ImmutableMap.copyOf(processorIdToFeedNameMap);
-            Map<String, String> processorIdToFeedProcessGroupIdCopy = ImmutableMap.copyOf(processorIdToFeedProcessGroupId);
-            Map<String, String> processorIdToProcessorNameCopy = ImmutableMap.copyOf(processorIdToProcessorName);
-            Set<String> streamingFeedsCopy = ImmutableSet.copyOf(streamingFeeds);
-            Set<String> allFeedsCopy = ImmutableSet.copyOf(allFeeds);
-            Map<String, NiFiFlowCacheConnectionData> connectionDataMapCopy = ImmutableMap.copyOf(connectionIdToConnectionMap);
-
-            //get feeds updated since last sync
-            NifiFlowCacheSnapshot latest = new NifiFlowCacheSnapshot.Builder()
-                .withProcessorIdToFeedNameMap(processorIdToFeedNameMapCopy)
-                .withProcessorIdToFeedProcessGroupId(processorIdToFeedProcessGroupIdCopy)
-                .withProcessorIdToProcessorName(processorIdToProcessorNameCopy)
-                .withStreamingFeeds(streamingFeedsCopy)
-                .withFeeds(allFeedsCopy)
-                .withConnections(connectionDataMapCopy)
-                .withSnapshotDate(lastUpdated).build();
-            return syncAndReturnUpdates(sync, latest, preview);
+
+        Long lastVersion = syncVersionMap.get(sync.getSyncId());
+        Optional<List<NifiFlowCacheChangeLog.Change>> changes = (lastVersion != null) ? changeLog.getChanges(lastVersion) : Optional.empty();
+
+        long version;
+        NifiFlowCacheSnapshot updated;
+        if (changes.isPresent()) {
+            if (changes.get().isEmpty()) {
+                return NiFiFlowCacheSync.EMPTY(sync.getSyncId());
+            }
+            version = changes.get().get(changes.get().size() - 1).getVersion();
+            updated = toSnapshot(changes.get());
         } else {
-            return NiFiFlowCacheSync.EMPTY(sync.getSyncId());
+            //get the version before copying so that changes made while copying are sent again on the next sync
+            version = changeLog.getVersion();
+            updated = snapshot();
+        }
+
+        //reset the pointer on this sync to be the latest
+        if (!preview) {
+            syncVersionMap.put(sync.getSyncId(), version);
+            compactChangeLog();
         }
+        NiFiFlowCacheSync updatedSync = new NiFiFlowCacheSync(sync.getSyncId(), updated);
+        updatedSync.setUpdated(true);
+        if (!preview) {
+            updatedSync.setLastSync(lastUpdated);
+        }
+        return updatedSync;
     }
 
+    /**
+     * Copies all the data in the cache
+     */
+    private NifiFlowCacheSnapshot snapshot() {
+        return new NifiFlowCacheSnapshot.Builder()
+            .withProcessorIdToFeedNameMap(ImmutableMap.copyOf(processorIdToFeedNameMap))
+            .withProcessorIdToFeedProcessGroupId(ImmutableMap.copyOf(processorIdToFeedProcessGroupId))
+            .withProcessorIdToProcessorName(ImmutableMap.copyOf(processorIdToProcessorName))
+            .withStreamingFeeds(ImmutableSet.copyOf(streamingFeeds))
+            .withFeeds(ImmutableSet.copyOf(allFeeds))
+            .withConnections(ImmutableMap.copyOf(connectionIdToConnectionMap))
+            .withSnapshotDate(lastUpdated).build();
+    }
 
-    private NiFiFlowCacheSync syncAndReturnUpdates(NiFiFlowCacheSync sync, NifiFlowCacheSnapshot latest, boolean preview) {
-        if (latest != null && sync.needsUpdate(latest.getSnapshotDate())) {
+    /**
+     * Collects the latest value of each key from the specified changes
+     */
+    private NifiFlowCacheSnapshot toSnapshot(List<NifiFlowCacheChangeLog.Change> changes) {
+        Map<String, String> processorIdToFeedName = new HashMap<>();
+        Map<String, String> processorIdToProcessGroupId = new HashMap<>();
+        Map<String, String> processorIdToName = new HashMap<>();
+        Map<String, NiFiFlowCacheConnectionData> connections = new HashMap<>();
+        Set<String> feeds = new HashSet<>();
+
+        for (NifiFlowCacheChangeLog.Change change : changes) {
+            switch (change.getType()) {
+                case PROCESSOR_FEED_NAME:
+                    processorIdToFeedName.put(change.getKey(), change.getValue());
+                    break;
+                case PROCESSOR_PROCESS_GROUP_ID:
+                    processorIdToProcessGroupId.put(change.getKey(), change.getValue());
+                    break;
+                case PROCESSOR_NAME:
+                    processorIdToName.put(change.getKey(), change.getValue());
+                    break;
+                case CONNECTION:
+                    connections.put(change.getKey(), change.getValue());
+                    break;
+                case FEED:
+                    feeds.add(change.getKey());
+                    break;
+                default:
+                    //the streaming feeds are always sent in full
+            }
+        }
 
-            NifiFlowCacheSnapshot updated = new NifiFlowCacheSnapshot.Builder()
-                .withProcessorIdToFeedNameMap(sync.getProcessorIdToFeedNameMapUpdatedSinceLastSync(latest.getProcessorIdToFeedNameMap()))
-                .withProcessorIdToFeedProcessGroupId(sync.getProcessorIdToProcessGroupIdUpdatedSinceLastSync(latest.getProcessorIdToFeedProcessGroupId()))
-                .withProcessorIdToProcessorName(sync.getProcessorIdToProcessorNameUpdatedSinceLastSync(latest.getProcessorIdToProcessorName()))
-                .withStreamingFeeds(latest.getAllStreamingFeeds())
-                .withConnections(sync.getConnectionIdToConnectionUpdatedSinceLastSync(latest.getConnectionIdToConnectionName(), latest.getConnectionIdToConnection()))
-                .withFeeds(sync.getFeedsUpdatedSinceLastSync(latest.getAllFeeds()))
-                .build();
-            //reset the pointers on this sync to be the latest
-            if (!preview) {
-                sync.setSnapshot(latest);
-                sync.setLastSync(latest.getSnapshotDate());
+        return new NifiFlowCacheSnapshot.Builder()
+            .withProcessorIdToFeedNameMap(processorIdToFeedName)
+            .withProcessorIdToFeedProcessGroupId(processorIdToProcessGroupId)
+            .withProcessorIdToProcessorName(processorIdToName)
+            .withStreamingFeeds(ImmutableSet.copyOf(streamingFeeds))
+            .withConnections(connections)
+            .withFeeds(feeds)
+            .build();
+    }
 
-            }
-            NiFiFlowCacheSync updatedSync = new NiFiFlowCacheSync(sync.getSyncId(), updated);
-            updatedSync.setUpdated(true);
-            if (!preview) {
-                updatedSync.setLastSync(latest.getSnapshotDate());
-            }
-            return updatedSync;
+    /**
+     * Removes the changes that have been sent to every sync
+     */
+    private void compactChangeLog() {
+        long version = changeLog.getVersion();
+        changeLog.compact(syncVersionMap.values().stream().mapToLong(Long::longValue).min().orElse(version));
+    }
 
+    /**
+     * Updates a base map and records the changes for the syncs.
+     * Changes made while the cache is being built are not recorded as syncs will get a full copy once it is loaded.
+     */
+    private <V> void putAll(Map<String, V> target, Map<String, V> values, NifiFlowCacheChangeLog.Type type) {
+        target.putAll(values);
+        if (loaded) {
+            changeLog.appendAll(type, values);
         }
+    }
 
-        return NiFiFlowCacheSync.EMPTY(sync.getSyncId());
+    /**
+     * Records a change to the set of feeds or streaming feeds for the syncs.
+     */
+    private void feedChanged(String feedName, NifiFlowCacheChangeLog.Type type) {
+        if (loaded) {
+            changeLog.append(type, feedName, null);
+        }
     }
 
 
@@ -444,10 +510,8 @@ public class NifiFlowCache implements NifiConnectionListener, ModeShapeAvailabil
                 feedTemplatesMap.put(feedName, template);
             }
             feedNameToTemplateNameMap.put(feedName, template.getTemplateName());
-            if (template.isStream()) {
-                streamingFeeds.add(feedName);
-            } else {
-                streamingFeeds.remove(feedName);
+            if (template.isStream() ? streamingFeeds.add(feedName) : streamingFeeds.remove(feedName)) {
+                feedChanged(feedName, NifiFlowCacheChangeLog.Type.STREAMING_FEED);
             }
         });
     }
@@ -540,10 +604,8 @@ public class NifiFlowCache implements NifiConnectionListener, ModeShapeAvailabil
             feedNameToTemplateNameMap.entrySet().stream().filter(entry -> entry.getValue().equalsIgnoreCase(template.getTemplateName())).map(entry -> entry.getKey()).collect(Collectors.toList());
 
         log.info("Updated Template: {}, found {} associated feeds ", template.getTemplateName(), feedNames.size());
-        if (template.isStream()) {
-            streamingFeeds.addAll(feedNames);
-        } else {
-            streamingFeeds.removeAll(feedNames);
+        if (template.isStream() ? streamingFeeds.addAll(feedNames) : streamingFeeds.removeAll(feedNames)) {
+            feedChanged(template.getTemplateName(), NifiFlowCacheChangeLog.Type.STREAMING_FEED);
         }
         lastUpdated = DateTimeUtil.getNowUTCTime();
 
@@ -563,7 +625,7 @@ public class NifiFlowCache implements NifiConnectionListener, ModeShapeAvailabil
             processorIdToProcessorName.put(flowProcessor.getId(), flowProcessor.getName());
         });
 
-        this.processorIdToProcessorName.putAll(processorIdToProcessorName);
+        putAll(this.processorIdToProcessorName, processorIdToProcessorName, NifiFlowCacheChangeLog.Type.PROCESSOR_NAME);
     }
 
     /**
@@ -583,7 +645,7 @@ public class NifiFlowCache implements NifiConnectionListener, ModeShapeAvailabil
 
             });
         }
-        this.connectionIdToConnectionMap.putAll(toConnectionIdMap(connectionIdToConnectionMap.values()));
+        putAll(this.connectionIdToConnectionMap, toConnectionIdMap(connectionIdToConnectionMap.values()), NifiFlowCacheChangeLog.Type.CONNECTION);
     }
 
 
@@ -618,16 +680,8 @@ public class NifiFlowCache implements NifiConnectionListener, ModeShapeAvailabil
         feedProcessorIdProcessorMap.put(feedName, toProcessorIdProcessorMap(processors));
 
         updateProcessorIdMaps(feedProcessGroupId, processors);
-        Map<String, String> processorIdToProcessGroupId = new HashMap<>();
-        Map<String, String> processorIdToProcessorName = new HashMap<>();
-        processors.stream().forEach(flowProcessor -> {
-            processorIdToProcessGroupId.put(flowProcessor.getId(), feedProcessGroupId);
-            processorIdToProcessorName.put(flowProcessor.getId(), flowProcessor.getName());
-        });
-        this.processorIdToFeedProcessGroupId.putAll(processorIdToProcessGroupId);
-        this.processorIdToProcessorName.putAll(processorIdToProcessorName);
 
-        connectionIdToConnectionMap.putAll(toConnectionIdMap(connections));
+        putAll(connectionIdToConnectionMap, toConnectionIdMap(connections), NifiFlowCacheChangeLog.Type.CONNECTION);
 
         if (connections != null) {
             Map<String, String> connectionIdToNameMap = connections.stream().collect(Collectors.toMap(conn -> conn.getConnectionIdentifier(), conn -> conn.getName()));
@@ -635,13 +689,15 @@ public class NifiFlowCache implements NifiConnectionListener, ModeShapeAvailabil
         }
 
         processorIdMap.putAll(toProcessorIdMap(processors));
-        processorIdToFeedNameMap.putAll(toProcessorIdFeedNameMap(processors, feedName));
+        putAll(processorIdToFeedNameMap, toProcessorIdFeedNameMap(processors, feedName), NifiFlowCacheChangeLog.Type.PROCESSOR_FEED_NAME);
         lastUpdated = DateTimeUtil.getNowUTCTime();
 
-        if (isStream) {
-            streamingFeeds.add(feedName);
+        if (isStream && streamingFeeds.add(feedName)) {
+            feedChanged(feedName, NifiFlowCacheChangeLog.Type.STREAMING_FEED);
+        }
+        if (allFeeds.add(feedName)) {
+            feedChanged(feedName, NifiFlowCacheChangeLog.Type.FEED);
         }
-        allFeeds.add(feedName);
         feedLastUpated.put(feedName, lastUpdated.getMillis());
 
     }
@@ -653,8 +709,8 @@ public class NifiFlowCache implements NifiConnectionListener, ModeShapeAvailabil
             processorIdToProcessGroupId.put(flowProcessor.getId(), processGroupId);
             processorIdToProcessorName.put(flowProcessor.getId(), flowProcessor.getName());
         });
-        this.processorIdToFeedProcessGroupId.putAll(processorIdToProcessGroupId);
-        this.processorIdToProcessorName.putAll(processorIdToProcessorName);
+        putAll(this.processorIdToFeedProcessGroupId, processorIdToProcessGroupId, NifiFlowCacheChangeLog.Type.PROCESSOR_PROCESS_GROUP_ID);
+        putAll(this.processorIdToProcessorName, processorIdToProcessorName, NifiFlowCacheChangeLog.Type.PROCESSOR_NAME);
 
     }
 
@@ -692,7 +748,7 @@ public class NifiFlowCache implements NifiConnectionListener, ModeShapeAvailabil
     }
 
     public CacheSummary cacheSummary() {
-        return CacheSummary.build(syncMap);
+        return CacheSummary.build(syncVersionMap, changeLog);
     }
 
     private void initExpireTimerThread() {
@@ -717,11 +773,14 @@ public class NifiFlowCache implements NifiConnectionListener, ModeShapeAvailabil
             Set<String> itemsRemoved = new HashSet<>();
             //find cache items that havent been synced in allotted time
             lastSyncTimeMap.entrySet().stream().filter(entry -> ((DateTime.now().getMillis() - entry.getValue().getMillis()) > expireAfter)).forEach(entry -> {
-                syncMap.remove(entry.getKey());
+                syncVersionMap.remove(entry.getKey());
                 itemsRemoved.add(entry.getKey());
                 log.info("Expiring Cache {}.  This cache has not been used in over {} minutes", entry.getKey(), minutes);
             });
             itemsRemoved.stream().forEach(item -> lastSyncTimeMap.remove(item));
+            if (!itemsRemoved.isEmpty()) {
+                compactChangeLog();
+            }
 
         } catch (Exception e) {
             log.error("Error attempting to invalidate flow cache for items not touched in {} or more minutes", minutes, e);
@@ -730,24 +789,30 @@ public class NifiFlowCache implements NifiConnectionListener, ModeShapeAvailabil
 
     public static class CacheSummary {
 
+        /**
+         * Map of the sync id to the number of changes not yet sent to that sync
+         */
         private Map<String, Integer> summary = new HashMap<>();
         private Integer cachedSyncIds;
+        private Integer pendingChanges;
 
         public CacheSummary() {
 
         }
 
-        private CacheSummary(Map<String, Integer> cacheIds) {
+        private CacheSummary(Map<String, Integer> cacheIds, Integer pendingChanges) {
             this.summary = cacheIds;
             this.cachedSyncIds = cacheIds.keySet().size();
+            this.pendingChanges = pendingChanges;
         }
 
-        public static CacheSummary build(Map<String, NiFiFlowCacheSync> syncMap) {
+        public static CacheSummary build(Map<String, Long> syncVersionMap, NifiFlowCacheChangeLog changeLog) {
+            long version = changeLog.getVersion();
             Map<String, Integer>
                 cacheIds =
-                syncMap.entrySet().stream().collect(Collectors.toMap(stringNiFiFlowCacheSyncEntry -> stringNiFiFlowCacheSyncEntry.getKey(),
-                                                                     stringNiFiFlowCacheSyncEntry1 -> stringNiFiFlowCacheSyncEntry1.getValue().getSnapshot().getProcessorIdToFeedNameMap().size()));
-            return new CacheSummary(cacheIds);
+                syncVersionMap.entrySet().stream().collect(Collectors.toMap(syncVersionEntry -> syncVersionEntry.getKey(),
+                                                                            syncVersionEntry -> (int) Math.max(0, version - syncVersionEntry.getValue())));
+            return new CacheSummary(cacheIds, changeLog.size());
         }
 
         public Map<String, Integer> getSummary() {
@@ -765,5 +830,13 @@ public class NifiFlowCache implements NifiConnectionListener, ModeShapeAvailabil
         public void setCachedSyncIds(Integer cachedSyncIds) {
             this.cachedSyncIds = cachedSyncIds;
         }
+
+        public Integer getPendingChanges() {
+            return pendingChanges;
+        }
+
+        public void setPendingChanges(Integer pendingChanges) {
+            this.pendingChanges = pendingChanges;
+        }
     }
 }
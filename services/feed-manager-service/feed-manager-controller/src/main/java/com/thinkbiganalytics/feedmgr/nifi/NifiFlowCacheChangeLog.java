@@ -0,0 +1,184 @@
+package com.thinkbiganalytics.feedmgr.nifi;
+
+/*-
+ * #%L
+ * thinkbig-feed-manager-controller
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * An append-only log of the changes made to the {@link NifiFlowCache}.
+ *
+ * <p>Each change is assigned the next version number. Syncs only need to remember the last version they have seen to get the changes made since then. Changes
+ * are removed once every sync has seen them, or all at once when the cache is rebuilt. A sync that is behind the oldest change in the log needs a full copy of
+ * the cache.</p>
+ */
+public class NifiFlowCacheChangeLog {
+
+    /**
+     * Type of value that changed
+     */
+    public enum Type {
+        PROCESSOR_FEED_NAME, PROCESSOR_PROCESS_GROUP_ID, PROCESSOR_NAME, CONNECTION, FEED, STREAMING_FEED
+    }
+
+    /**
+     * Changes ordered by version
+     */
+    private final List<Change> changes = new ArrayList<>();
+
+    /**
+     * Version of the last change
+     */
+    private long version;
+
+    /**
+     * Version of the last change removed from the log
+     */
+    private long baseVersion;
+
+    /**
+     * Gets the version of the last change.
+     *
+     * @return the current version
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the number of changes in the log.
+     *
+     * @return the number of changes
+     */
+    public synchronized int size() {
+        return changes.size();
+    }
+
+    /**
+     * Adds a change to the log.
+     *
+     * @param type  the type of value
+     * @param key   the processor id, connection id, or feed name
+     * @param value the new value
+     */
+    public synchronized void append(@Nonnull final Type type, @Nonnull final String key, @Nullable final Object value) {
+        changes.add(new Change(++version, type, key, value));
+    }
+
+    /**
+     * Adds a change to the log for each entry in the specified map.
+     *
+     * @param type   the type of values
+     * @param values the new values by key
+     */
+    public synchronized void appendAll(@Nonnull final Type type, @Nonnull final Map<String, ?> values) {
+        values.forEach((key, value) -> append(type, key, value));
+    }
+
+    /**
+     * Gets the changes made after the specified version.
+     *
+     * @param since the last version seen by the caller
+     * @return the changes ordered by version, or an empty optional if the changes are no longer available
+     */
+    @Nonnull
+    public synchronized Optional<List<Change>> getChanges(final long since) {
+        if (since < baseVersion || since > version) {
+            return Optional.empty();
+        }
+        return Optional.of(new ArrayList<>(changes.subList(indexAfter(since), changes.size())));
+    }
+
+    /**
+     * Removes the changes up to and including the specified version.
+     *
+     * @param through the version seen by all syncs
+     */
+    public synchronized void compact(final long through) {
+        if (through > baseVersion) {
+            final long compactTo = Math.min(through, version);
+            changes.subList(0, indexAfter(compactTo)).clear();
+            baseVersion = compactTo;
+        }
+    }
+
+    /**
+     * Removes all changes, such as when the cache is rebuilt. Syncs will need a full copy of the cache.
+     *
+     * <p>The version is incremented so that a sync that had seen every change before the reset is also behind the log.</p>
+     */
+    public synchronized void reset() {
+        changes.clear();
+        baseVersion = ++version;
+    }
+
+    /**
+     * Finds the index of the first change after the specified version.
+     */
+    private int indexAfter(final long since) {
+        final int index = Collections.binarySearch(changes, null, (change, ignored) -> Long.compare(change.getVersion(), since));
+        return (index >= 0) ? index + 1 : -(index + 1);
+    }
+
+    /**
+     * A change to the value of a key in the cache.
+     */
+    public static class Change {
+
+        private final long version;
+        private final Type type;
+        private final String key;
+        private final Object value;
+
+        Change(final long version, @Nonnull final Type type, @Nonnull final String key, @Nullable final Object value) {
+            this.version = version;
+            this.type = type;
+            this.key = key;
+            this.value = value;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        @Nonnull
+        public Type getType() {
+            return type;
+        }
+
+        @Nonnull
+        public String getKey() {
+            return key;
+        }
+
+        @Nullable
+        @SuppressWarnings("unchecked")
+        public <T> T getValue() {
+            return (T) value;
+        }
+    }
+}
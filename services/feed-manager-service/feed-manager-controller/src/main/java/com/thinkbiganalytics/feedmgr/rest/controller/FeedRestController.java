@@ -37,6 +37,7 @@ import com.thinkbiganalytics.feedmgr.service.feed.FeedManagerPreconditionService
 import com.thinkbiganalytics.feedmgr.sla.ServiceLevelAgreementService;
 import com.thinkbiganalytics.hive.service.HiveService;
 import com.thinkbiganalytics.hive.util.HiveUtils;
+import com.thinkbiganalytics.jobrepo.query.model.SearchResult;
 import com.thinkbiganalytics.metadata.rest.model.data.DatasourceDefinition;
 import com.thinkbiganalytics.metadata.rest.model.data.DatasourceDefinitions;
 import com.thinkbiganalytics.metadata.rest.model.feed.FeedLineageStyle;
@@ -223,6 +224,21 @@ public class FeedRestController {
         return Response.ok(feeds).build();
     }
 
+    @GET
+    @Path("/summary")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation("Gets a page of feed summaries.")
+    @ApiResponses({
+                      @ApiResponse(code = 200, message = "Returns the feed summaries.", response = SearchResult.class),
+                      @ApiResponse(code = 500, message = "The sort contains an invalid value.", response = RestResponseStatus.class)
+                  })
+    public SearchResult getFeedSummaries(@QueryParam("sort") @DefaultValue("") String sort,
+                                         @QueryParam("limit") @DefaultValue("10") Integer limit,
+                                         @QueryParam("start") @DefaultValue("0") Integer start,
+                                         @QueryParam("filter") String filter) {
+        return getMetadataService().getFeedSummaryData(filter, sort, start, Math.min(limit, MAX_LIMIT));
+    }
+
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     @ApiOperation("Gets the list of feeds.")
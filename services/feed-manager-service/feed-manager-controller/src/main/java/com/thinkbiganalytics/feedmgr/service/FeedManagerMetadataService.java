@@ -35,6 +35,7 @@ import com.thinkbiganalytics.feedmgr.service.category.FeedManagerCategoryService
 import com.thinkbiganalytics.feedmgr.service.feed.FeedManagerFeedService;
 import com.thinkbiganalytics.feedmgr.service.feed.FeedModelTransform;
 import com.thinkbiganalytics.feedmgr.service.template.FeedManagerTemplateService;
+import com.thinkbiganalytics.jobrepo.query.model.SearchResult;
 import com.thinkbiganalytics.metadata.api.MetadataAccess;
 import com.thinkbiganalytics.metadata.api.event.MetadataEventListener;
 import com.thinkbiganalytics.metadata.api.event.MetadataEventService;
@@ -320,6 +321,11 @@ public class FeedManagerMetadataService implements MetadataService {
         return feedProvider.getFeedSummaryData();
     }
 
+    @Override
+    public SearchResult getFeedSummaryData(String filter, String sort, int start, int limit) {
+        return feedProvider.getFeedSummaryData(filter, sort, start, limit);
+    }
+
     @Override
     public List<FeedSummary> getFeedSummaryForCategory(String categoryId) {
         return feedProvider.getFeedSummaryForCategory(categoryId);
@@ -26,6 +26,7 @@ import com.thinkbiganalytics.feedmgr.rest.model.UserField;
 import com.thinkbiganalytics.feedmgr.rest.model.UserProperty;
 import com.thinkbiganalytics.feedmgr.security.FeedsAccessControl;
 import com.thinkbiganalytics.feedmgr.service.UserPropertyTransform;
+import com.thinkbiganalytics.feedmgr.service.feed.FeedSummaryIndex;
 import com.thinkbiganalytics.metadata.api.MetadataAccess;
 import com.thinkbiganalytics.metadata.api.MetadataCommand;
 import com.thinkbiganalytics.metadata.api.extension.UserFieldDescriptor;
@@ -58,6 +59,9 @@ public class DefaultFeedManagerCategoryService implements FeedManagerCategorySer
     @Inject
     private AccessController accessController;
 
+    @Inject
+    private FeedSummaryIndex feedSummaryIndex;
+
     @Override
     public Collection<FeedCategory> getCategories() {
         return metadataAccess.read((MetadataCommand<Collection<FeedCategory>>) () -> {
@@ -119,6 +123,10 @@ public class DefaultFeedManagerCategoryService implements FeedManagerCategorySer
         // Update user-defined fields (must be outside metadataAccess)
         final Set<UserFieldDescriptor> userFields = (category.getUserFields() != null) ? UserPropertyTransform.toUserFieldDescriptors(category.getUserFields()) : Collections.emptySet();
         categoryProvider.setFeedUserFields(domainId, userFields);
+
+        // Update the category name and icon of its feeds
+        final String categoryId = domainId.toString();
+        feedSummaryIndex.refreshIf(summary -> categoryId.equals(summary.getCategoryId()));
     }
 
     @Override
@@ -35,6 +35,7 @@ import com.thinkbiganalytics.feedmgr.service.UserPropertyTransform;
 import com.thinkbiganalytics.feedmgr.service.feed.datasource.DerivedDatasourceFactory;
 import com.thinkbiganalytics.feedmgr.service.template.FeedManagerTemplateService;
 import com.thinkbiganalytics.feedmgr.sla.ServiceLevelAgreementService;
+import com.thinkbiganalytics.jobrepo.query.model.SearchResult;
 import com.thinkbiganalytics.json.ObjectMapperSerializer;
 import com.thinkbiganalytics.metadata.api.MetadataAccess;
 import com.thinkbiganalytics.metadata.api.datasource.Datasource;
@@ -58,6 +59,7 @@ import com.thinkbiganalytics.metadata.api.feedmgr.feed.FeedManagerFeedProvider;
 import com.thinkbiganalytics.metadata.api.feedmgr.template.FeedManagerTemplate;
 import com.thinkbiganalytics.metadata.api.feedmgr.template.FeedManagerTemplateProvider;
 import com.thinkbiganalytics.metadata.api.security.HadoopSecurityGroup;
+import com.thinkbiganalytics.metadata.modeshape.JcrMetadataAccess;
 import com.thinkbiganalytics.metadata.rest.model.sla.Obligation;
 import com.thinkbiganalytics.metadata.sla.api.ObligationGroup;
 import com.thinkbiganalytics.metadata.sla.spi.ServiceLevelAgreementBuilder;
@@ -140,6 +142,8 @@ public class DefaultFeedManagerFeedService extends AbstractFeedManagerFeedServic
     private NiFiPropertyDescriptorTransform propertyDescriptorTransform;
     @Inject
     private DerivedDatasourceFactory derivedDatasourceFactory;
+    @Inject
+    private FeedSummaryIndex feedSummaryIndex;
     // use autowired instead of Inject to allow null values.
     @Autowired(required = false)
     @Qualifier("hadoopAuthorizationService")
@@ -233,18 +237,20 @@ public class DefaultFeedManagerFeedService extends AbstractFeedManagerFeedServic
 
     @Override
     public List<FeedSummary> getFeedSummaryData() {
-
-        return metadataAccess.read(() -> {
+        metadataAccess.read(() -> {
             this.accessController.checkPermission(AccessController.SERVICES, FeedsAccessControl.ACCESS_FEEDS);
+        });
 
-            List<FeedSummary> feeds = null;
-            Collection<? extends Feed> domainFeeds = feedManagerFeedProvider.findAll();
-            if (domainFeeds != null) {
-                feeds = feedModelTransform.domainToFeedSummary(domainFeeds);
-            }
-            return feeds;
+        return feedSummaryIndex.getAll();
+    }
+
+    @Override
+    public SearchResult getFeedSummaryData(final String filter, final String sort, final int start, final int limit) {
+        metadataAccess.read(() -> {
+            this.accessController.checkPermission(AccessController.SERVICES, FeedsAccessControl.ACCESS_FEEDS);
         });
 
+        return feedSummaryIndex.find(filter, sort, start, limit);
     }
 
     @Override
@@ -669,6 +675,8 @@ public class DefaultFeedManagerFeedService extends AbstractFeedManagerFeedServic
     /**
      * update the audit information for feed state changes
      *
+     * <p>Within a transaction the event is only sent once the transaction commits, so that listeners reading the feed see the new state.</p>
+     *
      * @param feedId     the feed id
      * @param state      the new state
      * @param changeType the event type
@@ -679,6 +687,14 @@ public class DefaultFeedManagerFeedService extends AbstractFeedManagerFeedServic
                                     : null;
         FeedChange change = new FeedChange(changeType, feedMetadata != null ? feedMetadata.getCategoryAndFeedName() : "", feedId, state);
         FeedChangeEvent event = new FeedChangeEvent(change, DateTime.now(), principal);
-        metadataEventService.notify(event);
+        if (JcrMetadataAccess.hasActiveSession()) {
+            JcrMetadataAccess.addPostTransactionAction(success -> {
+                if (success) {
+                    metadataEventService.notify(event);
+                }
+            });
+        } else {
+            metadataEventService.notify(event);
+        }
     }
 }
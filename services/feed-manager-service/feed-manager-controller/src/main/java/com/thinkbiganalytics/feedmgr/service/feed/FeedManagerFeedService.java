@@ -26,6 +26,7 @@ import com.thinkbiganalytics.feedmgr.rest.model.NifiFeed;
 import com.thinkbiganalytics.feedmgr.rest.model.UIFeed;
 import com.thinkbiganalytics.feedmgr.rest.model.UserField;
 import com.thinkbiganalytics.feedmgr.rest.model.UserProperty;
+import com.thinkbiganalytics.jobrepo.query.model.SearchResult;
 import com.thinkbiganalytics.metadata.api.feed.Feed;
 import com.thinkbiganalytics.policy.rest.model.FieldRuleProperty;
 
@@ -86,6 +87,17 @@ public interface FeedManagerFeedService {
      */
     List<FeedSummary> getFeedSummaryData();
 
+    /**
+     * Return one page of the feeds matching the specified filter.
+     *
+     * @param filter text to match against the feed, category, and template names, or {@code null} for all feeds
+     * @param sort   the {@link FeedSummary} property to sort by, prefixed with {@code -} for descending order, or {@code null} for the default order
+     * @param start  the index of the first feed to return
+     * @param limit  the maximum number of feeds to return
+     * @return a search result containing {@link FeedSummary} objects
+     */
+    SearchResult getFeedSummaryData(String filter, String sort, int start, int limit);
+
     /**
      * Return a list of feeds in a given category
      *
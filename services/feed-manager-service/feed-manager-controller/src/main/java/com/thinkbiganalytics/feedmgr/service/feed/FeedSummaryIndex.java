@@ -0,0 +1,369 @@
+package com.thinkbiganalytics.feedmgr.service.feed;
+
+/*-
+ * #%L
+ * thinkbig-feed-manager-controller
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.ImmutableMap;
+import com.thinkbiganalytics.feedmgr.rest.model.FeedSummary;
+import com.thinkbiganalytics.jobrepo.query.model.SearchResult;
+import com.thinkbiganalytics.jobrepo.query.model.SearchResultImpl;
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.event.MetadataChange;
+import com.thinkbiganalytics.metadata.api.event.MetadataEventListener;
+import com.thinkbiganalytics.metadata.api.event.MetadataEventService;
+import com.thinkbiganalytics.metadata.api.event.feed.FeedChange;
+import com.thinkbiganalytics.metadata.api.event.feed.FeedChangeEvent;
+import com.thinkbiganalytics.metadata.api.event.feed.FeedPropertyChangeEvent;
+import com.thinkbiganalytics.metadata.api.event.template.TemplateChangeEvent;
+import com.thinkbiganalytics.metadata.api.feed.Feed;
+import com.thinkbiganalytics.metadata.api.feedmgr.feed.FeedManagerFeed;
+import com.thinkbiganalytics.metadata.api.feedmgr.feed.FeedManagerFeedProvider;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+/**
+ * An in-memory index of the {@link FeedSummary} of every feed.
+ *
+ * <p>The index is loaded from the metadata store on first use and then kept in sync using feed, feed property, and template change events. List views are
+ * paged, sorted, and filtered from the index so that they don't need to load the feed entities.</p>
+ */
+public class FeedSummaryIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(FeedSummaryIndex.class);
+
+    /**
+     * Orders feed summaries by the names accepted for the sort parameter
+     */
+    private static final Map<String, Comparator<FeedSummary>> SORT_FIELDS = ImmutableMap.<String, Comparator<FeedSummary>>builder()
+        .put("feedName", ignoreCase(FeedSummary::getFeedName))
+        .put("systemFeedName", ignoreCase(FeedSummary::getSystemFeedName))
+        .put("categoryName", ignoreCase(FeedSummary::getCategoryName))
+        .put("systemCategoryName", ignoreCase(FeedSummary::getSystemCategoryName))
+        .put("templateName", ignoreCase(FeedSummary::getTemplateName))
+        .put("state", ignoreCase(FeedSummary::getState))
+        .put("updateDate", Comparator.comparing(FeedSummary::getUpdateDate, Comparator.nullsFirst(Comparator.naturalOrder())))
+        .build();
+
+    /**
+     * Order used when no sort is requested and to break ties
+     */
+    private static final Comparator<FeedSummary> DEFAULT_ORDER = ignoreCase(FeedSummary::getSystemCategoryName).thenComparing(ignoreCase(FeedSummary::getSystemFeedName));
+
+    /**
+     * Ids of feeds that changed while the index was loading
+     */
+    private final Set<String> pendingFeedIds = ConcurrentHashMap.newKeySet();
+
+    private final MetadataEventListener<FeedChangeEvent> feedChangeListener = new FeedChangeListener();
+    private final MetadataEventListener<FeedPropertyChangeEvent> feedPropertyChangeListener = new FeedPropertyChangeListener();
+    private final MetadataEventListener<TemplateChangeEvent> templateChangeListener = new TemplateChangeListener();
+
+    @Inject
+    private MetadataAccess metadataAccess;
+
+    @Inject
+    private MetadataEventService metadataEventService;
+
+    @Inject
+    private FeedManagerFeedProvider feedManagerFeedProvider;
+
+    @Inject
+    private FeedModelTransform feedModelTransform;
+
+    /**
+     * Feed summaries by feed id, or {@code null} if not loaded
+     */
+    private volatile Map<String, FeedSummary> summaries;
+
+    /**
+     * Adds listeners for keeping the index up-to-date.
+     */
+    @PostConstruct
+    public void addEventListeners() {
+        metadataEventService.addListener(feedChangeListener);
+        metadataEventService.addListener(feedPropertyChangeListener);
+        metadataEventService.addListener(templateChangeListener);
+    }
+
+    /**
+     * Removes listeners.
+     */
+    @PreDestroy
+    public void removeEventListeners() {
+        metadataEventService.removeListener(feedChangeListener);
+        metadataEventService.removeListener(feedPropertyChangeListener);
+        metadataEventService.removeListener(templateChangeListener);
+    }
+
+    /**
+     * Gets the summaries of all feeds.
+     *
+     * @return the feed summaries ordered by category and feed system name
+     */
+    @Nonnull
+    public List<FeedSummary> getAll() {
+        return getSummaries().values().stream().sorted(DEFAULT_ORDER).collect(Collectors.toList());
+    }
+
+    /**
+     * Gets one page of the feed summaries matching the specified filter.
+     *
+     * <p>The filter matches, ignoring case, any part of the feed, category, or template names. The sort is the name of a {@link FeedSummary} property
+     * optionally prefixed with {@code -} for descending order.</p>
+     *
+     * @param filter the text to match, or {@code null} for all feeds
+     * @param sort   the property to sort by, or {@code null} for the default order
+     * @param start  the index of the first feed summary to return
+     * @param limit  the maximum number of feed summaries to return
+     * @return the page of feed summaries
+     * @throws IllegalArgumentException if the sort property is not supported
+     */
+    @Nonnull
+    public SearchResult find(@Nullable final String filter, @Nullable final String sort, final int start, final int limit) {
+        return page(getSummaries().values(), filter, sort, start, limit);
+    }
+
+    /**
+     * Gets one page of the specified feed summaries matching the filter.
+     *
+     * @param summaries the feed summaries to search
+     * @param filter    the text to match, or {@code null} for all feeds
+     * @param sort      the property to sort by, or {@code null} for the default order
+     * @param start     the index of the first feed summary to return
+     * @param limit     the maximum number of feed summaries to return
+     * @return the page of feed summaries
+     * @throws IllegalArgumentException if the sort property is not supported
+     * @see #find(String, String, int, int)
+     */
+    @Nonnull
+    public static SearchResult page(@Nonnull final Collection<FeedSummary> summaries, @Nullable final String filter, @Nullable final String sort, final int start,
+                                    final int limit) {
+        final Comparator<FeedSummary> order = comparator(sort);
+        final List<FeedSummary> matching = summaries.stream()
+            .filter(matcher(filter))
+            .collect(Collectors.toCollection(ArrayList::new));
+        matching.sort(order);
+
+        final int from = Math.min(Math.max(start, 0), matching.size());
+        final int to = (limit > 0) ? Math.min(from + limit, matching.size()) : matching.size();
+
+        final SearchResult result = new SearchResultImpl();
+        result.setData(new ArrayList<>(matching.subList(from, to)));
+        result.setRecordsTotal((long) summaries.size());
+        result.setRecordsFiltered((long) matching.size());
+        return result;
+    }
+
+    /**
+     * Reloads the summary of the specified feed, or removes it if the feed no longer exists.
+     *
+     * @param feedId the feed id
+     */
+    public void refresh(@Nonnull final String feedId) {
+        final Map<String, FeedSummary> current = summaries;
+        if (current == null) {
+            pendingFeedIds.add(feedId);
+            return;
+        }
+
+        final FeedSummary summary = metadataAccess.read(() -> {
+            final FeedManagerFeed feed = feedManagerFeedProvider.findById(feedManagerFeedProvider.resolveId(feedId));
+            return (feed != null) ? feedModelTransform.domainToFeedSummary(feed) : null;
+        }, MetadataAccess.SERVICE);
+
+        if (summary != null) {
+            current.put(feedId, summary);
+        } else {
+            current.remove(feedId);
+        }
+    }
+
+    /**
+     * Reloads the summaries of all feeds matching the specified predicate, such as all feeds in a renamed category.
+     *
+     * @param predicate selects the feeds to reload
+     */
+    public void refreshIf(@Nonnull final Predicate<FeedSummary> predicate) {
+        final Map<String, FeedSummary> current = summaries;
+        if (current != null) {
+            current.values().stream()
+                .filter(predicate)
+                .map(FeedSummary::getId)
+                .collect(Collectors.toList())
+                .forEach(this::refresh);
+        }
+    }
+
+    /**
+     * Gets the feed summaries, loading them if necessary.
+     */
+    @Nonnull
+    private Map<String, FeedSummary> getSummaries() {
+        Map<String, FeedSummary> current = summaries;
+        if (current == null) {
+            synchronized (this) {
+                current = summaries;
+                if (current == null) {
+                    current = load();
+                    summaries = current;
+
+                    // Apply changes that may have been missed by the load
+                    final List<String> pending = new ArrayList<>(pendingFeedIds);
+                    pendingFeedIds.removeAll(pending);
+                    pending.forEach(this::refresh);
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Loads the summaries of all feeds from the metadata store.
+     */
+    @Nonnull
+    private Map<String, FeedSummary> load() {
+        final long start = System.currentTimeMillis();
+        final Map<String, FeedSummary> loaded = new ConcurrentHashMap<>();
+
+        metadataAccess.read(() -> {
+            final List<FeedManagerFeed> feeds = feedManagerFeedProvider.findAll();
+            if (feeds != null) {
+                feeds.forEach(feed -> {
+                    final FeedSummary summary = feedModelTransform.domainToFeedSummary(feed);
+                    loaded.put(summary.getId(), summary);
+                });
+            }
+        }, MetadataAccess.SERVICE);
+
+        log.info("Loaded {} feed summaries in {} ms", loaded.size(), System.currentTimeMillis() - start);
+        return loaded;
+    }
+
+    /**
+     * Creates a comparator for the specified sort.
+     */
+    @Nonnull
+    private static Comparator<FeedSummary> comparator(@Nullable final String sort) {
+        if (StringUtils.isBlank(sort)) {
+            return DEFAULT_ORDER;
+        }
+
+        final boolean descending = sort.startsWith("-");
+        final String field = descending ? sort.substring(1) : sort;
+        final Comparator<FeedSummary> comparator = SORT_FIELDS.get(field);
+        if (comparator == null) {
+            throw new IllegalArgumentException("Unsupported sort: " + sort);
+        }
+        return (descending ? comparator.reversed() : comparator).thenComparing(DEFAULT_ORDER);
+    }
+
+    /**
+     * Creates a predicate for the specified filter.
+     */
+    @Nonnull
+    private static Predicate<FeedSummary> matcher(@Nullable final String filter) {
+        if (StringUtils.isBlank(filter)) {
+            return summary -> true;
+        }
+
+        final String text = filter.trim().toLowerCase(Locale.ROOT);
+        return summary -> contains(summary.getFeedName(), text) || contains(summary.getSystemFeedName(), text) || contains(summary.getCategoryName(), text)
+                          || contains(summary.getSystemCategoryName(), text) || contains(summary.getTemplateName(), text);
+    }
+
+    private static boolean contains(@Nullable final String value, @Nonnull final String text) {
+        return value != null && value.toLowerCase(Locale.ROOT).contains(text);
+    }
+
+    @Nonnull
+    private static Comparator<FeedSummary> ignoreCase(@Nonnull final Function<FeedSummary, String> property) {
+        return Comparator.comparing(property, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER));
+    }
+
+    /**
+     * Refreshes or removes feeds that have been created, updated, or deleted.
+     */
+    private class FeedChangeListener implements MetadataEventListener<FeedChangeEvent> {
+
+        @Override
+        public void notify(@Nonnull final FeedChangeEvent event) {
+            final FeedChange change = event.getData();
+            final Feed.ID feedId = change.getFeedId();
+            if (feedId == null) {
+                return;
+            }
+
+            final Map<String, FeedSummary> current = summaries;
+            if (change.getChange() == MetadataChange.ChangeType.DELETE && current != null) {
+                current.remove(feedId.toString());
+            } else {
+                refresh(feedId.toString());
+            }
+        }
+    }
+
+    /**
+     * Refreshes feeds whose properties have changed.
+     */
+    private class FeedPropertyChangeListener implements MetadataEventListener<FeedPropertyChangeEvent> {
+
+        @Override
+        public void notify(@Nonnull final FeedPropertyChangeEvent event) {
+            final String feedId = event.getData().getFeedId();
+            if (feedId != null) {
+                refresh(feedId);
+            }
+        }
+    }
+
+    /**
+     * Refreshes feeds using a template that has been updated.
+     */
+    private class TemplateChangeListener implements MetadataEventListener<TemplateChangeEvent> {
+
+        @Override
+        public void notify(@Nonnull final TemplateChangeEvent event) {
+            if (event.getData().getTemplateId() != null) {
+                final String templateId = event.getData().getTemplateId().toString();
+                refreshIf(summary -> templateId.equals(summary.getTemplateId()));
+            }
+        }
+    }
+}
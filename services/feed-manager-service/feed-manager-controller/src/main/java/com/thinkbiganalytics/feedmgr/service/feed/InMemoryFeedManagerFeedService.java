@@ -33,6 +33,7 @@ import com.thinkbiganalytics.feedmgr.rest.model.UserProperty;
 import com.thinkbiganalytics.feedmgr.service.FileObjectPersistence;
 import com.thinkbiganalytics.feedmgr.service.category.FeedManagerCategoryService;
 import com.thinkbiganalytics.feedmgr.service.template.FeedManagerTemplateService;
+import com.thinkbiganalytics.jobrepo.query.model.SearchResult;
 import com.thinkbiganalytics.metadata.api.feed.Feed;
 import com.thinkbiganalytics.nifi.rest.client.LegacyNifiRestClient;
 import com.thinkbiganalytics.policy.rest.model.FieldRuleProperty;
@@ -113,6 +114,11 @@ public class InMemoryFeedManagerFeedService extends AbstractFeedManagerFeedServi
     }
 
 
+    @Override
+    public SearchResult getFeedSummaryData(String filter, String sort, int start, int limit) {
+        return FeedSummaryIndex.page(getFeedSummaryData(), filter, sort, start, limit);
+    }
+
     public List<FeedSummary> getFeedSummaryForCategory(String categoryId) {
         List<FeedSummary> summaryList = new ArrayList<>();
         FeedCategory category = categoryProvider.getCategoryById(categoryId);
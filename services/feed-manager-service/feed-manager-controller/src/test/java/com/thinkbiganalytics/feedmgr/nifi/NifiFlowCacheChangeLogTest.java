@@ -0,0 +1,87 @@
+package com.thinkbiganalytics.feedmgr.nifi;
+
+/*-
+ * #%L
+ * thinkbig-feed-manager-controller
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.ImmutableMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+public class NifiFlowCacheChangeLogTest {
+
+    /**
+     * Verify the changes made since a version are returned in order.
+     */
+    @Test
+    public void getChanges() {
+        final NifiFlowCacheChangeLog changeLog = new NifiFlowCacheChangeLog();
+        changeLog.append(NifiFlowCacheChangeLog.Type.FEED, "sales.orders", null);
+        changeLog.appendAll(NifiFlowCacheChangeLog.Type.PROCESSOR_NAME, ImmutableMap.of("p1", "GetFile", "p2", "PutHDFS"));
+        Assert.assertEquals(3, changeLog.getVersion());
+
+        final Optional<List<NifiFlowCacheChangeLog.Change>> changes = changeLog.getChanges(1);
+        Assert.assertTrue(changes.isPresent());
+        Assert.assertEquals(2, changes.get().size());
+        Assert.assertEquals("p1", changes.get().get(0).getKey());
+        Assert.assertEquals("GetFile", changes.get().get(0).getValue());
+        Assert.assertEquals(3, changes.get().get(1).getVersion());
+
+        Assert.assertTrue(changeLog.getChanges(3).get().isEmpty());
+        Assert.assertFalse(changeLog.getChanges(4).isPresent());
+    }
+
+    /**
+     * Verify compacted changes are no longer available.
+     */
+    @Test
+    public void compact() {
+        final NifiFlowCacheChangeLog changeLog = new NifiFlowCacheChangeLog();
+        changeLog.appendAll(NifiFlowCacheChangeLog.Type.PROCESSOR_FEED_NAME, ImmutableMap.of("p1", "sales.orders", "p2", "sales.orders", "p3", "sales.leads"));
+        changeLog.compact(2);
+
+        Assert.assertEquals(1, changeLog.size());
+        Assert.assertFalse(changeLog.getChanges(1).isPresent());
+        Assert.assertEquals("p3", changeLog.getChanges(2).get().get(0).getKey());
+    }
+
+    /**
+     * Verify every sync needs a full copy after a reset, including syncs that were up to date.
+     */
+    @Test
+    public void reset() {
+        final NifiFlowCacheChangeLog changeLog = new NifiFlowCacheChangeLog();
+        changeLog.append(NifiFlowCacheChangeLog.Type.STREAMING_FEED, "sales.orders", null);
+        changeLog.reset();
+
+        Assert.assertEquals(0, changeLog.size());
+        Assert.assertEquals(2, changeLog.getVersion());
+        Assert.assertFalse(changeLog.getChanges(0).isPresent());
+        Assert.assertFalse(changeLog.getChanges(1).isPresent());
+        Assert.assertTrue(changeLog.getChanges(2).get().isEmpty());
+
+        // Changes after the reset are available to syncs with the new version
+        changeLog.append(NifiFlowCacheChangeLog.Type.FEED, "sales.orders", null);
+        Assert.assertEquals("sales.orders", changeLog.getChanges(2).get().get(0).getKey());
+    }
+}
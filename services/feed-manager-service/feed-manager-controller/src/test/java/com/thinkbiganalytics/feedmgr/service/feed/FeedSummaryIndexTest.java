@@ -0,0 +1,155 @@
+package com.thinkbiganalytics.feedmgr.service.feed;
+
+/*-
+ * #%L
+ * thinkbig-feed-manager-controller
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.feedmgr.rest.model.FeedSummary;
+import com.thinkbiganalytics.jobrepo.query.model.SearchResult;
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.MetadataAction;
+import com.thinkbiganalytics.metadata.api.MetadataCommand;
+import com.thinkbiganalytics.metadata.api.event.MetadataChange;
+import com.thinkbiganalytics.metadata.api.event.MetadataEventListener;
+import com.thinkbiganalytics.metadata.api.event.MetadataEventService;
+import com.thinkbiganalytics.metadata.api.event.feed.FeedChange;
+import com.thinkbiganalytics.metadata.api.event.feed.FeedChangeEvent;
+import com.thinkbiganalytics.metadata.api.feed.Feed;
+import com.thinkbiganalytics.metadata.api.feedmgr.feed.FeedManagerFeed;
+import com.thinkbiganalytics.metadata.api.feedmgr.feed.FeedManagerFeedProvider;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+public class FeedSummaryIndexTest {
+
+    /**
+     * Verify paging the feed summaries in the default order.
+     */
+    @Test
+    public void pageDefaultOrder() {
+        final SearchResult result = FeedSummaryIndex.page(summaries(), null, null, 1, 2);
+        Assert.assertEquals(Long.valueOf(4), result.getRecordsTotal());
+        Assert.assertEquals(Long.valueOf(4), result.getRecordsFiltered());
+        Assert.assertEquals("[sales.leads, sales.orders]", names(result).toString());
+    }
+
+    /**
+     * Verify filtering and sorting the feed summaries.
+     */
+    @Test
+    public void pageFilterAndSort() {
+        final SearchResult result = FeedSummaryIndex.page(summaries(), "SALES", "-feedName", 0, 10);
+        Assert.assertEquals(Long.valueOf(4), result.getRecordsTotal());
+        Assert.assertEquals(Long.valueOf(3), result.getRecordsFiltered());
+        Assert.assertEquals("[sales.orders, sales.leads, sales.accounts]", names(result).toString());
+    }
+
+    /**
+     * Verify an unknown sort property is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void pageInvalidSort() {
+        FeedSummaryIndex.page(summaries(), null, "unknown", 0, 10);
+    }
+
+    /**
+     * Verify a feed state change event updates the summary in the index.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void refreshOnFeedStateChange() throws Exception {
+        // Mock the metadata store
+        final MetadataAccess metadataAccess = Mockito.mock(MetadataAccess.class);
+        Mockito.when(metadataAccess.read(Mockito.any(MetadataCommand.class), Mockito.<Principal>anyVararg()))
+            .then(invocation -> invocation.getArgumentAt(0, MetadataCommand.class).execute());
+        Mockito.doAnswer(invocation -> {
+            invocation.getArgumentAt(0, MetadataAction.class).execute();
+            return null;
+        }).when(metadataAccess).read(Mockito.any(MetadataAction.class), Mockito.<Principal>anyVararg());
+
+        final Feed.ID feedId = Mockito.mock(Feed.ID.class);
+        Mockito.when(feedId.toString()).thenReturn("sales.orders");
+        final FeedManagerFeed feed = Mockito.mock(FeedManagerFeed.class);
+        final FeedManagerFeedProvider feedManagerFeedProvider = Mockito.mock(FeedManagerFeedProvider.class);
+        Mockito.when(feedManagerFeedProvider.findAll()).thenReturn(Collections.singletonList(feed));
+        Mockito.when(feedManagerFeedProvider.resolveId("sales.orders")).thenReturn(feedId);
+        Mockito.when(feedManagerFeedProvider.findById(feedId)).thenReturn(feed);
+
+        final AtomicReference<String> state = new AtomicReference<>(Feed.State.ENABLED.name());
+        final FeedModelTransform feedModelTransform = Mockito.mock(FeedModelTransform.class);
+        Mockito.when(feedModelTransform.domainToFeedSummary(feed)).then(invocation -> {
+            final FeedSummary summary = summary("sales", "orders", "Orders");
+            summary.setState(state.get());
+            return summary;
+        });
+
+        final MetadataEventService metadataEventService = Mockito.mock(MetadataEventService.class);
+
+        // Create the index
+        final FeedSummaryIndex index = new FeedSummaryIndex();
+        ReflectionTestUtils.setField(index, "metadataAccess", metadataAccess);
+        ReflectionTestUtils.setField(index, "metadataEventService", metadataEventService);
+        ReflectionTestUtils.setField(index, "feedManagerFeedProvider", feedManagerFeedProvider);
+        ReflectionTestUtils.setField(index, "feedModelTransform", feedModelTransform);
+        index.addEventListeners();
+
+        final ArgumentCaptor<MetadataEventListener> listeners = ArgumentCaptor.forClass(MetadataEventListener.class);
+        Mockito.verify(metadataEventService, Mockito.times(3)).addListener(listeners.capture());
+        final MetadataEventListener<FeedChangeEvent> feedChangeListener = listeners.getAllValues().get(0);
+        Assert.assertEquals(Feed.State.ENABLED.name(), index.getAll().get(0).getState());
+
+        // Test disabling the feed
+        state.set(Feed.State.DISABLED.name());
+        feedChangeListener.notify(new FeedChangeEvent(new FeedChange(MetadataChange.ChangeType.UPDATE, feedId, Feed.State.DISABLED)));
+        Assert.assertEquals(Feed.State.DISABLED.name(), index.getAll().get(0).getState());
+    }
+
+    private List<FeedSummary> summaries() {
+        final List<FeedSummary> summaries = new ArrayList<>();
+        summaries.add(summary("sales", "orders", "Orders"));
+        summaries.add(summary("marketing", "campaigns", "Campaigns"));
+        summaries.add(summary("sales", "accounts", "Accounts"));
+        summaries.add(summary("sales", "leads", "Leads"));
+        return summaries;
+    }
+
+    private FeedSummary summary(String category, String feed, String displayName) {
+        final FeedSummary summary = new FeedSummary();
+        summary.setId(category + "." + feed);
+        summary.setSystemCategoryName(category);
+        summary.setSystemFeedName(feed);
+        summary.setFeedName(displayName);
+        return summary;
+    }
+
+    private List<String> names(SearchResult result) {
+        return result.getData().stream().map(summary -> ((FeedSummary) summary).getId()).collect(Collectors.toList());
+    }
+}
@@ -31,6 +31,7 @@ import org.springframework.messaging.Message;
 import org.springframework.stereotype.Component;
 
 import java.io.Serializable;
+import java.util.Map;
 
 import javax.jms.JMSException;
 import javax.jms.Session;
@@ -65,6 +66,21 @@ public class SendJmsMessage {
     }
 
 
+    /**
+     * Send the already encoded bytes as a JMS BytesMessage
+     *
+     * @param queueName the queue to send to
+     * @param bytes     the encoded payload
+     * @param headers   any headers to send as JMS message properties
+     */
+    public void sendBytesToQueue(String queueName, final byte[] bytes, final Map<String, Object> headers) throws JmsException {
+        log.info("Sending ActiveMQ message of {} bytes to queue [{}]", bytes.length, queueName);
+
+        jmsMessagingTemplate.convertAndSend(queueName, bytes, headers);
+
+    }
+
+
     public void sendObjectToQueue(String queueName, final Object obj, final String objectClassType) throws JmsException {
         log.info("Sending ActiveMQ message [" + obj + "] to queue [" + queueName + "]");
         MessageCreator creator = new MessageCreator() {
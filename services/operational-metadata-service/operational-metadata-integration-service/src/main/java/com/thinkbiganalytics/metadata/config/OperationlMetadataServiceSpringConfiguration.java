@@ -22,9 +22,11 @@ package com.thinkbiganalytics.metadata.config;
 
 import com.thinkbiganalytics.alerts.api.AlertProvider;
 import com.thinkbiganalytics.metadata.jobrepo.nifi.provenance.NifiStatsJmsReceiver;
+import com.thinkbiganalytics.metadata.jobrepo.nifi.provenance.NifiStatsRetentionTask;
 import com.thinkbiganalytics.metadata.sla.DefaultServiceLevelAgreementScheduler;
 import com.thinkbiganalytics.metadata.sla.JpaJcrServiceLevelAgreementChecker;
 import com.thinkbiganalytics.metadata.sla.ServiceLevelAgreementActionAlertResponderFactory;
+import com.thinkbiganalytics.metadata.sla.ServiceLevelAgreementEngine;
 import com.thinkbiganalytics.metadata.sla.spi.ServiceLevelAgreementChecker;
 import com.thinkbiganalytics.metadata.sla.spi.ServiceLevelAgreementScheduler;
 
@@ -43,11 +45,21 @@ public class OperationlMetadataServiceSpringConfiguration {
         return new NifiStatsJmsReceiver();
     }
 
+    @Bean
+    public NifiStatsRetentionTask nifiStatsRetentionTask() {
+        return new NifiStatsRetentionTask();
+    }
+
     @Bean
     public ServiceLevelAgreementScheduler serviceLevelAgreementScheduler() {
         return new DefaultServiceLevelAgreementScheduler();
     }
 
+    @Bean
+    public ServiceLevelAgreementEngine serviceLevelAgreementEngine() {
+        return new ServiceLevelAgreementEngine();
+    }
+
     @Bean
     public ServiceLevelAgreementChecker serviceLevelAgreementChecker() {
         return new JpaJcrServiceLevelAgreementChecker();
@@ -26,12 +26,19 @@ import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiFeedProcessorStatisti
 import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiFeedProcessorStats;
 import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.JpaNifiFeedProcessorStats;
 import com.thinkbiganalytics.nifi.activemq.Queues;
+import com.thinkbiganalytics.nifi.provenance.model.codec.ProvenanceBatchCodecs;
 import com.thinkbiganalytics.nifi.provenance.model.stats.AggregatedFeedProcessorStatisticsHolder;
 import com.thinkbiganalytics.nifi.provenance.model.stats.GroupedStats;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.jms.annotation.JmsListener;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.Payload;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 import javax.inject.Inject;
@@ -41,6 +48,19 @@ import javax.inject.Inject;
  */
 public class NifiStatsJmsReceiver {
 
+    private static final Logger log = LoggerFactory.getLogger(NifiStatsJmsReceiver.class);
+
+    /**
+     * Number of times to try saving a batch of stats that conflicts with another transaction
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * Order in which stats are saved
+     */
+    private static final Comparator<NifiFeedProcessorStats> STATS_ORDER = Comparator.comparing(NifiFeedProcessorStats::getFeedName, Comparator.nullsFirst(Comparator.naturalOrder()))
+        .thenComparing(NifiFeedProcessorStats::getProcessorId, Comparator.nullsFirst(Comparator.naturalOrder()))
+        .thenComparing(NifiFeedProcessorStats::getMinEventTime, Comparator.nullsFirst(Comparator.naturalOrder()));
 
     @Inject
     private NifiFeedProcessorStatisticsProvider nifiEventStatisticsProvider;
@@ -49,17 +69,48 @@ public class NifiStatsJmsReceiver {
     private MetadataAccess metadataAccess;
 
 
-    @JmsListener(destination = Queues.PROVENANCE_EVENT_STATS_QUEUE, containerFactory = ActiveMqConstants.JMS_CONTAINER_FACTORY)
-    public void receiveTopic(AggregatedFeedProcessorStatisticsHolder stats) {
+    /**
+     * Process the stats that were encoded with a {@link com.thinkbiganalytics.nifi.provenance.model.codec.ProvenanceBatchCodec}
+     *
+     * @param bytes the encoded stats obtained from JMS
+     * @param codec the name of the codec used to encode the stats
+     */
+    @JmsListener(destination = Queues.PROVENANCE_EVENT_STATS_QUEUE, containerFactory = ActiveMqConstants.JMS_CONTAINER_FACTORY,
+                 selector = ProvenanceBatchCodecs.ENCODED_MESSAGE_SELECTOR)
+    public void receiveEncodedTopic(@Payload byte[] bytes, @Header(ProvenanceBatchCodecs.CODEC_PROPERTY) String codec) {
+        AggregatedFeedProcessorStatisticsHolder stats;
+        try {
+            stats = ProvenanceBatchCodecs.getCodec(codec).decodeStats(bytes);
+        } catch (IOException e) {
+            log.error("Unable to decode {} bytes of stats from the {} queue using the {} codec ", bytes.length, Queues.PROVENANCE_EVENT_STATS_QUEUE, codec, e);
+            return;
+        }
+        receiveTopic(stats);
+    }
 
-        metadataAccess.commit(() -> {
-            List<NifiFeedProcessorStats> summaryStats = createSummaryStats(stats);
-            for (NifiFeedProcessorStats stat : summaryStats) {
-                nifiEventStatisticsProvider.create(stat);
+    @JmsListener(destination = Queues.PROVENANCE_EVENT_STATS_QUEUE, containerFactory = ActiveMqConstants.JMS_CONTAINER_FACTORY,
+                 selector = ProvenanceBatchCodecs.OBJECT_MESSAGE_SELECTOR)
+    public void receiveTopic(AggregatedFeedProcessorStatisticsHolder stats) {
+        for (int attempt = 1; ; ++attempt) {
+            try {
+                metadataAccess.commit(() -> {
+                    // Stats are saved in a consistent order so that concurrent receivers lock the rollups in the same order
+                    List<NifiFeedProcessorStats> summaryStats = createSummaryStats(stats);
+                    summaryStats.sort(STATS_ORDER);
+                    for (NifiFeedProcessorStats stat : summaryStats) {
+                        nifiEventStatisticsProvider.create(stat);
+                    }
+                    return summaryStats;
+                }, MetadataAccess.SERVICE);
+                return;
+            } catch (RuntimeException e) {
+                // Another receiver may have created the same rollup bucket
+                if (attempt >= MAX_ATTEMPTS || !ProvenanceEventReceiver.isConflict(e)) {
+                    throw e;
+                }
+                log.warn("Conflict saving the NiFi feed processor stats. Retry attempt # {}", attempt, e);
             }
-            return summaryStats;
-        }, MetadataAccess.SERVICE);
-
+        }
     }
 
     private List<NifiFeedProcessorStats> createSummaryStats(AggregatedFeedProcessorStatisticsHolder holder) {
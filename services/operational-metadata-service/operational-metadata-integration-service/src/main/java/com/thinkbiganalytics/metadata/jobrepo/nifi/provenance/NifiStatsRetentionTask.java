@@ -0,0 +1,101 @@
+package com.thinkbiganalytics.metadata.jobrepo.nifi.provenance;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-integration-service
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiFeedProcessorStatisticsProvider;
+
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+/**
+ * Periodically deletes the raw NiFi feed processor statistics and the minute rollups that are older than their retention period.
+ * The hour and day rollups are kept so that long time frames can still be charted.
+ */
+public class NifiStatsRetentionTask {
+
+    private static final Logger log = LoggerFactory.getLogger(NifiStatsRetentionTask.class);
+
+    @Inject
+    private NifiFeedProcessorStatisticsProvider nifiEventStatisticsProvider;
+
+    @Inject
+    private MetadataAccess metadataAccess;
+
+    /**
+     * Number of days of raw stats to keep, or 0 to keep all
+     */
+    @Value("${kylo.ops.mgr.stats.retention.days:7}")
+    private int retentionDays;
+
+    /**
+     * Number of days of minute rollups to keep, or 0 to keep all
+     */
+    @Value("${kylo.ops.mgr.stats.retention.minuteRollupDays:14}")
+    private int minuteRollupRetentionDays;
+
+    private ScheduledExecutorService executor;
+
+    @PostConstruct
+    private void init() {
+        if (retentionDays > 0 || minuteRollupRetentionDays > 0) {
+            executor = Executors.newSingleThreadScheduledExecutor();
+            executor.scheduleWithFixedDelay(this::deleteExpiredStatistics, 5, 60, TimeUnit.MINUTES);
+        }
+    }
+
+    @PreDestroy
+    private void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Deletes the stats and minute rollups older than their retention period
+     */
+    public void deleteExpiredStatistics() {
+        try {
+            DateTime now = DateTime.now();
+            if (retentionDays > 0) {
+                long deleted = metadataAccess.commit(() -> nifiEventStatisticsProvider.deleteStatisticsBefore(now.minusDays(retentionDays)), MetadataAccess.SERVICE);
+                log.info("Deleted {} NiFi feed processor statistics older than {} days", deleted, retentionDays);
+            }
+            if (minuteRollupRetentionDays > 0) {
+                long deleted = metadataAccess.commit(() -> nifiEventStatisticsProvider.deleteRollupsBefore(NifiFeedProcessorStatisticsProvider.RollupInterval.MINUTE,
+                                                                                                          now.minusDays(minuteRollupRetentionDays)), MetadataAccess.SERVICE);
+                log.info("Deleted {} minute rollups of NiFi feed processor statistics older than {} days", deleted, minuteRollupRetentionDays);
+            }
+        } catch (Exception e) {
+            log.error("Unable to delete the expired NiFi feed processor statistics", e);
+        }
+    }
+}
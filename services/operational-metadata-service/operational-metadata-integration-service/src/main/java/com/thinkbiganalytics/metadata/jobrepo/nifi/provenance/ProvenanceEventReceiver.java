@@ -43,24 +43,40 @@ import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.NifiEventProvider;
 import com.thinkbiganalytics.nifi.activemq.Queues;
 import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
 import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTOHolder;
+import com.thinkbiganalytics.nifi.provenance.model.codec.ProvenanceBatchCodecs;
 import com.thinkbiganalytics.nifi.rest.client.LegacyNifiRestClient;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.nifi.web.api.dto.BulletinDTO;
+import org.hibernate.exception.ConstraintViolationException;
 import org.hibernate.exception.LockAcquisitionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.jms.annotation.JmsListener;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLTransactionRollbackException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
+import javax.persistence.EntityExistsException;
+import javax.persistence.LockTimeoutException;
+import javax.persistence.OptimisticLockException;
+import javax.persistence.PessimisticLockException;
 
 /**
  * JMS Listener for NiFi Provenance Events.
@@ -131,6 +147,12 @@ public class ProvenanceEventReceiver implements FailedStepExecutionListener, Del
      */
     private int lockAcquisitionRetryAmount = 4;
 
+    /**
+     * Persist each batch of events received from NiFi in a single transaction rather than a transaction per event
+     */
+    @Value("${kylo.ops.mgr.provenance.batch.enabled:true}")
+    private boolean batchPersistence;
+
 
     /**
      * default constructor creates the feed cache
@@ -180,13 +202,121 @@ public class ProvenanceEventReceiver implements FailedStepExecutionListener, Del
      *
      * @param events The events obtained from JMS
      */
-    @JmsListener(destination = Queues.FEED_MANAGER_QUEUE, containerFactory = ActiveMqConstants.JMS_CONTAINER_FACTORY, concurrency = "3-10")
+    @JmsListener(destination = Queues.FEED_MANAGER_QUEUE, containerFactory = ActiveMqConstants.JMS_CONTAINER_FACTORY, concurrency = "3-10",
+                 selector = ProvenanceBatchCodecs.OBJECT_MESSAGE_SELECTOR)
     public void receiveEvents(ProvenanceEventRecordDTOHolder events) {
         log.info("About to process {} events from the {} queue ", events.getEvents().size(), Queues.FEED_MANAGER_QUEUE);
-        events.getEvents().stream()
-            .filter(this::isRegisteredWithFeedManager)
-            .filter(this::ensureNewEvent)
-            .forEach(event -> processEvent(event, 0));
+        if (batchPersistence) {
+            processEvents(uniqueEvents(events.getEvents()).stream()
+                              .filter(this::isRegisteredWithFeedManager)
+                              .collect(Collectors.toList()));
+        } else {
+            events.getEvents().stream()
+                .filter(this::isRegisteredWithFeedManager)
+                .filter(this::ensureNewEvent)
+                .forEach(event -> processEvent(event, 0));
+        }
+    }
+
+    /**
+     * Process the Events from NiFi that were encoded with a {@link com.thinkbiganalytics.nifi.provenance.model.codec.ProvenanceBatchCodec}
+     *
+     * @param bytes the encoded events obtained from JMS
+     * @param codec the name of the codec used to encode the events
+     */
+    @JmsListener(destination = Queues.FEED_MANAGER_QUEUE, containerFactory = ActiveMqConstants.JMS_CONTAINER_FACTORY, concurrency = "3-10",
+                 selector = ProvenanceBatchCodecs.ENCODED_MESSAGE_SELECTOR)
+    public void receiveEncodedEvents(@Payload byte[] bytes, @Header(ProvenanceBatchCodecs.CODEC_PROPERTY) String codec) {
+        ProvenanceEventRecordDTOHolder events;
+        try {
+            events = ProvenanceBatchCodecs.getCodec(codec).decodeEvents(bytes);
+        } catch (IOException e) {
+            log.error("Unable to decode {} bytes of events from the {} queue using the {} codec ", bytes.length, Queues.FEED_MANAGER_QUEUE, codec, e);
+            return;
+        }
+        receiveEvents(events);
+    }
+
+    /**
+     * Persist a batch of events along with their Jobs and Steps in a single transaction.
+     * The existing events and job executions for the batch are each resolved with one query and the new records are written using JDBC batches.
+     * If the batch cannot be saved because of a conflict (i.e. another consumer wrote one of the events or jobs concurrently, or the database could not acquire a lock)
+     * the transaction is rolled back and each event is processed individually using {@link #processEvent(ProvenanceEventRecordDTO, int)}.
+     * Any other failure would fail the same way for each event so the batch is logged and not retried.
+     *
+     * @param events the unique events, in order, for feeds registered with Feed Manager
+     */
+    private void processEvents(List<ProvenanceEventRecordDTO> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        List<ProvenanceEventRecordDTO> savedEvents;
+        try {
+            savedEvents = metadataAccess.commit(() -> {
+                List<ProvenanceEventRecordDTO> newEvents = nifiEventProvider.findNewEvents(events);
+                List<NifiEvent> nifiEvents = nifiEventProvider.create(newEvents);
+
+                List<ProvenanceEventRecordDTO> batchJobEvents = new ArrayList<>();
+                List<NifiEvent> batchJobNifiEvents = new ArrayList<>();
+                for (int i = 0; i < newEvents.size(); i++) {
+                    if (newEvents.get(i).isBatchJob()) {
+                        batchJobEvents.add(newEvents.get(i));
+                        batchJobNifiEvents.add(nifiEvents.get(i));
+                    }
+                }
+                if (!batchJobEvents.isEmpty()) {
+                    batchJobExecutionProvider.save(batchJobEvents, batchJobNifiEvents);
+                }
+                return newEvents;
+            }, MetadataAccess.SERVICE);
+        } catch (Exception e) {
+            if (!isConflict(e)) {
+                log.error("Error processing the batch of {} events with event ids {} - {} ", events.size(), events.get(0).getEventId(), events.get(events.size() - 1).getEventId(), e);
+                return;
+            }
+            log.warn("Unable to save the batch of {} events in a single transaction.  Processing each event individually. {} ", events.size(), e.getMessage());
+            log.debug("Batch save failure ", e);
+            events.stream()
+                .filter(this::ensureNewEvent)
+                .forEach(event -> processEvent(event, 0));
+            return;
+        }
+        savedEvents.stream()
+            .filter(ProvenanceEventRecordDTO::isFinalJobEvent)
+            .forEach(this::notifyJobFinished);
+    }
+
+    /**
+     * Check to see if the exception, or any of its causes, was caused by a lock or constraint conflict with another transaction
+     *
+     * @param e the exception thrown saving a batch
+     * @return {@code true} if processing the events individually may succeed, {@code false} otherwise
+     */
+    static boolean isConflict(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = (cause.getCause() != cause ? cause.getCause() : null)) {
+            if (cause instanceof LockAcquisitionException || cause instanceof ConstraintViolationException
+                || cause instanceof ConcurrencyFailureException || cause instanceof DataIntegrityViolationException
+                || cause instanceof PessimisticLockException || cause instanceof LockTimeoutException || cause instanceof OptimisticLockException
+                || cause instanceof EntityExistsException
+                || cause instanceof SQLIntegrityConstraintViolationException || cause instanceof SQLTransactionRollbackException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Remove any duplicate events (same event id and flow file) from the batch, keeping the order of the first occurrence
+     *
+     * @param events the events received from NiFi
+     * @return the unique events
+     */
+    private Collection<ProvenanceEventRecordDTO> uniqueEvents(List<ProvenanceEventRecordDTO> events) {
+        Map<String, ProvenanceEventRecordDTO> uniqueEvents = new LinkedHashMap<>();
+        for (ProvenanceEventRecordDTO event : events) {
+            uniqueEvents.putIfAbsent(event.getEventId() + "_" + event.getFlowFileUuid(), event);
+        }
+        return uniqueEvents.values();
     }
 
     /**
@@ -57,6 +57,7 @@ public class DefaultServiceLevelAgreementScheduler implements ServiceLevelAgreem
     private static final Logger log = LoggerFactory.getLogger(DefaultServiceLevelAgreementScheduler.class);
     @Inject
     ServiceLevelAgreementProvider slaProvider;
+    private static final String ENGINE_JOB_NAME = "SLA Engine";
     private String DEFAULT_CRON = "0 0/5 * 1/1 * ? *";// every 5 min
     @Value("${sla.cron.default:0 0/5 * 1/1 * ? *}")
     private String defaultCron;
@@ -68,10 +69,23 @@ public class DefaultServiceLevelAgreementScheduler implements ServiceLevelAgreem
     private MetadataAccess metadataAccess;
     @Inject
     private ModeShapeAvailability modeShapeAvailability;
+    @Inject
+    private ServiceLevelAgreementEngine slaEngine;
+
+    /**
+     * Assess SLAs that share a schedule together using the {@link ServiceLevelAgreementEngine} instead of scheduling a job for each SLA
+     */
+    @Value("${sla.engine.enabled:true}")
+    private boolean engineEnabled = true;
 
 
     private Map<ServiceLevelAgreement.ID, String> scheduledJobNames = new ConcurrentHashMap<>();
 
+    /**
+     * Engine job names by cron expression
+     */
+    private Map<String, String> engineJobNames = new ConcurrentHashMap<>();
+
 
     @PostConstruct
     public void scheduleServiceLevelAgreements() {
@@ -144,6 +158,10 @@ public class DefaultServiceLevelAgreementScheduler implements ServiceLevelAgreem
      * @return true if we were able to remove the SLA from the scheduler
      */
     public boolean unscheduleServiceLevelAgreement(ServiceLevelAgreement.ID slaId) {
+        if (engineEnabled) {
+            return slaEngine.unregister(slaId);
+        }
+
         boolean unscheduled = false;
         JobIdentifier scheduledJobId = null;
         try {
@@ -224,6 +242,11 @@ public class DefaultServiceLevelAgreementScheduler implements ServiceLevelAgreem
      * @param sla The SLA to schedule
      */
     public void scheduleServiceLevelAgreement(ServiceLevelAgreement sla) {
+        if (engineEnabled) {
+            scheduleWithEngine(sla);
+            return;
+        }
+
         try {
             //Delete any jobs with this SLA if they already exist
             if (scheduledJobNames.containsKey(sla.getId())) {
@@ -263,6 +286,27 @@ public class DefaultServiceLevelAgreementScheduler implements ServiceLevelAgreem
         }
     }
 
+    /**
+     * Registers an SLA with the engine, scheduling a job for the engine to assess all SLAs with the same cron expression
+     *
+     * @param sla The SLA to schedule
+     */
+    private synchronized void scheduleWithEngine(ServiceLevelAgreement sla) {
+        final String cron = StringUtils.isBlank(defaultCron) ? DEFAULT_CRON : defaultCron;
+        slaEngine.register(sla.getId(), cron);
+
+        if (!engineJobNames.containsKey(cron)) {
+            JobIdentifier jobIdentifier = jobIdentifierForName(ENGINE_JOB_NAME + (engineJobNames.isEmpty() ? "" : "-" + engineJobNames.size()));
+            try {
+                jobScheduler.scheduleWithCronExpression(jobIdentifier, () -> slaEngine.assess(cron), cron);
+                log.debug("Schedule sla engine job " + jobIdentifier.getName());
+                engineJobNames.put(cron, jobIdentifier.getName());
+            } catch (JobSchedulerException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
     /**
      * Called be the framework when the job is scheduled this is where we manage the life cycle of the SLAs
      *
@@ -0,0 +1,429 @@
+package com.thinkbiganalytics.metadata.sla;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-integration-service
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.Lists;
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.event.MetadataEventListener;
+import com.thinkbiganalytics.metadata.api.event.MetadataEventService;
+import com.thinkbiganalytics.metadata.api.event.feed.FeedOperationStatusEvent;
+import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecution;
+import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecutionProvider;
+import com.thinkbiganalytics.metadata.api.jobrepo.job.PrefetchedJobExecutions;
+import com.thinkbiganalytics.metadata.api.sla.FeedMetric;
+import com.thinkbiganalytics.metadata.sla.api.AssessmentResult;
+import com.thinkbiganalytics.metadata.sla.api.Metric;
+import com.thinkbiganalytics.metadata.sla.api.Obligation;
+import com.thinkbiganalytics.metadata.sla.api.ServiceLevelAgreement;
+import com.thinkbiganalytics.metadata.sla.api.ServiceLevelAssessment;
+import com.thinkbiganalytics.metadata.sla.spi.ServiceLevelAgreementChecker;
+import com.thinkbiganalytics.metadata.sla.spi.ServiceLevelAgreementProvider;
+
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+/**
+ * Assesses all of the service level agreements that share a schedule in a single run, instead of each agreement running as its own job.
+ *
+ * <p>Each run loads the agreements in one transaction, reads the latest completed job of every referenced feed in bulk, and then assesses the agreements in
+ * batches. If a batch fails then each of its agreements is assessed again in its own transaction. Agreements whose metrics only change when a feed runs are
+ * skipped if their last assessment succeeded and none of their feeds have reported a status since then.</p>
+ */
+public class ServiceLevelAgreementEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(ServiceLevelAgreementEngine.class);
+
+    /**
+     * Agreements by schedule
+     */
+    private final Map<String, Set<ServiceLevelAgreement.ID>> schedules = new ConcurrentHashMap<>();
+
+    /**
+     * State of each registered agreement
+     */
+    private final Map<ServiceLevelAgreement.ID, AgreementState> agreementStates = new ConcurrentHashMap<>();
+
+    /**
+     * Time of the last status event by feed name
+     */
+    private final Map<String, DateTime> feedEventTimes = new ConcurrentHashMap<>();
+
+    /**
+     * Records the time of feed status events
+     */
+    private final FeedStatusEventListener feedStatusEventListener = new FeedStatusEventListener();
+
+    private final AtomicLong runCount = new AtomicLong();
+    private final AtomicLong assessedCount = new AtomicLong();
+    private final AtomicLong skippedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong assessmentNanos = new AtomicLong();
+    private volatile long lastRunMillis;
+
+    /**
+     * Number of agreements assessed in each transaction
+     */
+    @Value("${sla.engine.batchSize:50}")
+    private int batchSize = 50;
+
+    @Inject
+    private ServiceLevelAgreementProvider slaProvider;
+
+    @Inject
+    private ServiceLevelAgreementChecker slaChecker;
+
+    @Inject
+    private BatchJobExecutionProvider batchJobExecutionProvider;
+
+    @Inject
+    private MetadataAccess metadataAccess;
+
+    @Inject
+    private MetadataEventService eventService;
+
+    @PostConstruct
+    public void addEventListener() {
+        eventService.addListener(feedStatusEventListener);
+    }
+
+    @PreDestroy
+    public void removeEventListener() {
+        eventService.removeListener(feedStatusEventListener);
+    }
+
+    /**
+     * Adds the agreement to the specified schedule, removing it from any other schedule.
+     *
+     * @param slaId    the agreement id
+     * @param schedule the cron expression of the schedule
+     */
+    public void register(ServiceLevelAgreement.ID slaId, String schedule) {
+        schedules.forEach((cron, ids) -> {
+            if (!cron.equals(schedule)) {
+                ids.remove(slaId);
+            }
+        });
+        schedules.computeIfAbsent(schedule, cron -> ConcurrentHashMap.newKeySet()).add(slaId);
+        agreementStates.remove(slaId);
+    }
+
+    /**
+     * Removes the agreement from its schedule.
+     *
+     * @param slaId the agreement id
+     * @return {@code true} if the agreement was registered
+     */
+    public boolean unregister(ServiceLevelAgreement.ID slaId) {
+        boolean removed = false;
+        for (Set<ServiceLevelAgreement.ID> ids : schedules.values()) {
+            removed |= ids.remove(slaId);
+        }
+        agreementStates.remove(slaId);
+        return removed;
+    }
+
+    /**
+     * Indicates if the agreement is registered with a schedule.
+     */
+    public boolean isRegistered(ServiceLevelAgreement.ID slaId) {
+        return schedules.values().stream().anyMatch(ids -> ids.contains(slaId));
+    }
+
+    /**
+     * Assesses the agreements registered with the specified schedule.
+     *
+     * @param schedule the cron expression of the schedule
+     */
+    public void assess(String schedule) {
+        final Set<ServiceLevelAgreement.ID> slaIds = schedules.getOrDefault(schedule, Collections.emptySet());
+        if (slaIds.isEmpty()) {
+            return;
+        }
+
+        final long start = System.nanoTime();
+        final DateTime runTime = DateTime.now();
+
+        // Load the agreements and select those that need to be assessed
+        final List<AgreementState> selected = metadataAccess.read(() -> {
+            final List<AgreementState> states = new ArrayList<>();
+            final Set<ServiceLevelAgreement.ID> found = new HashSet<>();
+
+            for (ServiceLevelAgreement agreement : slaProvider.getAgreements()) {
+                if (slaIds.contains(agreement.getId())) {
+                    found.add(agreement.getId());
+                    if (agreement.isEnabled()) {
+                        AgreementState state = agreementStates.computeIfAbsent(agreement.getId(), AgreementState::new);
+                        state.update(agreement);
+                        states.add(state);
+                    } else {
+                        log.debug("SLA {} will not fire since it is disabled", agreement.getName());
+                    }
+                }
+            }
+
+            // Agreements that no longer exist are removed from the schedule
+            slaIds.stream().filter(slaId -> !found.contains(slaId)).forEach(this::unregister);
+            return states;
+        }, MetadataAccess.SERVICE);
+
+        final List<AgreementState> toAssess = new ArrayList<>();
+        for (AgreementState state : selected) {
+            if (state.isAssessmentRequired()) {
+                toAssess.add(state);
+            } else {
+                skippedCount.incrementAndGet();
+            }
+        }
+
+        // Read the latest completed job of each feed in one query
+        final Set<String> feedNames = new HashSet<>();
+        toAssess.forEach(state -> feedNames.addAll(state.feedNames));
+
+        final Map<String, BatchJobExecution> latestJobs = new HashMap<>();
+        if (!feedNames.isEmpty()) {
+            feedNames.forEach(feedName -> latestJobs.put(feedName, null));
+            latestJobs.putAll(metadataAccess.read(() -> batchJobExecutionProvider.findLatestCompletedJobForFeeds(feedNames), MetadataAccess.SERVICE));
+        }
+
+        // Assess the agreements in batches
+        PrefetchedJobExecutions.withLatestCompleted(latestJobs, () -> {
+            Lists.partition(toAssess, Math.max(1, batchSize)).forEach(batch -> assess(batch, runTime));
+            return null;
+        });
+
+        lastRunMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        runCount.incrementAndGet();
+        log.info("Assessed {} of {} SLAs for schedule \"{}\" in {} ms. Totals: {} assessed, {} skipped, {} failed, {} ms average assessment time",
+                 toAssess.size(), selected.size(), schedule, lastRunMillis, getAssessedCount(), getSkippedCount(), getFailedCount(), getAverageAssessmentMillis());
+    }
+
+    /**
+     * Assesses the agreements in one transaction. If the transaction fails then each agreement is assessed again in its own transaction so that one failing
+     * agreement does not prevent the others from being assessed.
+     */
+    private void assess(List<AgreementState> batch, DateTime runTime) {
+        final Map<AgreementState, Boolean> results;
+        try {
+            results = metadataAccess.commit(() -> {
+                final Map<AgreementState, Boolean> batchResults = new LinkedHashMap<>();
+                for (AgreementState state : batch) {
+                    batchResults.put(state, assess(state));
+                }
+                return batchResults;
+            }, MetadataAccess.SERVICE);
+        } catch (RuntimeException e) {
+            if (batch.size() > 1) {
+                log.warn("Failed to assess a batch of {} SLAs; assessing each SLA separately", batch.size(), e);
+                batch.forEach(state -> assess(Collections.singletonList(state), runTime));
+            } else {
+                final AgreementState state = batch.get(0);
+                state.failed();
+                failedCount.incrementAndGet();
+                log.error("Failed to assess SLA {}", state.slaId, e);
+            }
+            return;
+        }
+
+        // Results are only recorded once the transaction has committed
+        results.forEach((state, succeeded) -> {
+            if (succeeded != null) {
+                state.assessed(runTime, succeeded);
+                assessedCount.incrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Assesses a single agreement. Must be called inside a metadataAccess wrapper.
+     *
+     * @return {@code true} if the assessment was successful, {@code false} if it was not, or {@code null} if the agreement no longer exists
+     */
+    private Boolean assess(AgreementState state) {
+        final long start = System.nanoTime();
+        try {
+            final ServiceLevelAgreement agreement = slaProvider.getAgreement(state.slaId);
+            if (agreement != null) {
+                final ServiceLevelAssessment assessment = slaChecker.assessAgreement(agreement);
+                return assessment != null && assessment.getResult() == AssessmentResult.SUCCESS;
+            } else {
+                return null;
+            }
+        } finally {
+            assessmentNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Gets the number of runs of all schedules.
+     */
+    public long getRunCount() {
+        return runCount.get();
+    }
+
+    /**
+     * Gets the number of agreements that have been assessed.
+     */
+    public long getAssessedCount() {
+        return assessedCount.get();
+    }
+
+    /**
+     * Gets the number of times an agreement was not assessed because its feeds had not run.
+     */
+    public long getSkippedCount() {
+        return skippedCount.get();
+    }
+
+    /**
+     * Gets the number of assessments that failed with an error.
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * Gets the average time, in milliseconds, to assess an agreement.
+     */
+    public double getAverageAssessmentMillis() {
+        final long count = assessedCount.get() + failedCount.get();
+        return (count > 0) ? TimeUnit.NANOSECONDS.toMicros(assessmentNanos.get()) / 1000.0 / count : 0;
+    }
+
+    /**
+     * Gets the time, in milliseconds, of the last run.
+     */
+    public long getLastRunMillis() {
+        return lastRunMillis;
+    }
+
+    /**
+     * Tracks what an agreement depends on and the outcome of its last assessment.
+     */
+    private class AgreementState {
+
+        final ServiceLevelAgreement.ID slaId;
+
+        /**
+         * Feeds referenced by the metrics of the agreement
+         */
+        volatile Set<String> feedNames = Collections.emptySet();
+
+        /**
+         * Indicates that every metric of the agreement only changes when one of its feeds runs
+         */
+        volatile boolean eventDriven;
+
+        /**
+         * Start time of the run that last assessed the agreement
+         */
+        volatile DateTime lastAssessedTime;
+
+        /**
+         * Indicates that the last assessment was successful
+         */
+        volatile boolean lastSucceeded;
+
+        AgreementState(ServiceLevelAgreement.ID slaId) {
+            this.slaId = slaId;
+        }
+
+        /**
+         * Reads the feeds and metric types from the agreement.
+         */
+        void update(ServiceLevelAgreement agreement) {
+            final Set<String> names = new HashSet<>();
+            boolean allEventDriven = true;
+
+            for (Obligation obligation : agreement.getObligations()) {
+                for (Metric metric : obligation.getMetrics()) {
+                    if (metric instanceof FeedMetric) {
+                        names.addAll(((FeedMetric) metric).getFeedNames());
+                        allEventDriven &= ((FeedMetric) metric).isEventDriven();
+                    } else {
+                        allEventDriven = false;
+                    }
+                }
+            }
+
+            feedNames = names;
+            eventDriven = allEventDriven && !names.isEmpty();
+        }
+
+        /**
+         * Records the result of an assessment.
+         */
+        void assessed(DateTime runTime, boolean succeeded) {
+            lastAssessedTime = runTime;
+            lastSucceeded = succeeded;
+        }
+
+        /**
+         * Records that the agreement could not be assessed, so that it is assessed again on the next run.
+         */
+        void failed() {
+            lastSucceeded = false;
+        }
+
+        /**
+         * Determines if the agreement could have changed since it was last assessed.
+         */
+        boolean isAssessmentRequired() {
+            if (!eventDriven || lastAssessedTime == null || !lastSucceeded) {
+                return true;
+            }
+            return feedNames.stream()
+                .map(feedEventTimes::get)
+                .anyMatch(eventTime -> eventTime != null && !eventTime.isBefore(lastAssessedTime));
+        }
+    }
+
+    /**
+     * Records the time that each feed last reported a status.
+     */
+    private class FeedStatusEventListener implements MetadataEventListener<FeedOperationStatusEvent> {
+
+        @Override
+        public void notify(final FeedOperationStatusEvent event) {
+            final String feedName = event.getData().getFeedName();
+            if (feedName != null) {
+                feedEventTimes.put(feedName, DateTime.now());
+            }
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.thinkbiganalytics.metadata.jobrepo.nifi.provenance;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-integration-service
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.MetadataAction;
+import com.thinkbiganalytics.metadata.api.MetadataCommand;
+import com.thinkbiganalytics.metadata.api.MetadataRollbackAction;
+import com.thinkbiganalytics.metadata.api.MetadataRollbackCommand;
+import com.thinkbiganalytics.metadata.api.event.MetadataEventService;
+import com.thinkbiganalytics.metadata.api.event.feed.FeedOperationStatusEvent;
+import com.thinkbiganalytics.metadata.api.feed.OpsManagerFeed;
+import com.thinkbiganalytics.metadata.api.feed.OpsManagerFeedProvider;
+import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecution;
+import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecutionProvider;
+import com.thinkbiganalytics.metadata.api.jobrepo.nifi.NifiEvent;
+import com.thinkbiganalytics.metadata.jpa.jobrepo.nifi.NifiEventProvider;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTO;
+import com.thinkbiganalytics.nifi.provenance.model.ProvenanceEventRecordDTOHolder;
+
+import org.hibernate.exception.LockAcquisitionException;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentMatcher;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.lang.reflect.Field;
+import java.security.Principal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class ProvenanceEventReceiverTest {
+
+    @Mock
+    private OpsManagerFeedProvider opsManagerFeedProvider;
+
+    @Mock
+    private NifiEventProvider nifiEventProvider;
+
+    @Mock
+    private BatchJobExecutionProvider batchJobExecutionProvider;
+
+    @Mock
+    private MetadataEventService eventService;
+
+    @Spy
+    private MetadataAccess metadataAccess = new StubMetadataAccess();
+
+    @InjectMocks
+    private ProvenanceEventReceiver receiver = new ProvenanceEventReceiver();
+
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+        Field batchPersistence = ProvenanceEventReceiver.class.getDeclaredField("batchPersistence");
+        batchPersistence.setAccessible(true);
+        batchPersistence.set(receiver, true);
+
+        when(opsManagerFeedProvider.findByName(anyString())).thenReturn(Mockito.mock(OpsManagerFeed.class));
+        when(nifiEventProvider.findNewEvents(anyListOf(ProvenanceEventRecordDTO.class))).thenAnswer(invocation -> invocation.getArguments()[0]);
+        when(nifiEventProvider.create(anyListOf(ProvenanceEventRecordDTO.class))).thenAnswer(invocation -> {
+            List<NifiEvent> nifiEvents = new ArrayList<>();
+            for (Object event : (List<?>) invocation.getArguments()[0]) {
+                nifiEvents.add(Mockito.mock(NifiEvent.class));
+            }
+            return nifiEvents;
+        });
+        when(batchJobExecutionProvider.getOrCreateJobExecution(any(ProvenanceEventRecordDTO.class))).thenReturn(Mockito.mock(BatchJobExecution.class));
+    }
+
+    /**
+     * The batch is saved in one transaction and the finished job is announced
+     */
+    @Test
+    public void testBatchPersistence() {
+        ProvenanceEventRecordDTOHolder holder = newEvents(3);
+        //a duplicate of the first event is removed
+        holder.getEvents().add(holder.getEvents().get(0));
+
+        receiver.receiveEvents(holder);
+
+        verify(batchJobExecutionProvider, times(1)).save(Mockito.argThat(hasSize(3)), anyListOf(NifiEvent.class));
+        verify(batchJobExecutionProvider, never()).getOrCreateJobExecution(any(ProvenanceEventRecordDTO.class));
+        verify(nifiEventProvider, never()).exists(any(ProvenanceEventRecordDTO.class));
+        verify(eventService, times(1)).notify(any(FeedOperationStatusEvent.class));
+    }
+
+    /**
+     * A conflict with another transaction saves each event on its own
+     */
+    @Test
+    public void testConflictFallsBackToEachEvent() {
+        when(batchJobExecutionProvider.save(anyListOf(ProvenanceEventRecordDTO.class), anyListOf(NifiEvent.class)))
+            .thenThrow(new DataIntegrityViolationException("duplicate job execution"));
+
+        receiver.receiveEvents(newEvents(3));
+
+        verify(batchJobExecutionProvider, times(3)).getOrCreateJobExecution(any(ProvenanceEventRecordDTO.class));
+        verify(nifiEventProvider, times(3)).create(any(ProvenanceEventRecordDTO.class));
+        verify(eventService, times(1)).notify(any(FeedOperationStatusEvent.class));
+    }
+
+    /**
+     * Any other failure is not retried for each event
+     */
+    @Test
+    public void testOtherFailureIsNotRetried() {
+        when(batchJobExecutionProvider.save(anyListOf(ProvenanceEventRecordDTO.class), anyListOf(NifiEvent.class)))
+            .thenThrow(new IllegalStateException("unexpected"));
+
+        receiver.receiveEvents(newEvents(3));
+
+        verify(batchJobExecutionProvider, never()).getOrCreateJobExecution(any(ProvenanceEventRecordDTO.class));
+        verify(nifiEventProvider, never()).create(any(ProvenanceEventRecordDTO.class));
+        verify(eventService, never()).notify(any(FeedOperationStatusEvent.class));
+    }
+
+    @Test
+    public void testIsConflict() {
+        Assert.assertTrue(ProvenanceEventReceiver.isConflict(new LockAcquisitionException("deadlock", new SQLException())));
+        Assert.assertTrue(ProvenanceEventReceiver.isConflict(new RuntimeException(new DataIntegrityViolationException("duplicate"))));
+        Assert.assertTrue(ProvenanceEventReceiver.isConflict(new RuntimeException(new java.sql.SQLIntegrityConstraintViolationException("duplicate"))));
+        Assert.assertFalse(ProvenanceEventReceiver.isConflict(new RuntimeException(new NullPointerException())));
+        Assert.assertFalse(ProvenanceEventReceiver.isConflict(new IllegalStateException()));
+    }
+
+    /**
+     * Create a job of batch events for a registered feed, the last of which finishes the job
+     */
+    private ProvenanceEventRecordDTOHolder newEvents(int count) {
+        List<ProvenanceEventRecordDTO> events = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ProvenanceEventRecordDTO event = new ProvenanceEventRecordDTO();
+            event.setEventId((long) i);
+            event.setFlowFileUuid("flowfile-1");
+            event.setJobFlowFileId("flowfile-1");
+            event.setFeedName("category.feed");
+            event.setIsBatchJob(true);
+            event.setIsFinalJobEvent(i == count - 1);
+            events.add(event);
+        }
+        ProvenanceEventRecordDTOHolder holder = new ProvenanceEventRecordDTOHolder();
+        holder.setEvents(events);
+        return holder;
+    }
+
+    private static ArgumentMatcher<List<ProvenanceEventRecordDTO>> hasSize(int size) {
+        return new ArgumentMatcher<List<ProvenanceEventRecordDTO>>() {
+            @Override
+            public boolean matches(Object argument) {
+                return argument instanceof List && ((List<?>) argument).size() == size;
+            }
+        };
+    }
+
+    /**
+     * Runs each command immediately, passing any failure on to the caller
+     */
+    static class StubMetadataAccess implements MetadataAccess {
+
+        @Override
+        public <R> R commit(MetadataCommand<R> cmd, Principal... principals) {
+            try {
+                return cmd.execute();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public <R> R commit(MetadataCommand<R> cmd, MetadataRollbackCommand rollbackCmd, Principal... principals) {
+            return commit(cmd, principals);
+        }
+
+        @Override
+        public void commit(MetadataAction action, Principal... principals) {
+            commit(() -> {
+                action.execute();
+                return null;
+            }, principals);
+        }
+
+        @Override
+        public void commit(MetadataAction action, MetadataRollbackAction rollbackAction, Principal... principals) {
+            commit(action, principals);
+        }
+
+        @Override
+        public <R> R read(MetadataCommand<R> cmd, Principal... principals) {
+            return commit(cmd, principals);
+        }
+
+        @Override
+        public void read(MetadataAction cmd, Principal... principals) {
+            commit(cmd, principals);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.thinkbiganalytics.metadata.sla;
+
+/*-
+ * #%L
+ * thinkbig-operational-metadata-integration-service
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.metadata.api.MetadataAccess;
+import com.thinkbiganalytics.metadata.api.MetadataAction;
+import com.thinkbiganalytics.metadata.api.MetadataCommand;
+import com.thinkbiganalytics.metadata.api.MetadataRollbackAction;
+import com.thinkbiganalytics.metadata.api.MetadataRollbackCommand;
+import com.thinkbiganalytics.metadata.api.event.MetadataEventListener;
+import com.thinkbiganalytics.metadata.api.event.MetadataEventService;
+import com.thinkbiganalytics.metadata.api.event.feed.FeedOperationStatusEvent;
+import com.thinkbiganalytics.metadata.api.event.feed.OperationStatus;
+import com.thinkbiganalytics.metadata.api.jobrepo.job.BatchJobExecutionProvider;
+import com.thinkbiganalytics.metadata.api.op.FeedOperation;
+import com.thinkbiganalytics.metadata.api.sla.FeedMetric;
+import com.thinkbiganalytics.metadata.sla.api.AssessmentResult;
+import com.thinkbiganalytics.metadata.sla.api.Metric;
+import com.thinkbiganalytics.metadata.sla.api.Obligation;
+import com.thinkbiganalytics.metadata.sla.api.ServiceLevelAgreement;
+import com.thinkbiganalytics.metadata.sla.api.ServiceLevelAssessment;
+import com.thinkbiganalytics.metadata.sla.spi.ServiceLevelAgreementChecker;
+import com.thinkbiganalytics.metadata.sla.spi.ServiceLevelAgreementProvider;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class ServiceLevelAgreementEngineTest {
+
+    private static final String SCHEDULE = "0 0/5 * 1/1 * ? *";
+
+    @Mock
+    private ServiceLevelAgreementProvider slaProvider;
+
+    @Mock
+    private ServiceLevelAgreementChecker slaChecker;
+
+    @Mock
+    private BatchJobExecutionProvider batchJobExecutionProvider;
+
+    @Mock
+    private MetadataEventService eventService;
+
+    @Spy
+    private MetadataAccess metadataAccess = new StubMetadataAccess();
+
+    @InjectMocks
+    private ServiceLevelAgreementEngine engine = new ServiceLevelAgreementEngine();
+
+    /**
+     * Agreements returned by the provider
+     */
+    private final List<ServiceLevelAgreement> agreements = new ArrayList<>();
+
+    /**
+     * Receives feed status events
+     */
+    private MetadataEventListener<FeedOperationStatusEvent> feedListener;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        initMocks(this);
+        ReflectionTestUtils.setField(engine, "batchSize", 50);
+        when(slaProvider.getAgreements()).thenReturn(agreements);
+        when(batchJobExecutionProvider.findLatestCompletedJobForFeeds(anyCollectionOf(String.class))).thenReturn(Collections.emptyMap());
+
+        final ServiceLevelAssessment success = Mockito.mock(ServiceLevelAssessment.class);
+        when(success.getResult()).thenReturn(AssessmentResult.SUCCESS);
+        when(slaChecker.assessAgreement(any(ServiceLevelAgreement.class))).thenReturn(success);
+
+        final ArgumentCaptor<MetadataEventListener> listener = ArgumentCaptor.forClass(MetadataEventListener.class);
+        engine.addEventListener();
+        verify(eventService).addListener(listener.capture());
+        feedListener = listener.getValue();
+    }
+
+    /**
+     * Event-driven agreements are only assessed again after one of their feeds reports a status
+     */
+    @Test
+    public void testSkipUntilFeedEvent() {
+        final ServiceLevelAgreement first = newAgreement("category.first");
+        final ServiceLevelAgreement second = newAgreement("category.second");
+
+        engine.assess(SCHEDULE);
+        Assert.assertEquals(2, engine.getAssessedCount());
+        Assert.assertEquals(0, engine.getSkippedCount());
+
+        engine.assess(SCHEDULE);
+        Assert.assertEquals(2, engine.getAssessedCount());
+        Assert.assertEquals(2, engine.getSkippedCount());
+
+        feedListener.notify(new FeedOperationStatusEvent(new OperationStatus("category.first", null, FeedOperation.State.SUCCESS, "done")));
+        engine.assess(SCHEDULE);
+        Assert.assertEquals(3, engine.getAssessedCount());
+        Assert.assertEquals(3, engine.getSkippedCount());
+        verify(slaChecker, times(2)).assessAgreement(first);
+        verify(slaChecker, times(1)).assessAgreement(second);
+        Assert.assertEquals(0, engine.getFailedCount());
+    }
+
+    /**
+     * Agreements that are not event-driven or that failed their last assessment are always assessed
+     */
+    @Test
+    public void testAssessWithoutFeedEvent() {
+        final ServiceLevelAgreement feedAgreement = newAgreement("category.feed");
+        final ServiceLevelAgreement otherAgreement = newAgreement();
+
+        final ServiceLevelAssessment failure = Mockito.mock(ServiceLevelAssessment.class);
+        when(failure.getResult()).thenReturn(AssessmentResult.FAILURE);
+        when(slaChecker.assessAgreement(feedAgreement)).thenReturn(failure);
+
+        engine.assess(SCHEDULE);
+        engine.assess(SCHEDULE);
+        Assert.assertEquals(4, engine.getAssessedCount());
+        Assert.assertEquals(0, engine.getSkippedCount());
+        verify(slaChecker, times(2)).assessAgreement(feedAgreement);
+        verify(slaChecker, times(2)).assessAgreement(otherAgreement);
+    }
+
+    /**
+     * An agreement that fails to be assessed does not prevent the other agreements in its batch from being assessed
+     */
+    @Test
+    public void testFailureIsolation() {
+        final ServiceLevelAgreement first = newAgreement("category.first");
+        final ServiceLevelAgreement failing = newAgreement("category.failing");
+        final ServiceLevelAgreement last = newAgreement("category.last");
+        when(slaChecker.assessAgreement(failing)).thenThrow(new IllegalStateException("assessment failed"));
+
+        engine.assess(SCHEDULE);
+        Assert.assertEquals(2, engine.getAssessedCount());
+        Assert.assertEquals(1, engine.getFailedCount());
+        verify(slaChecker, times(2)).assessAgreement(first);
+        verify(slaChecker, times(2)).assessAgreement(failing);
+        verify(slaChecker, times(1)).assessAgreement(last);
+
+        // The failed agreement is assessed again on the next run
+        engine.assess(SCHEDULE);
+        Assert.assertEquals(2, engine.getAssessedCount());
+        Assert.assertEquals(2, engine.getFailedCount());
+        Assert.assertEquals(2, engine.getSkippedCount());
+        verify(slaChecker, times(3)).assessAgreement(failing);
+    }
+
+    /**
+     * Creates and registers an enabled agreement with a metric on each of the specified feeds. If no feeds are specified then the metric is not
+     * event-driven.
+     */
+    private ServiceLevelAgreement newAgreement(String... feedNames) {
+        final Metric metric;
+        if (feedNames.length > 0) {
+            final FeedMetric feedMetric = Mockito.mock(FeedMetric.class);
+            when(feedMetric.getFeedNames()).thenReturn(new HashSet<>(Arrays.asList(feedNames)));
+            when(feedMetric.isEventDriven()).thenReturn(true);
+            metric = feedMetric;
+        } else {
+            metric = Mockito.mock(Metric.class);
+        }
+
+        final Obligation obligation = Mockito.mock(Obligation.class);
+        when(obligation.getMetrics()).thenReturn(Collections.singleton(metric));
+
+        final ServiceLevelAgreement.ID id = Mockito.mock(ServiceLevelAgreement.ID.class);
+        final ServiceLevelAgreement agreement = Mockito.mock(ServiceLevelAgreement.class);
+        when(agreement.getId()).thenReturn(id);
+        when(agreement.isEnabled()).thenReturn(true);
+        when(agreement.getObligations()).thenReturn(Collections.singletonList(obligation));
+        when(slaProvider.getAgreement(id)).thenReturn(agreement);
+
+        agreements.add(agreement);
+        engine.register(id, SCHEDULE);
+        return agreement;
+    }
+
+    static class StubMetadataAccess implements MetadataAccess {
+
+        @Override
+        public <R> R commit(MetadataCommand<R> cmd, Principal... principals) {
+            try {
+                return cmd.execute();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public <R> R commit(MetadataCommand<R> cmd, MetadataRollbackCommand rollbackCmd, Principal... principals) {
+            return commit(cmd, principals);
+        }
+
+        @Override
+        public void commit(MetadataAction action, Principal... principals) {
+            commit(() -> {
+                action.execute();
+                return null;
+            }, principals);
+        }
+
+        @Override
+        public void commit(MetadataAction action, MetadataRollbackAction rollbackAction, Principal... principals) {
+            commit(action, principals);
+        }
+
+        @Override
+        public <R> R read(MetadataCommand<R> cmd, Principal... principals) {
+            return commit(cmd, principals);
+        }
+
+        @Override
+        public void read(MetadataAction cmd, Principal... principals) {
+            commit(cmd, principals);
+        }
+    }
+}
@@ -41,6 +41,17 @@ public interface SparkShellRestClient {
     @Nonnull
     Optional<TransformResponse> getTable(@Nonnull SparkShellProcess process, @Nonnull String table);
 
+    /**
+     * Fetches a page of the results of a transformation running on the specified Spark Shell process.
+     *
+     * @param table  the destination table name
+     * @param offset the index of the first row
+     * @param limit  the maximum number of rows
+     * @return the page of results if the table exists
+     */
+    @Nonnull
+    Optional<TransformResponse> getRows(@Nonnull SparkShellProcess process, @Nonnull String table, long offset, int limit);
+
     /**
      * Executes a Scala script on the specified Spark Shell process.
      *
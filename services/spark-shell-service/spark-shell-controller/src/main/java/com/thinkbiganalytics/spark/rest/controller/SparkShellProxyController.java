@@ -42,11 +42,13 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -123,6 +125,45 @@ public class SparkShellProxyController {
         }
     }
 
+    /**
+     * Fetches a page of the results of a transformation.
+     *
+     * @param id     the destination table name
+     * @param offset the index of the first row
+     * @param limit  the maximum number of rows
+     * @return the page of results
+     */
+    @GET
+    @Path("/transform/{table}/rows")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation("Fetches a page of the results of a transformation.")
+    @ApiResponses({
+                      @ApiResponse(code = 200, message = "Returns the page of results.", response = TransformResponse.class),
+                      @ApiResponse(code = 404, message = "The transformation does not exist.", response = RestResponseStatus.class),
+                      @ApiResponse(code = 500, message = "There was a problem accessing the data.", response = RestResponseStatus.class)
+                  })
+    @Nonnull
+    public Response getRows(@Nonnull @PathParam("table") final String id, @QueryParam("offset") @DefaultValue("0") final long offset,
+                            @QueryParam("limit") @DefaultValue("1000") final int limit) {
+        // Forward to the Spark Shell process
+        final SparkShellProcess process = getSparkShellProcess();
+        final Optional<TransformResponse> response;
+
+        try {
+            response = restClient.getRows(process, id, offset, limit);
+        } catch (final Exception e) {
+            throw error(Response.Status.INTERNAL_SERVER_ERROR, "transform.error", e);
+        }
+
+        // Return response
+        if (response.isPresent()) {
+            return Response.ok(response.get()).build();
+        } else {
+            throw error(Response.Status.NOT_FOUND, "getTable.unknownTable", null);
+        }
+    }
+
     /**
      * Ensures a Spark Shell process has been started for the current user.
      *
@@ -254,7 +295,7 @@ public class SparkShellProxyController {
     private SparkShellProcess getSparkShellProcess() {
         final Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         try {
-            return processManager.getProcessForUser(auth.getPrincipal().toString());
+            return processManager.getProcessForUser(auth.getName());
         } catch (final Exception e) {
             throw error(Response.Status.INTERNAL_SERVER_ERROR, "start.error", e);
         }
@@ -22,7 +22,9 @@ package com.thinkbiganalytics.spark.conf;
 
 import com.thinkbiganalytics.spark.conf.model.KerberosSparkProperties;
 import com.thinkbiganalytics.spark.conf.model.SparkShellProperties;
+import com.thinkbiganalytics.spark.shell.ExecSparkShellProcessLauncher;
 import com.thinkbiganalytics.spark.shell.JerseySparkShellRestClient;
+import com.thinkbiganalytics.spark.shell.PooledProcessManager;
 import com.thinkbiganalytics.spark.shell.ServerProcessManager;
 import com.thinkbiganalytics.spark.shell.SparkShellProcessManager;
 import com.thinkbiganalytics.spark.shell.SparkShellRestClient;
@@ -53,12 +55,19 @@ public class SparkShellConfiguration {
     /**
      * Creates a Spark Shell process manager for creating new Spark Shell instances.
      *
+     * <p>If the pool is enabled then Kylo starts a pool of Spark Shell processes with one process per user. Otherwise the externally
+     * managed process is used.</p>
+     *
      * @param properties the Spark Shell properties
      * @return a Spark Shell process manager
      */
     @Bean
     public SparkShellProcessManager processManager(final SparkShellProperties properties) {
-        return new ServerProcessManager(properties);
+        if (properties.isPool()) {
+            return new PooledProcessManager(properties, new ExecSparkShellProcessLauncher(properties));
+        } else {
+            return new ServerProcessManager(properties);
+        }
     }
 
     /**
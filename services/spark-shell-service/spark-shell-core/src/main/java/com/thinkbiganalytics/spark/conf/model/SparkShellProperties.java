@@ -30,6 +30,11 @@ public class SparkShellProperties {
      */
     private int clientTimeout = 60;
 
+    /**
+     * Command for starting a Kylo-managed Spark Shell process
+     */
+    private String command = "/opt/kylo/kylo-services/bin/run-kylo-spark-shell.sh";
+
     /**
      * Spark deploy mode
      */
@@ -45,6 +50,16 @@ public class SparkShellProperties {
      */
     private String master = "local";
 
+    /**
+     * Maximum number of Kylo-managed Spark Shell processes
+     */
+    private int maxProcesses = 4;
+
+    /**
+     * Enables a pool of Kylo-managed Spark Shell processes
+     */
+    private boolean pool = false;
+
     /**
      * Maximum port number
      */
@@ -78,6 +93,14 @@ public class SparkShellProperties {
         this.clientTimeout = clientTimeout;
     }
 
+    public String getCommand() {
+        return command;
+    }
+
+    public void setCommand(String command) {
+        this.command = command;
+    }
+
     public String getDeployMode() {
         return deployMode;
     }
@@ -102,6 +125,22 @@ public class SparkShellProperties {
         this.master = master;
     }
 
+    public int getMaxProcesses() {
+        return maxProcesses;
+    }
+
+    public void setMaxProcesses(int maxProcesses) {
+        this.maxProcesses = maxProcesses;
+    }
+
+    public boolean isPool() {
+        return pool;
+    }
+
+    public void setPool(boolean pool) {
+        this.pool = pool;
+    }
+
     public int getPortMax() {
         return portMax;
     }
@@ -0,0 +1,199 @@
+package com.thinkbiganalytics.spark.shell;
+
+/*-
+ * #%L
+ * Spark Shell Core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.spark.conf.model.SparkShellProperties;
+
+import org.apache.commons.exec.CommandLine;
+import org.apache.commons.exec.DefaultExecuteResultHandler;
+import org.apache.commons.exec.DefaultExecutor;
+import org.apache.commons.exec.ExecuteWatchdog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Starts Spark Shell processes on the local machine by running the Spark Shell command.
+ *
+ * <p>The port number is passed to the command as a {@code --server.port} argument. The process is considered to be started once
+ * it accepts connections on that port.</p>
+ *
+ * <p>Only the process running the command is destroyed when it is stopped, so a script must {@code exec} the Spark Shell JVM rather
+ * than run it as a child process.</p>
+ */
+public class ExecSparkShellProcessLauncher implements SparkShellProcessLauncher {
+
+    private static final Logger log = LoggerFactory.getLogger(ExecSparkShellProcessLauncher.class);
+
+    /**
+     * Hostname of the Spark Shell processes
+     */
+    private static final String HOSTNAME = "localhost";
+
+    /**
+     * Time in milliseconds between checks for the process to accept connections
+     */
+    private static final int POLL_INTERVAL = 1000;
+
+    /**
+     * Command for starting the Spark Shell process
+     */
+    @Nonnull
+    private final String command;
+
+    /**
+     * Startup timeout in nanoseconds
+     */
+    private final long clientTimeout;
+
+    /**
+     * Constructs an {@code ExecSparkShellProcessLauncher} with the specified properties.
+     *
+     * @param properties the Spark Shell properties
+     */
+    public ExecSparkShellProcessLauncher(@Nonnull final SparkShellProperties properties) {
+        command = properties.getCommand();
+        clientTimeout = TimeUnit.SECONDS.toNanos(properties.getClientTimeout());
+    }
+
+    @Nonnull
+    @Override
+    public ManagedSparkShellProcess launch(final int port) throws IOException, InterruptedException {
+        // Verify the port is not used by another process
+        if (isListening(port)) {
+            throw new IOException("Unable to start Spark Shell process because port " + port + " is already in use");
+        }
+
+        // Start the process
+        final CommandLine commandLine = CommandLine.parse(command);
+        commandLine.addArgument("--server.port=" + port);
+
+        final DefaultExecuteResultHandler resultHandler = new DefaultExecuteResultHandler();
+        final ExecuteWatchdog watchdog = new ExecuteWatchdog(ExecuteWatchdog.INFINITE_TIMEOUT);
+        final DefaultExecutor executor = new DefaultExecutor();
+        executor.setWatchdog(watchdog);
+
+        log.info("Starting Spark Shell process on port {}: {}", port, commandLine);
+        executor.execute(commandLine, resultHandler);
+
+        // Wait for the process to accept connections
+        final long deadline = System.nanoTime() + clientTimeout;
+        while (!isListening(port)) {
+            if (resultHandler.hasResult()) {
+                throw new IOException("Spark Shell process on port " + port + " exited with code " + resultHandler.getExitValue());
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                watchdog.destroyProcess();
+                throw new IOException("Spark Shell process on port " + port + " did not start within the client timeout");
+            }
+            try {
+                Thread.sleep(POLL_INTERVAL);
+            } catch (final InterruptedException e) {
+                watchdog.destroyProcess();
+                throw e;
+            }
+        }
+
+        log.info("Spark Shell process started on port {}", port);
+        return new ExecSparkShellProcess(port, resultHandler, watchdog);
+    }
+
+    /**
+     * Indicates if a server is accepting connections on the specified port.
+     *
+     * @param port the port number
+     * @return {@code true} if a connection was established, or {@code false} otherwise
+     */
+    private boolean isListening(final int port) {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(HOSTNAME, port), POLL_INTERVAL);
+            return true;
+        } catch (final IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * A Spark Shell process running on the local machine.
+     */
+    private static class ExecSparkShellProcess implements ManagedSparkShellProcess {
+
+        /**
+         * Spark Shell server port number
+         */
+        private final int port;
+
+        /**
+         * Receives the exit value of the process
+         */
+        @Nonnull
+        private final DefaultExecuteResultHandler resultHandler;
+
+        /**
+         * Destroys the process
+         */
+        @Nonnull
+        private final ExecuteWatchdog watchdog;
+
+        /**
+         * Constructs an {@code ExecSparkShellProcess}.
+         *
+         * @param port          the Spark Shell server port number
+         * @param resultHandler receives the exit value of the process
+         * @param watchdog      destroys the process
+         */
+        ExecSparkShellProcess(final int port, @Nonnull final DefaultExecuteResultHandler resultHandler, @Nonnull final ExecuteWatchdog watchdog) {
+            this.port = port;
+            this.resultHandler = resultHandler;
+            this.watchdog = watchdog;
+        }
+
+        @Nonnull
+        @Override
+        public String getHostname() {
+            return HOSTNAME;
+        }
+
+        @Override
+        public int getPort() {
+            return port;
+        }
+
+        @Override
+        public boolean isAlive() {
+            return !resultHandler.hasResult();
+        }
+
+        @Override
+        public void stop() {
+            if (isAlive()) {
+                log.info("Stopping Spark Shell process on port {}", port);
+                watchdog.destroyProcess();
+            }
+        }
+    }
+}
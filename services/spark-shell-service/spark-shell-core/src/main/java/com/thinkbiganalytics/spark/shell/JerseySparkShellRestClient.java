@@ -60,6 +60,22 @@ public class JerseySparkShellRestClient implements SparkShellRestClient {
         }
     }
 
+    @Nonnull
+    @Override
+    public Optional<TransformResponse> getRows(@Nonnull final SparkShellProcess process, @Nonnull final String table, final long offset, final int limit) {
+        // Validate arguments
+        if (!table.matches("^[a-f0-9-]+$")) {
+            return Optional.empty();
+        }
+
+        // Query Spark Shell process
+        try {
+            return Optional.ofNullable(getClient(process).get("/api/v1/spark/shell/transform/" + table + "/rows", ImmutableMap.<String, Object>of("offset", offset, "limit", limit), TransformResponse.class));
+        } catch (final NotFoundException e) {
+            return Optional.empty();
+        }
+    }
+
     @Nonnull
     @Override
     public TransformResponse transform(@Nonnull final SparkShellProcess process, @Nonnull final TransformRequest request) {
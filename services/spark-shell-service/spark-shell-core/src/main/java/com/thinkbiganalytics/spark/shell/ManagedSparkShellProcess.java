@@ -0,0 +1,39 @@
+package com.thinkbiganalytics.spark.shell;
+
+/*-
+ * #%L
+ * Spark Shell Core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * A Spark Shell process that was started by Kylo and can be stopped by Kylo.
+ */
+public interface ManagedSparkShellProcess extends SparkShellProcess {
+
+    /**
+     * Indicates if the process is still running.
+     *
+     * @return {@code true} if the process is running, or {@code false} if it has exited
+     */
+    boolean isAlive();
+
+    /**
+     * Stops the process if it is still running.
+     */
+    void stop();
+}
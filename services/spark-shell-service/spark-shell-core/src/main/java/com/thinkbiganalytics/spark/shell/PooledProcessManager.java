@@ -0,0 +1,448 @@
+package com.thinkbiganalytics.spark.shell;
+
+/*-
+ * #%L
+ * Spark Shell Core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.thinkbiganalytics.spark.conf.model.SparkShellProperties;
+import com.thinkbiganalytics.spark.rest.model.RegistrationRequest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Manages a pool of Kylo-managed Spark Shell processes with one process per user.
+ *
+ * <p>Each user is assigned their own process so that a heavy transformation by one user does not block or crash the sessions of
+ * other users, and the cached results of a user's transformations stay on the process serving that user. At most
+ * {@code maxProcesses} processes are running at a time. When the pool is full, the process that has been idle the longest is
+ * stopped if it has exceeded the idle timeout, otherwise requests wait in the order they arrived until a process is available or
+ * the client timeout is reached. Processes that have exited are started again on the next request. A new process only reuses the
+ * port of a stopped process once that process has exited.</p>
+ */
+public class PooledProcessManager implements SparkShellProcessManager {
+
+    private static final Logger log = LoggerFactory.getLogger(PooledProcessManager.class);
+
+    /**
+     * Name of the pool entry for the system Spark Shell process
+     */
+    static final String SYSTEM_USER = "$system";
+
+    /**
+     * Time in milliseconds between checks for a stopped process to exit
+     */
+    private static final long EXIT_POLL_INTERVAL = 100;
+
+    /**
+     * Time in seconds between checks for idle processes
+     */
+    private static final long REAPER_INTERVAL = 60;
+
+    /**
+     * Startup timeout in nanoseconds
+     */
+    private final long clientTimeout;
+
+    /**
+     * Time in nanoseconds after the last request that a process may be stopped
+     */
+    private final long idleTimeout;
+
+    /**
+     * Starts new Spark Shell processes
+     */
+    @Nonnull
+    private final SparkShellProcessLauncher launcher;
+
+    /**
+     * Maximum number of running processes
+     */
+    private final int maxProcesses;
+
+    /**
+     * Maximum port number
+     */
+    private final int portMax;
+
+    /**
+     * Minimum port number
+     */
+    private final int portMin;
+
+    /**
+     * Checks for idle processes
+     */
+    @Nonnull
+    private final ScheduledExecutorService reaper;
+
+    /**
+     * Map of username to process slot, guarded by {@code this}
+     */
+    @Nonnull
+    private final Map<String, Slot> slots = new HashMap<>();
+
+    /**
+     * Processes that have been stopped but may still be shutting down, guarded by {@code this}
+     */
+    @Nonnull
+    private final List<ManagedSparkShellProcess> stopping = new ArrayList<>();
+
+    /**
+     * Starts processes in the background
+     */
+    @Nonnull
+    private final ExecutorService starter;
+
+    /**
+     * Source of the time of the last request
+     */
+    @Nonnull
+    private final Ticker ticker;
+
+    /**
+     * Users waiting for a slot in the order they arrived, guarded by {@code this}
+     */
+    @Nonnull
+    private final Deque<String> waiting = new ArrayDeque<>();
+
+    /**
+     * Constructs a {@code PooledProcessManager} with the specified properties.
+     *
+     * @param properties the Spark Shell properties
+     * @param launcher   starts new Spark Shell processes
+     */
+    public PooledProcessManager(@Nonnull final SparkShellProperties properties, @Nonnull final SparkShellProcessLauncher launcher) {
+        this(properties, launcher, Ticker.systemTicker());
+    }
+
+    /**
+     * Constructs a {@code PooledProcessManager} with the specified properties and time source.
+     *
+     * @param properties the Spark Shell properties
+     * @param launcher   starts new Spark Shell processes
+     * @param ticker     source of the time of the last request
+     */
+    PooledProcessManager(@Nonnull final SparkShellProperties properties, @Nonnull final SparkShellProcessLauncher launcher, @Nonnull final Ticker ticker) {
+        this.launcher = launcher;
+        this.ticker = ticker;
+        clientTimeout = TimeUnit.SECONDS.toNanos(properties.getClientTimeout());
+        idleTimeout = TimeUnit.SECONDS.toNanos(properties.getIdleTimeout());
+        maxProcesses = Math.max(properties.getMaxProcesses(), 1);
+        portMax = properties.getPortMax();
+        portMin = properties.getPortMin();
+
+        reaper = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("spark-shell-reaper-%d").build());
+        reaper.scheduleWithFixedDelay(this::reapIdleProcesses, REAPER_INTERVAL, REAPER_INTERVAL, TimeUnit.SECONDS);
+        starter = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("spark-shell-starter-%d").build());
+    }
+
+    @Nonnull
+    @Override
+    public SparkShellProcess getProcessForUser(@Nonnull final String username) throws InterruptedException {
+        final long deadline = System.nanoTime() + clientTimeout;
+        final Slot slot;
+        final ManagedSparkShellProcess previous;
+
+        // Find or reserve a slot for the user
+        synchronized (this) {
+            try {
+                while (true) {
+                    final Slot existing = slots.get(username);
+                    if (existing != null && existing.process == null) {
+                        awaitSlot(deadline, "Timeout waiting for Spark Shell process to start for user: " + username);
+                        continue;
+                    }
+                    if (existing != null && existing.process.isAlive()) {
+                        existing.lastUsed = ticker.read();
+                        return existing.process;
+                    }
+                    if (existing != null) {
+                        log.warn("Spark Shell process on port {} for user {} has exited and will be restarted.", existing.port, username);
+                        slots.remove(username);
+                        notifyAll();
+                    }
+
+                    final boolean isNext = waiting.isEmpty() || waiting.peekFirst().equals(username);
+                    if (isNext && (slots.size() < maxProcesses || reapOne())) {
+                        slot = new Slot(nextPort());
+                        slots.put(username, slot);
+                        previous = stopping.stream().filter(process -> process.getPort() == slot.port).findFirst().orElse(null);
+                        break;
+                    }
+
+                    if (!waiting.contains(username)) {
+                        waiting.addLast(username);
+                    }
+                    awaitSlot(deadline, "Timeout waiting for an available Spark Shell process for user: " + username);
+                }
+            } finally {
+                if (waiting.remove(username)) {
+                    notifyAll();
+                }
+            }
+        }
+
+        // Start the process without holding the lock
+        ManagedSparkShellProcess process = null;
+        try {
+            if (previous != null) {
+                awaitExit(previous, deadline);
+            }
+            process = launcher.launch(slot.port);
+        } catch (final IOException e) {
+            throw new IllegalStateException("Unable to start Spark Shell process for user: " + username, e);
+        } finally {
+            synchronized (this) {
+                if (process != null) {
+                    slot.process = process;
+                    slot.lastUsed = ticker.read();
+                } else {
+                    slots.remove(username);
+                }
+                notifyAll();
+            }
+        }
+        return process;
+    }
+
+    @Nonnull
+    @Override
+    public SparkShellProcess getSystemProcess() throws InterruptedException {
+        return getProcessForUser(SYSTEM_USER);
+    }
+
+    @Override
+    public void register(@Nonnull final String clientId, @Nonnull final String clientSecret, @Nonnull final RegistrationRequest registration) {
+        throw new UnsupportedOperationException("Spark Shell processes are started by Kylo and cannot be registered");
+    }
+
+    @Override
+    public void start(@Nonnull final String username) throws IllegalStateException {
+        starter.execute(() -> {
+            try {
+                getProcessForUser(username);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (final Exception e) {
+                log.error("Failed to start Spark Shell process for user {}: {}", username, e, e);
+            }
+        });
+    }
+
+    /**
+     * Stops processes that have exited or exceeded the idle timeout.
+     */
+    public void reapIdleProcesses() {
+        final List<ManagedSparkShellProcess> stopped = new ArrayList<>();
+
+        synchronized (this) {
+            final long now = ticker.read();
+            final Iterator<Slot> iter = slots.values().iterator();
+            while (iter.hasNext()) {
+                final Slot slot = iter.next();
+                if (slot.process != null && (!slot.process.isAlive() || now - slot.lastUsed >= idleTimeout)) {
+                    iter.remove();
+                    stopped.add(slot.process);
+                }
+            }
+            stopping.addAll(stopped);
+            if (!stopped.isEmpty()) {
+                notifyAll();
+            }
+        }
+
+        for (final ManagedSparkShellProcess process : stopped) {
+            log.debug("Reaping Spark Shell process on port {}", process.getPort());
+            process.stop();
+        }
+    }
+
+    /**
+     * Gets the number of requests waiting for a process to become available.
+     *
+     * @return the number of waiting requests
+     */
+    synchronized int getQueueLength() {
+        return waiting.size();
+    }
+
+    /**
+     * Stops all processes and background threads.
+     */
+    public void shutdown() {
+        reaper.shutdownNow();
+        starter.shutdownNow();
+
+        final List<Slot> stopped;
+        synchronized (this) {
+            stopped = new ArrayList<>(slots.values());
+            slots.clear();
+            notifyAll();
+        }
+        stopped.stream().filter(slot -> slot.process != null).forEach(slot -> slot.process.stop());
+    }
+
+    /**
+     * Waits for a slot to be released or a process to finish starting.
+     *
+     * @param deadline the value of {@link System#nanoTime()} to wait until
+     * @param message  the error message if the deadline is reached
+     * @throws IllegalStateException if the deadline is reached
+     * @throws InterruptedException  if the current thread is interrupted while it is waiting
+     */
+    private void awaitSlot(final long deadline, @Nonnull final String message) throws InterruptedException {
+        final long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+            throw new IllegalStateException(message);
+        }
+        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+    }
+
+    /**
+     * Waits for a stopped process to exit so that its port can be reused.
+     *
+     * @param process  the stopped process
+     * @param deadline the value of {@link System#nanoTime()} to wait until
+     * @throws IllegalStateException if the deadline is reached
+     * @throws InterruptedException  if the current thread is interrupted while it is waiting
+     */
+    private void awaitExit(@Nonnull final ManagedSparkShellProcess process, final long deadline) throws InterruptedException {
+        while (process.isAlive()) {
+            if (System.nanoTime() - deadline >= 0) {
+                throw new IllegalStateException("Timeout waiting for the previous Spark Shell process on port " + process.getPort() + " to exit");
+            }
+            Thread.sleep(EXIT_POLL_INTERVAL);
+        }
+    }
+
+    /**
+     * Finds an available port for a new process. Must be called while holding the lock.
+     *
+     * <p>Ports of stopped processes that are still shutting down are only used if no other port is available, in which case the
+     * caller must wait for the process to exit.</p>
+     *
+     * @return the port number
+     * @throws IllegalStateException if every port is in use
+     */
+    private int nextPort() {
+        stopping.removeIf(process -> !process.isAlive());
+
+        Integer reusable = null;
+        for (int port = portMin; port <= portMax; ++port) {
+            final int candidate = port;
+            if (slots.values().stream().noneMatch(slot -> slot.port == candidate)) {
+                if (stopping.stream().noneMatch(process -> process.getPort() == candidate)) {
+                    return port;
+                } else if (reusable == null) {
+                    reusable = port;
+                }
+            }
+        }
+        if (reusable != null) {
+            return reusable;
+        }
+        throw new IllegalStateException("No ports available for a new Spark Shell process between " + portMin + " and " + portMax);
+    }
+
+    /**
+     * Stops the least-recently used process if it has exited or exceeded the idle timeout. Must be called while holding the lock.
+     *
+     * @return {@code true} if a slot was released, or {@code false} otherwise
+     */
+    private boolean reapOne() {
+        final long now = ticker.read();
+        String oldestUser = null;
+        Slot oldest = null;
+
+        for (final Map.Entry<String, Slot> entry : slots.entrySet()) {
+            final Slot slot = entry.getValue();
+            if (slot.process != null) {
+                if (!slot.process.isAlive()) {
+                    oldestUser = entry.getKey();
+                    oldest = slot;
+                    break;
+                }
+                if (now - slot.lastUsed >= idleTimeout && (oldest == null || slot.lastUsed < oldest.lastUsed)) {
+                    oldestUser = entry.getKey();
+                    oldest = slot;
+                }
+            }
+        }
+
+        if (oldest != null) {
+            log.debug("Stopping idle Spark Shell process on port {} for user {} to make room for another user", oldest.port, oldestUser);
+            slots.remove(oldestUser);
+            oldest.process.stop();
+            stopping.add(oldest.process);
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * A position in the pool assigned to a user.
+     */
+    private static class Slot {
+
+        /**
+         * Port number of the process
+         */
+        final int port;
+
+        /**
+         * Time of the last request, from the ticker
+         */
+        long lastUsed;
+
+        /**
+         * Running process, or {@code null} if the process is starting
+         */
+        @Nullable
+        ManagedSparkShellProcess process;
+
+        /**
+         * Constructs a {@code Slot} for a process that is starting on the specified port.
+         *
+         * @param port the port number of the process
+         */
+        Slot(final int port) {
+            this.port = port;
+        }
+    }
+}
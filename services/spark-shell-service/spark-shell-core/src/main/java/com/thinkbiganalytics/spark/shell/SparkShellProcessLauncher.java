@@ -0,0 +1,42 @@
+package com.thinkbiganalytics.spark.shell;
+
+/*-
+ * #%L
+ * Spark Shell Core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Starts new instances of the Spark Shell process.
+ */
+public interface SparkShellProcessLauncher {
+
+    /**
+     * Starts a new Spark Shell process listening on the specified port and waits for it to accept requests.
+     *
+     * @param port the port number for the Spark Shell server
+     * @return the Spark Shell process
+     * @throws IOException          if the process cannot be started or does not accept requests within the startup timeout
+     * @throws InterruptedException if the current thread is interrupted while it is waiting
+     */
+    @Nonnull
+    ManagedSparkShellProcess launch(int port) throws IOException, InterruptedException;
+}
@@ -0,0 +1,49 @@
+package com.thinkbiganalytics.spark.shell;
+
+/*-
+ * #%L
+ * Spark Shell Core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.spark.conf.model.SparkShellProperties;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+
+public class ExecSparkShellProcessLauncherTest {
+
+    /**
+     * Verify a process is not started on a port that is already in use.
+     */
+    @Test
+    public void launchWithPortInUse() throws Exception {
+        final SparkShellProperties properties = new SparkShellProperties();
+        properties.setCommand("/bin/false");
+
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getByName("localhost"))) {
+            new ExecSparkShellProcessLauncher(properties).launch(socket.getLocalPort());
+            Assert.fail("Expected IOException");
+        } catch (final IOException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("already in use"));
+        }
+    }
+}
@@ -0,0 +1,403 @@
+package com.thinkbiganalytics.spark.shell;
+
+/*-
+ * #%L
+ * Spark Shell Core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.base.Ticker;
+import com.thinkbiganalytics.spark.conf.model.SparkShellProperties;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+
+public class PooledProcessManagerTest {
+
+    /**
+     * Idle timeout in seconds
+     */
+    private static final int IDLE_TIMEOUT = 900;
+
+    /**
+     * Runs requests that wait for a process
+     */
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    /**
+     * Starts stub processes
+     */
+    private final StubLauncher launcher = new StubLauncher();
+
+    /**
+     * Time source for idle timeouts
+     */
+    private final StubTicker ticker = new StubTicker();
+
+    /**
+     * Process manager being tested
+     */
+    private PooledProcessManager processManager;
+
+    /**
+     * Stops the process manager and any waiting requests.
+     */
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        if (processManager != null) {
+            processManager.shutdown();
+        }
+    }
+
+    /**
+     * Verify each user is assigned their own process.
+     */
+    @Test
+    public void getProcessForUser() throws Exception {
+        processManager = newProcessManager(4, 60);
+
+        final SparkShellProcess alice = processManager.getProcessForUser("alice");
+        final SparkShellProcess bob = processManager.getProcessForUser("bob");
+        Assert.assertSame(alice, processManager.getProcessForUser("alice"));
+        Assert.assertSame(bob, processManager.getProcessForUser("bob"));
+        Assert.assertNotEquals(alice.getPort(), bob.getPort());
+        Assert.assertEquals(45000, alice.getPort());
+        Assert.assertEquals(2, launcher.launched.size());
+
+        final SparkShellProcess system = processManager.getSystemProcess();
+        Assert.assertNotSame(alice, system);
+        Assert.assertNotSame(bob, system);
+        Assert.assertEquals(3, launcher.launched.size());
+    }
+
+    /**
+     * Verify a process is started again after it exits.
+     */
+    @Test
+    public void restartOnFailure() throws Exception {
+        processManager = newProcessManager(1, 60);
+
+        final StubProcess first = (StubProcess) processManager.getProcessForUser("alice");
+        first.alive = false;
+
+        final SparkShellProcess second = processManager.getProcessForUser("alice");
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals(2, launcher.launched.size());
+
+        // A crashed process also frees its slot for other users
+        ((StubProcess) second).alive = false;
+        final SparkShellProcess bob = processManager.getProcessForUser("bob");
+        Assert.assertNotSame(second, bob);
+        Assert.assertEquals(3, launcher.launched.size());
+    }
+
+    /**
+     * Verify a failure to start a process releases the slot.
+     */
+    @Test
+    public void launchFailure() throws Exception {
+        processManager = newProcessManager(1, 60);
+        launcher.failures = 1;
+
+        try {
+            processManager.getProcessForUser("alice");
+            Assert.fail("Expected IllegalStateException");
+        } catch (final IllegalStateException e) {
+            Assert.assertTrue(e.getCause() instanceof IOException);
+        }
+
+        Assert.assertNotNull(processManager.getProcessForUser("bob"));
+        Assert.assertEquals(1, launcher.launched.size());
+    }
+
+    /**
+     * Verify idle processes are stopped.
+     */
+    @Test
+    public void reapIdleProcesses() throws Exception {
+        processManager = newProcessManager(4, 60);
+
+        final StubProcess alice = (StubProcess) processManager.getProcessForUser("alice");
+        ticker.advance(IDLE_TIMEOUT - 1);
+        final StubProcess bob = (StubProcess) processManager.getProcessForUser("bob");
+
+        ticker.advance(1);
+        processManager.reapIdleProcesses();
+        Assert.assertFalse(alice.alive);
+        Assert.assertTrue(bob.alive);
+
+        Assert.assertNotSame(alice, processManager.getProcessForUser("alice"));
+        Assert.assertSame(bob, processManager.getProcessForUser("bob"));
+    }
+
+    /**
+     * Verify an idle process is stopped when the pool is full.
+     */
+    @Test
+    public void reapWhenFull() throws Exception {
+        processManager = newProcessManager(2, 60);
+
+        final StubProcess alice = (StubProcess) processManager.getProcessForUser("alice");
+        ticker.advance(1);
+        final StubProcess bob = (StubProcess) processManager.getProcessForUser("bob");
+        ticker.advance(IDLE_TIMEOUT);
+
+        final SparkShellProcess carol = processManager.getProcessForUser("carol");
+        Assert.assertFalse(alice.alive);
+        Assert.assertTrue(bob.alive);
+        Assert.assertEquals(alice.getPort(), carol.getPort());
+    }
+
+    /**
+     * Verify a process is not started on the port of a stopped process that has not exited.
+     */
+    @Test
+    public void reapWhenFullBeforeExit() throws Exception {
+        processManager = newProcessManager(2, 60);
+        launcher.exitOnStop = false;
+
+        final StubProcess alice = (StubProcess) processManager.getProcessForUser("alice");
+        ticker.advance(1);
+        processManager.getProcessForUser("bob");
+        ticker.advance(IDLE_TIMEOUT);
+
+        final SparkShellProcess carol = processManager.getProcessForUser("carol");
+        Assert.assertTrue(alice.stopped);
+        Assert.assertTrue(alice.alive);
+        Assert.assertNotEquals(alice.getPort(), carol.getPort());
+        Assert.assertEquals(3, launcher.launched.size());
+    }
+
+    /**
+     * Verify a process waits for a stopped process to exit when its port is the only one available.
+     */
+    @Test
+    public void reapWhenFullAwaitExit() throws Exception {
+        processManager = newProcessManager(2, 60, 2);
+        launcher.exitOnStop = false;
+
+        final StubProcess alice = (StubProcess) processManager.getProcessForUser("alice");
+        ticker.advance(1);
+        processManager.getProcessForUser("bob");
+        ticker.advance(IDLE_TIMEOUT);
+
+        final Future<SparkShellProcess> carol = executor.submit(() -> processManager.getProcessForUser("carol"));
+        Thread.sleep(500);
+        Assert.assertTrue(alice.stopped);
+        Assert.assertFalse(carol.isDone());
+
+        // Alice's process exits and its port is reused
+        alice.alive = false;
+        Assert.assertEquals(alice.getPort(), carol.get(10, TimeUnit.SECONDS).getPort());
+        Assert.assertEquals(3, launcher.launched.size());
+    }
+
+    /**
+     * Verify requests wait in order for a process when the pool is full.
+     */
+    @Test
+    public void fairQueuing() throws Exception {
+        processManager = newProcessManager(1, 60);
+        final StubProcess alice = (StubProcess) processManager.getProcessForUser("alice");
+
+        final Future<SparkShellProcess> bob = executor.submit(() -> processManager.getProcessForUser("bob"));
+        awaitWaiting(1);
+        final Future<SparkShellProcess> carol = executor.submit(() -> processManager.getProcessForUser("carol"));
+        awaitWaiting(2);
+
+        // Alice's process becomes idle and Bob is next
+        ticker.advance(IDLE_TIMEOUT);
+        processManager.reapIdleProcesses();
+        Assert.assertFalse(alice.alive);
+        Assert.assertNotNull(bob.get(10, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        Assert.assertFalse(carol.isDone());
+
+        // Bob's process becomes idle and Carol is next
+        ticker.advance(IDLE_TIMEOUT);
+        processManager.reapIdleProcesses();
+        Assert.assertNotNull(carol.get(10, TimeUnit.SECONDS));
+        Assert.assertEquals(3, launcher.launched.size());
+    }
+
+    /**
+     * Verify a request fails if no process becomes available within the client timeout.
+     */
+    @Test
+    public void queueTimeout() throws Exception {
+        processManager = newProcessManager(1, 1);
+        processManager.getProcessForUser("alice");
+
+        final Future<SparkShellProcess> bob = executor.submit(() -> processManager.getProcessForUser("bob"));
+        try {
+            bob.get(10, TimeUnit.SECONDS);
+            Assert.fail("Expected IllegalStateException");
+        } catch (final ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+
+        // A timed out request does not block later requests
+        ticker.advance(IDLE_TIMEOUT);
+        Assert.assertNotNull(processManager.getProcessForUser("carol"));
+    }
+
+    /**
+     * Waits for the specified number of requests to be queued.
+     */
+    private void awaitWaiting(final int count) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (processManager.getQueueLength() < count) {
+            Assert.assertTrue("Timeout waiting for requests to be queued", System.nanoTime() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Creates a new process manager with the specified maximum number of processes and client timeout.
+     */
+    @Nonnull
+    private PooledProcessManager newProcessManager(final int maxProcesses, final int clientTimeout) {
+        return newProcessManager(maxProcesses, clientTimeout, 1000);
+    }
+
+    /**
+     * Creates a new process manager with the specified maximum number of processes, client timeout, and number of ports.
+     */
+    @Nonnull
+    private PooledProcessManager newProcessManager(final int maxProcesses, final int clientTimeout, final int ports) {
+        final SparkShellProperties properties = new SparkShellProperties();
+        properties.setPortMin(45000);
+        properties.setPortMax(45000 + ports - 1);
+        properties.setClientTimeout(clientTimeout);
+        properties.setIdleTimeout(IDLE_TIMEOUT);
+        properties.setMaxProcesses(maxProcesses);
+        return new PooledProcessManager(properties, launcher, ticker);
+    }
+
+    /**
+     * Launches stub processes.
+     */
+    private static class StubLauncher implements SparkShellProcessLauncher {
+
+        /**
+         * Processes that have been launched
+         */
+        final List<StubProcess> launched = Collections.synchronizedList(new ArrayList<>());
+
+        /**
+         * Indicates if processes exit as soon as they are stopped
+         */
+        volatile boolean exitOnStop = true;
+
+        /**
+         * Number of launches that should fail
+         */
+        volatile int failures;
+
+        @Nonnull
+        @Override
+        public ManagedSparkShellProcess launch(final int port) throws IOException {
+            if (failures > 0) {
+                --failures;
+                throw new IOException("Process exited with code 1");
+            }
+            synchronized (launched) {
+                if (launched.stream().anyMatch(process -> process.port == port && process.alive)) {
+                    throw new IOException("Port " + port + " is already in use");
+                }
+            }
+            final StubProcess process = new StubProcess(port, exitOnStop);
+            launched.add(process);
+            return process;
+        }
+    }
+
+    /**
+     * A process that is alive until stopped, or until it exits after being stopped.
+     */
+    private static class StubProcess implements ManagedSparkShellProcess {
+
+        final int port;
+
+        final boolean exitOnStop;
+
+        volatile boolean alive = true;
+
+        volatile boolean stopped;
+
+        StubProcess(final int port, final boolean exitOnStop) {
+            this.port = port;
+            this.exitOnStop = exitOnStop;
+        }
+
+        @Nonnull
+        @Override
+        public String getHostname() {
+            return "localhost";
+        }
+
+        @Override
+        public int getPort() {
+            return port;
+        }
+
+        @Override
+        public boolean isAlive() {
+            return alive;
+        }
+
+        @Override
+        public void stop() {
+            stopped = true;
+            if (exitOnStop) {
+                alive = false;
+            }
+        }
+    }
+
+    /**
+     * A ticker that only advances when requested.
+     */
+    private static class StubTicker extends Ticker {
+
+        private final AtomicLong nanos = new AtomicLong();
+
+        void advance(final long seconds) {
+            nanos.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+        }
+
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+    }
+}
@@ -37,13 +37,20 @@ public class TransformResponse {
      * Error message
      */
     private String message;
+    /**
+     * First page of the results of a transformation
+     */
+    private TransformResultPage page;
     /**
      * Progress of the transformation
      */
     private Double progress;
     /**
      * Result of a transformation
+     *
+     * @deprecated Replaced with {@code page}
      */
+    @Deprecated
     @JsonDeserialize(as = DefaultQueryResult.class)
     private QueryResult results;
     /**
@@ -73,6 +80,24 @@ public class TransformResponse {
         this.message = message;
     }
 
+    /**
+     * Gets a page of the results of this transformation.
+     *
+     * @return the page of results
+     */
+    public TransformResultPage getPage() {
+        return page;
+    }
+
+    /**
+     * Sets a page of the results of this transformation.
+     *
+     * @param page the page of results
+     */
+    public void setPage(TransformResultPage page) {
+        this.page = page;
+    }
+
     /**
      * Gets the progress of the transformation.
      *
@@ -95,7 +120,9 @@ public class TransformResponse {
      * Gets the results of this transformation.
      *
      * @return the results
+     * @deprecated Replaced with {@link #getPage()}
      */
+    @Deprecated
     public QueryResult getResults() {
         return results;
     }
@@ -104,7 +131,9 @@ public class TransformResponse {
      * Sets the results of this transformation.
      *
      * @param results the results
+     * @deprecated Replaced with {@link #setPage(TransformResultPage)}
      */
+    @Deprecated
     public void setResults(QueryResult results) {
         this.results = results;
     }
@@ -0,0 +1,146 @@
+package com.thinkbiganalytics.spark.rest.model;
+
+/*-
+ * #%L
+ * Spark Shell Service REST Model
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.thinkbiganalytics.discovery.model.DefaultQueryResultColumn;
+import com.thinkbiganalytics.discovery.schema.QueryResultColumn;
+
+import java.util.List;
+
+/**
+ * A page of the results of a Spark transformation.
+ *
+ * <p>The values are stored by column to keep the response compact. The value of row {@code r} in column {@code c} is
+ * {@code getData().get(c).get(r)}, where {@code r} is relative to the offset of this page.</p>
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class TransformResultPage {
+
+    /**
+     * Columns of the results
+     */
+    @JsonDeserialize(contentAs = DefaultQueryResultColumn.class)
+    @JsonSerialize(contentAs = DefaultQueryResultColumn.class)
+    private List<QueryResultColumn> columns;
+
+    /**
+     * Values of each column
+     */
+    private List<List<Object>> data;
+
+    /**
+     * Index of the first row in this page
+     */
+    private long offset;
+
+    /**
+     * Total number of rows in the results
+     */
+    private long totalRows;
+
+    /**
+     * Gets the columns of the results.
+     *
+     * @return the columns
+     */
+    public List<QueryResultColumn> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Sets the columns of the results.
+     *
+     * @param columns the columns
+     */
+    public void setColumns(List<QueryResultColumn> columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * Gets the values of each column, in the same order as the columns.
+     *
+     * @return the column values
+     */
+    public List<List<Object>> getData() {
+        return data;
+    }
+
+    /**
+     * Sets the values of each column, in the same order as the columns.
+     *
+     * @param data the column values
+     */
+    public void setData(List<List<Object>> data) {
+        this.data = data;
+    }
+
+    /**
+     * Gets the index of the first row in this page.
+     *
+     * @return the row offset
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Sets the index of the first row in this page.
+     *
+     * @param offset the row offset
+     */
+    public void setOffset(long offset) {
+        this.offset = offset;
+    }
+
+    /**
+     * Gets the number of rows in this page.
+     *
+     * @return the number of rows
+     */
+    @JsonIgnore
+    public int getRowCount() {
+        return (data != null && !data.isEmpty()) ? data.get(0).size() : 0;
+    }
+
+    /**
+     * Gets the total number of rows in the results.
+     *
+     * @return the total number of rows
+     */
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    /**
+     * Sets the total number of rows in the results.
+     *
+     * @param totalRows the total number of rows
+     */
+    public void setTotalRows(long totalRows) {
+        this.totalRows = totalRows;
+    }
+}
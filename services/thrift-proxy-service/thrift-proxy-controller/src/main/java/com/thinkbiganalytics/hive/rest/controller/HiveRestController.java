@@ -25,22 +25,26 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.thinkbiganalytics.discovery.schema.DatabaseMetadata;
 import com.thinkbiganalytics.discovery.schema.QueryResult;
 import com.thinkbiganalytics.discovery.schema.TableSchema;
-import com.thinkbiganalytics.hive.service.HiveMetastoreService;
+import com.thinkbiganalytics.hive.service.HiveQueryCursorService;
+import com.thinkbiganalytics.hive.service.HiveQueryPage;
+import com.thinkbiganalytics.hive.service.HiveSchemaCatalog;
 import com.thinkbiganalytics.hive.service.HiveService;
 import com.thinkbiganalytics.rest.model.RestResponseStatus;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.env.Environment;
 import org.springframework.dao.DataAccessException;
 
 import java.security.AccessControlException;
 import java.sql.SQLException;
 import java.util.List;
 
+import javax.ws.rs.DELETE;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
@@ -63,13 +67,13 @@ public class HiveRestController {
     private static final Logger log = LoggerFactory.getLogger(HiveRestController.class);
 
     @Autowired
-    private Environment env;
+    private HiveService hiveService;
 
     @Autowired
-    private HiveService hiveService;
+    private HiveQueryCursorService hiveQueryCursorService;
 
     @Autowired
-    private HiveMetastoreService hiveMetadataService;
+    private HiveSchemaCatalog hiveSchemaCatalog;
 
     @GET
     @Path("/test-connection")
@@ -99,14 +103,7 @@ public class HiveRestController {
     public Response getTableColumns() {
         List<DatabaseMetadata> list;
         try {
-            boolean userImpersonationEnabled = Boolean.valueOf(env.getProperty("hive.userImpersonation.enabled"));
-            if (userImpersonationEnabled) {
-                List<String> tables = hiveService.getAllTablesForImpersonatedUser();
-                list = hiveMetadataService.getTableColumns(tables);
-            } else {
-                list = hiveMetadataService.getTableColumns(null);
-            }
-
+            list = hiveSchemaCatalog.getTableColumns();
         } catch (DataAccessException e) {
             log.error("Error Querying Hive Tables  for columns from the Metastore ", e);
             throw e;
@@ -179,6 +176,60 @@ public class HiveRestController {
     }
 
 
+    @POST
+    @Path("/query-cursor")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation("Executes a Hive query and returns the first page of the result.",
+                  notes = "A cursor id is included if there are more rows. The columns are only included in the first page.")
+    @ApiResponses({
+                      @ApiResponse(code = 200, message = "Returns the first page of the result.", response = HiveQueryPage.class),
+                      @ApiResponse(code = 500, message = "Hive is unavailable.", response = RestResponseStatus.class)
+                  })
+    public Response openQueryCursor(@QueryParam("query") String query, @QueryParam("pageSize") @DefaultValue("100") Integer pageSize) {
+        HiveQueryPage page;
+        try {
+            page = hiveQueryCursorService.open(query, pageSize);
+        } catch (DataAccessException e) {
+            if (e.getCause() != null && e.getCause().getMessage() != null && e.getCause().getMessage().contains("HiveAccessControlException Permission denied")) {
+                throw new AccessControlException("You do not have permission to execute this hive query");
+            } else {
+                log.error("Error Querying Hive for query: " + query);
+                throw e;
+            }
+        }
+        return Response.ok(asJson(page)).build();
+    }
+
+    @GET
+    @Path("/query-cursor/{cursorId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation("Gets the next page of a query result.")
+    @ApiResponses({
+                      @ApiResponse(code = 200, message = "Returns the next page of the result.", response = HiveQueryPage.class),
+                      @ApiResponse(code = 404, message = "The cursor was not found.", response = RestResponseStatus.class),
+                      @ApiResponse(code = 500, message = "Hive is unavailable.", response = RestResponseStatus.class)
+                  })
+    public Response fetchQueryCursor(@PathParam("cursorId") String cursorId, @QueryParam("pageSize") @DefaultValue("100") Integer pageSize) {
+        HiveQueryPage page = hiveQueryCursorService.fetch(cursorId, pageSize).orElseThrow(NotFoundException::new);
+        return Response.ok(asJson(page)).build();
+    }
+
+    @DELETE
+    @Path("/query-cursor/{cursorId}")
+    @ApiOperation("Cancels a query and closes its cursor.")
+    @ApiResponses({
+                      @ApiResponse(code = 204, message = "The cursor was closed."),
+                      @ApiResponse(code = 404, message = "The cursor was not found.", response = RestResponseStatus.class)
+                  })
+    public Response cancelQueryCursor(@PathParam("cursorId") String cursorId) {
+        if (hiveQueryCursorService.cancel(cursorId)) {
+            return Response.noContent().build();
+        } else {
+            throw new NotFoundException();
+        }
+    }
+
+
     @GET
     @Path("/schemas/{schema}/tables/{table}")
     @Produces(MediaType.APPLICATION_JSON)
@@ -218,7 +269,7 @@ public class HiveRestController {
         //  List<TableSchema> schemas = hiveService.getAllTableSchemas();
         List<TableSchema> schemas;
         try {
-            schemas = hiveMetadataService.getTableSchemas();
+            schemas = hiveSchemaCatalog.getTableSchemas();
         } catch (DataAccessException e) {
             log.error("Error listing Hive Table schemas from the metastore ", e);
             throw e;
@@ -237,16 +288,30 @@ public class HiveRestController {
                   })
     public Response getTables() {
         List<String> tables;
-        boolean userImpersonationEnabled = Boolean.valueOf(env.getProperty("hive.userImpersonation.enabled"));
-        if (userImpersonationEnabled) {
-            tables = hiveService.getAllTablesForImpersonatedUser();
-        } else {
-            try {
-                tables = hiveMetadataService.getAllTables();
-            } catch (DataAccessException e) {
-                log.error("Error listing Hive Tables from the metastore ", e);
-                throw e;
-            }
+        try {
+            tables = hiveSchemaCatalog.getTableNames();
+        } catch (DataAccessException e) {
+            log.error("Error listing Hive Tables from the metastore ", e);
+            throw e;
+        }
+        return Response.ok(asJson(tables)).build();
+    }
+
+    @GET
+    @Path("/tables/search")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation("Finds tables where the database or table name starts with the specified prefix.")
+    @ApiResponses({
+                      @ApiResponse(code = 200, message = "Returns the matching tables.", response = String.class, responseContainer = "List"),
+                      @ApiResponse(code = 500, message = "Hive is unavailable.", response = RestResponseStatus.class)
+                  })
+    public Response searchTables(@QueryParam("prefix") @DefaultValue("") String prefix, @QueryParam("limit") @DefaultValue("50") Integer limit) {
+        List<String> tables;
+        try {
+            tables = hiveSchemaCatalog.search(prefix, limit);
+        } catch (DataAccessException e) {
+            log.error("Error searching Hive Tables from the metastore ", e);
+            throw e;
         }
         return Response.ok(asJson(tables)).build();
     }
@@ -260,13 +325,7 @@ public class HiveRestController {
                       @ApiResponse(code = 500, message = "Hive is unavailable.", response = RestResponseStatus.class)
                   })
     public Response getTableNames(@PathParam("schema") String schema) {
-        boolean userImpersonationEnabled = Boolean.valueOf(env.getProperty("hive.userImpersonation.enabled"));
-        List<String> tables;
-        if (userImpersonationEnabled) {
-            tables = hiveService.getTablesForImpersonatedUser(schema);
-        } else {
-            tables = hiveService.getTables(schema);
-        }
+        List<String> tables = hiveSchemaCatalog.getTableNames(schema);
         return Response.ok(asJson(tables)).build();
     }
 
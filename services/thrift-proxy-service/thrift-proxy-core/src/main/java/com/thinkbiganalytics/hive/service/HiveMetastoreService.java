@@ -42,8 +42,10 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.inject.Inject;
 import javax.sql.DataSource;
@@ -66,7 +68,7 @@ public class HiveMetastoreService {
         return hiveMetatoreJdbcTemplate.getDataSource();
     }
 
-    private DatabaseType getMetastoreDatabaseType() {
+    DatabaseType getMetastoreDatabaseType() {
         if (metastoreDatabaseType == null) {
             try {
                 metastoreDatabaseType = DatabaseType.fromMetaData(getDataSource());
@@ -115,8 +117,9 @@ public class HiveMetastoreService {
 
     private List<DatabaseMetadata> filterDatabaseMetadata(List<DatabaseMetadata> allTables, List<String> tablesFilter) {
         List<DatabaseMetadata> results = new ArrayList<>();
+        Set<String> tables = new HashSet<>(tablesFilter);
         allTables.forEach(metadata -> {
-            if (tablesFilter.contains(metadata.getDatabaseName() + "." + metadata.getTableName())) {
+            if (tables.contains(metadata.getDatabaseName() + "." + metadata.getTableName())) {
                 results.add(metadata);
             }
         });
@@ -143,7 +146,7 @@ public class HiveMetastoreService {
 
     public List<TableSchema> getTableSchemas() throws DataAccessException {
 
-        String query = "SELECT d.NAME as \"DATABASE_NAME\", t.TBL_NAME, c.COLUMN_NAME c.TYPE_NAME "
+        String query = "SELECT d.NAME as \"DATABASE_NAME\", t.TBL_NAME, c.COLUMN_NAME, c.TYPE_NAME "
                        + "FROM COLUMNS_V2 c "
                        + "JOIN  SDS s on s.CD_ID = c.CD_ID "
                        + "JOIN  TBLS t ON s.SD_ID = t.SD_ID "
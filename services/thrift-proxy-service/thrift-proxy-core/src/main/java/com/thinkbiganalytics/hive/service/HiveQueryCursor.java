@@ -0,0 +1,322 @@
+package com.thinkbiganalytics.hive.service;
+
+/*-
+ * #%L
+ * thinkbig-thrift-proxy-core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.thinkbiganalytics.discovery.model.DefaultQueryResultColumn;
+import com.thinkbiganalytics.discovery.schema.QueryResultColumn;
+import com.thinkbiganalytics.discovery.util.ParserHelper;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * A server-side cursor over the result of a Hive query.
+ *
+ * <p>The rows are read from Hive as each page is requested so that only one page is held in memory. The cursor holds its Hive connection until the last
+ * row is read or the cursor is closed.</p>
+ */
+public class HiveQueryCursor implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(HiveQueryCursor.class);
+
+    /**
+     * Hive connection used only by this cursor
+     */
+    @Nonnull
+    private final Connection connection;
+
+    /**
+     * Cursor identifier
+     */
+    @Nonnull
+    private final String id;
+
+    /**
+     * User that opened the cursor, or {@code null} if unauthenticated
+     */
+    @Nullable
+    private final String owner;
+
+    /**
+     * Query being executed
+     */
+    @Nonnull
+    private final String query;
+
+    /**
+     * Indicates that the cursor has been cancelled
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Indicates that the connection has been released
+     */
+    private volatile boolean closed;
+
+    /**
+     * Columns of the result
+     */
+    @Nullable
+    private List<QueryResultColumn> columns;
+
+    /**
+     * Indicates that the query is executing
+     */
+    private volatile boolean executing;
+
+    /**
+     * Time the cursor was last used
+     */
+    private volatile long lastAccessTime = System.currentTimeMillis();
+
+    /**
+     * Number of rows read
+     */
+    private long position;
+
+    /**
+     * Result of the query
+     */
+    @Nullable
+    private ResultSet resultSet;
+
+    /**
+     * Statement executing the query
+     */
+    @Nullable
+    private volatile Statement statement;
+
+    /**
+     * Constructs a {@code HiveQueryCursor}.
+     *
+     * @param id         the cursor identifier
+     * @param owner      the user that opened the cursor
+     * @param connection the Hive connection to use
+     * @param query      the query to execute
+     */
+    public HiveQueryCursor(@Nonnull final String id, @Nullable final String owner, @Nonnull final Connection connection, @Nonnull final String query) {
+        this.id = id;
+        this.owner = owner;
+        this.connection = connection;
+        this.query = query;
+    }
+
+    /**
+     * Builds the columns of a Hive result. Duplicate display names are given a numeric suffix.
+     *
+     * @param metaData the result set metadata
+     * @return the columns
+     * @throws SQLException if the metadata cannot be read
+     */
+    @Nonnull
+    public static List<QueryResultColumn> toColumns(@Nonnull final ResultSetMetaData metaData) throws SQLException {
+        final List<QueryResultColumn> columns = new ArrayList<>(metaData.getColumnCount());
+        final Map<String, Integer> displayNameMap = new HashMap<>();
+
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            DefaultQueryResultColumn column = new DefaultQueryResultColumn();
+            column.setField(metaData.getColumnName(i));
+            String displayName = metaData.getColumnLabel(i);
+            column.setHiveColumnLabel(displayName);
+            //remove the table name if it exists
+            displayName = StringUtils.substringAfterLast(displayName, ".");
+            Integer count = 0;
+            if (displayNameMap.containsKey(displayName)) {
+                count = displayNameMap.get(displayName);
+                count++;
+            }
+            displayNameMap.put(displayName, count);
+            column.setDisplayName(displayName + "" + (count > 0 ? count : ""));
+
+            column.setTableName(StringUtils.substringAfterLast(metaData.getColumnName(i), "."));
+            column.setDataType(ParserHelper.sqlTypeToHiveType(metaData.getColumnType(i)));
+            column.setIndex(i - 1);
+            columns.add(column);
+        }
+
+        return columns;
+    }
+
+    /**
+     * Executes the query.
+     *
+     * @param fetchSize the number of rows to transfer from Hive at a time
+     * @param maxRows   the maximum number of rows in the result, or 0 for no limit
+     * @throws SQLException if the query fails
+     */
+    public void execute(final int fetchSize, final int maxRows) throws SQLException {
+        executing = true;
+        try {
+            final Statement st = connection.createStatement();
+            statement = st;
+            st.setFetchSize(fetchSize);
+            st.setMaxRows(maxRows);
+
+            //  Setting in order to query complex formats like parquet
+            st.execute("set hive.optimize.index.filter=false");
+
+            if (!cancelled) {
+                final ResultSet rs = st.executeQuery(query);
+                columns = toColumns(rs.getMetaData());
+                resultSet = rs;
+            }
+        } catch (final SQLException e) {
+            close();
+            if (!cancelled) {
+                throw e;
+            }
+        } finally {
+            executing = false;
+            touch();
+        }
+        if (cancelled) {
+            close();
+        }
+    }
+
+    /**
+     * Reads the next page of rows.
+     *
+     * @param pageSize the maximum number of rows to read
+     * @return the page
+     * @throws SQLException if the rows cannot be read
+     */
+    @Nonnull
+    public synchronized HiveQueryPage fetch(final int pageSize) throws SQLException {
+        touch();
+
+        final HiveQueryPage page = new HiveQueryPage();
+        page.setColumns((position == 0) ? columns : null);
+        page.setOffset(position);
+
+        final List<Object[]> rows = new ArrayList<>(Math.min(pageSize, 1024));
+        boolean complete = (resultSet == null);
+        if (!complete) {
+            try {
+                final int columnCount = (columns != null) ? columns.size() : 0;
+                while (rows.size() < pageSize && !cancelled) {
+                    if (!resultSet.next()) {
+                        complete = true;
+                        break;
+                    }
+                    final Object[] row = new Object[columnCount];
+                    for (int i = 0; i < columnCount; ++i) {
+                        row[i] = resultSet.getObject(i + 1);
+                    }
+                    rows.add(row);
+                }
+            } catch (final SQLException e) {
+                close();
+                throw e;
+            }
+            complete |= cancelled;
+        }
+
+        position += rows.size();
+        page.setRows(rows);
+        page.setComplete(complete);
+        if (complete) {
+            close();
+        } else {
+            page.setCursorId(id);
+        }
+        return page;
+    }
+
+    /**
+     * Cancels the query and releases the connection.
+     */
+    public void cancel() {
+        cancelled = true;
+        final Statement current = statement;
+        if (current != null) {
+            try {
+                current.cancel();
+            } catch (final SQLException | RuntimeException e) {
+                log.debug("Unable to cancel Hive query for cursor {}: {}", id, e.toString());
+            }
+        }
+    }
+
+    /**
+     * Releases the Hive connection.
+     */
+    @Override
+    public synchronized void close() {
+        JdbcUtils.closeResultSet(resultSet);
+        resultSet = null;
+        JdbcUtils.closeStatement(statement);
+        statement = null;
+        if (!closed) {
+            closed = true;
+            JdbcUtils.closeConnection(connection);
+        }
+    }
+
+    /**
+     * Marks the cursor as recently used.
+     */
+    public void touch() {
+        lastAccessTime = System.currentTimeMillis();
+    }
+
+    @Nonnull
+    public String getId() {
+        return id;
+    }
+
+    @Nullable
+    public String getOwner() {
+        return owner;
+    }
+
+    public long getLastAccessTime() {
+        return lastAccessTime;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public boolean isExecuting() {
+        return executing;
+    }
+}
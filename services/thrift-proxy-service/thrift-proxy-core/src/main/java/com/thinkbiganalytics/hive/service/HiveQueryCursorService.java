@@ -0,0 +1,352 @@
+package com.thinkbiganalytics.hive.service;
+
+/*-
+ * #%L
+ * thinkbig-thrift-proxy-core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+/**
+ * Executes Hive queries using server-side cursors that are read one page at a time.
+ *
+ * <p>Each open cursor holds a Hive connection because the result is tied to the Hive session that executed the query. Cursors that are not read within
+ * the idle timeout are closed to release their connection, and at most {@code maxOpenCursors} cursors are open at a time. Results that fit in a single
+ * page may be cached for a short time so that repeated previews of the same query do not run it again.</p>
+ */
+@Service("hiveQueryCursorService")
+public class HiveQueryCursorService {
+
+    private static final Logger log = LoggerFactory.getLogger(HiveQueryCursorService.class);
+
+    /**
+     * Open cursors by id
+     */
+    private final ConcurrentMap<String, HiveQueryCursor> cursors = new ConcurrentHashMap<>();
+
+    /**
+     * Seconds before an unused cursor is closed
+     */
+    @Value("${hive.query.cursor.idleTimeout:60}")
+    private long idleTimeout;
+
+    @Inject
+    @Qualifier("hiveJdbcTemplate")
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Maximum number of open cursors
+     */
+    @Value("${hive.query.cursor.maxOpen:20}")
+    private int maxOpenCursors;
+
+    /**
+     * Permits for opening a cursor, one for each cursor that may be opened
+     */
+    @Nullable
+    private Semaphore openPermits;
+
+    /**
+     * Maximum number of rows in a result
+     */
+    @Value("${hive.query.maxRows:1000}")
+    private int maxRows;
+
+    /**
+     * Maximum number of cached results
+     */
+    @Value("${hive.query.cache.maxSize:100}")
+    private long resultCacheSize;
+
+    /**
+     * Seconds to cache a result, or 0 to disable the cache
+     */
+    @Value("${hive.query.cache.ttl:30}")
+    private long resultCacheTtl;
+
+    /**
+     * Results that fit in a single page by user and normalized query
+     */
+    @Nullable
+    private Cache<String, HiveQueryPage> resultCache;
+
+    /**
+     * Closes idle cursors
+     */
+    @Nullable
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Normalizes whitespace in the specified query so that equivalent queries share a cache entry. Quoted strings and identifiers are not changed.
+     *
+     * @param query the query
+     * @return the normalized query
+     */
+    @Nonnull
+    static String normalize(@Nonnull final String query) {
+        final StringBuilder normalized = new StringBuilder(query.length());
+        char quote = 0;
+        boolean space = false;
+
+        for (int i = 0; i < query.length(); ++i) {
+            final char c = query.charAt(i);
+            if (quote != 0) {
+                normalized.append(c);
+                if (c == '\\' && i + 1 < query.length()) {
+                    normalized.append(query.charAt(++i));
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (Character.isWhitespace(c)) {
+                space = true;
+            } else {
+                if (space && normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+                space = false;
+                if (c == '\'' || c == '"' || c == '`') {
+                    quote = c;
+                }
+                normalized.append(c);
+            }
+        }
+
+        // Remove trailing statement terminator
+        int length = normalized.length();
+        while (length > 0 && normalized.charAt(length - 1) == ';' && quote == 0) {
+            normalized.setLength(--length);
+        }
+        return normalized.toString().trim();
+    }
+
+    /**
+     * Wraps the query in a select statement to ensure DDL isn't sent through.
+     */
+    @Nonnull
+    static String safeQuery(@Nonnull final String query) {
+        return query.toLowerCase().startsWith("show") ? query : "SELECT kylo_.* FROM (" + query + ") kylo_";
+    }
+
+    @PostConstruct
+    public void start() {
+        openPermits = new Semaphore(maxOpenCursors);
+        if (resultCacheTtl > 0) {
+            resultCache = CacheBuilder.newBuilder().expireAfterWrite(resultCacheTtl, TimeUnit.SECONDS).maximumSize(resultCacheSize).build();
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("hive-query-cursor-%d").build());
+        final long period = Math.max(1, idleTimeout / 4);
+        scheduler.scheduleWithFixedDelay(this::closeIdleCursors, period, period, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        cursors.values().forEach(cursor -> {
+            if (remove(cursor)) {
+                cursor.cancel();
+                cursor.close();
+            }
+        });
+    }
+
+    /**
+     * Executes the specified query and reads the first page of rows.
+     *
+     * @param query    the query to execute
+     * @param pageSize the maximum number of rows in each page
+     * @return the first page, including a cursor id if there are more rows
+     * @throws DataAccessException      if the query fails
+     * @throws IllegalArgumentException if the query is blank
+     * @throws IllegalStateException    if too many cursors are open
+     */
+    @Nonnull
+    public HiveQueryPage open(@Nonnull final String query, final int pageSize) {
+        Validate.notBlank(query, "A query is required");
+        final int fetchSize = Math.max(1, pageSize);
+        final String owner = getCurrentUser();
+        final String normalizedQuery = normalize(query);
+        final String cacheKey = owner + "\n" + normalizedQuery;
+
+        // Check for a cached result
+        final HiveQueryPage cached = (resultCache != null) ? resultCache.getIfPresent(cacheKey) : null;
+        if (cached != null) {
+            log.debug("Using cached result for query: {}", normalizedQuery);
+            return cached;
+        }
+
+        // Reserve a cursor
+        final Semaphore permits = Objects.requireNonNull(openPermits, "Hive query cursor service has not been started");
+        if (!permits.tryAcquire()) {
+            throw new IllegalStateException("Too many open Hive query cursors. Close an existing cursor and try again.");
+        }
+
+        // Execute query
+        final String sql = safeQuery(normalizedQuery);
+        HiveQueryCursor cursor = null;
+        final HiveQueryPage page;
+        try {
+            final Connection connection = jdbcTemplate.getDataSource().getConnection();
+            cursor = new HiveQueryCursor(UUID.randomUUID().toString(), owner, connection, sql);
+            cursors.put(cursor.getId(), cursor);
+            try {
+                cursor.execute(fetchSize, maxRows);
+                page = cursor.fetch(fetchSize);
+            } finally {
+                cursor.touch();
+            }
+        } catch (final SQLException e) {
+            throw jdbcTemplate.getExceptionTranslator().translate("Hive query", sql, e);
+        } finally {
+            if (cursor == null) {
+                permits.release();
+            } else if (cursor.isClosed()) {
+                remove(cursor);
+            }
+        }
+
+        // Cache result
+        if (page.isComplete() && resultCache != null && !cursor.isCancelled()) {
+            resultCache.put(cacheKey, page);
+        }
+        return page;
+    }
+
+    /**
+     * Reads the next page of rows from the specified cursor.
+     *
+     * @param cursorId the cursor id
+     * @param pageSize the maximum number of rows in the page
+     * @return the page, or an empty optional if the cursor does not exist
+     * @throws DataAccessException if the rows cannot be read
+     */
+    @Nonnull
+    public Optional<HiveQueryPage> fetch(@Nonnull final String cursorId, final int pageSize) {
+        final HiveQueryCursor cursor = getCursor(cursorId);
+        if (cursor == null) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(cursor.fetch(Math.max(1, pageSize)));
+        } catch (final SQLException e) {
+            throw jdbcTemplate.getExceptionTranslator().translate("Hive query", null, e);
+        } finally {
+            cursor.touch();
+            if (cursor.isClosed()) {
+                remove(cursor);
+            }
+        }
+    }
+
+    /**
+     * Cancels the query of the specified cursor and releases its connection.
+     *
+     * @param cursorId the cursor id
+     * @return {@code true} if the cursor was cancelled, or {@code false} if it does not exist
+     */
+    public boolean cancel(@Nonnull final String cursorId) {
+        final HiveQueryCursor cursor = getCursor(cursorId);
+        if (cursor != null && remove(cursor)) {
+            cursor.cancel();
+            cursor.close();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Closes cursors that have not been used within the idle timeout.
+     */
+    void closeIdleCursors() {
+        final long expireTime = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(idleTimeout);
+        cursors.values().stream()
+            .filter(cursor -> !cursor.isExecuting() && cursor.getLastAccessTime() < expireTime)
+            .forEach(cursor -> {
+                if (remove(cursor)) {
+                    log.debug("Closing idle Hive query cursor {}", cursor.getId());
+                    cursor.cancel();
+                    cursor.close();
+                }
+            });
+    }
+
+    /**
+     * Removes the specified cursor and returns its permit.
+     *
+     * @return {@code true} if the cursor was removed, or {@code false} if it was already removed
+     */
+    private boolean remove(@Nonnull final HiveQueryCursor cursor) {
+        if (cursors.remove(cursor.getId(), cursor)) {
+            Objects.requireNonNull(openPermits).release();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gets the specified cursor if it belongs to the current user.
+     */
+    @Nullable
+    private HiveQueryCursor getCursor(@Nonnull final String cursorId) {
+        final HiveQueryCursor cursor = cursors.get(cursorId);
+        return (cursor != null && Objects.equals(cursor.getOwner(), getCurrentUser())) ? cursor : null;
+    }
+
+    /**
+     * Gets the name of the current user, or {@code null} if unauthenticated.
+     */
+    @Nullable
+    private String getCurrentUser() {
+        final Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return (authentication != null) ? authentication.getName() : null;
+    }
+}
@@ -0,0 +1,102 @@
+package com.thinkbiganalytics.hive.service;
+
+/*-
+ * #%L
+ * thinkbig-thrift-proxy-core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.thinkbiganalytics.discovery.schema.QueryResultColumn;
+
+import java.util.List;
+
+/**
+ * A page of rows read from a {@link HiveQueryCursor}.
+ *
+ * <p>Each row is an array of values in the same order as the columns. The columns are only included in the first page of a cursor.</p>
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class HiveQueryPage {
+
+    /**
+     * Cursor for reading the next page, or {@code null} if the result is complete
+     */
+    private String cursorId;
+
+    /**
+     * Columns of the result, or {@code null} if not the first page
+     */
+    private List<QueryResultColumn> columns;
+
+    /**
+     * Index of the first row in this page
+     */
+    private long offset;
+
+    /**
+     * Values of each row
+     */
+    private List<Object[]> rows;
+
+    /**
+     * Indicates that there are no more rows
+     */
+    private boolean complete;
+
+    public String getCursorId() {
+        return cursorId;
+    }
+
+    public void setCursorId(String cursorId) {
+        this.cursorId = cursorId;
+    }
+
+    public List<QueryResultColumn> getColumns() {
+        return columns;
+    }
+
+    public void setColumns(List<QueryResultColumn> columns) {
+        this.columns = columns;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public void setOffset(long offset) {
+        this.offset = offset;
+    }
+
+    public List<Object[]> getRows() {
+        return rows;
+    }
+
+    public void setRows(List<Object[]> rows) {
+        this.rows = rows;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public void setComplete(boolean complete) {
+        this.complete = complete;
+    }
+}
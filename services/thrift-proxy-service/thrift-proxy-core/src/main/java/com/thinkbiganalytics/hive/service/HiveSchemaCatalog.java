@@ -0,0 +1,700 @@
+package com.thinkbiganalytics.hive.service;
+
+/*-
+ * #%L
+ * thinkbig-thrift-proxy-core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.thinkbiganalytics.discovery.model.DefaultDatabaseMetadata;
+import com.thinkbiganalytics.discovery.model.DefaultField;
+import com.thinkbiganalytics.discovery.model.DefaultTableSchema;
+import com.thinkbiganalytics.discovery.schema.DatabaseMetadata;
+import com.thinkbiganalytics.discovery.schema.Field;
+import com.thinkbiganalytics.discovery.schema.TableSchema;
+import com.thinkbiganalytics.jdbc.util.DatabaseType;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+/**
+ * An in-memory catalog of the tables and columns in the Hive metastore.
+ *
+ * <p>The catalog is loaded in parallel, one database at a time, when Kylo starts. It is then refreshed incrementally using the metastore notification log
+ * if available, or the create time of tables otherwise. Without notifications, altered columns are detected by comparing the cached columns with the
+ * metastore at each reconciliation. Table names are always kept in memory for prefix searches while the columns of the least recently used tables are
+ * evicted once the cache is full.</p>
+ *
+ * <p>Until the initial load completes, requests are passed to the {@link HiveMetastoreService}.</p>
+ */
+@Service("hiveSchemaCatalog")
+public class HiveSchemaCatalog {
+
+    private static final Logger log = LoggerFactory.getLogger(HiveSchemaCatalog.class);
+
+    /**
+     * Separates the table name from the database name in the table name index
+     */
+    private static final char NAME_SEPARATOR = '\u0000';
+
+    /**
+     * Metastore queries. Identifiers are quoted for PostgreSQL and the quotes are removed for other databases.
+     */
+    private static final String DATABASES_QUERY = "SELECT d.\"NAME\" FROM \"DBS\" d";
+    private static final String TABLES_QUERY = "SELECT t.\"TBL_ID\", d.\"NAME\" AS \"DATABASE_NAME\", t.\"TBL_NAME\", t.\"CREATE_TIME\" FROM \"TBLS\" t "
+                                               + "JOIN \"DBS\" d ON d.\"DB_ID\" = t.\"DB_ID\" ";
+    private static final String COLUMNS_QUERY = "SELECT t.\"TBL_ID\", c.\"COLUMN_NAME\", c.\"TYPE_NAME\" FROM \"COLUMNS_V2\" c "
+                                                + "JOIN \"SDS\" s ON s.\"CD_ID\" = c.\"CD_ID\" "
+                                                + "JOIN \"TBLS\" t ON t.\"SD_ID\" = s.\"SD_ID\" "
+                                                + "JOIN \"DBS\" d ON d.\"DB_ID\" = t.\"DB_ID\" ";
+    private static final String COLUMNS_ORDER = " ORDER BY t.\"TBL_ID\", c.\"INTEGER_IDX\"";
+    private static final String LAST_EVENT_QUERY = "SELECT MAX(n.\"EVENT_ID\") FROM \"NOTIFICATION_LOG\" n";
+    private static final String EVENTS_QUERY = "SELECT n.\"EVENT_ID\", n.\"EVENT_TYPE\", n.\"DB_NAME\", n.\"TBL_NAME\" FROM \"NOTIFICATION_LOG\" n WHERE n.\"EVENT_ID\" > ? "
+                                               + "ORDER BY n.\"EVENT_ID\"";
+
+    /**
+     * Tables by lower-case {@code database.table}
+     */
+    private final NavigableMap<String, CatalogTable> tables = new ConcurrentSkipListMap<>();
+
+    /**
+     * Tables by lower-case table name and database name
+     */
+    private final NavigableMap<String, CatalogTable> tablesByName = new ConcurrentSkipListMap<>();
+
+    @Inject
+    private Environment env;
+
+    @Inject
+    private HiveMetastoreService hiveMetastoreService;
+
+    @Inject
+    @Qualifier("hiveMetatoreJdbcTemplate")
+    private JdbcTemplate hiveMetastoreJdbcTemplate;
+
+    @Inject
+    private HiveService hiveService;
+
+    /**
+     * Highest create time of all tables, in seconds
+     */
+    private volatile int lastCreateTime;
+
+    /**
+     * Highest metastore notification id applied, or -1 if notifications are not available
+     */
+    private volatile long lastEventId = -1;
+
+    /**
+     * Time of the last reconciliation of the table names with the metastore
+     */
+    private volatile long lastReconcileTime;
+
+    /**
+     * Indicates that the initial load has completed
+     */
+    private volatile boolean loaded;
+
+    /**
+     * Number of threads for the initial load
+     */
+    @Value("${hive.catalog.loadThreads:4}")
+    private int loadThreads;
+
+    /**
+     * Maximum number of tables to keep the columns of
+     */
+    @Value("${hive.catalog.maxTables:50000}")
+    private long maxTables;
+
+    /**
+     * Seconds between reconciliations of the table names with the metastore
+     */
+    @Value("${hive.catalog.reconcileInterval:900}")
+    private long reconcileInterval;
+
+    /**
+     * Seconds between refreshes
+     */
+    @Value("${hive.catalog.refreshInterval:60}")
+    private long refreshInterval;
+
+    /**
+     * Seconds to keep the tables accessible to an impersonated user
+     */
+    @Value("${hive.catalog.userTablesTtl:300}")
+    private long userTablesTtl;
+
+    /**
+     * Refreshes the catalog
+     */
+    @Nullable
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Table columns by lower-case {@code database.table}
+     */
+    @Nullable
+    private Cache<String, TableSchema> schemas;
+
+    /**
+     * Tables accessible to each impersonated user
+     */
+    @Nullable
+    private Cache<String, Set<String>> userTables;
+
+    @PostConstruct
+    public void start() {
+        schemas = CacheBuilder.newBuilder().maximumSize(maxTables).build();
+        userTables = CacheBuilder.newBuilder().expireAfterWrite(userTablesTtl, TimeUnit.SECONDS).build();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("hive-schema-catalog-%d").build());
+        scheduler.scheduleWithFixedDelay(this::refresh, 0, refreshInterval, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Indicates that the initial load has completed.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Lists the tables accessible to the current user as {@code database.table}.
+     */
+    @Nonnull
+    public List<String> getTableNames() {
+        if (!loaded) {
+            return isUserImpersonationEnabled() ? hiveService.getAllTablesForImpersonatedUser() : hiveMetastoreService.getAllTables();
+        }
+        final Predicate<CatalogTable> filter = getUserFilter();
+        return tables.values().stream().filter(filter).map(CatalogTable::getQualifiedName).collect(Collectors.toList());
+    }
+
+    /**
+     * Lists the tables in the specified database that are accessible to the current user.
+     *
+     * @param database the database name
+     * @return the table names
+     */
+    @Nonnull
+    public List<String> getTableNames(@Nonnull final String database) {
+        if (!loaded) {
+            return isUserImpersonationEnabled() ? hiveService.getTablesForImpersonatedUser(database) : hiveService.getTables(database);
+        }
+        final Predicate<CatalogTable> filter = getUserFilter();
+        return getTablesWithPrefix(tables, database.toLowerCase() + ".").stream()
+            .filter(filter)
+            .map(CatalogTable::getName)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Finds the tables accessible to the current user where either the database or table name starts with the specified prefix. If the prefix
+     * contains a dot then it is matched against {@code database.table}.
+     *
+     * @param prefix the prefix to match
+     * @param limit  the maximum number of results
+     * @return the matching tables as {@code database.table}
+     */
+    @Nonnull
+    public List<String> search(@Nonnull final String prefix, final int limit) {
+        final String lowerPrefix = prefix.toLowerCase();
+        final Set<CatalogTable> matches = new TreeSet<>((a, b) -> a.getKey().compareTo(b.getKey()));
+        matches.addAll(getTablesWithPrefix(tables, lowerPrefix));
+        if (lowerPrefix.indexOf('.') == -1) {
+            matches.addAll(getTablesWithPrefix(tablesByName, lowerPrefix));
+        }
+
+        final Predicate<CatalogTable> filter = getUserFilter();
+        return matches.stream().filter(filter).limit(limit).map(CatalogTable::getQualifiedName).collect(Collectors.toList());
+    }
+
+    /**
+     * Gets the schemas of all tables.
+     */
+    @Nonnull
+    public List<TableSchema> getTableSchemas() {
+        if (!loaded || schemas == null) {
+            return hiveMetastoreService.getTableSchemas();
+        }
+        return new ArrayList<>(getSchemas(new ArrayList<>(tables.keySet())).values());
+    }
+
+    /**
+     * Gets the columns of the tables accessible to the current user.
+     */
+    @Nonnull
+    public List<DatabaseMetadata> getTableColumns() {
+        if (!loaded || schemas == null) {
+            return hiveMetastoreService.getTableColumns(isUserImpersonationEnabled() ? hiveService.getAllTablesForImpersonatedUser() : null);
+        }
+
+        final Predicate<CatalogTable> filter = getUserFilter();
+        final List<String> keys = tables.values().stream().filter(filter).map(CatalogTable::getKey).collect(Collectors.toList());
+        final Map<String, TableSchema> tableSchemas = getSchemas(keys);
+
+        final List<DatabaseMetadata> metadata = new ArrayList<>();
+        for (final String key : keys) {
+            final TableSchema schema = tableSchemas.get(key);
+            if (schema != null) {
+                for (final Field field : schema.getFields()) {
+                    final DefaultDatabaseMetadata row = new DefaultDatabaseMetadata();
+                    row.setDatabaseName(schema.getSchemaName());
+                    row.setTableName(schema.getName());
+                    row.setColumnName(field.getName());
+                    metadata.add(row);
+                }
+            }
+        }
+        return metadata;
+    }
+
+    /**
+     * Loads the catalog if necessary, otherwise applies changes from the metastore.
+     */
+    void refresh() {
+        try {
+            if (!loaded) {
+                load();
+                return;
+            }
+            if (lastEventId >= 0) {
+                applyEvents();
+            }
+            addCreatedTables();
+
+            // Renamed tables, and dropped or altered tables when notifications are not available, are detected by reconciling
+            if (System.currentTimeMillis() - lastReconcileTime >= TimeUnit.SECONDS.toMillis(reconcileInterval)) {
+                reconcile();
+            }
+        } catch (final Exception e) {
+            log.error("Unable to refresh the Hive schema catalog: {}", e, e);
+        }
+    }
+
+    /**
+     * Loads every database in parallel.
+     */
+    private void load() throws InterruptedException, ExecutionException {
+        final long start = System.currentTimeMillis();
+
+        // Read the notification id first so that changes during the load are applied afterwards
+        lastEventId = getLastEventId();
+
+        final List<String> databases = hiveMetastoreJdbcTemplate.queryForList(toDialect(DATABASES_QUERY), String.class);
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, loadThreads),
+                                                                      new ThreadFactoryBuilder().setDaemon(true).setNameFormat("hive-schema-catalog-load-%d").build());
+        try {
+            final List<Future<?>> futures = new ArrayList<>(databases.size());
+            for (final String database : databases) {
+                futures.add(executor.submit(() -> loadDatabase(database)));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        lastReconcileTime = System.currentTimeMillis();
+        loaded = true;
+        log.info("Loaded {} tables from {} Hive databases in {} ms", tables.size(), databases.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Loads the tables and columns of the specified database.
+     */
+    private void loadDatabase(@Nonnull final String database) {
+        final Map<Long, CatalogTable> tablesById = new HashMap<>();
+        for (final CatalogTable table : queryTables("WHERE d.\"NAME\" = ?", database)) {
+            tablesById.put(table.getId(), table);
+            putTable(table);
+        }
+        if (schemas != null && schemas.size() < maxTables) {
+            schemas.putAll(querySchemas(tablesById, "WHERE d.\"NAME\" = ?", database));
+        }
+    }
+
+    /**
+     * Applies the changes in the metastore notification log.
+     */
+    private void applyEvents() {
+        final List<Map<String, Object>> events = hiveMetastoreJdbcTemplate.queryForList(toDialect(EVENTS_QUERY), lastEventId);
+        for (final Map<String, Object> event : events) {
+            final String type = String.valueOf(getValue(event, "EVENT_TYPE"));
+            final String database = (String) getValue(event, "DB_NAME");
+            final String table = (String) getValue(event, "TBL_NAME");
+
+            if ("DROP_DATABASE".equals(type) && database != null) {
+                new ArrayList<>(getTablesWithPrefix(tables, database.toLowerCase() + ".")).forEach(this::removeTable);
+            } else if (("CREATE_TABLE".equals(type) || "ALTER_TABLE".equals(type) || "DROP_TABLE".equals(type)) && database != null && table != null) {
+                reloadTable(database, table);
+            }
+            lastEventId = ((Number) getValue(event, "EVENT_ID")).longValue();
+        }
+        if (!events.isEmpty()) {
+            log.debug("Applied {} Hive metastore events", events.size());
+        }
+    }
+
+    /**
+     * Adds the tables created since the last refresh.
+     */
+    private void addCreatedTables() {
+        for (final CatalogTable table : queryTables("WHERE t.\"CREATE_TIME\" >= ?", lastCreateTime)) {
+            final CatalogTable existing = tables.get(table.getKey());
+            if (existing == null || existing.getId() != table.getId()) {
+                putTable(table);
+                if (schemas != null) {
+                    schemas.invalidate(table.getKey());
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the table names with those in the metastore to detect dropped and renamed tables.
+     */
+    private void reconcile() {
+        final Map<String, CatalogTable> current = new HashMap<>();
+        queryTables("").forEach(table -> current.put(table.getKey(), table));
+
+        for (final CatalogTable table : new ArrayList<>(tables.values())) {
+            final CatalogTable latest = current.get(table.getKey());
+            if (latest == null || latest.getId() != table.getId()) {
+                removeTable(table);
+            }
+        }
+        current.values().stream().filter(table -> !tables.containsKey(table.getKey())).forEach(this::putTable);
+        if (lastEventId < 0) {
+            reconcileSchemas();
+        }
+        lastReconcileTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Replaces the cached columns that differ from those in the metastore to detect altered tables.
+     */
+    private void reconcileSchemas() {
+        if (schemas == null || schemas.size() == 0) {
+            return;
+        }
+
+        final Map<Long, CatalogTable> cachedTables = new HashMap<>();
+        schemas.asMap().keySet().stream().map(tables::get).filter(Objects::nonNull).forEach(table -> cachedTables.put(table.getId(), table));
+
+        querySchemas(cachedTables, "").forEach((key, latest) -> {
+            final TableSchema cached = schemas.getIfPresent(key);
+            if (cached != null && !getColumnTypes(cached).equals(getColumnTypes(latest))) {
+                log.debug("Columns of Hive table {} have changed", key);
+                schemas.put(key, latest);
+            }
+        });
+    }
+
+    /**
+     * Reloads the name and columns of the specified table.
+     */
+    private void reloadTable(@Nonnull final String database, @Nonnull final String table) {
+        final CatalogTable existing = tables.get(toKey(database, table));
+        if (existing != null) {
+            removeTable(existing);
+        }
+        queryTables("WHERE d.\"NAME\" = ? AND t.\"TBL_NAME\" = ?", database, table).forEach(this::putTable);
+    }
+
+    /**
+     * Gets the columns of the specified tables, loading any that are not cached.
+     */
+    @Nonnull
+    private Map<String, TableSchema> getSchemas(@Nonnull final Collection<String> keys) {
+        final Map<String, TableSchema> result = new HashMap<>(schemas.getAllPresent(keys));
+        if (result.size() < keys.size()) {
+            final Map<String, TableSchema> missing = loadSchemas(keys.stream().filter(key -> !result.containsKey(key)).collect(Collectors.toList()));
+            schemas.putAll(missing);
+            result.putAll(missing);
+        }
+        return result;
+    }
+
+    /**
+     * Loads the columns of the specified tables.
+     */
+    @Nonnull
+    private Map<String, TableSchema> loadSchemas(@Nonnull final Collection<String> keys) {
+        // Group tables by database
+        final Map<String, Map<Long, CatalogTable>> tablesByDatabase = new HashMap<>();
+        for (final String key : keys) {
+            final CatalogTable table = tables.get(key);
+            if (table != null) {
+                tablesByDatabase.computeIfAbsent(table.getDatabase(), database -> new HashMap<>()).put(table.getId(), table);
+            }
+        }
+
+        // Query columns of one table or an entire database
+        final Map<String, TableSchema> result = new HashMap<>();
+        tablesByDatabase.forEach((database, databaseTables) -> {
+            if (databaseTables.size() == 1) {
+                final Long id = databaseTables.keySet().iterator().next();
+                result.putAll(querySchemas(databaseTables, "WHERE t.\"TBL_ID\" = ?", id));
+            } else {
+                final Map<String, TableSchema> databaseSchemas = querySchemas(databaseTables, "WHERE d.\"NAME\" = ?", database);
+                databaseTables.values().stream().map(CatalogTable::getKey).filter(databaseSchemas::containsKey).forEach(key -> result.put(key, databaseSchemas.get(key)));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Queries the tables matching the specified condition.
+     */
+    @Nonnull
+    private List<CatalogTable> queryTables(@Nonnull final String where, @Nonnull final Object... args) {
+        final List<CatalogTable> result = hiveMetastoreJdbcTemplate.query(toDialect(TABLES_QUERY + where),
+                                                                          (rs, rowNum) -> new CatalogTable(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getInt(4)), args);
+        for (final CatalogTable table : result) {
+            if (table.getCreateTime() > lastCreateTime) {
+                lastCreateTime = table.getCreateTime();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Queries the columns of the tables matching the specified condition.
+     *
+     * @param catalogTables the tables to include, by id
+     * @return the table schemas by key
+     */
+    @Nonnull
+    private Map<String, TableSchema> querySchemas(@Nonnull final Map<Long, CatalogTable> catalogTables, @Nonnull final String where, @Nonnull final Object... args) {
+        final Map<String, TableSchema> result = new HashMap<>();
+        hiveMetastoreJdbcTemplate.query(toDialect(COLUMNS_QUERY + where + COLUMNS_ORDER), (RowCallbackHandler) rs -> {
+            final CatalogTable table = catalogTables.get(rs.getLong(1));
+            if (table != null) {
+                final TableSchema schema = result.computeIfAbsent(table.getKey(), key -> {
+                    final DefaultTableSchema tableSchema = new DefaultTableSchema();
+                    tableSchema.setName(table.getName());
+                    tableSchema.setSchemaName(table.getDatabase());
+                    tableSchema.setFields(new ArrayList<>());
+                    return tableSchema;
+                });
+                final DefaultField field = new DefaultField();
+                field.setName(rs.getString(2));
+                field.setNativeDataType(rs.getString(3));
+                field.setDerivedDataType(rs.getString(3));
+                schema.getFields().add(field);
+            }
+        }, args);
+
+        // Include tables without columns
+        catalogTables.values().stream().filter(table -> !result.containsKey(table.getKey())).forEach(table -> {
+            final DefaultTableSchema tableSchema = new DefaultTableSchema();
+            tableSchema.setName(table.getName());
+            tableSchema.setSchemaName(table.getDatabase());
+            tableSchema.setFields(new ArrayList<>());
+            result.put(table.getKey(), tableSchema);
+        });
+        return result;
+    }
+
+    /**
+     * Gets the name and type of each column of the specified table, in order.
+     */
+    @Nonnull
+    private static List<String> getColumnTypes(@Nonnull final TableSchema schema) {
+        return schema.getFields().stream().map(field -> field.getName() + " " + field.getNativeDataType()).collect(Collectors.toList());
+    }
+
+    /**
+     * Gets the id of the last metastore notification, or -1 if notifications are not available.
+     */
+    private long getLastEventId() {
+        try {
+            final Long id = hiveMetastoreJdbcTemplate.queryForObject(toDialect(LAST_EVENT_QUERY), Long.class);
+            return (id != null) ? id : 0;
+        } catch (final DataAccessException e) {
+            log.info("Hive metastore notifications are not available. The schema catalog will be refreshed using table create times.");
+            log.debug("Unable to query the Hive metastore notification log", e);
+            return -1;
+        }
+    }
+
+    /**
+     * Gets a filter for the tables accessible to the current user.
+     */
+    @Nonnull
+    private Predicate<CatalogTable> getUserFilter() {
+        if (!isUserImpersonationEnabled() || userTables == null) {
+            return table -> true;
+        }
+
+        final Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        final String user = (authentication != null) ? authentication.getName() : "";
+        final Set<String> accessible;
+        try {
+            accessible = userTables.get(user, () -> hiveService.getAllTablesForImpersonatedUser().stream().map(String::toLowerCase).collect(Collectors.toCollection(HashSet::new)));
+        } catch (final ExecutionException e) {
+            throw new IllegalStateException("Unable to list the tables for user " + user + ": " + e.getCause(), e.getCause());
+        }
+        return table -> accessible.contains(table.getKey());
+    }
+
+    private boolean isUserImpersonationEnabled() {
+        return Boolean.valueOf(env.getProperty("hive.userImpersonation.enabled"));
+    }
+
+    /**
+     * Adds the specified table to the indexes.
+     */
+    private void putTable(@Nonnull final CatalogTable table) {
+        tables.put(table.getKey(), table);
+        tablesByName.put(table.getName().toLowerCase() + NAME_SEPARATOR + table.getDatabase().toLowerCase(), table);
+    }
+
+    /**
+     * Removes the specified table from the indexes.
+     */
+    private void removeTable(@Nonnull final CatalogTable table) {
+        tables.remove(table.getKey(), table);
+        tablesByName.remove(table.getName().toLowerCase() + NAME_SEPARATOR + table.getDatabase().toLowerCase(), table);
+        if (schemas != null) {
+            schemas.invalidate(table.getKey());
+        }
+    }
+
+    /**
+     * Converts the specified query for the metastore database.
+     */
+    @Nonnull
+    private String toDialect(@Nonnull final String query) {
+        return DatabaseType.POSTGRES.equals(hiveMetastoreService.getMetastoreDatabaseType()) ? query : query.replace("\"", "");
+    }
+
+    @Nonnull
+    private static Collection<CatalogTable> getTablesWithPrefix(@Nonnull final NavigableMap<String, CatalogTable> index, @Nonnull final String prefix) {
+        return index.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values();
+    }
+
+    /**
+     * Gets a value from a row ignoring the case of the column name.
+     */
+    @Nullable
+    private static Object getValue(@Nonnull final Map<String, Object> row, @Nonnull final String column) {
+        final Object value = row.get(column);
+        return (value != null) ? value : row.entrySet().stream().filter(entry -> entry.getKey().equalsIgnoreCase(column)).map(Map.Entry::getValue).findFirst().orElse(null);
+    }
+
+    @Nonnull
+    private static String toKey(@Nonnull final String database, @Nonnull final String table) {
+        return (database + "." + table).toLowerCase();
+    }
+
+    /**
+     * A table in the Hive metastore.
+     */
+    private static final class CatalogTable {
+
+        private final int createTime;
+        private final String database;
+        private final long id;
+        private final String key;
+        private final String name;
+
+        CatalogTable(final long id, @Nonnull final String database, @Nonnull final String name, final int createTime) {
+            this.id = id;
+            this.database = database;
+            this.name = name;
+            this.createTime = createTime;
+            this.key = toKey(database, name);
+        }
+
+        int getCreateTime() {
+            return createTime;
+        }
+
+        @Nonnull
+        String getDatabase() {
+            return database;
+        }
+
+        long getId() {
+            return id;
+        }
+
+        @Nonnull
+        String getKey() {
+            return key;
+        }
+
+        @Nonnull
+        String getName() {
+            return name;
+        }
+
+        @Nonnull
+        String getQualifiedName() {
+            return database + "." + name;
+        }
+    }
+}
@@ -22,17 +22,14 @@ package com.thinkbiganalytics.hive.service;
 
 
 import com.thinkbiganalytics.discovery.model.DefaultQueryResult;
-import com.thinkbiganalytics.discovery.model.DefaultQueryResultColumn;
 import com.thinkbiganalytics.discovery.schema.Field;
 import com.thinkbiganalytics.discovery.schema.QueryResult;
 import com.thinkbiganalytics.discovery.schema.QueryResultColumn;
 import com.thinkbiganalytics.discovery.schema.TableSchema;
-import com.thinkbiganalytics.discovery.util.ParserHelper;
 import com.thinkbiganalytics.hive.util.HiveUtils;
 import com.thinkbiganalytics.kerberos.KerberosTicketConfiguration;
 import com.thinkbiganalytics.schema.DBSchemaParser;
 
-import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -41,10 +38,8 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -196,7 +191,6 @@ public class HiveService {
     public QueryResult query(String query) throws DataAccessException {
         final DefaultQueryResult queryResult = new DefaultQueryResult(query);
         final List<QueryResultColumn> columns = new ArrayList<>();
-        final Map<String, Integer> displayNameMap = new HashMap<>();
         if (query != null && !query.toLowerCase().startsWith("show")) {
             query = safeQuery(query);
         }
@@ -207,27 +201,7 @@ public class HiveService {
                 @Override
                 public Map<String, Object> mapRow(ResultSet rs, int rowNum) throws SQLException {
                     if (columns.isEmpty()) {
-                        ResultSetMetaData rsMetaData = rs.getMetaData();
-                        for (int i = 1; i <= rsMetaData.getColumnCount(); i++) {
-                            String colName = rsMetaData.getColumnName(i);
-                            DefaultQueryResultColumn column = new DefaultQueryResultColumn();
-                            column.setField(rsMetaData.getColumnName(i));
-                            String displayName = rsMetaData.getColumnLabel(i);
-                            column.setHiveColumnLabel(displayName);
-                            //remove the table name if it exists
-                            displayName = StringUtils.substringAfterLast(displayName, ".");
-                            Integer count = 0;
-                            if (displayNameMap.containsKey(displayName)) {
-                                count = displayNameMap.get(displayName);
-                                count++;
-                            }
-                            displayNameMap.put(displayName, count);
-                            column.setDisplayName(displayName + "" + (count > 0 ? count : ""));
-
-                            column.setTableName(StringUtils.substringAfterLast(rsMetaData.getColumnName(i), "."));
-                            column.setDataType(ParserHelper.sqlTypeToHiveType(rsMetaData.getColumnType(i)));
-                            columns.add(column);
-                        }
+                        columns.addAll(HiveQueryCursor.toColumns(rs.getMetaData()));
                         queryResult.setColumns(columns);
                     }
                     Map<String, Object> row = new LinkedHashMap<>();
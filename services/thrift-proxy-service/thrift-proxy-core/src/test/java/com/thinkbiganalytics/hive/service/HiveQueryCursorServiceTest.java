@@ -0,0 +1,186 @@
+package com.thinkbiganalytics.hive.service;
+
+/*-
+ * #%L
+ * thinkbig-thrift-proxy-core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import javax.sql.DataSource;
+
+public class HiveQueryCursorServiceTest {
+
+    /**
+     * Connections returned by the data source
+     */
+    private final List<Connection> connections = new ArrayList<>();
+
+    /**
+     * Number of rows in each query result
+     */
+    private int rowCount;
+
+    /**
+     * Service being tested
+     */
+    private HiveQueryCursorService service;
+
+    @Before
+    public void setUp() throws Exception {
+        final DataSource dataSource = Mockito.mock(DataSource.class);
+        Mockito.when(dataSource.getConnection()).thenAnswer(invocation -> newConnection());
+
+        final JdbcTemplate jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        Mockito.when(jdbcTemplate.getDataSource()).thenReturn(dataSource);
+
+        service = new HiveQueryCursorService();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "idleTimeout", 60L);
+        ReflectionTestUtils.setField(service, "maxOpenCursors", 2);
+        ReflectionTestUtils.setField(service, "maxRows", 1000);
+        ReflectionTestUtils.setField(service, "resultCacheTtl", 0L);
+        service.start();
+    }
+
+    @After
+    public void tearDown() {
+        service.stop();
+    }
+
+    /**
+     * Verify the rows are read one page at a time and the connection is released after the last page.
+     */
+    @Test
+    public void fetchPages() throws Exception {
+        rowCount = 5;
+
+        final HiveQueryPage first = service.open("SELECT id FROM t", 2);
+        Assert.assertEquals(2, first.getRows().size());
+        Assert.assertEquals(1, first.getColumns().size());
+        Assert.assertFalse(first.isComplete());
+        Assert.assertNotNull(first.getCursorId());
+
+        final HiveQueryPage second = service.fetch(first.getCursorId(), 2).orElseThrow(AssertionError::new);
+        Assert.assertEquals(2, second.getOffset());
+        Assert.assertEquals(2, second.getRows().size());
+        Assert.assertNull(second.getColumns());
+        Assert.assertEquals(3, second.getRows().get(0)[0]);
+        Mockito.verify(connections.get(0), Mockito.never()).close();
+
+        final HiveQueryPage last = service.fetch(first.getCursorId(), 2).orElseThrow(AssertionError::new);
+        Assert.assertEquals(1, last.getRows().size());
+        Assert.assertTrue(last.isComplete());
+        Assert.assertNull(last.getCursorId());
+        Mockito.verify(connections.get(0)).close();
+
+        Assert.assertEquals(Optional.empty(), service.fetch(first.getCursorId(), 2));
+    }
+
+    /**
+     * Verify a cursor that is not read within the idle timeout is closed.
+     */
+    @Test
+    public void closeIdleCursors() throws Exception {
+        rowCount = 5;
+        final HiveQueryPage first = service.open("SELECT id FROM t", 2);
+
+        // Cursor is still in use
+        service.closeIdleCursors();
+        Assert.assertTrue(service.fetch(first.getCursorId(), 1).isPresent());
+
+        // Cursor has expired
+        ReflectionTestUtils.setField(service, "idleTimeout", 0L);
+        Thread.sleep(10);
+        service.closeIdleCursors();
+        Mockito.verify(connections.get(0)).close();
+        Assert.assertEquals(Optional.empty(), service.fetch(first.getCursorId(), 1));
+
+        // Expired cursor no longer counts toward the limit
+        service.open("SELECT id FROM t", 2);
+        service.open("SELECT id FROM t", 2);
+    }
+
+    /**
+     * Verify the number of open cursors is limited.
+     */
+    @Test
+    public void maxOpenCursors() throws Exception {
+        rowCount = 5;
+        final HiveQueryPage first = service.open("SELECT id FROM t", 2);
+        service.open("SELECT id FROM t", 2);
+
+        try {
+            service.open("SELECT id FROM t", 2);
+            Assert.fail("Expected IllegalStateException");
+        } catch (final IllegalStateException e) {
+            // expected
+        }
+        Assert.assertEquals(2, connections.size());
+
+        // Results that fit in a single page do not hold a cursor
+        rowCount = 1;
+        Assert.assertTrue(service.cancel(first.getCursorId()));
+        Assert.assertTrue(service.open("SELECT id FROM t", 2).isComplete());
+        Assert.assertTrue(service.open("SELECT id FROM t", 2).isComplete());
+        rowCount = 5;
+        Assert.assertFalse(service.open("SELECT id FROM t", 2).isComplete());
+    }
+
+    /**
+     * Creates a connection returning {@code rowCount} rows with the values 1 to {@code rowCount}.
+     */
+    private Connection newConnection() throws SQLException {
+        final ResultSetMetaData metaData = Mockito.mock(ResultSetMetaData.class);
+        Mockito.when(metaData.getColumnCount()).thenReturn(1);
+        Mockito.when(metaData.getColumnName(1)).thenReturn("t.id");
+        Mockito.when(metaData.getColumnLabel(1)).thenReturn("t.id");
+        Mockito.when(metaData.getColumnType(1)).thenReturn(Types.INTEGER);
+
+        final int rows = rowCount;
+        final int[] position = {0};
+        final ResultSet resultSet = Mockito.mock(ResultSet.class);
+        Mockito.when(resultSet.getMetaData()).thenReturn(metaData);
+        Mockito.when(resultSet.next()).thenAnswer(invocation -> ++position[0] <= rows);
+        Mockito.when(resultSet.getObject(1)).thenAnswer(invocation -> position[0]);
+
+        final Statement statement = Mockito.mock(Statement.class);
+        Mockito.when(statement.executeQuery(Mockito.anyString())).thenReturn(resultSet);
+
+        final Connection connection = Mockito.mock(Connection.class);
+        Mockito.when(connection.createStatement()).thenReturn(statement);
+        connections.add(connection);
+        return connection;
+    }
+}
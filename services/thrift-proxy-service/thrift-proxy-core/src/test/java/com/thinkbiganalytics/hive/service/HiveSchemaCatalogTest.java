@@ -0,0 +1,158 @@
+package com.thinkbiganalytics.hive.service;
+
+/*-
+ * #%L
+ * thinkbig-thrift-proxy-core
+ * %%
+ * Copyright (C) 2017 ThinkBig Analytics
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.cache.CacheBuilder;
+import com.thinkbiganalytics.discovery.schema.DatabaseMetadata;
+import com.thinkbiganalytics.jdbc.util.DatabaseType;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+public class HiveSchemaCatalogTest {
+
+    /**
+     * Catalog being tested
+     */
+    private HiveSchemaCatalog catalog;
+
+    /**
+     * Environment properties
+     */
+    private Environment env;
+
+    /**
+     * Hive metastore database
+     */
+    private JdbcTemplate metastore;
+
+    @Before
+    public void setUp() {
+        metastore = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:metastore-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1"));
+        metastore.execute("CREATE TABLE DBS (DB_ID BIGINT, NAME VARCHAR(128))");
+        metastore.execute("CREATE TABLE TBLS (TBL_ID BIGINT, DB_ID BIGINT, SD_ID BIGINT, TBL_NAME VARCHAR(128), CREATE_TIME INT)");
+        metastore.execute("CREATE TABLE SDS (SD_ID BIGINT, CD_ID BIGINT)");
+        metastore.execute("CREATE TABLE COLUMNS_V2 (CD_ID BIGINT, COLUMN_NAME VARCHAR(128), TYPE_NAME VARCHAR(128), INTEGER_IDX INT)");
+        metastore.update("INSERT INTO DBS VALUES (1, 'sales')");
+        metastore.update("INSERT INTO TBLS VALUES (1, 1, 1, 'orders', 100), (2, 1, 2, 'customers', 100)");
+        metastore.update("INSERT INTO SDS VALUES (1, 1), (2, 2)");
+        metastore.update("INSERT INTO COLUMNS_V2 VALUES (1, 'id', 'int', 0), (1, 'amount', 'double', 1), (2, 'id', 'int', 0)");
+
+        env = Mockito.mock(Environment.class);
+        final HiveMetastoreService hiveMetastoreService = Mockito.mock(HiveMetastoreService.class);
+        Mockito.when(hiveMetastoreService.getMetastoreDatabaseType()).thenReturn(DatabaseType.MYSQL);
+        final HiveService hiveService = Mockito.mock(HiveService.class);
+        Mockito.when(hiveService.getAllTablesForImpersonatedUser()).thenReturn(Collections.singletonList("sales.orders"));
+
+        catalog = new HiveSchemaCatalog();
+        ReflectionTestUtils.setField(catalog, "env", env);
+        ReflectionTestUtils.setField(catalog, "hiveMetastoreService", hiveMetastoreService);
+        ReflectionTestUtils.setField(catalog, "hiveMetastoreJdbcTemplate", metastore);
+        ReflectionTestUtils.setField(catalog, "hiveService", hiveService);
+        ReflectionTestUtils.setField(catalog, "loadThreads", 1);
+        ReflectionTestUtils.setField(catalog, "maxTables", 100L);
+        ReflectionTestUtils.setField(catalog, "reconcileInterval", 900L);
+        ReflectionTestUtils.setField(catalog, "schemas", CacheBuilder.newBuilder().build());
+        ReflectionTestUtils.setField(catalog, "userTables", CacheBuilder.newBuilder().build());
+    }
+
+    /**
+     * Verify an impersonated user only finds their own tables, including while the catalog is loading.
+     */
+    @Test
+    public void searchWithImpersonation() {
+        Mockito.when(env.getProperty("hive.userImpersonation.enabled")).thenReturn("true");
+        catalog.refresh();
+        Assert.assertTrue(catalog.isLoaded());
+        Assert.assertEquals(Collections.singletonList("sales.orders"), catalog.search("", 10));
+        Assert.assertEquals(Collections.singletonList("orders"), catalog.getTableNames("sales"));
+
+        // Tables already loaded are filtered before the load completes
+        ReflectionTestUtils.setField(catalog, "loaded", false);
+        Assert.assertEquals(Collections.singletonList("sales.orders"), catalog.search("", 10));
+        Assert.assertEquals(Collections.singletonList("sales.orders"), catalog.getTableNames());
+
+        // Without impersonation every table is visible
+        Mockito.when(env.getProperty("hive.userImpersonation.enabled")).thenReturn("false");
+        Assert.assertEquals(2, catalog.search("", 10).size());
+    }
+
+    /**
+     * Verify an ALTER_TABLE notification replaces the cached columns.
+     */
+    @Test
+    public void alterTableWithNotifications() {
+        metastore.execute("CREATE TABLE NOTIFICATION_LOG (EVENT_ID BIGINT, EVENT_TYPE VARCHAR(32), DB_NAME VARCHAR(128), TBL_NAME VARCHAR(128))");
+        catalog.refresh();
+        Assert.assertEquals("[sales.customers.id, sales.orders.id, sales.orders.amount]", getColumns().toString());
+
+        addColumn();
+        metastore.update("INSERT INTO NOTIFICATION_LOG VALUES (1, 'ALTER_TABLE', 'sales', 'orders')");
+        catalog.refresh();
+        Assert.assertEquals("[sales.customers.id, sales.orders.id, sales.orders.amount, sales.orders.region]", getColumns().toString());
+    }
+
+    /**
+     * Verify altered columns are detected by reconciling when notifications are not available.
+     */
+    @Test
+    public void alterTableWithoutNotifications() {
+        catalog.refresh();
+        Assert.assertEquals("[sales.customers.id, sales.orders.id, sales.orders.amount]", getColumns().toString());
+
+        // Cached columns are used until the next reconciliation
+        addColumn();
+        catalog.refresh();
+        Assert.assertEquals("[sales.customers.id, sales.orders.id, sales.orders.amount]", getColumns().toString());
+
+        ReflectionTestUtils.setField(catalog, "reconcileInterval", 0L);
+        catalog.refresh();
+        Assert.assertEquals("[sales.customers.id, sales.orders.id, sales.orders.amount, sales.orders.region]", getColumns().toString());
+    }
+
+    /**
+     * Adds a column to the orders table the way Hive does, with a new column descriptor.
+     */
+    private void addColumn() {
+        metastore.update("INSERT INTO COLUMNS_V2 VALUES (3, 'id', 'int', 0), (3, 'amount', 'double', 1), (3, 'region', 'string', 2)");
+        metastore.update("UPDATE SDS SET CD_ID = 3 WHERE SD_ID = 1");
+    }
+
+    /**
+     * Lists the columns in the catalog as {@code database.table.column}.
+     */
+    private List<String> getColumns() {
+        return catalog.getTableColumns().stream()
+            .map((DatabaseMetadata row) -> row.getDatabaseName() + "." + row.getTableName() + "." + row.getColumnName())
+            .collect(Collectors.toList());
+    }
+}
@@ -37,6 +37,7 @@ var app = angular.module(MODULE_FEED_MGR, [
     'ui.grid.resizeColumns',
     'ui.grid.autoResize',
     'ui.grid.moveColumns',
+    'ui.grid.infiniteScroll',
     'ui.grid.pagination',
     'templates.navigate-before.html', 'templates.navigate-first.html', 'templates.navigate-last.html', 'templates.navigate-next.html',
     'ngVis',
@@ -22,7 +22,7 @@
  *
  * @typedef {Object} TransformResponse
  * @property {string} message the error message if status is "error"
- * @property {QueryResult} results the results if status is "success"
+ * @property {TransformResultPage} page the first page of results if status is "success"
  * @property {string} status "success" if the script executed successfully or "error" if an exception occurred
  * @property {string} table the Hive table containing the results if status is "success"
  */
@@ -38,6 +38,16 @@
  * @property {Array.<Object.<String, *>>} rows maps field names to values
  */
 
+/**
+ * A page of the results of a Spark transformation, stored by column.
+ *
+ * @typedef {Object} TransformResultPage
+ * @property {Array.<QueryResultColumn>} columns list of column details
+ * @property {Array.<Array.<*>>} data the values of each column, in the same order as the columns
+ * @property {number} offset index of the first row in this page
+ * @property {number} totalRows total number of rows in the results
+ */
+
 /**
  * A column in a QueryResult.
  *
@@ -69,15 +79,19 @@
  * @typedef {Object} ScriptState
  * @property {Array.<QueryResultColumn>|null} columns the columns as returned by the server
  * @property {Object} context the UI context for this script state
- * @property {Array.<Object.<string,*>>|null} rows the rows as returned by the server
+ * @property {Array.<Object.<string,*>>|null} rows the rows fetched from the server
  * @property {string} script the Spark script
  * @property {string|null} table the table containing the results
+ * @property {number} totalRows the total number of rows in the results
  */
 
 angular.module(MODULE_FEED_MGR).factory("SparkShellService", function($http, $mdDialog, $q, $timeout, RestUrlService) {
     // URL to the API server
     var API_URL = RestUrlService.SPARK_SHELL_SERVICE_URL;
 
+    /** Number of rows to request in each page of results */
+    var PAGE_SIZE = 1000;
+
     /** TernJS directive for defined types */
     var DEFINE_DIRECTIVE = "!define";
 
@@ -313,10 +327,53 @@ angular.module(MODULE_FEED_MGR).factory("SparkShellService", function($http, $md
             });
         },
 
+        /**
+         * Fetches the next page of rows after applying the current transformation and appends them to the rows.
+         *
+         * @returns {Promise} a promise for {@code true} if there are more rows to fetch, or {@code false} otherwise
+         */
+        fetchRows: function() {
+            var deferred = $q.defer();
+            var self = this;
+            var state = this.getState();
+
+            if (!this.hasMoreRows()) {
+                deferred.resolve(false);
+                return deferred.promise;
+            }
+
+            $http({
+                method: "GET",
+                url: API_URL + "/transform/" + state.table + "/rows",
+                params: {offset: state.rows.length, limit: PAGE_SIZE},
+                headers: {"Content-Type": "application/json"},
+                responseType: "json"
+            }).then(function(response) {
+                var rows = self.toRows(response.data.page);
+                Array.prototype.push.apply(state.rows, rows);
+                state.totalRows = (rows.length > 0) ? response.data.page.totalRows : state.rows.length;
+                deferred.resolve(state.rows.length < state.totalRows);
+            }, function(response) {
+                deferred.reject((response.data && angular.isString(response.data.message)) ? response.data.message : "An unknown error occurred.");
+            });
+
+            return deferred.promise;
+        },
+
+        /**
+         * Indicates if there are rows that have not been fetched for the current transformation.
+         *
+         * @returns {boolean} {@code true} if {@link #fetchRows} will return more rows, or {@code false} otherwise
+         */
+        hasMoreRows: function() {
+            var state = this.getState();
+            return (angular.isArray(state.rows) && angular.isString(state.table) && state.rows.length < state.totalRows);
+        },
+
         /**
          * Gets the rows after applying the current transformation.
          *
-         * @returns {Array.<Object.<string,*>>|null} the rows or {@code null} if the transformation has not been applied
+         * @returns {Array.<Object.<string,*>>|null} the rows fetched so far or {@code null} if the transformation has not been applied
          */
         getRows: function() {
             return this.getState().rows;
@@ -539,10 +596,10 @@ angular.module(MODULE_FEED_MGR).factory("SparkShellService", function($http, $md
                 }
 
                 // Verify column names
-                var invalid = _.find(response.data.results.columns, function(column) {
+                var invalid = _.find(response.data.page.columns, function(column) {
                     return (column.hiveColumnLabel.match(/[.`]/) !== null);  // Escaping backticks not supported until Spark 2.0
                 });
-                var reserved = _.find(response.data.results.columns, function(column) {
+                var reserved = _.find(response.data.page.columns, function(column) {
                     return (column.hiveColumnLabel === "processing_dttm");
                 });
 
@@ -556,9 +613,10 @@ angular.module(MODULE_FEED_MGR).factory("SparkShellService", function($http, $md
                     state.rows = [];
                     deferred.reject("Column name '" + reserved.hiveColumnLabel + "' is reserved. Please choose a different name.");
                 } else {
-                    state.columns = response.data.results.columns;
-                    state.rows = response.data.results.rows;
+                    state.columns = response.data.page.columns;
+                    state.rows = self.toRows(response.data.page);
                     state.table = response.data.table;
+                    state.totalRows = response.data.page.totalRows;
                     deferred.resolve(true);
                 }
             };
@@ -644,7 +702,29 @@ angular.module(MODULE_FEED_MGR).factory("SparkShellService", function($http, $md
          * @returns {ScriptState} a new script state
          */
         newState: function() {
-            return {columns: null, context: {}, rows: null, script: "", table: null};
+            return {columns: null, context: {}, rows: null, script: "", table: null, totalRows: 0};
+        },
+
+        /**
+         * Converts the specified page of results to rows that map display names to values.
+         *
+         * @private
+         * @param {TransformResultPage} page the page of results
+         * @returns {Array.<Object.<string,*>>} the rows
+         */
+        toRows: function(page) {
+            var rowCount = (page.data.length > 0) ? page.data[0].length : 0;
+            var rows = [];
+
+            for (var r = 0; r < rowCount; ++r) {
+                var row = {};
+                for (var c = 0; c < page.columns.length; ++c) {
+                    row[page.columns[c].displayName] = page.data[c][r];
+                }
+                rows.push(row);
+            }
+
+            return rows;
         }
     });
 
@@ -89,9 +89,12 @@
             enableColumnResizing: true,
             enableFiltering: true,
             flatEntityAccess: true,
+            infiniteScrollDown: true,
+            infiniteScrollRowsFromEnd: 100,
             onRegisterApi: function(grid) {
                 self.gridApi = grid;
                 grid.colMovable.on.columnPositionChanged($scope, angular.bind(self, self.onColumnMove));
+                grid.infiniteScroll.on.needLoadMoreData($scope, angular.bind(self, self.onNeedLoadMoreData));
             }
         };
 
@@ -350,6 +353,7 @@
             self.gridApi.grid.moveColumns.orderCache = [];
             self.gridOptions.columnDefs = columns;
             self.gridOptions.data = tableData.rows;
+            self.gridApi.infiniteScroll.resetScroll(false, self.sparkShellService.hasMoreRows());
 
             self.updateCodeMirrorAutoComplete();
         }
@@ -488,6 +492,21 @@
             self.addFunction(self.currentFormula, {formula: self.currentFormula, icon: "code", name: self.currentFormula});
         };
 
+        /**
+         * Fetches the next page of rows when the grid is scrolled near the last row.
+         */
+        this.onNeedLoadMoreData = function() {
+            var sparkShellService = self.sparkShellService;
+            sparkShellService.fetchRows().then(function(hasMoreRows) {
+                if (sparkShellService === self.sparkShellService) {
+                    self.gridApi.infiniteScroll.dataLoaded(false, hasMoreRows);
+                }
+            }, function(message) {
+                self.gridApi.infiniteScroll.dataLoaded(false, false);
+                $log.error("Failed to fetch rows: " + message);
+            });
+        };
+
         /**
          * Called when the column ordering changes.
          */